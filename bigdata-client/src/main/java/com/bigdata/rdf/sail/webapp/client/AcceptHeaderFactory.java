@@ -43,6 +43,7 @@ import java.util.Set;
 import org.openrdf.query.resultio.BooleanQueryResultFormat;
 import org.openrdf.query.resultio.BooleanQueryResultParserRegistry;
 import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserFactory;
 import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParserRegistry;
@@ -218,6 +219,10 @@ public class AcceptHeaderFactory {
      * solution sets together because the boolean format overlaps the solution
      * set format (they are both [application/sparql-results+xml] so putting
      * them together blurs the quality annotations.
+     * <p>
+     * The {@link BinaryResults} format is preferred when its parser is
+     * available since it avoids the cost of writing and parsing the lexical
+     * form of each RDF Value in each solution.
      */
     public static String getDefaultSolutionsAcceptHeader() {
        
@@ -230,11 +235,15 @@ public class AcceptHeaderFactory {
         
         final Iterator<TupleQueryResultFormat> itr = values.iterator();
 
+        TupleQueryResultFormat preferredFormat = TupleQueryResultFormat.BINARY;
+
         while (itr.hasNext()) {
 
             final TupleQueryResultFormat format = itr.next();
 
-            if (registry.get(format) == null) {
+            final TupleQueryResultParserFactory factory = registry.get(format);
+
+            if (factory == null) {
 
                 /*
                  * Remove any format for which there is no registered parser.
@@ -245,12 +254,16 @@ public class AcceptHeaderFactory {
                 
                 itr.remove();
 
+            } else if (factory instanceof BinaryResultsParserFactory) {
+
+                preferredFormat = format;
+
             }
 
         }
         
         final List<String> list2 = AcceptHeaderFactory.getAcceptParams(values,
-                TupleQueryResultFormat.BINARY);
+                preferredFormat);
 
         return toString(list2);
         
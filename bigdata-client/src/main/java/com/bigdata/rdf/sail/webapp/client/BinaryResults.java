@@ -0,0 +1,307 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.XMLSchema;
+
+import com.bigdata.rdf.ServiceProviderHook;
+
+/**
+ * The compact binary interchange format for SPARQL result sets (
+ * {@link ServiceProviderHook#BINARY_RESULTS}).
+ * <p>
+ * The stream begins with a header
+ * 
+ * <pre>
+ * magic:int, version:byte, nvars:int, name:string[nvars]
+ * </pre>
+ * 
+ * which is followed by a sequence of blocks. Each block begins with a one byte
+ * tag:
+ * <dl>
+ * <dt>{@link #TERMS}</dt>
+ * <dd><code>n:int</code> followed by <code>n</code> terms (the dictionary).
+ * Each term is assigned the next identifier, starting from zero at the start of
+ * the stream and after each {@link #CLEAR}. A typed literal refers to its
+ * datatype by the identifier of a URI which was sent before it.</dd>
+ * <dt>{@link #ROWS}</dt>
+ * <dd><code>n:int</code> followed by <code>n</code> solutions. Each solution
+ * has one fixed width cell (<code>kind:byte, payload:long</code>) per variable
+ * in the header. A {@link #CELL_TERM} cell carries the identifier of a term
+ * already sent in the dictionary. The other kinds carry an unbound variable or
+ * an inline numeric value in the payload.</dd>
+ * <dt>{@link #CLEAR}</dt>
+ * <dd>The dictionary is discarded. This bounds the memory demand on both sides
+ * for very large result sets.</dd>
+ * <dt>{@link #END}</dt>
+ * <dd>The end of the result set.</dd>
+ * </dl>
+ * Strings are written as their length in bytes (<code>int</code>) followed by
+ * their UTF-8 encoding.
+ * <p>
+ * Note: Statement identifiers (RDR) are sent as blank nodes.
+ * 
+ * @see BinaryResultsWriter
+ * @see BinaryResultsParser
+ */
+public class BinaryResults {
+
+    /**
+     * The magic value at the start of the stream.
+     */
+    static final int MAGIC = 0x42475253;
+
+    /**
+     * The current version of the format.
+     */
+    static final byte VERSION = 0;
+
+    /*
+     * Block tags.
+     */
+    static final byte END = 0;
+    static final byte TERMS = 1;
+    static final byte ROWS = 2;
+    static final byte CLEAR = 3;
+
+    /*
+     * Term kinds.
+     */
+    static final byte TERM_URI = 1;
+    static final byte TERM_BNODE = 2;
+    static final byte TERM_LITERAL = 3;
+    static final byte TERM_LANG_LITERAL = 4;
+    static final byte TERM_TYPED_LITERAL = 5;
+
+    /*
+     * Cell kinds.
+     */
+    public static final byte CELL_UNBOUND = 0;
+    public static final byte CELL_TERM = 1;
+    public static final byte CELL_BOOLEAN = 2;
+    public static final byte CELL_BYTE = 3;
+    public static final byte CELL_SHORT = 4;
+    public static final byte CELL_INT = 5;
+    public static final byte CELL_LONG = 6;
+    public static final byte CELL_INTEGER = 7;
+    public static final byte CELL_FLOAT = 8;
+    public static final byte CELL_DOUBLE = 9;
+
+    /**
+     * The #of bytes in a cell.
+     */
+    static final int CELL_SIZE = 9;
+
+    /**
+     * The default #of solutions in a {@link #ROWS} block.
+     */
+    public static final int DEFAULT_ROWS_PER_BLOCK = 1000;
+
+    /**
+     * The default #of terms in the dictionary after which the writer will
+     * {@link #CLEAR} it.
+     */
+    public static final int DEFAULT_MAX_TERMS = 100000;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static void writeString(final DataOutput out, final String s)
+            throws IOException {
+
+        final byte[] b = s.getBytes(UTF8);
+
+        out.writeInt(b.length);
+
+        out.write(b);
+
+    }
+
+    static String readString(final DataInput in) throws IOException {
+
+        final int len = in.readInt();
+
+        if (len < 0)
+            throw new IOException("Bad string length: " + len);
+
+        final byte[] b = new byte[len];
+
+        in.readFully(b);
+
+        return new String(b, UTF8);
+
+    }
+
+    /**
+     * Write a term (other than a typed literal) onto the dictionary.
+     * 
+     * @param datatypeId
+     *            The identifier of the datatype of a typed literal and
+     *            <code>-1</code> otherwise.
+     */
+    static void writeTerm(final DataOutput out, final Value v,
+            final int datatypeId) throws IOException {
+
+        if (v instanceof URI) {
+
+            out.writeByte(TERM_URI);
+
+            writeString(out, v.stringValue());
+
+        } else if (v instanceof BNode) {
+
+            out.writeByte(TERM_BNODE);
+
+            writeString(out, ((BNode) v).getID());
+
+        } else if (v instanceof Literal) {
+
+            final Literal lit = (Literal) v;
+
+            if (lit.getLanguage() != null) {
+
+                out.writeByte(TERM_LANG_LITERAL);
+
+                writeString(out, lit.getLabel());
+
+                writeString(out, lit.getLanguage());
+
+            } else if (lit.getDatatype() != null) {
+
+                out.writeByte(TERM_TYPED_LITERAL);
+
+                writeString(out, lit.getLabel());
+
+                out.writeInt(datatypeId);
+
+            } else {
+
+                out.writeByte(TERM_LITERAL);
+
+                writeString(out, lit.getLabel());
+
+            }
+
+        } else {
+
+            throw new IllegalArgumentException("Value: " + v);
+
+        }
+
+    }
+
+    /**
+     * Read a term from the dictionary.
+     * 
+     * @param terms
+     *            The terms which have already been read (used to resolve the
+     *            datatype of a typed literal).
+     * @param nterms
+     *            The #of terms which have already been read.
+     */
+    static Value readTerm(final DataInput in, final ValueFactory vf,
+            final Value[] terms, final int nterms) throws IOException {
+
+        final byte kind = in.readByte();
+
+        switch (kind) {
+        case TERM_URI:
+            return vf.createURI(readString(in));
+        case TERM_BNODE:
+            return vf.createBNode(readString(in));
+        case TERM_LITERAL:
+            return vf.createLiteral(readString(in));
+        case TERM_LANG_LITERAL: {
+            final String label = readString(in);
+            return vf.createLiteral(label, readString(in));
+        }
+        case TERM_TYPED_LITERAL: {
+            final String label = readString(in);
+            final int datatypeId = in.readInt();
+            if (datatypeId < 0 || datatypeId >= nterms
+                    || !(terms[datatypeId] instanceof URI))
+                throw new IOException("Bad datatype: " + datatypeId);
+            return vf.createLiteral(label, (URI) terms[datatypeId]);
+        }
+        default:
+            throw new IOException("Unknown term kind: " + kind);
+        }
+
+    }
+
+    /**
+     * Decode an inline cell as a {@link Literal}. The lexical form is the same
+     * as the one which the database reports for an inline value of that
+     * datatype.
+     */
+    static Literal decodeInline(final ValueFactory vf, final byte kind,
+            final long payload) {
+
+        switch (kind) {
+        case CELL_BOOLEAN:
+            return vf.createLiteral(payload != 0L ? "true" : "false",
+                    XMLSchema.BOOLEAN);
+        case CELL_BYTE:
+            return vf.createLiteral(Byte.toString((byte) payload),
+                    XMLSchema.BYTE);
+        case CELL_SHORT:
+            return vf.createLiteral(Short.toString((short) payload),
+                    XMLSchema.SHORT);
+        case CELL_INT:
+            return vf.createLiteral(Integer.toString((int) payload),
+                    XMLSchema.INT);
+        case CELL_LONG:
+            return vf.createLiteral(Long.toString(payload), XMLSchema.LONG);
+        case CELL_INTEGER:
+            return vf.createLiteral(Long.toString(payload), XMLSchema.INTEGER);
+        case CELL_FLOAT:
+            return vf.createLiteral(
+                    Float.toString(Float.intBitsToFloat((int) payload)),
+                    XMLSchema.FLOAT);
+        case CELL_DOUBLE:
+            return vf.createLiteral(
+                    Double.toString(Double.longBitsToDouble(payload)),
+                    XMLSchema.DOUBLE);
+        default:
+            throw new IllegalArgumentException("Not an inline cell: " + kind);
+        }
+
+    }
+
+}
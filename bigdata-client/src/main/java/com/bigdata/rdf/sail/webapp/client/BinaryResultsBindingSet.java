@@ -0,0 +1,268 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.query.Binding;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.BindingImpl;
+import org.openrdf.query.impl.ListBindingSet;
+
+/**
+ * A solution read by the {@link BinaryResultsParser}. This is a view onto the
+ * cells of one row of a block. The dictionary terms were resolved when the
+ * block was read, but an inline value is only decoded the first time it is
+ * requested.
+ */
+class BinaryResultsBindingSet implements BindingSet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> bindingNames;
+
+    private final transient ValueFactory vf;
+
+    private final byte[] kinds;
+
+    private final long[] payloads;
+
+    private final Value[] values;
+
+    /**
+     * The offset of the first cell of this solution.
+     */
+    private final int off;
+
+    BinaryResultsBindingSet(final List<String> bindingNames,
+            final ValueFactory vf, final byte[] kinds, final long[] payloads,
+            final Value[] values, final int off) {
+
+        this.bindingNames = bindingNames;
+        this.vf = vf;
+        this.kinds = kinds;
+        this.payloads = payloads;
+        this.values = values;
+        this.off = off;
+
+    }
+
+    /**
+     * Return the value of the i<sup>th</sup> variable (<code>null</code> if
+     * the variable is not bound).
+     */
+    private Value get(final int i) {
+
+        final int j = off + i;
+
+        final byte kind = kinds[j];
+
+        if (kind == BinaryResults.CELL_UNBOUND)
+            return null;
+
+        Value v = values[j];
+
+        if (v == null) {
+
+            // Note: A race here is benign.
+            values[j] = v = BinaryResults.decodeInline(vf, kind, payloads[j]);
+
+        }
+
+        return v;
+
+    }
+
+    @Override
+    public Value getValue(final String bindingName) {
+
+        final int i = bindingNames.indexOf(bindingName);
+
+        return i == -1 ? null : get(i);
+
+    }
+
+    @Override
+    public Binding getBinding(final String bindingName) {
+
+        final Value v = getValue(bindingName);
+
+        return v == null ? null : new BindingImpl(bindingName, v);
+
+    }
+
+    @Override
+    public boolean hasBinding(final String bindingName) {
+
+        final int i = bindingNames.indexOf(bindingName);
+
+        return i != -1 && kinds[off + i] != BinaryResults.CELL_UNBOUND;
+
+    }
+
+    @Override
+    public Set<String> getBindingNames() {
+
+        final Set<String> names = new LinkedHashSet<String>();
+
+        for (int i = 0; i < bindingNames.size(); i++) {
+
+            if (kinds[off + i] != BinaryResults.CELL_UNBOUND)
+                names.add(bindingNames.get(i));
+
+        }
+
+        return names;
+
+    }
+
+    @Override
+    public int size() {
+
+        int n = 0;
+
+        for (int i = 0; i < bindingNames.size(); i++) {
+
+            if (kinds[off + i] != BinaryResults.CELL_UNBOUND)
+                n++;
+
+        }
+
+        return n;
+
+    }
+
+    @Override
+    public Iterator<Binding> iterator() {
+
+        final List<Binding> bindings = new ArrayList<Binding>(
+                bindingNames.size());
+
+        for (int i = 0; i < bindingNames.size(); i++) {
+
+            final Value v = get(i);
+
+            if (v != null)
+                bindings.add(new BindingImpl(bindingNames.get(i), v));
+
+        }
+
+        return bindings.iterator();
+
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+
+        if (this == o)
+            return true;
+
+        if (!(o instanceof BindingSet))
+            return false;
+
+        final BindingSet other = (BindingSet) o;
+
+        if (other.size() != size())
+            return false;
+
+        for (Binding b : other) {
+
+            if (!b.getValue().equals(getValue(b.getName())))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public int hashCode() {
+
+        int h = 0;
+
+        for (Binding b : this) {
+
+            h ^= b.hashCode();
+
+        }
+
+        return h;
+
+    }
+
+    /**
+     * Serialize the decoded solution rather than this view.
+     */
+    private Object writeReplace() {
+
+        final List<Value> list = new ArrayList<Value>(bindingNames.size());
+
+        for (int i = 0; i < bindingNames.size(); i++) {
+
+            list.add(get(i));
+
+        }
+
+        return new ListBindingSet(bindingNames, list);
+
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append('[');
+
+        boolean first = true;
+
+        for (Binding b : this) {
+
+            if (!first)
+                sb.append(';');
+
+            sb.append(b);
+
+            first = false;
+
+        }
+
+        return sb.append(']').toString();
+
+    }
+
+}
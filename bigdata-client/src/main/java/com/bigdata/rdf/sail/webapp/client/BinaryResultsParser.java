@@ -0,0 +1,232 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultParseException;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParserBase;
+
+import com.bigdata.rdf.ServiceProviderHook;
+
+/**
+ * Parser for the {@link BinaryResults} format.
+ * <p>
+ * The dictionary terms are created once, when they are read. The solutions
+ * are decoded lazily: each solution is a view onto the cells of its block and
+ * an inline value is only turned into a literal if the consumer asks for it.
+ */
+public class BinaryResultsParser extends TupleQueryResultParserBase {
+
+    public BinaryResultsParser() {
+        super();
+    }
+
+    public BinaryResultsParser(final ValueFactory valueFactory) {
+        super(valueFactory);
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return ServiceProviderHook.BINARY_RESULTS;
+
+    }
+
+    @Override
+    public void parseQueryResult(final InputStream in) throws IOException,
+            QueryResultParseException, QueryResultHandlerException {
+
+        parse(in);
+
+    }
+
+    @Override
+    public void parse(final InputStream is) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        final DataInputStream in = new DataInputStream(
+                is instanceof BufferedInputStream ? is
+                        : new BufferedInputStream(is));
+
+        try {
+
+            if (in.readInt() != BinaryResults.MAGIC)
+                throw new QueryResultParseException("Not a binary result set");
+
+            final byte version = in.readByte();
+
+            if (version != BinaryResults.VERSION)
+                throw new QueryResultParseException("Unknown version: "
+                        + version);
+
+            final int nvars = in.readInt();
+
+            final List<String> names = new ArrayList<String>(nvars);
+
+            for (int i = 0; i < nvars; i++) {
+
+                names.add(BinaryResults.readString(in));
+
+            }
+
+            final List<String> bindingNames = Collections
+                    .unmodifiableList(names);
+
+            if (handler != null)
+                handler.startQueryResult(bindingNames);
+
+            // The dictionary.
+            Value[] terms = new Value[1024];
+            int nterms = 0;
+
+            while (true) {
+
+                final byte tag = in.readByte();
+
+                switch (tag) {
+                case BinaryResults.TERMS: {
+                    final int n = in.readInt();
+                    if (n < 0)
+                        throw new QueryResultParseException("Bad #of terms: "
+                                + n);
+                    for (int i = 0; i < n; i++) {
+                        final Value v = BinaryResults.readTerm(in,
+                                valueFactory, terms, nterms);
+                        if (nterms == terms.length)
+                            terms = Arrays.copyOf(terms, nterms * 2);
+                        terms[nterms++] = v;
+                    }
+                    break;
+                }
+                case BinaryResults.ROWS: {
+                    final int n = in.readInt();
+                    if (n < 0)
+                        throw new QueryResultParseException("Bad #of rows: "
+                                + n);
+                    readRows(in, bindingNames, n, terms, nterms);
+                    break;
+                }
+                case BinaryResults.CLEAR:
+                    terms = new Value[terms.length];
+                    nterms = 0;
+                    break;
+                case BinaryResults.END:
+                    if (handler != null)
+                        handler.endQueryResult();
+                    return;
+                default:
+                    throw new QueryResultParseException("Unknown block: "
+                            + tag);
+                }
+
+            }
+
+        } catch (EOFException ex) {
+
+            throw new QueryResultParseException("Unexpected end of stream",
+                    ex);
+
+        }
+
+    }
+
+    /**
+     * Read a block of solutions and pass them to the handler.
+     */
+    private void readRows(final DataInputStream in,
+            final List<String> bindingNames, final int nrows,
+            final Value[] terms, final int nterms) throws IOException,
+            QueryResultParseException, TupleQueryResultHandlerException {
+
+        final int nvars = bindingNames.size();
+
+        final int ncells = nrows * nvars;
+
+        final byte[] kinds = new byte[ncells];
+
+        final long[] payloads = new long[ncells];
+
+        final Value[] values = new Value[ncells];
+
+        for (int i = 0; i < ncells; i++) {
+
+            final byte kind = in.readByte();
+
+            final long payload = in.readLong();
+
+            if (kind == BinaryResults.CELL_TERM) {
+
+                if (payload < 0 || payload >= nterms)
+                    throw new QueryResultParseException("Bad term: "
+                            + payload);
+
+                values[i] = terms[(int) payload];
+
+            } else if (kind < BinaryResults.CELL_UNBOUND
+                    || kind > BinaryResults.CELL_DOUBLE) {
+
+                throw new QueryResultParseException("Unknown cell kind: "
+                        + kind);
+
+            }
+
+            kinds[i] = kind;
+
+            payloads[i] = payload;
+
+        }
+
+        if (handler == null)
+            return;
+
+        for (int i = 0; i < nrows; i++) {
+
+            handler.handleSolution(new BinaryResultsBindingSet(bindingNames,
+                    valueFactory, kinds, payloads, values, i * nvars));
+
+        }
+
+    }
+
+}
@@ -0,0 +1,424 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.Literal;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResultHandlerException;
+import org.openrdf.query.resultio.QueryResultFormat;
+import org.openrdf.query.resultio.QueryResultWriterBase;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultWriter;
+
+import com.bigdata.rdf.ServiceProviderHook;
+
+/**
+ * Writer for the {@link BinaryResults} format. Each distinct RDF Value is
+ * written once onto the dictionary and the solutions are written as fixed
+ * width rows of dictionary references.
+ * <p>
+ * The protected methods allow a subclass to write solutions whose values are
+ * not (yet) RDF Values, interning them under its own keys and writing inline
+ * values directly into the rows.
+ */
+public class BinaryResultsWriter extends QueryResultWriterBase implements
+        TupleQueryResultWriter {
+
+    private final DataOutputStream out;
+
+    /**
+     * The maximum #of solutions in a {@link BinaryResults#ROWS} block.
+     */
+    private final int rowsPerBlock;
+
+    /**
+     * The #of terms in the dictionary after which it is cleared.
+     */
+    private final int maxTerms;
+
+    /**
+     * The identifiers of the terms in the dictionary.
+     */
+    private final Map<Object, Integer> dictionary = new HashMap<Object, Integer>();
+
+    /**
+     * The terms which have been added to the dictionary but not yet written.
+     */
+    private final ByteArrayOutputStream termBuf = new ByteArrayOutputStream();
+
+    private final DataOutputStream terms = new DataOutputStream(termBuf);
+
+    private int npendingTerms = 0;
+
+    /**
+     * The solutions which have been buffered but not yet written.
+     */
+    private final ByteArrayOutputStream rowBuf = new ByteArrayOutputStream();
+
+    private final DataOutputStream rows = new DataOutputStream(rowBuf);
+
+    private int npendingRows = 0;
+
+    /**
+     * The names of the variables in the order in which their cells appear in
+     * each row.
+     */
+    private List<String> bindingNames;
+
+    public BinaryResultsWriter(final OutputStream os) {
+
+        this(os, BinaryResults.DEFAULT_ROWS_PER_BLOCK,
+                BinaryResults.DEFAULT_MAX_TERMS);
+
+    }
+
+    /**
+     * @param os
+     *            The output stream.
+     * @param rowsPerBlock
+     *            The maximum #of solutions in a block.
+     * @param maxTerms
+     *            The #of terms in the dictionary after which it is cleared.
+     */
+    public BinaryResultsWriter(final OutputStream os, final int rowsPerBlock,
+            final int maxTerms) {
+
+        if (os == null)
+            throw new IllegalArgumentException();
+
+        if (rowsPerBlock <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxTerms <= 0)
+            throw new IllegalArgumentException();
+
+        this.out = new DataOutputStream(os);
+
+        this.rowsPerBlock = rowsPerBlock;
+
+        this.maxTerms = maxTerms;
+
+    }
+
+    @Override
+    public TupleQueryResultFormat getTupleQueryResultFormat() {
+
+        return ServiceProviderHook.BINARY_RESULTS;
+
+    }
+
+    @Override
+    public QueryResultFormat getQueryResultFormat() {
+
+        return getTupleQueryResultFormat();
+
+    }
+
+    /**
+     * The names of the variables in the order in which their cells appear in
+     * each row.
+     */
+    protected List<String> getBindingNames() {
+
+        return bindingNames;
+
+    }
+
+    @Override
+    public void startQueryResult(final List<String> bindingNames)
+            throws TupleQueryResultHandlerException {
+
+        this.bindingNames = bindingNames;
+
+        try {
+
+            out.writeInt(BinaryResults.MAGIC);
+
+            out.writeByte(BinaryResults.VERSION);
+
+            out.writeInt(bindingNames.size());
+
+            for (String name : bindingNames) {
+
+                BinaryResults.writeString(out, name);
+
+            }
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+    }
+
+    @Override
+    public void handleSolution(final BindingSet bindingSet)
+            throws TupleQueryResultHandlerException {
+
+        try {
+
+            if (isDictionaryFull())
+                clearDictionary();
+
+            for (String name : bindingNames) {
+
+                final Value v = bindingSet.getValue(name);
+
+                if (v == null) {
+
+                    writeCell(BinaryResults.CELL_UNBOUND, 0L);
+
+                    continue;
+
+                }
+
+                int id = getTermId(v);
+
+                if (id == -1)
+                    id = addTerm(v, v);
+
+                writeCell(BinaryResults.CELL_TERM, id);
+
+            }
+
+            endRow();
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+    }
+
+    @Override
+    public void endQueryResult() throws TupleQueryResultHandlerException {
+
+        try {
+
+            flush();
+
+            out.writeByte(BinaryResults.END);
+
+            out.flush();
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+    }
+
+    /**
+     * Return the identifier of the term interned under that key and
+     * <code>-1</code> if there is no such term in the dictionary.
+     */
+    protected final int getTermId(final Object key) {
+
+        final Integer id = dictionary.get(key);
+
+        return id == null ? -1 : id.intValue();
+
+    }
+
+    /**
+     * Add a term to the dictionary.
+     * 
+     * @param key
+     *            The key under which the term is interned.
+     * @param v
+     *            The term.
+     * 
+     * @return The identifier assigned to the term.
+     */
+    protected final int addTerm(final Object key, final Value v)
+            throws IOException {
+
+        int datatypeId = -1;
+
+        if (v instanceof Literal && ((Literal) v).getLanguage() == null
+                && ((Literal) v).getDatatype() != null) {
+
+            final Value dt = ((Literal) v).getDatatype();
+
+            datatypeId = getTermId(dt);
+
+            if (datatypeId == -1)
+                datatypeId = addTerm(dt, dt);
+
+        }
+
+        BinaryResults.writeTerm(terms, v, datatypeId);
+
+        final int id = dictionary.size();
+
+        dictionary.put(key, id);
+
+        npendingTerms++;
+
+        return id;
+
+    }
+
+    /**
+     * Return <code>true</code> if the dictionary should be cleared before the
+     * next solution is written.
+     */
+    protected final boolean isDictionaryFull() {
+
+        return dictionary.size() >= maxTerms;
+
+    }
+
+    /**
+     * Write out the buffered solutions and clear the dictionary.
+     */
+    protected final void clearDictionary() throws IOException {
+
+        flush();
+
+        out.writeByte(BinaryResults.CLEAR);
+
+        dictionary.clear();
+
+    }
+
+    /**
+     * Write the next cell of the current solution.
+     */
+    protected final void writeCell(final byte kind, final long payload)
+            throws IOException {
+
+        rows.writeByte(kind);
+
+        rows.writeLong(payload);
+
+    }
+
+    /**
+     * Mark the end of the current solution.
+     */
+    protected final void endRow() throws IOException {
+
+        if (++npendingRows >= rowsPerBlock)
+            flush();
+
+    }
+
+    /**
+     * Write out the buffered terms followed by the buffered solutions.
+     */
+    protected final void flush() throws IOException {
+
+        if (npendingTerms > 0) {
+
+            out.writeByte(BinaryResults.TERMS);
+
+            out.writeInt(npendingTerms);
+
+            termBuf.writeTo(out);
+
+            termBuf.reset();
+
+            npendingTerms = 0;
+
+        }
+
+        if (npendingRows > 0) {
+
+            out.writeByte(BinaryResults.ROWS);
+
+            out.writeInt(npendingRows);
+
+            rowBuf.writeTo(out);
+
+            rowBuf.reset();
+
+            npendingRows = 0;
+
+        }
+
+    }
+
+    @Override
+    public void handleBoolean(final boolean value)
+            throws QueryResultHandlerException {
+
+        throw new UnsupportedOperationException(
+                "Cannot handle boolean results");
+
+    }
+
+    @Override
+    public void handleLinks(final List<String> linkUrls)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleNamespace(final String prefix, final String uri)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void startDocument() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void handleStylesheet(final String stylesheetUrl)
+            throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void startHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+    @Override
+    public void endHeader() throws QueryResultHandlerException {
+        // NOP
+    }
+
+}
@@ -23,6 +23,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sail.webapp.client;
 
+import info.aduna.iteration.CloseableIteration;
+
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -50,6 +52,7 @@ import org.eclipse.jetty.client.HttpRequest;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.http.HttpMethod;
 import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
 import org.openrdf.query.GraphQueryResult;
 import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.query.TupleQueryResult;
@@ -2200,9 +2203,23 @@ public class RemoteRepositoryManager extends RemoteRepositoryBase implements Aut
 
             final BackgroundTupleResult result = new BackgroundTupleResult(parser, response.getInputStream());
 
-            final MapBindingSet bindings = new MapBindingSet();
+            final CloseableIteration<BindingSet, QueryEvaluationException> cursor;
+
+            if (parser instanceof BinaryResultsParser) {
+
+                /*
+                 * Note: There are no bindings to insert and copying each
+                 * solution would defeat the lazy decoding of the solutions.
+                 */
+                cursor = result;
+
+            } else {
+
+                final MapBindingSet bindings = new MapBindingSet();
 
-            final InsertBindingSetCursor cursor = new InsertBindingSetCursor(result, bindings);
+                cursor = new InsertBindingSetCursor(result, bindings);
+
+            }
 
             // Wrap as FutureTask so we can cancel.
             ft = new FutureTask<Void>(result, null/* result */);
@@ -0,0 +1,244 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase2;
+
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.ListBindingSet;
+import org.openrdf.query.impl.TupleQueryResultBuilder;
+import org.openrdf.query.resultio.QueryResultParseException;
+
+/**
+ * Test suite for the {@link BinaryResults} format.
+ */
+public class TestBinaryResults extends TestCase2 {
+
+    public TestBinaryResults() {
+    }
+
+    public TestBinaryResults(final String name) {
+        super(name);
+    }
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final List<String> names = Arrays.asList("s", "o", "x");
+
+    private BindingSet solution(final Value... values) {
+
+        return new ListBindingSet(names, values);
+
+    }
+
+    private List<BindingSet> parse(final byte[] data) throws Exception {
+
+        final TupleQueryResultBuilder builder = new TupleQueryResultBuilder();
+
+        final BinaryResultsParser parser = new BinaryResultsParser();
+
+        parser.setTupleQueryResultHandler(builder);
+
+        parser.parse(new ByteArrayInputStream(data));
+
+        final TupleQueryResult result = builder.getQueryResult();
+
+        assertEquals(names, result.getBindingNames());
+
+        final List<BindingSet> actual = new ArrayList<BindingSet>();
+
+        while (result.hasNext())
+            actual.add(result.next());
+
+        return actual;
+
+    }
+
+    /**
+     * Each kind of RDF Value and unbound variables survive a round trip.
+     */
+    public void test_roundTrip() throws Exception {
+
+        final BindingSet[] expected = new BindingSet[] {
+                solution(vf.createURI("http://www.bigdata.com/a"),
+                        vf.createLiteral("abc"), null),
+                solution(vf.createBNode("b1"),
+                        vf.createLiteral("chat", "fr"),
+                        vf.createLiteral("12", XMLSchema.INT)),
+                solution(null, null, null),
+                solution(vf.createURI("http://www.bigdata.com/a"),
+                        vf.createLiteral("2016-10-15", XMLSchema.DATE),
+                        vf.createLiteral("été", XMLSchema.STRING)), };
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BinaryResultsWriter w = new BinaryResultsWriter(baos,
+                2/* rowsPerBlock */, 3/* maxTerms */);
+
+        w.startQueryResult(names);
+
+        for (BindingSet bs : expected)
+            w.handleSolution(bs);
+
+        w.endQueryResult();
+
+        final List<BindingSet> actual = parse(baos.toByteArray());
+
+        assertEquals(Arrays.asList(expected), actual);
+
+        // The empty solution.
+        assertEquals(0, actual.get(2).size());
+
+        assertFalse(actual.get(0).hasBinding("x"));
+
+    }
+
+    /**
+     * Each distinct RDF Value is written once.
+     */
+    public void test_dictionary() throws Exception {
+
+        final ByteArrayOutputStream baos1 = new ByteArrayOutputStream();
+        final ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
+
+        final BinaryResultsWriter w1 = new BinaryResultsWriter(baos1);
+        final BinaryResultsWriter w2 = new BinaryResultsWriter(baos2);
+
+        w1.startQueryResult(names);
+        w2.startQueryResult(names);
+
+        final BindingSet bs = solution(
+                vf.createURI("http://www.bigdata.com/aVeryLongLocalName"),
+                vf.createLiteral("a long literal which is sent only once"),
+                null);
+
+        w1.handleSolution(bs);
+
+        for (int i = 0; i < 100; i++)
+            w2.handleSolution(bs);
+
+        w1.endQueryResult();
+        w2.endQueryResult();
+
+        // 99 more fixed width rows and nothing else.
+        assertEquals(baos1.size() + 99 * 3 * BinaryResults.CELL_SIZE,
+                baos2.size());
+
+        assertEquals(100, parse(baos2.toByteArray()).size());
+
+    }
+
+    /**
+     * Inline cells are decoded as the corresponding typed literals.
+     */
+    public void test_inlineCells() throws Exception {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BinaryResultsWriter w = new BinaryResultsWriter(baos);
+
+        w.startQueryResult(names);
+
+        writeRow(w, BinaryResults.CELL_BOOLEAN, 1L, BinaryResults.CELL_BYTE, -3L);
+        writeRow(w, BinaryResults.CELL_SHORT, 300L, BinaryResults.CELL_INT, -12L);
+        writeRow(w, BinaryResults.CELL_LONG, Long.MAX_VALUE,
+                BinaryResults.CELL_INTEGER, 42L);
+        writeRow(w, BinaryResults.CELL_FLOAT, Float.floatToIntBits(-2.5f),
+                BinaryResults.CELL_DOUBLE, Double.doubleToLongBits(1.5d));
+
+        w.endQueryResult();
+
+        final List<BindingSet> actual = parse(baos.toByteArray());
+
+        assertEquals(Arrays.asList(
+                solution(vf.createLiteral("true", XMLSchema.BOOLEAN),
+                        vf.createLiteral("-3", XMLSchema.BYTE), null),
+                solution(vf.createLiteral("300", XMLSchema.SHORT),
+                        vf.createLiteral("-12", XMLSchema.INT), null),
+                solution(vf.createLiteral(Long.toString(Long.MAX_VALUE),
+                        XMLSchema.LONG),
+                        vf.createLiteral("42", XMLSchema.INTEGER), null),
+                solution(vf.createLiteral("-2.5", XMLSchema.FLOAT),
+                        vf.createLiteral("1.5", XMLSchema.DOUBLE), null)),
+                actual);
+
+    }
+
+    private static void writeRow(final BinaryResultsWriter w,
+            final byte kind1, final long payload1, final byte kind2,
+            final long payload2) throws IOException {
+
+        w.writeCell(kind1, payload1);
+        w.writeCell(kind2, payload2);
+        w.writeCell(BinaryResults.CELL_UNBOUND, 0L);
+        w.endRow();
+
+    }
+
+    /**
+     * A truncated stream is reported as a parse error.
+     */
+    public void test_truncated() throws Exception {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        final BinaryResultsWriter w = new BinaryResultsWriter(baos);
+
+        w.startQueryResult(names);
+
+        w.handleSolution(solution(vf.createLiteral("abc"), null, null));
+
+        w.endQueryResult();
+
+        final byte[] data = baos.toByteArray();
+
+        try {
+            parse(Arrays.copyOf(data, data.length - 1));
+            fail("Expecting: " + QueryResultParseException.class);
+        } catch (QueryResultParseException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
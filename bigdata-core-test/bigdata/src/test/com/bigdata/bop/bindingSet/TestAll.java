@@ -65,6 +65,7 @@ public class TestAll extends TestCase {
         // test binding set impls.
         suite.addTestSuite(TestHashBindingSet.class);
         suite.addTestSuite(TestListBindingSet.class);
+        suite.addTestSuite(TestColumnarBindingSet.class);
 
         return suite;
         
@@ -0,0 +1,246 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.bop.bindingSet;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.Var;
+
+/**
+ * Unit tests for {@link ColumnarSolutionChunk} and the {@link IBindingSet}
+ * contract for its {@link ColumnarBindingSet} row views.
+ */
+public class TestColumnarBindingSet extends TestIBindingSet {
+
+    public TestColumnarBindingSet() {
+    }
+
+    public TestColumnarBindingSet(String name) {
+        super(name);
+    }
+
+    private final IVariable<?> x = Var.var("x");
+    private final IVariable<?> y = Var.var("y");
+    private final IVariable<?> z = Var.var("z");
+
+    private IBindingSet[] newSolutions() {
+
+        final IBindingSet[] a = new IBindingSet[3];
+
+        a[0] = new ListBindingSet(new IVariable[] { x, y }, new IConstant[] {
+                new Constant<String>("a"), new Constant<String>("b") });
+
+        a[1] = new ListBindingSet(new IVariable[] { x },
+                new IConstant[] { new Constant<String>("c") });
+
+        a[2] = new ListBindingSet(new IVariable[] { y, z }, new IConstant[] {
+                new Constant<String>("d"), new Constant<String>("e") });
+
+        return a;
+
+    }
+
+    /**
+     * The row views of a chunk are equal to the source solutions.
+     */
+    public void test_valueOf() {
+
+        final IBindingSet[] a = newSolutions();
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk.valueOf(a);
+
+        assertEquals(3, chunk.size());
+        assertEquals(3, chunk.getVariableCount());
+
+        final IBindingSet[] b = chunk.toBindingSets();
+
+        assertEquals(a.length, b.length);
+
+        for (int i = 0; i < a.length; i++) {
+            assertEquals(a[i], b[i]);
+            assertEquals(a[i].hashCode(), b[i].hashCode());
+            assertEquals(a[i].size(), chunk.size(i));
+            assertEquals(a[i], chunk.materialize(i));
+        }
+
+        // the chunk is recovered from its own row views.
+        assertTrue(chunk == ColumnarSolutionChunk.getChunk(b));
+        assertTrue(chunk == ColumnarSolutionChunk.valueOf(b));
+
+        // but not from some of them or from other solutions.
+        assertNull(ColumnarSolutionChunk.getChunk(new IBindingSet[] { b[0],
+                b[1] }));
+        assertNull(ColumnarSolutionChunk.getChunk(a));
+
+    }
+
+    /**
+     * Only the rows on which all of the given variables are bound are marked.
+     */
+    public void test_allBound() {
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk
+                .valueOf(newSolutions());
+
+        final long[] bits = chunk.allBound(new IVariable[] { x });
+        assertTrue(ColumnarSolutionChunk.isSet(bits, 0));
+        assertTrue(ColumnarSolutionChunk.isSet(bits, 1));
+        assertFalse(ColumnarSolutionChunk.isSet(bits, 2));
+
+        final long[] bits2 = chunk.allBound(new IVariable[] { x, y });
+        assertTrue(ColumnarSolutionChunk.isSet(bits2, 0));
+        assertFalse(ColumnarSolutionChunk.isSet(bits2, 1));
+        assertFalse(ColumnarSolutionChunk.isSet(bits2, 2));
+
+    }
+
+    /**
+     * A projection shares the columns of the chunk and drops the other
+     * variables.
+     */
+    public void test_project() {
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk
+                .valueOf(newSolutions());
+
+        final ColumnarSolutionChunk p = chunk.project(new IVariable[] { y,
+                Var.var("w") });
+
+        assertEquals(3, p.size());
+        assertEquals(1, p.getVariableCount());
+        assertTrue(chunk.getColumn(y) == p.getColumn(y));
+
+        final IBindingSet[] b = p.toBindingSets();
+        assertEquals(new ListBindingSet(new IVariable[] { y },
+                new IConstant[] { new Constant<String>("b") }), b[0]);
+        assertEquals(new ListBindingSet(), b[1]);
+        assertEquals(new ListBindingSet(new IVariable[] { y },
+                new IConstant[] { new Constant<String>("d") }), b[2]);
+
+    }
+
+    /**
+     * A selection gathers the rows in the given order.
+     */
+    public void test_select() {
+
+        final IBindingSet[] a = newSolutions();
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk.valueOf(a);
+
+        assertTrue(chunk == chunk.select(new int[] { 0, 1, 2 }, 3));
+
+        final ColumnarSolutionChunk s = chunk.select(new int[] { 2, 0, 1 }, 2);
+
+        assertEquals(2, s.size());
+        assertEquals(a[2], s.get(0));
+        assertEquals(a[0], s.get(1));
+
+    }
+
+    /**
+     * The hash codes agree with the hash codes of the keys for a JVM hash
+     * join.
+     */
+    public void test_hashCodes() {
+
+        final IBindingSet[] a = newSolutions();
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk.valueOf(a);
+
+        final IVariable<?>[] vars = new IVariable[] { x, y };
+
+        final int[] h = chunk.hashCodes(vars);
+
+        for (int i = 0; i < a.length; i++) {
+            int expected = 1;
+            for (IVariable<?> v : vars) {
+                final IConstant<?> c = a[i].get(v);
+                if (c != null)
+                    expected = 31 * expected + c.hashCode();
+            }
+            assertEquals(expected, h[i]);
+        }
+
+    }
+
+    /**
+     * A row view is detached from its chunk when it is modified and the chunk
+     * is not changed.
+     */
+    public void test_copyOnWrite() {
+
+        final IBindingSet[] a = newSolutions();
+
+        final ColumnarSolutionChunk chunk = ColumnarSolutionChunk.valueOf(a);
+
+        final ColumnarBindingSet b = chunk.get(1);
+        final ColumnarBindingSet c = (ColumnarBindingSet) b.clone();
+
+        assertTrue(chunk == b.getChunk());
+
+        b.set(y, new Constant<String>("f"));
+
+        assertNull(b.getChunk());
+        assertEquals(2, b.size());
+        assertEquals(a[1], chunk.get(1));
+
+        // the clone is unchanged and still a view.
+        assertEquals(a[1], c);
+        assertTrue(chunk == c.getChunk());
+
+        // a chunk having a detached view is not reused.
+        final IBindingSet[] d = chunk.toBindingSets();
+        ((ColumnarBindingSet) d[0]).clear(x);
+        assertNull(ColumnarSolutionChunk.getChunk(d));
+        assertEquals(d[0], ColumnarSolutionChunk.valueOf(d).get(0));
+
+    }
+
+    @Override
+    protected IBindingSet newBindingSet(final IVariable<?> vars[],
+            final IConstant<?> vals[]) {
+
+        return ColumnarSolutionChunk.valueOf(
+                new IBindingSet[] { new ListBindingSet(vars, vals) }).get(0);
+
+    }
+
+    @Override
+    protected IBindingSet newBindingSet(final int sizeIsIgnored) {
+
+        return ColumnarSolutionChunk.valueOf(
+                new IBindingSet[] { new ListBindingSet() }).get(0);
+
+    }
+
+}
@@ -41,6 +41,7 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.Var;
 import com.bigdata.bop.bindingSet.HashBindingSet;
 import com.bigdata.bop.bindingSet.ListBindingSet;
@@ -146,6 +147,26 @@ public class TestConditionalRoutingOp extends TestCase2 {
     public void test_conditionalRouting() throws InterruptedException,
             ExecutionException {
 
+        doConditionalRoutingTest(false/* columnar */);
+
+    }
+
+    /**
+     * Unit test for conditional routing of binding sets using the columnar
+     * evaluation.
+     * 
+     * @see PipelineOp.Annotations#COLUMNAR
+     */
+    public void test_conditionalRouting_columnar()
+            throws InterruptedException, ExecutionException {
+
+        doConditionalRoutingTest(true/* columnar */);
+
+    }
+
+    private void doConditionalRoutingTest(final boolean columnar)
+            throws InterruptedException, ExecutionException {
+
         final Var<?> x = Var.var("x");
         
         final int bopId = 1;
@@ -155,6 +176,7 @@ public class TestConditionalRoutingOp extends TestCase2 {
                     new NV(BOp.Annotations.BOP_ID,bopId),//
                     new NV(ConditionalRoutingOp.Annotations.CONDITION,
                     		Constraint.wrap(new EQConstant(x,new Constant<String>("Mary")))),//
+                    new NV(PipelineOp.Annotations.COLUMNAR, columnar),//
                 }));
         
         // the expected solutions (default sink).
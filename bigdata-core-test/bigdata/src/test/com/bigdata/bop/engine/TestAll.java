@@ -99,6 +99,12 @@ public class TestAll extends TestCase {
         // test suite for query deadline ordering semantics.
         suite.addTestSuite(TestQueryDeadlineOrder.class);
 
+        // test suite for the multilevel feedback queue of the query engine.
+        suite.addTestSuite(TestQueryScheduler.class);
+
+        // test suite for admission control.
+        suite.addTestSuite(TestQueryAdmissionController.class);
+
         // test suite for query evaluation (basic JOINs).
         suite.addTestSuite(TestQueryEngine.class);
 
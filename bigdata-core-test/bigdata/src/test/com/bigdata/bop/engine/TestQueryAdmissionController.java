@@ -0,0 +1,331 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.engine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.engine.QueryAdmissionController.ITenantMemoryUsage;
+import com.bigdata.bop.engine.QueryAdmissionController.Ticket;
+
+/**
+ * Test suite for the {@link QueryAdmissionController}.
+ */
+public class TestQueryAdmissionController extends TestCase2 {
+
+    public TestQueryAdmissionController() {
+
+    }
+
+    public TestQueryAdmissionController(final String name) {
+        super(name);
+    }
+
+    private ExecutorService service;
+
+    @Override
+    public void setUp() throws Exception {
+
+        service = Executors.newCachedThreadPool();
+
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+
+        if (service != null) {
+            service.shutdownNow();
+            service = null;
+        }
+
+    }
+
+    /**
+     * Begin to admit a query in another thread.
+     */
+    private Future<Ticket> admitAsync(final QueryAdmissionController c,
+            final String tenant) {
+
+        return service.submit(new Callable<Ticket>() {
+            @Override
+            public Ticket call() throws Exception {
+                return c.admit(tenant, Long.MAX_VALUE/* timeout */);
+            }
+        });
+
+    }
+
+    /**
+     * Wait until the #of waiting queries reaches the expected value.
+     */
+    private void awaitQueued(final QueryAdmissionController c, final int n)
+            throws InterruptedException {
+
+        final long begin = System.currentTimeMillis();
+
+        while (c.getQueuedCount() != n) {
+
+            if (System.currentTimeMillis() - begin > 5000)
+                fail("queued=" + c.getQueuedCount() + ", expected=" + n);
+
+            Thread.sleep(5);
+
+        }
+
+    }
+
+    private void assertNotDone(final Future<Ticket> f)
+            throws InterruptedException, ExecutionException {
+
+        try {
+            f.get(50, TimeUnit.MILLISECONDS);
+            fail("Not expecting admission");
+        } catch (TimeoutException ex) {
+            // ignore
+        }
+
+    }
+
+    /**
+     * A query waits while the engine is at its limit and is admitted once a
+     * running query is released.
+     */
+    public void test_maxRunning() throws Exception {
+
+        final QueryEngineCounters counters = new QueryEngineCounters();
+
+        final QueryAdmissionController c = new QueryAdmissionController(
+                1/* maxRunning */, 0, 0L, 10/* maxQueued */,
+                10000/* maxWaitMillis */, null, counters);
+
+        final Ticket t1 = c.admit("a", Long.MAX_VALUE);
+
+        assertEquals(1, c.getRunningCount());
+
+        final Future<Ticket> f2 = admitAsync(c, "b");
+
+        awaitQueued(c, 1);
+
+        assertNotDone(f2);
+
+        c.release(t1);
+
+        final Ticket t2 = f2.get(5, TimeUnit.SECONDS);
+
+        assertEquals("b", t2.getTenant());
+
+        assertEquals(1, c.getRunningCount());
+
+        assertEquals(0, c.getQueuedCount());
+
+        c.release(t2);
+
+        // Release is idempotent.
+        c.release(t2);
+
+        assertEquals(0, c.getRunningCount());
+
+        assertEquals(2L, counters.queryAdmittedCount.get());
+
+        assertEquals(0L, counters.queryRejectedCount.get());
+
+    }
+
+    /**
+     * A query is rejected when too many queries are waiting or when it waits
+     * too long.
+     */
+    public void test_reject() throws Exception {
+
+        final QueryEngineCounters counters = new QueryEngineCounters();
+
+        {
+
+            final QueryAdmissionController c = new QueryAdmissionController(
+                    1/* maxRunning */, 0, 0L, 0/* maxQueued */,
+                    10000/* maxWaitMillis */, null, counters);
+
+            c.admit("a", Long.MAX_VALUE);
+
+            try {
+                c.admit("a", Long.MAX_VALUE);
+                fail("Expecting: " + RejectedExecutionException.class);
+            } catch (RejectedExecutionException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+        }
+
+        {
+
+            final QueryAdmissionController c = new QueryAdmissionController(
+                    1/* maxRunning */, 0, 0L, 10/* maxQueued */,
+                    10000/* maxWaitMillis */, null, counters);
+
+            c.admit("a", Long.MAX_VALUE);
+
+            // Note: The query timeout limits the wait.
+            try {
+                c.admit("a", 50L/* timeout */);
+                fail("Expecting: " + RejectedExecutionException.class);
+            } catch (RejectedExecutionException ex) {
+                if (log.isInfoEnabled())
+                    log.info("Ignoring expected exception: " + ex);
+            }
+
+            assertEquals(0, c.getQueuedCount());
+
+        }
+
+        assertEquals(2L, counters.queryRejectedCount.get());
+
+    }
+
+    /**
+     * The per-tenant limit does not delay the queries of other tenants.
+     */
+    public void test_maxRunningPerTenant() throws Exception {
+
+        final QueryAdmissionController c = new QueryAdmissionController(
+                0/* maxRunning */, 2/* maxRunningPerTenant */, 0L,
+                10/* maxQueued */, 10000/* maxWaitMillis */, null,
+                new QueryEngineCounters());
+
+        final Ticket a1 = c.admit("a", Long.MAX_VALUE);
+
+        c.admit("a", Long.MAX_VALUE);
+
+        final Future<Ticket> a3 = admitAsync(c, "a");
+
+        awaitQueued(c, 1);
+
+        // Another tenant is admitted immediately.
+        c.admit("b", Long.MAX_VALUE);
+
+        assertNotDone(a3);
+
+        c.release(a1);
+
+        assertEquals("a", a3.get(5, TimeUnit.SECONDS).getTenant());
+
+        // a2, a3 and b1.
+        assertEquals(3, c.getRunningCount());
+
+    }
+
+    /**
+     * A query waits while the running queries of its tenant have allocated
+     * too much native memory.
+     */
+    public void test_maxNativeMemoryPerTenant() throws Exception {
+
+        final long[] bytes = new long[] { 0L };
+
+        final ITenantMemoryUsage memoryUsage = new ITenantMemoryUsage() {
+            @Override
+            public long getNativeMemoryBytes(final String tenant) {
+                synchronized (bytes) {
+                    return tenant.equals("a") ? bytes[0] : 0L;
+                }
+            }
+        };
+
+        final QueryAdmissionController c = new QueryAdmissionController(
+                0/* maxRunning */, 0, 1000L/* maxNativeMemoryPerTenant */,
+                10/* maxQueued */, 10000/* maxWaitMillis */, memoryUsage,
+                new QueryEngineCounters());
+
+        // A tenant without running queries is always admitted.
+        synchronized (bytes) {
+            bytes[0] = 5000L;
+        }
+
+        c.admit("a", Long.MAX_VALUE);
+
+        final Future<Ticket> a2 = admitAsync(c, "a");
+
+        awaitQueued(c, 1);
+
+        assertNotDone(a2);
+
+        // The memory is freed (the wait rechecks the memory periodically).
+        synchronized (bytes) {
+            bytes[0] = 10L;
+        }
+
+        assertEquals("a", a2.get(5, TimeUnit.SECONDS).getTenant());
+
+    }
+
+    /**
+     * The tenants having waiting queries are served round robin.
+     */
+    public void test_roundRobin() throws Exception {
+
+        final QueryAdmissionController c = new QueryAdmissionController(
+                1/* maxRunning */, 0, 0L, 10/* maxQueued */,
+                10000/* maxWaitMillis */, null, new QueryEngineCounters());
+
+        Ticket t = c.admit("x", Long.MAX_VALUE);
+
+        final Future<Ticket> a1 = admitAsync(c, "a");
+        awaitQueued(c, 1);
+        final Future<Ticket> a2 = admitAsync(c, "a");
+        awaitQueued(c, 2);
+        final Future<Ticket> b1 = admitAsync(c, "b");
+        awaitQueued(c, 3);
+
+        c.release(t);
+        t = a1.get(5, TimeUnit.SECONDS);
+        assertNotDone(a2);
+        assertNotDone(b1);
+
+        // b1 goes before a2.
+        c.release(t);
+        t = b1.get(5, TimeUnit.SECONDS);
+        assertNotDone(a2);
+
+        c.release(t);
+        t = a2.get(5, TimeUnit.SECONDS);
+
+        c.release(t);
+        assertEquals(0, c.getRunningCount());
+
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.engine;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.bset.StartOp;
+import com.bigdata.bop.solutions.SliceOp;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.Journal;
+
+/**
+ * Test suite for the {@link QueryScheduler}.
+ */
+public class TestQueryScheduler extends TestCase2 {
+
+    public TestQueryScheduler() {
+
+    }
+
+    public TestQueryScheduler(final String name) {
+        super(name);
+    }
+
+    @Override
+    public Properties getProperties() {
+
+        final Properties p = new Properties(super.getProperties());
+
+        p.setProperty(Journal.Options.BUFFER_MODE, BufferMode.Transient
+                .toString());
+
+        return p;
+
+    }
+
+    private Journal jnl;
+    private QueryEngine queryEngine;
+
+    @Override
+    public void setUp() throws Exception {
+
+        jnl = new Journal(getProperties());
+
+        queryEngine = new QueryEngine(jnl);
+
+        queryEngine.init();
+
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+
+        if (queryEngine != null) {
+            queryEngine.shutdownNow();
+            queryEngine = null;
+        }
+
+        if (jnl != null) {
+            jnl.destroy();
+            jnl = null;
+        }
+
+    }
+
+    private AbstractRunningQuery newQuery() throws Exception {
+
+        final PipelineOp query = new StartOp(new BOp[] {}, NV
+                .asMap(new NV[] {//
+                new NV(Predicate.Annotations.BOP_ID, 1),//
+                new NV(SliceOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                }));
+
+        final AbstractRunningQuery q = queryEngine.eval(UUID.randomUUID(),
+                query, new ListBindingSet());
+
+        q.get();
+
+        return q;
+
+    }
+
+    public void test_parseLevels() {
+
+        assertEquals(0, QueryScheduler.parseLevels("").length);
+
+        final long[] a = QueryScheduler.parseLevels("100, 1000,10000");
+
+        assertEquals(3, a.length);
+        assertEquals(100L, a[0]);
+        assertEquals(1000L, a[1]);
+        assertEquals(10000L, a[2]);
+
+        try {
+            QueryScheduler.parseLevels("1000,100");
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    /**
+     * A query moves to the next level once it has been running for the time
+     * given for its current level.
+     */
+    public void test_getLevel() {
+
+        final QueryScheduler s = new QueryScheduler(new long[] { 100, 1000 },
+                new QueryEngineCounters());
+
+        assertEquals(3, s.getLevelCount());
+
+        assertEquals(0, s.getLevel(0));
+        assertEquals(0, s.getLevel(99));
+        assertEquals(1, s.getLevel(100));
+        assertEquals(1, s.getLevel(999));
+        assertEquals(2, s.getLevel(1000));
+        assertEquals(2, s.getLevel(Long.MAX_VALUE));
+
+    }
+
+    /**
+     * With a single level, queries are dispatched in the order in which they
+     * were added.
+     */
+    public void test_fifo() throws Exception {
+
+        final QueryScheduler s = new QueryScheduler(new long[] {},
+                new QueryEngineCounters());
+
+        final AbstractRunningQuery q1 = newQuery();
+        final AbstractRunningQuery q2 = newQuery();
+
+        s.add(q1);
+        s.add(q2);
+        s.add(q1);
+
+        assertEquals(3, s.size());
+
+        assertSame(q1, s.poll(0L, TimeUnit.MILLISECONDS));
+        assertSame(q2, s.poll(0L, TimeUnit.MILLISECONDS));
+        assertSame(q1, s.poll(0L, TimeUnit.MILLISECONDS));
+
+        assertEquals(0, s.size());
+
+        // Times out when empty.
+        assertNull(s.poll(10L, TimeUnit.MILLISECONDS));
+
+    }
+
+    /**
+     * The levels are served by weighted round robin: when all levels are
+     * backlogged, a level is served twice as often as the next level, but
+     * every level is served.
+     */
+    public void test_weightedRoundRobin() throws Exception {
+
+        final QueryEngineCounters counters = new QueryEngineCounters();
+
+        final QueryScheduler s = new QueryScheduler(new long[] { 100, 1000 },
+                counters);
+
+        final AbstractRunningQuery shortQuery = newQuery();
+        final AbstractRunningQuery longQuery = newQuery();
+
+        for (int i = 0; i < 20; i++) {
+            s.add(shortQuery, 0);
+            s.add(longQuery, 2);
+        }
+
+        // The weights are 4, 2 and 1.
+        for (int round = 0; round < 3; round++) {
+
+            for (int i = 0; i < 4; i++) {
+                assertSame(shortQuery, s.poll(0L, TimeUnit.MILLISECONDS));
+            }
+
+            assertSame(longQuery, s.poll(0L, TimeUnit.MILLISECONDS));
+
+        }
+
+        assertEquals(15L, counters.dispatchCount.get());
+
+        s.clear();
+
+        assertEquals(0, s.size());
+
+    }
+
+}
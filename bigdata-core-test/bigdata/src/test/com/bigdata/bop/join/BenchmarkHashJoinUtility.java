@@ -0,0 +1,326 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.FutureTask;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.relation.accesspath.IBuffer;
+import com.bigdata.rwstore.sector.MemoryManager;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * A micro-benchmark which compares the build and probe throughput of the
+ * {@link JVMHashJoinUtility}, the {@link JVMPartitionedHashJoinUtility}, and
+ * the {@link HTreeHashJoinUtility}. This is not part of the test suite. Run it
+ * from the command line. Each implementation is warmed up before it is
+ * measured, and the median of the measured trials is reported.
+ * <p>
+ * The following system properties may be specified:
+ * <dl>
+ * <dt>rightSize</dt>
+ * <dd>The #of solutions in the hash index (default 1,000,000).</dd>
+ * <dt>leftSize</dt>
+ * <dd>The #of solutions probing the hash index (default 1,000,000).</dd>
+ * <dt>distinctKeys</dt>
+ * <dd>The #of distinct values for the join variable (default 500,000).</dd>
+ * <dt>joinType</dt>
+ * <dd>The {@link JoinTypeEnum} (default {@link JoinTypeEnum#Normal}).</dd>
+ * <dt>partitions</dt>
+ * <dd>The #of partitions for the {@link JVMPartitionedHashJoinUtility}
+ * (default is the #of processors).</dd>
+ * <dt>warmup</dt>
+ * <dd>The #of warmup trials (default 3).</dd>
+ * <dt>trials</dt>
+ * <dd>The #of measured trials (default 5).</dd>
+ * </dl>
+ */
+public class BenchmarkHashJoinUtility {
+
+    /**
+     * An implementation under test.
+     */
+    private interface Factory {
+
+        IHashJoinUtility create(PipelineOp op, JoinTypeEnum joinType);
+
+    }
+
+    /**
+     * A buffer which only counts the solutions.
+     */
+    private static class CountingBuffer implements IBuffer<IBindingSet> {
+
+        private long n = 0L;
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public void add(final IBindingSet e) {
+            n++;
+        }
+
+        @Override
+        public long flush() {
+            return n;
+        }
+
+        @Override
+        public void reset() {
+            n = 0L;
+        }
+
+    }
+
+    private static class MockPipelineOp extends PipelineOp {
+
+        private static final long serialVersionUID = 1L;
+
+        public MockPipelineOp(final BOp[] args, final NV... anns) {
+
+            super(args, NV.asMap(anns));
+
+        }
+
+        @Override
+        public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static IBindingSet[] generate(final Random r, final int n,
+            final int distinctKeys, final IVariable<IV> x,
+            final IVariable<IV> other) {
+
+        final IBindingSet[] a = new IBindingSet[n];
+
+        for (int i = 0; i < n; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+            bset.set(x, new Constant<IV>(new XSDNumericIV(r
+                    .nextInt(distinctKeys))));
+            bset.set(other, new Constant<IV>(new XSDNumericIV(i)));
+            a[i] = bset;
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Run one trial.
+     *
+     * @return The elapsed nanoseconds for the build and for the probe and the
+     *         #of output solutions.
+     */
+    private static long[] trial(final Factory factory, final PipelineOp op,
+            final JoinTypeEnum joinType, final IBindingSet[] right,
+            final IBindingSet[] left) {
+
+        final IHashJoinUtility state = factory.create(op, joinType);
+
+        try {
+
+            final long begin = System.nanoTime();
+
+            state.acceptSolutions(new Chunkerator<IBindingSet>(Arrays.asList(
+                    right).iterator(), 1000/* chunkSize */, IBindingSet.class),
+                    new BOpStats());
+
+            final long built = System.nanoTime();
+
+            final CountingBuffer out = new CountingBuffer();
+
+            state.hashJoin2(new Chunkerator<IBindingSet>(Arrays.asList(left)
+                    .iterator(), 1000/* chunkSize */, IBindingSet.class),
+                    null/* stats */, out, (IConstraint[]) null);
+
+            switch (joinType) {
+            case Normal:
+                break;
+            case Optional:
+            case NotExists:
+                state.outputOptionals(out);
+                break;
+            case Exists:
+                state.outputJoinSet(out);
+                break;
+            default:
+                throw new AssertionError();
+            }
+
+            final long probed = System.nanoTime();
+
+            return new long[] { built - begin, probed - built, out.flush() };
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
+
+    private static long median(final long[] a) {
+
+        final long[] t = a.clone();
+
+        Arrays.sort(t);
+
+        return t[t.length / 2];
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static void main(final String[] args) {
+
+        final int rightSize = Integer.getInteger("rightSize", 1000000);
+        final int leftSize = Integer.getInteger("leftSize", 1000000);
+        final int distinctKeys = Integer.getInteger("distinctKeys", 500000);
+        final JoinTypeEnum joinType = JoinTypeEnum.valueOf(System.getProperty(
+                "joinType", JoinTypeEnum.Normal.name()));
+        final int partitions = Integer.getInteger("partitions",
+                JVMHashJoinAnnotations.DEFAULT_PARTITIONS);
+        final int warmup = Integer.getInteger("warmup", 3);
+        final int trials = Integer.getInteger("trials", 5);
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+        final IVariable<IV> z = Var.var("z");
+
+        final Random r = new Random(17L);
+
+        final IBindingSet[] right = generate(r, rightSize, distinctKeys, x, z);
+
+        final IBindingSet[] left = generate(r, leftSize, distinctKeys, x, y);
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS, //
+                new NV(HTreeHashJoinAnnotations.RELATION_NAME,
+                        new String[] { "benchmark" }),//
+                new NV(HashJoinAnnotations.JOIN_VARS, new IVariable[] { x }),//
+                new NV(JVMHashJoinAnnotations.PARTITIONS, partitions)//
+        );
+
+        final MemoryManager mmgr = new MemoryManager(DirectBufferPool.INSTANCE);
+
+        final String[] names = new String[] { "JVM", "JVMPartitioned", "HTree" };
+
+        final Factory[] factories = new Factory[] {//
+        new Factory() {
+            @Override
+            public IHashJoinUtility create(final PipelineOp op,
+                    final JoinTypeEnum joinType) {
+                return new JVMHashJoinUtility(op, joinType);
+            }
+        },//
+        new Factory() {
+            @Override
+            public IHashJoinUtility create(final PipelineOp op,
+                    final JoinTypeEnum joinType) {
+                return new JVMPartitionedHashJoinUtility(op, joinType);
+            }
+        },//
+        new Factory() {
+            @Override
+            public IHashJoinUtility create(final PipelineOp op,
+                    final JoinTypeEnum joinType) {
+                return new HTreeHashJoinUtility(mmgr, op, joinType);
+            }
+        } //
+        };
+
+        System.out.println("rightSize=" + rightSize + ", leftSize=" + leftSize
+                + ", distinctKeys=" + distinctKeys + ", joinType=" + joinType
+                + ", processors=" + Runtime.getRuntime().availableProcessors());
+
+        try {
+
+            for (int i = 0; i < factories.length; i++) {
+
+                for (int j = 0; j < warmup; j++) {
+
+                    trial(factories[i], op, joinType, right, left);
+
+                }
+
+                final long[] build = new long[trials];
+                final long[] probe = new long[trials];
+                long nout = 0L;
+
+                for (int j = 0; j < trials; j++) {
+
+                    final long[] t = trial(factories[i], op, joinType, right,
+                            left);
+
+                    build[j] = t[0];
+                    probe[j] = t[1];
+                    nout = t[2];
+
+                }
+
+                System.out.println(names[i] + ": build=" + median(build)
+                        / 1000000 + "ms, probe=" + median(probe) / 1000000
+                        + "ms, solutionsOut=" + nout);
+
+            }
+
+        } finally {
+
+            mmgr.clear();
+
+        }
+
+    }
+
+}
@@ -66,6 +66,9 @@ public class TestAll extends TestCase {
         // Test suite for the guts of the JVM hash join logic.
         suite.addTestSuite(TestJVMHashJoinUtility.class);
 
+        // Test suite for the radix partitioned JVM hash join logic.
+        suite.addTestSuite(TestJVMPartitionedHashJoinUtility.class);
+
         // Test suite for the guts of the HTree hash join logic.
         suite.addTestSuite(TestHTreeHashJoinUtility.class);
         
@@ -27,7 +27,20 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.bop.join;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.striterator.Chunkerator;
 
 /**
  * Test suite for the {@link JVMHashJoinUtility}.
@@ -58,5 +71,76 @@ public class TestJVMHashJoinUtility extends AbstractHashJoinUtilityTestCase {
         return new JVMHashJoinUtility(op, joinType);
         
     }
+
+    /**
+     * The hash join produces the same solutions when the left solutions are
+     * the rows of a {@link ColumnarSolutionChunk}, including for the left
+     * solutions on which the join variable is not bound.
+     */
+    public void test_hashJoin_columnar() {
+
+        final JoinSetup setup = new JoinSetup(getName());
+
+        final IVariable<?>[] joinVars = new IVariable[] { Var.var("x") };
+
+        final List<IBindingSet> left = setup.getLeft1();
+
+        final List<IBindingSet> columnar = Arrays.asList(ColumnarSolutionChunk
+                .valueOf(left.toArray(new IBindingSet[left.size()]))
+                .toBindingSets());
+
+        for (JoinTypeEnum joinType : new JoinTypeEnum[] { JoinTypeEnum.Normal,
+                JoinTypeEnum.Optional }) {
+
+            assertSameSolutionsAnyOrder(
+                    hashJoin(joinType, joinVars, left, setup.getRight1()),
+                    Arrays.asList(
+                            hashJoin(joinType, joinVars, columnar,
+                                    setup.getRight1())).iterator());
+
+        }
+
+    }
+
+    private IBindingSet[] hashJoin(final JoinTypeEnum joinType,
+            final IVariable<?>[] joinVars, final List<IBindingSet> left,
+            final List<IBindingSet> right) {
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS, new NV(
+                HashJoinAnnotations.JOIN_VARS, joinVars));
+
+        final JVMHashJoinUtility state = newHashJoinUtility(op, joinType);
+
+        try {
+
+            state.acceptSolutions(
+                    new Chunkerator<IBindingSet>(right.iterator()),
+                    new BOpStats());
+
+            final TestBuffer<IBindingSet> outputBuffer = new TestBuffer<IBindingSet>();
+
+            state.hashJoin(new Chunkerator<IBindingSet>(left.iterator(),
+                    100/* chunkSize */, IBindingSet.class), null/* stats */,
+                    outputBuffer);
+
+            if (joinType == JoinTypeEnum.Optional)
+                state.outputOptionals(outputBuffer);
+
+            final List<IBindingSet> out = new LinkedList<IBindingSet>();
+
+            final Iterator<IBindingSet> itr = outputBuffer.iterator();
+
+            while (itr.hasNext())
+                out.add(itr.next());
+
+            return out.toArray(new IBindingSet[out.size()]);
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
     
 }
@@ -0,0 +1,308 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.striterator.Chunkerator;
+
+/**
+ * Test suite for the {@link JVMPartitionedHashJoinUtility}.
+ * <p>
+ * Note: The parallel threshold is set to ONE (1) so the solutions are always
+ * built and probed by the parallel workers.
+ */
+public class TestJVMPartitionedHashJoinUtility extends
+        AbstractHashJoinUtilityTestCase {
+
+    /**
+     *
+     */
+    public TestJVMPartitionedHashJoinUtility() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestJVMPartitionedHashJoinUtility(String name) {
+        super(name);
+    }
+
+    @Override
+    protected JVMPartitionedHashJoinUtility newHashJoinUtility(
+            final PipelineOp op, final JoinTypeEnum joinType) {
+
+        final List<NV> anns = new LinkedList<NV>();
+
+        for (Map.Entry<String, Object> e : op.annotations().entrySet()) {
+
+            anns.add(new NV(e.getKey(), e.getValue()));
+
+        }
+
+        anns.add(new NV(JVMHashJoinAnnotations.PARTITIONS, 4));
+
+        anns.add(new NV(JVMHashJoinAnnotations.PARALLEL_THRESHOLD, 1));
+
+        return new JVMPartitionedHashJoinUtility(new MockPipelineOp(
+                BOp.NOARGS, anns.toArray(new NV[anns.size()])), joinType);
+
+    }
+
+    /**
+     * The #of partitions is rounded up to a power of two.
+     */
+    public void test_partitionCount() {
+
+        final IVariable<?> x = Var.var("x");
+
+        assertEquals(1, new JVMPartitionedHashIndex(new IVariable[] { x },
+                false, 1, 16, .75f).getPartitionCount());
+
+        assertEquals(4, new JVMPartitionedHashIndex(new IVariable[] { x },
+                false, 3, 16, .75f).getPartitionCount());
+
+        assertEquals(8, new JVMPartitionedHashIndex(new IVariable[] { x },
+                false, 8, 16, .75f).getPartitionCount());
+
+    }
+
+    public void test_randomNormal() {
+
+        doRandomTest(JoinTypeEnum.Normal);
+
+    }
+
+    public void test_randomOptional() {
+
+        doRandomTest(JoinTypeEnum.Optional);
+
+    }
+
+    public void test_randomExists() {
+
+        doRandomTest(JoinTypeEnum.Exists);
+
+    }
+
+    public void test_randomNotExists() {
+
+        doRandomTest(JoinTypeEnum.NotExists);
+
+    }
+
+    /**
+     * Join a few thousand random solutions, some of which do not bind the join
+     * variable, and compare the result with the {@link JVMHashJoinUtility}.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void doRandomTest(final JoinTypeEnum joinType) {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+        final IVariable<IV> z = Var.var("z");
+
+        final Random r = new Random(13L);
+
+        final List<IBindingSet> left = new LinkedList<IBindingSet>();
+
+        final List<IBindingSet> right = new LinkedList<IBindingSet>();
+
+        for (int i = 0; i < 2000; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+            if (r.nextInt(20) != 0)
+                bset.set(x, new Constant<IV>(new XSDNumericIV(r.nextInt(250))));
+            bset.set(y, new Constant<IV>(new XSDNumericIV(i)));
+            left.add(bset);
+
+        }
+
+        for (int i = 0; i < 1000; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+            if (r.nextInt(20) != 0)
+                bset.set(x, new Constant<IV>(new XSDNumericIV(r.nextInt(500))));
+            bset.set(z, new Constant<IV>(new XSDNumericIV(i)));
+            right.add(bset);
+
+        }
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS, //
+                new NV(HashJoinAnnotations.JOIN_VARS, new IVariable[] { x }),//
+                new NV(JoinAnnotations.SELECT, null),//
+                new NV(JoinAnnotations.CONSTRAINTS, null)//
+        );
+
+        final IBindingSet[] expected = runJoin(new JVMHashJoinUtility(op,
+                joinType), joinType, left, right);
+
+        final IBindingSet[] actual = runJoin(newHashJoinUtility(op, joinType),
+                joinType, left, right);
+
+        assertTrue(expected.length > 0);
+
+        assertSameSolutionsAnyOrder(expected, Arrays.asList(actual).iterator());
+
+    }
+
+    /**
+     * When there are no join variables, the join is run by the base class. The
+     * probe keys for a left chunk whose solutions are the rows of a
+     * {@link ColumnarSolutionChunk} must be resolved against the partitions
+     * rather than the (empty) map of the base class.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void test_columnarNoJoinVars() {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> y = Var.var("y");
+
+        final List<IBindingSet> left = new LinkedList<IBindingSet>();
+
+        final List<IBindingSet> right = new LinkedList<IBindingSet>();
+
+        for (int i = 0; i < 50; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+            bset.set(x, new Constant<IV>(new XSDNumericIV(i)));
+            left.add(bset);
+
+        }
+
+        for (int i = 0; i < 20; i++) {
+
+            final IBindingSet bset = new ListBindingSet();
+            bset.set(y, new Constant<IV>(new XSDNumericIV(i)));
+            right.add(bset);
+
+        }
+
+        // The left solutions are the rows of a single chunk.
+        final List<IBindingSet> columnar = Arrays.asList(ColumnarSolutionChunk
+                .valueOf(left.toArray(new IBindingSet[left.size()]))
+                .toBindingSets());
+
+        final PipelineOp op = new MockPipelineOp(BOp.NOARGS, //
+                new NV(HashJoinAnnotations.JOIN_VARS, new IVariable[] {}),//
+                new NV(JoinAnnotations.SELECT, null),//
+                new NV(JoinAnnotations.CONSTRAINTS, null)//
+        );
+
+        for (JoinTypeEnum joinType : new JoinTypeEnum[] { JoinTypeEnum.Normal,
+                JoinTypeEnum.Optional }) {
+
+            final IBindingSet[] expected = runJoin(new JVMHashJoinUtility(op,
+                    joinType), joinType, left, right);
+
+            final IBindingSet[] actual = runJoin(newHashJoinUtility(op,
+                    joinType), joinType, columnar, right);
+
+            // Every left solution joins with every right solution.
+            assertEquals(left.size() * right.size(), expected.length);
+
+            assertSameSolutionsAnyOrder(expected, Arrays.asList(actual)
+                    .iterator());
+
+        }
+
+    }
+
+    /**
+     * Build the hash index from the right solutions, join the left solutions,
+     * and report the solutions for the join type.
+     */
+    private IBindingSet[] runJoin(final IHashJoinUtility state,
+            final JoinTypeEnum joinType, final List<IBindingSet> left,
+            final List<IBindingSet> right) {
+
+        try {
+
+            state.acceptSolutions(
+                    new Chunkerator<IBindingSet>(right.iterator()),
+                    new BOpStats());
+
+            final TestBuffer<IBindingSet> outputBuffer = new TestBuffer<IBindingSet>();
+
+            state.hashJoin2(new Chunkerator<IBindingSet>(left.iterator(),
+                    100/* chunkSize */, IBindingSet.class), null/* stats */,
+                    outputBuffer, (IConstraint[]) null);
+
+            switch (joinType) {
+            case Normal:
+                break;
+            case Optional:
+            case NotExists:
+                state.outputOptionals(outputBuffer);
+                break;
+            case Exists:
+                state.outputJoinSet(outputBuffer);
+                break;
+            default:
+                throw new AssertionError();
+            }
+
+            final List<IBindingSet> a = new LinkedList<IBindingSet>();
+
+            final Iterator<IBindingSet> itr = outputBuffer.iterator();
+
+            while (itr.hasNext()) {
+
+                a.add(itr.next());
+
+            }
+
+            return a.toArray(new IBindingSet[a.size()]);
+
+        } finally {
+
+            state.release();
+
+        }
+
+    }
+
+}
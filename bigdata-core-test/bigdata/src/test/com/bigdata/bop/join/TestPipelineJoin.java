@@ -441,6 +441,110 @@ public class TestPipelineJoin extends TestCase2 {
         
     }
 
+    /**
+     * Unit test for a pipeline join which reads the access paths for a chunk
+     * of source solutions using a shared cursor.
+     * 
+     * @see PipelineJoin.Annotations#SORTED_PROBE
+     */
+    public void test_join_sortedProbe() throws InterruptedException,
+            ExecutionException {
+
+        final int joinId = 2;
+        final int predId = 3;
+
+        final Predicate<E> predOp = new Predicate<E>(new IVariableOrConstant[] {
+                Var.var("x"), Var.var("y") }, NV
+                .asMap(new NV[] {//
+                        new NV(Predicate.Annotations.RELATION_NAME,
+                                new String[] { namespace }),//
+                        new NV(Predicate.Annotations.BOP_ID, predId),//
+                        new NV(Annotations.TIMESTAMP,
+                                ITx.READ_COMMITTED),//
+                }));
+
+        final PipelineJoin<E> query = new PipelineJoin<E>(
+                new BOp[] { },// args
+                new NV(Predicate.Annotations.BOP_ID, joinId),//
+                new NV(PipelineJoin.Annotations.PREDICATE, predOp),//
+                new NV(PipelineJoin.Annotations.SORTED_PROBE, true)//
+                );
+
+        // the expected solutions.
+        final IBindingSet[] expected = new IBindingSet[] {//
+                new ListBindingSet(//
+                        new IVariable[] { Var.var("x"), Var.var("y") },//
+                        new IConstant[] { new Constant<String>("John"), new Constant<String>("Mary") }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { Var.var("x"), Var.var("y") },//
+                        new IConstant[] { new Constant<String>("Mary"), new Constant<String>("John") }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { Var.var("x"), Var.var("y") },//
+                        new IConstant[] { new Constant<String>("Mary"), new Constant<String>("Paul") }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { Var.var("x"), Var.var("y") },//
+                        new IConstant[] { new Constant<String>("Paul"), new Constant<String>("Leon") }//
+                ),//
+                new ListBindingSet(//
+                        new IVariable[] { Var.var("x"), Var.var("y") },//
+                        new IConstant[] { new Constant<String>("Leon"), new Constant<String>("Paul") }//
+                ),//
+        };
+
+        final PipelineJoinStats stats = query.newStats();
+
+        final IAsynchronousIterator<IBindingSet[]> source;
+        {
+
+            // not in key order and one of them does not join.
+            final String[] names = new String[] { "Paul", "John", "Bob",
+                    "Leon", "Mary" };
+
+            final IBindingSet[] chunk = new IBindingSet[names.length];
+
+            for (int i = 0; i < names.length; i++) {
+
+                chunk[i] = new ListBindingSet();
+
+                chunk[i].set(Var.var("x"), new Constant<String>(names[i]));
+
+            }
+
+            source = new ThickAsynchronousIterator<IBindingSet[]>(
+                    new IBindingSet[][] { chunk });
+
+        }
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(query, stats);
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                new MockRunningQuery(null/* fed */, jnl/* indexManager */
+                ), -1/* partitionId */, stats,query/* op */,
+                false/* lastInvocation */, 
+                source, sink, null/* sink2 */);
+
+        // get task.
+        final FutureTask<Void> ft = query.eval(context);
+        
+        // execute task.
+        jnl.getExecutorService().execute(ft);
+
+        AbstractQueryEngineTestCase.assertSameSolutionsAnyOrder(expected, sink.iterator(),
+                ft);
+
+        // join task
+        assertEquals(1L, stats.chunksIn.get());
+        assertEquals(5L, stats.unitsIn.get());
+        assertEquals(5L, stats.unitsOut.get());
+        // access path
+        assertEquals(5L, stats.accessPathCount.get());
+        assertEquals(5L, stats.sortedProbeCount.get());
+        
+    }
+
     /**
      * Unit test for a pipeline join in which we expect duplicate access paths to
      * be eliminated.
@@ -0,0 +1,369 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+import com.bigdata.bop.ap.SampleIndex.SampleType;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.btree.IndexMetadata;
+import com.bigdata.journal.BufferMode;
+import com.bigdata.journal.ITx;
+import com.bigdata.journal.Journal;
+
+/**
+ * Test suite for the {@link SampleCache}.
+ */
+public class TestSampleCache extends TestCase2 {
+
+    public TestSampleCache() {
+    }
+
+    public TestSampleCache(final String name) {
+        super(name);
+    }
+
+    private Journal jnl;
+
+    private QueryEngine queryEngine;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        final Properties p = new Properties(getProperties());
+
+        p.setProperty(Journal.Options.BUFFER_MODE, BufferMode.Transient
+                .toString());
+
+        jnl = new Journal(p);
+
+        queryEngine = new QueryEngine(jnl);
+
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        if (jnl != null) {
+
+            jnl.destroy();
+
+            jnl = null;
+
+        }
+
+        queryEngine = null;
+
+        super.tearDown();
+
+    }
+
+    /**
+     * Write on the journal and commit, returning a read-only transaction which
+     * reads on the new commit point.
+     */
+    private long commitAndNewTx() {
+
+        jnl.registerIndex(new IndexMetadata(UUID.randomUUID().toString(),
+                UUID.randomUUID()));
+
+        jnl.commit();
+
+        return jnl.newTx(ITx.READ_COMMITTED);
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IPredicate<?> newPredicate(final int bopId, final long timestamp,
+            final String p) {
+
+        return new Predicate(new IVariableOrConstant[] { Var.var("x"),
+                new Constant<String>(p), Var.var("y") }, NV.asMap(new NV[] {
+                new NV(Predicate.Annotations.RELATION_NAME,
+                        new String[] { "test" }),
+                new NV(BOp.Annotations.BOP_ID, bopId),
+                new NV(Predicate.Annotations.TIMESTAMP, timestamp) }));
+
+    }
+
+    private IBindingSet[] newSample(final int n) {
+
+        final IBindingSet[] a = new IBindingSet[n];
+
+        for (int i = 0; i < n; i++) {
+
+            a[i] = new ListBindingSet();
+
+            a[i].set(Var.var("x"), new Constant<Integer>(i));
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * The key ignores the bop identifier and the timestamp of the view, but
+     * not the commit point read by the view.
+     */
+    public void test_vertexKey() {
+
+        final SampleCache cache = new SampleCache(10);
+
+        final long tx1 = commitAndNewTx();
+
+        final long tx1b = jnl.newTx(ITx.READ_COMMITTED);
+
+        assertEquals(cache.getVertexKey(queryEngine, newPredicate(1, tx1, "a"),
+                SampleType.RANDOM), cache.getVertexKey(queryEngine,
+                newPredicate(7, tx1b, "a"), SampleType.RANDOM));
+
+        assertFalse(cache.getVertexKey(queryEngine, newPredicate(1, tx1, "a"),
+                SampleType.RANDOM).equals(
+                cache.getVertexKey(queryEngine, newPredicate(1, tx1, "b"),
+                        SampleType.RANDOM)));
+
+        assertFalse(cache.getVertexKey(queryEngine, newPredicate(1, tx1, "a"),
+                SampleType.RANDOM).equals(
+                cache.getVertexKey(queryEngine, newPredicate(1, tx1, "a"),
+                        SampleType.DENSE)));
+
+        final long tx2 = commitAndNewTx();
+
+        assertFalse(cache.getVertexKey(queryEngine, newPredicate(1, tx1, "a"),
+                SampleType.RANDOM).equals(
+                cache.getVertexKey(queryEngine, newPredicate(1, tx2, "a"),
+                        SampleType.RANDOM)));
+
+        // Not cached unless the view is a read-only transaction.
+        assertNull(cache.getVertexKey(queryEngine, newPredicate(1,
+                ITx.UNISOLATED, "a"), SampleType.RANDOM));
+
+        assertNull(cache.getVertexKey(queryEngine, newPredicate(1,
+                ITx.READ_COMMITTED, "a"), SampleType.RANDOM));
+
+    }
+
+    /**
+     * A cached vertex sample is reused unless a larger sample is required.
+     */
+    public void test_vertexSample() {
+
+        final SampleCache cache = new SampleCache(10);
+
+        final long tx1 = commitAndNewTx();
+
+        final Object key = cache.getVertexKey(queryEngine, newPredicate(1,
+                tx1, "a"), SampleType.RANDOM);
+
+        assertNull(cache.getVertexSample(key, 100));
+
+        final IBindingSet[] sample = newSample(100);
+
+        final VertexSample s = new VertexSample(1000L, 100, EstimateEnum.Normal,
+                sample);
+
+        cache.putVertexSample(key, s);
+
+        // The caller may release its sample.
+        s.releaseSample();
+
+        final VertexSample s1 = cache.getVertexSample(key, 100);
+
+        assertNotNull(s1);
+        assertEquals(1000L, s1.estCard);
+        assertEquals(100, s1.limit);
+        assertEquals(EstimateEnum.Normal, s1.estimateEnum);
+        assertTrue(sample == s1.getSample());
+
+        // A smaller sample is fine.
+        assertNotNull(cache.getVertexSample(key, 50));
+
+        // A larger sample is not.
+        assertNull(cache.getVertexSample(key, 200));
+
+        // Unless the cached sample is exact.
+        cache.putVertexSample(key, new VertexSample(100L, 100,
+                EstimateEnum.Exact, sample));
+
+        assertNotNull(cache.getVertexSample(key, 200));
+
+    }
+
+    /**
+     * A cached edge sample is returned with the caller's source sample.
+     */
+    public void test_edgeSample() {
+
+        final SampleCache cache = new SampleCache(10);
+
+        final long tx1 = commitAndNewTx();
+
+        final IPredicate<?>[] path = new IPredicate[] {
+                newPredicate(1, tx1, "a"), newPredicate(2, tx1, "b") };
+
+        final VertexSample source = new VertexSample(1000L, 100,
+                EstimateEnum.Normal, newSample(100));
+
+        final Object key = cache.getEdgeKey(queryEngine, 100, path,
+                null/* constraints */, true/* pathIsComplete */, source);
+
+        assertNotNull(key);
+
+        // Same path in another query.
+        assertEquals(key, cache.getEdgeKey(queryEngine, 100,
+                new IPredicate[] { newPredicate(5, tx1, "a"),
+                        newPredicate(6, tx1, "b") }, null/* constraints */,
+                true/* pathIsComplete */, source));
+
+        // Different limit.
+        assertFalse(key.equals(cache.getEdgeKey(queryEngine, 200, path,
+                null/* constraints */, true/* pathIsComplete */, source)));
+
+        // Different order.
+        assertFalse(key.equals(cache.getEdgeKey(queryEngine, 100,
+                new IPredicate[] { path[1], path[0] }, null/* constraints */,
+                true/* pathIsComplete */, source)));
+
+        assertNull(cache.getEdgeSample(key, source));
+
+        final IBindingSet[] sample = newSample(10);
+
+        cache.putEdgeSample(key, new EdgeSample(source, 100/* inputCount */,
+                500L/* tuplesRead */, 2000L/* sumRangeCount */,
+                10L/* outputCount */, 10L/* adjustedCard */, .1d/* f */,
+                100L/* estCard */, 5000L/* estRead */, 100/* limit */,
+                EstimateEnum.Normal, sample));
+
+        final VertexSample source2 = new VertexSample(1000L, 100,
+                EstimateEnum.Normal, newSample(100));
+
+        final EdgeSample e = cache.getEdgeSample(key, source2);
+
+        assertNotNull(e);
+        assertTrue(source2 == e.sourceSample);
+        assertEquals(100, e.inputCount);
+        assertEquals(500L, e.tuplesRead);
+        assertEquals(2000L, e.sumRangeCount);
+        assertEquals(10L, e.outputCount);
+        assertEquals(10L, e.adjCard);
+        assertEquals(100L, e.estCard);
+        assertEquals(5000L, e.estRead);
+        assertEquals(100, e.limit);
+        assertTrue(sample == e.getSample());
+
+    }
+
+    /**
+     * Samples for an older commit point are dropped once a sample is cached
+     * for a newer commit point.
+     */
+    public void test_invalidation() {
+
+        final SampleCache cache = new SampleCache(10);
+
+        final long tx1 = commitAndNewTx();
+
+        final Object key1 = cache.getVertexKey(queryEngine, newPredicate(1,
+                tx1, "a"), SampleType.RANDOM);
+
+        cache.putVertexSample(key1, new VertexSample(1000L, 100,
+                EstimateEnum.Normal, newSample(100)));
+
+        assertEquals(1, cache.size());
+
+        final long tx2 = commitAndNewTx();
+
+        final Object key2 = cache.getVertexKey(queryEngine, newPredicate(1,
+                tx2, "a"), SampleType.RANDOM);
+
+        cache.putVertexSample(key2, new VertexSample(1000L, 100,
+                EstimateEnum.Normal, newSample(100)));
+
+        assertEquals(1, cache.size());
+
+        assertNull(cache.getVertexSample(key1, 100));
+
+        assertNotNull(cache.getVertexSample(key2, 100));
+
+        // A sample for the older commit point is not cached.
+        cache.putVertexSample(key1, new VertexSample(1000L, 100,
+                EstimateEnum.Normal, newSample(100)));
+
+        assertNull(cache.getVertexSample(key1, 100));
+
+    }
+
+    /**
+     * The least recently used sample is evicted when the cache is full.
+     */
+    public void test_capacity() {
+
+        final SampleCache cache = new SampleCache(2);
+
+        final long tx1 = commitAndNewTx();
+
+        final Object[] keys = new Object[3];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            keys[i] = cache.getVertexKey(queryEngine, newPredicate(1, tx1,
+                    "p" + i), SampleType.RANDOM);
+
+            cache.putVertexSample(keys[i], new VertexSample(1000L, 100,
+                    EstimateEnum.Normal, newSample(100)));
+
+        }
+
+        assertEquals(2, cache.size());
+
+        assertNull(cache.getVertexSample(keys[0], 100));
+
+        assertNotNull(cache.getVertexSample(keys[1], 100));
+
+        assertNotNull(cache.getVertexSample(keys[2], 100));
+
+    }
+
+}
@@ -88,6 +88,10 @@ public class TestAll extends TestCase {
         // in-memory sort operator.
         suite.addTestSuite(TestMemorySortOp.class);
 
+        // external memory sort operator.
+        suite.addTestSuite(TestExternalSortOp.class);
+        suite.addTestSuite(TestTopKSortOp.class);
+
         /*
          * Aggregation
          */
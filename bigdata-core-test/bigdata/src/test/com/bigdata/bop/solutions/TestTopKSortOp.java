@@ -0,0 +1,341 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpEvaluationContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.bindingSet.ListBindingSet;
+import com.bigdata.bop.engine.AbstractQueryEngineTestCase;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.BlockingBufferWithStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.bop.engine.MockRunningQuery;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.relation.accesspath.IAsynchronousIterator;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.ThickAsynchronousIterator;
+
+/**
+ * Unit tests for the {@link TopKSortOp}.
+ *
+ * @see TestMemorySortOp
+ */
+public class TestTopKSortOp extends TestCase2 {
+
+    /**
+     *
+     */
+    public TestTopKSortOp() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestTopKSortOp(String name) {
+        super(name);
+    }
+
+    private SortOp newSortOp(final ISortOrder<?>[] sors, final int limit) {
+
+        return new TopKSortOp(new BOp[] {}, NV.asMap(new NV[] {//
+                new NV(TopKSortOp.Annotations.BOP_ID, 1),//
+                new NV(TopKSortOp.Annotations.SORT_ORDER, sors),//
+                new NV(TopKSortOp.Annotations.VALUE_COMPARATOR, new IVComparator()),//
+                new NV(TopKSortOp.Annotations.LIMIT, limit),//
+                new NV(TopKSortOp.Annotations.EVALUATION_CONTEXT,
+                        BOpEvaluationContext.CONTROLLER),//
+                new NV(TopKSortOp.Annotations.MAX_PARALLEL, 1),//
+                new NV(PipelineOp.Annotations.REORDER_SOLUTIONS, false),//
+                new NV(TopKSortOp.Annotations.LAST_PASS, true),//
+        }));
+
+    }
+
+    /**
+     * Run one evaluation pass of the operator.
+     *
+     * @return The sink on which the solutions were written.
+     */
+    private IBlockingBuffer<IBindingSet[]> runPass(final SortOp query,
+            final MockQueryContext queryContext, final BOpStats stats,
+            final IBindingSet[][] chunks, final boolean lastInvocation)
+            throws Exception {
+
+        final IAsynchronousIterator<IBindingSet[]> source = new ThickAsynchronousIterator<IBindingSet[]>(
+                chunks);
+
+        final IBlockingBuffer<IBindingSet[]> sink = new BlockingBufferWithStats<IBindingSet[]>(
+                query, stats);
+
+        final IRunningQuery runningQuery = new MockRunningQuery(null/* fed */,
+                null/* indexManager */, queryContext);
+
+        final BOpContext<IBindingSet> context = new BOpContext<IBindingSet>(
+                runningQuery, -1/* partitionId */, stats, query/* op */,
+                lastInvocation, source, sink, null/* sink2 */
+        );
+
+        final FutureTask<Void> ft = query.eval(context);
+
+        ft.run();
+
+        ft.get();
+
+        return sink;
+
+    }
+
+    /**
+     * Return the first <i>n</i> solutions of a stable sort of the data.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IBindingSet[] expected(final ISortOrder<?>[] sors,
+            final IBindingSet[] data, final int n) {
+
+        final IBindingSet[] a = new IBindingSet[data.length];
+
+        for (int i = 0; i < data.length; i++) {
+
+            a[i] = data[i].clone();
+
+        }
+
+        // Note: Arrays.sort() is stable for Object[].
+        Arrays.sort(a, new BindingSetComparator(sors, new IVComparator()));
+
+        return Arrays.copyOf(a, Math.min(n, a.length));
+
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testTopK() throws Exception {
+
+        final IVariable<IV> x = Var.var ( "x" ) ;
+        final IVariable<IV> y = Var.var ( "y" ) ;
+        final IConstant<IV> a = new Constant<IV>(new XSDNumericIV(1));
+        final IConstant<IV> b = new Constant<IV>(new XSDNumericIV(2));
+        final IConstant<IV> c = new Constant<IV>(new XSDNumericIV(3));
+        final IConstant<IV> d = new Constant<IV>(new XSDNumericIV(4));
+        final IConstant<IV> e = new Constant<IV>(new XSDNumericIV(5));
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+                new SortOrder(x, true/*asc*/),//
+                new SortOrder(y, false/*asc*/)//
+                };
+
+        final IBindingSet data [] = new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, e } )
+            , new ListBindingSet ( new IVariable<?> [] { x },    new IConstant [] { c }    )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, a } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { d, b } )
+            , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, d } )
+            , new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { a }    )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { b, b } )
+        } ;
+
+        final IBindingSet expected [] = new IBindingSet []
+        {
+              new ListBindingSet ( new IVariable<?> [] { y },    new IConstant [] { a }    )
+            , new ListBindingSet ( new IVariable<?> [] {},       new IConstant [] {}       )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, e } )
+            , new ListBindingSet ( new IVariable<?> [] { x, y }, new IConstant [] { a, c } )
+        } ;
+
+        final SortOp query = newSortOp(sors, 4/* limit */);
+
+        final BOpStats stats = query.newStats();
+
+        final MockQueryContext queryContext = new MockQueryContext(
+                UUID.randomUUID());
+
+        try {
+
+            final IBlockingBuffer<IBindingSet[]> sink = runPass(query,
+                    queryContext, stats, new IBindingSet[][] { data }, true/* lastInvocation */);
+
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator());
+
+            assertEquals(1, stats.chunksIn.get());
+            assertEquals(10, stats.unitsIn.get());
+            assertEquals(4, stats.unitsOut.get());
+            assertEquals(1, stats.chunksOut.get());
+
+            // The shared state was released.
+            assertNull(queryContext.getAttributes().get(
+                    Integer.toString(query.getId())));
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
+    /**
+     * Unit test where the limit is larger than the #of solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testLimitExceedsSolutions() throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+        new SortOrder(x, false/* asc */) //
+        };
+
+        final IBindingSet data[] = new IBindingSet[] {
+                new ListBindingSet(new IVariable<?>[] { x },
+                        new IConstant[] { new Constant<IV>(new XSDNumericIV(2)) }),
+                new ListBindingSet(new IVariable<?>[] { x },
+                        new IConstant[] { new Constant<IV>(new XSDNumericIV(7)) }),
+                new ListBindingSet(new IVariable<?>[] { x },
+                        new IConstant[] { new Constant<IV>(new XSDNumericIV(5)) }), };
+
+        final SortOp query = newSortOp(sors, 100/* limit */);
+
+        final MockQueryContext queryContext = new MockQueryContext(
+                UUID.randomUUID());
+
+        try {
+
+            final IBlockingBuffer<IBindingSet[]> sink = runPass(query,
+                    queryContext, query.newStats(),
+                    new IBindingSet[][] { data }, true/* lastInvocation */);
+
+            AbstractQueryEngineTestCase.assertSameSolutions(
+                    expected(sors, data, 100), sink.iterator());
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
+    /**
+     * Unit test where the solutions arrive in several chunks across several
+     * invocations of the operator, including ties on the sort key. The result
+     * must be the same as the head of a stable sort of all solutions.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public void testManyInvocations() throws Exception {
+
+        final IVariable<IV> x = Var.var("x");
+        final IVariable<IV> id = Var.var("id");
+
+        final ISortOrder<?> sors[] = new ISortOrder[] { //
+        new SortOrder(x, true/* asc */) //
+        };
+
+        final Random r = new Random(17L);
+
+        final int nchunks = 20, chunkSize = 50, limit = 25;
+
+        final IBindingSet[][] chunks = new IBindingSet[nchunks][];
+
+        final IBindingSet[] all = new IBindingSet[nchunks * chunkSize];
+
+        for (int i = 0, n = 0; i < nchunks; i++) {
+
+            chunks[i] = new IBindingSet[chunkSize];
+
+            for (int j = 0; j < chunkSize; j++, n++) {
+
+                all[n] = chunks[i][j] = new ListBindingSet(new IVariable<?>[] {
+                        x, id }, new IConstant[] {
+                        new Constant<IV>(new XSDNumericIV(r.nextInt(100))),
+                        new Constant<IV>(new XSDNumericIV(n)) });
+
+            }
+
+        }
+
+        final IBindingSet[] expected = expected(sors, all, limit);
+
+        final SortOp query = newSortOp(sors, limit);
+
+        final BOpStats stats = query.newStats();
+
+        final MockQueryContext queryContext = new MockQueryContext(
+                UUID.randomUUID());
+
+        try {
+
+            for (int i = 0; i < nchunks; i++) {
+
+                final IBlockingBuffer<IBindingSet[]> sink = runPass(query,
+                        queryContext, stats, new IBindingSet[][] { chunks[i] },
+                        false/* lastInvocation */);
+
+                // Nothing is written until the last pass.
+                AbstractQueryEngineTestCase.assertSameSolutions(
+                        new IBindingSet[0], sink.iterator());
+
+            }
+
+            final IBlockingBuffer<IBindingSet[]> sink = runPass(query,
+                    queryContext, stats, new IBindingSet[][] {}, true/* lastInvocation */);
+
+            AbstractQueryEngineTestCase.assertSameSolutions(expected,
+                    sink.iterator());
+
+            assertEquals(nchunks * chunkSize, stats.unitsIn.get());
+            assertEquals(limit, stats.unitsOut.get());
+
+        } finally {
+
+            queryContext.close();
+
+        }
+
+    }
+
+}
@@ -28,6 +28,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.btree;
 
+import java.util.Random;
 import java.util.UUID;
 
 import com.bigdata.rawstore.SimpleMemoryRawStore;
@@ -183,5 +184,109 @@ abstract public class AbstractBTreeCursorTestCase extends AbstractTupleCursorTes
          */
         
     }
+
+    /**
+     * Unit test for a sequence of seeks on the same cursor. The seeks land in
+     * the current leaf, in the next leaf, further ahead and behind the current
+     * position, on keys which are present and on keys which are not. Each
+     * seek (and the following tuple) must be the same as for a seek on a new
+     * cursor. For a mutable B+Tree, tuples are also inserted between the
+     * seeks, which splits the leaves under the cursor.
+     */
+    public void test_seekSequence() {
+
+        final IndexMetadata md = new IndexMetadata(UUID.randomUUID());
+
+        md.setBranchingFactor(3);
+
+        BTree btree = BTree.create(new SimpleMemoryRawStore(), md);
+
+        // even keys only.
+        for (int i = 0; i < 500; i++) {
+
+            btree.insert(i * 2, "v" + (i * 2));
+
+        }
+
+        if (isReadOnly()) {
+
+            btree.writeCheckpoint();
+
+            btree = btree.asReadOnly();
+
+        }
+
+        final Random r = new Random(37L);
+
+        final ITupleCursor2<String> cursor = newCursor(btree);
+
+        int key = 0;
+
+        for (int i = 0; i < 2000; i++) {
+
+            switch (r.nextInt(10)) {
+            case 0:
+                // jump ahead.
+                key += 50 + r.nextInt(100);
+                break;
+            case 1:
+                // go back.
+                key -= r.nextInt(100);
+                break;
+            default:
+                // small step forward.
+                key += r.nextInt(8);
+            }
+
+            key = Math.max(0, Math.min(1010, key));
+
+            if (!isReadOnly() && r.nextInt(20) == 0) {
+
+                // odd keys are not otherwise present.
+                final int k = key + 1 + 2 * r.nextInt(3);
+
+                if (k % 2 == 1)
+                    btree.insert(k, "v" + k);
+
+            }
+
+            final ITupleCursor2<String> expected = newCursor(btree);
+
+            assertSameTuple("seek: key=" + key, expected.seek(key),
+                    cursor.seek(key));
+
+            if (r.nextBoolean()) {
+
+                assertEquals(expected.hasNext(), cursor.hasNext());
+
+                if (expected.hasNext()) {
+
+                    assertSameTuple("next: key=" + key, expected.next(),
+                            cursor.next());
+
+                }
+
+            }
+
+        }
+
+    }
+
+    private static void assertSameTuple(final String msg,
+            final ITuple<String> expected, final ITuple<String> actual) {
+
+        if (expected == null) {
+
+            assertNull(msg, actual);
+
+            return;
+
+        }
+
+        assertNotNull(msg, actual);
+
+        assertEquals(msg, expected.getObject(), actual.getObject());
+
+    }
     
 }
@@ -0,0 +1,158 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.btree;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.bigdata.btree.IndexSegmentBuilder.BuildEnum;
+
+/**
+ * A micro-benchmark for the throughput of the {@link IndexSegmentBuilder} as a
+ * function of the #of threads used to code the leaves (see
+ * {@link IndexSegmentBuilder#setBuildThreads(int)}). Builds are run for
+ * synthetic keys (a random long and a random value) and for keys shaped like
+ * those of a statement index. This is not part of the test suite. Run it from
+ * the command line. Each configuration is warmed up before it is measured, and
+ * the median of the measured trials is reported.
+ * <p>
+ * The following system properties may be specified:
+ * <dl>
+ * <dt>ntuples</dt>
+ * <dd>The #of tuples in the source B+Tree (default 1,000,000).</dd>
+ * <dt>m</dt>
+ * <dd>The output branching factor (default 512).</dd>
+ * <dt>alg</dt>
+ * <dd>The {@link BuildEnum} (default {@link BuildEnum#FullyBuffered}).</dd>
+ * <dt>threads</dt>
+ * <dd>A comma separated list of the #of build threads (default
+ * <code>0,2,4,8</code>).</dd>
+ * <dt>warmup</dt>
+ * <dd>The #of warmup trials (default 2).</dd>
+ * <dt>trials</dt>
+ * <dd>The #of measured trials (default 5).</dd>
+ * </dl>
+ */
+public class BenchmarkIndexSegmentBuilder {
+
+    private static long median(final long[] a) {
+
+        final long[] t = a.clone();
+
+        Arrays.sort(t);
+
+        return t[t.length / 2];
+
+    }
+
+    /**
+     * Run one trial.
+     * 
+     * @return The elapsed nanoseconds for the build.
+     */
+    private static long trial(final BTree btree, final File outFile,
+            final int m, final BuildEnum buildEnum, final int buildThreads)
+            throws Exception {
+
+        final long begin = System.nanoTime();
+
+        TestIndexSegmentBuilderWithBuildThreads.doBuild(btree, outFile, m,
+                buildEnum, buildThreads);
+
+        final long elapsed = System.nanoTime() - begin;
+
+        if (!outFile.delete())
+            throw new RuntimeException("Could not delete: " + outFile);
+
+        return elapsed;
+
+    }
+
+    public static void main(final String[] args) throws Exception {
+
+        final int ntuples = Integer.getInteger("ntuples", 1000000);
+        final int m = Integer.getInteger("m", 512);
+        final BuildEnum buildEnum = BuildEnum.valueOf(System.getProperty(
+                "alg", BuildEnum.FullyBuffered.name()));
+        final String[] threads = System.getProperty("threads", "0,2,4,8")
+                .split(",");
+        final int warmup = Integer.getInteger("warmup", 2);
+        final int trials = Integer.getInteger("trials", 5);
+
+        final String[] names = new String[] { "synthetic", "statement" };
+
+        final BTree[] sources = new BTree[] {
+                TestIndexSegmentBuilderWithBuildThreads.newSyntheticBTree(
+                        ntuples, 17L),
+                TestIndexSegmentBuilderWithBuildThreads.newStatementBTree(
+                        ntuples, 17L) };
+
+        final File outFile = File.createTempFile("benchmark", ".seg");
+
+        outFile.delete();
+
+        System.out.println("ntuples=" + ntuples + ", m=" + m + ", alg="
+                + buildEnum + ", processors="
+                + Runtime.getRuntime().availableProcessors());
+
+        for (int i = 0; i < sources.length; i++) {
+
+            for (String s : threads) {
+
+                final int buildThreads = Integer.parseInt(s.trim());
+
+                for (int j = 0; j < warmup; j++) {
+
+                    trial(sources[i], outFile, m, buildEnum, buildThreads);
+
+                }
+
+                final long[] elapsed = new long[trials];
+
+                for (int j = 0; j < trials; j++) {
+
+                    elapsed[j] = trial(sources[i], outFile, m, buildEnum,
+                            buildThreads);
+
+                }
+
+                final long nanos = median(elapsed);
+
+                System.out.println(names[i] + ": buildThreads=" + buildThreads
+                        + ", elapsed=" + nanos / 1000000 + "ms, tuples/sec="
+                        + (nanos == 0 ? 0 : ntuples * 1000000000L / nanos));
+
+            }
+
+        }
+
+    }
+
+}
@@ -84,6 +84,9 @@ public class TestAll extends TestCase {
         suite.addTestSuite(TestBigdataMap.class);
         suite.addTestSuite(TestBigdataSet.class);
 
+        // test the JVM wide page cache for the node and leaf records.
+        suite.addTestSuite(TestPageCache.class);
+
         /*
          * Test fused views, including iterators for the fused view.
          */
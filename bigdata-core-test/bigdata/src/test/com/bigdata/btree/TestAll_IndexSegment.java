@@ -91,6 +91,8 @@ public class TestAll_IndexSegment extends TestCase {
         // stress test with larger random input trees and a variety of branching
         // factors.
         suite.addTestSuite(TestIndexSegmentBuilderWithLargeTrees.class);
+        // test builds which code the leaves using worker threads.
+        suite.addTestSuite(TestIndexSegmentBuilderWithBuildThreads.class);
         // test of the bloom filter integration.
         suite.addTestSuite(TestIndexSegmentWithBloomFilter.class);
 
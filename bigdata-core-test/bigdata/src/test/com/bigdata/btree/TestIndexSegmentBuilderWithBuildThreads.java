@@ -0,0 +1,384 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.btree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.UUID;
+
+import com.bigdata.btree.IndexSegmentBuilder.BuildEnum;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+
+/**
+ * Test suite for {@link IndexSegmentBuilder#setBuildThreads(int)}. The leaves
+ * coded by the worker threads must be written out in key order such that the
+ * generated {@link IndexSegment} is the same as when the leaves are coded by
+ * the caller's thread.
+ */
+public class TestIndexSegmentBuilderWithBuildThreads extends
+        AbstractIndexSegmentTestCase {
+
+    public TestIndexSegmentBuilderWithBuildThreads() {
+    }
+
+    public TestIndexSegmentBuilderWithBuildThreads(String name) {
+        super(name);
+    }
+
+    /**
+     * Return a {@link BTree} with <i>n</i> random keys formed from a single
+     * long and a random value for each key.
+     */
+    static BTree newSyntheticBTree(final int n, final long seed) {
+
+        final Random r = new Random(seed);
+
+        final BTree btree = BTree.createTransient(new IndexMetadata(UUID
+                .randomUUID()));
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        while (btree.getEntryCount() < n) {
+
+            final byte[] val = new byte[r.nextInt(20)];
+
+            r.nextBytes(val);
+
+            btree.insert(keyBuilder.reset().append(r.nextLong()).getKey(), val);
+
+        }
+
+        return btree;
+
+    }
+
+    /**
+     * Return a {@link BTree} with <i>n</i> keys shaped like those of a
+     * statement index. Each key has three components, each of which is a flags
+     * byte followed by a long term identifier. The subjects are clustered, a
+     * small number of predicates are used with a skewed distribution, and the
+     * objects are random. The value is a single byte.
+     */
+    static BTree newStatementBTree(final int n, final long seed) {
+
+        final Random r = new Random(seed);
+
+        final BTree btree = BTree.createTransient(new IndexMetadata(UUID
+                .randomUUID()));
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final byte[] val = new byte[] { 1 };
+
+        long s = 1000;
+
+        while (btree.getEntryCount() < n) {
+
+            if (r.nextInt(8) == 0) {
+
+                // next subject.
+                s += 1 + r.nextInt(100);
+
+            }
+
+            // skewed toward the first predicates.
+            final long p = Math.min(r.nextInt(50), r.nextInt(50));
+
+            final long o = r.nextInt(1000000);
+
+            keyBuilder.reset();
+
+            keyBuilder.append((byte) 1).append(s);
+            keyBuilder.append((byte) 1).append(p);
+            keyBuilder.append((byte) (o % 3 == 0 ? 5 : 1)).append(o);
+
+            btree.insert(keyBuilder.getKey(), val);
+
+        }
+
+        return btree;
+
+    }
+
+    /**
+     * Build an {@link IndexSegment} from the source.
+     * 
+     * @param src
+     *            The source.
+     * @param outFile
+     *            The output file.
+     * @param m
+     *            The output branching factor.
+     * @param buildEnum
+     *            The build algorithm.
+     * @param buildThreads
+     *            The #of threads used to code the leaves.
+     * 
+     * @return The builder.
+     */
+    static IndexSegmentBuilder doBuild(final BTree src, final File outFile,
+            final int m, final BuildEnum buildEnum, final int buildThreads)
+            throws Exception {
+
+        if (outFile.exists() && !outFile.delete())
+            fail("Could not delete old index segment: "
+                    + outFile.getAbsoluteFile());
+
+        final File tmpDir = outFile.getAbsoluteFile().getParentFile();
+
+        final long commitTime = System.currentTimeMillis();
+
+        final IndexSegmentBuilder builder;
+        switch (buildEnum) {
+        case TwoPass:
+            builder = IndexSegmentBuilder.newInstanceTwoPass(src, outFile,
+                    tmpDir, m, true/* compactingMerge */, commitTime,
+                    null/* fromKey */, null/* toKey */, true/* bufferNodes */);
+            break;
+        case FullyBuffered:
+            builder = IndexSegmentBuilder.newInstanceFullyBuffered(src,
+                    outFile, tmpDir, m, true/* compactingMerge */,
+                    commitTime, null/* fromKey */, null/* toKey */,
+                    false/* bufferNodes */);
+            break;
+        default:
+            throw new AssertionError(buildEnum.toString());
+        }
+
+        builder.setBuildThreads(buildThreads);
+
+        builder.call();
+
+        return builder;
+
+    }
+
+    /**
+     * Read a region of a file.
+     */
+    private static byte[] read(final File file, final long offset,
+            final long extent) throws IOException {
+
+        final byte[] a = new byte[(int) extent];
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+
+            raf.seek(offset);
+
+            raf.readFully(a);
+
+        } finally {
+
+            raf.close();
+
+        }
+
+        return a;
+
+    }
+
+    public void test_setBuildThreads() throws Exception {
+
+        final BTree btree = newSyntheticBTree(10, 1L);
+
+        final File outFile = new File(getName() + ".seg");
+
+        final IndexSegmentBuilder builder = IndexSegmentBuilder
+                .newInstanceTwoPass(btree, outFile, outFile.getAbsoluteFile()
+                        .getParentFile(), 3/* m */, true/* compactingMerge */,
+                        System.currentTimeMillis(), null/* fromKey */,
+                        null/* toKey */, true/* bufferNodes */);
+
+        try {
+
+            builder.setBuildThreads(-1);
+            fail("Expecting: " + IllegalArgumentException.class);
+
+        } catch (IllegalArgumentException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+        }
+
+        builder.setBuildThreads(2);
+
+        assertEquals(2, builder.getBuildThreads());
+
+        builder.call();
+
+        try {
+
+            builder.setBuildThreads(4);
+            fail("Expecting: " + IllegalStateException.class);
+
+        } catch (IllegalStateException ex) {
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+        } finally {
+
+            outFile.delete();
+
+        }
+
+    }
+
+    public void test_syntheticKeys() throws Exception {
+
+        doBuildAndCompare(newSyntheticBTree(20000, 7L));
+
+    }
+
+    public void test_statementKeys() throws Exception {
+
+        doBuildAndCompare(newStatementBTree(20000, 11L));
+
+    }
+
+    /**
+     * A source with fewer leaves than a single batch for the worker threads
+     * and a source with a single leaf (which is always coded by the caller's
+     * thread).
+     */
+    public void test_smallTrees() throws Exception {
+
+        doBuildAndCompare(newSyntheticBTree(100, 3L));
+
+        doBuildAndCompare(newSyntheticBTree(2, 5L));
+
+    }
+
+    /**
+     * Builds the source using a variety of output branching factors, both
+     * build algorithms, and with and without worker threads. The leaves of the
+     * generated {@link IndexSegment}s must be byte-for-byte the same and each
+     * generated {@link IndexSegment} must have the same data as the source.
+     */
+    private void doBuildAndCompare(final BTree btree) throws Exception {
+
+        final int[] branchingFactors = new int[] { 3, 32, 257 };
+
+        final int[] buildThreads = new int[] { 2, 3, 8 };
+
+        for (int m : branchingFactors) {
+
+            for (BuildEnum buildEnum : BuildEnum.values()) {
+
+                final File expectedFile = new File(getName() + "_m" + m + "_"
+                        + buildEnum + "_expected.seg");
+
+                final IndexSegmentBuilder expected = doBuild(btree,
+                        expectedFile, m, buildEnum, 0/* buildThreads */);
+
+                try {
+
+                    for (int nthreads : buildThreads) {
+
+                        final File actualFile = new File(getName() + "_m" + m
+                                + "_" + buildEnum + "_" + nthreads + ".seg");
+
+                        final IndexSegmentBuilder actual = doBuild(btree,
+                                actualFile, m, buildEnum, nthreads);
+
+                        final IndexSegment seg = new IndexSegmentStore(
+                                actualFile).loadIndexSegment();
+
+                        try {
+
+                            assertSameCheckpoint(expected, actual);
+
+                            testForwardScan(seg);
+
+                            testReverseScan(seg);
+
+                            assertSameBTree(btree, seg);
+
+                        } finally {
+
+                            seg.getStore().destroy();
+
+                        }
+
+                    }
+
+                } finally {
+
+                    expectedFile.delete();
+
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Verify that the same leaves and nodes were generated.
+     */
+    private static void assertSameCheckpoint(
+            final IndexSegmentBuilder expected,
+            final IndexSegmentBuilder actual) throws IOException {
+
+        final IndexSegmentCheckpoint e = expected.getCheckpoint();
+
+        final IndexSegmentCheckpoint a = actual.getCheckpoint();
+
+        assertEquals("height", e.height, a.height);
+        assertEquals("nleaves", e.nleaves, a.nleaves);
+        assertEquals("nnodes", e.nnodes, a.nnodes);
+        assertEquals("nentries", e.nentries, a.nentries);
+        assertEquals("maxNodeOrLeafLength", e.maxNodeOrLeafLength,
+                a.maxNodeOrLeafLength);
+        assertEquals("addrFirstLeaf", e.addrFirstLeaf, a.addrFirstLeaf);
+        assertEquals("addrLastLeaf", e.addrLastLeaf, a.addrLastLeaf);
+        assertEquals("addrRoot", e.addrRoot, a.addrRoot);
+        assertEquals("offsetLeaves", e.offsetLeaves, a.offsetLeaves);
+        assertEquals("extentLeaves", e.extentLeaves, a.extentLeaves);
+        assertEquals("extentNodes", e.extentNodes, a.extentNodes);
+
+        assertEquals("leaves", read(expected.outFile, e.offsetLeaves,
+                e.extentLeaves), read(actual.outFile, a.offsetLeaves,
+                a.extentLeaves));
+
+        assertEquals("nodes", read(expected.outFile, e.offsetNodes,
+                e.extentNodes), read(actual.outFile, a.offsetNodes,
+                a.extentNodes));
+
+    }
+
+}
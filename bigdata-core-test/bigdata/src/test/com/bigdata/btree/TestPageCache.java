@@ -0,0 +1,333 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.io.DirectBufferPool;
+
+/**
+ * Test suite for the {@link PageCache}.
+ */
+public class TestPageCache extends TestCase2 {
+
+    /**
+     *
+     */
+    public TestPageCache() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestPageCache(String name) {
+        super(name);
+    }
+
+    /**
+     * The size of the records used by the tests.
+     */
+    private static final int RECORD_SIZE = 1000;
+
+    /**
+     * A cache with a single segment which can hold ten records.
+     */
+    private PageCache newCache() {
+
+        return new PageCache(DirectBufferPool.INSTANCE,
+                10 * RECORD_SIZE/* maxBytes */, 2 * RECORD_SIZE/* maxRecordSize */,
+                1/* nsegments */);
+
+    }
+
+    /**
+     * Return a record whose bytes are derived from the seed.
+     */
+    private static byte[] record(final int seed, final int nbytes) {
+
+        final byte[] a = new byte[nbytes];
+
+        for (int i = 0; i < nbytes; i++) {
+
+            a[i] = (byte) (seed + i);
+
+        }
+
+        return a;
+
+    }
+
+    public void test_putGet() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            assertNull(cache.get(uuid, 1L));
+
+            final byte[] expected = record(1, RECORD_SIZE);
+
+            // Note: Only the bytes from the position to the limit are cached.
+            final ByteBuffer b = ByteBuffer.allocate(RECORD_SIZE + 10);
+            b.position(5);
+            b.put(expected);
+            b.flip();
+            b.position(5);
+
+            cache.put(uuid, 1L, b);
+
+            // The caller's buffer is not changed.
+            assertEquals(5, b.position());
+            assertEquals(RECORD_SIZE + 5, b.limit());
+
+            assertEquals(expected, cache.get(uuid, 1L));
+
+            // Another store does not see the record.
+            assertNull(cache.get(UUID.randomUUID(), 1L));
+
+            assertEquals(1L, cache.size());
+
+            assertEquals(RECORD_SIZE, cache.getBytes());
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    public void test_remove() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            cache.put(uuid, 1L, ByteBuffer.wrap(record(1, RECORD_SIZE)));
+
+            cache.put(uuid, 2L, ByteBuffer.wrap(record(2, RECORD_SIZE)));
+
+            cache.remove(uuid, 1L);
+
+            assertNull(cache.get(uuid, 1L));
+
+            assertEquals(record(2, RECORD_SIZE), cache.get(uuid, 2L));
+
+            assertEquals(1L, cache.size());
+
+            // Removing an address which is not cached is allowed.
+            cache.remove(uuid, 3L);
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    public void test_deleteCache() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid1 = UUID.randomUUID();
+
+            final UUID uuid2 = UUID.randomUUID();
+
+            cache.put(uuid1, 1L, ByteBuffer.wrap(record(1, RECORD_SIZE)));
+
+            cache.put(uuid2, 1L, ByteBuffer.wrap(record(2, RECORD_SIZE)));
+
+            cache.deleteCache(uuid1);
+
+            assertNull(cache.get(uuid1, 1L));
+
+            assertEquals(record(2, RECORD_SIZE), cache.get(uuid2, 1L));
+
+            cache.clear();
+
+            assertNull(cache.get(uuid2, 1L));
+
+            assertEquals(0L, cache.size());
+
+            assertEquals(0L, cache.getBytes());
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    /**
+     * Records larger than the maximum record size and empty records are not
+     * cached.
+     */
+    public void test_maxRecordSize() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            cache.put(uuid, 1L, ByteBuffer.wrap(record(1, 2 * RECORD_SIZE + 1)));
+
+            cache.put(uuid, 2L, ByteBuffer.allocate(0));
+
+            assertNull(cache.get(uuid, 1L));
+
+            assertNull(cache.get(uuid, 2L));
+
+            assertEquals(0L, cache.size());
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    /**
+     * The cache never retains more than its capacity.
+     */
+    public void test_capacity() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            for (int i = 0; i < 100; i++) {
+
+                cache.put(uuid, i, ByteBuffer.wrap(record(i, RECORD_SIZE)));
+
+                assertTrue(cache.getBytes() <= 10 * RECORD_SIZE);
+
+            }
+
+            // The most recent record is retained.
+            assertEquals(record(99, RECORD_SIZE), cache.get(uuid, 99L));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    /**
+     * A record which is read again shortly after it was evicted is promoted
+     * to the LRU queue and survives a scan over many records which are read
+     * only once.
+     */
+    public void test_scanResistance() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            final byte[] hot = record(0, RECORD_SIZE);
+
+            cache.put(uuid, 0L, ByteBuffer.wrap(hot));
+
+            // Push the record out of the FIFO queue.
+            for (int i = 1; i <= 10; i++) {
+
+                cache.put(uuid, i, ByteBuffer.wrap(record(i, RECORD_SIZE)));
+
+            }
+
+            assertNull(cache.get(uuid, 0L));
+
+            // Read it again : the key is remembered so it is promoted.
+            cache.put(uuid, 0L, ByteBuffer.wrap(hot));
+
+            // Scan over many records which are read only once.
+            for (int i = 100; i < 200; i++) {
+
+                cache.put(uuid, i, ByteBuffer.wrap(record(i, RECORD_SIZE)));
+
+            }
+
+            assertEquals(hot, cache.get(uuid, 0L));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+    public void test_counters() {
+
+        final PageCache cache = newCache();
+
+        try {
+
+            final UUID uuid = UUID.randomUUID();
+
+            cache.put(uuid, 1L, ByteBuffer.wrap(record(1, RECORD_SIZE)));
+
+            cache.get(uuid, 1L); // hit
+            cache.get(uuid, 2L); // miss
+
+            final String s = cache.getCounters().toString();
+
+            if (log.isInfoEnabled())
+                log.info(s);
+
+            assertNotNull(cache.getCounters().getChild("hits"));
+
+            assertNotNull(cache.getCounters().getChild("misses"));
+
+        } finally {
+
+            cache.close();
+
+        }
+
+    }
+
+}
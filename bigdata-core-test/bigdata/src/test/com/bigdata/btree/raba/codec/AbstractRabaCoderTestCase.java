@@ -34,8 +34,10 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.text.NumberFormat;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import junit.framework.AssertionFailedError;
@@ -45,6 +47,8 @@ import junit.framework.TestCase2;
 import com.bigdata.btree.AbstractBTreeTestCase;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.keys.TestKeyBuilder;
+import com.bigdata.btree.raba.AbstractRaba;
+import com.bigdata.btree.raba.IBatchSearch;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.btree.raba.ReadOnlyKeysRaba;
 import com.bigdata.btree.raba.ReadOnlyValuesRaba;
@@ -511,6 +515,127 @@ abstract public class AbstractRabaCoderTestCase extends TestCase2 {
         
     }
 
+    /**
+     * Verify that a batch of ordered probes reports the same insertion points
+     * as {@link IRaba#search(byte[])} for each probe (see {@link IBatchSearch}).
+     * The keys are drawn from a small alphabet so they share prefixes and the
+     * probes include keys which are present, absent, duplicated and prefixes
+     * of the keys.
+     */
+    public void test_batchSearch() {
+
+        if (!rabaCoder.isKeyCoder())
+            return;
+
+        final byte[] alphabet = new byte[] { 0, 1, 2, 127, -128, -1 };
+
+        final Comparator<byte[]> c = UnsignedByteArrayComparator.INSTANCE;
+
+        for (int trial = 0; trial < 200; trial++) {
+
+            // The minimum key length varies by trial.
+            final int minLen = r.nextInt(4) * 8;
+
+            final TreeSet<byte[]> set = new TreeSet<byte[]>(c);
+
+            final int n = r.nextInt(300);
+
+            for (int i = 0; i < n; i++) {
+
+                set.add(randomKey(alphabet, minLen + r.nextInt(12)));
+
+            }
+
+            final byte[][] keys = set.toArray(new byte[set.size()][]);
+
+            final IRaba expected = new ReadOnlyKeysRaba(keys);
+
+            final int nprobes = r.nextInt(400);
+
+            final byte[][] probes = new byte[nprobes][];
+
+            for (int i = 0; i < nprobes; i++) {
+
+                if (keys.length > 0 && r.nextBoolean()) {
+
+                    final byte[] key = keys[r.nextInt(keys.length)];
+
+                    // an existing key or one of its prefixes.
+                    probes[i] = r.nextInt(4) == 0 ? Arrays.copyOf(key, r
+                            .nextInt(key.length + 1)) : key;
+
+                } else {
+
+                    probes[i] = randomKey(alphabet,
+                            minLen + r.nextInt(12) - r.nextInt(4) + 2);
+
+                }
+
+            }
+
+            Arrays.sort(probes, c);
+
+            final ICodedRaba coded = rabaCoder.encodeLive(expected,
+                    new DataOutputBuffer());
+
+            final IRaba[] rabas = new IRaba[] { expected, coded,
+                    rabaCoder.decode(coded.data()) };
+
+            for (IRaba actual : rabas) {
+
+                final int fromIndex = nprobes == 0 ? 0 : r.nextInt(nprobes);
+
+                final int toIndex = fromIndex
+                        + r.nextInt(nprobes - fromIndex + 1);
+
+                final int[] ret = new int[nprobes];
+
+                Arrays.fill(ret, Integer.MIN_VALUE);
+
+                AbstractRaba.search(actual, probes, fromIndex, toIndex, ret);
+
+                for (int i = 0; i < nprobes; i++) {
+
+                    if (i < fromIndex || i >= toIndex) {
+
+                        // not modified.
+                        assertEquals(Integer.MIN_VALUE, ret[i]);
+
+                        continue;
+
+                    }
+
+                    if (ret[i] != expected.search(probes[i])) {
+
+                        fail("search(" + BytesUtil.toString(probes[i])
+                                + "): expected=" + expected.search(probes[i])
+                                + ", actual=" + ret[i] + ", index=" + i
+                                + ", raba=" + actual);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+    }
+
+    private byte[] randomKey(final byte[] alphabet, final int len) {
+
+        final byte[] a = new byte[Math.max(0, len)];
+
+        for (int i = 0; i < a.length; i++) {
+
+            a[i] = alphabet[r.nextInt(alphabet.length)];
+
+        }
+
+        return a;
+
+    }
+
     /**
      * Return a random byte array. The byte array will also have a random length
      * in [0:512] unless the {@link IRabaCoder} is a
@@ -0,0 +1,304 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.AbstractRaba;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.btree.raba.codec.FrontCodedRabaCoder.DefaultFrontCodedRabaCoder;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * A micro-benchmark comparing {@link IRaba#search(byte[])} for each probe with
+ * the batch search of ordered probes (see
+ * {@link AbstractRaba#search(IRaba, byte[][], int, int, int[])}) against coded
+ * leaves of keys shaped like those of a statement index. This is not part of
+ * the test suite. Run it from the command line. Each configuration is warmed
+ * up before it is measured, and the median of the measured trials is reported.
+ * <p>
+ * The following system properties may be specified:
+ * <dl>
+ * <dt>ntuples</dt>
+ * <dd>The #of statement keys (default 1,000,000).</dd>
+ * <dt>m</dt>
+ * <dd>The #of keys per leaf (default 512).</dd>
+ * <dt>nprobes</dt>
+ * <dd>The #of probes per leaf (default 64). Half of the probes are keys in the
+ * leaf and the others fall between the keys of the leaf.</dd>
+ * <dt>warmup</dt>
+ * <dd>The #of warmup trials (default 3).</dd>
+ * <dt>trials</dt>
+ * <dd>The #of measured trials (default 7).</dd>
+ * </dl>
+ */
+public class BenchmarkBatchSearch {
+
+    private static long median(final long[] a) {
+
+        final long[] t = a.clone();
+
+        Arrays.sort(t);
+
+        return t[t.length / 2];
+
+    }
+
+    /**
+     * Generate ordered distinct statement keys (three term identifiers, each a
+     * flags byte and a long) with runs of statements for the same subject.
+     */
+    private static byte[][] newStatementKeys(final int n, final long seed) {
+
+        final Random r = new Random(seed);
+
+        final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+
+        final byte[][] a = new byte[n][];
+
+        long s = 1000;
+
+        for (int i = 0; i < n; i++) {
+
+            if (r.nextInt(8) == 0) {
+
+                // next subject.
+                s += 1 + r.nextInt(100);
+
+            }
+
+            // skewed toward the first predicates.
+            final long p = Math.min(r.nextInt(50), r.nextInt(50));
+
+            final long o = r.nextInt(1000000);
+
+            keyBuilder.reset();
+
+            keyBuilder.append((byte) 1).append(s);
+            keyBuilder.append((byte) 1).append(p);
+            keyBuilder.append((byte) (o % 3 == 0 ? 5 : 1)).append(o);
+
+            a[i] = keyBuilder.getKey();
+
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        // drop duplicates.
+        int ndistinct = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            if (ndistinct == 0 || !Arrays.equals(a[ndistinct - 1], a[i])) {
+
+                a[ndistinct++] = a[i];
+
+            }
+
+        }
+
+        return Arrays.copyOf(a, ndistinct);
+
+    }
+
+    /**
+     * Return ordered probes for the keys in [fromIndex:toIndex).
+     */
+    private static byte[][] newProbes(final byte[][] keys,
+            final int fromIndex, final int toIndex, final int nprobes,
+            final Random r) {
+
+        final byte[][] a = new byte[nprobes][];
+
+        for (int i = 0; i < nprobes; i++) {
+
+            final byte[] key = keys[fromIndex + r.nextInt(toIndex - fromIndex)];
+
+            if (r.nextBoolean()) {
+
+                a[i] = key;
+
+            } else {
+
+                // the successor of the key, which is not in the leaf.
+                a[i] = Arrays.copyOf(key, key.length + 1);
+
+            }
+
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        return a;
+
+    }
+
+    /**
+     * Run one trial.
+     * 
+     * @return The elapsed nanoseconds to search all leaves.
+     */
+    private static long trial(final List<IRaba> leaves,
+            final List<byte[][]> probes, final boolean batch) {
+
+        long chksum = 0;
+
+        final long begin = System.nanoTime();
+
+        for (int i = 0; i < leaves.size(); i++) {
+
+            final IRaba leaf = leaves.get(i);
+
+            final byte[][] a = probes.get(i);
+
+            if (batch) {
+
+                final int[] ret = new int[a.length];
+
+                AbstractRaba.search(leaf, a, 0/* fromIndex */,
+                        a.length/* toIndex */, ret);
+
+                for (int j = 0; j < ret.length; j++) {
+
+                    chksum += ret[j];
+
+                }
+
+            } else {
+
+                for (int j = 0; j < a.length; j++) {
+
+                    chksum += leaf.search(a[j]);
+
+                }
+
+            }
+
+        }
+
+        final long elapsed = System.nanoTime() - begin;
+
+        if (chksum == 42)
+            System.err.print(""); // defeat dead code elimination.
+
+        return elapsed;
+
+    }
+
+    public static void main(final String[] args) {
+
+        final int ntuples = Integer.getInteger("ntuples", 1000000);
+        final int m = Integer.getInteger("m", 512);
+        final int nprobes = Integer.getInteger("nprobes", 64);
+        final int warmup = Integer.getInteger("warmup", 3);
+        final int trials = Integer.getInteger("trials", 7);
+
+        final IRabaCoder[] coders = new IRabaCoder[] {
+                DefaultFrontCodedRabaCoder.INSTANCE,
+                SimpleRabaCoder.INSTANCE,
+                new CanonicalHuffmanRabaCoder(),
+                FixedWidthPrefixRabaCoder.INSTANCE };
+
+        final byte[][] keys = newStatementKeys(ntuples, 17L);
+
+        final Random r = new Random(23L);
+
+        final List<byte[][]> probes = new ArrayList<byte[][]>();
+
+        for (int i = 0; i < keys.length; i += m) {
+
+            probes.add(newProbes(keys, i, Math.min(keys.length, i + m),
+                    nprobes, r));
+
+        }
+
+        System.out.println("ntuples=" + keys.length + ", m=" + m
+                + ", nprobes=" + nprobes);
+
+        for (IRabaCoder coder : coders) {
+
+            final List<IRaba> leaves = new ArrayList<IRaba>();
+
+            long nbytes = 0;
+
+            for (int i = 0; i < keys.length; i += m) {
+
+                final int toIndex = Math.min(keys.length, i + m);
+
+                final IRaba raba = new ReadOnlyKeysRaba(0/* fromIndex */,
+                        toIndex - i/* toIndex */, m/* capacity */, Arrays
+                                .copyOfRange(keys, i, i + m));
+
+                final ICodedRaba coded = coder.encodeLive(raba,
+                        new DataOutputBuffer());
+
+                nbytes += coded.data().len();
+
+                leaves.add(coded);
+
+            }
+
+            for (boolean batch : new boolean[] { false, true }) {
+
+                for (int j = 0; j < warmup; j++) {
+
+                    trial(leaves, probes, batch);
+
+                }
+
+                final long[] elapsed = new long[trials];
+
+                for (int j = 0; j < trials; j++) {
+
+                    elapsed[j] = trial(leaves, probes, batch);
+
+                }
+
+                final long nanos = median(elapsed);
+
+                final long nsearch = (long) leaves.size() * nprobes;
+
+                System.out.println(coder.getClass().getSimpleName()
+                        + ": batch=" + batch + ", bytes=" + nbytes
+                        + ", elapsed=" + nanos / 1000000 + "ms, ns/probe="
+                        + (nanos / nsearch));
+
+            }
+
+        }
+
+    }
+
+}
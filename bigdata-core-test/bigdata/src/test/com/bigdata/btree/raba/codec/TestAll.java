@@ -71,6 +71,9 @@ public class TestAll extends TestCase {
         // canonical huffman coding.
         suite.addTestSuite(TestCanonicalHuffmanRabaCoder.class);
 
+        // fixed width prefix words for ordered unsigned byte[]s.
+        suite.addTestSuite(TestFixedWidthPrefixRabaCoder.class);
+
         /*
          * Tests of conditional raba coders (one coder is used when there are LT
          * N entries, otherwise the other coder is used).
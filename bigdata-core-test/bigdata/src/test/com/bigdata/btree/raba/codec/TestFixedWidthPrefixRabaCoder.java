@@ -0,0 +1,141 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree.raba.codec;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.bigdata.btree.AbstractBTreeTestCase;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.btree.raba.ReadOnlyKeysRaba;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.BytesUtil.UnsignedByteArrayComparator;
+
+/**
+ * Test suite for the {@link FixedWidthPrefixRabaCoder}.
+ */
+public class TestFixedWidthPrefixRabaCoder extends AbstractRabaCoderTestCase {
+
+    /**
+     * 
+     */
+    public TestFixedWidthPrefixRabaCoder() {
+    }
+
+    /**
+     * @param name
+     */
+    public TestFixedWidthPrefixRabaCoder(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        rabaCoder = FixedWidthPrefixRabaCoder.INSTANCE;
+        
+    }
+
+    /**
+     * Generate ordered distinct keys shaped like those of a statement index
+     * (three term identifiers, each a flags byte and a long) for the given
+     * #of distinct subjects.
+     */
+    private byte[][] getStatementKeys(final int nsubjects) {
+
+        final Random r = new Random(17L);
+
+        final KeyBuilder keyBuilder = new KeyBuilder(27);
+
+        final byte[][] a = new byte[nsubjects * 10][];
+
+        for (int s = 0, i = 0; s < nsubjects; s++) {
+
+            for (int j = 0; j < 10; j++, i++) {
+
+                a[i] = keyBuilder.reset()//
+                        .append((byte) 0x41).append((long) s)//
+                        .append((byte) 0x41).append((long) r.nextInt(5))//
+                        .append((byte) 0x42).append(r.nextLong())//
+                        .getKey();
+
+            }
+
+        }
+
+        Arrays.sort(a, UnsignedByteArrayComparator.INSTANCE);
+
+        return a;
+
+    }
+
+    /**
+     * Round trip and search for statement keys with the prefix limited by the
+     * key length and by the maximum #of words.
+     */
+    public void test_statementKeys() {
+
+        final IRaba expected = new ReadOnlyKeysRaba(getStatementKeys(50));
+
+        final IRabaCoder[] coders = new IRabaCoder[] {
+                FixedWidthPrefixRabaCoder.INSTANCE,
+                new FixedWidthPrefixRabaCoder(1/* maxWords */),
+                new FixedWidthPrefixRabaCoder(0/* maxWords */) };
+
+        for (IRabaCoder coder : coders) {
+
+            doRoundTripTest(coder, expected);
+
+            final IRaba actual = coder.encodeLive(expected,
+                    new DataOutputBuffer());
+
+            AbstractBTreeTestCase.assertSameRaba(expected, actual);
+
+            for (int i = 0; i < expected.size(); i++) {
+
+                final byte[] key = expected.get(i);
+
+                assertEquals(i, actual.search(key));
+
+                // successor of the key.
+                final byte[] succ = Arrays.copyOf(key, key.length + 1);
+
+                assertEquals(-(i + 1) - 1, actual.search(succ));
+
+                // a proper prefix of the key.
+                final byte[] prefix = Arrays.copyOf(key, 20);
+
+                assertEquals(expected.search(prefix), actual.search(prefix));
+
+            }
+
+        }
+
+    }
+
+}
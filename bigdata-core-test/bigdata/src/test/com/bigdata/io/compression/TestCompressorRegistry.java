@@ -92,6 +92,21 @@ public class TestCompressorRegistry extends TestCase3 {
 			assertTrue(res.compareTo(src) == 0);
 		}
 
+		{
+            final IRecordCompressor compressor = CompressorRegistry
+                    .getInstance().get(
+                            CompressorRegistry.LZ4);
+			final ByteBuffer dst = compressor.compress(src.duplicate());
+			
+            if(log.isInfoEnabled())
+			log.info("LZ4 Compressed Dst: " + dst.limit() + ", Src:" + src.limit());
+	
+			final ByteBuffer res = compressor.decompress(dst.duplicate());
+			
+			assertTrue(dst.limit() < src.limit());
+			assertTrue(res.compareTo(src) == 0);
+		}
+
 		{
             final IRecordCompressor compressor = CompressorRegistry
                     .getInstance().get(
@@ -131,6 +146,7 @@ public class TestCompressorRegistry extends TestCase3 {
 		doPerformanceCompression(CompressorRegistry.DEFLATE_BEST_SPEED);
 		doPerformanceCompression(CompressorRegistry.DEFLATE_BEST_COMPRESSION);
 		doPerformanceCompression(CompressorRegistry.GZIP);
+		doPerformanceCompression(CompressorRegistry.LZ4);
 	}
 	
 	public void doPerformanceCompression(final String strategy) {
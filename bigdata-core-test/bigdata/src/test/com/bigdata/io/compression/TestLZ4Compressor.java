@@ -0,0 +1,187 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.io.compression;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Test suite for {@link LZ4Compressor}.
+ */
+public class TestLZ4Compressor extends AbstractRecordCompressorTestCase {
+
+    public TestLZ4Compressor() {
+    }
+
+    public TestLZ4Compressor(String name) {
+        super(name);
+    }
+
+    public IRecordCompressor getInstance() {
+
+        return new LZ4Compressor();
+
+    }
+
+    private void doRoundTrip(final byte[] expected) {
+
+        final IRecordCompressor c = getInstance();
+
+        final ByteBuffer compressed = c.compress(ByteBuffer.wrap(expected));
+
+        assertTrue(compressed.limit() <= LZ4Compressor
+                .maxCompressedLength(expected.length));
+
+        final ByteBuffer actual = c.decompress(compressed);
+
+        assertEquals(0, actual.position());
+
+        assertEquals(expected.length, actual.limit());
+
+        final byte[] a = new byte[actual.remaining()];
+
+        actual.get(a);
+
+        assertTrue(Arrays.equals(expected, a));
+
+    }
+
+    /**
+     * Records shorter than the minimum block for a match are stored as
+     * literals.
+     */
+    public void test_shortRecords() {
+
+        for (int n = 0; n < 20; n++) {
+
+            final byte[] a = new byte[n];
+
+            Arrays.fill(a, (byte) 7);
+
+            doRoundTrip(a);
+
+        }
+
+    }
+
+    /**
+     * A run of a single byte is encoded using overlapping matches and long
+     * match lengths.
+     */
+    public void test_run() {
+
+        final byte[] a = new byte[100000];
+
+        Arrays.fill(a, (byte) 'a');
+
+        doRoundTrip(a);
+
+        assertTrue(getInstance().compress(ByteBuffer.wrap(a)).limit() < 1000);
+
+    }
+
+    /**
+     * Random data does not compress but still round trips.
+     */
+    public void test_incompressible() {
+
+        final byte[] a = new byte[1 << 20];
+
+        r.nextBytes(a);
+
+        doRoundTrip(a);
+
+    }
+
+    /**
+     * Data with repeats further apart than the maximum match distance.
+     */
+    public void test_distantRepeats() {
+
+        final byte[] block = new byte[70000];
+
+        r.nextBytes(block);
+
+        final byte[] a = new byte[block.length * 3];
+
+        for (int i = 0; i < 3; i++)
+            System.arraycopy(block, 0, a, i * block.length, block.length);
+
+        doRoundTrip(a);
+
+    }
+
+    /**
+     * A mix of random text, runs and random bytes.
+     */
+    public void test_mixed() {
+
+        for (int trial = 0; trial < 50; trial++) {
+
+            final byte[] text = getRandomRecord(1 + r.nextInt(2000));
+
+            final byte[] a = new byte[text.length + r.nextInt(1000)];
+
+            System.arraycopy(text, 0, a, 0, text.length);
+
+            for (int i = text.length; i < a.length; i++)
+                a[i] = (byte) (r.nextBoolean() ? 0 : r.nextInt());
+
+            doRoundTrip(a);
+
+        }
+
+    }
+
+    /**
+     * A truncated record is rejected.
+     */
+    public void test_truncated() {
+
+        final byte[] a = getRandomRecord(1000);
+
+        final ByteBuffer compressed = getInstance().compress(
+                ByteBuffer.wrap(a));
+
+        final byte[] b = new byte[compressed.limit() - 10];
+
+        compressed.get(b);
+
+        try {
+            getInstance().decompress(b);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -30,7 +30,10 @@ package com.bigdata.journal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -38,6 +41,7 @@ import java.util.concurrent.Future;
 
 import com.bigdata.btree.AbstractBTreeTestCase;
 import com.bigdata.btree.BTree;
+import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.keys.KV;
 import com.bigdata.util.InnerCause;
@@ -788,4 +792,248 @@ public class TestSnapshotJournal extends ProxyTestCase<Journal> {
 
    }
 
+
+    /**
+     * Test of incremental snapshots. The first snapshot is always a full
+     * snapshot. The incremental snapshots taken after further writes (and
+     * deletes, so allocation slots are recycled) are applied to the full
+     * snapshot to restore the journal.
+     */
+    public void test_incrementalSnapshots() throws IOException,
+            InterruptedException, ExecutionException {
+
+      final Journal src = getStore(getProperties());
+
+      final List<File> files = new LinkedList<File>();
+
+      try {
+
+         if (!(src.getBufferStrategy() instanceof IHABufferStrategy)) {
+            // Feature is not supported.
+            return;
+         }
+
+         final String NAME = "testIndex";
+         src.registerIndex(new IndexMetadata(NAME, UUID.randomUUID()));
+         final BTree ndx = src.getIndex(NAME);
+         for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(5000)) {
+            ndx.insert(kv.key, kv.val);
+         }
+         src.commit();
+
+         // The first snapshot is a full snapshot.
+         final ISnapshotResult full = src.snapshot(
+               new MySnapshotFactory(getName(), true/* compressed */),
+               true/* incremental */).get();
+         files.add(full.getFile());
+         assertFalse(full.isIncremental());
+
+         final List<File> deltas = new LinkedList<File>();
+
+         for (int i = 0; i < 3; i++) {
+
+            // overwrite and remove some tuples, then add some new ones.
+            final Random r = new Random();
+            final List<byte[]> keys = new LinkedList<byte[]>();
+            final ITupleIterator<?> itr = ndx.rangeIterator();
+            while (itr.hasNext()) {
+               keys.add(itr.next().getKey());
+            }
+            int n = 0;
+            for (byte[] key : keys) {
+               if (n++ % 3 == 0) {
+                  final byte[] val = new byte[64];
+                  r.nextBytes(val);
+                  ndx.insert(key, val);
+               } else if (n % 7 == 0) {
+                  ndx.remove(key);
+               }
+            }
+            for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(1000)) {
+               ndx.insert(kv.key, kv.val);
+            }
+            src.commit();
+
+            final ISnapshotResult delta = src.snapshot(
+                  new MySnapshotFactory(getName(), i % 2 == 0/* compressed */),
+                  true/* incremental */).get();
+            files.add(delta.getFile());
+
+            if (!(src.getBufferStrategy() instanceof RWStrategy)) {
+               // Only supported for the RWStore.
+               assertFalse(delta.isIncremental());
+               return;
+            }
+
+            assertTrue(delta.isIncremental());
+            assertEquals(src.getRootBlockView().getCommitCounter(), delta
+                  .getRootBlock().getCommitCounter());
+
+            deltas.add(delta.getFile());
+
+         }
+
+         // Restore from the full snapshot and the incremental snapshots.
+         final File restored = File.createTempFile(getName(), Options.JNL);
+         files.add(restored);
+         restored.delete();
+
+         final IRootBlockView rbv = IncrementalSnapshot.restore(
+               full.getFile(), deltas, restored);
+
+         assertEquals(src.getRootBlockView(), rbv);
+
+         final Journal newJournal = openJournal(restored);
+
+         try {
+
+            AbstractBTreeTestCase.assertSameBTree(src.getIndex(NAME),
+                  newJournal.getIndex(NAME));
+
+         } finally {
+
+            newJournal.close();
+
+         }
+
+         // The incremental snapshots must be applied in order.
+         final File bad = File.createTempFile(getName(), Options.JNL);
+         files.add(bad);
+         bad.delete();
+
+         try {
+            IncrementalSnapshot.restore(full.getFile(),
+                  deltas.subList(1, deltas.size()), bad);
+            fail("Expecting: " + IOException.class);
+         } catch (IOException ex) {
+            if (log.isInfoEnabled())
+               log.info("Ignoring expected exception: " + ex);
+         }
+
+      } finally {
+
+         src.destroy();
+
+         for (File f : files)
+            f.delete();
+
+      }
+
+   }
+
+   /**
+    * A snapshot which fails before it is written (here because the snapshot
+    * file already exists) must not advance the parent of the next incremental
+    * snapshot. The next snapshot is a full snapshot instead.
+    */
+   public void test_incrementalSnapshotAfterFailedSnapshot()
+         throws IOException, InterruptedException, ExecutionException {
+
+      final Journal src = getStore(getProperties());
+
+      final List<File> files = new LinkedList<File>();
+
+      try {
+
+         if (!(src.getBufferStrategy() instanceof RWStrategy)) {
+            // Only supported for the RWStore.
+            return;
+         }
+
+         final String NAME = "testIndex";
+         src.registerIndex(new IndexMetadata(NAME, UUID.randomUUID()));
+         final BTree ndx = src.getIndex(NAME);
+         for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(1000)) {
+            ndx.insert(kv.key, kv.val);
+         }
+         src.commit();
+
+         final ISnapshotResult full = src.snapshot(
+               new MySnapshotFactory(getName(), false/* compressed */),
+               true/* incremental */).get();
+         files.add(full.getFile());
+         assertFalse(full.isIncremental());
+
+         for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(1000)) {
+            ndx.insert(kv.key, kv.val);
+         }
+         src.commit();
+
+         // Fails since the snapshot file exists and is not empty.
+         try {
+            src.snapshot(new ISnapshotFactory() {
+               @Override
+               public File getSnapshotFile(final IRootBlockView rbv) {
+                  return full.getFile();
+               }
+               @Override
+               public boolean getCompress() {
+                  return false;
+               }
+            }, true/* incremental */).get();
+            fail("Expecting: " + IOException.class);
+         } catch (ExecutionException ex) {
+            if (!InnerCause.isInnerCause(ex, IOException.class))
+               throw ex;
+            if (log.isInfoEnabled())
+               log.info("Ignoring expected exception: " + ex);
+         }
+
+         for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(1000)) {
+            ndx.insert(kv.key, kv.val);
+         }
+         src.commit();
+
+         // The next snapshot is a full snapshot.
+         final ISnapshotResult next = src.snapshot(
+               new MySnapshotFactory(getName(), false/* compressed */),
+               true/* incremental */).get();
+         files.add(next.getFile());
+         assertFalse(next.isIncremental());
+
+         // And the one after that is an incremental snapshot on it.
+         for (KV kv : AbstractBTreeTestCase.getRandomKeyValues(1000)) {
+            ndx.insert(kv.key, kv.val);
+         }
+         src.commit();
+
+         final ISnapshotResult delta = src.snapshot(
+               new MySnapshotFactory(getName(), false/* compressed */),
+               true/* incremental */).get();
+         files.add(delta.getFile());
+         assertTrue(delta.isIncremental());
+
+         final File restored = File.createTempFile(getName(), Options.JNL);
+         files.add(restored);
+         restored.delete();
+
+         final List<File> deltas = new LinkedList<File>();
+         deltas.add(delta.getFile());
+
+         assertEquals(src.getRootBlockView(), IncrementalSnapshot.restore(
+               next.getFile(), deltas, restored));
+
+      } finally {
+
+         src.destroy();
+
+         for (File f : files)
+            f.delete();
+
+      }
+
+   }
+
+   private Journal openJournal(final File file) {
+
+      final Properties properties = getProperties();
+
+      properties.setProperty(Journal.Options.FILE, file.toString());
+
+      properties.setProperty(Journal.Options.CREATE_TEMP_FILE, "false");
+
+      return new Journal(properties);
+
+   }
+
 }
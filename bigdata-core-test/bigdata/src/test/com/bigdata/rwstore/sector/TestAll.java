@@ -68,6 +68,8 @@ public class TestAll extends TestCase {
 
         suite.addTest(TestMemStore.suite());
 
+        suite.addTestSuite(TestSpillableMemStore.class);
+
         return suite;
 
     }
@@ -0,0 +1,289 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rwstore.sector;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import com.bigdata.btree.HTreeIndexMetadata;
+import com.bigdata.htree.HTree;
+import com.bigdata.io.DirectBufferPool;
+
+/**
+ * Test suite for {@link SpillableMemStore}.
+ */
+public class TestSpillableMemStore extends TestCase {
+
+    public TestSpillableMemStore() {
+    }
+
+    public TestSpillableMemStore(final String name) {
+        super(name);
+    }
+
+    private MemoryManager manager;
+
+    @Override
+    protected void setUp() throws Exception {
+        manager = new MemoryManager(DirectBufferPool.INSTANCE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (manager != null)
+            manager.close();
+        manager = null;
+        super.tearDown();
+    }
+
+    private static byte[] randomRecord(final Random r) {
+
+        final byte[] a = new byte[1 + r.nextInt(500)];
+
+        r.nextBytes(a);
+
+        return a;
+
+    }
+
+    private static void assertRecord(final byte[] expected, final ByteBuffer b) {
+
+        final byte[] actual = new byte[b.remaining()];
+
+        b.get(actual);
+
+        assertEquals(expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], actual[i]);
+
+    }
+
+    /**
+     * The store writes onto native memory until its budget is reached and
+     * thereafter onto the temporary file. All records remain readable and the
+     * temporary file is deleted when the store is closed.
+     */
+    public void test_spillOnBudget() {
+
+        final Random r = new Random(13L);
+
+        final SpillableMemStore store = new SpillableMemStore(
+                manager.createAllocationContext(), 16 * 1024/* maxBytes */,
+                null/* tmpDir */);
+
+        final byte[][] recs = new byte[1000][];
+
+        final long[] addrs = new long[recs.length];
+
+        for (int i = 0; i < recs.length; i++) {
+
+            recs[i] = randomRecord(r);
+
+            addrs[i] = store.write(ByteBuffer.wrap(recs[i]));
+
+            assertEquals(recs[i].length, store.getByteCount(addrs[i]));
+
+        }
+
+        assertTrue(store.isSpilled());
+
+        assertFalse(SpillableMemStore.isSpilled(addrs[0]));
+
+        assertTrue(SpillableMemStore.isSpilled(addrs[recs.length - 1]));
+
+        assertTrue(store.getSpilledBytes() > 0L);
+
+        for (int i = 0; i < recs.length; i++) {
+
+            assertRecord(recs[i], store.read(addrs[i]));
+
+        }
+
+        // Records may be deleted from either region.
+        store.delete(addrs[0]);
+
+        store.delete(addrs[recs.length - 1]);
+
+        assertRecord(recs[1], store.read(addrs[1]));
+
+        final File file = store.getSpillFile();
+
+        assertTrue(file.exists());
+
+        store.close();
+
+        assertFalse(file.exists());
+
+    }
+
+    /**
+     * The store does not spill while it is within its budget.
+     */
+    public void test_noSpillWithinBudget() {
+
+        final Random r = new Random(17L);
+
+        final SpillableMemStore store = new SpillableMemStore(
+                manager.createAllocationContext(), 0L/* maxBytes */,
+                null/* tmpDir */);
+
+        try {
+
+            for (int i = 0; i < 1000; i++) {
+
+                final byte[] rec = randomRecord(r);
+
+                assertRecord(rec, store.read(store.write(ByteBuffer.wrap(rec))));
+
+            }
+
+            assertFalse(store.isSpilled());
+
+            assertNull(store.getSpillFile());
+
+            assertTrue(store.isFullyBuffered());
+
+        } finally {
+
+            store.close();
+
+        }
+
+    }
+
+    /**
+     * The store spills rather than failing when the per-query memory manager
+     * reports that it is out of memory.
+     */
+    public void test_spillOnMemoryManagerOutOfMemory() {
+
+        // A single sector which does not block.
+        final MemoryManager mmgr = new MemoryManager(DirectBufferPool.INSTANCE,
+                1/* sectors */, false/* blocks */, null/* properties */);
+
+        try {
+
+            final SpillableMemStore store = new SpillableMemStore(
+                    mmgr.createAllocationContext(), 0L/* maxBytes */,
+                    null/* tmpDir */);
+
+            final Random r = new Random(19L);
+
+            final int capacity = DirectBufferPool.INSTANCE.getBufferCapacity();
+
+            final byte[] rec = new byte[4096];
+
+            r.nextBytes(rec);
+
+            final int n = 2 * capacity / rec.length;
+
+            final long[] addrs = new long[n];
+
+            for (int i = 0; i < n; i++) {
+
+                addrs[i] = store.write(ByteBuffer.wrap(rec));
+
+            }
+
+            assertTrue(store.isSpilled());
+
+            for (int i = 0; i < n; i++) {
+
+                assertRecord(rec, store.read(addrs[i]));
+
+            }
+
+            store.close();
+
+        } finally {
+
+            mmgr.close();
+
+        }
+
+    }
+
+    /**
+     * An {@link HTree} which is larger than the native memory budget of its
+     * store remains fully readable.
+     */
+    public void test_htreeSpill() {
+
+        final SpillableMemStore store = new SpillableMemStore(
+                manager.createAllocationContext(), 64 * 1024/* maxBytes */,
+                null/* tmpDir */);
+
+        try {
+
+            final HTreeIndexMetadata md = new HTreeIndexMetadata(
+                    UUID.randomUUID());
+
+            md.setAddressBits(6);
+
+            md.setWriteRetentionQueueCapacity(20);
+
+            md.setWriteRetentionQueueScan(10);
+
+            final HTree htree = HTree.create(store, md);
+
+            final int n = 20000;
+
+            for (int i = 0; i < n; i++) {
+
+                htree.insert(i, Integer.toString(i).getBytes());
+
+            }
+
+            htree.writeCheckpoint();
+
+            assertTrue(store.isSpilled());
+
+            assertEquals(n, htree.getEntryCount());
+
+            for (int i = 0; i < n; i++) {
+
+                assertEquals(Integer.toString(i),
+                        new String(htree.lookupFirst(i)));
+
+            }
+
+        } finally {
+
+            store.close();
+
+        }
+
+    }
+
+}
@@ -103,6 +103,12 @@ public class TestAll extends TestCase {
         
         // test of prefix search
         suite.addTestSuite(TestPrefixSearch.class);
+
+        // test of top-K search.
+        suite.addTestSuite(TestTopKSearch.class);
+
+        // test of the term statistics and BM25 scoring.
+        suite.addTestSuite(TestBM25Search.class);
         
         // test verifies search index is restart safe.
         suite.addTestSuite(TestSearchRestartSafe.class);
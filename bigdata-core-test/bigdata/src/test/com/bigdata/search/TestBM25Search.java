@@ -0,0 +1,329 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
+import com.bigdata.service.IBigdataFederation;
+
+/**
+ * Test suite for the term statistics and the {@link BM25Scorer}.
+ *
+ * @see FullTextIndex.Options#STATISTICS_ENABLED
+ * @see FullTextIndex.Options#SCORER
+ */
+public class TestBM25Search extends AbstractSearchTest {
+
+    public TestBM25Search() {
+        super();
+    }
+
+    public TestBM25Search(String name) {
+        super(name);
+    }
+
+    /** All documents are in English. */
+    private static final String languageCode = "EN";
+
+    /**
+     * Create the index with the term statistics enabled and the given
+     * properties.
+     *
+     * @return <code>false</code> iff the test should be skipped since the
+     *         term statistics are not supported for scale-out.
+     */
+    private boolean initWithStatistics(final String... propertyValuePairs) {
+
+        final String[] a = new String[propertyValuePairs.length + 2];
+
+        a[0] = FullTextIndex.Options.STATISTICS_ENABLED;
+        a[1] = "true";
+
+        System.arraycopy(propertyValuePairs, 0, a, 2, propertyValuePairs.length);
+
+        try {
+
+            init(a);
+
+        } catch (UnsupportedOperationException ex) {
+
+            assertTrue(getIndexManager() instanceof IBigdataFederation);
+
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+
+            return false;
+
+        }
+
+        assertFalse(getIndexManager() instanceof IBigdataFederation);
+
+        return true;
+
+    }
+
+    private void index(final String[] docs) {
+
+        final TokenBuffer<Long> buffer = new TokenBuffer<Long>(docs.length,
+                getNdx());
+
+        for (int i = 0; i < docs.length; i++) {
+
+            getNdx().index(buffer, Long.valueOf(i + 1), 0/* fieldId */,
+                    languageCode, new StringReader(docs[i]));
+
+        }
+
+        buffer.flush();
+
+    }
+
+    private FullTextQuery newQuery(final String query, final String scorer) {
+
+        return new FullTextQuery(query, languageCode, false/* prefixMatch */,
+                null/* regex */, false/* matchAllTerms */,
+                false/* matchExact */, 0d/* minCosine */, 1d/* maxCosine */,
+                1/* minRank */, Integer.MAX_VALUE/* maxRank */,
+                Long.MAX_VALUE/* timeout */, TimeUnit.MILLISECONDS, scorer);
+
+    }
+
+    private static final String[] docs = new String[] {//
+            "apple apple apple banana",// 1
+            "apple banana cherry grape lemon mango melon olive",// 2
+            "banana cherry",// 3
+            "apple",// 4
+            "cherry grape",// 5
+    };
+
+    /**
+     * The collection statistics count each document once, even when it is
+     * indexed again.
+     */
+    public void test_collectionStatistics() {
+
+        if (!initWithStatistics())
+            return;
+
+        assertEquals(0L, TextIndexStatistics.read(getNdx().getIndex())
+                .getDocCount());
+
+        index(docs);
+
+        {
+
+            final TextIndexStatistics stats = TextIndexStatistics
+                    .read(getNdx().getIndex());
+
+            assertEquals(5L, stats.getDocCount());
+
+            assertEquals(4L + 8L + 2L + 1L + 2L, stats.getTotalLength());
+
+            assertEquals(17d / 5d, stats.getAverageDocLength(), 1e-9);
+
+        }
+
+        // index the same documents again.
+        index(docs);
+
+        {
+
+            final TextIndexStatistics stats = TextIndexStatistics
+                    .read(getNdx().getIndex());
+
+            assertEquals(5L, stats.getDocCount());
+
+            assertEquals(17L, stats.getTotalLength());
+
+        }
+
+    }
+
+    /**
+     * The term frequency and the document length are stored with each
+     * posting.
+     */
+    public void test_termStatistics() {
+
+        if (!initWithStatistics())
+            return;
+
+        index(docs);
+
+        final TermFrequencyData<Long> qdata = getNdx().tokenize(
+                newQuery("apple", null/* scorer */));
+
+        final CountIndexTask<Long> task = new CountIndexTask<Long>("apple", 0,
+                1, false/* prefixMatch */, qdata.getSingletonEntry().getValue()
+                        .getLocalTermWeight(), getNdx());
+
+        assertEquals(3L, task.getRangeCount());
+
+        final ITupleIterator<?> itr = getNdx().getIndex().rangeIterator(
+                task.fromKey, task.toKey, 0/* capacity */,
+                IRangeQuery.DEFAULT, null/* filter */);
+
+        int n = 0;
+
+        while (itr.hasNext()) {
+
+            final ITermDocRecord<?> rec = (ITermDocRecord<?>) itr.next()
+                    .getObject();
+
+            final long docId = (Long) rec.getDocId();
+
+            if (docId == 1L) {
+                assertEquals(3, rec.termFreq());
+                assertEquals(4, rec.docLength());
+            } else if (docId == 2L) {
+                assertEquals(1, rec.termFreq());
+                assertEquals(8, rec.docLength());
+            } else if (docId == 4L) {
+                assertEquals(1, rec.termFreq());
+                assertEquals(1, rec.docLength());
+            } else {
+                fail("Unexpected docId=" + docId);
+            }
+
+            n++;
+
+        }
+
+        assertEquals(3, n);
+
+    }
+
+    /**
+     * BM25 ranks a short document above a long one for the same term frequency
+     * and the relevance is in [0:1).
+     */
+    public void test_bm25Ranking() {
+
+        if (!initWithStatistics())
+            return;
+
+        index(docs);
+
+        final Hit<Long>[] a = getNdx()._search(newQuery("apple", BM25Scorer.NAME));
+
+        assertEquals(3, a.length);
+
+        // The highest term frequency, then the shortest document.
+        assertEquals(Long.valueOf(1L), a[0].getDocId());
+        assertEquals(Long.valueOf(4L), a[1].getDocId());
+        assertEquals(Long.valueOf(2L), a[2].getDocId());
+
+        for (Hit<Long> hit : a) {
+
+            assertTrue(hit.getCosine() > 0d);
+
+            assertTrue(hit.getCosine() < 1d);
+
+        }
+
+        /*
+         * A rare term (grape is in 2 documents) contributes more than a
+         * common term (apple is in 3 documents).
+         */
+        final Hit<Long>[] b = getNdx()._search(
+                newQuery("apple grape", BM25Scorer.NAME));
+
+        assertEquals(4, b.length);
+        assertEquals(Long.valueOf(5L), b[0].getDocId());
+        assertEquals(Long.valueOf(4L), b[3].getDocId());
+
+    }
+
+    /**
+     * The scorer may be chosen for the namespace and overridden by a query.
+     */
+    public void test_scorerSelection() {
+
+        if (!initWithStatistics(FullTextIndex.Options.SCORER, BM25Scorer.NAME))
+            return;
+
+        index(docs);
+
+        final FullTextQuery bm25 = newQuery("apple", null/* scorer */);
+
+        final FullTextQuery cosine = newQuery("apple", CosineScorer.NAME);
+
+        // Not the same cached hits.
+        assertFalse(bm25.equals(cosine));
+
+        assertTrue(getNdx().getScorer(bm25) instanceof BM25Scorer);
+
+        assertTrue(getNdx().getScorer(cosine) instanceof CosineScorer);
+
+        // Not eligible for top-K evaluation.
+        assertFalse(getNdx().isTopKQuery(bm25, getNdx().tokenize(bm25)));
+
+        final Hit<Long>[] a = getNdx()._search(bm25);
+
+        final Hit<Long>[] b = getNdx()._search(cosine);
+
+        assertEquals(a.length, b.length);
+
+        // The single term document has the largest cosine.
+        assertEquals(Long.valueOf(4L), b[0].getDocId());
+
+        assertEquals(Long.valueOf(1L), a[0].getDocId());
+
+    }
+
+    /**
+     * BM25 may not be used unless the term statistics are stored.
+     */
+    public void test_bm25RequiresStatistics() {
+
+        init();
+
+        try {
+            getNdx()._search(newQuery("apple", BM25Scorer.NAME));
+            fail("Expecting: " + UnsupportedOperationException.class);
+        } catch (UnsupportedOperationException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            getNdx()._search(newQuery("apple", "no.such.Scorer"));
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
+import com.bigdata.service.IBigdataFederation;
+
+/**
+ * Test suite for the top-K evaluation of full text queries.
+ *
+ * @see TopKSearchTask
+ */
+public class TestTopKSearch extends AbstractSearchTest {
+
+    public TestTopKSearch() {
+        super();
+    }
+
+    public TestTopKSearch(String name) {
+        super(name);
+    }
+
+    /** All documents are in English. */
+    private static final String languageCode = "EN";
+
+    private static final String[] vocab = new String[] { "apple", "banana",
+            "cherry", "grape", "lemon", "mango", "melon", "olive", "peach",
+            "pear", "plum", "quince", "raisin", "walnut" };
+
+    /**
+     * Index random documents drawn from a small vocabulary with a skewed
+     * distribution, so some words appear in most documents, with varying term
+     * frequencies and document lengths.
+     */
+    private void indexRandomDocuments(final int ndocs) {
+
+        final Random r = new Random(71L);
+
+        final TokenBuffer<Long> buffer = new TokenBuffer<Long>(ndocs, getNdx());
+
+        for (long docId = 1; docId <= ndocs; docId++) {
+
+            final StringBuilder sb = new StringBuilder();
+
+            final int len = 1 + r.nextInt(12);
+
+            for (int i = 0; i < len; i++) {
+
+                // skewed toward the start of the vocabulary.
+                final int j = Math.min(r.nextInt(vocab.length),
+                        r.nextInt(vocab.length));
+
+                sb.append(vocab[j]).append(' ');
+
+            }
+
+            getNdx().index(buffer, Long.valueOf(docId), 0/* fieldId */,
+                    languageCode, new StringReader(sb.toString()));
+
+        }
+
+        buffer.flush();
+
+    }
+
+    /**
+     * The top-K evaluation is not used against a federation.
+     */
+    private boolean isFederation() {
+
+        return getIndexManager() instanceof IBigdataFederation;
+
+    }
+
+    private FullTextQuery newQuery(final String query, final int maxRank) {
+
+        return new FullTextQuery(query, languageCode, false/* prefixMatch */,
+                null/* regex */, false/* matchAllTerms */,
+                false/* matchExact */, 0d/* minCosine */, 1d/* maxCosine */,
+                1/* minRank */, maxRank, Long.MAX_VALUE/* timeout */,
+                TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * The top-K hits must have the same cosines as the first K hits when all
+     * hits are rank ordered.
+     */
+    public void test_topKSameAsFullSearch() {
+
+        init();
+
+        indexRandomDocuments(2000);
+
+        final String[] queries = new String[] { "apple", "banana",
+                "apple banana", "cherry walnut", "apple grape quince",
+                "banana cherry grape lemon mango" };
+
+        final int[] ks = new int[] { 1, 7, 50 };
+
+        for (String query : queries) {
+
+            for (int k : ks) {
+
+                // Note: The top-K query is run first (not cached).
+                final Hit<Long>[] topK = getNdx()._search(newQuery(query, k));
+
+                final Hit<Long>[] all = getNdx()._search(
+                        newQuery(query, Integer.MAX_VALUE));
+
+                assertSameTopK(query, k, all, topK);
+
+            }
+
+        }
+
+    }
+
+    private void assertSameTopK(final String query, final int k,
+            final Hit<Long>[] all, final Hit<Long>[] topK) {
+
+        final String msg = "query=" + query + ", k=" + k;
+
+        assertEquals(msg, Math.min(k, all.length), topK.length);
+
+        final Map<Long, Double> cosines = new HashMap<Long, Double>();
+
+        for (Hit<Long> hit : all) {
+
+            cosines.put(hit.getDocId(), hit.getCosine());
+
+        }
+
+        for (int i = 0; i < topK.length; i++) {
+
+            // Same cosine at each rank.
+            assertEquals(msg + ", rank=" + (i + 1), all[i].getCosine(),
+                    topK[i].getCosine(), 1e-9);
+
+            // The reported cosine is exact.
+            assertEquals(msg + ", docId=" + topK[i].getDocId(),
+                    cosines.get(topK[i].getDocId()), topK[i].getCosine(),
+                    1e-9);
+
+            assertEquals(i + 1, topK[i].getRank());
+
+        }
+
+    }
+
+    /**
+     * The top-K evaluation stops reading the index once no other document can
+     * rank high enough.
+     */
+    public void test_topKEarlyTermination() {
+
+        init();
+
+        if (isFederation())
+            return;
+
+        final int ndocs = 5000;
+
+        {
+
+            final TokenBuffer<Long> buffer = new TokenBuffer<Long>(ndocs,
+                    getNdx());
+
+            for (long docId = 1; docId <= ndocs; docId++) {
+
+                final StringBuilder sb = new StringBuilder("apple");
+
+                /*
+                 * The first five documents contain only the search term, so
+                 * they have the largest weight for that term. The others are
+                 * padded with a varying #of other words.
+                 */
+                if (docId > 5) {
+
+                    for (int i = 0; i <= docId % 10; i++) {
+
+                        sb.append(' ').append(vocab[1 + i]);
+
+                    }
+
+                }
+
+                getNdx().index(buffer, Long.valueOf(docId), 0/* fieldId */,
+                        languageCode, new StringReader(sb.toString()));
+
+            }
+
+            buffer.flush();
+
+        }
+
+        final FullTextQuery query = newQuery("apple", 5);
+
+        final TopKSearchTask<Long> task = new TopKSearchTask<Long>(getNdx()
+                .tokenize(query), 5/* k */, getNdx(), Long.MAX_VALUE,
+                TimeUnit.MILLISECONDS);
+
+        final Hit<Long>[] a = task.call();
+
+        assertEquals(5, a.length);
+
+        for (int i = 0; i < a.length; i++) {
+
+            assertEquals(Long.valueOf(i + 1), a[i].getDocId());
+
+        }
+
+        assertTrue("ntuples=" + task.getTupleCount(),
+                task.getTupleCount() < ndocs);
+
+    }
+
+    /**
+     * The top-K evaluation is not used when it is disabled or when the query
+     * is not eligible for it.
+     */
+    public void test_isTopKQuery() {
+
+        init(FullTextIndex.Options.TOP_K_MAX_RANK, "100");
+
+        if (isFederation()) {
+            // Not used for scale-out.
+            assertFalse(getNdx().isTopKQuery(newQuery("apple banana", 10),
+                    getNdx().tokenize(newQuery("apple banana", 10))));
+            return;
+        }
+
+        final TermFrequencyData<Long> qdata = getNdx().tokenize(
+                newQuery("apple banana", 10));
+
+        assertTrue(getNdx().isTopKQuery(newQuery("apple banana", 10), qdata));
+
+        assertTrue(getNdx().isTopKQuery(newQuery("apple banana", 100), qdata));
+
+        assertFalse(getNdx().isTopKQuery(newQuery("apple banana", 101), qdata));
+
+        assertFalse(getNdx().isTopKQuery(
+                new FullTextQuery("apple banana", languageCode,
+                        true/* prefixMatch */, null/* regex */,
+                        false/* matchAllTerms */, false/* matchExact */,
+                        0d/* minCosine */, 1d/* maxCosine */, 1/* minRank */,
+                        10/* maxRank */), qdata));
+
+        assertFalse(getNdx().isTopKQuery(
+                new FullTextQuery("apple banana", languageCode,
+                        false/* prefixMatch */, null/* regex */,
+                        true/* matchAllTerms */, false/* matchExact */,
+                        0d/* minCosine */, 1d/* maxCosine */, 1/* minRank */,
+                        10/* maxRank */), qdata));
+
+        assertFalse(getNdx().isTopKQuery(
+                new FullTextQuery("apple banana", languageCode,
+                        false/* prefixMatch */, null/* regex */,
+                        false/* matchAllTerms */, false/* matchExact */,
+                        0d/* minCosine */, .5d/* maxCosine */, 1/* minRank */,
+                        10/* maxRank */), qdata));
+
+    }
+
+}
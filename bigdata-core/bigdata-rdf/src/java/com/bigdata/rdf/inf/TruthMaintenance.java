@@ -92,6 +92,15 @@ import com.bigdata.striterator.IChunkedOrderedIterator;
  * that the database and tempStore are unchanging outside of the actions taken
  * by the algorithm itself. Concurrent writers would violate this assumption and
  * lead to incorrect truth maintenance at the best.
+ * <p>
+ * When the database does not store {@link Justification}s (see
+ * {@link AbstractTripleStore.Options#JUSTIFY}), statements are retracted using
+ * delete and rederive (DRed): everything which can be derived from the
+ * retracted statements is removed from the database and those removed
+ * statements which still have a derivation in one step from what remains are
+ * then asserted again, together with their closure. This avoids writing
+ * justifications when statements are asserted at the cost of overdeleting
+ * when statements are retracted.
  * 
  * @todo make sure that we always closeAndDelete the tempStore, even on error?
  * 
@@ -608,10 +617,19 @@ public class TruthMaintenance {
             
         }
 
-        // do truth maintenance.
-        retractAll(stats, tempStore, 0, changeLog);
-        
-        MDC.remove("depth");
+        if (database.isJustify()) {
+
+            // do truth maintenance.
+            retractAll(stats, tempStore, 0, changeLog);
+
+            MDC.remove("depth");
+
+        } else {
+
+            // there are no justifications, so delete and rederive.
+            deleteAndRederive(stats, tempStore, changeLog);
+
+        }
         
         assert ! tempStore.isOpen();
        
@@ -625,6 +643,252 @@ public class TruthMaintenance {
         
     }
     
+    /**
+     * Truth maintenance for statement retraction without {@link Justification}s
+     * using delete and rederive.
+     * <ol>
+     * 
+     * <li>The given statements and their closure against the database are
+     * collected in a focusStore. These are all of the statements which might
+     * depend on the given statements.</li>
+     * 
+     * <li>The given statements and the inferences in the focusStore are removed
+     * from the database (explicit statements which were not given and axioms
+     * remain in the database).</li>
+     * 
+     * <li>The removed statements which still have a derivation in one step
+     * from the database are rederived (see
+     * {@link InferenceEngine#rederive(TempTripleStore, TempTripleStore)}).</li>
+     * 
+     * <li>The rederived statements are asserted on the database using
+     * {@link #assertAll(TempTripleStore, IChangeLog)}, which restores their
+     * closure.</li>
+     * 
+     * </ol>
+     * 
+     * @param stats
+     * @param tempStore
+     *            The explicit statements to be retracted. The tempStore will be
+     *            closed as a post-condition.
+     * @param changeLog
+     *            optional change log for change notification
+     */
+    private void deleteAndRederive(final ClosureStats stats,
+            final TempTripleStore tempStore, final IChangeLog changeLog) {
+
+        final TempTripleStore overdeletedStore = newTempTripleStore();
+
+        final TempTripleStore retractedStore = newTempTripleStore();
+
+        try {
+
+            final int capacity = (int) Math.min(10000L, tempStore
+                    .getStatementCount());
+
+            /*
+             * The given statements which are in the database are the seed for
+             * the overdeleted statements. Given statements which are axioms
+             * are downgraded to axioms instead.
+             */
+            {
+
+                final SPOAssertionBuffer seedBuffer = new SPOAssertionBuffer(
+                        overdeletedStore, database, null/* filter */,
+                        capacity, false/* justified */);
+
+                final SPOAssertionBuffer downgradeBuffer = new SPOAssertionBuffer(
+                        database, database, null/* filter */, capacity,
+                        false/* justified */, changeLog);
+
+                final IChunkedOrderedIterator<ISPO> itr = database
+                        .bulkFilterStatements(tempStore.getAccessPath(
+                                SPOKeyOrder.SPO).iterator(), true/* present */);
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        final SPO spo = (SPO) itr.next();
+
+                        if (spo.getStatementType() == StatementEnum.Axiom) {
+
+                            if (INFO)
+                                log.info("Ignoring axiom in the tempStore: "
+                                        + spo);
+
+                        } else if (database.isAxiom(spo.s(), spo.p(), spo.o())) {
+
+                            final SPO tmp = new SPO(spo.s(), spo.p(), spo.o(),
+                                    StatementEnum.Axiom);
+
+                            tmp.setOverride(true);
+
+                            downgradeBuffer.add(tmp, null);
+
+                            if (INFO)
+                                log.info("Downgrading to axiom: "
+                                        + spo.toString(database));
+
+                        } else {
+
+                            seedBuffer.add(spo);
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                downgradeBuffer.flush();
+
+                seedBuffer.flush();
+
+            }
+
+            if (overdeletedStore.getStatementCount() == 0) {
+
+                log.info("Done - nothing to retract from the database");
+
+                return;
+
+            }
+
+            // overdelete : everything which might depend on the given stmts.
+            stats.add(inferenceEngine.computeClosure(overdeletedStore,
+                    false/* justify */));
+
+            final long noverdeleted = overdeletedStore.getStatementCount();
+
+            /*
+             * Remove the given statements and the overdeleted inferences from
+             * the database, noting them in the retractedStore.
+             */
+            final long nretracted;
+            {
+
+                final int capacity2 = (int) Math.min(10000L, noverdeleted);
+
+                final SPOAssertionBuffer retractedBuffer = new SPOAssertionBuffer(
+                        retractedStore, database, null/* filter */,
+                        capacity2, false/* justified */);
+
+                final SPORetractionBuffer retractionBuffer = new SPORetractionBuffer(
+                        database, capacity2,
+                        false/* computeClosureForStatementIdentifiers */,
+                        changeLog);
+
+                final IChunkedOrderedIterator<ISPO> itr = database
+                        .bulkFilterStatements(overdeletedStore.getAccessPath(
+                                SPOKeyOrder.SPO).iterator(), true/* present */);
+
+                try {
+
+                    while (itr.hasNext()) {
+
+                        final ISPO[] chunk = itr.nextChunk();
+
+                        // the statements with their type in the database.
+                        final ISPO[] a = new ISPO[chunk.length];
+
+                        for (int i = 0; i < chunk.length; i++) {
+
+                            a[i] = new SPO(chunk[i].s(), chunk[i].p(),
+                                    chunk[i].o());
+
+                        }
+
+                        database.bulkCompleteStatements(a);
+
+                        for (int i = 0; i < a.length; i++) {
+
+                            final ISPO spo = a[i];
+
+                            switch (spo.getStatementType()) {
+                            case Axiom:
+                                // Axioms are always true.
+                                continue;
+                            case Explicit:
+                                if (!tempStore.hasStatement(spo.s(), spo.p(),
+                                        spo.o())) {
+                                    // Not retracted and hence still true.
+                                    continue;
+                                }
+                                break;
+                            default:
+                                break;
+                            }
+
+                            retractionBuffer.add(spo);
+
+                            retractedBuffer.add(spo);
+
+                            if (DEBUG)
+                                log.debug("Retracting: "
+                                        + spo.toString(database));
+
+                        }
+
+                    }
+
+                } finally {
+
+                    itr.close();
+
+                }
+
+                nretracted = retractionBuffer.flush();
+
+                retractedBuffer.flush();
+
+            }
+
+            if (INFO)
+                log.info("#overdeleted=" + noverdeleted + ", #retracted="
+                        + nretracted);
+
+            if (nretracted == 0) {
+
+                return;
+
+            }
+
+            // rederive : the retracted statements which are still entailed.
+            final TempTripleStore rederivedStore = newTempTripleStore();
+
+            stats.add(inferenceEngine.rederive(retractedStore, rederivedStore));
+
+            final long nrederived = rederivedStore.getStatementCount();
+
+            if (INFO)
+                log.info("#rederived=" + nrederived);
+
+            if (nrederived == 0) {
+
+                rederivedStore.close();
+
+                return;
+
+            }
+
+            // restore the rederived statements and their closure.
+            stats.add(assertAll(rederivedStore, changeLog));
+
+        } finally {
+
+            retractedStore.close();
+
+            overdeletedStore.close();
+
+            tempStore.close();
+
+        }
+
+    }
+
     /**
      * <p>
      * Do recursive truth maintenance.
@@ -196,7 +196,8 @@ public class BigdataValueCentricFullTextIndex extends FullTextIndex implements
                     DefaultTupleSerializer.getDefaultLeafKeysCoder(),//
 //                    DefaultTupleSerializer.getDefaultValuesCoder(),//
                     SimpleRabaCoder.INSTANCE,
-                    fieldsEnabled
+                    fieldsEnabled,
+                    isStatisticsEnabled()
             ));
             
             indexManager.registerIndex(indexMetadata);
@@ -0,0 +1,668 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openrdf.model.Literal;
+
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * A term cache whose capacity is bounded by the (estimated) #of bytes of the
+ * cached {@link BigdataValue}s rather than by the #of entries.
+ * <p>
+ * The cache is divided into three regions:
+ * <dl>
+ * <dt>pinned</dt>
+ * <dd>The {@link IV#isVocabulary() vocabulary} {@link IV}s. There is a limited
+ * number of such {@link IV}s and they are frequently used, so they are never
+ * evicted and do not count against the byte budget.</dd>
+ * <dt>hot</dt>
+ * <dd>Entries whose estimated access frequency reached
+ * {@link #HOT_FREQUENCY}. This region is limited to a fraction of the byte
+ * budget. Entries evicted from the hot region are demoted to the main
+ * region.</dd>
+ * <dt>main</dt>
+ * <dd>All other entries.</dd>
+ * </dl>
+ * Both the hot and the main regions are managed by a CLOCK (second chance)
+ * policy. When the cache is full, a new entry is only admitted if its
+ * estimated access frequency is greater than that of the entry which would be
+ * evicted to make room for it (TinyLFU). The access frequencies are tracked by
+ * a {@link FrequencySketch} which is updated for each {@link #get(IV)}, so a
+ * scan which materializes many {@link IV}s exactly once can not flush the
+ * frequently used entries from the cache.
+ * <p>
+ * Lookups do not block. Insertions, evictions and promotions are serialized by
+ * a lock.
+ * 
+ * @see AbstractTripleStore.Options#TERM_CACHE_MAX_BYTES
+ */
+public class BoundedTermCache<K extends IV<?, ?>, V extends BigdataValue>
+        implements ITermCache<K, V> {
+
+    /**
+     * The estimated access frequency at which an entry is promoted into the
+     * hot region.
+     */
+    static final int HOT_FREQUENCY = 8;
+
+    /**
+     * The estimated #of bytes for an entry exclusive of the characters of the
+     * value (the {@link IV}, the {@link BigdataValue}, the node and the hash
+     * map entry).
+     */
+    static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * A cache entry. The list pointers and the region are guarded by the
+     * {@link BoundedTermCache#lock}.
+     */
+    private static class Node<K, V> {
+
+        final K key;
+
+        final V value;
+
+        final int bytes;
+
+        /** Set on access and cleared when the CLOCK hand passes. */
+        volatile boolean referenced;
+
+        /** <code>true</code> iff the entry is in the hot region. */
+        volatile boolean hot;
+
+        Node<K, V> prev, next;
+
+        Node(final K key, final V value, final int bytes) {
+            this.key = key;
+            this.value = value;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /** The maximum #of bytes for the hot and main regions together. */
+    private final long maxBytes;
+
+    /** The maximum #of bytes for the hot region. */
+    private final long hotMaxBytes;
+
+    /** The entries in the hot and main regions. */
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+
+    /** The pinned entries. */
+    private final ConcurrentHashMap<K, V> pinned;
+
+    private final FrequencySketch sketch;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The sentinels of the circular lists for the main and hot regions. */
+    private final Node<K, V> mainHead, hotHead;
+
+    /** The #of bytes in the hot and main regions (guarded by the lock). */
+    private volatile long bytes, hotBytes;
+
+    private final CAT hits = new CAT(), misses = new CAT(),
+            admissions = new CAT(), rejections = new CAT(),
+            evictions = new CAT(), promotions = new CAT();
+
+    /**
+     * @param maxBytes
+     *            The maximum #of bytes for the (unpinned) entries.
+     * @param hotFraction
+     *            The fraction of those bytes which may be used by the hot
+     *            region in [0:1).
+     */
+    public BoundedTermCache(final long maxBytes, final double hotFraction) {
+
+        if (maxBytes <= 0L)
+            throw new IllegalArgumentException();
+
+        if (hotFraction < 0d || hotFraction >= 1d)
+            throw new IllegalArgumentException();
+
+        this.maxBytes = maxBytes;
+
+        this.hotMaxBytes = (long) (maxBytes * hotFraction);
+
+        // Size the sketch for the expected #of entries.
+        final int expectedEntries = (int) Math.min(1 << 24,
+                Math.max(16, maxBytes / (ENTRY_OVERHEAD + 64)));
+
+        this.map = new ConcurrentHashMap<K, Node<K, V>>(expectedEntries);
+
+        this.pinned = new ConcurrentHashMap<K, V>();
+
+        this.sketch = new FrequencySketch(expectedEntries);
+
+        this.mainHead = newSentinel();
+
+        this.hotHead = newSentinel();
+
+    }
+
+    private Node<K, V> newSentinel() {
+
+        final Node<K, V> head = new Node<K, V>(null, null, 0);
+
+        head.prev = head.next = head;
+
+        return head;
+
+    }
+
+    /**
+     * The maximum #of bytes for the (unpinned) entries.
+     */
+    public long getMaxBytes() {
+
+        return maxBytes;
+
+    }
+
+    /**
+     * The estimated #of bytes for the (unpinned) entries.
+     */
+    public long getBytes() {
+
+        return bytes;
+
+    }
+
+    /**
+     * The estimated #of bytes for the entries in the hot region.
+     */
+    public long getHotBytes() {
+
+        return hotBytes;
+
+    }
+
+    /**
+     * The #of pinned entries.
+     */
+    public int getPinnedCount() {
+
+        return pinned.size();
+
+    }
+
+    @Override
+    public int size() {
+
+        return map.size() + pinned.size();
+
+    }
+
+    @Override
+    public V get(final K k) {
+
+        if (k.isVocabulary()) {
+
+            final V v = pinned.get(k);
+
+            if (v != null)
+                hits.increment();
+            else
+                misses.increment();
+
+            return v;
+
+        }
+
+        sketch.increment(k);
+
+        final Node<K, V> node = map.get(k);
+
+        if (node == null) {
+
+            misses.increment();
+
+            return null;
+
+        }
+
+        hits.increment();
+
+        node.referenced = true;
+
+        if (!node.hot && hotMaxBytes > 0L
+                && sketch.frequency(k) >= HOT_FREQUENCY && lock.tryLock()) {
+
+            // Note: The lookup does not wait for the lock.
+            try {
+
+                promote(node);
+
+            } finally {
+
+                lock.unlock();
+
+            }
+
+        }
+
+        return node.value;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: This returns <code>null</code> if the entry was not admitted into
+     * the cache, so the caller will use its own value.
+     */
+    @Override
+    public V putIfAbsent(final K k, final V v) {
+
+        if (k.isVocabulary()) {
+
+            /*
+             * Note: We do not need to break the cache reference for the
+             * vocabulary IVs. There is only a limited number of them.
+             */
+
+            return pinned.putIfAbsent(k, v);
+
+        }
+
+        {
+
+            final Node<K, V> tmp = map.get(k);
+
+            if (tmp != null) {
+
+                // No need to write on the map.
+                return tmp.value;
+
+            }
+
+        }
+
+        final int nbytes = sizeOf(v);
+
+        if (nbytes > maxBytes) {
+
+            // Would flush the entire cache.
+            rejections.increment();
+
+            return null;
+
+        }
+
+        lock.lock();
+
+        try {
+
+            final Node<K, V> tmp = map.get(k);
+
+            if (tmp != null)
+                return tmp.value;
+
+            while (bytes + nbytes > maxBytes) {
+
+                final Node<K, V> victim = selectVictim();
+
+                if (sketch.frequency(k) <= sketch.frequency(victim.key)) {
+
+                    /*
+                     * The candidate is not used more often than the entry
+                     * which it would replace.
+                     */
+                    rejections.increment();
+
+                    return null;
+
+                }
+
+                evict(victim);
+
+            }
+
+            /*
+             * Clone the IV in order to ensure that the hard reference from the
+             * IV to the BigdataValue cached on the IV has been cleared before
+             * we enter the IV into the map (the IV must not pin a value which
+             * is evicted from the cache).
+             */
+            @SuppressWarnings("unchecked")
+            final K key = (K) k.clone(true/* clearCache */);
+
+            final Node<K, V> node = new Node<K, V>(key, v, nbytes);
+
+            map.put(key, node);
+
+            link(mainHead, node);
+
+            bytes += nbytes;
+
+            admissions.increment();
+
+            return null;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    @Override
+    public void clear() {
+
+        lock.lock();
+
+        try {
+
+            map.clear();
+
+            pinned.clear();
+
+            mainHead.prev = mainHead.next = mainHead;
+
+            hotHead.prev = hotHead.next = hotHead;
+
+            bytes = hotBytes = 0L;
+
+            sketch.clear();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Move an entry from the main region into the hot region, demoting entries
+     * from the hot region as necessary.
+     */
+    private void promote(final Node<K, V> node) {
+
+        assert lock.isHeldByCurrentThread();
+
+        if (node.hot || map.get(node.key) != node) {
+
+            // Already promoted or evicted.
+            return;
+
+        }
+
+        if (node.bytes > hotMaxBytes)
+            return;
+
+        while (hotBytes + node.bytes > hotMaxBytes) {
+
+            final Node<K, V> victim = clock(hotHead);
+
+            unlink(victim);
+
+            victim.hot = false;
+
+            hotBytes -= victim.bytes;
+
+            link(mainHead, victim);
+
+        }
+
+        unlink(node);
+
+        node.hot = true;
+
+        node.referenced = false;
+
+        hotBytes += node.bytes;
+
+        link(hotHead, node);
+
+        promotions.increment();
+
+    }
+
+    /**
+     * The entry which would be evicted next: the CLOCK victim from the main
+     * region and from the hot region iff the main region is empty.
+     */
+    private Node<K, V> selectVictim() {
+
+        if (mainHead.next != mainHead)
+            return clock(mainHead);
+
+        return clock(hotHead);
+
+    }
+
+    /**
+     * Advance the CLOCK hand over a region (which must not be empty), giving
+     * each referenced entry a second chance, and return the first entry which
+     * was not referenced. That entry is left at the head of the list.
+     */
+    private Node<K, V> clock(final Node<K, V> head) {
+
+        while (true) {
+
+            final Node<K, V> node = head.next;
+
+            if (!node.referenced)
+                return node;
+
+            node.referenced = false;
+
+            // Move to the tail.
+            unlink(node);
+
+            link(head, node);
+
+        }
+
+    }
+
+    private void evict(final Node<K, V> node) {
+
+        unlink(node);
+
+        map.remove(node.key);
+
+        bytes -= node.bytes;
+
+        if (node.hot) {
+
+            node.hot = false;
+
+            hotBytes -= node.bytes;
+
+        }
+
+        evictions.increment();
+
+    }
+
+    /** Link the node at the tail of the list. */
+    private static <K, V> void link(final Node<K, V> head, final Node<K, V> node) {
+
+        node.prev = head.prev;
+
+        node.next = head;
+
+        head.prev.next = node;
+
+        head.prev = node;
+
+    }
+
+    private static <K, V> void unlink(final Node<K, V> node) {
+
+        node.prev.next = node.next;
+
+        node.next.prev = node.prev;
+
+        node.prev = node.next = null;
+
+    }
+
+    /**
+     * The estimated #of bytes for a cache entry (the characters are assumed
+     * to be stored as UTF16).
+     */
+    static int sizeOf(final BigdataValue v) {
+
+        int nchars = v.stringValue().length();
+
+        if (v instanceof Literal) {
+
+            final String lang = ((Literal) v).getLanguage();
+
+            if (lang != null)
+                nchars += lang.length();
+
+        }
+
+        return ENTRY_OVERHEAD + (nchars << 1);
+
+    }
+
+    /**
+     * Performance counters for the cache.
+     */
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("maxBytes", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(maxBytes);
+            }
+        });
+
+        root.addCounter("bytes", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(bytes);
+            }
+        });
+
+        root.addCounter("hotBytes", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hotBytes);
+            }
+        });
+
+        root.addCounter("size", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(size());
+            }
+        });
+
+        root.addCounter("pinned", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(pinned.size());
+            }
+        });
+
+        root.addCounter("hits", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        root.addCounter("misses", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        root.addCounter("hitRate", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : h / (double) n);
+            }
+        });
+
+        root.addCounter("admissions", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(admissions.get());
+            }
+        });
+
+        root.addCounter("rejections", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(rejections.get());
+            }
+        });
+
+        root.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(evictions.get());
+            }
+        });
+
+        root.addCounter("promotions", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(promotions.get());
+            }
+        });
+
+        return root;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{size=" + map.size() + ", pinned="
+                + pinned.size() + ", bytes=" + bytes + ", hotBytes="
+                + hotBytes + ", maxBytes=" + maxBytes + ", hits=" + hits.get()
+                + ", misses=" + misses.get() + "}";
+
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.lexicon;
+
+/**
+ * A count-min sketch of 4-bit counters estimating the access frequency of
+ * keys, as used by the TinyLFU admission policy of the
+ * {@link BoundedTermCache}. The counters are periodically halved so the
+ * estimates follow changes in the workload.
+ * <p>
+ * Note: Updates are not atomic. Concurrent updates may lose increments, which
+ * is acceptable for an estimate.
+ */
+class FrequencySketch {
+
+    /** The #of rows (hash functions). */
+    private static final int DEPTH = 4;
+
+    /** The maximum value of a counter. */
+    private static final int MAX_COUNT = 15;
+
+    private static final long[] SEEDS = new long[] { 0xc3a5c85c97cb3127L,
+            0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /** Each long holds 16 counters. */
+    private final long[] table;
+
+    /** The mask for the counter index in a row. */
+    private final int mask;
+
+    /** The #of increments after which the counters are halved. */
+    private final int sampleSize;
+
+    /** The #of increments since the counters were last halved. */
+    private int size;
+
+    /**
+     * @param expectedEntries
+     *            The #of distinct keys whose frequency should be tracked with
+     *            good accuracy (typically the #of entries of the cache).
+     */
+    public FrequencySketch(final int expectedEntries) {
+
+        if (expectedEntries <= 0)
+            throw new IllegalArgumentException();
+
+        // #of counters per row, a power of 2.
+        int width = 16;
+        while (width < expectedEntries && width < (1 << 26))
+            width <<= 1;
+
+        this.table = new long[(width * DEPTH) / 16];
+
+        this.mask = width - 1;
+
+        this.sampleSize = 10 * width;
+
+    }
+
+    /**
+     * The estimated #of accesses of the key since it was (approximately) last
+     * aged, in [0:15].
+     */
+    public int frequency(final Object key) {
+
+        final int hash = spread(key.hashCode());
+
+        int min = MAX_COUNT;
+
+        for (int i = 0; i < DEPTH; i++) {
+
+            final int index = indexOf(hash, i);
+
+            final int count = (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xfL);
+
+            if (count < min)
+                min = count;
+
+        }
+
+        return min;
+
+    }
+
+    /**
+     * Record an access of the key.
+     */
+    public void increment(final Object key) {
+
+        final int hash = spread(key.hashCode());
+
+        boolean added = false;
+
+        for (int i = 0; i < DEPTH; i++) {
+
+            final int index = indexOf(hash, i);
+
+            final int word = index >>> 4;
+
+            final int shift = (index & 15) << 2;
+
+            if (((table[word] >>> shift) & 0xfL) != MAX_COUNT) {
+
+                table[word] += 1L << shift;
+
+                added = true;
+
+            }
+
+        }
+
+        if (added && ++size >= sampleSize) {
+
+            reset();
+
+        }
+
+    }
+
+    /**
+     * Halve all counters.
+     */
+    private void reset() {
+
+        for (int i = 0; i < table.length; i++) {
+
+            // Clear the low bit of each counter, then shift it out.
+            table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+
+        }
+
+        size = size >>> 1;
+
+    }
+
+    /**
+     * Clear all counters.
+     */
+    public void clear() {
+
+        for (int i = 0; i < table.length; i++) {
+
+            table[i] = 0L;
+
+        }
+
+        size = 0;
+
+    }
+
+    /**
+     * The index of the counter for the hash code in the i-th row.
+     */
+    private int indexOf(final int hash, final int i) {
+
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+
+        h += h >>> 32;
+
+        return i * (mask + 1) + ((int) h & mask);
+
+    }
+
+    private static int spread(int x) {
+
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+
+        return (x >>> 16) ^ x;
+
+    }
+
+}
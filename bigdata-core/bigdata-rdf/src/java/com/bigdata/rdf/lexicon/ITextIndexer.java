@@ -122,6 +122,7 @@ public interface ITextIndexer<A extends IHit> {
         final long timeout; 
         final TimeUnit unit; 
         final String matchRegex;
+        final String scorer;
 		
         public FullTextQuery(final String query) {
         	this(
@@ -245,6 +246,30 @@ public interface ITextIndexer<A extends IHit> {
 	            final int minRank, final int maxRank, 
 	            long timeout, final TimeUnit unit) {
 			
+			this(query, languageCode, prefixMatch, matchRegex, matchAllTerms,
+					matchExact, minCosine, maxCosine, minRank, maxRank,
+					timeout, unit, BDS.DEFAULT_SCORER);
+			
+		}
+
+		/**
+		 * Construct a full text query using the specified relevance model.
+		 * 
+		 * @param scorer
+		 *            The name of the scorer used to compute the relevance of
+		 *            the hits -or- <code>null</code> to use the scorer
+		 *            configured for the index.
+		 * 
+		 * @see BDS#SCORER
+		 * @see FullTextIndex.Options#SCORER
+		 */
+		public FullTextQuery(final String query, final String languageCode,
+	            final boolean prefixMatch, final String matchRegex, 
+	            final boolean matchAllTerms, final boolean matchExact, 
+	            final double minCosine, final double maxCosine,
+	            final int minRank, final int maxRank, 
+	            long timeout, final TimeUnit unit, final String scorer) {
+			
 			this.query = query;
 			this.languageCode = languageCode;
 			this.prefixMatch = prefixMatch;
@@ -257,6 +282,7 @@ public interface ITextIndexer<A extends IHit> {
 			this.maxRank = maxRank;
 			this.timeout = timeout;
 			this.unit = unit;
+			this.scorer = scorer;
 			
 		}
 		
@@ -344,6 +370,14 @@ public interface ITextIndexer<A extends IHit> {
 			return unit;
 		}
 
+		/**
+		 * @return the name of the scorer -or- <code>null</code> to use the
+		 *         scorer configured for the index.
+		 */
+		public String getScorer() {
+			return scorer;
+		}
+
 		/* (non-Javadoc)
 		 * @see java.lang.Object#hashCode()
 		 */
@@ -358,6 +392,7 @@ public interface ITextIndexer<A extends IHit> {
 			result = prime * result + (prefixMatch ? 1231 : 1237);
 			result = prime * result + ((query == null) ? 0 : query.hashCode());
 			result = prime * result + ((matchRegex == null) ? 0 : matchRegex.hashCode());
+			result = prime * result + ((scorer == null) ? 0 : scorer.hashCode());
 			return result;
 		}
 
@@ -394,6 +429,11 @@ public interface ITextIndexer<A extends IHit> {
 					return false;
 			} else if (!matchRegex.equals(other.matchRegex))
 				return false;
+			if (scorer == null) {
+				if (other.scorer != null)
+					return false;
+			} else if (!scorer.equals(other.scorer))
+				return false;
 			return true;
 		}
 
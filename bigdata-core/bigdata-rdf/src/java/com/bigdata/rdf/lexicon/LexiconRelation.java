@@ -28,6 +28,7 @@
 
 package com.bigdata.rdf.lexicon;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
@@ -75,6 +76,7 @@ import com.bigdata.btree.filter.TupleFilter;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KVO;
 import com.bigdata.cache.ConcurrentWeakValueCacheWithBatchedUpdates;
+import com.bigdata.counters.CounterSet;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.IJournal;
 import com.bigdata.journal.IResourceLock;
@@ -512,20 +514,52 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
 					AbstractTripleStore.Options.VALUE_FACTORY_CLASS, e);
 		}
 
-        /*
-         * @todo This should be a high concurrency LIRS or similar cache in
-         * order to prevent the cache being flushed by the materialization of
-         * low frequency terms.
-         */
         {
             
             final int termCacheCapacity = Integer.parseInt(getProperty(
                     AbstractTripleStore.Options.TERM_CACHE_CAPACITY,
                     AbstractTripleStore.Options.DEFAULT_TERM_CACHE_CAPACITY));
 
+            final long termCacheMaxBytes = Long.parseLong(getProperty(
+                    AbstractTripleStore.Options.TERM_CACHE_MAX_BYTES,
+                    AbstractTripleStore.Options.DEFAULT_TERM_CACHE_MAX_BYTES));
+
+            if (termCacheMaxBytes < 0L)
+                throw new IllegalArgumentException(
+                        AbstractTripleStore.Options.TERM_CACHE_MAX_BYTES
+                                + "=" + termCacheMaxBytes);
+
             final Long commitTime = getCommitTime();
             
-            if (commitTime != null && TimestampUtility.isReadOnly(timestamp)) {
+            final UUID id2termUUID = termCacheMaxBytes > 0L
+                    && commitTime != null
+                    && TimestampUtility.isReadOnly(timestamp) ? getId2TermIndexUUID()
+                    : null;
+
+            if (termCacheMaxBytes > 0L && id2termUUID != null) {
+
+                /*
+                 * Shared by all read-only views of the same lexicon. The
+                 * value for an IV never changes once it has been assigned, so
+                 * the cache may be shared across commit points. The cache is
+                 * keyed by the UUID of the ID2TERM index to prevent life cycle
+                 * issues across drop/create sequences for the triple store.
+                 * The cache size is automatically increased to take advantage
+                 * of the fact that it is a shared resource.
+                 */
+                termCache = boundedTermCacheFactory.getInstance(
+                        new TermCacheKey(namespace, id2termUUID),
+                        termCacheMaxBytes * 2);
+
+            } else if (termCacheMaxBytes > 0L) {
+
+                /*
+                 * Unshared for any other view of the triple store.
+                 */
+                termCache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                        termCacheMaxBytes, HOT_TERM_CACHE_FRACTION);
+
+            } else if (commitTime != null && TimestampUtility.isReadOnly(timestamp)) {
 
                 /*
                  * Shared for read-only views from sample commit time. Sharing
@@ -828,6 +862,9 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
             valueFactory.remove(/*getNamespace()*/);
 
             termCache.clear();
+
+            // discard the term caches shared by the read-only views.
+            clearTermCacheFactory(getNamespace());
             
             super.destroy();
 
@@ -3043,6 +3080,82 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
         }
     };
     
+    /**
+     * The fraction of the bytes of a {@link BoundedTermCache} which may be used
+     * by its hot region.
+     */
+    static private final double HOT_TERM_CACHE_FRACTION = .2d;
+
+    /**
+     * The key for a {@link BoundedTermCache} shared by the read-only views of
+     * a lexicon.
+     */
+    static private class TermCacheKey {
+
+        private final String namespace;
+
+        private final UUID id2termUUID;
+
+        TermCacheKey(final String namespace, final UUID id2termUUID) {
+            this.namespace = namespace;
+            this.id2termUUID = id2termUUID;
+        }
+
+        @Override
+        public int hashCode() {
+            return namespace.hashCode() * 31 + id2termUUID.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof TermCacheKey))
+                return false;
+            final TermCacheKey t = (TermCacheKey) o;
+            return namespace.equals(t.namespace)
+                    && id2termUUID.equals(t.id2termUUID);
+        }
+
+    }
+
+    /**
+     * Factory used for {@link #termCache} for read-only views of the lexicon
+     * when the term cache is bounded by bytes.
+     * 
+     * @see AbstractTripleStore.Options#TERM_CACHE_MAX_BYTES
+     */
+    static private CanonicalFactory<TermCacheKey, BoundedTermCache<IV<?, ?>, BigdataValue>, Long/* maxBytes */> boundedTermCacheFactory = new CanonicalFactory<TermCacheKey, BoundedTermCache<IV<?, ?>, BigdataValue>, Long>(
+            1/* queueCapacity */) {
+        @Override
+        protected BoundedTermCache<IV<?, ?>, BigdataValue> newInstance(
+                TermCacheKey key, Long maxBytes) {
+            return new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                    maxBytes.longValue(), HOT_TERM_CACHE_FRACTION);
+        }
+    };
+
+    /**
+     * Return the {@link UUID} of the ID2TERM index for this view of the
+     * lexicon and <code>null</code> if it can not be resolved.
+     */
+    private UUID getId2TermIndexUUID() {
+
+        try {
+
+            return getId2TermIndex().getIndexMetadata().getIndexUUID();
+
+        } catch (RuntimeException ex) {
+
+            log.warn("Term cache will not be shared: namespace="
+                    + getNamespace() + ", cause=" + ex);
+
+            return null;
+
+        }
+
+    }
+
     /**
      * Clear all term caches for the supplied namespace.
      */
@@ -3056,8 +3169,59 @@ public class LexiconRelation extends AbstractRelation<BigdataValue>
                 it.remove();
             }
         }
+
+        final Iterator<Map.Entry<TermCacheKey, WeakReference<BoundedTermCache<IV<?, ?>, BigdataValue>>>> itr = boundedTermCacheFactory
+                .entryIterator();
+        while (itr.hasNext()) {
+            final Map.Entry<TermCacheKey, WeakReference<BoundedTermCache<IV<?, ?>, BigdataValue>>> e = itr
+                    .next();
+            if (e.getKey().namespace.equals(namespace)) {
+                final BoundedTermCache<IV<?, ?>, BigdataValue> cache = e
+                        .getValue().get();
+                if (cache != null)
+                    cache.clear();
+                itr.remove();
+            }
+        }
         
     }
+
+    /**
+     * Return the counters for the {@link BoundedTermCache}s which are shared
+     * by the read-only views of the lexicons, organized by namespace.
+     */
+    static public CounterSet getSharedTermCacheCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        final Iterator<Map.Entry<TermCacheKey, WeakReference<BoundedTermCache<IV<?, ?>, BigdataValue>>>> itr = boundedTermCacheFactory
+                .entryIterator();
+
+        while (itr.hasNext()) {
+
+            final Map.Entry<TermCacheKey, WeakReference<BoundedTermCache<IV<?, ?>, BigdataValue>>> e = itr
+                    .next();
+
+            final BoundedTermCache<IV<?, ?>, BigdataValue> cache = e
+                    .getValue().get();
+
+            if (cache == null)
+                continue;
+
+            final String path = e.getKey().namespace;
+
+            if (root.getChild(path) != null) {
+                // An older cache for a namespace which was dropped.
+                continue;
+            }
+
+            root.makePath(path).attach(cache.getCounters());
+
+        }
+
+        return root;
+
+    }
     
     /**
      * The {@link Vocabulary} implementation class.
@@ -51,6 +51,7 @@ import com.bigdata.search.ITermDocRecord;
 import com.bigdata.search.ITermDocVal;
 import com.bigdata.search.ReadOnlyTermDocKey;
 import com.bigdata.search.ReadOnlyTermDocRecord;
+import com.bigdata.search.TextIndexStatistics;
 import com.bigdata.util.Bytes;
 import com.bigdata.util.BytesUtil;
 
@@ -79,6 +80,18 @@ public class RDFFullTextIndexTupleSerializer extends
     
     static private final transient int NO_FIELD = -1;
 
+    private boolean statisticsEnabled;
+
+    /**
+     * When <code>true</code> the value of each tuple also records the term
+     * frequency and the document length.
+     * 
+     * @see com.bigdata.search.FullTextIndex.Options#STATISTICS_ENABLED
+     */
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
 //    public boolean isDoublePrecision() {
 //        return doublePrecision;
 //    }
@@ -121,8 +134,31 @@ public class RDFFullTextIndexTupleSerializer extends
 //            final boolean doublePrecision//
     ) {
 
+        this(keyBuilderFactory, leafKeysCoder, leafValsCoder, fieldsEnabled,
+                false/* statisticsEnabled */);
+
+    }
+
+    /**
+     * @param statisticsEnabled
+     *            When <code>true</code> the term frequency and the document
+     *            length are stored in the value of each tuple following the
+     *            byte length of the document identifier.
+     * 
+     * @see com.bigdata.search.FullTextIndex.Options#STATISTICS_ENABLED
+     */
+    public RDFFullTextIndexTupleSerializer(//
+            final IKeyBuilderFactory keyBuilderFactory,//
+            final IRabaCoder leafKeysCoder, //
+            final IRabaCoder leafValsCoder,//
+            final boolean fieldsEnabled,//
+            final boolean statisticsEnabled//
+    ) {
+
         super(keyBuilderFactory, leafKeysCoder, leafValsCoder);
 
+        this.statisticsEnabled = statisticsEnabled;
+
 //        this.doublePrecision = doublePrecision;
 
     }
@@ -197,6 +233,14 @@ public class RDFFullTextIndexTupleSerializer extends
         
         // The byte length of the document identifier IV.
         buf.packShort((short) byteLen);
+
+        if (statisticsEnabled) {
+
+            // The term frequency and the document length.
+            TextIndexStatistics.appendPosting(buf, obj.termFreq(),
+                    obj.docLength());
+
+        }
         
         // The term frequency
 //        buf.packLong(termFreq);
@@ -291,6 +335,16 @@ public class RDFFullTextIndexTupleSerializer extends
 //
 //        }
 
+        if (statisticsEnabled) {
+
+            final ByteArrayBuffer vbuf = tuple.getValueBuffer();
+
+            return new ReadOnlyTermDocRecord(null/* token */, docId,
+                    NO_FIELD, TextIndexStatistics.getTermFreq(vbuf),
+                    TextIndexStatistics.getDocLength(vbuf), termWeight);
+
+        }
+
         return new ReadOnlyTermDocRecord(null/* token */, docId, NO_FIELD,
                 /* termFreq, */ termWeight);
 
@@ -301,7 +355,12 @@ public class RDFFullTextIndexTupleSerializer extends
      */
     private static final transient byte VERSION0 = 0;
 
-    private static final transient byte VERSION = VERSION0;
+    /**
+     * Adds {@link #statisticsEnabled}.
+     */
+    private static final transient byte VERSION1 = 1;
+
+    private static final transient byte VERSION = VERSION1;
 
     public void readExternal(final ObjectInput in) throws IOException,
             ClassNotFoundException {
@@ -309,10 +368,12 @@ public class RDFFullTextIndexTupleSerializer extends
         final byte version = in.readByte();
         switch (version) {
         case VERSION0:
+        case VERSION1:
             break;
         default:
             throw new IOException("unknown version=" + version);
         }
+        this.statisticsEnabled = version >= VERSION1 ? in.readBoolean() : false;
 //        this.doublePrecision = in.readBoolean();
 
     }
@@ -320,6 +381,7 @@ public class RDFFullTextIndexTupleSerializer extends
     public void writeExternal(final ObjectOutput out) throws IOException {
         super.writeExternal(out);
         out.writeByte(VERSION);
+        out.writeBoolean(statisticsEnabled);
 //        out.writeBoolean(doublePrecision);
     }
 
@@ -40,6 +40,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.openrdf.model.BNode;
@@ -314,6 +315,27 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 	 * The #of batches written onto the database.
 	 */
 	private int batchWriteCount;
+
+	/**
+	 * The #of distinct values resolved against the lexicon by the batches
+	 * written onto the database.
+	 */
+	private volatile long termsWriteCount;
+
+	/**
+	 * The elapsed nanoseconds spent resolving values against the lexicon.
+	 */
+	private volatile long termsWriteNanos;
+
+	/**
+	 * The #of statements in the batches written onto the statement indices.
+	 */
+	private volatile long stmtsWriteCount;
+
+	/**
+	 * The elapsed nanoseconds spent writing on the statement indices.
+	 */
+	private volatile long stmtsWriteNanos;
 	
     /**
 	 * When non-null, this is a deque that will be used allow the parser to race
@@ -447,6 +469,34 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 			}
 		});
 
+		counters.addCounter("termsWriteCount", new Instrument<Long>() {
+			@Override
+			public void sample() {
+				setValue(termsWriteCount);
+			}
+		});
+
+		counters.addCounter("termsWriteMillis", new Instrument<Long>() {
+			@Override
+			public void sample() {
+				setValue(TimeUnit.NANOSECONDS.toMillis(termsWriteNanos));
+			}
+		});
+
+		counters.addCounter("stmtsWriteCount", new Instrument<Long>() {
+			@Override
+			public void sample() {
+				setValue(stmtsWriteCount);
+			}
+		});
+
+		counters.addCounter("stmtsWriteMillis", new Instrument<Long>() {
+			@Override
+			public void sample() {
+				setValue(TimeUnit.NANOSECONDS.toMillis(stmtsWriteNanos));
+			}
+		});
+
 		if (queue != null) {
 
 			// Only defined when the queue is enabled.
@@ -816,9 +866,7 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 				if (queue.isEmpty()) {
 
 					// Nothing else in the queue. Write out the batch immediately.
-					final BatchResult batchResult = batch.writeNow();
-					bnodesResolvedCount += batchResult.getNumBNodesResolved();
-					batchWriteCount++;
+					didWrite(batch.writeNow());
 					
 					continue;
 
@@ -885,17 +933,13 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 				/*
 				 * Safety check. Do not merge a single batch.
 				 */
-				final BatchResult batchResult = avail.get(0).writeNow();
-				bnodesResolvedCount += batchResult.getNumBNodesResolved();
-				batchWriteCount++;
+				didWrite(avail.get(0).writeNow());
 
 			} else {
 
 				// Merge the batches together and then write them out.
-			    final BatchResult batchResult = new MergeUtility<S>().merge(avail).writeNow();
-				bnodesResolvedCount += batchResult.getNumBNodesResolved();
+			    didWrite(new MergeUtility<S>().merge(avail).writeNow());
 				batchMergeCount += avail.size();
-				batchWriteCount++;
 
 			}
 			
@@ -1351,6 +1395,52 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
         
     }
     
+    /**
+     * Accumulate the outcome of a batch written onto the database.
+     */
+    private void didWrite(final BatchResult batchResult) {
+
+        bnodesResolvedCount += batchResult.getNumBNodesResolved();
+        termsWriteCount += batchResult.nvalues;
+        termsWriteNanos += batchResult.termsNanos;
+        stmtsWriteCount += batchResult.nstmts;
+        stmtsWriteNanos += batchResult.stmtsNanos;
+        batchWriteCount++;
+
+    }
+
+    /**
+     * The #of distinct values resolved against the lexicon (TERM2ID and BLOBS
+     * indices) by the batches written so far. This is not cleared by
+     * {@link #reset()}.
+     */
+    public long getTermsWriteCount() {
+        return termsWriteCount;
+    }
+
+    /**
+     * The elapsed nanoseconds spent resolving values against the lexicon.
+     */
+    public long getTermsWriteNanos() {
+        return termsWriteNanos;
+    }
+
+    /**
+     * The #of statements in the batches written so far onto the statement
+     * indices (including statements which were already present). This is not
+     * cleared by {@link #reset()}.
+     */
+    public long getStatementsWriteCount() {
+        return stmtsWriteCount;
+    }
+
+    /**
+     * The elapsed nanoseconds spent writing on the statement indices.
+     */
+    public long getStatementsWriteNanos() {
+        return stmtsWriteNanos;
+    }
+
     /**
      * Batch insert buffered data (terms and statements) into the store.
      */
@@ -1359,9 +1449,7 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
     	// Buffer a batch and then incrementally flush.
 		if (queue == null) {
 
-			final BatchResult batchResult = new Batch<S>(this, true/* avoidCloningIfPossible */).writeNow();
-			bnodesResolvedCount += batchResult.getNumBNodesResolved();
-			batchWriteCount++;
+			didWrite(new Batch<S>(this, true/* avoidCloningIfPossible */).writeNow());
 
 	        // Reset the state of the buffer (but not the bnodes nor deferred stmts).
 	        _clear();
@@ -1619,10 +1707,20 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 
 		private final long nwritten;
 		private final long nBnodesResolved;
-
-		public BatchResult(final long nwritten, final long nBnodesResolved) {
+		private final int nvalues;
+		private final long termsNanos;
+		private final int nstmts;
+		private final long stmtsNanos;
+
+		public BatchResult(final long nwritten, final long nBnodesResolved,
+				final int nvalues, final long termsNanos, final int nstmts,
+				final long stmtsNanos) {
 			this.nwritten = nwritten;
 			this.nBnodesResolved = nBnodesResolved;
+			this.nvalues = nvalues;
+			this.termsNanos = termsNanos;
+			this.nstmts = nstmts;
+			this.stmtsNanos = stmtsNanos;
 		}
 		
 		public long getNumWritten() {
@@ -1854,6 +1952,8 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 
             long nBnodesResolved = 0;
 
+            long termsNanos = 0L, stmtsNanos = 0L;
+
             if (log.isInfoEnabled())
 				log.info("numValues=" + numValues + ", numStmts=" + numStmts);
 
@@ -1878,7 +1978,9 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
                 		nBnodesResolved++;
                 	}
                 }
+                final long beginTerms = System.nanoTime();
                 addTerms(database, values, numValues, readOnly);
+                termsNanos = System.nanoTime() - beginTerms;
                 // Substract #of bnodes, which remain unresolved
                 // as a result we have number of bnodes, which were resolved
                 for (BigdataValue v: values) {
@@ -1909,7 +2011,9 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
 						log.debug("adding stmt: " + stmts[i]);
 					}
 				}
+				final long beginStmts = System.nanoTime();
 				nwritten = addStatements(database, statementStore, stmts, numStmts, changeLog, didWriteCallback);
+				stmtsNanos = System.nanoTime() - beginStmts;
 				if (DEBUG) {
 					for (int i = 0; i < numStmts; i++) {
 						log.debug(" added stmt: " + stmts[i]);
@@ -1926,7 +2030,8 @@ public class StatementBuffer<S extends Statement> implements IStatementBuffer<S>
                 
             }
             
-            return new BatchResult(nwritten, nBnodesResolved);
+            return new BatchResult(nwritten, nBnodesResolved, numValues,
+                    termsNanos, numStmts, stmtsNanos);
             
     	}
     	
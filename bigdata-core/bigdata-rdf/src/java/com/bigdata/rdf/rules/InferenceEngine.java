@@ -39,6 +39,7 @@ import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.DataLoader;
 import com.bigdata.rdf.store.TempTripleStore;
 import com.bigdata.relation.accesspath.IElementFilter;
+import com.bigdata.relation.rule.IRule;
 import com.bigdata.relation.rule.Program;
 import com.bigdata.relation.rule.eval.ActionEnum;
 import com.bigdata.relation.rule.eval.IJoinNexus;
@@ -277,6 +278,22 @@ public class InferenceEngine {
 
         String DEFAULT_ENABLE_OWL_FUNCTIONAL_AND_INVERSE_FUNCTIONAL_PROPERTY = "true";
 
+        /**
+         * When <code>true</code> (default {@value #DEFAULT_SEMI_NAIVE_CLOSURE})
+         * the closure of a focusStore against the database (truth
+         * maintenance) is computed using {@link SemiNaiveClosure}, so each
+         * round of each fix point in the closure program only joins the
+         * statements first derived in the previous round against the
+         * database. This applies to the {@link FullClosure}, which is a
+         * single fix point, and to the fix points within the sequence of
+         * steps of the {@link FastClosure}. When <code>false</code>, each
+         * round applies the rules to the entire focusStore.
+         */
+        String SEMI_NAIVE_CLOSURE = InferenceEngine.class.getName()
+                + ".semiNaiveClosure";
+
+        String DEFAULT_SEMI_NAIVE_CLOSURE = "true";
+
     }
 
     /**
@@ -301,6 +318,9 @@ public class InferenceEngine {
                 .getProperty(Options.FORWARD_CHAIN_RDF_TYPE_RDFS_RESOURCE,
                         Options.DEFAULT_FORWARD_RDF_TYPE_RDFS_RESOURCE));
 
+        this.semiNaiveClosure = Boolean.parseBoolean(properties.getProperty(
+                Options.SEMI_NAIVE_CLOSURE, Options.DEFAULT_SEMI_NAIVE_CLOSURE));
+
         if(INFO)
         log.info(Options.FORWARD_CHAIN_RDF_TYPE_RDFS_RESOURCE + "="
                 + forwardChainRdfTypeRdfsResource);
@@ -438,6 +458,11 @@ public class InferenceEngine {
      */
     final protected boolean forwardChainRdfTypeRdfsResource;
 
+    /**
+     * Set based on {@link Options#SEMI_NAIVE_CLOSURE}.
+     */
+    final protected boolean semiNaiveClosure;
+
     /**
      * Set based on {@link Options#FORWARD_CHAIN_OWL_SAMEAS_CLOSURE}. When
      * <code>true</code> we will forward chain and store the reflexive and
@@ -623,6 +648,17 @@ public class InferenceEngine {
             final IJoinNexus joinNexus = joinNexusFactory.newInstance(database
                     .getIndexManager());
 
+            if (semiNaiveClosure && focusStore instanceof TempTripleStore) {
+
+                final ClosureStats stats = SemiNaiveClosure.compute(database,
+                        (TempTripleStore) focusStore, baseClosure, program,
+                        joinNexusFactory, justify);
+
+                if (stats != null)
+                    return stats;
+
+            }
+
             final long mutationCount = joinNexus.runMutation(program);
 
             final long elapsed = System.currentTimeMillis() - begin;
@@ -636,5 +672,88 @@ public class InferenceEngine {
         }
         
     }
+
+    /**
+     * The rules used to rederive overdeleted statements (lazily initialized).
+     */
+    private IRule[] rederivationRules = null;
+
+    /**
+     * The rederivation step of delete and rederive truth maintenance. Each
+     * statement in the <i>overdeletedStore</i> which still has a derivation in
+     * one step from the database is written onto the <i>rederivedStore</i> as
+     * an inference. No {@link Justification}s are generated.
+     * <p>
+     * The rules are those of the {@link FullClosure}, whatever the closure
+     * class of the database, since a single step of the {@link FastClosure}
+     * program is not always a single rule.
+     * 
+     * @param overdeletedStore
+     *            The statements which were removed from the database.
+     * @param rederivedStore
+     *            The store on which the rederived statements are written.
+     * 
+     * @return Statistics about the operation.
+     * 
+     * @see TMUtility#mapRuleForRederivation(IRule, String, String)
+     * @see TruthMaintenance#retractAll(TempTripleStore)
+     */
+    public synchronized ClosureStats rederive(
+            final TempTripleStore overdeletedStore,
+            final TempTripleStore rederivedStore) {
+
+        if (overdeletedStore == null)
+            throw new IllegalArgumentException();
+
+        if (rederivedStore == null)
+            throw new IllegalArgumentException();
+
+        final String db = database.getSPORelation().getNamespace();
+
+        if (rederivationRules == null) {
+
+            rederivationRules = SemiNaiveClosure.getRules(new FullClosure(
+                    database), db);
+
+        }
+
+        final Program program = new Program("rederive", true/* parallel */);
+
+        for (IRule rule : rederivationRules) {
+
+            program.addStep(TMUtility.INSTANCE.mapRuleForRederivation(rule,
+                    overdeletedStore.getSPORelation().getNamespace(),
+                    rederivedStore.getSPORelation().getNamespace()));
+
+        }
+
+        if (DEBUG)
+            log.debug("program=" + program);
+
+        try {
+
+            final long begin = System.currentTimeMillis();
+
+            final IJoinNexusFactory joinNexusFactory = database
+                    .newJoinNexusFactory(RuleContextEnum.TruthMaintenance,
+                            ActionEnum.Insert, IJoinNexus.ELEMENT,
+                            doNotAddFilter, false/* justify */,
+                            false/* backchain */,
+                            DefaultEvaluationPlanFactory2.INSTANCE);
+
+            final long mutationCount = joinNexusFactory.newInstance(
+                    database.getIndexManager()).runMutation(program);
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            return new ClosureStats(mutationCount, elapsed);
+
+        } catch (Exception ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+    }
     
 }
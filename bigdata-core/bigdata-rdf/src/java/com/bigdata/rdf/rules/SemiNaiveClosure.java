@@ -0,0 +1,460 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.rules;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.rdf.inf.ClosureStats;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.relation.rule.IProgram;
+import com.bigdata.relation.rule.IRule;
+import com.bigdata.relation.rule.IStep;
+import com.bigdata.relation.rule.Program;
+import com.bigdata.relation.rule.eval.IJoinNexus;
+import com.bigdata.relation.rule.eval.IJoinNexusFactory;
+
+/**
+ * Semi-naive evaluation of the closure of a focusStore against the database.
+ * <p>
+ * The fix point of a {@link MappedProgram} re-evaluates every rule against the
+ * entire focusStore in each round, so the cost of each round grows with all of
+ * the statements which have been entailed so far. Instead, each round of this
+ * evaluation joins only the statements which were first derived in the
+ * previous round (the <em>delta</em>) against the fused view of the database
+ * and the focusStore (see {@link TMUtility#mapRuleForDelta(IRule, String,
+ * String, String)}). The entailments of a round are written onto a new
+ * {@link TempTripleStore}. Those which were not already in the focusStore
+ * become the delta for the next round and all of them (together with their
+ * justifications) are then copied into the focusStore. The closure is at a
+ * fix point when a round does not produce any new statements. The first
+ * round uses the focusStore itself as the delta, which is the same as the
+ * first round of the {@link MappedProgram}.
+ * <p>
+ * The rules in each round are independent since they only read on the delta,
+ * the database and the focusStore and only write on the new store, so each
+ * round is a single parallel {@link Program}.
+ * <p>
+ * The {@link FullClosure} program is the fix point of a flat set of
+ * {@link IRule}s, so the entire closure is a single semi-naive fix point. The
+ * {@link FastClosure} program is a sequence of specialized steps, some of
+ * which are the fix point of a set of rules (such as the closure of
+ * <code>rdfs:subPropertyOf</code> and <code>rdfs:subClassOf</code>). Those
+ * steps are evaluated as semi-naive fix points while the other steps are run
+ * once, in the same order, as mapped for truth maintenance (see
+ * {@link #compute(AbstractTripleStore, TempTripleStore, BaseClosure, MappedProgram, IJoinNexusFactory, boolean)}).
+ * <p>
+ * Note: The rounds are evaluated by the rule engine (the {@link IJoinNexus})
+ * rather than as bop pipelines on the query engine. The rounds are mutations
+ * of the {@link TempTripleStore}s which must write the justifications of each
+ * entailment, some steps of the {@link FastClosure} are custom rule tasks
+ * without a pipeline operator, and the rest of truth maintenance (the mapped
+ * steps and the rederivation step) runs on the rule engine as well, so all of
+ * the steps of a closure share the same evaluation, buffering and
+ * justification semantics.
+ * 
+ * @see InferenceEngine.Options#SEMI_NAIVE_CLOSURE
+ */
+public class SemiNaiveClosure {
+
+    private static final transient Logger log = Logger
+            .getLogger(SemiNaiveClosure.class);
+
+    private final AbstractTripleStore database;
+
+    private final TempTripleStore focusStore;
+
+    private final IRule[] rules;
+
+    private final IJoinNexusFactory joinNexusFactory;
+
+    private final boolean justify;
+
+    /**
+     * The #of rounds which were executed.
+     */
+    private int nrounds = 0;
+
+    /**
+     * @param database
+     *            The database.
+     * @param focusStore
+     *            The statements to be closed against the database. The
+     *            entailments are written onto this store.
+     * @param rules
+     *            The (unmapped) rules whose fix point is the closure.
+     * @param joinNexusFactory
+     *            The factory used to run the rules.
+     * @param justify
+     *            When <code>true</code> the justifications are copied into
+     *            the focusStore together with the entailments.
+     * 
+     * @see #getRules(BaseClosure, String)
+     */
+    public SemiNaiveClosure(final AbstractTripleStore database,
+            final TempTripleStore focusStore, final IRule[] rules,
+            final IJoinNexusFactory joinNexusFactory, final boolean justify) {
+
+        if (database == null)
+            throw new IllegalArgumentException();
+
+        if (focusStore == null)
+            throw new IllegalArgumentException();
+
+        if (rules == null || rules.length == 0)
+            throw new IllegalArgumentException();
+
+        if (joinNexusFactory == null)
+            throw new IllegalArgumentException();
+
+        this.database = database;
+
+        this.focusStore = focusStore;
+
+        this.rules = rules;
+
+        this.joinNexusFactory = joinNexusFactory;
+
+        this.justify = justify;
+
+    }
+
+    /**
+     * Return the rules whose fix point is the closure computed by the given
+     * {@link BaseClosure}.
+     * 
+     * @param closure
+     *            The closure.
+     * @param database
+     *            The namespace of the {@link com.bigdata.rdf.spo.SPORelation}
+     *            for the database.
+     * 
+     * @return The rules -or- <code>null</code> if the closure is not a fix
+     *         point of a set of rules.
+     */
+    static IRule[] getRules(final BaseClosure closure, final String database) {
+
+        return getRules(closure.getProgram(database, null/* focusStore */));
+
+    }
+
+    /**
+     * Return the rules whose fix point is computed by the given step.
+     * 
+     * @param step
+     *            A step of an unmapped closure program.
+     * 
+     * @return The rules -or- <code>null</code> if the step is not the fix
+     *         point of a set of rules.
+     */
+    static IRule[] getRules(final IStep step) {
+
+        if (step.isRule() || !((IProgram) step).isClosure()) {
+
+            // A rule or a sequence of steps (can not be decomposed).
+            return null;
+
+        }
+
+        final List<IRule> rules = new LinkedList<IRule>();
+
+        final Iterator<? extends IStep> itr = ((IProgram) step).steps();
+
+        while (itr.hasNext()) {
+
+            final IStep t = itr.next();
+
+            if (!t.isRule())
+                return null;
+
+            rules.add((IRule) t);
+
+        }
+
+        return rules.isEmpty() ? null : rules.toArray(new IRule[rules.size()]);
+
+    }
+
+    /**
+     * Compute the closure of the focusStore against the database using
+     * semi-naive evaluation for each fix point of the closure program.
+     * <p>
+     * When the program is itself the fix point of a set of rules, the closure
+     * is a single {@link SemiNaiveClosure}. Otherwise the program is a
+     * sequence of steps. The fix points are identified on the unmapped
+     * program, which has the same steps as the mapped <i>program</i>. Each
+     * step which is a fix point is evaluated by a {@link SemiNaiveClosure}
+     * while the other steps of the mapped <i>program</i> are run as is.
+     * 
+     * @param database
+     *            The database.
+     * @param focusStore
+     *            The statements to be closed against the database.
+     * @param closure
+     *            The closure.
+     * @param program
+     *            The closure program mapped for truth maintenance against the
+     *            focusStore.
+     * @param joinNexusFactory
+     *            The factory used to run the rules.
+     * @param justify
+     *            When <code>true</code> the justifications are copied into
+     *            the focusStore together with the entailments.
+     * 
+     * @return Statistics about the closure -or- <code>null</code> if the
+     *         program does not contain any fix point which can be evaluated
+     *         in this manner.
+     */
+    static ClosureStats compute(final AbstractTripleStore database,
+            final TempTripleStore focusStore, final BaseClosure closure,
+            final MappedProgram program,
+            final IJoinNexusFactory joinNexusFactory, final boolean justify)
+            throws Exception {
+
+        final MappedProgram unmapped = closure.getProgram(database
+                .getSPORelation().getNamespace(), null/* focusStore */);
+
+        {
+
+            final IRule[] rules = getRules(unmapped);
+
+            if (rules != null) {
+
+                // The program is a fix point (FullClosure).
+                return new SemiNaiveClosure(database, focusStore, rules,
+                        joinNexusFactory, justify).compute();
+
+            }
+
+        }
+
+        if (unmapped.isClosure() || unmapped.isParallel()
+                || unmapped.stepCount() != program.stepCount())
+            return null;
+
+        // The fix points in the sequence of steps (FastClosure).
+        final IRule[][] fixPoints = new IRule[unmapped.stepCount()][];
+
+        {
+
+            boolean found = false;
+
+            final Iterator<? extends IStep> itr = unmapped.steps();
+
+            for (int i = 0; itr.hasNext(); i++) {
+
+                fixPoints[i] = getRules(itr.next());
+
+                if (fixPoints[i] != null)
+                    found = true;
+
+            }
+
+            if (!found)
+                return null;
+
+        }
+
+        final long begin = System.currentTimeMillis();
+
+        long mutationCount = 0L;
+
+        final Iterator<? extends IStep> itr = program.steps();
+
+        for (int i = 0; itr.hasNext(); i++) {
+
+            final IStep step = itr.next();
+
+            if (fixPoints[i] != null) {
+
+                mutationCount += new SemiNaiveClosure(database, focusStore,
+                        fixPoints[i], joinNexusFactory, justify).compute().mutationCount
+                        .get();
+
+            } else {
+
+                mutationCount += joinNexusFactory.newInstance(
+                        database.getIndexManager()).runMutation(step);
+
+            }
+
+        }
+
+        final long elapsed = System.currentTimeMillis() - begin;
+
+        if (log.isInfoEnabled())
+            log.info("program=" + program.getName() + ", mutationCount="
+                    + mutationCount + ", elapsed=" + elapsed + "ms");
+
+        return new ClosureStats(mutationCount, elapsed);
+
+    }
+
+    /**
+     * The #of rounds which were executed.
+     */
+    public int getRoundCount() {
+
+        return nrounds;
+
+    }
+
+    /**
+     * Compute the closure.
+     * 
+     * @return The #of entailments which were added to the focusStore.
+     */
+    public ClosureStats compute() throws Exception {
+
+        final long begin = System.currentTimeMillis();
+
+        final String focus = focusStore.getSPORelation().getNamespace();
+
+        long mutationCount = 0L;
+
+        // The first round reads on the focusStore.
+        TempTripleStore delta = focusStore;
+
+        try {
+
+            while (true) {
+
+                nrounds++;
+
+                final TempTripleStore head = newTempTripleStore();
+
+                final long nnew;
+
+                try {
+
+                    final Program program = new Program("semiNaiveClosure#"
+                            + nrounds, true/* parallel */);
+
+                    for (IRule rule : rules) {
+
+                        program.addSteps(TMUtility.INSTANCE.mapRuleForDelta(
+                                rule, delta.getSPORelation().getNamespace(),
+                                focus, head.getSPORelation().getNamespace())
+                                .steps());
+
+                    }
+
+                    joinNexusFactory.newInstance(database.getIndexManager())
+                            .runMutation(program);
+
+                    if (delta != focusStore) {
+
+                        delta.close();
+
+                    }
+
+                    delta = null;
+
+                    // The entailments which are new to the focusStore.
+                    final TempTripleStore next = newTempTripleStore();
+
+                    delta = next;
+
+                    nnew = next.addStatements(focusStore
+                            .bulkFilterStatements(
+                                    head.getAccessPath(
+                                            head.getSPORelation()
+                                                    .getPrimaryKeyOrder())
+                                            .iterator(), false/* present */),
+                            null/* filter */);
+
+                    /*
+                     * Note: All entailments are copied since a statement which
+                     * is already in the focusStore may have new
+                     * justifications.
+                     */
+                    head.copyStatements(focusStore, null/* filter */, justify);
+
+                } finally {
+
+                    head.close();
+
+                }
+
+                if (log.isDebugEnabled())
+                    log.debug("round=" + nrounds + ", new=" + nnew);
+
+                mutationCount += nnew;
+
+                if (nnew == 0L)
+                    break;
+
+            }
+
+        } finally {
+
+            if (delta != null && delta != focusStore) {
+
+                delta.close();
+
+            }
+
+        }
+
+        final long elapsed = System.currentTimeMillis() - begin;
+
+        if (log.isInfoEnabled())
+            log.info("rounds=" + nrounds + ", mutationCount=" + mutationCount
+                    + ", elapsed=" + elapsed + "ms");
+
+        return new ClosureStats(mutationCount, elapsed);
+
+    }
+
+    /**
+     * A new {@link TempTripleStore} on the same backing store as the
+     * focusStore.
+     * 
+     * @see com.bigdata.rdf.inf.TruthMaintenance#newTempTripleStore()
+     */
+    private TempTripleStore newTempTripleStore() {
+
+        final Properties properties = database.getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.LEXICON, "false");
+
+        properties.setProperty(AbstractTripleStore.Options.BLOOM_FILTER,
+                "false");
+
+        return new TempTripleStore(focusStore.getIndexManager(), properties,
+                database);
+
+    }
+
+}
@@ -128,11 +128,48 @@ public class TMUtility {
     public Program mapRuleForTruthMaintenance(final IRule rule,
             final String focusStore) {
 
+        return mapRuleForDelta(rule, focusStore, focusStore, focusStore);
+
+    }
+
+    /**
+     * Variant of {@link #mapRuleForTruthMaintenance(IRule, String)} used for
+     * semi-naive evaluation of the closure. For each of the N new rules,
+     * tail[i] reads from the <i>deltaStore</i> (the statements which were
+     * first derived in the previous round) while all other predicates in the
+     * tail read from the fused view of the [database + focusStore]. The head of
+     * each new rule writes on the <i>headStore</i>.
+     * 
+     * @param rule
+     *            The original rule.
+     * @param deltaStore
+     *            The statements which were first derived in the previous
+     *            round. These statements MUST also be present in the
+     *            <i>focusStore</i>.
+     * @param focusStore
+     *            All statements which have been added to (or collected for
+     *            removal from) the database so far.
+     * @param headStore
+     *            The relation on which the entailments will be written.
+     * 
+     * @return An {@link IProgram} constructed as specified above.
+     * 
+     * @see SemiNaiveClosure
+     */
+    public Program mapRuleForDelta(final IRule rule, final String deltaStore,
+            final String focusStore, final String headStore) {
+
         if (rule == null)
             throw new IllegalArgumentException();
 
+        if (deltaStore == null)
+            throw new IllegalArgumentException();
+
         if (focusStore == null)
             throw new IllegalArgumentException();
+
+        if (headStore == null)
+            throw new IllegalArgumentException();
         
         final List<IRule> rules = new LinkedList<IRule>();
 
@@ -152,7 +189,7 @@ public class TMUtility {
         
             if (rule.getHead() instanceof SPOPredicate) {
 
-                head = rule.getHead().setRelationName(new String[] { focusStore });
+                head = rule.getHead().setRelationName(new String[] { headStore });
 
             } else {
 
@@ -253,7 +290,7 @@ public class TMUtility {
                              * predicate in the tail.
                              */
 
-                            p2 = p.setRelationName(new String[] { focusStore });
+                            p2 = p.setRelationName(new String[] { deltaStore });
 
                         } else {
 
@@ -335,6 +372,84 @@ public class TMUtility {
 
     }
 
+    /**
+     * Map a rule for the rederivation step of delete and rederive truth
+     * maintenance. The new rule has the head of the original rule as an
+     * additional predicate in its tail which reads from the
+     * <i>overdeletedStore</i>. All other predicates in the tail read from the
+     * original relation (the database, from which the overdeleted statements
+     * have already been removed). The new rule therefore computes exactly those
+     * overdeleted statements which still have a derivation in one step from
+     * the database. The head of the new rule writes on the <i>headStore</i>.
+     * <p>
+     * Note: The new rule does not use the
+     * {@link com.bigdata.relation.rule.eval.IRuleTaskFactory} of the original
+     * rule since the custom evaluation of a rule (such as a distinct
+     * term scan) does not know about the additional predicate. The new rule is
+     * evaluated as an ordinary join instead.
+     * 
+     * @param rule
+     *            The original rule.
+     * @param overdeletedStore
+     *            The statements which were removed from the database.
+     * @param headStore
+     *            The relation on which the rederived statements will be
+     *            written.
+     * 
+     * @return The new rule.
+     */
+    public IRule mapRuleForRederivation(final IRule rule,
+            final String overdeletedStore, final String headStore) {
+
+        if (rule == null)
+            throw new IllegalArgumentException();
+
+        if (overdeletedStore == null)
+            throw new IllegalArgumentException();
+
+        if (headStore == null)
+            throw new IllegalArgumentException();
+
+        if (!(rule.getHead() instanceof SPOPredicate))
+            throw new IllegalArgumentException("Not an SPO head: rule=" + rule);
+
+        final int tailCount = rule.getTailCount();
+
+        final IPredicate[] tail = new IPredicate[tailCount + 1];
+
+        // The head of the rule must match an overdeleted statement.
+        tail[0] = rule.getHead().setRelationName(
+                new String[] { overdeletedStore });
+
+        for (int i = 0; i < tailCount; i++) {
+
+            tail[i + 1] = rule.getTail(i);
+
+        }
+
+        final IConstraint[] constraints;
+        {
+
+            final int constraintCount = rule.getConstraintCount();
+
+            constraints = constraintCount == 0 ? null
+                    : new IConstraint[constraintCount];
+
+            for (int i = 0; i < constraintCount; i++) {
+
+                constraints[i] = rule.getConstraint(i);
+
+            }
+
+        }
+
+        return new Rule(rule.getName() + "[rederive]", rule.getHead()
+                .setRelationName(new String[] { headStore }), tail,
+                rule.getQueryOptions(), constraints, rule.getConstants(),
+                null/* taskFactory */);
+
+    }
+
     /**
      * Map a {@link IProgram} for truth maintenance.
      * 
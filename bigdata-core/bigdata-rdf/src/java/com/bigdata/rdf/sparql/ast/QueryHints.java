@@ -37,6 +37,12 @@ import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
 import com.bigdata.bop.join.HashJoinAnnotations;
+import com.bigdata.bop.join.JVMHashJoinAnnotations;
+import com.bigdata.bop.join.JVMHashJoinUtility;
+import com.bigdata.bop.join.JVMPartitionedHashJoinUtility;
+import com.bigdata.bop.solutions.ExternalSortOp;
+import com.bigdata.bop.solutions.MemorySortOp;
+import com.bigdata.bop.solutions.TopKSortOp;
 import com.bigdata.htree.HTree;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.rdf.sparql.ast.cache.CacheConnectionFactory;
@@ -150,6 +156,17 @@ public interface QueryHints {
 
     int DEFAULT_RTO_NEDGES = 1;
 
+    /**
+     * The maximum time in milliseconds which the runtime query optimizer may
+     * spend exploring the join paths of a join group (default
+     * {@value #DEFAULT_RTO_MAX_TIME}). Once this budget is exhausted, the RTO
+     * stops deepening its samples and completes the join path having the
+     * lowest estimated cost so far by greedy extension.
+     */
+    String RTO_MAX_TIME = "RTO-maxTime";
+
+    long DEFAULT_RTO_MAX_TIME = Long.MAX_VALUE;
+
     /**
      * Query hint sets the optimistic threshold for the static join order
      * optimizer.
@@ -298,6 +315,57 @@ public interface QueryHints {
 
     boolean DEFAULT_NATIVE_HASH_JOINS = DEFAULT_ANALYTIC;
 
+    /**
+     * The #of partitions for the JVM hash indices built for the annotated
+     * scope (default {@value #DEFAULT_HASH_JOIN_PARTITIONS}). When positive,
+     * the hash index is a {@link JVMPartitionedHashJoinUtility} having that
+     * many partitions (rounded up to a power of two), so large builds and
+     * probes are spread across the available processors. When ZERO (0), the
+     * {@link JVMHashJoinUtility} is used. This query hint is ignored when
+     * {@link #NATIVE_HASH_JOINS} are used. It is allowed in any scope and is
+     * transferred as an annotation onto the query plan operators generated
+     * from the annotated scope.
+     * 
+     * @see JVMHashJoinAnnotations#PARTITIONS
+     */
+    String HASH_JOIN_PARTITIONS = "hashJoinPartitions";
+
+    int DEFAULT_HASH_JOIN_PARTITIONS = 0;
+
+    /**
+     * When <code>true</code>, ORDER BY will use the {@link ExternalSortOp},
+     * which spills sorted runs onto the native heap and then merges them. When
+     * <code>false</code>, ORDER BY will use the {@link MemorySortOp} unless the
+     * estimated cardinality of the solutions to be sorted exceeds the
+     * {@link #NATIVE_ORDER_BY_THRESHOLD}.
+     */
+    String NATIVE_ORDER_BY = "nativeOrderBy";
+
+    boolean DEFAULT_NATIVE_ORDER_BY = DEFAULT_ANALYTIC;
+
+    /**
+     * The minimum estimated cardinality of the WHERE clause before ORDER BY
+     * will use the {@link ExternalSortOp} even when
+     * {@link #NATIVE_ORDER_BY} is <code>false</code>.
+     * 
+     * @see #NATIVE_ORDER_BY
+     */
+    String NATIVE_ORDER_BY_THRESHOLD = "nativeOrderByThreshold";
+
+    long DEFAULT_NATIVE_ORDER_BY_THRESHOLD = 1000000L;
+
+    /**
+     * When an ORDER BY is followed by a LIMIT and <code>OFFSET + LIMIT</code>
+     * does not exceed this threshold, the ORDER BY will be evaluated by the
+     * {@link TopKSortOp}, which only retains the best <code>OFFSET + LIMIT</code>
+     * solutions in a bounded priority queue (default
+     * {@value #DEFAULT_ORDER_BY_TOP_K_THRESHOLD}). Use ZERO (0) to disable the
+     * top-K sort.
+     */
+    String ORDER_BY_TOP_K_THRESHOLD = "orderByTopKThreshold";
+
+    long DEFAULT_ORDER_BY_TOP_K_THRESHOLD = 10000L;
+
     /**
      * When <code>true</code>, a merge-join pattern will be recognized if it
      * appears in a join group. When <code>false</code>, this can still be
@@ -482,6 +550,20 @@ public interface QueryHints {
      */
     String AT_ONCE = "atOnce";
 
+    /**
+     * Query hint indicating whether the operators generated from the annotated
+     * scope should write their solutions as columnar chunks (default
+     * {@value #DEFAULT_COLUMNAR}). This query hint is allowed in any scope.
+     * The hint is transferred as an annotation onto all query plan operators
+     * generated from the annotated scope, but only some operators (such as
+     * the projection) produce columnar chunks.
+     * 
+     * @see PipelineOp.Annotations#COLUMNAR
+     */
+    String COLUMNAR = "columnar";
+
+    boolean DEFAULT_COLUMNAR = PipelineOp.Annotations.DEFAULT_COLUMNAR;
+
     /**
      * Sets the target chunk size (aka vector size) for the output buffer of the operator.
      * <p>
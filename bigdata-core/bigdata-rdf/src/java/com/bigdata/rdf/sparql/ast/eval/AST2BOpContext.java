@@ -201,6 +201,30 @@ public class AST2BOpContext implements IdFactory, IEvaluationContext {
      */
     public boolean nativeHashJoins = QueryHints.DEFAULT_NATIVE_HASH_JOINS;
     
+    /**
+     * When <code>true</code>, ORDER BY will use the external memory sort
+     * operator which spills sorted runs onto the native heap.
+     *
+     * @see QueryHints#NATIVE_ORDER_BY
+     */
+    public boolean nativeOrderBy = QueryHints.DEFAULT_NATIVE_ORDER_BY;
+
+    /**
+     * The estimated cardinality at which ORDER BY will use the external memory
+     * sort operator even when {@link #nativeOrderBy} is <code>false</code>.
+     *
+     * @see QueryHints#NATIVE_ORDER_BY_THRESHOLD
+     */
+    public long nativeOrderByThreshold = QueryHints.DEFAULT_NATIVE_ORDER_BY_THRESHOLD;
+
+    /**
+     * The maximum <code>OFFSET + LIMIT</code> for which an ORDER BY followed by
+     * a LIMIT will be evaluated as a top-K sort.
+     * 
+     * @see QueryHints#ORDER_BY_TOP_K_THRESHOLD
+     */
+    public long orderByTopKThreshold = QueryHints.DEFAULT_ORDER_BY_TOP_K_THRESHOLD;
+    
     /**
      * When <code>true</code>, use pipelined hash join operations wherever
      * possible. Otherwise use standard, blocking hash joins (which might be
@@ -407,6 +407,9 @@ public class AST2BOpRTO extends AST2BOpJoins {
         final int nedges = joinGroup.getProperty(QueryHints.RTO_NEDGES,
                 QueryHints.DEFAULT_RTO_NEDGES);
         
+        final long maxTime = joinGroup.getProperty(QueryHints.RTO_MAX_TIME,
+                QueryHints.DEFAULT_RTO_MAX_TIME);
+        
         left = new JoinGraph(leftOrEmpty(left),//
                 new NV(BOp.Annotations.BOP_ID, ctx.nextId()),//
                 new NV(BOp.Annotations.EVALUATION_CONTEXT,
@@ -423,6 +426,7 @@ public class AST2BOpRTO extends AST2BOpJoins {
                 new NV(JoinGraph.Annotations.JOIN_GROUP, rtoJoinGroup),//
                 new NV(JoinGraph.Annotations.LIMIT, limit),//
                 new NV(JoinGraph.Annotations.NEDGES, nedges),//
+                new NV(JoinGraph.Annotations.MAX_TIME, maxTime),//
                 new NV(JoinGraph.Annotations.SAMPLE_TYPE, sampleType.name()),//
                 new NV(JoinGraph.Annotations.DONE_SET, doneSetIn),//
                 new NV(JoinGraph.Annotations.NT, new NT(ctx.getNamespace(),
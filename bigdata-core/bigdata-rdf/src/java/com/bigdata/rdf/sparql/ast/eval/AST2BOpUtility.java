@@ -61,8 +61,10 @@ import com.bigdata.bop.join.HTreeSolutionSetHashJoinOp;
 import com.bigdata.bop.join.HashIndexOp;
 import com.bigdata.bop.join.HashJoinAnnotations;
 import com.bigdata.bop.join.IHashJoinUtilityFactory;
+import com.bigdata.bop.join.JVMHashJoinAnnotations;
 import com.bigdata.bop.join.JVMHashJoinUtility;
 import com.bigdata.bop.join.JVMMergeJoin;
+import com.bigdata.bop.join.JVMPartitionedHashJoinUtility;
 import com.bigdata.bop.join.JVMPipelinedHashJoinUtility;
 import com.bigdata.bop.join.JVMSolutionSetHashJoinOp;
 import com.bigdata.bop.join.JoinAnnotations;
@@ -77,6 +79,7 @@ import com.bigdata.bop.rdf.join.DataSetJoin;
 import com.bigdata.bop.rdf.join.MockTermResolverOp;
 import com.bigdata.bop.rdf.join.VariableUnificationOp;
 import com.bigdata.bop.solutions.DropOp;
+import com.bigdata.bop.solutions.ExternalSortOp;
 import com.bigdata.bop.solutions.GroupByOp;
 import com.bigdata.bop.solutions.GroupByRewriter;
 import com.bigdata.bop.solutions.GroupByState;
@@ -92,6 +95,7 @@ import com.bigdata.bop.solutions.PipelinedAggregationOp;
 import com.bigdata.bop.solutions.ProjectionOp;
 import com.bigdata.bop.solutions.SliceOp;
 import com.bigdata.bop.solutions.SortOrder;
+import com.bigdata.bop.solutions.TopKSortOp;
 import com.bigdata.btree.IRangeQuery;
 import com.bigdata.rdf.error.SparqlTypeErrorException;
 import com.bigdata.rdf.internal.ILexiconConfiguration;
@@ -159,6 +163,7 @@ import com.bigdata.rdf.sparql.ast.UnionNode;
 import com.bigdata.rdf.sparql.ast.ValueExpressionNode;
 import com.bigdata.rdf.sparql.ast.VarNode;
 import com.bigdata.rdf.sparql.ast.ZeroLengthPathNode;
+import com.bigdata.rdf.sparql.ast.optimizers.ASTCardinalityOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTExistsOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTJoinOrderByTypeOptimizer;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTNamedSubqueryOptimizer;
@@ -308,6 +313,14 @@ public class AST2BOpUtility extends AST2BOpRTO {
         left = (PipelineOp) left.setProperty(
                 QueryEngine.Annotations.QUERY_ID, ctx.queryId);
 
+        /*
+         * Mark the top-level of the query plan with the tenant (the namespace
+         * of the KB) for admission control. Subqueries are not marked, so they
+         * are never delayed by admission control.
+         */
+        left = (PipelineOp) left.setProperty(QueryEngine.Annotations.TENANT,
+                ctx.getNamespace());
+
         // Attach the query plan to the ASTContainer.
         astContainer.setQueryPlan(left);
         
@@ -1500,7 +1513,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
                 if (ctx.nativeHashJoins) {
                     joinUtilFactory = HTreeHashJoinUtility.factory;
                 } else {
-                    joinUtilFactory = JVMHashJoinUtility.factory;
+                    joinUtilFactory = getJVMHashJoinUtilityFactory(nsi);
                 }
 
                 left = applyQueryHints(new HashIndexOp(
@@ -2703,6 +2716,62 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Return the predicate for a simple predicate path, e.g.,
+     * <code>?x rdfs:subClassOf* ?y</code>. This is the case when the group
+     * for the arbitrary length path is a single triple pattern with a constant
+     * predicate between the two transitivity variables. The closure of such a
+     * path is computed directly against the access path for that predicate.
+     * 
+     * <p>
+     * In quads mode this is only done when the query does not specify a data
+     * set, in which case the default graph is the merge of all graphs and the
+     * closure may read the statements from all graphs.
+     * 
+     * @return The predicate -or- <code>null</code> if the path is not a simple
+     *         predicate path or if the closure can not be computed that way
+     *         (scale-out and quads mode with a data set).
+     * 
+     * @see ArbitraryLengthPathOp.Annotations#PREDICATE
+     */
+    private static IPredicate<?> getSimplePathPredicate(
+            final JoinGroupNode subgroup, final IVariable<?> tVarLeft,
+            final IVariable<?> tVarRight, final AST2BOpContext ctx) {
+
+        if (ctx.isCluster())
+            return null;
+
+        if (ctx.isQuads()
+                && ctx.astContainer.getOptimizedAST().getDataset() != null)
+            return null;
+
+        if (subgroup.arity() != 1
+                || !(subgroup.get(0) instanceof StatementPatternNode))
+            return null;
+
+        final StatementPatternNode sp = (StatementPatternNode) subgroup.get(0);
+
+        if (sp.c() != null || sp.sid() != null || sp.getRange() != null
+                || sp.isOptional() || !sp.getAttachedJoinFilters().isEmpty())
+            return null;
+
+        if (!sp.p().isConstant()
+                || ((ConstantNode) sp.p()).getValueExpression().get()
+                        .isNullIV())
+            return null;
+
+        final Object s = sp.s().getValueExpression();
+
+        final Object o = sp.o().getValueExpression();
+
+        if (!(tVarLeft.equals(s) && tVarRight.equals(o))
+                && !(tVarRight.equals(s) && tVarLeft.equals(o)))
+            return null;
+
+        return toPredicate(sp, ctx);
+
+    }
+
     /**
      * Generate the query plan for an arbitrary length path.
      */
@@ -2850,6 +2919,10 @@ public class AST2BOpUtility extends AST2BOpRTO {
             dropVars.add(v.getValueExpression());
         }
 
+        // The predicate iff this is a simple predicate path.
+        final IPredicate<?> pathPred = edgeVar == null ? getSimplePathPredicate(
+                subgroup, tVarLeft, tVarRight, ctx) : null;
+
         PipelineOp alpOp = null;
         if (usePipelinedHashJoin) {
 
@@ -2870,6 +2943,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
                  new NV(ArbitraryLengthPathOp.Annotations.UPPER_BOUND, alpNode.upperBound()),
                      new NV(ArbitraryLengthPathOp.Annotations.PROJECT_IN_VARS, projectInVarsArr),
                      new NV(ArbitraryLengthPathOp.Annotations.DROP_VARS, dropVars),
+                     new NV(ArbitraryLengthPathOp.Annotations.PREDICATE, pathPred),
                  new NV(Predicate.Annotations.BOP_ID, ctx.nextId()),//
                  new NV(BOp.Annotations.EVALUATION_CONTEXT,
                         BOpEvaluationContext.CONTROLLER)//
@@ -2901,6 +2975,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
                  new NV(ArbitraryLengthPathOp.Annotations.UPPER_BOUND, alpNode.upperBound()),
                      new NV(ArbitraryLengthPathOp.Annotations.PROJECT_IN_VARS, projectInVarsArr),
                      new NV(ArbitraryLengthPathOp.Annotations.DROP_VARS, dropVars),
+                     new NV(ArbitraryLengthPathOp.Annotations.PREDICATE, pathPred),
                  new NV(Predicate.Annotations.BOP_ID, ctx.nextId()),//
                  new NV(BOp.Annotations.EVALUATION_CONTEXT,
                         BOpEvaluationContext.CONTROLLER)//
@@ -3604,7 +3679,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
             if (ctx.nativeHashJoins) {
                 joinUtilFactory = HTreeHashJoinUtility.factory;
             } else {
-                joinUtilFactory = JVMHashJoinUtility.factory;
+                joinUtilFactory = getJVMHashJoinUtilityFactory(joinGroup);
             }
             
             left = applyQueryHints(new HashIndexOp(leftOrEmpty(left),//
@@ -4758,6 +4833,71 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
         left = addMaterializationSteps2(left, sortId, vars, queryHints, ctx);
 
+        final long topK = getTopK(queryBase, ctx);
+
+        if (topK > 0) {
+
+            /*
+             * ORDER BY ... LIMIT. Only the first OFFSET+LIMIT solutions are
+             * retained. The SLICE is still applied downstream.
+             */
+
+            left = applyQueryHints(
+                    new TopKSortOp(
+                            leftOrEmpty(left),
+                            NV.asMap(new NV[] {//
+                                    new NV(TopKSortOp.Annotations.BOP_ID, sortId),//
+                                    new NV(TopKSortOp.Annotations.SORT_ORDER,
+                                            sortOrders),//
+                                    new NV(
+                                            TopKSortOp.Annotations.VALUE_COMPARATOR,
+                                            new IVComparator()),//
+                                    new NV(TopKSortOp.Annotations.LIMIT, (int) topK),//
+                                    new NV(
+                                            TopKSortOp.Annotations.EVALUATION_CONTEXT,
+                                            BOpEvaluationContext.CONTROLLER),//
+                                    new NV(TopKSortOp.Annotations.PIPELINED, true),//
+                                    new NV(TopKSortOp.Annotations.MAX_PARALLEL, 1),//
+                                    new NV(TopKSortOp.Annotations.REORDER_SOLUTIONS, false),//
+                                    new NV(TopKSortOp.Annotations.LAST_PASS, true),//
+                            })), queryHints, ctx);
+
+            return left;
+
+        }
+
+        if (ctx.nativeOrderBy
+                || getEstimatedCardinality(queryBase) >= ctx.nativeOrderByThreshold) {
+
+            /*
+             * Use the external memory sort. It only spills onto the native heap
+             * if the solutions overflow a single run, so this is cheap when the
+             * estimate turns out to be too high.
+             */
+
+            left = applyQueryHints(
+                    new ExternalSortOp(
+                            leftOrEmpty(left),
+                            NV.asMap(new NV[] {//
+                                    new NV(ExternalSortOp.Annotations.BOP_ID, sortId),//
+                                    new NV(ExternalSortOp.Annotations.SORT_ORDER,
+                                            sortOrders),//
+                                    new NV(
+                                            ExternalSortOp.Annotations.VALUE_COMPARATOR,
+                                            new IVComparator()),//
+                                    new NV(
+                                            ExternalSortOp.Annotations.EVALUATION_CONTEXT,
+                                            BOpEvaluationContext.CONTROLLER),//
+                                    new NV(ExternalSortOp.Annotations.PIPELINED, true),//
+                                    new NV(ExternalSortOp.Annotations.MAX_PARALLEL, 1),//
+                                    new NV(ExternalSortOp.Annotations.REORDER_SOLUTIONS, false),//
+                                    new NV(ExternalSortOp.Annotations.LAST_PASS, true),//
+                            })), queryHints, ctx);
+
+            return left;
+
+        }
+
         left = applyQueryHints(
                 new MemorySortOp(
                         leftOrEmpty(left),
@@ -4783,6 +4923,82 @@ public class AST2BOpUtility extends AST2BOpRTO {
 
     }
 
+    /**
+     * Return the #of solutions which must be retained by a top-K ORDER BY
+     * (<code>OFFSET + LIMIT</code>) -or- <code>-1L</code> if the ORDER BY
+     * should not be evaluated as a top-K sort. A top-K sort is used when the
+     * ORDER BY is directly followed by a SLICE having a LIMIT and
+     * <code>OFFSET + LIMIT</code> does not exceed
+     * {@link AST2BOpContext#orderByTopKThreshold}. It can not be used with
+     * DISTINCT or REDUCED since those are applied between the ORDER BY and the
+     * SLICE and may drop solutions.
+     */
+    private static long getTopK(final QueryBase queryBase,
+            final AST2BOpContext ctx) {
+
+        final SliceNode slice = queryBase.getSlice();
+
+        if (slice == null || slice.getLimit() == Long.MAX_VALUE)
+            return -1L;
+
+        final ProjectionNode projection = queryBase.getProjection();
+
+        if (projection != null
+                && (projection.isDistinct() || projection.isReduced()))
+            return -1L;
+
+        final long threshold = ctx.orderByTopKThreshold;
+
+        if (slice.getOffset() > threshold || slice.getLimit() > threshold)
+            return -1L;
+
+        final long k = slice.getOffset() + slice.getLimit();
+
+        if (k <= 0 || k > threshold || k > Integer.MAX_VALUE)
+            return -1L;
+
+        return k;
+
+    }
+
+    /**
+     * Return the estimated cardinality of the WHERE clause of a query or
+     * subquery -or- <code>-1L</code> if there is no estimate. When the WHERE
+     * clause itself was not annotated (the {@link ASTCardinalityOptimizer}
+     * only does this for some groups), the largest estimate of its direct
+     * children is used instead. This is only used to decide between
+     * alternative physical operators, so an over-estimate is harmless.
+     */
+    private static long getEstimatedCardinality(final QueryBase queryBase) {
+
+        final GraphPatternGroup<IGroupMemberNode> whereClause = queryBase
+                .getWhereClause();
+
+        if (whereClause == null)
+            return -1L;
+
+        final Long card = (Long) whereClause
+                .getProperty(Annotations.ESTIMATED_CARDINALITY);
+
+        if (card != null)
+            return card.longValue();
+
+        long max = -1L;
+
+        for (IGroupMemberNode child : whereClause) {
+
+            final Long tmp = (Long) ((ASTBase) child)
+                    .getProperty(Annotations.ESTIMATED_CARDINALITY);
+
+            if (tmp != null && tmp.longValue() > max)
+                max = tmp.longValue();
+
+        }
+
+        return max;
+
+    }
+
     /**
      * Impose an OFFSET and/or LIMIT on a query.
      */
@@ -5628,6 +5844,31 @@ public class AST2BOpUtility extends AST2BOpRTO {
     }
 
     
+    /**
+     * Return the factory for a JVM hash index built for the given AST node.
+     * The {@link JVMPartitionedHashJoinUtility} is used when a positive #of
+     * partitions was requested for the node, either with the
+     * {@link QueryHints#HASH_JOIN_PARTITIONS} query hint or with the
+     * {@link JVMHashJoinAnnotations#PARTITIONS} annotation given as a query
+     * hint. Otherwise the {@link JVMHashJoinUtility} is used.
+     * 
+     * @param node
+     *            The AST node from which the hash index is generated.
+     */
+    private static IHashJoinUtilityFactory getJVMHashJoinUtilityFactory(
+            final ASTBase node) {
+
+        final int partitions = node.getQueryHintAsInteger(
+                JVMHashJoinAnnotations.PARTITIONS,
+                QueryHints.DEFAULT_HASH_JOIN_PARTITIONS);
+
+        if (partitions > 0)
+            return JVMPartitionedHashJoinUtility.factory;
+
+        return JVMHashJoinUtility.factory;
+
+    }
+
     /**
      * 
      * @param left the left-side pipeline op
@@ -5700,7 +5941,7 @@ public class AST2BOpUtility extends AST2BOpRTO {
           if (usePipelinedHashJoin) {
              joinUtilFactory = JVMPipelinedHashJoinUtility.factory;             
           } else {
-             joinUtilFactory = JVMHashJoinUtility.factory;             
+             joinUtilFactory = getJVMHashJoinUtilityFactory(node);
           }
        }
        
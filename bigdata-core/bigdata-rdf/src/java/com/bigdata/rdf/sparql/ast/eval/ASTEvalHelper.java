@@ -129,34 +129,43 @@ public class ASTEvalHelper {
             final Dataset dataset)
             throws QueryEvaluationException {
 
-        final AST2BOpContext context = new AST2BOpContext(astContainer, store);
+        return evaluateBooleanQuery(store, astContainer, globallyScopedBS,
+                dataset, null/* planCache */, null/* baseURI */);
 
-        final DeferredResolutionResult resolved;
-        try {
-        	// @see https://jira.blazegraph.com/browse/BLZG-1176
-            resolved = ASTDeferredIVResolution.resolveQuery(
-                store, astContainer, globallyScopedBS, dataset, context);
-        } catch (MalformedQueryException e) {
-            throw new QueryEvaluationException(e.getMessage(), e);
-        }
-
-        if (resolved.dataset != null) {
-            astContainer.getOriginalAST().setDataset(
-                new DatasetNode(resolved.dataset, false/* update */));
-        }
-
-
-        // Clear the optimized AST.
-        astContainer.clearOptimizedAST();
+    }
 
-        // Batch resolve Values to IVs and convert to bigdata binding set.
-        final IBindingSet[] globallyScopedBSAsList = toBindingSet(resolved.bindingSet) ;
+    /**
+     * Evaluate a boolean query, reusing a compiled query if one is available.
+     * 
+     * @param store
+     *            The {@link AbstractTripleStore} having the data.
+     * @param astContainer
+     *            The {@link ASTContainer}.
+     * @param globallyScopedBS
+     *            The initial solution to kick things off.
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     * 
+     * @return <code>true</code> if there are any solutions to the query.
+     * 
+     * @throws QueryEvaluationException
+     */
+    static public boolean evaluateBooleanQuery(
+            final AbstractTripleStore store,
+            final ASTContainer astContainer,
+            final BindingSet globallyScopedBS,
+            final Dataset dataset,
+            final QueryPlanCache planCache,
+            final String baseURI)
+            throws QueryEvaluationException {
 
-        // Convert the query (generates an optimized AST as a side-effect).
-        AST2BOpUtility.convert(context, globallyScopedBSAsList);
+        final AST2BOpContext context = new AST2BOpContext(astContainer, store);
 
         // The optimized AST.
-        final QueryRoot optimizedQuery = astContainer.getOptimizedAST();
+        final QueryRoot optimizedQuery = optimizeQuery(astContainer, context,
+                globallyScopedBS, dataset, planCache, baseURI);
 
         // Note: We do not need to materialize anything for ASK.
         final boolean materializeProjectionInQuery = context.materializeProjectionInQuery
@@ -206,10 +215,41 @@ public class ASTEvalHelper {
             final QueryBindingSet globallyScopedBS,
             final Dataset dataset) throws QueryEvaluationException {
 
+        return evaluateTupleQuery(store, astContainer, globallyScopedBS,
+                dataset, null/* planCache */, null/* baseURI */);
+
+    }
+
+    /**
+     * Evaluate a SELECT query, reusing a compiled query if one is available.
+     * 
+     * @param store
+     *            The {@link AbstractTripleStore} having the data.
+     * @param astContainer
+     *            The {@link ASTContainer}.
+     * @param globallyScopedBS
+     *            The initial solution to kick things off.
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     * 
+     * @return An object from which the solutions may be drained.
+     * 
+     * @throws QueryEvaluationException
+     */
+    static public TupleQueryResult evaluateTupleQuery(
+            final AbstractTripleStore store,
+            final ASTContainer astContainer,
+            final QueryBindingSet globallyScopedBS,
+            final Dataset dataset,
+            final QueryPlanCache planCache,
+            final String baseURI) throws QueryEvaluationException {
+
         final AST2BOpContext context = new AST2BOpContext(astContainer, store);
 
-        final QueryRoot optimizedQuery = 
-                optimizeQuery(astContainer, context, globallyScopedBS, dataset);
+        final QueryRoot optimizedQuery = optimizeQuery(astContainer, context,
+                globallyScopedBS, dataset, planCache, baseURI);
         
         // Get the projection for the query.
         final IVariable<?>[] projected = astContainer.getOptimizedAST()
@@ -247,6 +287,73 @@ public class ASTEvalHelper {
 
     }
 
+    /**
+     * Evaluate a SELECT query, reusing a compiled query if one is available,
+     * without materializing the {@link IV}s in the solutions. This is used by
+     * consumers which write the {@link IV}s directly and only resolve those
+     * which are not inline, e.g., the binary SPARQL results format.
+     * <p>
+     * The projected variables are reported by the optimized AST once this
+     * method returns.
+     * 
+     * @param store
+     *            The {@link AbstractTripleStore} having the data.
+     * @param astContainer
+     *            The {@link ASTContainer}.
+     * @param globallyScopedBS
+     *            The initial solution to kick things off.
+     * @param dataset
+     *            The data set (optional).
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     * 
+     * @return The chunks of solutions. The caller MUST close the iterator.
+     * 
+     * @throws QueryEvaluationException
+     */
+    static public ICloseableIterator<IBindingSet[]> evaluateTupleQueryIVs(
+            final AbstractTripleStore store,
+            final ASTContainer astContainer,
+            final QueryBindingSet globallyScopedBS,
+            final Dataset dataset,
+            final QueryPlanCache planCache,
+            final String baseURI) throws QueryEvaluationException {
+
+        final AST2BOpContext context = new AST2BOpContext(astContainer, store);
+
+        optimizeQuery(astContainer, context, globallyScopedBS, dataset,
+                planCache, baseURI);
+
+        doSparqlLogging(context);
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        IRunningQuery runningQuery = null;
+        try {
+
+            // Submit query for evaluation.
+            runningQuery = context.queryEngine.eval(queryPlan,
+                    astContainer.getOptimizedASTBindingSets(),
+                    context.getQueryAttributes());
+            runningQuery.setStaticAnalysisStats(context
+                    .getStaticAnalysisStats());
+
+            // Monitor IRunningQuery and cancel if the iterator is closed.
+            return new RunningQueryCloseableIterator<IBindingSet[]>(
+                    runningQuery, runningQuery.iterator());
+
+        } catch (Throwable t) {
+            if (runningQuery != null) {
+                // ensure query is halted.
+                runningQuery.cancel(true/* mayInterruptIfRunning */);
+            }
+            throw new QueryEvaluationException(t);
+        }
+
+    }
+
     /**
      * Evaluate a SELECT query without converting the results into openrdf
      * solutions.
@@ -400,6 +507,43 @@ public class ASTEvalHelper {
             final QueryBindingSet globallyScopedBS,
             final Dataset dataset) throws QueryEvaluationException {
 
+        return optimizeQuery(astContainer, context, globallyScopedBS, dataset,
+                null/* planCache */, null/* baseURI */);
+
+    }
+
+    /**
+     * Optimize a query, reusing a compiled query if one is available. When the
+     * query is compiled, it is entered into the cache.
+     * 
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     * 
+     * @return An optimized AST. The query plan is set on the
+     *         {@link ASTContainer}.
+     * 
+     * @see QueryPlanCache
+     */
+    private static QueryRoot optimizeQuery(
+            final ASTContainer astContainer,
+            final AST2BOpContext context,
+            final BindingSet globallyScopedBS,
+            final Dataset dataset,
+            final QueryPlanCache planCache,
+            final String baseURI) throws QueryEvaluationException {
+
+        final Object planKey = planCache == null ? null : planCache.getKey(
+                context, baseURI, globallyScopedBS, dataset);
+
+        if (planKey != null && planCache.reuse(planKey, context)) {
+
+            // The compiled query was set on the ASTContainer.
+            return astContainer.getOptimizedAST();
+
+        }
+
         final AbstractTripleStore store = context.getAbstractTripleStore();
 
         final DeferredResolutionResult resolved;
@@ -428,6 +572,12 @@ public class ASTEvalHelper {
         // The optimized AST.
         final QueryRoot optimizedQuery = astContainer.getOptimizedAST();
 
+        if (planKey != null) {
+
+            planCache.put(planKey, context);
+
+        }
+
         return optimizedQuery;
         
     }
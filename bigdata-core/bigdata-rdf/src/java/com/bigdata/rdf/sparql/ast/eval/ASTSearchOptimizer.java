@@ -79,6 +79,7 @@ public class ASTSearchOptimizer extends ASTSearchOptimizerBase {
         set.add(BDS.SEARCH_TIMEOUT);
         set.add(BDS.MATCH_REGEX);
         set.add(BDS.RANGE_COUNT);
+        set.add(BDS.SCORER);
       
         searchUris = Collections.unmodifiableSet(set);
   
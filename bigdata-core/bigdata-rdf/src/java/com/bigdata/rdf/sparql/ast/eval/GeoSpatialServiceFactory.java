@@ -115,6 +115,9 @@ import com.bigdata.service.geospatial.GeoSpatialSearchException;
 import com.bigdata.service.geospatial.IGeoSpatialLiteralSerializer;
 import com.bigdata.service.geospatial.IGeoSpatialQuery;
 import com.bigdata.service.geospatial.ZOrderIndexBigMinAdvancer;
+import com.bigdata.service.geospatial.ZOrderKeyDecoder;
+import com.bigdata.service.geospatial.ZOrderRangeScanUtil;
+import com.bigdata.service.geospatial.ZOrderRangeScanUtil.ZOrderRange;
 import com.bigdata.service.geospatial.impl.GeoSpatialQuery;
 import com.bigdata.service.geospatial.impl.GeoSpatialUtility.PointLatLon;
 import com.bigdata.util.concurrent.Haltable;
@@ -222,6 +225,10 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          serviceNode.getQueryHintAsInteger(
             Annotations.NUM_TASKS_PER_THREAD, 
             Annotations.DEFAULT_NUM_TASKS_PER_THREAD);
+      final Integer maxZOrderSubRanges = 
+         serviceNode.getQueryHintAsInteger(
+            Annotations.MAX_ZORDER_SUBRANGES, 
+            Annotations.DEFAULT_MAX_ZORDER_SUBRANGES);
       final Integer threadLocalBufferCapacity = 
          serviceNode.getQueryHintAsInteger(
             BufferAnnotations.CHUNK_CAPACITY, 
@@ -234,6 +241,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       if (DEBUG) {
          log.debug("maxParallel=" + maxParallel);
          log.debug("numTasksPerThread=" + numTasksPerThread);
+         log.debug("maxZOrderSubRanges=" + maxZOrderSubRanges);
          log.debug("threadLocalBufferCapacity=" + threadLocalBufferCapacity);
          log.debug("globalBufferChunkOfChunksCapacity=" + globalBufferChunkOfChunksCapacity);
       }
@@ -250,7 +258,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       return new GeoSpatialServiceCall(searchVar, statementPatterns,
             getServiceOptions(), dflts, store, maxParallel, 
             numTasksPerThread*maxParallel /* max num tasks to generate */, 
-            minDatapointsPerTask, threadLocalBufferCapacity, 
+            minDatapointsPerTask, maxZOrderSubRanges, threadLocalBufferCapacity, 
             globalBufferChunkOfChunksCapacity, createParams.getStats());
 
    }
@@ -460,6 +468,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       
       private final int numTasks;
       private final int minDatapointsPerTask;      
+      private final int maxZOrderSubRanges;
       private final int threadLocalBufferCapacity;
       private final int globalBufferChunkOfChunksCapacity;
       
@@ -478,7 +487,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final IServiceOptions serviceOptions,
             final GeoSpatialDefaults dflts, final AbstractTripleStore kb,
             final int maxParallel, final int numTasks,
-            final int minDatapointsPerTask,
+            final int minDatapointsPerTask, final int maxZOrderSubRanges,
             final int threadLocalBufferCapacity, 
             final int globalBufferChunkOfChunksCapacity,
             final BaseJoinStats stats) {
@@ -512,6 +521,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             
          this.numTasks = numTasks;
          this.minDatapointsPerTask = minDatapointsPerTask;         
+         this.maxZOrderSubRanges = Math.max(1, maxZOrderSubRanges);
          this.threadLocalBufferCapacity = threadLocalBufferCapacity;
          this.globalBufferChunkOfChunksCapacity = globalBufferChunkOfChunksCapacity;
          
@@ -574,7 +584,8 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          final FutureTask<Void> ft = 
             new FutureTask<Void>(new GeoSpatialServiceCallTask(
                buffer, query.normalize(), kb, vars, context, globals, vf, geoSpatialCounters, 
-               executor, numTasks, minDatapointsPerTask, threadLocalBufferCapacity, stats));
+               executor, numTasks, minDatapointsPerTask, maxZOrderSubRanges, 
+               threadLocalBufferCapacity, stats));
          
          buffer.setFuture(ft); // set the future on the buffer
          kb.getIndexManager().getExecutorService().submit(ft);
@@ -615,6 +626,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          
          private final int numTasks;
          private final int minDatapointsPerTask;
+         private final int maxZOrderSubRanges;
          private final int threadLocalBufferCapacity;
          
          private final BaseJoinStats stats;
@@ -638,7 +650,8 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             final GlobalAnnotations globals, final BigdataValueFactory vf,
             final GeoSpatialCounters geoSpatialCounters, final Executor executor,
             final int numTasks, final int minDatapointsPerTask, 
-            final int threadLocalBufferCapacity, final BaseJoinStats stats) {
+            final int maxZOrderSubRanges, final int threadLocalBufferCapacity, 
+            final BaseJoinStats stats) {
             
             this.buffer = buffer;
             this.queries = queries;
@@ -653,6 +666,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
 
             this.numTasks = numTasks;
             this.minDatapointsPerTask = minDatapointsPerTask;
+            this.maxZOrderSubRanges = maxZOrderSubRanges;
             this.threadLocalBufferCapacity = threadLocalBufferCapacity;
             
             this.stats = stats;
@@ -670,7 +684,9 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
          
          /**
           * Decomposes the context path into subtasks according to the configuration.
-          * Each subtasks is a range scan backed by the buffer.
+          * Each subtasks is a range scan backed by the buffer. The partitions of the
+          * search range are further decomposed into z-order subranges, cutting out
+          * those parts of their z-order range that lie outside of the partition.
           */
          protected List<GeoSpatialServiceCallSubRangeTask> getSubTasks() {
                           
@@ -740,18 +756,35 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
                 final GeoSpatialSearchRange searchRange =
                     new GeoSpatialSearchRange(datatypeConfig, litExt, southWestComponents, northEastComponents);
                 final GeoSpatialSearchRangePartitioner partitioner = new GeoSpatialSearchRangePartitioner(searchRange);
-                for (GeoSpatialSearchRange partition : partitioner.partition(numTasks, totalPointsInRange, minDatapointsPerTask)) {
+                final List<GeoSpatialSearchRange> partitions = 
+                    partitioner.partition(numTasks, totalPointsInRange, minDatapointsPerTask);
+                
+                // the z-order subranges are shared among the partitions
+                final int maxSubRangesPerPartition = Math.max(1, maxZOrderSubRanges / partitions.size());
+                
+                for (GeoSpatialSearchRange partition : partitions) {
                    
                    final Object[] lowerBorder = partition.getLowerBorderComponents();
                    final Object[] upperBorder = partition.getUpperBorderComponents();
                    
-
-                   // set up a subtask for the partition
-                   final GeoSpatialServiceCallSubRangeTask subTask = 
-                      getSubTask(query, lowerBorder, upperBorder,  keyOrder, subjectPos, objectPos, stats);
+                   final List<ZOrderRange> subRanges = ZOrderRangeScanUtil.decompose(
+                       litExt.unpadLeadingZero(litExt.toZOrderByteArray(lowerBorder)),
+                       litExt.unpadLeadingZero(litExt.toZOrderByteArray(upperBorder)),
+                       litExt.getNumDimensions(), maxSubRangesPerPartition);
                    
-                   if (subTask!=null) { // if satisfiable
-                      subTasks.add(subTask);
+                   geoSpatialCounters.registerZOrderSubRanges(subRanges.size());
+
+                   for (ZOrderRange subRange : subRanges) {
+                       
+                      // set up a subtask for the subrange
+                      final GeoSpatialServiceCallSubRangeTask subTask = 
+                         getSubTask(query, subRange.getMin(), subRange.getMax(),  
+                             keyOrder, subjectPos, objectPos, stats);
+                      
+                      if (subTask!=null) { // if satisfiable
+                         subTasks.add(subTask);
+                      }
+                      
                    }
                    
                    // note: this is old debugging code, which is broken
@@ -786,10 +819,8 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
           * range for the given subtask, plus some additional information about key order,
           * subject, and object position.
           * 
-          * @param outerRangeUpperLeftWithTime the upper left geospatial+time point of the outer range
-          * @param outerRangeLowerRightWithTime the lower right geospatial+time point of the outer range 
-          * @param subRangeUpperLeftWithTime the upper left geospatial+time point of sub range covered by the task
-          * @param subRangeLowerRightWithTime the lower right geospatial+time point of sub range covered by the task
+          * @param lowerZOrderKey the z-order min value of the sub range covered by the task (no leading zero)
+          * @param upperZOrderKey the z-order max value of the sub range covered by the task (no leading zero)
           * @param keyOrder the key order of the underlying access path
           * @param subjectPos the position of the subject in the key
           * @param objectPos the position of the object in the key
@@ -798,7 +829,7 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
           */
          protected GeoSpatialServiceCallSubRangeTask getSubTask(
             final IGeoSpatialQuery query,
-            final Object[] lowerBorder, final Object[] upperBorder,
+            final byte[] lowerZOrderKey, final byte[] upperZOrderKey,
             final SPOKeyOrder keyOrder, final int subjectPos, 
             final int objectPos, final BaseJoinStats stats) {
             
@@ -872,19 +903,20 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
             }
 
             // get the access path for the sub range
-            final AccessPath<ISPO> accessPath = getAccessPath(lowerBorder, upperBorder, query);
+            final AccessPath<ISPO> accessPath = getAccessPath(
+                litExt.createIVFromZOrderByteArray(lowerZOrderKey), 
+                litExt.createIVFromZOrderByteArray(upperZOrderKey), query);
             
             if (accessPath==null) {
                return null;
             }
 
             // set up a big min advancer for efficient extraction of relevant values from access path
-            final byte[] lowerZOrderKey = litExt.toZOrderByteArray(lowerBorder);
-            final byte[] upperZOrderKey = litExt.toZOrderByteArray(upperBorder);
-            
+            // (note: the advancer expects the z-order keys with leading zero)
             final Advancer<SPO> bigMinAdvancer = 
                new ZOrderIndexBigMinAdvancer(
-                  lowerZOrderKey, upperZOrderKey, litExt, objectPos, geoSpatialCounters);
+                  litExt.padLeadingZero(lowerZOrderKey), litExt.padLeadingZero(upperZOrderKey), 
+                  litExt, objectPos, geoSpatialCounters);
 
             
             // set up a value resolver
@@ -930,11 +962,26 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
              final GeoSpatialLiteralExtension litExt = 
                  new GeoSpatialLiteralExtension<BigdataValue>(kb.getLexiconRelation(), datatypeConfig);
              
+             return getAccessPath(
+                 litExt.createIV(lowerBorderComponents), 
+                 litExt.createIV(upperBorderComponents), query);
+             
+         }
+
+         /**
+          * Returns the access path for the range between the two given IVs
+          * or null if the access path is known to be unsatisfiable.
+          */
+         @SuppressWarnings({ "unchecked", "rawtypes" })
+         protected AccessPath<ISPO> getAccessPath(
+            final LiteralExtensionIV lowerBorderIV, final LiteralExtensionIV upperBorderIV,
+            final IGeoSpatialQuery query) {
+
             // set up range scan
             final Var oVar = Var.var(); // object position variable
             final RangeNode range = new RangeNode(new VarNode(oVar),
-                  new ConstantNode(litExt.createIV(lowerBorderComponents)),
-                  new ConstantNode(litExt.createIV(upperBorderComponents)));
+                  new ConstantNode(lowerBorderIV),
+                  new ConstantNode(upperBorderIV));
 
             final RangeBOp rangeBop = ASTRangeOptimizer.toRangeBOp(context, range, globals);
             
@@ -1866,6 +1913,11 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
       final private int idxOfLon;
       
       final boolean latLonIndicesValid;
+      
+      // extracts the z-order value from the raw key (lazily initialized)
+      private transient ZOrderKeyDecoder keyDecoder;
+      
+      private transient byte[] zOrder;
 
       public GeoSpatialInCircleFilter(
          final PointLatLon spatialPoint, Double distance,
@@ -1897,28 +1949,19 @@ public class GeoSpatialServiceFactory extends AbstractServiceFactoryBase {
 
          try {
              
+            if (keyDecoder == null) {
+               keyDecoder = new ZOrderKeyDecoder(objectPos, litExt.getNumDimensions());
+               zOrder = new byte[litExt.getNumDimensions() * Long.SIZE / Byte.SIZE];
+            }
+            
+            // decode the components from the z-order value in the raw key
             final byte[] key = ((ITuple<?>) tuple).getKey();
-            final IV[] ivs = IVUtility.decode(key, objectPos + 1);
-
-            final IV oIV = ivs[objectPos];
-
-            final double lat;
-            final double lon;
-            if (oIV instanceof LiteralExtensionIV) {
-                
-               final LiteralExtensionIV lit = (LiteralExtensionIV) oIV;
-
-               long[] longArr = litExt.asLongArray(lit);
-               final Object[] components = litExt.longArrAsComponentArr(longArr);
+            final long[] longArr = 
+               litExt.fromZOrderByteArray(keyDecoder.getZOrder(key, zOrder));
+            final Object[] components = litExt.longArrAsComponentArr(longArr);
 
-               lat = (double)components[idxOfLat];
-               lon = (double)components[idxOfLon];
-               
-            } else {
-                
-                throw new IllegalArgumentException("Invalid IV cannot be cast to LiteralExtensionIV");
-                
-            }
+            final double lat = (double)components[idxOfLat];
+            final double lon = (double)components[idxOfLon];
 
             return 
                CoordinateUtility.distanceInMeters(lat, spatialPointLat, lon, spatialPointLon) <= distanceInMeters;
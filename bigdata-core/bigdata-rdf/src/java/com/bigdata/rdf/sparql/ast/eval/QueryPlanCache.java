@@ -0,0 +1,924 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.Dataset;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NamedSolutionSetRefUtility;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.controller.ServiceCallJoin;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.Tx;
+import com.bigdata.rdf.internal.constraints.IVValueExpression;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.QueryHints;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * A bounded LRU cache of compiled queries. An entry holds the optimized AST
+ * and the query plan generated for a SPARQL query so a query which is issued
+ * again does not have to be run through the AST optimizers and
+ * {@link AST2BOpUtility} again.
+ * <p>
+ * An entry is keyed by the namespace of the KB, the commit point read by the
+ * view, the normalized query string, the base URI, the dataset and the query
+ * hints declared on the {@link ASTContainer}. The query string is normalized
+ * by dropping comments and collapsing runs of whitespace outside of IRIs and
+ * literals, so queries which differ only in their layout share an entry. Since the join order and the pruning
+ * of unknown terms depend on the data, a plan is only reused against a view
+ * which reads on the same commit point. Entries compiled against an older
+ * commit point are dropped when a plan is compiled for a newer commit point of
+ * the same KB. Only read-only transactions against a {@link Journal} are
+ * cached since the commit point read by other views is not known.
+ * <p>
+ * The query plan is bound to the {@link UUID} of the query and to the
+ * timestamp of the view against which it was compiled. When an entry is
+ * reused, those are replaced by the {@link UUID} and timestamp of the new
+ * query. The optimized AST is mutable, so each query which reuses an entry is
+ * given its own copy.
+ * 
+ * @see Options#CAPACITY
+ * @see QueryEngine#getQueryPlanCache()
+ */
+public class QueryPlanCache implements ICounterSetAccess {
+
+    private static final transient Logger log = Logger
+            .getLogger(QueryPlanCache.class);
+
+    /**
+     * Options understood by the {@link QueryPlanCache}. These are specified as
+     * JVM system properties.
+     */
+    public interface Options {
+
+        /**
+         * The maximum #of compiled queries in the cache (default
+         * {@value #DEFAULT_CAPACITY}). The cache is disabled when the capacity
+         * is ZERO (0).
+         */
+        String CAPACITY = QueryPlanCache.class.getName() + ".capacity";
+
+        String DEFAULT_CAPACITY = "0";
+
+    }
+
+    /**
+     * A compiled query.
+     */
+    private static class Entry {
+
+        /** The commit point read by the view. */
+        final long commitTime;
+
+        /** The timestamp of the view against which it was compiled. */
+        final long timestamp;
+
+        /** The {@link UUID} of the query for which it was compiled. */
+        final UUID queryId;
+
+        final QueryRoot optimizedAST;
+
+        final PipelineOp queryPlan;
+
+        final IBindingSet[] bindingSets;
+
+        final boolean materializeProjectionInQuery;
+
+        Entry(final long commitTime, final AST2BOpContext ctx) {
+
+            this.commitTime = commitTime;
+            this.timestamp = ctx.getTimestamp();
+            this.queryId = ctx.queryId;
+            this.optimizedAST = BOpUtility.deepCopy(ctx.astContainer
+                    .getOptimizedAST());
+            this.queryPlan = ctx.astContainer.getQueryPlan();
+            this.bindingSets = ctx.astContainer.getOptimizedASTBindingSets();
+            this.materializeProjectionInQuery = ctx.materializeProjectionInQuery;
+
+        }
+
+    }
+
+    /**
+     * The key for a compiled query.
+     */
+    private static class Key {
+
+        final String namespace;
+
+        final long commitTime;
+
+        final String queryStr;
+
+        /**
+         * Everything else which can change the plan (base URI, dataset, query
+         * hints, etc).
+         */
+        final String options;
+
+        private final int hash;
+
+        Key(final String namespace, final long commitTime,
+                final String queryStr, final String options) {
+
+            this.namespace = namespace;
+            this.commitTime = commitTime;
+            this.queryStr = queryStr;
+            this.options = options;
+            this.hash = ((namespace.hashCode() * 31 + (int) (commitTime ^ (commitTime >>> 32))) * 31 + queryStr
+                    .hashCode()) * 31 + options.hashCode();
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key t = (Key) o;
+
+            return hash == t.hash && commitTime == t.commitTime
+                    && namespace.equals(t.namespace)
+                    && queryStr.equals(t.queryStr)
+                    && options.equals(t.options);
+
+        }
+
+    }
+
+    private final int capacity;
+
+    /**
+     * The compiled queries.
+     * <p>
+     * Note: All access is synchronized on this map.
+     */
+    private final LinkedHashMap<Key, Entry> cache;
+
+    /**
+     * The most recent commit point for which a query was compiled, by
+     * namespace.
+     * <p>
+     * Note: Guarded by {@link #cache}.
+     */
+    private final Map<String, Long> lastCommitTime = new TreeMap<String, Long>();
+
+    /** #of times a compiled query was reused. */
+    private final CAT hits = new CAT();
+
+    /** #of times a cacheable query had to be compiled. */
+    private final CAT misses = new CAT();
+
+    /** #of entries dropped because a newer commit point was observed. */
+    private final CAT invalidations = new CAT();
+
+    /** #of entries dropped because the cache was full. */
+    private final CAT evictions = new CAT();
+
+    /**
+     * @param capacity
+     *            The maximum #of compiled queries in the cache.
+     */
+    public QueryPlanCache(final int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.capacity = capacity;
+
+        this.cache = new LinkedHashMap<Key, Entry>(16/* initialCapacity */,
+                .75f/* loadFactor */, true/* accessOrder */) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+
+                if (size() > QueryPlanCache.this.capacity) {
+
+                    evictions.increment();
+
+                    return true;
+
+                }
+
+                return false;
+
+            }
+
+        };
+
+    }
+
+    /**
+     * Return a new {@link QueryPlanCache} iff one is enabled by
+     * {@link Options#CAPACITY}.
+     * 
+     * @return The cache -or- <code>null</code> if it is disabled.
+     */
+    public static QueryPlanCache newInstance() {
+
+        final int capacity = Integer.valueOf(System.getProperty(
+                Options.CAPACITY, Options.DEFAULT_CAPACITY));
+
+        if (capacity <= 0)
+            return null;
+
+        return new QueryPlanCache(capacity);
+
+    }
+
+    /**
+     * The maximum #of compiled queries in the cache.
+     */
+    public int getCapacity() {
+
+        return capacity;
+
+    }
+
+    /**
+     * The #of compiled queries in the cache.
+     */
+    public int size() {
+
+        synchronized (cache) {
+
+            return cache.size();
+
+        }
+
+    }
+
+    /**
+     * Discard all compiled queries.
+     */
+    public void clear() {
+
+        synchronized (cache) {
+
+            cache.clear();
+
+            lastCommitTime.clear();
+
+        }
+
+    }
+
+    /**
+     * Return the commit point read by the view -or- <code>-1L</code> if the
+     * compiled queries for that view can not be cached.
+     */
+    static long getCommitTime(final AbstractTripleStore store) {
+
+        if (!(store.getIndexManager() instanceof Journal))
+            return -1L;
+
+        final Tx tx = ((Journal) store.getIndexManager())
+                .getLocalTransactionManager().getTx(store.getTimestamp());
+
+        if (tx == null || !tx.isReadOnly())
+            return -1L;
+
+        return tx.getReadsOnCommitTime();
+
+    }
+
+    /**
+     * Return the key under which the compiled query would be cached -or-
+     * <code>null</code> if the query can not be cached.
+     * 
+     * @param ctx
+     *            The evaluation context.
+     * @param baseURI
+     *            The base URI used to parse the query.
+     * @param globallyScopedBS
+     *            The bindings given with the query. A query with bindings is
+     *            not cached.
+     * @param dataset
+     *            The dataset given with the query (optional).
+     */
+    Object getKey(final AST2BOpContext ctx, final String baseURI,
+            final BindingSet globallyScopedBS, final Dataset dataset) {
+
+        final ASTContainer astContainer = ctx.astContainer;
+
+        final String queryStr = astContainer.getQueryString();
+
+        if (queryStr == null || !astContainer.isQuery())
+            return null;
+
+        if (globallyScopedBS != null && globallyScopedBS.size() != 0)
+            return null;
+
+        final AbstractTripleStore store = ctx.getAbstractTripleStore();
+
+        final long commitTime = getCommitTime(store);
+
+        if (commitTime == -1L)
+            return null;
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("baseURI=").append(baseURI);
+
+        sb.append("\ndataset=").append(dataset);
+
+        sb.append("\nincludeInferred=").append(
+                originalQuery.getIncludeInferred());
+
+        sb.append("\ntimeout=").append(originalQuery.getTimeout());
+
+        final Properties queryHints = astContainer.getQueryHints();
+
+        if (queryHints != null) {
+
+            // Note: Sorted for a stable key. The UUID is always different.
+            final TreeMap<String, String> t = new TreeMap<String, String>();
+
+            for (String name : queryHints.stringPropertyNames()) {
+
+                if (!QueryHints.QUERYID.equals(name))
+                    t.put(name, queryHints.getProperty(name));
+
+            }
+
+            sb.append("\nqueryHints=").append(t);
+
+        }
+
+        return new Key(store.getNamespace(), commitTime,
+                normalize(queryStr), sb.toString());
+
+    }
+
+    /**
+     * Return the query string without comments and with each run of
+     * whitespace replaced by a single space. IRIs, string literals and escaped
+     * characters are copied as given.
+     * 
+     * @param queryStr
+     *            The query string.
+     */
+    static String normalize(final String queryStr) {
+
+        final int len = queryStr.length();
+
+        final StringBuilder sb = new StringBuilder(len);
+
+        // true iff whitespace or a comment was skipped.
+        boolean space = false;
+
+        int i = 0;
+
+        while (i < len) {
+
+            final char c = queryStr.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+
+                space = true;
+
+                i++;
+
+                continue;
+
+            }
+
+            if (c == '#') {
+
+                // A comment runs to the end of the line.
+                while (i < len && queryStr.charAt(i) != '\n'
+                        && queryStr.charAt(i) != '\r')
+                    i++;
+
+                space = true;
+
+                continue;
+
+            }
+
+            if (space && sb.length() > 0)
+                sb.append(' ');
+
+            space = false;
+
+            final int end;
+
+            if (c == '"' || c == '\'') {
+
+                end = endOfString(queryStr, i);
+
+            } else if (c == '<') {
+
+                end = endOfIRI(queryStr, i);
+
+            } else if (c == '\\') {
+
+                end = Math.min(i + 2, len);
+
+            } else {
+
+                end = i + 1;
+
+            }
+
+            sb.append(queryStr, i, end);
+
+            i = end;
+
+        }
+
+        return sb.toString();
+
+    }
+
+    /**
+     * Return the index after the string literal which starts at
+     * <i>start</i>.
+     */
+    private static int endOfString(final String s, final int start) {
+
+        final int len = s.length();
+
+        final char quote = s.charAt(start);
+
+        final boolean longString = start + 2 < len
+                && s.charAt(start + 1) == quote && s.charAt(start + 2) == quote;
+
+        int i = start + (longString ? 3 : 1);
+
+        while (i < len) {
+
+            final char c = s.charAt(i);
+
+            if (c == '\\') {
+
+                i += 2;
+
+            } else if (c != quote) {
+
+                i++;
+
+            } else if (!longString) {
+
+                return i + 1;
+
+            } else if (i + 2 < len && s.charAt(i + 1) == quote
+                    && s.charAt(i + 2) == quote) {
+
+                return i + 3;
+
+            } else {
+
+                i++;
+
+            }
+
+        }
+
+        return len;
+
+    }
+
+    /**
+     * Return the index after the IRI which starts at <i>start</i> -or-
+     * <code>start + 1</code> if the <code>&lt;</code> does not start an IRI
+     * (it is a comparison operator).
+     */
+    private static int endOfIRI(final String s, final int start) {
+
+        final int len = s.length();
+
+        for (int i = start + 1; i < len; i++) {
+
+            final char c = s.charAt(i);
+
+            if (c == '>')
+                return i + 1;
+
+            if (c <= ' ' || "<\"{}|^`\\".indexOf(c) != -1)
+                break;
+
+        }
+
+        return start + 1;
+
+    }
+
+    /**
+     * If the query has been compiled, then set the optimized AST and the query
+     * plan on the {@link ASTContainer} of the evaluation context, rebinding the
+     * plan to the {@link UUID} of the query and the timestamp of the view.
+     * 
+     * @param key
+     *            The key from {@link #getKey(AST2BOpContext, String, BindingSet, Dataset)}.
+     * @param ctx
+     *            The evaluation context.
+     * 
+     * @return <code>true</code> iff the compiled query was reused.
+     */
+    boolean reuse(final Object key, final AST2BOpContext ctx) {
+
+        final Entry e;
+        synchronized (cache) {
+            e = cache.get(key);
+        }
+
+        if (e == null) {
+
+            misses.increment();
+
+            return false;
+
+        }
+
+        final PipelineOp queryPlan;
+        try {
+
+            queryPlan = (PipelineOp) rebind(e.queryPlan, e.queryId,
+                    ctx.queryId, e.timestamp, ctx.getTimestamp());
+
+        } catch (RuntimeException ex) {
+
+            /*
+             * Some operator in the plan can not be copied. Do not try to reuse
+             * it again.
+             */
+
+            log.warn("Could not reuse query plan: " + ex);
+
+            synchronized (cache) {
+                cache.remove(key);
+            }
+
+            misses.increment();
+
+            return false;
+
+        }
+
+        final IBindingSet[] bindingSets = new IBindingSet[e.bindingSets.length];
+
+        for (int i = 0; i < bindingSets.length; i++) {
+
+            bindingSets[i] = e.bindingSets[i].clone();
+
+        }
+
+        final ASTContainer astContainer = ctx.astContainer;
+
+        astContainer.setOptimizedAST(BOpUtility.deepCopy(e.optimizedAST));
+
+        astContainer.setQueryPlan(queryPlan);
+
+        astContainer.setOptimizedASTBindingSets(bindingSets);
+
+        ctx.materializeProjectionInQuery = e.materializeProjectionInQuery;
+
+        hits.increment();
+
+        return true;
+
+    }
+
+    /**
+     * Cache the query which was just compiled for the evaluation context.
+     * Compiled queries for older commit points of the same KB are discarded.
+     * 
+     * @param key
+     *            The key from {@link #getKey(AST2BOpContext, String, BindingSet, Dataset)}.
+     * @param ctx
+     *            The evaluation context.
+     */
+    void put(final Object key, final AST2BOpContext ctx) {
+
+        final Key k = (Key) key;
+
+        final Entry e = new Entry(k.commitTime, ctx);
+
+        if (e.queryPlan == null || e.optimizedAST == null)
+            return;
+
+        synchronized (cache) {
+
+            final Long last = lastCommitTime.get(k.namespace);
+
+            if (last == null || last.longValue() < k.commitTime) {
+
+                lastCommitTime.put(k.namespace, k.commitTime);
+
+                if (last != null) {
+
+                    // Drop the plans for older commit points.
+                    final Iterator<Key> itr = cache.keySet().iterator();
+
+                    while (itr.hasNext()) {
+
+                        final Key t = itr.next();
+
+                        if (t.namespace.equals(k.namespace)
+                                && t.commitTime < k.commitTime) {
+
+                            itr.remove();
+
+                            invalidations.increment();
+
+                        }
+
+                    }
+
+                }
+
+            }
+
+            cache.put(k, e);
+
+        }
+
+    }
+
+    /**
+     * The annotations whose value is the timestamp of the view read by an
+     * operator.
+     */
+    private static final Set<String> TIMESTAMP_ANNOTATIONS = Collections
+            .unmodifiableSet(new HashSet<String>(Arrays.asList(
+                    IPredicate.Annotations.TIMESTAMP,
+                    ServiceCallJoin.Annotations.TIMESTAMP,
+                    IVValueExpression.Annotations.TIMESTAMP)));
+
+    /**
+     * Return a copy of the operator in which any reference to the query
+     * <i>fromId</i> or to the view <i>fromTimestamp</i> has been replaced by a
+     * reference to the query <i>toId</i> and the view <i>toTimestamp</i>. The
+     * operator itself is returned if there is no such reference.
+     * <p>
+     * Note: This relies on the <code>(BOp[],Map)</code> constructor which is
+     * also required by {@link com.bigdata.bop.BOpUtility#deepCopy(BOp)}.
+     */
+    static BOp rebind(final BOp op, final UUID fromId, final UUID toId,
+            final long fromTimestamp, final long toTimestamp) {
+
+        if (op == null || op instanceof IVariableOrConstant<?>)
+            return op;
+
+        boolean modified = false;
+
+        final int arity = op.arity();
+
+        final BOp[] args = arity == 0 ? BOp.NOARGS : new BOp[arity];
+
+        for (int i = 0; i < arity; i++) {
+
+            final BOp child = op.get(i);
+
+            args[i] = rebind(child, fromId, toId, fromTimestamp, toTimestamp);
+
+            if (args[i] != child)
+                modified = true;
+
+        }
+
+        final LinkedHashMap<String, Object> anns = new LinkedHashMap<String, Object>();
+
+        for (Map.Entry<String, Object> e : op.annotations().entrySet()) {
+
+            final Object oval = e.getValue();
+
+            final Object nval = rebind(e.getKey(), oval, fromId, toId,
+                    fromTimestamp, toTimestamp);
+
+            if (nval != oval)
+                modified = true;
+
+            anns.put(e.getKey(), nval);
+
+        }
+
+        if (!modified)
+            return op;
+
+        try {
+
+            final Constructor<? extends BOp> ctor = op.getClass()
+                    .getConstructor(BOp[].class, Map.class);
+
+            return ctor.newInstance(args, anns);
+
+        } catch (Exception ex) {
+
+            throw new RuntimeException(op.getClass().getName(), ex);
+
+        }
+
+    }
+
+    /**
+     * Rebind an annotation value.
+     */
+    private static Object rebind(final String name, final Object val,
+            final UUID fromId, final UUID toId, final long fromTimestamp,
+            final long toTimestamp) {
+
+        if (val instanceof BOp) {
+
+            return rebind((BOp) val, fromId, toId, fromTimestamp, toTimestamp);
+
+        }
+
+        if (val instanceof Object[]) {
+
+            final Object[] a = (Object[]) val;
+
+            Object[] b = null;
+
+            for (int i = 0; i < a.length; i++) {
+
+                final Object t = rebind(name, a[i], fromId, toId,
+                        fromTimestamp, toTimestamp);
+
+                if (t != a[i]) {
+
+                    if (b == null)
+                        b = a.clone();
+
+                    b[i] = t;
+
+                }
+
+            }
+
+            return b == null ? a : b;
+
+        }
+
+        if (val instanceof INamedSolutionSetRef) {
+
+            final INamedSolutionSetRef ref = (INamedSolutionSetRef) val;
+
+            if (fromId.equals(ref.getQueryId())) {
+
+                return NamedSolutionSetRefUtility.newInstance(toId,
+                        ref.getLocalName(), ref.getJoinVars());
+
+            }
+
+            if (ref.getNamespace() != null
+                    && ref.getTimestamp() == fromTimestamp) {
+
+                return NamedSolutionSetRefUtility.newInstance(
+                        ref.getNamespace(), toTimestamp, ref.getLocalName(),
+                        ref.getJoinVars());
+
+            }
+
+            return val;
+
+        }
+
+        if (fromId.equals(val)) {
+
+            return toId;
+
+        }
+
+        if (val instanceof Long && ((Long) val).longValue() == fromTimestamp
+                && TIMESTAMP_ANNOTATIONS.contains(name)) {
+
+            return Long.valueOf(toTimestamp);
+
+        }
+
+        return val;
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("capacity", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(capacity);
+            }
+        });
+
+        root.addCounter("size", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(size());
+            }
+        });
+
+        root.addCounter("hits", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        root.addCounter("misses", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        root.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long h = hits.get();
+                final long m = misses.get();
+                if (h > 0 || m > 0)
+                    setValue(h / (double) (h + m));
+            }
+        });
+
+        root.addCounter("invalidations", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(invalidations.get());
+            }
+        });
+
+        root.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(evictions.get());
+            }
+        });
+
+        return root;
+
+    }
+
+}
@@ -313,6 +313,10 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
             	// a variable for the object is equivalent to regex = null
 //                assertObjectIsLiteral(sp);
                 
+            } else if(uri.equals(BDS.SCORER)) {
+                
+                assertObjectIsLiteral(sp);
+                
             } else {
 
                 throw new AssertionError("Unverified search predicate: " + sp);
@@ -380,6 +384,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
         private final boolean subjectSearch;
         private final Literal searchTimeout;
         private final Literal matchRegex;
+        private final Literal scorer;
         private final IVariable<?> rangeCountVar;
         
         public SearchCall(
@@ -439,6 +444,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
             boolean subjectSearch = false;
             Literal searchTimeout = null;
             Literal matchRegex = null;
+            Literal scorer = null;
 
             for (StatementPatternNode meta : statementPatterns.values()) {
 
@@ -474,6 +480,8 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                     searchTimeout = (Literal) oVal;
                 } else if (BDS.MATCH_REGEX.equals(p)) {
                     matchRegex = (Literal) oVal;
+                } else if (BDS.SCORER.equals(p)) {
+                    scorer = (Literal) oVal;
                 }
             }
 
@@ -501,6 +509,7 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
             this.subjectSearch = subjectSearch;
             this.searchTimeout = searchTimeout;
             this.matchRegex = matchRegex;
+            this.scorer = scorer;
             this.rangeCountVar = rangeCountVar;
 
         }
@@ -540,7 +549,8 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                 minRank == null ? BDS.DEFAULT_MIN_RANK/*1*/ : minRank.intValue()/* minRank */,
                 maxRank == null ? BDS.DEFAULT_MAX_RANK/*Integer.MAX_VALUE*/ : maxRank.intValue()/* maxRank */,
                 searchTimeout == null ? BDS.DEFAULT_TIMEOUT/*0L*/ : searchTimeout.longValue()/* timeout */,
-                TimeUnit.MILLISECONDS
+                TimeUnit.MILLISECONDS,
+                scorer == null ? BDS.DEFAULT_SCORER : scorer.stringValue()/* scorer */
                 ));
         
         }
@@ -580,7 +590,8 @@ public class SearchServiceFactory extends AbstractServiceFactoryBase {
                 minRank == null ? BDS.DEFAULT_MIN_RANK/*1*/ : minRank.intValue()/* minRank */,
                 maxRank == null ? BDS.DEFAULT_MAX_RANK/*Integer.MAX_VALUE*/ : maxRank.intValue()/* maxRank */,
                 searchTimeout == null ? BDS.DEFAULT_TIMEOUT/*0L*/ : searchTimeout.longValue()/* timeout */,
-                TimeUnit.MILLISECONDS
+                TimeUnit.MILLISECONDS,
+                scorer == null ? BDS.DEFAULT_SCORER : scorer.stringValue()/* scorer */
                 ));
         
         }
@@ -65,6 +65,7 @@ final class AnalyticQueryHint extends AbstractBooleanQueryHint {
             context.nativeHashJoins = value;
             context.nativeDistinctSolutions = value;
             context.nativeDistinctSPO = value;
+            context.nativeOrderBy = value;
             return;
         }
 
@@ -101,6 +101,7 @@ public class QueryHintRegistry {
         add(new RTOSampleTypeQueryHint());
         add(new RTOLimitQueryHint());
         add(new RTONEdgesQueryHint());
+        add(new RTOMaxTimeQueryHint());
         add(new OptimisticQueryHint());
         add(new NormalizeFilterExpressionHint());
 
@@ -110,6 +111,10 @@ public class QueryHintRegistry {
         add(new NativeDistinctSPOHint());
         add(new NativeDistinctSPOThresholdHint());
         add(new NativeHashJoinsHint());
+        add(new HashJoinPartitionsHint());
+        add(new NativeOrderByHint());
+        add(new NativeOrderByThresholdHint());
+        add(new OrderByTopKThresholdHint());
         
         // JOIN hints.
         add(new MergeJoinHint());
@@ -150,6 +155,7 @@ public class QueryHintRegistry {
          * operator in question is running against the native heap.
          */
         add(new AtOnceHint());
+        add(new ColumnarHint());
         add(new PipelineMaxParallelHint());
         add(new PipelineMaxMessagesPerTaskHint());
         add(new PipelineQueueCapacityHint());
@@ -24,19 +24,27 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.optimizers;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.sparql.ast.ArbitraryLengthPathNode;
 import com.bigdata.rdf.sparql.ast.IBindingProducerNode;
 import com.bigdata.rdf.sparql.ast.IGroupMemberNode;
 import com.bigdata.rdf.sparql.ast.JoinGroupNode;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
 import com.bigdata.rdf.sparql.ast.StaticAnalysis;
 import com.bigdata.rdf.sparql.ast.UnionNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsIndex;
+import com.bigdata.rdf.store.AbstractTripleStore;
 
 /**
  * Calculate the estimated cardinality of a join group.
@@ -158,10 +166,112 @@ public class ASTCardinalityOptimizer extends AbstractJoinGroupOptimizer
 		     * ASTStaticJoinOptimizer.
 		     */
 		    
+		    final long cardinality = estimateStarCardinality(ctx, bSets, nodes);
+		    
+		    if (cardinality >= 0) {
+		        
+		        if (log.isDebugEnabled()) {
+		            log.debug("setting cardinality on a star group: " + cardinality);
+		        }
+		        
+		        group.setProperty(Annotations.ESTIMATED_CARDINALITY, cardinality);
+		        
+		    }
+		    
 		}
 		
 //		group.setProperty(Annotations.ESTIMATED_CARDINALITY, cardinality);
         
     }
+
+    /**
+     * Estimate the cardinality of a group whose binding producers form a star:
+     * required triple patterns having the same subject variable, distinct
+     * constant predicates and distinct object variables. The estimate is taken
+     * from the characteristic sets in the {@link StatisticsIndex}, which
+     * capture the correlation between the predicates of a subject.
+     * 
+     * @return The estimate -or- <code>-1</code> if the group is not a star or
+     *         the statistics are not available for the view.
+     */
+    @SuppressWarnings("rawtypes")
+    private long estimateStarCardinality(final AST2BOpContext ctx,
+            final IBindingSet[] bSets, final List<IBindingProducerNode> nodes) {
+
+        final AbstractTripleStore db = ctx.getAbstractTripleStore();
+
+        if (db == null || db.isQuads())
+            return -1L;
+
+        final IBindingSet exogenous = bSets != null && bSets.length > 0 ? bSets[0]
+                : null;
+
+        final IV[] preds = new IV[nodes.size()];
+
+        final Set<IVariable<?>> vars = new HashSet<IVariable<?>>();
+
+        IVariable<?> s = null;
+
+        for (int i = 0; i < preds.length; i++) {
+
+            if (!(nodes.get(i) instanceof StatementPatternNode))
+                return -1L;
+
+            final StatementPatternNode sp = (StatementPatternNode) nodes.get(i);
+
+            if (sp.isOptional() || sp.getRange() != null || sp.c() != null
+                    || !sp.s().isVariable() || !sp.p().isConstant()
+                    || !sp.o().isVariable())
+                return -1L;
+
+            if (s == null) {
+
+                s = (IVariable<?>) sp.s().getValueExpression();
+
+                if (exogenous != null && exogenous.isBound(s))
+                    return -1L;
+
+            } else if (!s.equals(sp.s().getValueExpression())) {
+
+                return -1L;
+
+            }
+
+            final IVariable<?> o = (IVariable<?>) sp.o().getValueExpression();
+
+            if (o.equals(s) || !vars.add(o)
+                    || (exogenous != null && exogenous.isBound(o)))
+                return -1L;
+
+            final IV p = ((IConstant<IV>) sp.p().getValueExpression()).get();
+
+            if (p == null)
+                return -1L;
+
+            for (int j = 0; j < i; j++) {
+
+                if (preds[j].equals(p))
+                    return -1L;
+
+            }
+
+            preds[i] = p;
+
+        }
+
+        final StatisticsIndex stats = StatisticsIndex.getReadOnlyInstance(db);
+
+        if (stats == null)
+            return -1L;
+
+        final long cardinality = stats.estimateStarCardinality(preds);
+
+        /*
+         * Note: The statistics are not maintained by bulk loads which bypass
+         * the change log, so a ZERO (0) estimate is not trusted.
+         */
+        return cardinality == 0L ? -1L : cardinality;
+
+    }
 	
 }
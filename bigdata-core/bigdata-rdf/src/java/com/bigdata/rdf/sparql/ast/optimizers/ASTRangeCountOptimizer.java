@@ -46,6 +46,7 @@ import com.bigdata.rdf.sparql.ast.StaticAnalysis;
 import com.bigdata.rdf.sparql.ast.TermNode;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsIndex;
 import com.bigdata.rdf.spo.SPORelation;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.relation.accesspath.IAccessPath;
@@ -222,7 +223,32 @@ public class ASTRangeCountOptimizer extends AbstractJoinGroupOptimizer
 		final StaticAnalysisStats saStats = ctx.getStaticAnalysisStats();
 		long start = System.nanoTime();
 		
-		final long cardinality = ap.rangeCount(false/* exact */);
+		long cardinality = 0L;
+		
+		final StatisticsIndex stats = s == null && p != null && o == null
+				&& c == null && range == null ? StatisticsIndex
+				.getReadOnlyInstance(db) : null;
+		
+		if (stats != null) {
+			
+			/*
+			 * Only the predicate is bound, so the #of statements for that
+			 * predicate is the range count.
+			 */
+			cardinality = stats.get(p).getStatementCount();
+			
+		}
+		
+		if (cardinality == 0L) {
+		
+			/*
+			 * Note: The statistics are not maintained by bulk loads which
+			 * bypass the change log, so a ZERO (0) count is verified against
+			 * the statement index since an empty access path is pruned.
+			 */
+			cardinality = ap.rangeCount(false/* exact */);
+			
+		}
 
         saStats.registerRangeCountCall(System.nanoTime() - start);
 		
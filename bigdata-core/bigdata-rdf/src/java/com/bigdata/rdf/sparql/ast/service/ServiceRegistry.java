@@ -48,6 +48,7 @@ import com.bigdata.rdf.sparql.ast.eval.SearchServiceFactory;
 import com.bigdata.rdf.sparql.ast.eval.SliceServiceFactory;
 import com.bigdata.rdf.sparql.ast.eval.ValuesServiceFactory;
 import com.bigdata.rdf.sparql.ast.service.history.HistoryServiceFactory;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsServiceFactory;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.rdf.store.BD;
 import com.bigdata.rdf.store.BDS;
@@ -167,6 +168,13 @@ public class ServiceRegistry {
 
         }
 
+        /*
+         * Maintains the statistics index (if enabled) used by the query
+         * optimizers.
+         */
+        add(new URIImpl(BD.NAMESPACE + "statistics"),
+                new StatisticsServiceFactory());
+
         // The Gather-Apply-Scatter RDF Graph Mining service.
         add(GASService.Options.SERVICE_KEY, new GASService());
         
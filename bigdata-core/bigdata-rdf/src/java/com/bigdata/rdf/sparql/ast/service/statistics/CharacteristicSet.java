@@ -0,0 +1,128 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sparql.ast.service.statistics;
+
+import java.util.Arrays;
+
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * A characteristic set is the set of predicates used by a subject. The index
+ * reports, for each distinct characteristic set, the #of subjects having
+ * exactly that set of predicates and the #of statements for each of those
+ * predicates summed over those subjects. This captures the correlation
+ * between the predicates of a subject which is lost when the predicates are
+ * considered one at a time.
+ * 
+ * @see StatisticsIndex
+ */
+public class CharacteristicSet {
+
+    @SuppressWarnings("rawtypes")
+    private final IV[] predicates;
+
+    private final long subjectCount;
+
+    private final long[] statementCounts;
+
+    /**
+     * @param predicates
+     *            The predicates (in the order of the statistics index key).
+     * @param subjectCount
+     *            The #of subjects having exactly those predicates.
+     * @param statementCounts
+     *            The #of statements for each predicate summed over those
+     *            subjects.
+     */
+    @SuppressWarnings("rawtypes")
+    public CharacteristicSet(final IV[] predicates, final long subjectCount,
+            final long[] statementCounts) {
+
+        if (predicates == null || statementCounts == null)
+            throw new IllegalArgumentException();
+
+        if (predicates.length != statementCounts.length)
+            throw new IllegalArgumentException();
+
+        this.predicates = predicates;
+
+        this.subjectCount = subjectCount;
+
+        this.statementCounts = statementCounts;
+
+    }
+
+    /**
+     * The predicates.
+     */
+    @SuppressWarnings("rawtypes")
+    public IV[] getPredicates() {
+
+        return predicates;
+
+    }
+
+    /**
+     * The #of subjects having exactly these predicates.
+     */
+    public long getSubjectCount() {
+
+        return subjectCount;
+
+    }
+
+    /**
+     * The #of statements having the given predicate summed over the subjects
+     * in this characteristic set and ZERO (0) if the predicate is not in this
+     * characteristic set.
+     */
+    @SuppressWarnings("rawtypes")
+    public long getStatementCount(final IV p) {
+
+        for (int i = 0; i < predicates.length; i++) {
+
+            if (predicates[i].equals(p))
+                return statementCounts[i];
+
+        }
+
+        return 0L;
+
+    }
+
+    public String toString() {
+
+        return getClass().getSimpleName() + "{predicates="
+                + Arrays.toString(predicates) + ", subjectCount="
+                + subjectCount + ", statementCounts="
+                + Arrays.toString(statementCounts) + "}";
+
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sparql.ast.service.statistics;
+
+import com.bigdata.rdf.internal.IV;
+
+/**
+ * The statistics for the statements having a given predicate.
+ * 
+ * @see StatisticsIndex
+ */
+public class PredicateStatistics {
+
+    @SuppressWarnings("rawtypes")
+    private final IV p;
+
+    private final long statementCount;
+
+    private final long subjectCount;
+
+    private final long objectCount;
+
+    /**
+     * @param p
+     *            The predicate.
+     * @param statementCount
+     *            The #of statements having that predicate.
+     * @param subjectCount
+     *            The #of distinct subjects of those statements.
+     * @param objectCount
+     *            The #of distinct objects of those statements.
+     */
+    @SuppressWarnings("rawtypes")
+    public PredicateStatistics(final IV p, final long statementCount,
+            final long subjectCount, final long objectCount) {
+
+        if (p == null)
+            throw new IllegalArgumentException();
+
+        this.p = p;
+
+        this.statementCount = statementCount;
+
+        this.subjectCount = subjectCount;
+
+        this.objectCount = objectCount;
+
+    }
+
+    /**
+     * The predicate.
+     */
+    @SuppressWarnings("rawtypes")
+    public IV getPredicate() {
+
+        return p;
+
+    }
+
+    /**
+     * The #of statements having the predicate.
+     */
+    public long getStatementCount() {
+
+        return statementCount;
+
+    }
+
+    /**
+     * The #of distinct subjects of the statements having the predicate.
+     */
+    public long getSubjectCount() {
+
+        return subjectCount;
+
+    }
+
+    /**
+     * The #of distinct objects of the statements having the predicate.
+     */
+    public long getObjectCount() {
+
+        return objectCount;
+
+    }
+
+    public String toString() {
+
+        return getClass().getSimpleName() + "{p=" + p + ", statementCount="
+                + statementCount + ", subjectCount=" + subjectCount
+                + ", objectCount=" + objectCount + "}";
+
+    }
+
+}
@@ -0,0 +1,803 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sparql.ast.service.statistics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+/**
+ * A persistent summary of the statement indices which is used by the query
+ * optimizers in place of range counts against the statement indices. There
+ * are two kinds of records in the index:
+ * <dl>
+ * <dt>predicate statistics</dt>
+ * <dd>The key is <code>[1][p]</code>. The value is the #of statements, the #of
+ * distinct subjects and the #of distinct objects for that predicate.</dd>
+ * <dt>characteristic sets</dt>
+ * <dd>The key is <code>[2][p1]...[pk]</code>, where the predicates are in
+ * {@link IV} order. The value is the #of subjects whose set of predicates is
+ * exactly <code>{p1...pk}</code> followed by the #of statements for each of
+ * those predicates summed over those subjects.</dd>
+ * </dl>
+ * All counts are for the statements in the statement indices, including any
+ * inferences and axioms. In quads mode a statement which appears in more than
+ * one named graph is counted once for each such graph.
+ * <p>
+ * The index is maintained incrementally by the
+ * {@link StatisticsServiceFactory} and may be recomputed from scratch using
+ * {@link #rebuild(AbstractTripleStore)}. Since the index is only updated when
+ * the changes are committed, and not at all by bulk loads which bypass the
+ * change log, the query optimizers only consult it for read-only views (see
+ * {@link #getReadOnlyInstance(AbstractTripleStore)}) and fall back on the
+ * statement indices when it reports no statements.
+ * 
+ * @see AbstractTripleStore.Options#STATISTICS
+ */
+public class StatisticsIndex {
+
+    private static final transient Logger log = Logger
+            .getLogger(StatisticsIndex.class);
+
+    /**
+     * The key prefix for a predicate statistics record.
+     */
+    static final byte PREDICATE = 1;
+
+    /**
+     * The key prefix for a characteristic set record.
+     */
+    static final byte CHARACTERISTIC_SET = 2;
+
+    /**
+     * The maximum #of characteristic sets which will be scanned by
+     * {@link #estimateStarCardinality(IV[])}.
+     */
+    static final long MAX_CHARACTERISTIC_SETS = 10000;
+
+    private final IIndex ndx;
+
+    /**
+     * @param ndx
+     *            The statistics index.
+     */
+    public StatisticsIndex(final IIndex ndx) {
+
+        if (ndx == null)
+            throw new IllegalArgumentException();
+
+        this.ndx = ndx;
+
+    }
+
+    /**
+     * Return the statistics index for the KB.
+     * 
+     * @param db
+     *            The KB.
+     * 
+     * @return The statistics index -or- <code>null</code> if the statistics
+     *         are not maintained for the KB.
+     */
+    public static StatisticsIndex getInstance(final AbstractTripleStore db) {
+
+        final IIndex ndx = db.getSPORelation().getStatisticsIndex();
+
+        if (ndx == null)
+            return null;
+
+        return new StatisticsIndex(ndx);
+
+    }
+
+    /**
+     * Return the statistics index for the KB if the KB is a read-only view of
+     * a commit point. The statistics do not reflect the uncommitted writes
+     * visible to an unisolated view or to a read/write transaction.
+     * 
+     * @param db
+     *            The KB.
+     * 
+     * @return The statistics index -or- <code>null</code> if the statistics
+     *         are not maintained for the KB or the KB is not a read-only view.
+     */
+    public static StatisticsIndex getReadOnlyInstance(
+            final AbstractTripleStore db) {
+
+        if (!TimestampUtility.isReadOnly(db.getTimestamp()))
+            return null;
+
+        return getInstance(db);
+
+    }
+
+    /**
+     * The backing index.
+     */
+    public IIndex getIndex() {
+
+        return ndx;
+
+    }
+
+    /**
+     * Return the statistics for a predicate.
+     * 
+     * @param p
+     *            The predicate.
+     * 
+     * @return The statistics. If there are no statements for that predicate,
+     *         then all counts will be ZERO (0).
+     */
+    @SuppressWarnings("rawtypes")
+    public PredicateStatistics get(final IV p) {
+
+        final long[] a = decode(ndx.lookup(predicateKey(new KeyBuilder(), p)),
+                3);
+
+        return new PredicateStatistics(p, a[0], a[1], a[2]);
+
+    }
+
+    /**
+     * Return the #of distinct characteristic sets.
+     */
+    public long getCharacteristicSetCount() {
+
+        return ndx.rangeCount(new byte[] { CHARACTERISTIC_SET },
+                new byte[] { CHARACTERISTIC_SET + 1 });
+
+    }
+
+    /**
+     * Visit the characteristic sets.
+     */
+    public Iterator<CharacteristicSet> characteristicSets() {
+
+        final ITupleIterator<?> itr = ndx.rangeIterator(
+                new byte[] { CHARACTERISTIC_SET },
+                new byte[] { CHARACTERISTIC_SET + 1 }, 0/* capacity */,
+                IRangeQuery.KEYS | IRangeQuery.VALS, null/* filter */);
+
+        return new Iterator<CharacteristicSet>() {
+
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
+
+            @SuppressWarnings("rawtypes")
+            @Override
+            public CharacteristicSet next() {
+
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                final ITuple<?> tuple = itr.next();
+
+                final byte[] key = tuple.getKey();
+
+                final IV[] preds = IVUtility.decodeAll(key, 1/* off */,
+                        key.length - 1/* len */);
+
+                final long[] a = decode(tuple.getValue(), 1 + preds.length);
+
+                return new CharacteristicSet(preds, a[0], Arrays.copyOfRange(
+                        a, 1, a.length));
+
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
+    }
+
+    /**
+     * Estimate the cardinality of a star join, which is a group of statement
+     * patterns having the same subject variable, the given constant
+     * predicates and distinct object variables. For each characteristic set
+     * which includes all of the predicates, the contribution is the #of
+     * subjects in that set times the product of the average #of statements per
+     * subject for each of the predicates.
+     * 
+     * @param preds
+     *            The distinct predicates.
+     * 
+     * @return The estimated cardinality -or- <code>-1</code> if there are too
+     *         many characteristic sets to compute an estimate.
+     */
+    @SuppressWarnings("rawtypes")
+    public long estimateStarCardinality(final IV[] preds) {
+
+        if (preds == null || preds.length == 0)
+            throw new IllegalArgumentException();
+
+        if (getCharacteristicSetCount() > MAX_CHARACTERISTIC_SETS)
+            return -1L;
+
+        double estimate = 0d;
+
+        final Iterator<CharacteristicSet> itr = characteristicSets();
+
+        while (itr.hasNext()) {
+
+            final CharacteristicSet cs = itr.next();
+
+            final double subjects = cs.getSubjectCount();
+
+            double n = subjects;
+
+            for (IV p : preds) {
+
+                final long triples = cs.getStatementCount(p);
+
+                if (triples == 0L) {
+                    n = 0d;
+                    break;
+                }
+
+                n *= triples / subjects;
+
+            }
+
+            estimate += n;
+
+        }
+
+        return Math.round(estimate);
+
+    }
+
+    /**
+     * Update the statistics for a net change in the statement indices. The
+     * statement indices MUST already reflect the change.
+     * 
+     * @param db
+     *            The KB whose statement indices were changed.
+     * @param added
+     *            The statements which were not in the statement indices and
+     *            now are.
+     * @param removed
+     *            The statements which were in the statement indices and now
+     *            are not.
+     */
+    @SuppressWarnings("rawtypes")
+    public void update(final AbstractTripleStore db,
+            final Collection<ISPO> added, final Collection<ISPO> removed) {
+
+        // The change in the #of statements for each (s,p).
+        final Map<IV, Map<IV, Long>> subjectDelta = new LinkedHashMap<IV, Map<IV, Long>>();
+
+        // The change in the #of statements for each (p,o).
+        final Map<List<IV>, Long> objectDelta = new LinkedHashMap<List<IV>, Long>();
+
+        for (ISPO spo : added)
+            delta(subjectDelta, objectDelta, spo, 1L);
+
+        for (ISPO spo : removed)
+            delta(subjectDelta, objectDelta, spo, -1L);
+
+        // Deltas for the predicate records {statements, subjects, objects}.
+        final Map<IV, long[]> predicates = new HashMap<IV, long[]>();
+
+        // Deltas for the characteristic set records.
+        final Map<List<IV>, long[]> sets = new HashMap<List<IV>, long[]>();
+
+        for (Map.Entry<IV, Map<IV, Long>> e : subjectDelta.entrySet()) {
+
+            final Map<IV, Long> delta = e.getValue();
+
+            // The #of statements for each predicate of the subject now.
+            final Map<IV, Long> after = countPredicates(db, e.getKey());
+
+            // The #of statements for each predicate before the change.
+            final Map<IV, Long> before = new HashMap<IV, Long>(after);
+
+            for (Map.Entry<IV, Long> f : delta.entrySet()) {
+
+                final IV p = f.getKey();
+
+                final long d = f.getValue();
+
+                final Long tmp = after.get(p);
+
+                final long n = (tmp == null ? 0L : tmp) - d;
+
+                if (n == 0L)
+                    before.remove(p);
+                else
+                    before.put(p, n);
+
+                final long[] a = get(predicates, p);
+
+                a[0] += d;
+
+                a[1] += (tmp == null ? 0 : 1) - (n == 0L ? 0 : 1);
+
+            }
+
+            addSet(sets, before, -1L);
+
+            addSet(sets, after, 1L);
+
+        }
+
+        for (Map.Entry<List<IV>, Long> e : objectDelta.entrySet()) {
+
+            final long d = e.getValue();
+
+            if (d == 0L)
+                continue;
+
+            final IV p = e.getKey().get(0);
+
+            final IV o = e.getKey().get(1);
+
+            final long now = db.getAccessPath(null/* s */, p, o, (IV) null/* c */)
+                    .rangeCount(true/* exact */);
+
+            final long before = now - d;
+
+            get(predicates, p)[2] += (now == 0L ? 0 : 1)
+                    - (before == 0L ? 0 : 1);
+
+        }
+
+        final IKeyBuilder keyBuilder = new KeyBuilder();
+
+        for (Map.Entry<IV, long[]> e : predicates.entrySet()) {
+
+            apply(predicateKey(keyBuilder, e.getKey()), e.getValue());
+
+        }
+
+        for (Map.Entry<List<IV>, long[]> e : sets.entrySet()) {
+
+            apply(setKey(keyBuilder, e.getKey()), e.getValue());
+
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("added=" + added.size() + ", removed=" + removed.size()
+                    + ", npredicates=" + predicates.size() + ", nsets="
+                    + sets.size());
+
+    }
+
+    /**
+     * Recompute the statistics from the statement indices. This must be used
+     * after a bulk load which does not report its changes through an
+     * {@link com.bigdata.rdf.changesets.IChangeLog}.
+     * 
+     * @param db
+     *            The KB.
+     * 
+     * @return The statistics index and never <code>null</code>.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the statistics are not maintained for the KB.
+     */
+    @SuppressWarnings("rawtypes")
+    public static StatisticsIndex rebuild(final AbstractTripleStore db) {
+
+        final StatisticsIndex stats = getInstance(db);
+
+        if (stats == null)
+            throw new UnsupportedOperationException(
+                    AbstractTripleStore.Options.STATISTICS);
+
+        final IIndex ndx = stats.ndx;
+
+        // Clear the index.
+        {
+
+            final ITupleIterator<?> itr = ndx.rangeIterator(null/* fromKey */,
+                    null/* toKey */, 0/* capacity */, IRangeQuery.REMOVEALL,
+                    null/* filter */);
+
+            while (itr.hasNext())
+                itr.next();
+
+        }
+
+        // {statements, subjects, objects} for each predicate.
+        final Map<IV, long[]> predicates = new HashMap<IV, long[]>();
+
+        // {subjects, statements...} for each characteristic set.
+        final Map<List<IV>, long[]> sets = new HashMap<List<IV>, long[]>();
+
+        /*
+         * Scan the primary index. The statements for a subject are adjacent
+         * and grouped by predicate.
+         */
+        {
+
+            final IChunkedOrderedIterator<ISPO> itr = db.getAccessPath(
+                    db.getSPORelation().getPrimaryKeyOrder()).iterator();
+
+            try {
+
+                IV s = null;
+
+                final Map<IV, Long> counts = new HashMap<IV, Long>();
+
+                while (itr.hasNext()) {
+
+                    final ISPO spo = itr.next();
+
+                    if (!spo.s().equals(s)) {
+
+                        addSubject(predicates, sets, counts);
+
+                        counts.clear();
+
+                        s = spo.s();
+
+                    }
+
+                    final Long tmp = counts.get(spo.p());
+
+                    counts.put(spo.p(), tmp == null ? 1L : tmp + 1);
+
+                }
+
+                addSubject(predicates, sets, counts);
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        }
+
+        /*
+         * Scan the (P,O) prefix index for the distinct objects.
+         */
+        {
+
+            final IChunkedOrderedIterator<ISPO> itr = db.getAccessPath(
+                    db.isQuads() ? SPOKeyOrder.POCS : SPOKeyOrder.POS)
+                    .iterator();
+
+            try {
+
+                IV p = null, o = null;
+
+                while (itr.hasNext()) {
+
+                    final ISPO spo = itr.next();
+
+                    if (!spo.p().equals(p) || !spo.o().equals(o)) {
+
+                        p = spo.p();
+
+                        o = spo.o();
+
+                        get(predicates, p)[2]++;
+
+                    }
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        }
+
+        final IKeyBuilder keyBuilder = new KeyBuilder();
+
+        for (Map.Entry<IV, long[]> e : predicates.entrySet()) {
+
+            ndx.insert(predicateKey(keyBuilder, e.getKey()),
+                    encode(e.getValue()));
+
+        }
+
+        for (Map.Entry<List<IV>, long[]> e : sets.entrySet()) {
+
+            ndx.insert(setKey(keyBuilder, e.getKey()), encode(e.getValue()));
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("npredicates=" + predicates.size() + ", nsets="
+                    + sets.size());
+
+        return stats;
+
+    }
+
+    /**
+     * Add the statements for one subject to the predicate and characteristic
+     * set statistics.
+     */
+    @SuppressWarnings("rawtypes")
+    private static void addSubject(final Map<IV, long[]> predicates,
+            final Map<List<IV>, long[]> sets, final Map<IV, Long> counts) {
+
+        if (counts.isEmpty())
+            return;
+
+        for (Map.Entry<IV, Long> e : counts.entrySet()) {
+
+            final long[] a = get(predicates, e.getKey());
+
+            a[0] += e.getValue();
+
+            a[1]++;
+
+        }
+
+        addSet(sets, counts, 1L);
+
+    }
+
+    /**
+     * Add (or subtract) the characteristic set of a subject.
+     * 
+     * @param counts
+     *            The #of statements for each predicate of the subject.
+     * @param sign
+     *            ONE (1) to add the subject and MINUS ONE (-1) to subtract it.
+     */
+    @SuppressWarnings("rawtypes")
+    private static void addSet(final Map<List<IV>, long[]> sets,
+            final Map<IV, Long> counts, final long sign) {
+
+        if (counts.isEmpty())
+            return;
+
+        final IV[] preds = counts.keySet().toArray(new IV[counts.size()]);
+
+        Arrays.sort(preds);
+
+        final List<IV> key = Arrays.asList(preds);
+
+        long[] a = sets.get(key);
+
+        if (a == null) {
+
+            sets.put(key, a = new long[1 + preds.length]);
+
+        }
+
+        a[0] += sign;
+
+        for (int i = 0; i < preds.length; i++) {
+
+            a[i + 1] += sign * counts.get(preds[i]);
+
+        }
+
+    }
+
+    /**
+     * Return the #of statements for each predicate used by a subject.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Map<IV, Long> countPredicates(final AbstractTripleStore db,
+            final IV s) {
+
+        final Map<IV, Long> counts = new HashMap<IV, Long>();
+
+        final IChunkedOrderedIterator<ISPO> itr = db.getAccessPath(s,
+                null/* p */, null/* o */, (IV) null/* c */).iterator();
+
+        try {
+
+            while (itr.hasNext()) {
+
+                final IV p = itr.next().p();
+
+                final Long tmp = counts.get(p);
+
+                counts.put(p, tmp == null ? 1L : tmp + 1);
+
+            }
+
+        } finally {
+
+            itr.close();
+
+        }
+
+        return counts;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void delta(final Map<IV, Map<IV, Long>> subjectDelta,
+            final Map<List<IV>, Long> objectDelta, final ISPO spo,
+            final long d) {
+
+        Map<IV, Long> m = subjectDelta.get(spo.s());
+
+        if (m == null) {
+
+            subjectDelta.put(spo.s(), m = new HashMap<IV, Long>());
+
+        }
+
+        add(m, spo.p(), d);
+
+        add(objectDelta, Arrays.asList(new IV[] { spo.p(), spo.o() }), d);
+
+    }
+
+    private static <K> void add(final Map<K, Long> m, final K k, final long d) {
+
+        final Long tmp = m.get(k);
+
+        m.put(k, tmp == null ? d : tmp + d);
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static long[] get(final Map<IV, long[]> predicates, final IV p) {
+
+        long[] a = predicates.get(p);
+
+        if (a == null) {
+
+            predicates.put(p, a = new long[3]);
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Add a delta to a record, removing the record once its first count (the
+     * #of statements or the #of subjects) is ZERO (0).
+     */
+    private void apply(final byte[] key, final long[] delta) {
+
+        final long[] a = decode(ndx.lookup(key), delta.length);
+
+        boolean modified = false;
+
+        for (int i = 0; i < a.length; i++) {
+
+            if (delta[i] != 0L)
+                modified = true;
+
+            a[i] += delta[i];
+
+        }
+
+        if (!modified)
+            return;
+
+        if (a[0] <= 0L) {
+
+            ndx.remove(key);
+
+        } else {
+
+            ndx.insert(key, encode(a));
+
+        }
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static byte[] predicateKey(final IKeyBuilder keyBuilder,
+            final IV p) {
+
+        keyBuilder.reset().append(PREDICATE);
+
+        IVUtility.encode(keyBuilder, p);
+
+        return keyBuilder.getKey();
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static byte[] setKey(final IKeyBuilder keyBuilder,
+            final List<IV> preds) {
+
+        keyBuilder.reset().append(CHARACTERISTIC_SET);
+
+        for (IV p : preds) {
+
+            IVUtility.encode(keyBuilder, p);
+
+        }
+
+        return keyBuilder.getKey();
+
+    }
+
+    private static long[] decode(final byte[] val, final int n) {
+
+        final long[] a = new long[n];
+
+        if (val != null) {
+
+            final ByteArrayBuffer b = new ByteArrayBuffer(0, val.length, val);
+
+            for (int i = 0; i < n; i++) {
+
+                a[i] = b.getLong(i * 8);
+
+            }
+
+        }
+
+        return a;
+
+    }
+
+    private static byte[] encode(final long[] a) {
+
+        final DataOutputBuffer buf = new DataOutputBuffer(a.length * 8);
+
+        for (long v : a) {
+
+            buf.putLong(v);
+
+        }
+
+        return buf.toByteArray();
+
+    }
+
+}
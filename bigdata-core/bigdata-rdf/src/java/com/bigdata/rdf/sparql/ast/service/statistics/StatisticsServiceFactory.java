@@ -0,0 +1,269 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sparql.ast.service.statistics;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.rdf.changesets.ChangeAction;
+import com.bigdata.rdf.changesets.IChangeLog;
+import com.bigdata.rdf.changesets.IChangeRecord;
+import com.bigdata.rdf.sail.BigdataSail;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.sparql.ast.eval.CustomServiceFactoryBase;
+import com.bigdata.rdf.sparql.ast.service.BigdataNativeServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.IServiceOptions;
+import com.bigdata.rdf.sparql.ast.service.ServiceCall;
+import com.bigdata.rdf.sparql.ast.service.ServiceCallCreateParams;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.store.AbstractTripleStore;
+
+/**
+ * This service tracks KB updates via an {@link IChangeLog} and is responsible
+ * for maintaining the {@link StatisticsIndex} for a KB instance.
+ * 
+ * @see AbstractTripleStore.Options#STATISTICS
+ */
+public class StatisticsServiceFactory extends CustomServiceFactoryBase {
+
+    static private transient final Logger log = Logger
+            .getLogger(StatisticsServiceFactory.class);
+
+    private final BigdataNativeServiceOptions serviceOptions;
+
+    public StatisticsServiceFactory() {
+
+        serviceOptions = new BigdataNativeServiceOptions();
+
+    }
+
+    @Override
+    public IServiceOptions getServiceOptions() {
+
+        return serviceOptions;
+
+    }
+
+    /**
+     * The statistics are not exposed as a service. They are consumed directly
+     * by the query optimizers.
+     */
+    @Override
+    public ServiceCall<?> create(final ServiceCallCreateParams params) {
+
+        throw new UnsupportedOperationException();
+
+    }
+
+    /**
+     * Register an {@link IChangeLog} listener that will manage the maintenance
+     * of the statistics index.
+     */
+    @Override
+    public void startConnection(final BigdataSailConnection conn) {
+
+        final AbstractTripleStore tripleStore = conn.getTripleStore();
+
+        if (Boolean.valueOf(tripleStore.getProperty(
+                BigdataSail.Options.STATISTICS,
+                BigdataSail.Options.DEFAULT_STATISTICS))) {
+
+            conn.addChangeLog(new StatisticsChangeLogListener(conn));
+
+        }
+
+    }
+
+    /**
+     * Handles maintenance of the statistics index.
+     */
+    static private class StatisticsChangeLogListener implements IChangeLog {
+
+        /** The vector size for updates. */
+        private static final int threshold = 10000;
+        /** The KB instance. */
+        private final AbstractTripleStore tripleStore;
+        /**
+         * The net change for each statement since the last flush (lazily
+         * instantiated). The first element is <code>true</code> iff the
+         * statement was in the statement indices before the first change
+         * event. The second is <code>true</code> iff it is in the statement
+         * indices after the last change event.
+         * <p>
+         * Note: {@link ISPO#equals(Object)} considers the statement type but
+         * not the context, so the statements are ordered by the primary key
+         * order of the statement indices instead.
+         */
+        private Map<ISPO, boolean[]> changeSet;
+
+        StatisticsChangeLogListener(final BigdataSailConnection conn) {
+
+            this.tripleStore = conn.getTripleStore();
+
+        }
+
+        @Override
+        public void transactionBegin() {
+
+        }
+
+        @Override
+        public void transactionPrepare() {
+
+            flush();
+
+        }
+
+        @Override
+        public void changeEvent(final IChangeRecord record) {
+
+            final ChangeAction action = record.getChangeAction();
+
+            if (action == ChangeAction.UPDATED) {
+
+                // The statement type changed but not the statement indices.
+                return;
+
+            }
+
+            if (changeSet == null) {
+
+                // Lazy instantiation.
+                changeSet = new TreeMap<ISPO, boolean[]>(tripleStore
+                        .getSPORelation().getPrimaryKeyOrder().getComparator());
+
+            }
+
+            final ISPO spo = record.getStatement();
+
+            boolean[] a = changeSet.get(spo);
+
+            if (a == null) {
+
+                changeSet.put(spo, a = new boolean[] {
+                        action == ChangeAction.REMOVED, false });
+
+            }
+
+            a[1] = action == ChangeAction.INSERTED;
+
+            if (changeSet.size() > threshold) {
+
+                flush();
+
+            }
+
+        }
+
+        @Override
+        public void transactionCommited(long commitTime) {
+
+            flush();
+
+        }
+
+        @Override
+        public void transactionAborted() {
+
+            reset();
+
+        }
+
+        /**
+         * See {@link IChangeLog#close()}.
+         */
+        @Override
+        public void close() {
+            reset();
+        }
+
+        /** Reset the buffer. */
+        private void reset() {
+
+            changeSet = null;
+
+        }
+
+        /**
+         * Incremental flush.
+         */
+        private void flush() {
+
+            if (changeSet != null) {
+
+                final List<ISPO> added = new LinkedList<ISPO>();
+
+                final List<ISPO> removed = new LinkedList<ISPO>();
+
+                for (Map.Entry<ISPO, boolean[]> e : changeSet.entrySet()) {
+
+                    final boolean[] a = e.getValue();
+
+                    if (!a[0] && a[1]) {
+
+                        added.add(e.getKey());
+
+                    } else if (a[0] && !a[1]) {
+
+                        removed.add(e.getKey());
+
+                    }
+
+                }
+
+                if (!added.isEmpty() || !removed.isEmpty()) {
+
+                    final StatisticsIndex stats = StatisticsIndex
+                            .getInstance(tripleStore);
+
+                    if (stats == null)
+                        throw new IllegalStateException("Index not found: "
+                                + tripleStore.getNamespace());
+
+                    stats.update(tripleStore, added, removed);
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("changeSet=" + changeSet.size() + ", added="
+                            + added.size() + ", removed=" + removed.size());
+
+                reset();
+
+            }
+
+        }
+
+    } // class StatisticsChangeLogListener
+
+} // class StatisticsServiceFactory
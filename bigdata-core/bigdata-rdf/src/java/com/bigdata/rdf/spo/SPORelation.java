@@ -195,6 +195,13 @@ public class SPORelation extends AbstractRelation<ISPO> {
      */
     final private boolean historyService;
 
+    /**
+     * This is used to conditionally maintain the statistics index.
+     * 
+     * @see AbstractTripleStore.Options#STATISTICS
+     */
+    final private boolean statistics;
+
     /**
      * When true, SPOs will never be removed from the indices, only downgraded
      * to {@link StatementEnum#History}.
@@ -270,6 +277,16 @@ public class SPORelation extends AbstractRelation<ISPO> {
                 AbstractTripleStore.Options.HISTORY_SERVICE,
                 AbstractTripleStore.Options.DEFAULT_HISTORY_SERVICE));
 
+        /*
+         * Note: The statistics are not maintained when there is only one
+         * access path. This is the case for the temporary stores used for
+         * truth maintenance, which inherit the properties of the KB.
+         */
+        this.statistics = !oneAccessPath
+                && Boolean.parseBoolean(getProperty(
+                        AbstractTripleStore.Options.STATISTICS,
+                        AbstractTripleStore.Options.DEFAULT_STATISTICS));
+
         this.keyArity = Boolean.valueOf(getProperty(
                 AbstractTripleStore.Options.QUADS,
                 AbstractTripleStore.Options.DEFAULT_QUADS)) ? 4 : 3;
@@ -365,6 +382,12 @@ public class SPORelation extends AbstractRelation<ISPO> {
 
             }
 
+            if (statistics) {
+
+                set.add(getFQN(this, NAME_STATISTICS));
+
+            }
+
             this.indexNames = Collections.unmodifiableSet(set);
 
         }
@@ -487,6 +510,12 @@ public class SPORelation extends AbstractRelation<ISPO> {
                 indexManager.registerIndex(getHistoryIndexMetadata(keyOrder));
 
             }
+
+            if (statistics) {
+
+                indexManager.registerIndex(getStatisticsIndexMetadata());
+
+            }
             
 //            lookupIndices();
 
@@ -917,6 +946,50 @@ public class SPORelation extends AbstractRelation<ISPO> {
     }
     public static transient final String NAME_HISTORY = "HIST";
 
+    /**
+     * Overrides for the statistics index.
+     * 
+     * @see AbstractTripleStore.Options#STATISTICS
+     */
+    protected IndexMetadata getStatisticsIndexMetadata() {
+
+        final IndexMetadata metadata = newIndexMetadata(getFQN(this,
+                NAME_STATISTICS));
+
+        if (TimestampUtility.isReadWriteTx(getTimestamp())) {
+
+            /*
+             * Enable isolatable indices (the statistics are updated by the
+             * same tx which updates the statement indices).
+             */
+
+            metadata.setIsolatable(true);
+
+        }
+
+        return metadata;
+
+    }
+
+    public static transient final String NAME_STATISTICS = "STATS";
+
+    /**
+     * Return the statistics index.
+     * 
+     * @return The statistics index -or- <code>null</code> if the statistics
+     *         are not maintained for this relation.
+     * 
+     * @see AbstractTripleStore.Options#STATISTICS
+     */
+    public IIndex getStatisticsIndex() {
+
+        if (!statistics)
+            return null;
+
+        return getIndex(getFQN(this, NAME_STATISTICS));
+
+    }
+
     /**
      * Conflict resolver for add/add conflicts and retract/retract conflicts for
      * any of (triple store, triple store with SIDs or quad store) but without
@@ -104,6 +104,7 @@ import com.bigdata.rdf.internal.impl.BlobIV;
 import com.bigdata.rdf.internal.impl.extensions.XSDStringExtension;
 import com.bigdata.rdf.lexicon.BigdataSubjectCentricFullTextIndex;
 import com.bigdata.rdf.lexicon.BigdataValueCentricFullTextIndex;
+import com.bigdata.rdf.lexicon.BoundedTermCache;
 import com.bigdata.rdf.lexicon.ITermIndexCodes;
 import com.bigdata.rdf.lexicon.ITextIndexer;
 import com.bigdata.rdf.lexicon.IValueCentricTextIndexer;
@@ -127,6 +128,7 @@ import com.bigdata.rdf.rules.RDFJoinNexusFactory;
 import com.bigdata.rdf.rules.RuleContextEnum;
 import com.bigdata.rdf.sail.RDRHistory;
 import com.bigdata.rdf.sparql.ast.optimizers.ASTBottomUpOptimizer;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsIndex;
 import com.bigdata.rdf.spo.BulkCompleteConverter;
 import com.bigdata.rdf.spo.BulkFilterConverter;
 import com.bigdata.rdf.spo.ExplicitSPOFilter;
@@ -178,6 +180,7 @@ import com.bigdata.striterator.EmptyChunkedIterator;
 import com.bigdata.striterator.IChunkedIterator;
 import com.bigdata.striterator.IChunkedOrderedIterator;
 import com.bigdata.striterator.IKeyOrder;
+import com.bigdata.util.Bytes;
 import com.bigdata.util.BytesUtil;
 import com.bigdata.util.InnerCause;
 import com.bigdata.util.PropertyUtil;
@@ -649,6 +652,26 @@ abstract public class AbstractTripleStore extends
         
         String DEFAULT_TERM_CACHE_CAPACITY = "10000";//"50000";
 
+        /**
+         * Long option whose value is the maximum #of bytes for the term cache
+         * (default {@value #DEFAULT_TERM_CACHE_MAX_BYTES}). When positive, the
+         * term cache is a {@link BoundedTermCache} whose capacity is the
+         * (estimated) #of bytes of the cached {@link Value}s. That cache only
+         * admits a new entry in place of an entry which is used less often,
+         * so scans over rarely used terms do not flush it. The vocabulary
+         * {@link IV}s are pinned in the cache and do not count against this
+         * limit. The read-only views of a namespace share the same cache and
+         * that cache is given twice this many bytes. When ZERO (0), the term
+         * cache is bounded by {@link #TERM_CACHE_CAPACITY} instead.
+         * <p>
+         * The counters for the shared term caches are reported under the
+         * <code>TermCache</code> path of the query engine counters.
+         */
+        String TERM_CACHE_MAX_BYTES = AbstractTripleStore.class.getName()
+                + ".termCache.maxBytes";
+
+        String DEFAULT_TERM_CACHE_MAX_BYTES = "" + (8 * Bytes.megabyte);
+
         /**
          * The name of the class that will establish the pre-defined
          * {@link Vocabulary} for the database (default
@@ -799,12 +822,15 @@ abstract public class AbstractTripleStore extends
         /**
          * When <code>true</code> (default {@value Options#DEFAULT_JUSTIFY}),
          * proof chains for entailments generated by forward chaining are stored
-         * in the database. This option is required for truth maintenance when
-         * retracting assertion.
+         * in the database. These proof chains are used by truth maintenance
+         * when retracting assertions.
          * <p>
-         * If you will not be retracting statements from the database then you
-         * can specify <code>false</code> for a significant performance boost
-         * during writes and a smaller profile on the disk.
+         * You can specify <code>false</code> for a significant performance
+         * boost during writes and a smaller profile on the disk. Truth
+         * maintenance will then retract assertions by deleting everything which
+         * might be entailed by those assertions and rederiving whatever is
+         * still entailed (see {@link com.bigdata.rdf.inf.TruthMaintenance}),
+         * which is more work for each retraction.
          * <p>
          * This option does not effect query performance since the
          * justifications are maintained in a distinct index and are only used
@@ -1278,6 +1304,27 @@ abstract public class AbstractTripleStore extends
 
         public static String DEFAULT_HISTORY_SERVICE_MIN_RELEASE_AGE = Long
                 .toString(Long.MAX_VALUE);
+
+        /**
+         * When <code>true</code> an index of statistics over the statements
+         * (the #of statements, distinct subjects and distinct objects for each
+         * predicate and the characteristic sets of the subjects) will be
+         * maintained on commit and used by the query optimizers in place of
+         * some of the range counts on the statement indices. This option
+         * requires the POS (triples) or POCS (quads) index and therefore is
+         * ignored when {@link #ONE_ACCESS_PATH} is specified.
+         * <p>
+         * Note: The statistics are only maintained for updates which report
+         * their changes through an {@link IChangeLog} (such as a sail
+         * connection). They must be rebuilt after a bulk load which does not
+         * (see {@link StatisticsIndex#rebuild(AbstractTripleStore)}).
+         * 
+         * @see StatisticsIndex
+         */
+        public static String STATISTICS = AbstractTripleStore.class.getName()
+                + ".statistics";
+
+        public static String DEFAULT_STATISTICS = "false";
         
         /**
          * If this option is set to false, turn off the ASTBottomUpOptimizer.
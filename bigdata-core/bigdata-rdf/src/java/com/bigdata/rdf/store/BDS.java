@@ -32,6 +32,8 @@ import org.openrdf.model.URI;
 import org.openrdf.model.impl.URIImpl;
 
 import com.bigdata.rdf.sparql.ast.eval.SliceServiceFactory;
+import com.bigdata.search.FullTextIndex;
+import com.bigdata.search.IScorer;
 
 
 /**
@@ -436,4 +438,36 @@ public interface BDS {
      */
     final URI RANGE_COUNT = new URIImpl(NAMESPACE + "rangeCount");
 
+    /**
+     * Magic predicate used to query for free text search metadata to choose
+     * the relevance model used to score the hits (default is the scorer
+     * configured for the full text index). Use in conjunction with
+     * {@link #SEARCH} as follows:
+     * <p>
+     * 
+     * <pre>
+     * 
+     * select ?s ?relevance
+     * where {
+     *   ?s bds:search &quot;scale-out RDF triplestore&quot; .
+     *   ?s bds:scorer &quot;bm25&quot; .
+     *   ?s bds:relevance ?relevance .
+     * }
+     * 
+     * </pre>
+     * <p>
+     * The value is either <code>cosine</code>, <code>bm25</code> or the name of
+     * a class implementing {@link IScorer}. The <code>bm25</code> scorer
+     * requires that the term statistics are stored in the full text index
+     * (see {@link FullTextIndex.Options#STATISTICS_ENABLED}).
+     * 
+     * @see FullTextIndex.Options#SCORER
+     */
+    final URI SCORER = new URIImpl(NAMESPACE + "scorer");
+
+    /**
+     * The default is to use the scorer configured for the full text index.
+     */
+    final String DEFAULT_SCORER = null;
+
 }
@@ -46,6 +46,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipInputStream;
 
@@ -54,6 +60,7 @@ import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParseException;
 
 import com.bigdata.Banner;
+import com.bigdata.counters.CAT;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.journal.DumpJournal;
 import com.bigdata.journal.IIndexManager;
@@ -73,6 +80,7 @@ import com.bigdata.rdf.rio.RioLoaderListener;
 import com.bigdata.rdf.rio.StatementBuffer;
 import com.bigdata.rdf.rules.InferenceEngine;
 import com.bigdata.rdf.spo.SPO;
+import com.bigdata.util.concurrent.LatchedExecutor;
 
 /**
  * A utility class to load RDF data into an {@link AbstractTripleStore}. This
@@ -109,6 +117,13 @@ public class DataLoader {
 	 * {@link StatementBuffer}.
 	 */
     private final int queueCapacity;
+
+    /**
+     * The #of files in a directory which are parsed concurrently.
+     * 
+     * @see Options#PARSER_THREADS
+     */
+    private final int parserThreads;
     
     /**
      * Utility to allow other {@link PrintStream} to be used for status.
@@ -469,6 +484,30 @@ public class DataLoader {
 		//BLZG-1813  Re-enabled based on fix for capacity issue.
 		static final String DEFAULT_QUEUE_CAPACITY = "10";
 
+		/**
+		 * Optional property specifying the #of files in a directory which are
+		 * parsed concurrently (default {@value #DEFAULT_PARSER_THREADS}). When
+		 * greater than ONE (1), the files in a directory are handed to a pool
+		 * of parser threads. Each parser thread owns a {@link StatementBuffer}
+		 * (with its own blocking queue per {@link #QUEUE_CAPACITY}), so there
+		 * are as many batched lexicon writes (TERM2ID and BLOBS) and statement
+		 * index writes (one task per statement index) in flight as there are
+		 * parser threads. The unisolated indices serialize the concurrent
+		 * writers, so a given RDF Value is assigned a single internal value
+		 * regardless of which thread writes it first.
+		 * <p>
+		 * The parallel loader is only used when {@link #CLOSURE} is
+		 * {@link ClosureEnum#None} and {@link #COMMIT} is not
+		 * {@link CommitEnum#Incremental}. The buffer of a parser thread is
+		 * always flushed at the end of each file, so blank nodes are scoped by
+		 * their source regardless of {@link #FLUSH}. The per-stage throughput
+		 * (parse, lexicon, statement indices) is reported by
+		 * {@link MyLoadStats}.
+		 */
+		static final String PARSER_THREADS = DataLoader.class.getName() + ".parserThreads";
+
+		static final String DEFAULT_PARSER_THREADS = "1";
+
         /**
          * Optional property controls whether and when the RDFS(+) closure is
          * maintained on the database as documents are loaded (default
@@ -704,6 +743,17 @@ public class DataLoader {
 			
 		}
 
+		{
+			parserThreads = Integer
+					.parseInt(properties.getProperty(Options.PARSER_THREADS, Options.DEFAULT_PARSER_THREADS));
+
+			if (parserThreads <= 0)
+				throw new IllegalArgumentException(Options.PARSER_THREADS + "=" + parserThreads);
+
+			if (log.isInfoEnabled())
+				log.info(Options.PARSER_THREADS + "=" + parserThreads);
+		}
+
         this.database = database;
 
         inferenceEngine = database.getInferenceEngine();
@@ -779,6 +829,40 @@ public class DataLoader {
 		 * The set of resources that were successfully loaded.
 		 */
 		private final Set<File> goodSet = new LinkedHashSet<File>();
+
+		/**
+		 * The #of milliseconds the parser threads spent on their sources
+		 * (summed over the threads). This includes the time a parser is
+		 * blocked because the writers have fallen behind.
+		 * <p>
+		 * Note: The per-stage statistics are only collected when the files in
+		 * a directory are loaded by parallel parsers.
+		 * 
+		 * @see Options#PARSER_THREADS
+		 */
+		public final CAT parseTime = new CAT();
+
+		/**
+		 * The #of distinct values resolved against the lexicon.
+		 */
+		public final CAT termsCount = new CAT();
+
+		/**
+		 * The #of milliseconds spent resolving values against the lexicon
+		 * (summed over the writers).
+		 */
+		public final CAT termsTime = new CAT();
+
+		/**
+		 * The #of statements written onto the statement indices.
+		 */
+		public final CAT stmtsCount = new CAT();
+
+		/**
+		 * The #of milliseconds spent writing on the statement indices (summed
+		 * over the writers).
+		 */
+		public final CAT stmtsTime = new CAT();
     	
 		/**
 		 * Method must be invoked if load of a {@link File} fails.
@@ -809,10 +893,34 @@ public class DataLoader {
 		@Override
 		public String toString() {
 			
-			return super.toString() + ", {failSet=" + failSet.size() + ",goodSet=" + goodSet.size() + "}";
+			return super.toString() + ", {failSet=" + failSet.size() + ",goodSet=" + goodSet.size() + "}"
+					+ (parseTime.estimate_get() != 0L ? ", " + getStageReport() : "");
 			
 		}
 
+		/**
+		 * Report the throughput of each stage of a parallel load. The rates
+		 * are per thread since the times are summed over the threads.
+		 */
+		public String getStageReport() {
+
+			return "stages={parse=" + toldTriples.estimate_get() + " stmts in " + parseTime.estimate_get()
+					+ "ms (" + rate(toldTriples, parseTime) + "/s)" //
+					+ ", lexicon=" + termsCount.estimate_get() + " values in " + termsTime.estimate_get()
+					+ "ms (" + rate(termsCount, termsTime) + "/s)" //
+					+ ", statements=" + stmtsCount.estimate_get() + " stmts in " + stmtsTime.estimate_get()
+					+ "ms (" + rate(stmtsCount, stmtsTime) + "/s)}";
+
+		}
+
+		private long rate(final CAT n, final CAT millis) {
+
+			final long t = millis.estimate_get();
+
+			return t == 0L ? 0L : (long) (n.estimate_get() * 1000d / t);
+
+		}
+
 		@Override
 		public void add(final LoadStats stats) {
 
@@ -820,9 +928,21 @@ public class DataLoader {
 			
 			if (stats instanceof MyLoadStats) {
 			
-				failSet.addAll(((MyLoadStats) stats).failSet);
+				final MyLoadStats t = (MyLoadStats) stats;
+				
+				failSet.addAll(t.failSet);
 				
-				goodSet.addAll(((MyLoadStats) stats).goodSet);
+				goodSet.addAll(t.goodSet);
+				
+				parseTime.add(t.parseTime.get());
+				
+				termsCount.add(t.termsCount.get());
+				
+				termsTime.add(t.termsTime.get());
+				
+				stmtsCount.add(t.stmtsCount.get());
+				
+				stmtsTime.add(t.stmtsTime.get());
 				
 			}
 			
@@ -1285,6 +1405,15 @@ public class DataLoader {
             if (log.isDebugEnabled())
                 log.debug("loading directory: " + file);
 
+            if (depth == 0 && isParallelLoad()) {
+
+                loadFilesParallel(totals, file, baseURI, rdfFormat,
+                        defaultGraph, filter);
+
+                return;
+
+            }
+
 //            final LoadStats loadStats = new LoadStats();
 
             final File[] files = (filter != null ? file.listFiles(filter)
@@ -1307,20 +1436,7 @@ public class DataLoader {
             
         }
         
-        final String n = file.getName();
-        
-        RDFFormat fmt = RDFFormat.forFileName(n);
-
-        if (fmt == null && n.endsWith(".zip")) {
-            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 4));
-        }
-
-        if (fmt == null && n.endsWith(".gz")) {
-            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 3));
-        }
-
-        if (fmt == null) // fallback
-            fmt = rdfFormat;
+        final RDFFormat fmt = getRDFFormat(file, rdfFormat);
                 
         InputStream is = null;
         
@@ -1329,18 +1445,7 @@ public class DataLoader {
 
         try {
 
-            is = new FileInputStream(file);
-
-            if (n.endsWith(".gz")) {
-
-                is = new GZIPInputStream(is, getGzipBuffer());
-
-            } else if (n.endsWith(".zip")) {
-
-				is = new ZipInputStream(new BufferedInputStream(is,
-						getGzipBuffer()));
-
-            }
+            is = newInputStream(file);
 
             /*
              * Obtain a buffered reader on the input stream.
@@ -1404,6 +1509,376 @@ public class DataLoader {
 
     }
 
+    /**
+     * The format of a file, deduced from its name (ignoring any
+     * <code>.gz</code> or <code>.zip</code> extension).
+     * 
+     * @param file
+     *            The file.
+     * @param rdfFormat
+     *            The fallback format (optional).
+     */
+    private static RDFFormat getRDFFormat(final File file,
+            final RDFFormat rdfFormat) {
+
+        final String n = file.getName();
+        
+        RDFFormat fmt = RDFFormat.forFileName(n);
+
+        if (fmt == null && n.endsWith(".zip")) {
+            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 4));
+        }
+
+        if (fmt == null && n.endsWith(".gz")) {
+            fmt = RDFFormat.forFileName(n.substring(0, n.length() - 3));
+        }
+
+        if (fmt == null) // fallback
+            fmt = rdfFormat;
+
+        return fmt;
+
+    }
+
+    /**
+     * Open a file, decompressing it if its name ends with <code>.gz</code> or
+     * <code>.zip</code>.
+     */
+    private InputStream newInputStream(final File file) throws IOException {
+
+        final String n = file.getName();
+
+        final InputStream is = new FileInputStream(file);
+
+        if (n.endsWith(".gz")) {
+
+            return new GZIPInputStream(is, getGzipBuffer());
+
+        } else if (n.endsWith(".zip")) {
+
+            return new ZipInputStream(new BufferedInputStream(is,
+                    getGzipBuffer()));
+
+        }
+
+        return is;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the files in a directory will be loaded by
+     * parallel parsers.
+     * 
+     * @see Options#PARSER_THREADS
+     */
+    private boolean isParallelLoad() {
+
+        return parserThreads > 1 && tm == null
+                && commitEnum != CommitEnum.Incremental;
+
+    }
+
+    /**
+     * Collect the files in a directory (recursively) in the same order in
+     * which they would be visited by a sequential load.
+     */
+    private static void listFiles(final File dir, final FilenameFilter filter,
+            final List<File> files) {
+
+        final File[] a = (filter != null ? dir.listFiles(filter) : dir
+                .listFiles());
+
+        Arrays.sort(a);
+
+        for (File f : a) {
+
+            if (f.isDirectory()) {
+
+                listFiles(f, filter, files);
+
+            } else {
+
+                files.add(f);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Load the files in a directory (recursively) using
+     * {@link Options#PARSER_THREADS} concurrent parsers. Each parser thread
+     * owns a {@link StatementBuffer} whose writer resolves the distinct values
+     * of a batch against the lexicon and then writes the statements onto each
+     * of the statement indices in parallel, so the parsers, the lexicon writes
+     * and the statement index writes are pipelined. The per-stage statistics
+     * are reported on the <i>totals</i>.
+     * <p>
+     * Note: On error, the remaining parsers are cancelled and the caller must
+     * discard the writes already on the backing store (by calling abort()).
+     */
+    private void loadFilesParallel(final MyLoadStats totals, final File dir,
+            final String baseURI, final RDFFormat rdfFormat,
+            final String defaultGraph, final FilenameFilter filter)
+            throws IOException {
+
+        final List<File> files = new LinkedList<File>();
+
+        listFiles(dir, filter, files);
+
+        final int nthreads = Math.min(parserThreads, files.size());
+
+        if (nthreads == 0)
+            return;
+
+        if (log.isInfoEnabled())
+            log.info("Loading " + files.size() + " files from " + dir
+                    + " using " + nthreads + " parser threads");
+
+        /*
+         * One buffer per parser thread. A parser takes a buffer for the
+         * duration of a source and then returns it to the pool.
+         */
+        final BlockingQueue<StatementBuffer<?>> buffers = new LinkedBlockingQueue<StatementBuffer<?>>();
+
+        final List<StatementBuffer<?>> allBuffers = new LinkedList<StatementBuffer<?>>();
+
+        for (int i = 0; i < nthreads; i++) {
+
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            final StatementBuffer<?> b = new StatementBuffer(database,
+                    bufferCapacity, queueCapacity);
+
+            buffers.add(b);
+
+            allBuffers.add(b);
+
+        }
+
+        // Aggregates the per-file statistics.
+        final MyLoadStats stats = newLoadStats();
+
+        final LatchedExecutor executor = new LatchedExecutor(
+                database.getExecutorService(), nthreads);
+
+        final List<FutureTask<Void>> futures = new LinkedList<FutureTask<Void>>();
+
+        final long begin = System.currentTimeMillis();
+
+        try {
+
+            for (File file : files) {
+
+                final FutureTask<Void> ft = new FutureTask<Void>(
+                        new ParserTask(stats, buffers, file, baseURI,
+                                rdfFormat, defaultGraph));
+
+                futures.add(ft);
+
+                executor.execute(ft);
+
+            }
+
+            for (FutureTask<Void> ft : futures) {
+
+                ft.get();
+
+            }
+
+        } catch (InterruptedException ex) {
+
+            throw new RuntimeException(ex);
+
+        } catch (ExecutionException ex) {
+
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+
+            throw new RuntimeException("While loading: " + dir, cause);
+
+        } finally {
+
+            for (FutureTask<Void> ft : futures) {
+
+                ft.cancel(true/* mayInterruptIfRunning */);
+
+            }
+
+        }
+
+        final long elapsed = System.currentTimeMillis() - begin;
+
+        // Note: The buffers were flushed at the end of each source.
+        for (StatementBuffer<?> b : allBuffers) {
+
+            stats.termsCount.add(b.getTermsWriteCount());
+
+            stats.termsTime.add(TimeUnit.NANOSECONDS.toMillis(b
+                    .getTermsWriteNanos()));
+
+            stats.stmtsCount.add(b.getStatementsWriteCount());
+
+            stats.stmtsTime.add(TimeUnit.NANOSECONDS.toMillis(b
+                    .getStatementsWriteNanos()));
+
+        }
+
+        // Note: Report the elapsed time rather than the sum over the threads.
+        stats.loadTime.set(elapsed);
+
+        stats.totalTime.set(elapsed);
+
+        totals.add(stats);
+
+        if (log.isInfoEnabled() || verbose > 0) {
+
+            final String msg = "Loaded " + files.size() + " files from " + dir
+                    + " using " + nthreads + " parser threads: " + stats;
+
+            if (log.isInfoEnabled())
+                log.info(msg);
+
+            if (verbose > 0)
+                output.println(msg);
+
+        }
+
+    }
+
+    /**
+     * Parses a single file onto a {@link StatementBuffer} taken from a pool.
+     * 
+     * @see DataLoader#loadFilesParallel(MyLoadStats, File, String, RDFFormat,
+     *      String, FilenameFilter)
+     */
+    private class ParserTask implements Callable<Void> {
+
+        private final MyLoadStats totals;
+        private final BlockingQueue<StatementBuffer<?>> buffers;
+        private final File file;
+        private final String baseURI;
+        private final RDFFormat rdfFormat;
+        private final String defaultGraph;
+
+        ParserTask(final MyLoadStats totals,
+                final BlockingQueue<StatementBuffer<?>> buffers,
+                final File file, final String baseURI,
+                final RDFFormat rdfFormat, final String defaultGraph) {
+
+            this.totals = totals;
+            this.buffers = buffers;
+            this.file = file;
+            this.baseURI = baseURI;
+            this.rdfFormat = rdfFormat;
+            this.defaultGraph = defaultGraph;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final StatementBuffer<?> buffer = buffers.take();
+
+            boolean ok = false;
+
+            try {
+
+                load(buffer);
+
+                ok = true;
+
+            } finally {
+
+                if (!ok) {
+
+                    // discard anything buffered for this source.
+                    buffer.reset();
+
+                }
+
+                buffers.add(buffer);
+
+            }
+
+            return null;
+
+        }
+
+        private void load(final StatementBuffer<?> buffer) throws Exception {
+
+            if (log.isInfoEnabled())
+                log.info("Loading next file: " + file + " now...");
+
+            final MyLoadStats stats = newLoadStats();
+
+            final long begin = System.currentTimeMillis();
+
+            // baseURI for this file.
+            final String s = baseURI != null ? baseURI : file.toURI()
+                    .toString();
+
+            // Note: Always flush the buffer at the end of the source.
+            final PresortRioLoader loader = new PresortRioLoader(buffer, true/* flush */);
+
+            boolean ok = false;
+
+            final Reader reader = new BufferedReader(new InputStreamReader(
+                    newInputStream(file)));
+
+            try {
+
+                loader.loadRdf(reader, s, getRDFFormat(file, rdfFormat),
+                        defaultGraph, parserOptions);
+
+                ok = true;
+
+            } catch (RDFParseException ex) {
+
+                if (!ignoreInvalidFiles)
+                    throw new RuntimeException("Could not parse file: "
+                            + file, ex);
+
+                log.error("Parser error - skipping source: source=" + file, ex);
+
+                buffer.reset();
+
+            } finally {
+
+                // Note: Must close() before renameTo().
+                reader.close();
+
+                if (ok) {
+
+                    stats.didGood(file);
+
+                } else {
+
+                    stats.didFail(file);
+
+                }
+
+                stats.toldTriples.set(loader.getStatementsAdded());
+
+                stats.parseTime.set(System.currentTimeMillis() - begin);
+
+                synchronized (totals) {
+
+                    totals.add(stats);
+
+                }
+
+            }
+
+        }
+
+    }
+
     /**
 	 * Loads data from the <i>source</i>. The caller is responsible for closing
 	 * the <i>source</i> if there is an error.
@@ -62,6 +62,16 @@ public class GeoSpatialCounters implements ICounterSetAccess {
      */
     protected final CAT zOrderIndexMisses = new CAT();
 
+    /**
+     * The #of times the cursor was advanced to the BIGMIN of a miss.
+     */
+    protected final CAT zOrderIndexSkips = new CAT();
+
+    /**
+     * The #of z-order subranges the search ranges were decomposed into.
+     */
+    protected final CAT zOrderSubRanges = new CAT();
+
     /**
      * The time spent in bigmin calculations (not including
      * the subsequent advancement of the cursor)
@@ -105,6 +115,14 @@ public class GeoSpatialCounters implements ICounterSetAccess {
        zOrderIndexMisses.increment();
     }
 
+    public void registerZOrderIndexSkip() {
+       zOrderIndexSkips.increment();
+    }
+
+    public void registerZOrderSubRanges(long numSubRanges) {
+       zOrderSubRanges.add(numSubRanges);
+    }
+
     public void addBigMinCalculationTime(long timeInNanoSec) {
        bigMinCalculationTime.add(timeInNanoSec);
     }
@@ -172,6 +190,40 @@ public class GeoSpatialCounters implements ICounterSetAccess {
             }
         });
 
+        root.addCounter("zOrderIndexSkips", new Instrument<Long>() {
+            @Override 
+            public void sample() {
+                setValue(zOrderIndexSkips.get());
+            }
+        });
+
+        root.addCounter("zOrderSubRanges", new Instrument<Long>() {
+            @Override 
+            public void sample() {
+                setValue(zOrderSubRanges.get());
+            }
+        });
+
+        // average #of z-order subranges scanned per search request
+        root.addCounter("zOrderSubRangesPerSearch", new Instrument<Double>() {
+            @Override
+            public void sample() {
+               final long n = geoSpatialSearchRequests.get();
+               if (n > 0)
+                  setValue(zOrderSubRanges.get() / (double) n);
+            }
+        });
+
+        // average #of cursor advancements per search request
+        root.addCounter("zOrderIndexSkipsPerSearch", new Instrument<Double>() {
+            @Override
+            public void sample() {
+               final long n = geoSpatialSearchRequests.get();
+               if (n > 0)
+                  setValue(zOrderIndexSkips.get() / (double) n);
+            }
+        });
+
         // average #of operator tasks evaluated per query
         root.addCounter("zOrderIndexHitRatio", new Instrument<Double>() {
             @Override
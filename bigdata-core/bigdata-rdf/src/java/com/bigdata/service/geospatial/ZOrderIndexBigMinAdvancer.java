@@ -36,18 +36,19 @@ import com.bigdata.btree.KeyOutOfRangeException;
 import com.bigdata.btree.filter.Advancer;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.keys.KeyBuilder;
-import com.bigdata.rdf.internal.IV;
-import com.bigdata.rdf.internal.IVUtility;
 import com.bigdata.rdf.internal.impl.extensions.GeoSpatialLiteralExtension;
-import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
-import com.bigdata.rdf.model.BigdataLiteral;
 import com.bigdata.rdf.model.BigdataValue;
 import com.bigdata.rdf.spo.SPO;
+import com.bigdata.util.BytesUtil;
 
 /**
  * Advances the cursor to the next zOrderKey that is greater or equal than the
  * first point in the next region. Note that this next key is not necessarily a
  * hit (but, depending on the data) this might be a miss again.
+ * <p>
+ * The range check and the BigMin calculation work on the z-order value as
+ * extracted from the raw key bytes (see {@link ZOrderKeyDecoder}), so no
+ * {@link com.bigdata.rdf.internal.IV}s are decoded for the tuples visited.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  */
@@ -78,6 +79,11 @@ public class ZOrderIndexBigMinAdvancer extends Advancer<SPO> {
    private final GeoSpatialCounters geoSpatialCounters;
    
    private transient IKeyBuilder keyBuilder;
+   
+   private transient ZOrderKeyDecoder keyDecoder;
+   
+   // reusable buffer for the z-order value of the current tuple
+   private transient byte[] dividingRecord;
 
    public ZOrderIndexBigMinAdvancer(
       final byte[] searchMinZOrder, /* the minimum search key (top left) */
@@ -103,12 +109,14 @@ public class ZOrderIndexBigMinAdvancer extends Advancer<SPO> {
    }
    
    
-   @SuppressWarnings("rawtypes")
    @Override
    protected void advance(final ITuple<SPO> tuple) {
 
       if (keyBuilder == null) {
          keyBuilder = KeyBuilder.newInstance();
+         keyDecoder = new ZOrderKeyDecoder(
+            zOrderComponentPos, litExt.getNumDimensions());
+         dividingRecord = new byte[searchMinZOrder.length];
       }
       
       // iterate unless tuple in range is found or we reached the end
@@ -123,24 +131,8 @@ public class ZOrderIndexBigMinAdvancer extends Advancer<SPO> {
          
          final byte[] key = curTuple.getKey();
    
-         keyBuilder.reset();
-   
-         // decode components up to (and including) the z-order string
-         final IV[] ivs = IVUtility.decode(key,zOrderComponentPos+1);
-         
-         // encode everything up to (and excluding) the z-order component "as is"
-         for (int i=0; i<ivs.length-1; i++) {
-            IVUtility.encode(keyBuilder, ivs[i]);
-         }
-   
-         // this is the z-order literal
-         @SuppressWarnings("unchecked")
-         final LiteralExtensionIV<BigdataLiteral> zOrderIv = 
-            (LiteralExtensionIV<BigdataLiteral>)ivs[ivs.length-1];
-         
          // current record (aka dividing record) as unsigned
-         final byte[] dividingRecord = 
-            litExt.toZOrderByteArray(zOrderIv.getDelegate());
+         keyDecoder.getZOrder(key, dividingRecord);
 
          final boolean inRange = rangeScanUtil.isInSearchRange(dividingRecord);
 
@@ -161,17 +153,19 @@ public class ZOrderIndexBigMinAdvancer extends Advancer<SPO> {
             // calculate bigmin over the z-order component
             final byte[] bigMin = rangeScanUtil.calculateBigMin(dividingRecord);
             
-            // pad a zero
-            final LiteralExtensionIV bigMinIv = litExt.createIVFromZOrderByteArray(bigMin);
-            IVUtility.encode(keyBuilder, bigMinIv);
+            // the key prefix of the current tuple, followed by the bigmin
+            keyBuilder.reset();
+            keyDecoder.appendPrefix(keyBuilder, key, bigMin);
    
             final long bigMinCalEnd = System.nanoTime();
             geoSpatialCounters.addBigMinCalculationTime(bigMinCalEnd-bigMinCalStart);
+            geoSpatialCounters.registerZOrderIndexSkip();
             
             // advance to the specified key ...
             try {
                if (log.isDebugEnabled()) {
-                  log.debug("-> advancing to bigmin: " + bigMinIv);
+                  log.debug("-> advancing to bigmin: " 
+                     + BytesUtil.byteArrToBinaryStr(bigMin));
                }
 
                ITuple<SPO> next = src.seek(keyBuilder.getKey());
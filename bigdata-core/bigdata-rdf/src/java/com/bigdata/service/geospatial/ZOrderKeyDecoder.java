@@ -0,0 +1,173 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.service.geospatial;
+
+import java.math.BigInteger;
+
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.IVUtility;
+import com.bigdata.rdf.internal.impl.literal.LiteralExtensionIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Extracts the z-order value of a geospatial literal directly from the bytes
+ * of a statement index key, without decoding the {@link IV}s of the key.
+ * <p>
+ * The geospatial literal is a {@link LiteralExtensionIV} wrapping an
+ * {@link XSDIntegerIV}, so its key encoding ends with the runLength and the
+ * bytes of the {@link BigInteger} holding the z-order value. All
+ * bytes in front of the runLength (the components preceding the object in
+ * the key, the flags and the datatype of the literal) are shared by all
+ * tuples visited through an access path with a constant prefix. This header
+ * is therefore computed once by decoding the {@link IV}s of the first key and
+ * then only compared against each subsequent key; it is recomputed whenever
+ * a key does not share it.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ZOrderKeyDecoder {
+
+   // the position of the geospatial literal within the key
+   private final int objectPos;
+
+   // the length of the z-order value (no leading zero)
+   private final int zOrderArrayLength;
+   
+   // the bytes in front of the runLength of the z-order value (if known)
+   private byte[] header = null;
+   
+   /**
+    * @param objectPos the position of the geospatial literal in the key
+    * @param numDimensions the number of dimensions of the datatype
+    */
+   public ZOrderKeyDecoder(final int objectPos, final int numDimensions) {
+
+      this.objectPos = objectPos;
+      this.zOrderArrayLength = numDimensions * Long.SIZE / Byte.SIZE;
+      
+   }
+   
+   /**
+    * Copies the z-order value of the literal in the key into the given
+    * array of the z-order length (no leading zero).
+    * 
+    * @return the array
+    */
+   public byte[] getZOrder(final byte[] key, final byte[] zOrder) {
+
+      if (!hasHeader(key)) {
+         header = computeHeader(key);
+      }
+      
+      final int off = header.length;
+
+      final int tmp = KeyBuilder.decodeShort(key, off);
+      final int runLength = tmp < 0 ? -tmp : tmp;
+      
+      /*
+       * The BigInteger is positive, so its minimal two's complement
+       * representation is at most one (zero) byte longer than the z-order
+       * value. We right align the value, skipping the leading zero if any.
+       */
+      final int len = Math.min(runLength, zOrderArrayLength);
+      final int pad = zOrderArrayLength - len;
+      
+      for (int i = 0; i < pad; i++) {
+         zOrder[i] = 0;
+      }
+      
+      System.arraycopy(key, off + 2 + runLength - len, zOrder, pad, len);
+      
+      return zOrder;
+      
+   }
+
+   /**
+    * Appends the key prefix up to (and including) the given z-order value
+    * (no leading zero) to the key builder, reusing the prefix of the key.
+    * This is the key to seek to in order to visit that z-order value.
+    */
+   public IKeyBuilder appendPrefix(final IKeyBuilder keyBuilder,
+         final byte[] key, final byte[] zOrder) {
+
+      if (!hasHeader(key)) {
+         header = computeHeader(key);
+      }
+      
+      keyBuilder.append(key, 0, header.length);
+      
+      final byte[] tmp = new byte[zOrder.length + 1];
+      System.arraycopy(zOrder, 0, tmp, 1, zOrder.length);
+      
+      keyBuilder.append(new BigInteger(tmp));
+      
+      return keyBuilder;
+   }
+   
+   private boolean hasHeader(final byte[] key) {
+
+      return header != null
+            && key.length > header.length + 2
+            && BytesUtil.compareBytesWithLenAndOffset(0, header.length,
+                  header, 0, header.length, key) == 0;
+
+   }
+
+   @SuppressWarnings("rawtypes")
+   private byte[] computeHeader(final byte[] key) {
+
+      final IV[] ivs = IVUtility.decode(key, objectPos + 1);
+
+      int off = 0;
+      for (int i = 0; i < objectPos; i++) {
+         off += ivs[i].byteLength();
+      }
+
+      final IV oIV = ivs[objectPos];
+      if (!(oIV instanceof LiteralExtensionIV)
+            || !(((LiteralExtensionIV) oIV).getDelegate() instanceof XSDIntegerIV)) {
+         throw new IllegalArgumentException("Not a geospatial literal: " + oIV);
+      }
+      
+      final int runLength = ((LiteralExtensionIV) oIV).getDelegate()
+            .integerValue().toByteArray().length;
+      
+      // the BigInteger is the last component of the encoded IV
+      final int headerLength = off + oIV.byteLength() - 2 - runLength;
+      
+      final byte[] header = new byte[headerLength];
+      System.arraycopy(key, 0, header, 0, headerLength);
+      
+      return header;
+   }
+   
+}
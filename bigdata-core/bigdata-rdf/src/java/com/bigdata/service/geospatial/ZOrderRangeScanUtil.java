@@ -26,6 +26,13 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
  */
 package com.bigdata.service.geospatial;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
 import com.bigdata.rdf.internal.impl.extensions.GeoSpatialLiteralExtension;
 import com.bigdata.util.BytesUtil;
 
@@ -259,6 +266,164 @@ public class ZOrderRangeScanUtil {
       return bigmin;
    }
    
+   /**
+    * Decomposes the multi-dimensional search range given through its z-order
+    * min and max values into at most <code>maxRanges</code> search ranges,
+    * which are again multi-dimensional boxes and exactly cover the original
+    * range. The z-order range of the original box often contains long runs of
+    * values lying outside of the box; these runs are cut out by splitting the
+    * box at the most significant bit in which min and max differ (the halves
+    * are obtained through the load 0111... on max (LITMAX) and the load
+    * 1000... on min (BIGMIN), respectively). We always split the range with
+    * the widest z-order range next, and stop splitting once a range is
+    * aligned, i.e. once its z-order range contains nothing but values in the
+    * box.
+    * 
+    * @param searchMinZOrder the z-order min value of the box (no leading zero)
+    * @param searchMaxZOrder the z-order max value of the box (no leading zero)
+    * @param numDimensions the number of dimensions
+    * @param maxRanges the maximum number of ranges to return (must be >= 1)
+    * 
+    * @return the ranges, ordered by their z-order min value
+    */
+   public static List<ZOrderRange> decompose(
+      final byte[] searchMinZOrder, final byte[] searchMaxZOrder,
+      final int numDimensions, final int maxRanges) {
+      
+      if (maxRanges < 1)
+         throw new IllegalArgumentException();
+
+      final PriorityQueue<ZOrderRange> queue = 
+         new PriorityQueue<ZOrderRange>(Math.max(2, maxRanges), 
+            Collections.reverseOrder(ZOrderRange.SPAN_COMPARATOR));
+      
+      final List<ZOrderRange> ranges = new ArrayList<ZOrderRange>();
+      
+      queue.add(new ZOrderRange(searchMinZOrder, searchMaxZOrder));
+      
+      while (!queue.isEmpty() && queue.size() + ranges.size() < maxRanges) {
+         
+         final ZOrderRange range = queue.poll();
+         
+         final int splitPos = range.getSplitPosition();
+         
+         if (splitPos < 0) {
+            
+            ranges.add(range); // aligned, nothing to gain
+            continue;
+            
+         }
+         
+         final byte[] litMax = range.max.clone();
+         load(false, splitPos, litMax, numDimensions);
+         
+         final byte[] bigMin = range.min.clone();
+         load(true, splitPos, bigMin, numDimensions);
+
+         queue.add(new ZOrderRange(range.min, litMax));
+         queue.add(new ZOrderRange(bigMin, range.max));
+         
+      }
+      
+      ranges.addAll(queue);
+      
+      Collections.sort(ranges, ZOrderRange.MIN_COMPARATOR);
+      
+      return ranges;
+   }
+   
+   /**
+    * A multi-dimensional box given through its z-order min and max value
+    * (without leading zero), see {@link ZOrderRangeScanUtil#decompose}.
+    */
+   public static class ZOrderRange {
+      
+      static final Comparator<ZOrderRange> MIN_COMPARATOR = 
+         new Comparator<ZOrderRange>() {
+            @Override
+            public int compare(final ZOrderRange o1, final ZOrderRange o2) {
+               return BytesUtil.compareBytes(o1.min, o2.min);
+            }
+         };
+
+      static final Comparator<ZOrderRange> SPAN_COMPARATOR = 
+         new Comparator<ZOrderRange>() {
+            @Override
+            public int compare(final ZOrderRange o1, final ZOrderRange o2) {
+               return o1.getSpan().compareTo(o2.getSpan());
+            }
+         };
+         
+      private final byte[] min;
+      
+      private final byte[] max;
+      
+      private BigInteger span;
+      
+      public ZOrderRange(final byte[] min, final byte[] max) {
+         this.min = min;
+         this.max = max;
+      }
+      
+      /**
+       * The z-order min value (no leading zero).
+       */
+      public byte[] getMin() {
+         return min;
+      }
+
+      /**
+       * The z-order max value (no leading zero).
+       */
+      public byte[] getMax() {
+         return max;
+      }
+
+      /**
+       * The #of z-order values in the range.
+       */
+      public BigInteger getSpan() {
+         
+         if (span == null) {
+            span = new BigInteger(1, max).subtract(new BigInteger(1, min))
+                  .add(BigInteger.ONE);
+         }
+         
+         return span;
+      }
+
+      /**
+       * Returns the position of the most significant bit in which min and
+       * max differ or -1 if the range is aligned, i.e. if min and max share
+       * a common prefix followed by only zeros in min and only ones in max.
+       */
+      int getSplitPosition() {
+         
+         final int nbits = min.length * Byte.SIZE;
+         
+         int pos = 0;
+         while (pos < nbits && BytesUtil.getBit(min, pos) == BytesUtil.getBit(max, pos)) {
+            pos++;
+         }
+         
+         for (int i = pos; i < nbits; i++) {
+            if (BytesUtil.getBit(min, i) || !BytesUtil.getBit(max, i)) {
+               return pos;
+            }
+         }
+         
+         return -1;
+      }
+      
+      @Override
+      public String toString() {
+         return getClass().getSimpleName() + "{min="
+               + BytesUtil.byteArrToBinaryStr(min) + ",max="
+               + BytesUtil.byteArrToBinaryStr(max) + "}";
+      }
+      
+   }
+   
    /**
     * Implements the load function from p.75 in
     * http://www.vision-tools.com/h-tropf/multidimensionalrangequery.pdf:
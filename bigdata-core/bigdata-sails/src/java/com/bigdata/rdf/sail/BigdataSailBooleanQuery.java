@@ -12,6 +12,7 @@ import com.bigdata.rdf.sparql.ast.BindingsClause;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
 import com.bigdata.rdf.store.AbstractTripleStore;
 
 public class BigdataSailBooleanQuery extends SailBooleanQuery 
@@ -21,6 +22,31 @@ public class BigdataSailBooleanQuery extends SailBooleanQuery
 
     private final ASTContainer astContainer;
 
+    /**
+     * The cache of compiled queries and the base URI used to parse the query
+     * (optional).
+     */
+    private volatile QueryPlanCache planCache;
+    private volatile String baseURI;
+
+    /**
+     * Reuse a compiled query from the cache, if possible, when the query is
+     * evaluated.
+     * 
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     */
+    public void setQueryPlanCache(final QueryPlanCache planCache,
+            final String baseURI) {
+
+        this.planCache = planCache;
+
+        this.baseURI = baseURI;
+
+    }
+
     public ASTContainer getASTContainer() {
         
         return astContainer;
@@ -76,7 +102,8 @@ public class BigdataSailBooleanQuery extends SailBooleanQuery
 
         final boolean queryResult = ASTEvalHelper.evaluateBooleanQuery(
                 getTripleStore(), astContainer, new QueryBindingSet(
-                        getBindings()), getDataset());
+                        getBindings()), getDataset(), bc == null ? planCache
+                        : null, baseURI);
 
         return queryResult;
     }
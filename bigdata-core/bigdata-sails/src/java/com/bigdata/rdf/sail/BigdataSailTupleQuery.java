@@ -8,14 +8,19 @@ import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.algebra.evaluation.QueryBindingSet;
 import org.openrdf.repository.sail.SailTupleQuery;
 
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
 import com.bigdata.rdf.sparql.ast.BindingsClause;
 import com.bigdata.rdf.sparql.ast.DatasetNode;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.eval.AST2BOpContext;
 import com.bigdata.rdf.sparql.ast.eval.ASTEvalHelper;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
 import com.bigdata.rdf.store.AbstractTripleStore;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 public class BigdataSailTupleQuery extends SailTupleQuery 
         implements BigdataSailQuery {
 
@@ -23,6 +28,31 @@ public class BigdataSailTupleQuery extends SailTupleQuery
     
     private final ASTContainer astContainer;
     
+    /**
+     * The cache of compiled queries and the base URI used to parse the query
+     * (optional).
+     */
+    private volatile QueryPlanCache planCache;
+    private volatile String baseURI;
+
+    /**
+     * Reuse a compiled query from the cache, if possible, when the query is
+     * evaluated.
+     * 
+     * @param planCache
+     *            The cache of compiled queries (optional).
+     * @param baseURI
+     *            The base URI used to parse the query.
+     */
+    public void setQueryPlanCache(final QueryPlanCache planCache,
+            final String baseURI) {
+
+        this.planCache = planCache;
+
+        this.baseURI = baseURI;
+
+    }
+
     public ASTContainer getASTContainer() {
         
         return astContainer;
@@ -78,11 +108,40 @@ public class BigdataSailTupleQuery extends SailTupleQuery
 
         final TupleQueryResult queryResult = ASTEvalHelper.evaluateTupleQuery(
                 getTripleStore(), astContainer, new QueryBindingSet(
-                        getBindings()), getDataset());
+                        getBindings()), getDataset(), bc == null ? planCache
+                        : null, baseURI);
 
         return queryResult;
 
     }
+
+    /**
+     * Evaluate the query without materializing the {@link IV}s in the
+     * solutions. The projected variables are reported by the optimized AST
+     * once this method returns.
+     * 
+     * @return The chunks of solutions. The caller MUST close the iterator.
+     * 
+     * @see ASTEvalHelper#evaluateTupleQueryIVs(AbstractTripleStore,
+     *      ASTContainer, QueryBindingSet, org.openrdf.query.Dataset,
+     *      QueryPlanCache, String)
+     */
+    public ICloseableIterator<IBindingSet[]> evaluateIVs()
+            throws QueryEvaluationException {
+
+        final QueryRoot originalQuery = astContainer.getOriginalAST();
+
+        if (getMaxQueryTime() > 0)
+            originalQuery.setTimeout(TimeUnit.SECONDS
+                    .toMillis(getMaxQueryTime()));
+
+        originalQuery.setIncludeInferred(getIncludeInferred());
+
+        return ASTEvalHelper.evaluateTupleQueryIVs(getTripleStore(),
+                astContainer, new QueryBindingSet(getBindings()),
+                getDataset(), planCache, baseURI);
+
+    }
     
     public QueryRoot optimize() throws QueryEvaluationException {
 
@@ -76,6 +76,7 @@ import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.RDFWriterRegistry;
 
 import com.bigdata.BigdataStatics;
+import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.engine.IRunningQuery;
 import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.fed.QueryEngineFactory;
@@ -87,6 +88,7 @@ import com.bigdata.journal.ITransactionService;
 import com.bigdata.journal.ITx;
 import com.bigdata.journal.Journal;
 import com.bigdata.journal.TimestampUtility;
+import com.bigdata.rdf.ServiceProviderHook;
 import com.bigdata.rdf.changesets.IChangeLog;
 import com.bigdata.rdf.changesets.IChangeRecord;
 import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
@@ -109,6 +111,7 @@ import com.bigdata.rdf.sparql.ast.QueryOptimizerEnum;
 import com.bigdata.rdf.sparql.ast.QueryRoot;
 import com.bigdata.rdf.sparql.ast.QueryType;
 import com.bigdata.rdf.sparql.ast.Update;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
 import com.bigdata.rdf.store.AbstractTripleStore;
 import com.bigdata.relation.RelationSchema;
 import com.bigdata.service.IBigdataFederation;
@@ -117,6 +120,8 @@ import com.bigdata.sparse.SparseRowStore;
 import com.bigdata.util.DaemonThreadFactory;
 import com.bigdata.util.concurrent.ThreadPoolExecutorBaseStatisticsTask;
 
+import cutthecrap.utils.striterators.ICloseableIterator;
+
 /**
  * Class encapsulates state shared by {@link QueryServlet}(s) for the same
  * {@link IIndexManager}.
@@ -1156,6 +1161,34 @@ public class BigdataRDFContext extends BigdataBaseContext {
             }
         }
 
+        /**
+         * Reuse a compiled SELECT or ASK query if the {@link QueryPlanCache}
+         * is enabled.
+         * 
+         * @see QueryPlanCache.Options#CAPACITY
+         */
+        protected void setQueryPlanCache(final AbstractQuery query) {
+
+            final QueryPlanCache planCache = QueryEngineFactory.getInstance()
+                    .getQueryController(getIndexManager()).getQueryPlanCache();
+
+            if (planCache == null)
+                return;
+
+            if (query instanceof BigdataSailTupleQuery) {
+
+                ((BigdataSailTupleQuery) query).setQueryPlanCache(planCache,
+                        baseURI);
+
+            } else if (query instanceof BigdataSailBooleanQuery) {
+
+                ((BigdataSailBooleanQuery) query).setQueryPlanCache(planCache,
+                        baseURI);
+
+            }
+
+        }
+
 
         /**
          * 
@@ -1184,6 +1217,9 @@ public class BigdataRDFContext extends BigdataBaseContext {
 			setBindings(query);
 			
 			query.setIncludeInferred(includeInferred);
+
+			// Reuse a compiled query if possible.
+			setQueryPlanCache(query);
 			
             if (analytic) {
 
@@ -1671,6 +1707,34 @@ public class BigdataRDFContext extends BigdataBaseContext {
                 final TupleQueryResultFormat format = TupleQueryResultWriterRegistry
                         .getInstance().getFileFormatForMIMEType(mimeType);
 
+                if (ServiceProviderHook.BINARY_RESULTS.equals(format)) {
+
+                    /*
+                     * Write the IVs directly rather than materializing each
+                     * value and converting the solutions into openrdf
+                     * solutions.
+                     */
+
+                    final ICloseableIterator<IBindingSet[]> itr = query
+                            .evaluateIVs();
+
+                    try {
+
+                        new IVBinaryResultsWriter(os, query.getTripleStore()
+                                .getLexiconRelation()).write(query
+                                .getASTContainer().getOptimizedAST()
+                                .getProjection().getProjectionVars(), itr);
+
+                    } finally {
+
+                        itr.close();
+
+                    }
+
+                    return;
+
+                }
+
                 w = TupleQueryResultWriterRegistry.getInstance().get(format)
                         .getWriter(os);
                 
@@ -0,0 +1,315 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.TupleQueryResultHandlerException;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.impl.literal.XSDBooleanIV;
+import com.bigdata.rdf.internal.impl.literal.XSDIntegerIV;
+import com.bigdata.rdf.internal.impl.literal.XSDNumericIV;
+import com.bigdata.rdf.lexicon.LexiconRelation;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.sail.webapp.client.BinaryResults;
+import com.bigdata.rdf.sail.webapp.client.BinaryResultsWriter;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * Writes solutions whose bindings are {@link IV}s in the {@link BinaryResults}
+ * format without first materializing them as RDF Values.
+ * <p>
+ * Inline numeric and boolean {@link IV}s are written directly into the rows.
+ * Each other distinct {@link IV} is materialized once, when it is first seen,
+ * using one batch read against the lexicon per chunk of solutions, and is then
+ * referenced from the rows by its dictionary identifier.
+ */
+public class IVBinaryResultsWriter extends BinaryResultsWriter {
+
+    private final LexiconRelation lex;
+
+    /**
+     * @param os
+     *            The output stream.
+     * @param lex
+     *            The lexicon used to materialize the {@link IV}s which are
+     *            not written inline.
+     */
+    public IVBinaryResultsWriter(final OutputStream os,
+            final LexiconRelation lex) {
+
+        super(os);
+
+        if (lex == null)
+            throw new IllegalArgumentException();
+
+        this.lex = lex;
+
+    }
+
+    /**
+     * Write the result set.
+     * 
+     * @param vars
+     *            The projected variables.
+     * @param itr
+     *            The chunks of solutions (the caller is responsible for
+     *            closing this iterator).
+     */
+    public void write(final IVariable<?>[] vars,
+            final ICloseableIterator<IBindingSet[]> itr)
+            throws TupleQueryResultHandlerException {
+
+        final List<String> names = new ArrayList<String>(vars.length);
+
+        for (IVariable<?> var : vars)
+            names.add(var.getName());
+
+        startQueryResult(names);
+
+        try {
+
+            while (itr.hasNext()) {
+
+                handleChunk(vars, itr.next());
+
+            }
+
+        } catch (IOException ex) {
+
+            throw new TupleQueryResultHandlerException(ex);
+
+        }
+
+        endQueryResult();
+
+    }
+
+    /**
+     * Write a chunk of solutions.
+     */
+    private void handleChunk(final IVariable<?>[] vars,
+            final IBindingSet[] chunk) throws IOException {
+
+        if (isDictionaryFull())
+            clearDictionary();
+
+        /*
+         * Collect the IVs which are neither inline nor already in the
+         * dictionary and materialize them in one batch.
+         */
+        final Set<IV<?, ?>> ivs = new HashSet<IV<?, ?>>();
+
+        for (IBindingSet bset : chunk) {
+
+            for (IVariable<?> var : vars) {
+
+                final IConstant<?> c = bset.get(var);
+
+                if (c == null || !(c.get() instanceof IV))
+                    continue;
+
+                final IV<?, ?> iv = (IV<?, ?>) c.get();
+
+                if (iv.hasValue() || isInline(iv) || getTermId(iv) != -1)
+                    continue;
+
+                ivs.add(iv);
+
+            }
+
+        }
+
+        final Map<IV<?, ?>, BigdataValue> terms = ivs.isEmpty() ? Collections
+                .<IV<?, ?>, BigdataValue> emptyMap() : lex.getTerms(ivs);
+
+        for (IBindingSet bset : chunk) {
+
+            for (IVariable<?> var : vars) {
+
+                final IConstant<?> c = bset.get(var);
+
+                if (c == null) {
+
+                    writeCell(BinaryResults.CELL_UNBOUND, 0L);
+
+                    continue;
+
+                }
+
+                final Object o = c.get();
+
+                final Object key;
+                final Value val;
+
+                if (o instanceof IV) {
+
+                    final IV<?, ?> iv = (IV<?, ?>) o;
+
+                    if (writeInline(iv))
+                        continue;
+
+                    if (iv.hasValue()) {
+
+                        val = iv.getValue();
+
+                        // Note: Mock IVs are not distinct, so use their Value.
+                        key = iv.isNullIV() ? val : iv;
+
+                    } else {
+
+                        val = terms.get(iv);
+
+                        key = iv;
+
+                    }
+
+                } else {
+
+                    val = (Value) o;
+
+                    key = val;
+
+                }
+
+                int id = getTermId(key);
+
+                if (id == -1) {
+
+                    if (val == null)
+                        throw new RuntimeException("Could not resolve: var="
+                                + var + ", value=" + o);
+
+                    id = addTerm(key, val);
+
+                }
+
+                writeCell(BinaryResults.CELL_TERM, id);
+
+            }
+
+            endRow();
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff the {@link IV} can be written into a row.
+     */
+    private static boolean isInline(final IV<?, ?> iv) {
+
+        if (iv instanceof XSDNumericIV || iv instanceof XSDBooleanIV)
+            return true;
+
+        if (iv instanceof XSDIntegerIV)
+            return ((XSDIntegerIV<?>) iv).getInlineValue().bitLength() < 64;
+
+        return false;
+
+    }
+
+    /**
+     * Write the {@link IV} into the row if it is {@link #isInline(IV)}.
+     * 
+     * @return <code>true</code> iff the {@link IV} was written.
+     */
+    @SuppressWarnings("rawtypes")
+    private boolean writeInline(final IV<?, ?> iv) throws IOException {
+
+        if (iv instanceof XSDBooleanIV) {
+
+            writeCell(BinaryResults.CELL_BOOLEAN,
+                    ((XSDBooleanIV) iv).booleanValue() ? 1L : 0L);
+
+            return true;
+
+        }
+
+        if (iv instanceof XSDIntegerIV) {
+
+            final BigInteger b = ((XSDIntegerIV) iv).getInlineValue();
+
+            if (b.bitLength() >= 64)
+                return false;
+
+            writeCell(BinaryResults.CELL_INTEGER, b.longValue());
+
+            return true;
+
+        }
+
+        if (!(iv instanceof XSDNumericIV))
+            return false;
+
+        final XSDNumericIV n = (XSDNumericIV) iv;
+
+        switch (iv.getDTE()) {
+        case XSDByte:
+            writeCell(BinaryResults.CELL_BYTE, n.byteValue());
+            return true;
+        case XSDShort:
+            writeCell(BinaryResults.CELL_SHORT, n.shortValue());
+            return true;
+        case XSDInt:
+            writeCell(BinaryResults.CELL_INT, n.intValue());
+            return true;
+        case XSDLong:
+            writeCell(BinaryResults.CELL_LONG, n.longValue());
+            return true;
+        case XSDFloat:
+            writeCell(BinaryResults.CELL_FLOAT,
+                    Float.floatToIntBits(n.floatValue()));
+            return true;
+        case XSDDouble:
+            writeCell(BinaryResults.CELL_DOUBLE,
+                    Double.doubleToLongBits(n.doubleValue()));
+            return true;
+        default:
+            return false;
+        }
+
+    }
+
+}
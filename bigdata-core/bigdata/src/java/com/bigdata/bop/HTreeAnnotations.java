@@ -49,4 +49,29 @@ public interface HTreeAnnotations extends IndexAnnotations {
 
 	int DEFAULT_ADDRESS_BITS = 10;
 
+	/**
+	 * The maximum #of bytes of native memory which may be used by the
+	 * {@link HTree} instances of the operator (default
+	 * {@link #DEFAULT_MAX_NATIVE_MEMORY}). ZERO (0L) means that the operator is
+	 * only bounded by the native memory budget of the query.
+	 * 
+	 * @see #SPILL
+	 */
+	String MAX_NATIVE_MEMORY = HTreeAnnotations.class.getName()
+			+ ".maxNativeMemory";
+
+	long DEFAULT_MAX_NATIVE_MEMORY = 0L;
+
+	/**
+	 * When <code>true</code>, the operator continues on a temporary file
+	 * rather than failing when its {@link #MAX_NATIVE_MEMORY} or the native
+	 * memory budget of the query is exhausted (default {@link #DEFAULT_SPILL}
+	 * ).
+	 * 
+	 * @see com.bigdata.rwstore.sector.SpillableMemStore
+	 */
+	String SPILL = HTreeAnnotations.class.getName() + ".spill";
+
+	boolean DEFAULT_SPILL = Boolean.valueOf(System.getProperty(SPILL, "true"));
+
 }
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.engine.IChunkMessage;
 import com.bigdata.bop.engine.QueryEngine;
@@ -227,6 +228,20 @@ abstract public class PipelineOp extends BOpBase {
         String LAST_PASS = PipelineOp.class.getName() + ".lastPass";
 
 		boolean DEFAULT_LAST_PASS = false;
+
+        /**
+         * When <code>true</code>, an operator which supports it will write its
+         * solutions as the rows of a {@link ColumnarSolutionChunk} rather
+         * than as individual {@link IBindingSet}s. Operators which understand
+         * the columnar form (projection, conditional routing and the JVM hash
+         * join) use a vectorized code path for such chunks. Other operators
+         * see the rows as copy-on-write {@link IBindingSet}s.
+         * 
+         * @see PipelineOp#isColumnar()
+         */
+        String COLUMNAR = PipelineOp.class.getName() + ".columnar";
+
+        boolean DEFAULT_COLUMNAR = false;
 		
 //      /**
 //      * For hash partitioned operators, this is the set of the member nodes
@@ -570,6 +585,18 @@ abstract public class PipelineOp extends BOpBase {
         
     }
 
+    /**
+     * Return <code>true</code> iff the operator should write its solutions as
+     * columnar chunks.
+     * 
+     * @see Annotations#COLUMNAR
+     */
+    final public boolean isColumnar() {
+
+        return getProperty(Annotations.COLUMNAR, Annotations.DEFAULT_COLUMNAR);
+
+    }
+
     /**
      * Return <code>true</code> iff {@link #newStats(IQueryContext)} must be
      * shared across all invocations of {@link #eval(BOpContext)} for this
@@ -0,0 +1,338 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.bindingSet;
+
+import java.io.ObjectStreamException;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+
+/**
+ * A view of one solution in a {@link ColumnarSolutionChunk}. The view is
+ * copy-on-write. The first mutation copies the solution into a private
+ * {@link ListBindingSet} and the view is detached from the chunk from then on.
+ * <p>
+ * Note: The view is serialized as a {@link ListBindingSet}.
+ */
+@SuppressWarnings("rawtypes")
+public class ColumnarBindingSet implements IBindingSet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ColumnarSolutionChunk chunk;
+
+    private final int row;
+
+    /**
+     * The private copy of the solution once the view has been modified and
+     * <code>null</code> until then.
+     */
+    private ListBindingSet delegate;
+
+    /**
+     * @param chunk
+     *            The chunk.
+     * @param row
+     *            The index of the solution in the chunk.
+     */
+    ColumnarBindingSet(final ColumnarSolutionChunk chunk, final int row) {
+
+        this.chunk = chunk;
+
+        this.row = row;
+
+    }
+
+    /**
+     * The chunk -or- <code>null</code> if the view has been detached from the
+     * chunk by a mutation.
+     */
+    public ColumnarSolutionChunk getChunk() {
+
+        return delegate == null ? chunk : null;
+
+    }
+
+    /**
+     * The index of the solution in the chunk.
+     */
+    public int getRow() {
+
+        return row;
+
+    }
+
+    /**
+     * Detach the view from the chunk.
+     */
+    private ListBindingSet detach() {
+
+        if (delegate == null) {
+
+            delegate = chunk.materialize(row);
+
+        }
+
+        return delegate;
+
+    }
+
+    /**
+     * The solution as a {@link ListBindingSet} (a copy unless the view was
+     * already detached).
+     */
+    private ListBindingSet current() {
+
+        return delegate != null ? delegate : chunk.materialize(row);
+
+    }
+
+    @Override
+    public boolean isBound(final IVariable var) {
+
+        if (var == null)
+            throw new IllegalArgumentException();
+
+        if (delegate != null)
+            return delegate.isBound(var);
+
+        final int j = chunk.indexOf(var);
+
+        return j != -1 && chunk.isBound(row, j);
+
+    }
+
+    @Override
+    public IConstant get(final IVariable var) {
+
+        if (var == null)
+            throw new IllegalArgumentException();
+
+        if (delegate != null)
+            return delegate.get(var);
+
+        final int j = chunk.indexOf(var);
+
+        return j == -1 ? null : chunk.get(row, j);
+
+    }
+
+    @Override
+    public void set(final IVariable var, final IConstant val) {
+
+        detach().set(var, val);
+
+    }
+
+    @Override
+    public void clear(final IVariable var) {
+
+        detach().clear(var);
+
+    }
+
+    @Override
+    public void clearAll() {
+
+        detach().clearAll();
+
+    }
+
+    @Override
+    public boolean isEmpty() {
+
+        return size() == 0;
+
+    }
+
+    @Override
+    public int size() {
+
+        if (delegate != null)
+            return delegate.size();
+
+        return chunk.size(row);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: Unless the view was detached, the iterator visits a copy of the
+     * solution and {@link Iterator#remove()} detaches the view before clearing
+     * the binding.
+     */
+    @Override
+    public Iterator<Map.Entry<IVariable, IConstant>> iterator() {
+
+        if (delegate != null)
+            return delegate.iterator();
+
+        final Iterator<Map.Entry<IVariable, IConstant>> itr = chunk
+                .materialize(row).iterator();
+
+        return new Iterator<Map.Entry<IVariable, IConstant>>() {
+
+            private Map.Entry<IVariable, IConstant> last = null;
+
+            @Override
+            public boolean hasNext() {
+                return itr.hasNext();
+            }
+
+            @Override
+            public Map.Entry<IVariable, IConstant> next() {
+                return last = itr.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                clear(last.getKey());
+                last = null;
+            }
+
+        };
+
+    }
+
+    @Override
+    public Iterator<IVariable> vars() {
+
+        return current().vars();
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: Unless the view was detached, this returns a new view of the same
+     * solution, which is cheaper than copying the bindings.
+     */
+    @Override
+    public IBindingSet clone() {
+
+        if (delegate != null)
+            return delegate.clone();
+
+        return new ColumnarBindingSet(chunk, row);
+
+    }
+
+    @Override
+    public IBindingSet copy(final IVariable[] variablesToKeep) {
+
+        return current().copy(variablesToKeep);
+
+    }
+
+    @Override
+    public IBindingSet copyMinusErrors(final IVariable[] variablesToKeep) {
+
+        return current().copyMinusErrors(variablesToKeep);
+
+    }
+
+    @Override
+    public boolean containsErrorValues() {
+
+        if (delegate != null)
+            return delegate.containsErrorValues();
+
+        final int nvars = chunk.getVariableCount();
+
+        for (int j = 0; j < nvars; j++) {
+
+            if (chunk.get(row, j) == Constant.errorValue())
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+
+        if (this == o)
+            return true;
+
+        if (!(o instanceof IBindingSet))
+            return false;
+
+        return current().equals(o);
+
+    }
+
+    @Override
+    public int hashCode() {
+
+        if (delegate != null)
+            return delegate.hashCode();
+
+        int result = 0;
+
+        final int nvars = chunk.getVariableCount();
+
+        for (int j = 0; j < nvars; j++) {
+
+            final IConstant<?> c = chunk.get(row, j);
+
+            if (c != null)
+                result ^= c.hashCode();
+
+        }
+
+        return result;
+
+    }
+
+    @Override
+    public String toString() {
+
+        return current().toString();
+
+    }
+
+    /**
+     * Serialize the solution rather than the chunk.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+
+        return current();
+
+    }
+
+}
@@ -0,0 +1,596 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.bindingSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IVariable;
+
+/**
+ * A chunk of solutions stored by column rather than by row. Each variable is a
+ * column holding the bound value for each solution together with a bitmap
+ * having a bit set for each solution in which the variable is bound.
+ * <p>
+ * The chunk is immutable. Operators which understand the columnar form can
+ * work column at a time (projection is a column selection, the hash codes of
+ * the join variables are computed in one pass over each column, a filter
+ * gathers the selected rows). Other operators see the rows through
+ * {@link #toBindingSets()}, which exposes each solution as a
+ * {@link ColumnarBindingSet}. Those row views are copy-on-write, so an
+ * operator may modify them without changing the chunk. An operator can
+ * recover the chunk from an {@link IBindingSet}[] using
+ * {@link #getChunk(IBindingSet[])} as long as the rows were not reordered or
+ * modified.
+ */
+public class ColumnarSolutionChunk {
+
+    /**
+     * The #of bits in a word of the bitmap for a column.
+     */
+    private static final int WORD = 64;
+
+    /**
+     * The variables, one per column.
+     */
+    private final IVariable<?>[] vars;
+
+    /**
+     * The values for each column (<code>null</code> if not bound).
+     */
+    private final IConstant<?>[][] cols;
+
+    /**
+     * The bitmap for each column. The bit for a solution is set iff the
+     * variable is bound in that solution.
+     */
+    private final long[][] bound;
+
+    /**
+     * The #of solutions.
+     */
+    private final int size;
+
+    private ColumnarSolutionChunk(final IVariable<?>[] vars,
+            final IConstant<?>[][] cols, final long[][] bound, final int size) {
+
+        this.vars = vars;
+
+        this.cols = cols;
+
+        this.bound = bound;
+
+        this.size = size;
+
+    }
+
+    /**
+     * Return the chunk whose rows are exactly the given solutions (in order)
+     * and <code>null</code> if the solutions are not the unmodified rows of a
+     * single chunk.
+     * 
+     * @param a
+     *            A chunk of solutions.
+     */
+    public static ColumnarSolutionChunk getChunk(final IBindingSet[] a) {
+
+        if (a == null || a.length == 0 || !(a[0] instanceof ColumnarBindingSet))
+            return null;
+
+        final ColumnarSolutionChunk chunk = ((ColumnarBindingSet) a[0])
+                .getChunk();
+
+        if (chunk == null || chunk.size != a.length)
+            return null;
+
+        for (int i = 0; i < a.length; i++) {
+
+            if (!(a[i] instanceof ColumnarBindingSet))
+                return null;
+
+            final ColumnarBindingSet row = (ColumnarBindingSet) a[i];
+
+            if (row.getChunk() != chunk || row.getRow() != i)
+                return null;
+
+        }
+
+        return chunk;
+
+    }
+
+    /**
+     * Return a columnar chunk for the given solutions. If the solutions are
+     * already the rows of a chunk, then that chunk is returned.
+     * 
+     * @param a
+     *            The solutions.
+     */
+    public static ColumnarSolutionChunk valueOf(final IBindingSet[] a) {
+
+        final ColumnarSolutionChunk chunk = getChunk(a);
+
+        if (chunk != null)
+            return chunk;
+
+        final int n = a.length;
+
+        // The column index for each variable in the order first seen.
+        final Map<IVariable<?>, Integer> index = new LinkedHashMap<IVariable<?>, Integer>();
+
+        final List<IConstant<?>[]> cols = new ArrayList<IConstant<?>[]>();
+
+        final List<long[]> bound = new ArrayList<long[]>();
+
+        for (int i = 0; i < n; i++) {
+
+            @SuppressWarnings("rawtypes")
+            final Iterator<Map.Entry<IVariable, IConstant>> itr = a[i]
+                    .iterator();
+
+            while (itr.hasNext()) {
+
+                @SuppressWarnings("rawtypes")
+                final Map.Entry<IVariable, IConstant> e = itr.next();
+
+                if (e.getValue() == null)
+                    continue;
+
+                Integer j = index.get(e.getKey());
+
+                if (j == null) {
+
+                    index.put(e.getKey(), j = cols.size());
+
+                    cols.add(new IConstant<?>[n]);
+
+                    bound.add(new long[words(n)]);
+
+                }
+
+                cols.get(j)[i] = e.getValue();
+
+                bound.get(j)[i / WORD] |= 1L << (i % WORD);
+
+            }
+
+        }
+
+        return new ColumnarSolutionChunk(index.keySet().toArray(
+                new IVariable<?>[index.size()]),
+                cols.toArray(new IConstant<?>[cols.size()][]),
+                bound.toArray(new long[bound.size()][]), n);
+
+    }
+
+    /**
+     * Return a columnar chunk for the given solutions having only the given
+     * variables. If the solutions are already the rows of a chunk, then the
+     * columns of that chunk are shared.
+     * 
+     * @param a
+     *            The solutions.
+     * @param vars
+     *            The variables to be retained.
+     */
+    public static ColumnarSolutionChunk valueOf(final IBindingSet[] a,
+            final IVariable<?>[] vars) {
+
+        final ColumnarSolutionChunk chunk = getChunk(a);
+
+        if (chunk != null)
+            return chunk.project(vars);
+
+        final int n = a.length;
+
+        final IConstant<?>[][] cols = new IConstant<?>[vars.length][];
+
+        final long[][] bound = new long[vars.length][];
+
+        for (int j = 0; j < vars.length; j++) {
+
+            final IVariable<?> v = vars[j];
+
+            final IConstant<?>[] col = cols[j] = new IConstant<?>[n];
+
+            final long[] bits = bound[j] = new long[words(n)];
+
+            for (int i = 0; i < n; i++) {
+
+                final IConstant<?> c = a[i].get(v);
+
+                if (c != null) {
+
+                    col[i] = c;
+
+                    bits[i / WORD] |= 1L << (i % WORD);
+
+                }
+
+            }
+
+        }
+
+        return new ColumnarSolutionChunk(vars.clone(), cols, bound, n);
+
+    }
+
+    private static int words(final int n) {
+
+        return (n + WORD - 1) / WORD;
+
+    }
+
+    /**
+     * The #of solutions in the chunk.
+     */
+    public int size() {
+
+        return size;
+
+    }
+
+    /**
+     * The variables, one for each column.
+     */
+    public IVariable<?>[] getVariables() {
+
+        return vars.clone();
+
+    }
+
+    /**
+     * The #of variables (columns).
+     */
+    public int getVariableCount() {
+
+        return vars.length;
+
+    }
+
+    /**
+     * Return the column for a variable and <code>-1</code> if the variable is
+     * not bound in any solution.
+     */
+    public int indexOf(final IVariable<?> var) {
+
+        for (int j = 0; j < vars.length; j++) {
+
+            if (vars[j] == var)
+                return j;
+
+        }
+
+        for (int j = 0; j < vars.length; j++) {
+
+            if (vars[j].equals(var))
+                return j;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the variable for the column is bound in the
+     * solution.
+     */
+    public boolean isBound(final int row, final int col) {
+
+        return (bound[col][row / WORD] & (1L << (row % WORD))) != 0;
+
+    }
+
+    /**
+     * Return the value of the column in the solution and <code>null</code> if
+     * it is not bound.
+     */
+    public IConstant<?> get(final int row, final int col) {
+
+        return cols[col][row];
+
+    }
+
+    /**
+     * Return the #of variables bound in the solution.
+     */
+    public int size(final int row) {
+
+        int n = 0;
+
+        for (int j = 0; j < vars.length; j++) {
+
+            if (isBound(row, j))
+                n++;
+
+        }
+
+        return n;
+
+    }
+
+    /**
+     * Return a chunk having only the given variables. The columns are shared
+     * with this chunk. A variable which is not bound in any solution is
+     * dropped.
+     */
+    public ColumnarSolutionChunk project(final IVariable<?>[] vars) {
+
+        final List<Integer> tmp = new ArrayList<Integer>(vars.length);
+
+        for (IVariable<?> v : vars) {
+
+            final int j = indexOf(v);
+
+            if (j != -1 && !tmp.contains(j))
+                tmp.add(j);
+
+        }
+
+        final int n = tmp.size();
+
+        final IVariable<?>[] v = new IVariable<?>[n];
+
+        final IConstant<?>[][] c = new IConstant<?>[n][];
+
+        final long[][] b = new long[n][];
+
+        for (int k = 0; k < n; k++) {
+
+            final int j = tmp.get(k);
+
+            v[k] = this.vars[j];
+
+            c[k] = this.cols[j];
+
+            b[k] = this.bound[j];
+
+        }
+
+        return new ColumnarSolutionChunk(v, c, b, size);
+
+    }
+
+    /**
+     * Return a chunk having only the given solutions.
+     * 
+     * @param rows
+     *            The solutions to be retained, in the order in which they will
+     *            appear in the new chunk.
+     * @param n
+     *            The #of entries in <i>rows</i> which are valid.
+     */
+    public ColumnarSolutionChunk select(final int[] rows, final int n) {
+
+        if (n == size) {
+
+            boolean identity = true;
+
+            for (int i = 0; i < n && identity; i++) {
+
+                identity = rows[i] == i;
+
+            }
+
+            if (identity)
+                return this;
+
+        }
+
+        final IConstant<?>[][] c = new IConstant<?>[vars.length][];
+
+        final long[][] b = new long[vars.length][];
+
+        for (int j = 0; j < vars.length; j++) {
+
+            final IConstant<?>[] src = cols[j];
+
+            final IConstant<?>[] dst = c[j] = new IConstant<?>[n];
+
+            final long[] bits = b[j] = new long[words(n)];
+
+            for (int i = 0; i < n; i++) {
+
+                if ((dst[i] = src[rows[i]]) != null) {
+
+                    bits[i / WORD] |= 1L << (i % WORD);
+
+                }
+
+            }
+
+        }
+
+        return new ColumnarSolutionChunk(vars, c, b, n);
+
+    }
+
+    /**
+     * Return a bitmap having a bit set for each solution in which all of the
+     * given variables are bound.
+     */
+    public long[] allBound(final IVariable<?>[] vars) {
+
+        final long[] bits = new long[words(size)];
+
+        // Start with all bits set for the solutions in the chunk.
+        for (int w = 0; w < bits.length; w++) {
+
+            final int n = Math.min(WORD, size - w * WORD);
+
+            bits[w] = n == WORD ? -1L : (1L << n) - 1;
+
+        }
+
+        for (IVariable<?> v : vars) {
+
+            final int j = indexOf(v);
+
+            if (j == -1)
+                return new long[bits.length];
+
+            final long[] b = bound[j];
+
+            for (int w = 0; w < bits.length; w++) {
+
+                bits[w] &= b[w];
+
+            }
+
+        }
+
+        return bits;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the bit for the solution is set in a bitmap
+     * returned by {@link #allBound(IVariable[])}.
+     */
+    public static boolean isSet(final long[] bits, final int row) {
+
+        return (bits[row / WORD] & (1L << (row % WORD))) != 0;
+
+    }
+
+    /**
+     * Return the hash code of the as-bound values of the given variables for
+     * each solution. The hash code is computed one column at a time as
+     * <code>h = 31 * h + c.hashCode()</code> for each variable which is bound,
+     * starting with ONE (1).
+     */
+    public int[] hashCodes(final IVariable<?>[] vars) {
+
+        final int[] h = new int[size];
+
+        Arrays.fill(h, 1);
+
+        for (IVariable<?> v : vars) {
+
+            final int j = indexOf(v);
+
+            if (j == -1)
+                continue;
+
+            final IConstant<?>[] col = cols[j];
+
+            for (int i = 0; i < size; i++) {
+
+                final IConstant<?> c = col[i];
+
+                if (c != null)
+                    h[i] = 31 * h[i] + c.hashCode();
+
+            }
+
+        }
+
+        return h;
+
+    }
+
+    /**
+     * Return the column of values for a variable. The caller MUST NOT modify
+     * the returned array.
+     * 
+     * @return The values (<code>null</code> where not bound) -or-
+     *         <code>null</code> if the variable is not bound in any solution.
+     */
+    public IConstant<?>[] getColumn(final IVariable<?> var) {
+
+        final int j = indexOf(var);
+
+        return j == -1 ? null : cols[j];
+
+    }
+
+    /**
+     * Return a view of a solution.
+     */
+    public ColumnarBindingSet get(final int row) {
+
+        if (row < 0 || row >= size)
+            throw new IndexOutOfBoundsException();
+
+        return new ColumnarBindingSet(this, row);
+
+    }
+
+    /**
+     * Return a view of each solution.
+     */
+    public IBindingSet[] toBindingSets() {
+
+        final IBindingSet[] a = new IBindingSet[size];
+
+        for (int i = 0; i < size; i++) {
+
+            a[i] = new ColumnarBindingSet(this, i);
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * Return a copy of a solution as a {@link ListBindingSet}.
+     */
+    public ListBindingSet materialize(final int row) {
+
+        final ListBindingSet bset = new ListBindingSet();
+
+        for (int j = 0; j < vars.length; j++) {
+
+            final IConstant<?> c = cols[j][row];
+
+            if (c != null)
+                bset.set(vars[j], c);
+
+        }
+
+        return bset;
+
+    }
+
+    public String toString() {
+
+        return getClass().getSimpleName() + "{size=" + size + ", vars="
+                + Arrays.toString(vars) + "}";
+
+    }
+
+}
@@ -38,6 +38,8 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstraint;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ColumnarBindingSet;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
 
@@ -144,6 +146,11 @@ public class ConditionalRoutingOp extends PipelineOp {
         
         private final IBlockingBuffer<IBindingSet[]> sink2;
 
+        /**
+         * When <code>true</code> the solutions are written as columnar chunks.
+         */
+        private final boolean columnar;
+
         ConditionalRouteTask(final ConditionalRoutingOp op,
                 final BOpContext<IBindingSet> context) {
 
@@ -160,6 +167,8 @@ public class ConditionalRoutingOp extends PipelineOp {
 
             this.sink2 = context.getSink2(); // MAY be null.
 
+            this.columnar = op.isColumnar();
+
 //            if (sink2 == null)
 //                throw new IllegalArgumentException();
             
@@ -178,6 +187,18 @@ public class ConditionalRoutingOp extends PipelineOp {
                     stats.chunksIn.increment();
                     stats.unitsIn.add(chunk.length);
 
+                    final ColumnarSolutionChunk columns = columnar ? ColumnarSolutionChunk
+                            .valueOf(chunk) : ColumnarSolutionChunk
+                            .getChunk(chunk);
+
+                    if (columns != null) {
+
+                        routeColumnar(columns);
+
+                        continue;
+
+                    }
+
                     final IBindingSet[] def = new IBindingSet[chunk.length];
                     final IBindingSet[] alt = sink2 == null ? null
                             : new IBindingSet[chunk.length];
@@ -246,6 +267,88 @@ public class ConditionalRoutingOp extends PipelineOp {
 
         } // call()
 
+        /**
+         * Vectorized routing of a columnar chunk. Each solution is tested
+         * using a copy-on-write view. Unless the condition modified some of
+         * the solutions, the solutions for each sink are gathered into a new
+         * columnar chunk.
+         */
+        private void routeColumnar(final ColumnarSolutionChunk columns) {
+
+            final int n = columns.size();
+
+            final ColumnarBindingSet[] rows = new ColumnarBindingSet[n];
+
+            final int[] def = new int[n];
+            final int[] alt = sink2 == null ? null : new int[n];
+
+            int ndef = 0, nalt = 0;
+
+            boolean detached = false;
+
+            for (int i = 0; i < n; i++) {
+
+                if (i % 20 == 0 && Thread.interrupted()) {
+
+                    // Eagerly notice if the operator is interrupted.
+                    throw new RuntimeException(new InterruptedException());
+
+                }
+
+                final ColumnarBindingSet bset = rows[i] = columns.get(i);
+
+                if (condition.accept(bset)) {
+
+                    // solution passes condition. default sink.
+                    def[ndef++] = i;
+
+                } else if (sink2 != null) {
+
+                    // solution fails condition. alternative sink.
+                    alt[nalt++] = i;
+
+                }
+
+                if (bset.getChunk() == null) {
+
+                    // The condition modified the solution.
+                    detached = true;
+
+                }
+
+            }
+
+            if (ndef > 0)
+                sink.add(gather(columns, rows, def, ndef, detached));
+
+            if (nalt > 0 && sink2 != null)
+                sink2.add(gather(columns, rows, alt, nalt, detached));
+
+        }
+
+        private static IBindingSet[] gather(
+                final ColumnarSolutionChunk columns,
+                final ColumnarBindingSet[] rows, final int[] sel, final int n,
+                final boolean detached) {
+
+            if (!detached) {
+
+                return columns.select(sel, n).toBindingSets();
+
+            }
+
+            final IBindingSet[] a = new IBindingSet[n];
+
+            for (int i = 0; i < n; i++) {
+
+                a[i] = rows[sel[i]];
+
+            }
+
+            return a;
+
+        }
+
     } // ConditionalRoutingTask.
 
 }
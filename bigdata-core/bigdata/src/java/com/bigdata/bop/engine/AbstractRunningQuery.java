@@ -1618,6 +1618,27 @@ abstract public class AbstractRunningQuery implements IRunningQuery {
     }
     
     private final AtomicReference<MemoryManager> memoryManager = new AtomicReference<MemoryManager>();
+
+    /**
+     * The #of bytes of native memory allocated by the query and ZERO (0) if
+     * the query has not allocated a {@link #getMemoryManager() memory
+     * manager}.
+     */
+    long getNativeMemoryBytes() {
+        final MemoryManager memoryManager = this.memoryManager.get();
+        if (memoryManager == null)
+            return 0L;
+        return memoryManager.getSlotBytes();
+    }
+
+    /**
+     * The tenant on whose behalf the query is run (optional).
+     * 
+     * @see QueryEngine.Annotations#TENANT
+     */
+    String getTenant() {
+        return (String) getQuery().getProperty(QueryEngine.Annotations.TENANT);
+    }
     
     /**
      * Allocate a memory manager for the query.
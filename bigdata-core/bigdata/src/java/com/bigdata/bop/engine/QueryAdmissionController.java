@@ -0,0 +1,650 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.rwstore.sector.IMemoryManager;
+
+/**
+ * Admission control for the top-level queries submitted to a
+ * {@link QueryEngine}. A query is admitted immediately if the engine and the
+ * tenant of the query are within their limits. Otherwise the query waits in a
+ * queue for its tenant until it can be admitted and is rejected if it waits
+ * too long or if too many queries are already waiting. The tenants having
+ * waiting queries are served round robin, so a tenant which submits many
+ * queries can not lock out the other tenants.
+ * <p>
+ * The limits are:
+ * <ul>
+ * <li>the #of running queries,</li>
+ * <li>the #of running queries per tenant, and</li>
+ * <li>the native memory allocated by the running queries of a tenant (in the
+ * {@link IMemoryManager} contexts of those queries). This limit is only
+ * checked when a query is admitted. A tenant having no running queries is
+ * always within this limit.</li>
+ * </ul>
+ * Only queries marked with {@link QueryEngine.Annotations#TENANT} are subject
+ * to admission control. That annotation is placed on the top-level query plan
+ * but not on the subqueries evaluated by that plan, so a running query never
+ * waits for the admission of its own subqueries.
+ * 
+ * @see Options
+ */
+public class QueryAdmissionController {
+
+    private static final transient Logger log = Logger
+            .getLogger(QueryAdmissionController.class);
+
+    /**
+     * Options for the {@link QueryAdmissionController}. These options are
+     * specified using environment variables. Admission control is disabled
+     * unless at least one of the limits is positive.
+     */
+    public interface Options {
+
+        /**
+         * The maximum #of running queries (default
+         * {@value #DEFAULT_MAX_RUNNING}). There is no limit when ZERO (0).
+         */
+        String MAX_RUNNING = QueryAdmissionController.class.getName()
+                + ".maxRunning";
+
+        String DEFAULT_MAX_RUNNING = "0";
+
+        /**
+         * The maximum #of running queries per tenant (default
+         * {@value #DEFAULT_MAX_RUNNING_PER_TENANT}). There is no limit when
+         * ZERO (0).
+         */
+        String MAX_RUNNING_PER_TENANT = QueryAdmissionController.class
+                .getName() + ".maxRunningPerTenant";
+
+        String DEFAULT_MAX_RUNNING_PER_TENANT = "0";
+
+        /**
+         * The maximum #of bytes of native memory which may be allocated by the
+         * running queries of a tenant before new queries for that tenant must
+         * wait (default {@value #DEFAULT_MAX_NATIVE_MEMORY_PER_TENANT}). There
+         * is no limit when ZERO (0).
+         */
+        String MAX_NATIVE_MEMORY_PER_TENANT = QueryAdmissionController.class
+                .getName() + ".maxNativeMemoryPerTenant";
+
+        String DEFAULT_MAX_NATIVE_MEMORY_PER_TENANT = "0";
+
+        /**
+         * The maximum #of queries which may wait for admission (default
+         * {@value #DEFAULT_MAX_QUEUED}). A query is rejected when this many
+         * queries are already waiting. Queries are rejected rather than
+         * queued when ZERO (0).
+         */
+        String MAX_QUEUED = QueryAdmissionController.class.getName()
+                + ".maxQueued";
+
+        String DEFAULT_MAX_QUEUED = "1000";
+
+        /**
+         * The maximum time (milliseconds) which a query may wait for
+         * admission before it is rejected (default
+         * {@value #DEFAULT_MAX_WAIT_MILLIS}). A query never waits longer than
+         * its own timeout.
+         */
+        String MAX_WAIT_MILLIS = QueryAdmissionController.class.getName()
+                + ".maxWaitMillis";
+
+        String DEFAULT_MAX_WAIT_MILLIS = "60000";
+
+    }
+
+    /**
+     * Reports the native memory allocated by the running queries of a tenant.
+     */
+    public interface ITenantMemoryUsage {
+
+        /**
+         * The #of bytes of native memory allocated by the running queries of
+         * the tenant.
+         */
+        long getNativeMemoryBytes(String tenant);
+
+    }
+
+    /**
+     * The permission for a query to run. The ticket MUST be
+     * {@link QueryAdmissionController#release(Ticket) released} when the query
+     * is done.
+     */
+    public static class Ticket {
+
+        private final String tenant;
+
+        private volatile boolean admitted;
+
+        private Ticket(final String tenant) {
+            this.tenant = tenant;
+        }
+
+        public String getTenant() {
+            return tenant;
+        }
+
+    }
+
+    /**
+     * The interval (milliseconds) at which a waiting query rechecks the
+     * native memory limit, which may change without any query being admitted
+     * or released.
+     */
+    private static final long RECHECK_MILLIS = 100;
+
+    private final int maxRunning;
+
+    private final int maxRunningPerTenant;
+
+    private final long maxNativeMemoryPerTenant;
+
+    private final int maxQueued;
+
+    private final long maxWaitMillis;
+
+    private final ITenantMemoryUsage memoryUsage;
+
+    private final QueryEngineCounters counters;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signaled when a query is admitted or released. */
+    private final Condition changed = lock.newCondition();
+
+    /*
+     * The following are guarded by the lock.
+     */
+
+    /** The #of running (admitted) queries. */
+    private int running;
+
+    /** The #of running (admitted) queries per tenant. */
+    private final Map<String, Integer> runningByTenant = new HashMap<String, Integer>();
+
+    /**
+     * The waiting queries per tenant. The iteration order of the map is the
+     * round robin order of the tenants.
+     */
+    private final LinkedHashMap<String, ArrayDeque<Ticket>> waiting = new LinkedHashMap<String, ArrayDeque<Ticket>>();
+
+    /** The #of waiting queries. */
+    private int queued;
+
+    /**
+     * Create an admission controller configured from the environment.
+     * 
+     * @return The admission controller -or- <code>null</code> if admission
+     *         control is disabled.
+     * 
+     * @see Options
+     */
+    public static QueryAdmissionController newInstance(
+            final ITenantMemoryUsage memoryUsage,
+            final QueryEngineCounters counters) {
+
+        final int maxRunning = Integer.parseInt(System.getProperty(
+                Options.MAX_RUNNING, Options.DEFAULT_MAX_RUNNING));
+
+        final int maxRunningPerTenant = Integer.parseInt(System.getProperty(
+                Options.MAX_RUNNING_PER_TENANT,
+                Options.DEFAULT_MAX_RUNNING_PER_TENANT));
+
+        final long maxNativeMemoryPerTenant = Long.parseLong(System
+                .getProperty(Options.MAX_NATIVE_MEMORY_PER_TENANT,
+                        Options.DEFAULT_MAX_NATIVE_MEMORY_PER_TENANT));
+
+        if (maxRunning <= 0 && maxRunningPerTenant <= 0
+                && maxNativeMemoryPerTenant <= 0L)
+            return null;
+
+        final int maxQueued = Integer.parseInt(System.getProperty(
+                Options.MAX_QUEUED, Options.DEFAULT_MAX_QUEUED));
+
+        final long maxWaitMillis = Long.parseLong(System.getProperty(
+                Options.MAX_WAIT_MILLIS, Options.DEFAULT_MAX_WAIT_MILLIS));
+
+        return new QueryAdmissionController(maxRunning, maxRunningPerTenant,
+                maxNativeMemoryPerTenant, maxQueued, maxWaitMillis,
+                memoryUsage, counters);
+
+    }
+
+    /**
+     * @param maxRunning
+     *            The maximum #of running queries (no limit if ZERO).
+     * @param maxRunningPerTenant
+     *            The maximum #of running queries per tenant (no limit if
+     *            ZERO).
+     * @param maxNativeMemoryPerTenant
+     *            The maximum #of bytes of native memory for the running
+     *            queries of a tenant (no limit if ZERO).
+     * @param maxQueued
+     *            The maximum #of waiting queries.
+     * @param maxWaitMillis
+     *            The maximum time which a query may wait.
+     * @param memoryUsage
+     *            Reports the native memory used by the tenants.
+     * @param counters
+     *            The counters on which admission is reported.
+     */
+    public QueryAdmissionController(final int maxRunning,
+            final int maxRunningPerTenant,
+            final long maxNativeMemoryPerTenant, final int maxQueued,
+            final long maxWaitMillis, final ITenantMemoryUsage memoryUsage,
+            final QueryEngineCounters counters) {
+
+        if (maxRunning < 0 || maxRunningPerTenant < 0
+                || maxNativeMemoryPerTenant < 0L || maxQueued < 0
+                || maxWaitMillis < 0L)
+            throw new IllegalArgumentException();
+
+        if (memoryUsage == null && maxNativeMemoryPerTenant > 0L)
+            throw new IllegalArgumentException();
+
+        if (counters == null)
+            throw new IllegalArgumentException();
+
+        this.maxRunning = maxRunning;
+        this.maxRunningPerTenant = maxRunningPerTenant;
+        this.maxNativeMemoryPerTenant = maxNativeMemoryPerTenant;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+        this.memoryUsage = memoryUsage;
+        this.counters = counters;
+
+    }
+
+    /**
+     * Wait until a query for the tenant may run.
+     * 
+     * @param tenant
+     *            The tenant.
+     * @param timeout
+     *            The timeout of the query (milliseconds).
+     * 
+     * @return The {@link Ticket}, which MUST be
+     *         {@link #release(Ticket) released} when the query is done.
+     * 
+     * @throws RejectedExecutionException
+     *             if the query could not be admitted.
+     * @throws InterruptedException
+     *             if interrupted while waiting.
+     */
+    public Ticket admit(final String tenant, final long timeout)
+            throws InterruptedException {
+
+        if (tenant == null)
+            throw new IllegalArgumentException();
+
+        final long begin = System.nanoTime();
+
+        final long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(
+                timeout, maxWaitMillis));
+
+        final Ticket ticket = new Ticket(tenant);
+
+        lock.lockInterruptibly();
+
+        try {
+
+            if (queued == 0 && canAdmit(tenant)) {
+
+                // Fast path.
+                admitted(ticket);
+
+                return ticket;
+
+            }
+
+            if (queued >= maxQueued) {
+
+                throw reject("Too many queries waiting: queued="
+                        + queued);
+
+            }
+
+            enqueue(ticket);
+
+            try {
+
+                while (true) {
+
+                    // Admit waiting queries (including this one) if possible.
+                    dispatch();
+
+                    if (ticket.admitted)
+                        break;
+
+                    final long remaining = maxWaitNanos
+                            - (System.nanoTime() - begin);
+
+                    if (remaining <= 0L) {
+
+                        dequeue(ticket);
+
+                        throw reject(
+                                "Timeout awaiting admission: tenant=" + tenant);
+
+                    }
+
+                    changed.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS
+                            .toNanos(RECHECK_MILLIS)));
+
+                }
+
+            } catch (InterruptedException ex) {
+
+                if (ticket.admitted) {
+
+                    // Give back the admission.
+                    release(ticket);
+
+                } else {
+
+                    dequeue(ticket);
+
+                }
+
+                throw ex;
+
+            }
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+        counters.admissionWaitNanos.add(System.nanoTime() - begin);
+
+        return ticket;
+
+    }
+
+    /**
+     * Release the ticket of a query which is done.
+     */
+    public void release(final Ticket ticket) {
+
+        if (ticket == null)
+            throw new IllegalArgumentException();
+
+        lock.lock();
+
+        try {
+
+            if (!ticket.admitted)
+                return;
+
+            ticket.admitted = false;
+
+            running--;
+
+            final int n = runningByTenant.get(ticket.tenant) - 1;
+
+            if (n == 0)
+                runningByTenant.remove(ticket.tenant);
+            else
+                runningByTenant.put(ticket.tenant, n);
+
+            dispatch();
+
+            changed.signalAll();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * The #of running (admitted) queries.
+     */
+    public int getRunningCount() {
+
+        lock.lock();
+
+        try {
+
+            return running;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * The #of queries waiting for admission.
+     */
+    public int getQueuedCount() {
+
+        lock.lock();
+
+        try {
+
+            return queued;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> iff a query for the tenant may run now.
+     */
+    private boolean canAdmit(final String tenant) {
+
+        assert lock.isHeldByCurrentThread();
+
+        if (maxRunning > 0 && running >= maxRunning)
+            return false;
+
+        final Integer n = runningByTenant.get(tenant);
+
+        if (n == null) {
+
+            // Note: The native memory limit does not apply.
+            return true;
+
+        }
+
+        if (maxRunningPerTenant > 0 && n.intValue() >= maxRunningPerTenant)
+            return false;
+
+        if (maxNativeMemoryPerTenant > 0L
+                && memoryUsage.getNativeMemoryBytes(tenant) >= maxNativeMemoryPerTenant)
+            return false;
+
+        return true;
+
+    }
+
+    /**
+     * Admit waiting queries while possible, taking one query from each tenant
+     * in turn.
+     */
+    private void dispatch() {
+
+        assert lock.isHeldByCurrentThread();
+
+        boolean progress = true;
+
+        while (queued > 0 && progress) {
+
+            progress = false;
+
+            // Note: Copy since admitted tenants are moved to the end.
+            final List<String> tenants = new ArrayList<String>(
+                    waiting.keySet());
+
+            for (String tenant : tenants) {
+
+                if (!canAdmit(tenant))
+                    continue;
+
+                final Ticket ticket = dequeueFirst(tenant);
+
+                admitted(ticket);
+
+                progress = true;
+
+            }
+
+        }
+
+        if (progress)
+            changed.signalAll();
+
+    }
+
+    private void admitted(final Ticket ticket) {
+
+        ticket.admitted = true;
+
+        running++;
+
+        final Integer n = runningByTenant.get(ticket.tenant);
+
+        runningByTenant.put(ticket.tenant, n == null ? 1 : n.intValue() + 1);
+
+        counters.queryAdmittedCount.increment();
+
+    }
+
+    private void enqueue(final Ticket ticket) {
+
+        ArrayDeque<Ticket> queue = waiting.get(ticket.tenant);
+
+        if (queue == null) {
+
+            waiting.put(ticket.tenant, queue = new ArrayDeque<Ticket>());
+
+        }
+
+        queue.addLast(ticket);
+
+        queued++;
+
+    }
+
+    /**
+     * Remove the first waiting query for a tenant. The tenant moves to the end
+     * of the round robin order.
+     */
+    private Ticket dequeueFirst(final String tenant) {
+
+        final ArrayDeque<Ticket> queue = waiting.remove(tenant);
+
+        final Ticket ticket = queue.removeFirst();
+
+        if (!queue.isEmpty())
+            waiting.put(tenant, queue);
+
+        queued--;
+
+        return ticket;
+
+    }
+
+    /**
+     * Remove a waiting query (timeout or interrupt).
+     */
+    private void dequeue(final Ticket ticket) {
+
+        final Iterator<Map.Entry<String, ArrayDeque<Ticket>>> itr = waiting
+                .entrySet().iterator();
+
+        while (itr.hasNext()) {
+
+            final Map.Entry<String, ArrayDeque<Ticket>> e = itr.next();
+
+            if (e.getValue().remove(ticket)) {
+
+                queued--;
+
+                if (e.getValue().isEmpty())
+                    itr.remove();
+
+                return;
+
+            }
+
+        }
+
+    }
+
+    private RejectedExecutionException reject(final String msg) {
+
+        counters.queryRejectedCount.increment();
+
+        if (log.isInfoEnabled())
+            log.info(msg);
+
+        return new RejectedExecutionException(msg);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName() + "{maxRunning=" + maxRunning
+                + ", maxRunningPerTenant=" + maxRunningPerTenant
+                + ", maxNativeMemoryPerTenant=" + maxNativeMemoryPerTenant
+                + ", maxQueued=" + maxQueued + ", maxWaitMillis="
+                + maxWaitMillis + "}";
+
+    }
+
+}
@@ -31,12 +31,10 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
@@ -44,7 +42,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -61,6 +58,7 @@ import com.bigdata.bop.IQueryAttributes;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.bindingSet.ListBindingSet;
 import com.bigdata.bop.fed.QueryEngineFactory;
+import com.bigdata.bop.joinGraph.rto.SampleCache;
 import com.bigdata.btree.BTree;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.view.FusedView;
@@ -72,7 +70,9 @@ import com.bigdata.journal.ConcurrencyManager;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.Journal;
 import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rdf.lexicon.LexiconRelation;
 import com.bigdata.rdf.sail.webapp.client.HttpClientConfigurator;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
 import com.bigdata.resources.IndexManager;
 import com.bigdata.service.IBigdataFederation;
 import com.bigdata.service.IDataService;
@@ -256,6 +256,15 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
 //        String DEFAULT_RUNNING_QUERY_CLASS = StandaloneChainedRunningQuery.class.getName();
         String DEFAULT_RUNNING_QUERY_CLASS = ChunkedRunningQuery.class.getName();
 
+        /**
+         * The tenant on whose behalf the query is run (optional). This is set
+         * on the top-level query plan (for SPARQL, it is the namespace of the
+         * KB) and marks the query as subject to admission control.
+         * 
+         * @see QueryAdmissionController
+         */
+        String TENANT = QueryEngine.class.getName() + ".tenant";
+
     }
 
     /**
@@ -267,8 +276,12 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
 
         final CounterSet root = new CounterSet();
 
-        // Note: This counter is not otherwise tracked.
+        // Note: These counters are not otherwise tracked.
         counters.deadlineQueueSize.set(deadlineQueue.size());
+        counters.runQueueSize.set(priorityQueue.size());
+        if (admissionController != null)
+            counters.admissionQueueSize.set(admissionController
+                    .getQueuedCount());
         
         // global counters.
         root.attach(counters.getCounters());
@@ -277,6 +290,22 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         final CounterSet geoSpatial = root.makePath("GeoSpatial");
         geoSpatial.attach(geoSpatialCounters.getCounters());
         
+        // compiled query cache counters (if enabled)
+        if (queryPlanCache != null) {
+            final CounterSet planCache = root.makePath("QueryPlanCache");
+            planCache.attach(queryPlanCache.getCounters());
+        }
+        
+        // RTO sample cache counters (if enabled)
+        if (sampleCache != null) {
+            final CounterSet rtoSamples = root.makePath("RTOSampleCache");
+            rtoSamples.attach(sampleCache.getCounters());
+        }
+
+        // term caches shared by the read-only views of the lexicons.
+        root.makePath("TermCache").attach(
+                LexiconRelation.getSharedTermCacheCounters());
+        
 //        // counters per tagged query group.
 //        {
 //
@@ -315,6 +344,17 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
      */
     final protected GeoSpatialCounters geoSpatialCounters = newGeoSpatialCounters();
 
+    /**
+     * The cache of compiled queries (optional).
+     */
+    final protected QueryPlanCache queryPlanCache = newQueryPlanCache();
+
+    /**
+     * The cache of the samples taken by the runtime query optimizer
+     * (optional).
+     */
+    final protected SampleCache sampleCache = newSampleCache();
+
 //    /**
 //     * Statistics for queries which are "tagged" so we can recognize their
 //     * instances as members of some group.
@@ -378,6 +418,28 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
        return new GeoSpatialCounters();
     }
     
+    /**
+     * Extension hook for the {@link QueryPlanCache}.
+     * 
+     * @return The cache -or- <code>null</code> if it is not enabled.
+     */
+    protected QueryPlanCache newQueryPlanCache() {
+        
+        return QueryPlanCache.newInstance();
+        
+    }
+    
+    /**
+     * Extension hook for the {@link SampleCache}.
+     * 
+     * @return The cache -or- <code>null</code> if it is not enabled.
+     */
+    protected SampleCache newSampleCache() {
+        
+        return SampleCache.newInstance();
+        
+    }
+    
     /**
      * The {@link QueryEngineCounters} object for this {@link QueryEngine}.
      */
@@ -396,6 +458,33 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         
     }
     
+    /**
+     * The cache of compiled queries for this {@link QueryEngine}.
+     * 
+     * @return The cache -or- <code>null</code> if it is not enabled.
+     * 
+     * @see QueryPlanCache.Options#CAPACITY
+     */
+    public QueryPlanCache getQueryPlanCache() {
+        
+        return queryPlanCache;
+        
+    }
+    
+    /**
+     * The cache of the samples taken by the runtime query optimizer for this
+     * {@link QueryEngine}.
+     * 
+     * @return The cache -or- <code>null</code> if it is not enabled.
+     * 
+     * @see SampleCache.Options#CAPACITY
+     */
+    public SampleCache getSampleCache() {
+        
+        return sampleCache;
+        
+    }
+    
     /**
      * Access to the <strong>local</strong> indices.
      * <p>
@@ -682,25 +771,56 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
     
     /**
      * A queue of {@link ChunkedRunningQuery}s having binding set chunks available for
-     * consumption.
+     * consumption. Queries which have been running for a short time are
+     * dispatched ahead of long running queries.
      * 
-     * @todo Handle priority for selective queries based on the time remaining
-     *       until the timeout.
-     *       <p>
-     *       Handle priority for unselective queries based on the order in which
-     *       they are submitted?
-     *       <p>
-     *       Be careful when testing out a {@link PriorityBlockingQueue} here.
-     *       First, that collection is intrinsically bounded (it is backed by an
-     *       array) so it will BLOCK under heavy load and could be expected to
-     *       have some resize costs if the queue size becomes too large. Second,
-     *       either {@link ChunkedRunningQuery} needs to implement an appropriate
-     *       {@link Comparator} or we need to pass one into the constructor for
-     *       the queue.
-     */
-    final private BlockingQueue<AbstractRunningQuery> priorityQueue = new LinkedBlockingQueue<AbstractRunningQuery>();
-//    final private BlockingQueue<RunningQuery> priorityQueue = new PriorityBlockingQueue<RunningQuery>(
-//            );
+     * @see QueryScheduler.Options
+     */
+    final private QueryScheduler priorityQueue = QueryScheduler
+            .newInstance(counters);
+
+    /**
+     * The admission control for the top-level queries (optional).
+     * 
+     * @see QueryAdmissionController.Options
+     * @see Annotations#TENANT
+     */
+    final private QueryAdmissionController admissionController = QueryAdmissionController
+            .newInstance(new TenantMemoryUsage(runningQueries), counters);
+
+    /**
+     * The admission tickets for the running queries which were subject to
+     * admission control.
+     */
+    private final ConcurrentHashMap<UUID/* queryId */, QueryAdmissionController.Ticket> admissionTickets = new ConcurrentHashMap<UUID, QueryAdmissionController.Ticket>();
+
+    /**
+     * Reports the native memory allocated by the running queries of a tenant.
+     * <p>
+     * Note: This is a static inner class in order to avoid a hard reference
+     * back to the outer {@link QueryEngine} object.
+     */
+    static private class TenantMemoryUsage implements
+            QueryAdmissionController.ITenantMemoryUsage {
+
+        private final ConcurrentHashMap<UUID, AbstractRunningQuery> runningQueries;
+
+        TenantMemoryUsage(
+                final ConcurrentHashMap<UUID, AbstractRunningQuery> runningQueries) {
+            this.runningQueries = runningQueries;
+        }
+
+        @Override
+        public long getNativeMemoryBytes(final String tenant) {
+            long bytes = 0L;
+            for (AbstractRunningQuery q : runningQueries.values()) {
+                if (tenant.equals(q.getTenant()))
+                    bytes += q.getNativeMemoryBytes();
+            }
+            return bytes;
+        }
+
+    }
 
     /**
      * A queue arranged in order of increasing deadline times. Only queries with
@@ -1029,11 +1149,11 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
      */
     static private class QueryEngineTask implements Runnable {
         
-        final private BlockingQueue<AbstractRunningQuery> priorityQueue;
+        final private QueryScheduler priorityQueue;
         final private PriorityBlockingQueue<QueryDeadline> deadlineQueue;
 
         public QueryEngineTask(
-                final BlockingQueue<AbstractRunningQuery> priorityQueue,
+                final QueryScheduler priorityQueue,
                 final PriorityBlockingQueue<QueryDeadline> deadlineQueue) {
 
             if (priorityQueue == null)
@@ -1732,6 +1852,59 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
         if (!queryId.equals(msg.getQueryId()))
             throw new IllegalArgumentException();
 
+        final String tenant = (String) query.getProperty(Annotations.TENANT);
+
+        if (admissionController == null || tenant == null) {
+
+            // Not subject to admission control.
+            return startEval2(queryId, query, queryAttributes, msg);
+
+        }
+
+        // verify query engine is running before we wait for admission.
+        assertRunning();
+
+        final QueryAdmissionController.Ticket ticket = admissionController
+                .admit(tenant, query.getProperty(BOp.Annotations.TIMEOUT,
+                        BOp.Annotations.DEFAULT_TIMEOUT));
+
+        boolean ok = false;
+        try {
+
+            // Note: Released when the query halts.
+            admissionTickets.put(queryId, ticket);
+
+            final AbstractRunningQuery runningQuery = startEval2(queryId,
+                    query, queryAttributes, msg);
+
+            ok = true;
+
+            return runningQuery;
+
+        } finally {
+
+            if (!ok && admissionTickets.remove(queryId, ticket)) {
+
+                admissionController.release(ticket);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Begin to evaluate a query which has been admitted.
+     * 
+     * @see #startEval(UUID, PipelineOp, Map, IChunkMessage)
+     */
+    private AbstractRunningQuery startEval2(//
+            final UUID queryId,//
+            final PipelineOp query,//
+            final Map<Object, Object> queryAttributes,//
+            final IChunkMessage<IBindingSet> msg//
+            ) throws Exception {
+
         /*
          * We are the query controller. Our reference will be reported as the
          * proxy and our serviceUUID will be reported as the UUID of the query
@@ -2051,6 +2224,13 @@ public class QueryEngine implements IQueryPeer, IQueryClient, ICounterSetAccess
             // remove from the set of running queries.
             runningQueries.remove(q.getQueryId(), q);
 
+            // release the admission of the query (if any).
+            final QueryAdmissionController.Ticket ticket = admissionTickets
+                    .remove(q.getQueryId());
+
+            if (ticket != null)
+                admissionController.release(ticket);
+
             if(runningQueries.isEmpty()) {
 
                 // Signal that no queries are running.
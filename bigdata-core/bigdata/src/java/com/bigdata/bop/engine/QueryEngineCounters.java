@@ -107,6 +107,48 @@ public class QueryEngineCounters implements ICounterSetAccess {
      */
     protected final CAT deadlineQueueSize = new CAT();
 
+    /*
+     * Scheduling and admission control.
+     */
+
+    /**
+     * The #of times that a query was taken from the {@link QueryScheduler} to
+     * consume a chunk.
+     */
+    protected final CAT dispatchCount = new CAT();
+
+    /**
+     * The total time (nanoseconds) that the queries waited in the
+     * {@link QueryScheduler} before consuming a chunk.
+     */
+    protected final CAT dispatchWaitNanos = new CAT();
+
+    /**
+     * The size of the {@link QueryScheduler} queue.
+     */
+    protected final CAT runQueueSize = new CAT();
+
+    /**
+     * The #of queries admitted by the {@link QueryAdmissionController}.
+     */
+    protected final CAT queryAdmittedCount = new CAT();
+
+    /**
+     * The #of queries rejected by the {@link QueryAdmissionController}.
+     */
+    protected final CAT queryRejectedCount = new CAT();
+
+    /**
+     * The total time (nanoseconds) that the admitted queries waited for
+     * admission.
+     */
+    protected final CAT admissionWaitNanos = new CAT();
+
+    /**
+     * The #of queries waiting for admission.
+     */
+    protected final CAT admissionQueueSize = new CAT();
+
     @Override
     public CounterSet getCounters() {
 
@@ -214,6 +256,68 @@ public class QueryEngineCounters implements ICounterSetAccess {
             }
         });
 
+        // The size of the run queue.
+        root.addCounter("runQueueSize", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(runQueueSize.get());
+            }
+        });
+
+        // #of times a query was dispatched to consume a chunk.
+        root.addCounter("dispatchCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(dispatchCount.get());
+            }
+        });
+
+        // average time a query waited in the run queue.
+        root.addCounter("averageDispatchWaitMillis", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long n = dispatchCount.get();
+                final double d = n == 0 ? 0d
+                        : (dispatchWaitNanos.get() / (n * 1000000d));
+                setValue(d);
+            }
+        });
+
+        // #of queries admitted.
+        root.addCounter("queryAdmittedCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(queryAdmittedCount.get());
+            }
+        });
+
+        // #of queries rejected.
+        root.addCounter("queryRejectedCount", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(queryRejectedCount.get());
+            }
+        });
+
+        // #of queries waiting for admission.
+        root.addCounter("admissionQueueSize", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(admissionQueueSize.get());
+            }
+        });
+
+        // average time an admitted query waited for admission.
+        root.addCounter("averageAdmissionWaitMillis", new Instrument<Double>() {
+            @Override
+            public void sample() {
+                final long n = queryAdmittedCount.get();
+                final double d = n == 0 ? 0d
+                        : (admissionWaitNanos.get() / (n * 1000000d));
+                setValue(d);
+            }
+        });
+
         return root;
 
     }
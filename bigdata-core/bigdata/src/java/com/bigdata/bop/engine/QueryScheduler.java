@@ -0,0 +1,383 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.engine;
+
+import java.util.ArrayDeque;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The queue of {@link AbstractRunningQuery}s having binding set chunks
+ * available for consumption by the {@link QueryEngine}. This is a multilevel
+ * feedback queue: a query is placed into a level based on how long it has
+ * been running, so short (selective) queries are dispatched ahead of long
+ * running (unselective) queries. The levels are served by weighted round
+ * robin (the weight of a level is twice the weight of the next level) so long
+ * running queries are slowed down, but not starved, when there are many short
+ * queries.
+ * <p>
+ * Note: A query is entered into the queue once for each chunk which it
+ * accepts, so the same query may appear more than once.
+ * 
+ * @see Options
+ */
+public class QueryScheduler {
+
+    /**
+     * Options for the {@link QueryScheduler}. These options are specified
+     * using environment variables.
+     */
+    public interface Options {
+
+        /**
+         * A comma separated list of the elapsed run times (milliseconds) at
+         * which a query is moved into the next (lower priority) level of the
+         * queue (default {@value #DEFAULT_LEVEL_MILLIS}). When empty, there is
+         * only one level and the queries are dispatched in the order in which
+         * their chunks became available.
+         */
+        String LEVEL_MILLIS = QueryScheduler.class.getName() + ".levelMillis";
+
+        String DEFAULT_LEVEL_MILLIS = "100,1000,10000";
+
+    }
+
+    /**
+     * An entry in the queue.
+     */
+    private static class Entry {
+
+        final AbstractRunningQuery q;
+
+        /** When the entry was added to the queue. */
+        final long nanos;
+
+        Entry(final AbstractRunningQuery q, final long nanos) {
+            this.q = q;
+            this.nanos = nanos;
+        }
+
+    }
+
+    /**
+     * The elapsed run time (milliseconds) at which a query leaves each level
+     * except the last.
+     */
+    private final long[] levelMillis;
+
+    /** The weight of each level. */
+    private final int[] weights;
+
+    /** The remaining dispatches for each level in the current round. */
+    private final int[] credits;
+
+    /** The queue for each level. */
+    private final ArrayDeque<Entry>[] queues;
+
+    /** The counters on which the dispatch wait times are reported. */
+    private final QueryEngineCounters counters;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    /** The #of entries in the queue (guarded by the lock). */
+    private int size;
+
+    /**
+     * Create a scheduler configured from the environment.
+     * 
+     * @param counters
+     *            The counters on which the dispatch wait times are reported.
+     * 
+     * @see Options
+     */
+    public static QueryScheduler newInstance(final QueryEngineCounters counters) {
+
+        return new QueryScheduler(parseLevels(System.getProperty(
+                Options.LEVEL_MILLIS, Options.DEFAULT_LEVEL_MILLIS)), counters);
+
+    }
+
+    /**
+     * Parse {@link Options#LEVEL_MILLIS}.
+     */
+    static long[] parseLevels(final String s) {
+
+        final StringTokenizer st = new StringTokenizer(s, ", ");
+
+        final long[] a = new long[st.countTokens()];
+
+        for (int i = 0; i < a.length; i++) {
+
+            a[i] = Long.parseLong(st.nextToken());
+
+            if (a[i] <= 0L || (i > 0 && a[i] <= a[i - 1]))
+                throw new IllegalArgumentException(Options.LEVEL_MILLIS + "="
+                        + s);
+
+        }
+
+        return a;
+
+    }
+
+    /**
+     * @param levelMillis
+     *            The elapsed run times (milliseconds) at which a query is
+     *            moved into the next level (strictly increasing, may be
+     *            empty).
+     * @param counters
+     *            The counters on which the dispatch wait times are reported.
+     */
+    @SuppressWarnings("unchecked")
+    public QueryScheduler(final long[] levelMillis,
+            final QueryEngineCounters counters) {
+
+        if (levelMillis == null)
+            throw new IllegalArgumentException();
+
+        if (levelMillis.length > 16)
+            throw new IllegalArgumentException();
+
+        if (counters == null)
+            throw new IllegalArgumentException();
+
+        this.levelMillis = levelMillis.clone();
+
+        this.counters = counters;
+
+        final int nlevels = levelMillis.length + 1;
+
+        this.weights = new int[nlevels];
+
+        this.credits = new int[nlevels];
+
+        this.queues = new ArrayDeque[nlevels];
+
+        for (int i = 0; i < nlevels; i++) {
+
+            weights[i] = 1 << (nlevels - 1 - i);
+
+            credits[i] = weights[i];
+
+            queues[i] = new ArrayDeque<Entry>();
+
+        }
+
+    }
+
+    /**
+     * The #of levels.
+     */
+    public int getLevelCount() {
+
+        return queues.length;
+
+    }
+
+    /**
+     * The level for a query which has been running for the given time.
+     * 
+     * @param elapsed
+     *            The elapsed run time of the query (milliseconds).
+     */
+    int getLevel(final long elapsed) {
+
+        int level = 0;
+
+        while (level < levelMillis.length && elapsed >= levelMillis[level])
+            level++;
+
+        return level;
+
+    }
+
+    /**
+     * Add a query having a chunk available for consumption.
+     */
+    public void add(final AbstractRunningQuery q) {
+
+        if (q == null)
+            throw new IllegalArgumentException();
+
+        add(q, getLevel(q.getElapsed()));
+
+    }
+
+    /**
+     * Add a query to the given level.
+     */
+    void add(final AbstractRunningQuery q, final int level) {
+
+        lock.lock();
+
+        try {
+
+            queues[level].addLast(new Entry(q, System.nanoTime()));
+
+            size++;
+
+            notEmpty.signal();
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Take the next query to be dispatched, waiting up to the timeout for one
+     * to become available.
+     * 
+     * @return The query -or- <code>null</code> if the timeout expired.
+     */
+    public AbstractRunningQuery poll(final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+
+        long nanos = unit.toNanos(timeout);
+
+        final Entry e;
+
+        lock.lockInterruptibly();
+
+        try {
+
+            while (size == 0) {
+
+                if (nanos <= 0L)
+                    return null;
+
+                nanos = notEmpty.awaitNanos(nanos);
+
+            }
+
+            e = queues[nextLevel()].pollFirst();
+
+            size--;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+        counters.dispatchCount.increment();
+
+        counters.dispatchWaitNanos.add(System.nanoTime() - e.nanos);
+
+        return e.q;
+
+    }
+
+    /**
+     * Choose the level from which the next query will be dispatched and
+     * charge it one credit. The highest priority non-empty level having a
+     * credit is chosen. The credits are restored once no non-empty level has
+     * a credit.
+     */
+    private int nextLevel() {
+
+        assert lock.isHeldByCurrentThread();
+
+        assert size > 0;
+
+        while (true) {
+
+            for (int i = 0; i < queues.length; i++) {
+
+                if (credits[i] > 0 && !queues[i].isEmpty()) {
+
+                    credits[i]--;
+
+                    return i;
+
+                }
+
+            }
+
+            for (int i = 0; i < queues.length; i++) {
+
+                credits[i] = weights[i];
+
+            }
+
+        }
+
+    }
+
+    /**
+     * The #of entries in the queue.
+     */
+    public int size() {
+
+        lock.lock();
+
+        try {
+
+            return size;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+    /**
+     * Discard all entries.
+     */
+    public void clear() {
+
+        lock.lock();
+
+        try {
+
+            for (ArrayDeque<Entry> queue : queues) {
+
+                queue.clear();
+
+            }
+
+            size = 0;
+
+        } finally {
+
+            lock.unlock();
+
+        }
+
+    }
+
+}
@@ -40,6 +40,7 @@ import org.apache.log4j.Logger;
 
 import com.bigdata.bop.BOpContext;
 import com.bigdata.bop.Constant;
+import com.bigdata.bop.BOp;
 import com.bigdata.bop.HTreeAnnotations;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
@@ -77,6 +78,7 @@ import com.bigdata.relation.accesspath.IBuffer;
 import com.bigdata.rwstore.sector.IMemoryManager;
 import com.bigdata.rwstore.sector.MemStore;
 import com.bigdata.rwstore.sector.MemoryManagerClosedException;
+import com.bigdata.rwstore.sector.SpillableMemStore;
 import com.bigdata.util.Bytes;
 import com.bigdata.util.BytesUtil;
 import com.bigdata.util.InnerCause;
@@ -592,7 +594,7 @@ public class HTreeHashJoinUtility implements IHashJoinUtility {
          * manager created from the IMemoryManager which will back the named
          * solution set.
          */
-        store = new MemStore(mmgr.createAllocationContext());
+        store = newStore(mmgr, op);
 
         // Setup the encoder.  The ivCache will be backed by the memory manager.
         this.encoder = new IVBindingSetEncoder(BigdataValueFactoryImpl.getInstance(((String[]) op
@@ -624,6 +626,39 @@ public class HTreeHashJoinUtility implements IHashJoinUtility {
 
     }
 
+    /**
+     * Return a new backing store for the {@link HTree} instances of an
+     * operator. The store is a {@link MemStore} on a child allocation context
+     * of the {@link IMemoryManager} unless {@link HTreeAnnotations#SPILL} is
+     * enabled, in which case it is a {@link SpillableMemStore} which is
+     * bounded by {@link HTreeAnnotations#MAX_NATIVE_MEMORY} and which spills
+     * onto a temporary file rather than failing when the native memory is
+     * exhausted.
+     * 
+     * @param mmgr
+     *            The {@link IMemoryManager}.
+     * @param op
+     *            The operator.
+     */
+    static IRawStore newStore(final IMemoryManager mmgr, final BOp op) {
+
+        final IMemoryManager context = mmgr.createAllocationContext();
+
+        if (!op.getProperty(HTreeAnnotations.SPILL,
+                HTreeAnnotations.DEFAULT_SPILL)) {
+
+            return new MemStore(context);
+
+        }
+
+        final long maxBytes = op.getProperty(
+                HTreeAnnotations.MAX_NATIVE_MEMORY,
+                HTreeAnnotations.DEFAULT_MAX_NATIVE_MEMORY);
+
+        return new SpillableMemStore(context, maxBytes, null/* tmpDir */);
+
+    }
+
     /**
      * The backing {@link IRawStore}.
      */
@@ -703,7 +738,7 @@ public class HTreeHashJoinUtility implements IHashJoinUtility {
     @Override
     public void release() {
 
-        if (open.compareAndSet(true/* expect */, false/* update */)) {
+        if (!open.compareAndSet(true/* expect */, false/* update */)) {
             // Already closed.
             return;
         }
@@ -60,7 +60,6 @@ import com.bigdata.relation.accesspath.BufferClosedException;
 import com.bigdata.relation.accesspath.IBuffer;
 import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
 import com.bigdata.rwstore.sector.IMemoryManager;
-import com.bigdata.rwstore.sector.MemStore;
 import com.bigdata.util.InnerCause;
 
 import cutthecrap.utils.striterators.ICloseableIterator;
@@ -140,7 +139,7 @@ public class HTreePipelinedHashJoinUtility extends HTreeHashJoinUtility implemen
        */
       final IMemoryManager mmgr = context.getMemoryManager(null /* use memory mgr of this query */);
       rightSolutionsWithoutSubqueryResult = 
-          HTree.create(new MemStore(mmgr.createAllocationContext()), getIndexMetadata(op));
+          HTree.create(newStore(mmgr, op), getIndexMetadata(op));
       
    }
 
@@ -965,5 +964,25 @@ public class HTreePipelinedHashJoinUtility extends HTreeHashJoinUtility implemen
         
     }    
     
+    @Override
+    public void release() {
+
+        if (!getOpen().get())
+            return;
+
+        super.release();
+
+        final HTree tmp = rightSolutionsWithoutSubqueryResult;
+
+        if (tmp != null) {
+
+            tmp.close();
+
+            tmp.getStore().close();
+
+        }
+
+    }
+    
     
 }
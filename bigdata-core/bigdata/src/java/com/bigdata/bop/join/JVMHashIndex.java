@@ -34,6 +34,7 @@ import org.apache.log4j.Logger;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
 import com.bigdata.bop.IVariable;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
 import com.bigdata.counters.CAT;
 
@@ -127,7 +128,7 @@ public class JVMHashIndex {
      * @see #keyVars
      * @see #indexSolutionsHavingUnboundJoinVars
      */
-    private Key makeKey(//final IVariable<?>[] keyVars,
+    Key makeKey(//final IVariable<?>[] keyVars,
             final IBindingSet bset
 //            final boolean indexSolutionsHavingUnboundJoinVars
             ) {
@@ -186,6 +187,62 @@ public class JVMHashIndex {
 
     }
 
+    /**
+     * Return the {@link Key} for each solution in a columnar chunk. This has
+     * the same semantics as {@link #makeKey(IBindingSet)}, but the hash codes
+     * and the solutions having an unbound join variable are computed one
+     * column at a time.
+     * 
+     * @param chunk
+     *            The solutions.
+     * 
+     * @return The keys, with a <code>null</code> for each solution for which
+     *         {@link #makeKey(IBindingSet)} would return <code>null</code>.
+     */
+    Key[] makeKeys(final ColumnarSolutionChunk chunk) {
+
+        final int n = chunk.size();
+
+        final Key[] keys = new Key[n];
+
+        final int[] h = chunk.hashCodes(keyVars);
+
+        final long[] complete = indexSolutionsHavingUnboundJoinVars ? null
+                : chunk.allBound(keyVars);
+
+        final IConstant<?>[][] cols = new IConstant<?>[keyVars.length][];
+
+        for (int j = 0; j < keyVars.length; j++) {
+
+            cols[j] = chunk.getColumn(keyVars[j]);
+
+        }
+
+        for (int i = 0; i < n; i++) {
+
+            if (complete != null && !ColumnarSolutionChunk.isSet(complete, i)) {
+
+                // Drop solution having an unbound join variable.
+                continue;
+
+            }
+
+            final IConstant<?>[] vals = new IConstant<?>[keyVars.length];
+
+            for (int j = 0; j < keyVars.length; j++) {
+
+                vals[j] = cols[j] == null ? null : cols[j][i];
+
+            }
+
+            keys[i] = new Key(h[i], vals);
+
+        }
+
+        return keys;
+
+    }
+
     /**
      * Wrapper for the keys in the hash table. This is necessary for the hash
      * table to compare the keys as equal and also provides efficiencies in the
@@ -513,7 +570,24 @@ public class JVMHashIndex {
      */
     public Key add(final IBindingSet bset) {
 
-        final Key key = makeKey(bset);
+        return add(makeKey(bset), bset);
+
+    }
+
+    /**
+     * Add the solution to the index using a {@link Key} which was already
+     * formed for that solution by {@link #makeKey(IBindingSet)}.
+     * 
+     * @param key
+     *            The key for the solution -or- <code>null</code> if no key
+     *            could be formed.
+     * @param bset
+     *            The solution.
+     * 
+     * @return The {@link Key} iff the solution was added to the index and
+     *         <code>null</code> iff the solution was not added.
+     */
+    Key add(final Key key, final IBindingSet bset) {
 
         if (key == null) {
 
@@ -594,7 +668,15 @@ public class JVMHashIndex {
      */
     public boolean addDistinct(final IBindingSet bset) {
 
-        final Key key = makeKey(bset);
+        return addDistinct(makeKey(bset), bset);
+
+    }
+
+    /**
+     * Variant of {@link #addDistinct(IBindingSet)} when the {@link Key} has
+     * already been formed for the solution.
+     */
+    boolean addDistinct(final Key key, final IBindingSet bset) {
 
         assert key != null;
 
@@ -639,7 +721,22 @@ public class JVMHashIndex {
      */
     public Bucket getBucket(final IBindingSet left) {
 
-        final Key key = makeKey(left);
+        return getBucket(makeKey(left));
+
+    }
+
+    /**
+     * Return the hash {@link Bucket} for a {@link Key} which was already formed
+     * by {@link #makeKey(IBindingSet)}.
+     * 
+     * @param key
+     *            The key for the probe -or- <code>null</code> if no key could
+     *            be formed for the probe.
+     * 
+     * @return The hash {@link Bucket} -or- <code>null</code> if there is no
+     *         such hash bucket.
+     */
+    Bucket getBucket(final Key key) {
 
         if (key == null) {
 
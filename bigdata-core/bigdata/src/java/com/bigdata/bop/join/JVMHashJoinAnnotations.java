@@ -38,4 +38,29 @@ import com.bigdata.bop.HashMapAnnotations;
 public interface JVMHashJoinAnnotations extends HashMapAnnotations,
         HashJoinAnnotations, JoinAnnotations {
 
+    /**
+     * The #of partitions for the {@link JVMPartitionedHashJoinUtility}. This
+     * is rounded up to a power of two. When ZERO (0), the #of partitions is
+     * the #of available processors (rounded up to a power of two).
+     * 
+     * @see #DEFAULT_PARTITIONS
+     */
+    String PARTITIONS = JVMHashJoinAnnotations.class.getName()
+            + ".partitions";
+
+    int DEFAULT_PARTITIONS = 0;
+
+    /**
+     * The minimum #of solutions in a build or probe batch before the
+     * {@link JVMPartitionedHashJoinUtility} will hand off the work for each
+     * partition to a parallel worker. Smaller batches are processed by the
+     * caller's thread.
+     * 
+     * @see #DEFAULT_PARALLEL_THRESHOLD
+     */
+    String PARALLEL_THRESHOLD = JVMHashJoinAnnotations.class.getName()
+            + ".parallelThreshold";
+
+    int DEFAULT_PARALLEL_THRESHOLD = 10000;
+
 }
@@ -46,6 +46,7 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstraint;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
 import com.bigdata.bop.controller.INamedSolutionSetRef;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.join.JVMHashIndex.Bucket;
@@ -331,8 +332,33 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
         final IVariable<?>[] keyVars = filter ? (IVariable<?>[]) op
                 .getProperty(JoinAnnotations.SELECT) : joinVars;
                 
-        rightSolutionsRef.set(//
-            new JVMHashIndex(//
+        rightSolutionsRef.set(newHashIndex(op, keyVars,
+                indexSolutionsHavingUnboundJoinVars));
+
+    }
+
+    /**
+     * Factory for the {@link JVMHashIndex}.
+     * <p>
+     * Note: This is invoked from the constructor. Implementations MUST NOT rely
+     * on the state of the subclass having been initialized.
+     * 
+     * @param op
+     *            The operator whose annotations inform the construction of the
+     *            hash index.
+     * @param keyVars
+     *            The ordered variables used to form the keys for the index.
+     * @param indexSolutionsHavingUnboundJoinVars
+     *            When <code>true</code>, solutions having unbound key variables
+     *            will be indexed.
+     * 
+     * @return The hash index.
+     */
+    protected JVMHashIndex newHashIndex(final PipelineOp op,
+            final IVariable<?>[] keyVars,
+            final boolean indexSolutionsHavingUnboundJoinVars) {
+
+        return new JVMHashIndex(//
                 keyVars,//
                 indexSolutionsHavingUnboundJoinVars,//
                 new LinkedHashMap<Key, Bucket>(op.getProperty(
@@ -341,7 +367,8 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
                     op.getProperty(HashMapAnnotations.LOAD_FACTOR,
                     HashMapAnnotations.DEFAULT_LOAD_FACTOR)//
                 )//
-        ));
+        );
+
     }
     
     @Override
@@ -575,14 +602,27 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
                     stats.unitsIn.add(leftChunk.length);
                 }
 
-                for (IBindingSet left : leftChunk) {
+                /*
+                 * Vectorized computation of the probe keys when the left
+                 * solutions are a columnar chunk.
+                 */
+                final ColumnarSolutionChunk columns = ColumnarSolutionChunk
+                        .getChunk(leftChunk);
+
+                final Key[] keys = columns == null ? null : rightSolutions
+                        .makeKeys(columns);
+
+                for (int i = 0; i < leftChunk.length; i++) {
+
+                    final IBindingSet left = leftChunk[i];
 
                     nleftConsidered.increment();
 
                     if (log.isDebugEnabled())
                         log.debug("Considering " + left);
 
-                    final Bucket bucket = rightSolutions.getBucket(left);
+                    final Bucket bucket = keys == null ? rightSolutions
+                            .getBucket(left) : rightSolutions.getBucket(keys[i]);
 
                     if (bucket == null)
                         continue;
@@ -1425,7 +1465,7 @@ public class JVMHashJoinUtility implements IHashJoinUtility {
      * @see http://sourceforge.net/apps/trac/bigdata/ticket/508 (LIMIT causes
      *      hash join utility to log errors)
      */
-    private RuntimeException launderThrowable(final Throwable t) {
+    protected RuntimeException launderThrowable(final Throwable t) {
 
         final String msg = "cause=" + t + ", state=" + toString();
 
@@ -0,0 +1,240 @@
+/**
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+package com.bigdata.bop.join;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IVariable;
+
+import cutthecrap.utils.striterators.Expander;
+import cutthecrap.utils.striterators.Striterator;
+
+/**
+ * A {@link JVMHashIndex} which is radix partitioned on the hash code of the
+ * as-bound key variables. Each partition is an independent
+ * {@link JVMHashIndex}. A given {@link Key} is always mapped onto the same
+ * partition, so the partitions may be built and probed by concurrent workers
+ * as long as each partition is written by at most one worker at a time.
+ * <p>
+ * The partition is chosen from the high bits of a mix of the hash code. The
+ * low bits are left for the backing hash maps. Otherwise each partition would
+ * use only a fraction of the slots of its own hash map.
+ *
+ * @see JVMPartitionedHashJoinUtility
+ */
+public class JVMPartitionedHashIndex extends JVMHashIndex {
+
+    /**
+     * The partitions.
+     */
+    private final JVMHashIndex[] partitions;
+
+    /**
+     * The right shift applied to the mixed hash code to select a partition.
+     */
+    private final int shift;
+
+    /**
+     * @param keyVars
+     *            The variables that are used to form the keys in the hash index
+     *            (required, but may be empty).
+     * @param indexSolutionsHavingUnboundJoinVars
+     *            When <code>true</code>, we allow solutions to be stored in the
+     *            hash index that have unbound variables for the key variables.
+     * @param npartitions
+     *            The #of partitions. This is rounded up to a power of two.
+     * @param initialCapacity
+     *            The initial capacity of the index. This is divided among the
+     *            partitions.
+     * @param loadFactor
+     *            The load factor for the backing hash maps.
+     */
+    @SuppressWarnings("unchecked")
+    public JVMPartitionedHashIndex(final IVariable<?>[] keyVars,
+            final boolean indexSolutionsHavingUnboundJoinVars,
+            final int npartitions, final int initialCapacity,
+            final float loadFactor) {
+
+        // Note: The map for the base class is never used.
+        super(keyVars, indexSolutionsHavingUnboundJoinVars, Collections.EMPTY_MAP);
+
+        if (npartitions <= 0)
+            throw new IllegalArgumentException();
+
+        // Round up to a power of two.
+        final int n = npartitions == 1 ? 1 : Integer
+                .highestOneBit(npartitions - 1) << 1;
+
+        this.shift = 32 - Integer.numberOfTrailingZeros(n);
+
+        this.partitions = new JVMHashIndex[n];
+
+        final int capacity = Math.max(16, initialCapacity / n);
+
+        for (int i = 0; i < n; i++) {
+
+            partitions[i] = new JVMHashIndex(keyVars,
+                    indexSolutionsHavingUnboundJoinVars,
+                    new LinkedHashMap<Key, Bucket>(capacity, loadFactor));
+
+        }
+
+    }
+
+    /**
+     * The #of partitions (a power of two).
+     */
+    public int getPartitionCount() {
+
+        return partitions.length;
+
+    }
+
+    /**
+     * Return the given partition.
+     */
+    JVMHashIndex getPartition(final int i) {
+
+        return partitions[i];
+
+    }
+
+    /**
+     * Return the index of the partition for the {@link Key}.
+     */
+    int partition(final Key key) {
+
+        if (partitions.length == 1)
+            return 0;
+
+        // Fibonacci hashing. Use the high bits of the product.
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
+
+    }
+
+    /*
+     * Note: The variants which accept an IBindingSet form the Key and then
+     * delegate to these methods, as do the probes for a columnar chunk, so all
+     * access to the (empty) map of the base class is routed to a partition.
+     */
+
+    @Override
+    Key add(final Key key, final IBindingSet bset) {
+
+        if (key == null) {
+
+            // Drop solution.
+            return null;
+
+        }
+
+        return partitions[partition(key)].add(key, bset);
+
+    }
+
+    @Override
+    boolean addDistinct(final Key key, final IBindingSet bset) {
+
+        assert key != null;
+
+        return partitions[partition(key)].addDistinct(key, bset);
+
+    }
+
+    @Override
+    Bucket getBucket(final Key key) {
+
+        if (key == null) {
+
+            return null;
+
+        }
+
+        return partitions[partition(key)].getBucket(key);
+
+    }
+
+    /**
+     * Visit all buckets in the hash index, one partition at a time.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<Bucket> buckets() {
+
+        return new Striterator(Arrays.asList(partitions).iterator())
+                .addFilter(new Expander() {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @SuppressWarnings("rawtypes")
+                    @Override
+                    protected Iterator expand(final Object obj) {
+
+                        return ((JVMHashIndex) obj).buckets();
+
+                    }
+
+                });
+
+    }
+
+    @Override
+    public int bucketCount() {
+
+        int n = 0;
+
+        for (JVMHashIndex p : partitions) {
+
+            n += p.bucketCount();
+
+        }
+
+        return n;
+
+    }
+
+    @Override
+    public Bucket[] toArray() {
+
+        final Bucket[] a = new Bucket[bucketCount()];
+
+        int i = 0;
+
+        for (JVMHashIndex p : partitions) {
+
+            final Bucket[] t = p.toArray();
+
+            System.arraycopy(t, 0, a, i, t.length);
+
+            i += t.length;
+
+        }
+
+        return a;
+
+    }
+
+}
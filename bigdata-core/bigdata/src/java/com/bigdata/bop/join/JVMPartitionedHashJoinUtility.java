@@ -0,0 +1,641 @@
+/**
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.HashMapAnnotations;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IVariable;
+import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.controller.INamedSolutionSetRef;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.join.JVMHashIndex.Bucket;
+import com.bigdata.bop.join.JVMHashIndex.Key;
+import com.bigdata.bop.join.JVMHashIndex.SolutionHit;
+import com.bigdata.relation.accesspath.IBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A {@link JVMHashJoinUtility} which radix partitions the hash index on the
+ * hash code of the join variables. Large batches of solutions are built into
+ * (and probed against) the partitions by parallel workers, one worker per
+ * partition. Each partition is only written by one worker, so the backing hash
+ * maps do not need to be thread-safe.
+ * <p>
+ * The hit counters on the indexed solutions are thread-safe, so OPTIONAL,
+ * EXISTS, and NOT EXISTS semantics are preserved. The solutions produced by
+ * each worker are buffered and then written onto the output buffer by the
+ * caller's thread, so the output buffer does not need to be thread-safe
+ * either. As with the {@link JVMHashJoinUtility}, the order of the output
+ * solutions is not defined.
+ * <p>
+ * Batches smaller than {@link JVMHashJoinAnnotations#PARALLEL_THRESHOLD} are
+ * processed by the caller's thread. A join without join variables hashes every
+ * solution into the same bucket and is always handled by the base class.
+ * <p>
+ * Note: The workers run on a {@link ForkJoinPool} shared by all instances of
+ * this class.
+ *
+ * @see JVMPartitionedHashIndex
+ * @see JVMHashJoinAnnotations#PARTITIONS
+ * @see JVMHashJoinAnnotations#PARALLEL_THRESHOLD
+ */
+public class JVMPartitionedHashJoinUtility extends JVMHashJoinUtility {
+
+    private static final Logger log = Logger
+            .getLogger(JVMPartitionedHashJoinUtility.class);
+
+    /**
+     * Singleton {@link IHashJoinUtilityFactory} that can be used to create a
+     * new {@link JVMPartitionedHashJoinUtility}.
+     */
+    static public final IHashJoinUtilityFactory factory =
+            new IHashJoinUtilityFactory() {
+
+        private static final long serialVersionUID = 1L;
+
+        public IHashJoinUtility create(//
+                final BOpContext<IBindingSet> context,//
+                final INamedSolutionSetRef namedSetRef,//
+                final PipelineOp op,//
+                final JoinTypeEnum joinType//
+                ) {
+
+            return new JVMPartitionedHashJoinUtility(op, joinType);
+
+        }
+    };
+
+    /**
+     * The pool on which the partitions are built and probed.
+     */
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    /**
+     * @see JVMHashJoinAnnotations#PARALLEL_THRESHOLD
+     */
+    private final int parallelThreshold;
+
+    /**
+     * @param op
+     *            The operator whose annotation will inform construction the
+     *            hash index.
+     * @param joinType
+     *            The type of join to be performed.
+     *
+     * @see JVMHashJoinAnnotations
+     */
+    public JVMPartitionedHashJoinUtility(final PipelineOp op,
+            final JoinTypeEnum joinType) {
+
+        super(op, joinType);
+
+        this.parallelThreshold = op.getProperty(
+                JVMHashJoinAnnotations.PARALLEL_THRESHOLD,
+                JVMHashJoinAnnotations.DEFAULT_PARALLEL_THRESHOLD);
+
+        if (parallelThreshold <= 0)
+            throw new IllegalArgumentException(
+                    JVMHashJoinAnnotations.PARALLEL_THRESHOLD + "="
+                            + parallelThreshold);
+
+    }
+
+    @Override
+    protected JVMHashIndex newHashIndex(final PipelineOp op,
+            final IVariable<?>[] keyVars,
+            final boolean indexSolutionsHavingUnboundJoinVars) {
+
+        int npartitions = op.getProperty(JVMHashJoinAnnotations.PARTITIONS,
+                JVMHashJoinAnnotations.DEFAULT_PARTITIONS);
+
+        if (npartitions < 0)
+            throw new IllegalArgumentException(
+                    JVMHashJoinAnnotations.PARTITIONS + "=" + npartitions);
+
+        if (npartitions == 0)
+            npartitions = Runtime.getRuntime().availableProcessors();
+
+        return new JVMPartitionedHashIndex(//
+                keyVars,//
+                indexSolutionsHavingUnboundJoinVars,//
+                npartitions,//
+                op.getProperty(HashMapAnnotations.INITIAL_CAPACITY,
+                        HashMapAnnotations.DEFAULT_INITIAL_CAPACITY),//
+                op.getProperty(HashMapAnnotations.LOAD_FACTOR,
+                        HashMapAnnotations.DEFAULT_LOAD_FACTOR)//
+        );
+
+    }
+
+    @Override
+    protected JVMPartitionedHashIndex getRightSolutions() {
+
+        return (JVMPartitionedHashIndex) super.getRightSolutions();
+
+    }
+
+    @Override
+    public String toString() {
+
+        final String s = super.toString();
+
+        final JVMPartitionedHashIndex index = getRightSolutions();
+
+        return s.substring(0, s.length() - 1) + ",partitions="
+                + (index == null ? "N/A" : index.getPartitionCount())
+                + ",parallelThreshold=" + parallelThreshold + "}";
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The keys for the solutions are formed and the solutions are assigned to
+     * partitions. If there are enough solutions, each partition is then built
+     * by a parallel worker. The solutions in each partition are added in the
+     * order in which they were received.
+     */
+    @Override
+    public long acceptSolutions(final ICloseableIterator<IBindingSet[]> itr,
+            final BOpStats stats) {
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        try {
+
+            final JVMPartitionedHashIndex index = getRightSolutions();
+
+            final IBindingSet[] all = BOpUtility.toArray(itr, stats);
+
+            if (log.isDebugEnabled())
+                log.debug("Materialized: " + all.length + " source solutions.");
+
+            final Key[] keys = new Key[all.length];
+
+            for (int i = 0; i < all.length; i++) {
+
+                keys[i] = index.makeKey(all[i]);
+
+            }
+
+            final int[][] parts = partition(index, keys);
+
+            long naccepted = 0;
+
+            for (int[] p : parts) {
+
+                naccepted += p.length;
+
+            }
+
+            if (all.length < parallelThreshold) {
+
+                for (int p = 0; p < parts.length; p++) {
+
+                    new BuildTask(index.getPartition(p), parts[p], keys, all)
+                            .call();
+
+                }
+
+            } else {
+
+                final List<Callable<Void>> tasks = new LinkedList<Callable<Void>>();
+
+                for (int p = 0; p < parts.length; p++) {
+
+                    if (parts[p].length == 0)
+                        continue;
+
+                    tasks.add(new BuildTask(index.getPartition(p), parts[p],
+                            keys, all));
+
+                }
+
+                for (Future<Void> f : pool.invokeAll(tasks)) {
+
+                    // Check for errors.
+                    f.get();
+
+                }
+
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("There are " + index.bucketCount()
+                        + " hash buckets in " + index.getPartitionCount()
+                        + " partitions");
+
+            rightSolutionCount.add(naccepted);
+
+            return naccepted;
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(unwrap(t));
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The source solutions are gathered into batches of at least
+     * {@link JVMHashJoinAnnotations#PARALLEL_THRESHOLD} solutions. Each batch
+     * is assigned to the partitions and each partition is probed by a parallel
+     * worker.
+     */
+    @Override
+    public void hashJoin2(//
+            final ICloseableIterator<IBindingSet[]> leftItr,//
+            final BOpStats stats,
+            final IBuffer<IBindingSet> outputBuffer,//
+            final IConstraint[] constraints//
+            ) {
+
+        if (joinVars.length == 0) {
+
+            /*
+             * All solutions fall into a single bucket. Nothing can be gained by
+             * partitioning and the base class enforces the limit on the #of
+             * joins considered when there are no join variables.
+             */
+
+            super.hashJoin2(leftItr, stats, outputBuffer, constraints);
+
+            return;
+
+        }
+
+        if (!open.get())
+            throw new IllegalStateException();
+
+        final JVMPartitionedHashIndex rightSolutions = getRightSolutions();
+
+        if (log.isInfoEnabled()) {
+            log.info("rightSolutions: #buckets=" + rightSolutions.bucketCount()
+                    + ",#solutions=" + getRightSolutionCount());
+        }
+
+        try {
+
+            final List<IBindingSet> batch = new ArrayList<IBindingSet>();
+
+            while (leftItr.hasNext()) {
+
+                // Next chunk of solutions from left.
+                final IBindingSet[] leftChunk = leftItr.next();
+                if (stats != null) {
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(leftChunk.length);
+                }
+
+                for (IBindingSet left : leftChunk) {
+
+                    batch.add(left);
+
+                }
+
+                if (batch.size() >= parallelThreshold) {
+
+                    probe(rightSolutions, batch, constraints, outputBuffer);
+
+                    batch.clear();
+
+                }
+
+            } // while(leftItr.hasNext())
+
+            if (!batch.isEmpty()) {
+
+                probe(rightSolutions, batch, constraints, outputBuffer);
+
+            }
+
+        } catch (Throwable t) {
+
+            throw launderThrowable(unwrap(t));
+
+        } finally {
+
+            leftItr.close();
+
+        }
+
+    }
+
+    /**
+     * Probe the hash index with a batch of source solutions.
+     */
+    private void probe(final JVMPartitionedHashIndex rightSolutions,
+            final List<IBindingSet> batch, final IConstraint[] constraints,
+            final IBuffer<IBindingSet> outputBuffer)
+            throws InterruptedException, ExecutionException {
+
+        final IBindingSet[] lefts = batch.toArray(new IBindingSet[batch.size()]);
+
+        final Key[] keys = new Key[lefts.length];
+
+        for (int i = 0; i < lefts.length; i++) {
+
+            keys[i] = rightSolutions.makeKey(lefts[i]);
+
+        }
+
+        final int[][] parts = partition(rightSolutions, keys);
+
+        final List<ProbeTask> tasks = new LinkedList<ProbeTask>();
+
+        for (int p = 0; p < parts.length; p++) {
+
+            if (parts[p].length == 0)
+                continue;
+
+            tasks.add(new ProbeTask(rightSolutions.getPartition(p), parts[p],
+                    keys, lefts, constraints));
+
+        }
+
+        if (lefts.length < parallelThreshold) {
+
+            for (ProbeTask task : tasks) {
+
+                drain(task.call(), outputBuffer);
+
+            }
+
+        } else {
+
+            for (Future<List<IBindingSet>> f : pool.invokeAll(tasks)) {
+
+                drain(f.get(), outputBuffer);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Write the solutions produced by a worker onto the output buffer.
+     */
+    private void drain(final List<IBindingSet> solutions,
+            final IBuffer<IBindingSet> outputBuffer) {
+
+        for (IBindingSet outSolution : solutions) {
+
+            outputSolution(outputBuffer, outSolution);
+
+        }
+
+    }
+
+    /**
+     * Assign each solution to a partition.
+     *
+     * @param index
+     *            The partitioned index.
+     * @param keys
+     *            The key for each solution. Solutions for which no key could
+     *            be formed (<code>null</code>) are not assigned to any
+     *            partition.
+     *
+     * @return For each partition, the offsets of the solutions assigned to
+     *         that partition in ascending order.
+     */
+    private static int[][] partition(final JVMPartitionedHashIndex index,
+            final Key[] keys) {
+
+        final int npartitions = index.getPartitionCount();
+
+        final int[] pid = new int[keys.length];
+
+        final int[] counts = new int[npartitions];
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (keys[i] == null) {
+
+                pid[i] = -1;
+
+                continue;
+
+            }
+
+            counts[pid[i] = index.partition(keys[i])]++;
+
+        }
+
+        final int[][] parts = new int[npartitions][];
+
+        for (int p = 0; p < npartitions; p++) {
+
+            parts[p] = new int[counts[p]];
+
+            counts[p] = 0;
+
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+
+            final int p = pid[i];
+
+            if (p == -1)
+                continue;
+
+            parts[p][counts[p]++] = i;
+
+        }
+
+        return parts;
+
+    }
+
+    /**
+     * Return the cause of an {@link ExecutionException} thrown by a worker.
+     */
+    private static Throwable unwrap(final Throwable t) {
+
+        if (t instanceof ExecutionException && t.getCause() != null)
+            return t.getCause();
+
+        return t;
+
+    }
+
+    /**
+     * Adds the solutions assigned to one partition into that partition.
+     */
+    private static class BuildTask implements Callable<Void> {
+
+        private final JVMHashIndex partition;
+
+        private final int[] offsets;
+
+        private final Key[] keys;
+
+        private final IBindingSet[] solutions;
+
+        BuildTask(final JVMHashIndex partition, final int[] offsets,
+                final Key[] keys, final IBindingSet[] solutions) {
+
+            this.partition = partition;
+            this.offsets = offsets;
+            this.keys = keys;
+            this.solutions = solutions;
+
+        }
+
+        @Override
+        public Void call() {
+
+            for (int i : offsets) {
+
+                partition.add(keys[i], solutions[i]);
+
+            }
+
+            return null;
+
+        }
+
+    }
+
+    /**
+     * Probes one partition with the source solutions assigned to that
+     * partition and returns the solutions to be output.
+     */
+    private class ProbeTask implements Callable<List<IBindingSet>> {
+
+        private final JVMHashIndex partition;
+
+        private final int[] offsets;
+
+        private final Key[] keys;
+
+        private final IBindingSet[] lefts;
+
+        private final IConstraint[] constraints;
+
+        ProbeTask(final JVMHashIndex partition, final int[] offsets,
+                final Key[] keys, final IBindingSet[] lefts,
+                final IConstraint[] constraints) {
+
+            this.partition = partition;
+            this.offsets = offsets;
+            this.keys = keys;
+            this.lefts = lefts;
+            this.constraints = constraints;
+
+        }
+
+        @Override
+        public List<IBindingSet> call() {
+
+            final List<IBindingSet> out = new LinkedList<IBindingSet>();
+
+            for (int i : offsets) {
+
+                final IBindingSet left = lefts[i];
+
+                nleftConsidered.increment();
+
+                if (log.isDebugEnabled())
+                    log.debug("Considering " + left);
+
+                final Bucket bucket = partition.getBucket(keys[i]);
+
+                if (bucket == null)
+                    continue;
+
+                final Iterator<SolutionHit> ritr = bucket.iterator();
+
+                while (ritr.hasNext()) {
+
+                    final SolutionHit right = ritr.next();
+
+                    nrightConsidered.increment();
+
+                    nJoinsConsidered.increment();
+
+                    // See if the solutions join.
+                    final IBindingSet outSolution = BOpContext.bind(//
+                            right.solution,//
+                            left,//
+                            constraints,//
+                            selectVars//
+                            );
+
+                    if (outSolution == null)
+                        continue;
+
+                    switch (joinType) {
+                    case Normal:
+                        out.add(outSolution);
+                        break;
+                    case Optional:
+                        out.add(outSolution);
+                        // Do not output the right solution as an optional.
+                        right.nhits.increment();
+                        break;
+                    case Exists:
+                    case NotExists:
+                        // Note the hit. Reported by outputJoinSet() or
+                        // outputOptionals().
+                        right.nhits.increment();
+                        break;
+                    default:
+                        throw new AssertionError();
+                    }
+
+                } // while(ritr.hasNext())
+
+            } // for(i : offsets)
+
+            return out;
+
+        }
+
+    }
+
+}
@@ -31,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,6 +58,8 @@ import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.engine.AbstractRunningQuery;
 import com.bigdata.bop.engine.QueryTimeoutException;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.ITupleCursor;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.concurrent.FutureTaskMon;
 import com.bigdata.relation.IRelation;
@@ -221,6 +224,29 @@ public class PipelineJoin<E> extends PipelineOp implements
 
         boolean DEFAULT_REORDER_ACCESS_PATHS = true;
 
+        /**
+         * When <code>true</code>, the access paths for a chunk of input
+         * solutions are read using one {@link ITupleCursor} per index which
+         * is shared by those access paths. Since the access paths are
+         * evaluated in <i>fromKey</i> order (see
+         * {@link #REORDER_ACCESS_PATHS}), the cursor moves forward through the
+         * index and each probe is typically satisfied from the leaf on which
+         * the previous probe ended (or the next leaf) rather than by a
+         * descent from the root. Probes which move backward or skip ahead by
+         * more than one leaf fall back to a descent.
+         * <p>
+         * Note: This only applies when the access path tasks are run in the
+         * caller's thread (when {@link #MAX_PARALLEL_CHUNKS} is ZERO (0)) and
+         * to local {@link AccessPath}s which are not cutoff. Other access
+         * paths are read as usual.
+         * 
+         * @see PipelineJoinStats#sortedProbeCount
+         */
+        String SORTED_PROBE = (PipelineJoin.class.getName() + ".sortedProbe")
+                .intern();
+
+        boolean DEFAULT_SORTED_PROBE = false;
+
         /**
          * The minimum number of (estimated) data points assigned to a task. This basically
          * defines the threshold upon which parallelization starts to pay out. Currently only
@@ -259,6 +285,22 @@ public class PipelineJoin<E> extends PipelineOp implements
         
         public int DEFAULT_NUM_TASKS_PER_THREAD = 1;
         
+        /**
+         * The maximum number of z-order subranges into which the search range
+         * of a geospatial query is decomposed. The subranges cut out those
+         * parts of the z-order range of the search rectangle which lie outside
+         * of the rectangle and are scanned as independent tasks. A value of 1
+         * disables the decomposition.
+         * 
+         * Currently only implemented for the geospatial feature.
+         * 
+         * Must be a value >= 1.
+         */
+        public String MAX_ZORDER_SUBRANGES = 
+           (PipelineJoin.class.getName() + ".maxZOrderSubRanges").intern();
+        
+        public int DEFAULT_MAX_ZORDER_SUBRANGES = 16;
+        
 
 	}
 
@@ -480,6 +522,14 @@ public class PipelineJoin<E> extends PipelineOp implements
          */
 		final private boolean reorderAccessPaths;
 
+        /**
+         * When <code>true</code>, the access paths for a chunk are read using
+         * a shared cursor.
+         * 
+         * @see Annotations#SORTED_PROBE
+         */
+		final private boolean sortedProbe;
+
 		/**
 		 * Used to enforce the {@link Annotations#LIMIT} iff one is specified.
 		 */
@@ -584,6 +634,9 @@ public class PipelineJoin<E> extends PipelineOp implements
             this.reorderAccessPaths = joinOp.getProperty(
                     Annotations.REORDER_ACCESS_PATHS,
                     Annotations.DEFAULT_REORDER_ACCESS_PATHS);
+            this.sortedProbe = joinOp.getProperty(
+                    Annotations.SORTED_PROBE,
+                    Annotations.DEFAULT_SORTED_PROBE);
 
 			this.threadLocalBufferFactory = new TLBFactory(sink);
 
@@ -1369,6 +1422,55 @@ public class PipelineJoin<E> extends PipelineOp implements
 
          }
 
+			/**
+			 * Assign one cursor per index to the tasks whose access paths can
+			 * be read using a shared cursor. The tasks must then be run in
+			 * order in the caller's thread.
+			 * 
+			 * @param tasks
+			 *            The tasks.
+			 * 
+			 * @see Annotations#SORTED_PROBE
+			 */
+			protected void assignCursors(final AccessPathTask[] tasks) {
+
+				final Map<IIndex, ITupleCursor<E>> cursors = new IdentityHashMap<IIndex, ITupleCursor<E>>();
+
+				for (AccessPathTask task : tasks) {
+
+					if (!(task.accessPath instanceof AccessPath<?>))
+						continue;
+
+					if (task.accessPath.getPredicate() instanceof IStarJoin<?>)
+						continue;
+
+					// Note: null if the index does not support a cursor.
+					final ITupleCursor<E> tmp = ((AccessPath<E>) task.accessPath)
+							.newCursor();
+
+					if (tmp == null)
+						continue;
+
+					/*
+					 * Note: Keyed by the index read by the cursor since the
+					 * access paths can use different views of the same index.
+					 */
+					final IIndex ndx = tmp.getIndex();
+
+					ITupleCursor<E> cursor = cursors.get(ndx);
+
+					if (cursor == null) {
+
+						cursors.put(ndx, cursor = tmp);
+
+					}
+
+					task.cursor = cursor;
+
+				}
+
+			}
+
 			/**
 			 * Either execute the tasks in the caller's thread or schedule them
 			 * for execution on the supplied service.
@@ -1387,6 +1489,9 @@ public class PipelineJoin<E> extends PipelineOp implements
 					 * No Executor, so run each task in the caller's thread.
 					 */
 
+					if (sortedProbe)
+						assignCursors(tasks);
+
 					for (AccessPathTask task : tasks) {
 
 						task.call();
@@ -1507,6 +1612,13 @@ public class PipelineJoin<E> extends PipelineOp implements
 			 */
 			final private IAccessPath<E> accessPath;
 
+			/**
+			 * The cursor shared with the other tasks for the same chunk which
+			 * read on the same index and <code>null</code> unless
+			 * {@link Annotations#SORTED_PROBE} is enabled.
+			 */
+			private ITupleCursor<E> cursor = null;
+
 			            /**
              * Return the <em>fromKey</em> for the {@link IAccessPath} generated
              * from the {@link IBindingSet} for this task.
@@ -1820,8 +1932,16 @@ public class PipelineJoin<E> extends PipelineOp implements
             			IPredicate.Annotations.DEFAULT_CUTOFF_LIMIT);
             	
                 // Obtain the iterator for the current join dimension.
-                final ICloseableIterator<IBindingSet[]> itr = ((IBindingSetAccessPath<?>) accessPath)
-                      .solutions(context, cutoffLimit, stats);
+                final ICloseableIterator<IBindingSet[]> itr;
+                if (cursor != null && cutoffLimit == Long.MAX_VALUE) {
+                    // Seek the shared cursor.
+                    itr = ((AccessPath<E>) accessPath).solutions(context,
+                            cursor, stats);
+                    stats.sortedProbeCount.increment();
+                } else {
+                    itr = ((IBindingSetAccessPath<?>) accessPath).solutions(
+                            context, cutoffLimit, stats);
+                }
 
                 try {
 
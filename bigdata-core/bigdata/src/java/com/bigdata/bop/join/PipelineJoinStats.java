@@ -63,6 +63,14 @@ public class PipelineJoinStats extends BaseJoinStats {
      */
     public final CAT outputSolutions = new CAT();
 
+    /**
+     * The #of access paths which were read using a cursor shared with the
+     * other access paths for the same chunk of input solutions.
+     * 
+     * @see PipelineJoin.Annotations#SORTED_PROBE
+     */
+    public final CAT sortedProbeCount = new CAT();
+
     /**
      * The estimated join hit ratio. This is computed as
      * 
@@ -128,6 +136,8 @@ public class PipelineJoinStats extends BaseJoinStats {
 
 			outputSolutions.add(t.outputSolutions.get());
 
+			sortedProbeCount.add(t.sortedProbeCount.get());
+
 			// if (t.fanIn > this.fanIn) {
 			// // maximum reported fanIn for this join dimension.
 			// this.fanIn = t.fanIn;
@@ -146,6 +156,7 @@ public class PipelineJoinStats extends BaseJoinStats {
 		sb.append(",inputSolutions=" + inputSolutions.get());
 		sb.append(",outputSolutions=" + outputSolutions.get());
 		sb.append(",joinHitRatio=" + getJoinHitRatio());
+		sb.append(",sortedProbeCount=" + sortedProbeCount.get());
 	}
 
 }
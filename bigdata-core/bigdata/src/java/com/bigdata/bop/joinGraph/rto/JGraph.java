@@ -1,6 +1,6 @@
 /**
 
-Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
 
 Contact:
      SYSTAP, LLC DBA Blazegraph
@@ -30,6 +30,7 @@ package com.bigdata.bop.joinGraph.rto;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Formatter;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -38,8 +39,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
@@ -53,7 +56,6 @@ import com.bigdata.bop.engine.QueryEngine;
 import com.bigdata.bop.joinGraph.NoSolutionsException;
 import com.bigdata.bop.joinGraph.PartitionedJoinGroup;
 import com.bigdata.bop.rdf.join.DataSetJoin;
-import com.bigdata.rdf.sparql.ast.eval.AST2BOpRTO;
 import com.bigdata.util.concurrent.ExecutionExceptions;
 
 /**
@@ -480,6 +482,16 @@ public class JGraph {
         if (edgeSamples == null)
             throw new IllegalArgumentException();
 
+        /*
+         * The time by which the exploration of the join paths must be done.
+         */
+        final long maxTime = joinGraph.getMaxTime();
+
+        final long begin = System.currentTimeMillis();
+
+        final long deadline = maxTime >= Long.MAX_VALUE - begin ? Long.MAX_VALUE
+                : begin + maxTime;
+
         // Setup the join graph.
         Path[] paths = round0(queryEngine, limit, nedges);
 
@@ -503,6 +515,32 @@ public class JGraph {
 
         while (paths.length > 0 && round < nvertices - 1) {
 
+            if (System.currentTimeMillis() >= deadline) {
+
+                /*
+                 * The optimization time budget is exhausted. Do not resample.
+                 * Instead, complete the join path having the lowest estimated
+                 * cost so far by extending it greedily in each remaining
+                 * round.
+                 */
+
+                if (paths.length > 1) {
+
+                    if (log.isInfoEnabled())
+                        log.info("Optimization time exhausted: round=" + round
+                                + ", npaths=" + paths.length + ", maxTime="
+                                + maxTime);
+
+                    paths = new Path[] { getBestPath(paths) };
+
+                }
+
+                paths = expand(queryEngine, limit, round++, paths, edgeSamples);
+
+                continue;
+
+            }
+
             /*
              * Resample the paths.
              * 
@@ -598,42 +636,7 @@ public class JGraph {
                     + ", nunderflow=" + nunderflow + "\n"
                     + showTable(paths, null/* pruned */, edgeSamples));
 
-            Path t = null;
-            
-            for (Path p : paths) {
-            
-                if (p.edgeSample.isUnderflow()) {
-                
-                    /*
-                     * Skip paths with cardinality estimate underflow. They are
-                     * not fully tested in the data since no solutions have made
-                     * it through all of the joins.
-                     */
-                    
-                    continue;
-                    
-                }
-
-                if (t == null || p.sumEstCard < t.sumEstCard) {
-                
-                    // Accept path with the least cost.
-                    t = p;
-                    
-                }
-                
-            }
-            
-            if (t == null) {
-
-                /* Arbitrary choice if all paths underflow.
-                 * 
-                 * TODO Or throw out NoSolutionsException?
-                 */
-                t = paths[0];
-                
-            }
-            
-            selectedPath = t;
+            selectedPath = getBestPath(paths);
 
         } else {
             
@@ -653,6 +656,54 @@ public class JGraph {
 
     }
 
+    /**
+     * Return the path having the least estimated cost. Paths with a
+     * cardinality estimate underflow are only chosen if all paths underflow.
+     * 
+     * @param paths
+     *            The paths (non-empty).
+     */
+    static Path getBestPath(final Path[] paths) {
+
+        Path t = null;
+        
+        for (Path p : paths) {
+        
+            if (p.edgeSample.isUnderflow()) {
+            
+                /*
+                 * Skip paths with cardinality estimate underflow. They are not
+                 * fully tested in the data since no solutions have made it
+                 * through all of the joins.
+                 */
+                
+                continue;
+                
+            }
+
+            if (t == null || p.sumEstCard < t.sumEstCard) {
+            
+                // Accept path with the least cost.
+                t = p;
+                
+            }
+            
+        }
+        
+        if (t == null) {
+
+            /* Arbitrary choice if all paths underflow.
+             * 
+             * TODO Or throw out NoSolutionsException?
+             */
+            t = paths[0];
+            
+        }
+        
+        return t;
+
+    }
+
     /**
      * Return a permutation vector which may be used to reorder the given
      * {@link IPredicate}[] into the evaluation order selected by the
@@ -939,37 +990,43 @@ public class JGraph {
          * surviving paths to share a join path prefix, so do not re-sample a
          * given path prefix more than once per round.
          * 
-         * FIXME PARALLELIZE: Parallelize the re-sampling for the active paths.
-         * This step is responsible for deepening the samples on the non-pruned
-         * paths. There is a data race that can occur since the [edgeSamples]
-         * map can contain samples for the same sequence of edges in different
-         * paths. This is because two paths can shared a common prefix sequence
-         * of edges, e.g., [2, 4, 6, 7] and [2, 4, 6, 9] share the path prefix
-         * [2, 4, 6]. Therefore both inspection and update of the [edgeSamples]
-         * map MUST be synchronized. This code is single threaded since that
-         * synchronization mechanism has not yet been put into place. The
-         * obvious way to handle this is to use a memoization pattern for the
-         * [ids] key for the [edgeSamples] map. This will ensure that the
-         * threads that need to resample a given edge will coordinate with the
-         * first such thread doing the resampling and the other thread(s)
-         * blocking until the resampled edge is available.
+         * Note: The paths are resampled in parallel. Two paths can share a
+         * common prefix sequence of edges, e.g., [2, 4, 6, 7] and [2, 4, 6, 9]
+         * share the path prefix [2, 4, 6]. Each task decides which of its path
+         * segments must be resampled against the samples from the prior round
+         * and the [resampled] map memoizes the cutoff joins by path segment
+         * and limit. The first thread which needs to resample a given path
+         * segment at a given limit does so while the other thread(s) block
+         * until the resampled edge is available. Since no task reads a sample
+         * written in the same round, the samples do not depend on the order in
+         * which the tasks are run.
          */
         if (log.isDebugEnabled())
             log.debug("Re-sampling in-use path segments.");
 
-        // #of paths with cardinality estimate underflow.
-        int nunderflow = 0;
+        // The samples from the prior round (read-only).
+        final Map<PathIds, EdgeSample> priorSamples = new HashMap<PathIds, EdgeSample>(
+                edgeSamples);
+
+        final ConcurrentHashMap<SegmentLimit, FutureTask<EdgeSample>> resampled = new ConcurrentHashMap<SegmentLimit, FutureTask<EdgeSample>>();
+
         final List<Callable<Boolean>> tasks = new LinkedList<Callable<Boolean>>();
         for (Path x : a) {
 
-            tasks.add(new ResamplePathTask(queryEngine, x, limitIn, edgeSamples));
+            tasks.add(new ResamplePathTask(queryEngine, x, limitIn,
+                    priorSamples, resampled));
 
         } // next Path [x].
 
-        // Execute in the caller's thread.
-        for (Callable<Boolean> task : tasks) {
+        // Resample the paths in parallel.
+        final List<Future<Boolean>> futures = queryEngine.getIndexManager()
+                .getExecutorService().invokeAll(tasks);
+
+        // #of paths with cardinality estimate underflow.
+        int nunderflow = 0;
+        for (Future<Boolean> f : futures) {
 
-            if (task.call()) {
+            if (f.get()) {
 
                 nunderflow++;
 
@@ -977,10 +1034,64 @@ public class JGraph {
 
         }
 
+        /*
+         * Cache the new samples. When a path segment was resampled at more
+         * than one limit, the sample with the largest limit is retained.
+         */
+        for (Map.Entry<SegmentLimit, FutureTask<EdgeSample>> e : resampled
+                .entrySet()) {
+
+            final PathIds ids = e.getKey().ids;
+
+            final EdgeSample edgeSample = e.getValue().get();
+
+            final EdgeSample tmp = edgeSamples.get(ids);
+
+            if (tmp == null || priorSamples.get(ids) == tmp
+                    || tmp.limit < edgeSample.limit) {
+
+                edgeSamples.put(ids, edgeSample);
+
+            }
+
+        }
+
         return nunderflow;
 
     }
 
+    /**
+     * The key under which the cutoff join for a path segment at a given sample
+     * limit is memoized by {@link #resamplePaths(QueryEngine, int, int, Path[],
+     * Map)}.
+     */
+    private static class SegmentLimit {
+
+        private final PathIds ids;
+        private final int limit;
+
+        SegmentLimit(final PathIds ids, final int limit) {
+            this.ids = ids;
+            this.limit = limit;
+        }
+
+        @Override
+        public int hashCode() {
+            return ids.hashCode() * 31 + limit;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof SegmentLimit))
+                return false;
+            final SegmentLimit t = (SegmentLimit) o;
+            return limit == t.limit && ids.equals(t.ids);
+        }
+
+    }
+
     /**
      * Resample the edges along a join path. Edges are resampled based on the
      * desired cutoff limit and only as necessary.
@@ -993,18 +1104,84 @@ public class JGraph {
         private final QueryEngine queryEngine;
         private final Path x;
         private final int limitIn;
+        /**
+         * The samples from the prior round (read-only).
+         */
         private final Map<PathIds, EdgeSample> edgeSamples;
+        /**
+         * The path segments which are being (or were) resampled in this round
+         * by any {@link ResamplePathTask}.
+         */
+        private final ConcurrentHashMap<SegmentLimit, FutureTask<EdgeSample>> resampled;
         
         public ResamplePathTask(final QueryEngine queryEngine, final Path x,
-                final int limitIn, final Map<PathIds, EdgeSample> edgeSamples) {
+                final int limitIn, final Map<PathIds, EdgeSample> edgeSamples,
+                final ConcurrentHashMap<SegmentLimit, FutureTask<EdgeSample>> resampled) {
             this.queryEngine = queryEngine;
             this.x = x;
             this.limitIn = limitIn;
             this.edgeSamples = edgeSamples;
+            this.resampled = resampled;
+        }
+
+        /**
+         * Resample a path segment. If another task is already resampling the
+         * same path segment at the same limit, then this waits for its sample.
+         * 
+         * @param ids
+         *            The path segment.
+         * @param limit
+         *            The sample limit.
+         * @param sourceSample
+         *            The input sample for the cutoff join.
+         * 
+         * @return The new sample for the path segment.
+         */
+        private EdgeSample resample(final PathIds ids, final int limit,
+                final SampleBase sourceSample) throws Exception {
+
+            FutureTask<EdgeSample> ft = new FutureTask<EdgeSample>(
+                    new Callable<EdgeSample>() {
+                        @Override
+                        public EdgeSample call() throws Exception {
+                            final EdgeSample edgeSample = Path.cutoffJoin(//
+                                    queryEngine,//
+                                    joinGraph,//
+                                    limit,//
+                                    x.getPathSegment(ids.length()),//
+                                    C, // constraints
+                                    V.length == ids.length(), // pathIsComplete
+                                    sourceSample//
+                                    );
+                            if (log.isTraceEnabled())
+                                log.trace("Resampled: " + ids + " : "
+                                        + edgeSample);
+                            return edgeSample;
+                        }
+                    });
+
+            final FutureTask<EdgeSample> tmp = resampled.putIfAbsent(
+                    new SegmentLimit(ids, limit), ft);
+
+            if (tmp == null) {
+
+                // We won the race. Resample the path segment.
+                ft.run();
+
+            } else {
+
+                // Wait for the other task to resample the path segment.
+                ft = tmp;
+
+            }
+
+            return ft.get();
+
         }
         
         @Override
         public Boolean call() throws Exception {    
+
             /*
              * Get the new sample limit for the path.
              * 
@@ -1033,94 +1210,53 @@ public class JGraph {
                     if (log.isTraceEnabled())
                         log.trace("Will resample at higher limit: " + ids);
                     // Time to resample this edge.
-                    edgeSamples.remove(ids);
                     edgeSample = null;
                 }
 
-                if (priorEdgeSample == null) {
+                if (edgeSample == null) {
 
-                    /*
-                     * This is the first edge in the path.
-                     * 
-                     * Test our local table of join path segment estimates to
-                     * see if we have already re-sampled that edge. If not, then
-                     * re-sample it now.
-                     */
-
-                    assert segmentLength == 2;
-
-                    if (edgeSample == null) {
+                    if (priorEdgeSample == null) {
 
                         /*
-                         * Re-sample the 1st edge in the join path, updating the
-                         * sample on the edge as a side-effect. The cutoff
+                         * This is the first edge in the path.
+                         * 
+                         * Re-sample the 1st edge in the join path, updating
+                         * the sample on the edge as a side-effect. The cutoff
                          * sample is based on the vertex sample for the minimum
                          * cardinality vertex.
                          */
 
-                        edgeSample = AST2BOpRTO.cutoffJoin(//
-                                queryEngine, //
-                                joinGraph, //
-                                limit,//
-                                x.getPathSegment(2),// 1st edge.
-                                C,// constraints
-                                V.length == 2,// pathIsComplete
+                        assert segmentLength == 2;
+
+                        edgeSample = resample(ids, limit,
                                 x.vertices[0].sample// source sample.
                                 );
 
-                        // Cache the sample.
-                        if (edgeSamples.put(ids, edgeSample) != null)
-                            throw new AssertionError();
-
-                    }
-
-                    // Save sample. It will be used to re-sample the next edge.
-                    priorEdgeSample = edgeSample;
-
-                } else {
-
-                    /*
-                     * The path segment is at least 3 vertices long.
-                     */
-                    assert ids.length() >= 3;
-
-                    if (edgeSample == null) {
+                    } else {
 
                         /*
                          * This is some N-step edge in the path, where N is
-                         * greater than ONE (1). The source vertex is the vertex
-                         * which already appears in the prior edges of this join
-                         * path. The target vertex is the next vertex which is
-                         * visited by the join path. The sample passed in is the
-                         * prior edge sample -- that is, the sample from the
-                         * path segment without the target vertex. This is the
-                         * sample that we just updated when we visited the prior
-                         * edge of the path.
+                         * greater than ONE (1). The source vertex is the
+                         * vertex which already appears in the prior edges of
+                         * this join path. The target vertex is the next
+                         * vertex which is visited by the join path. The
+                         * sample passed in is the prior edge sample -- that
+                         * is, the sample from the path segment without the
+                         * target vertex. This is the sample that we just
+                         * updated when we visited the prior edge of the path.
                          */
 
-                        edgeSample = AST2BOpRTO.cutoffJoin(//
-                                queryEngine,//
-                                joinGraph,//
-                                limit,//
-                                x.getPathSegment(ids.length()),//
-                                C, // constraints
-                                V.length == ids.length(), // pathIsComplete
-                                priorEdgeSample//
-                                );
-
-                        if (log.isTraceEnabled())
-                            log.trace("Resampled: " + ids + " : " + edgeSample);
+                        assert ids.length() >= 3;
 
-                        if (edgeSamples.put(ids, edgeSample) != null)
-                            throw new AssertionError();
+                        edgeSample = resample(ids, limit, priorEdgeSample);
 
                     }
 
-                    // Save sample. It will be used to re-sample the next edge.
-                    priorEdgeSample = edgeSample;
-
                 }
 
+                // Save sample. It will be used to re-sample the next edge.
+                priorEdgeSample = edgeSample;
+
             } // next path prefix in Path [x]
 
             if (priorEdgeSample == null)
@@ -1196,13 +1332,6 @@ public class JGraph {
         if (a.length == 0)
             throw new IllegalArgumentException();
 
-        /*
-         * Ensure that we use a synchronized view of this collection since we
-         * will write on it from parallel threads when we expand the join paths
-         * in parallel.
-         */
-        edgeSamples = Collections.synchronizedMap(edgeSamples);
-
 //        // increment the limit by itself in each round.
 //        final int limit = (round + 1) * limitIn;
 
@@ -1217,26 +1346,50 @@ public class JGraph {
         if (log.isDebugEnabled())
 			log.debug("Expanding paths: #paths(in)=" + a.length);
 
-        // The new set of paths to be explored.
-        final List<Path> tmpAll = new LinkedList<Path>();
-
-        // Setup tasks to expand the current join paths.
-        final List<Callable<List<Path>>> tasks = new LinkedList<Callable<List<Path>>>();
+        /*
+         * Setup one task for each edge along which a join path will be
+         * extended. Each edge is sampled by its own task so the cutoff joins
+         * for the edges of a round are run in parallel, even when only one
+         * path is being extended.
+         */
+        final List<ExtendPathTask> tasks = new LinkedList<ExtendPathTask>();
         for (Path x : a) {
 
-            tasks.add(new ExpandPathTask(queryEngine, x, edgeSamples));
+            addExtendPathTasks(queryEngine, x, tasks);
 
         }
 
-        // Expand paths in parallel.
-        final List<Future<List<Path>>> futures = queryEngine.getIndexManager().getExecutorService()
-                .invokeAll(tasks);
-        
+        // Extend paths in parallel.
+        final List<Future<Path>> futures = queryEngine.getIndexManager()
+                .getExecutorService().invokeAll(tasks);
+
+        // The new set of paths to be explored.
+        final List<Path> tmpAll = new LinkedList<Path>();
+
         // Check future, collecting new paths from each task.
-        for(Future<List<Path>> f : futures) {
+        final Iterator<ExtendPathTask> titr = tasks.iterator();
+        for (Future<Path> f : futures) {
+
+            final ExtendPathTask task = titr.next();
+
+            final Path p = f.get();
+
+            // Add to the set of paths for this round.
+            tmpAll.add(p);
+
+            if (task.constrained) {
+
+                // Record the sample for the new path.
+                if (edgeSamples.put(new PathIds(p.getVertexIds()),
+                        p.edgeSample) != null)
+                    throw new AssertionError();
+
+            }
+
+            if (log.isTraceEnabled())
+                log.trace("Extended path with dynamic edge: vnew="
+                        + task.tVertex.pred.getId() + ", new path=" + p);
 
-            tmpAll.addAll(f.get());
-            
         }
 
         /*
@@ -1266,170 +1419,147 @@ public class JGraph {
     }
 
     /**
-     * Task expands a path by one edge into one or more new paths.
+     * Add a task for each edge along which a path will be extended in this
+     * round. The path is extended by each vertex which it does not include and
+     * which shares variables with the path, either directly or indirectly via
+     * the constraints. If there is no such vertex, then the path is extended
+     * along a single unconstrained edge.
      * 
-     * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
+     * @param queryEngine
+     *            The query engine.
+     * @param x
+     *            The path to be extended.
+     * @param tasks
+     *            The tasks are added to this list.
      */
-    private class ExpandPathTask implements Callable<List<Path>> {
+    private void addExtendPathTasks(final QueryEngine queryEngine,
+            final Path x, final List<ExtendPathTask> tasks) {
 
-        private final QueryEngine queryEngine;
-        private final Path x;
-        /**
-         * Note: The collection provided by the caller MUST be thread-safe since
-         * this task will be run by parallel threads over the different join
-         * paths from the last round. There will not be any conflict over writes
-         * on this map since each {@link PathIds} instance resulting from the
-         * expansion will be unique, but we still need to use a thread-safe
-         * collection since there will be concurrent modifications to this map.
+        /*
+         * We already increased the sample limit for the path in the loop
+         * above.
          */
-        private final Map<PathIds, EdgeSample> edgeSamples;
+        final int limit = x.edgeSample.limit;
 
-        public ExpandPathTask(final QueryEngine queryEngine, final Path x,
-                final Map<PathIds, EdgeSample> edgeSamples) {
-            this.queryEngine = queryEngine;
-            this.x = x;
-            this.edgeSamples = edgeSamples;
-        }
-        
-        @Override
-        public List<Path> call() throws Exception {
-            /*
-             * We already increased the sample limit for the path in the loop
-             * above.
-             */
-            final int limit = x.edgeSample.limit;
+        /*
+         * Any vertex which (a) does not appear in the path to be extended; and
+         * (b) does not share any variables indirectly via constraints is added
+         * to this collection.
+         * 
+         * If we are not able to extend the path at least once using a
+         * constrained join then we will use this collection as the source of
+         * unconnected edges which need to be used to extend the path.
+         */
+        final Set<Vertex> nothingShared = new LinkedHashSet<Vertex>();
 
-            /*
-             * The set of vertices used to expand this path in this round.
-             */
-            final Set<Vertex> used = new LinkedHashSet<Vertex>();
+        // #of constrained extensions of this path.
+        int nconstrained = 0;
 
-            /*
-             * Any vertex which (a) does not appear in the path to be
-             * extended; (b) has not already been used to extend the path;
-             * and (c) does not share any variables indirectly via
-             * constraints is added to this collection.
-             * 
-             * If we are not able to extend the path at least once using a
-             * constrained join then we will use this collection as the
-             * source of unconnected edges which need to be used to extend
-             * the path.
-             */
-            final Set<Vertex> nothingShared = new LinkedHashSet<Vertex>();
-            
-            // The new set of paths to be explored as extensions to this path.
-            final List<Path> tmp = new LinkedList<Path>();
-            
-            // Consider all vertices.
-            for (Vertex tVertex : V) {
+        // Consider all vertices.
+        for (Vertex tVertex : V) {
 
-                // Figure out which vertices are already part of this path.
-                final boolean vFound = x.contains(tVertex);
+            // Figure out which vertices are already part of this path.
+            final boolean vFound = x.contains(tVertex);
 
-                if (vFound) {
-                    // Vertex is already part of this path.
-                    if (log.isTraceEnabled())
-                        log.trace("Vertex: " + tVertex
-                                + " - already part of this path.");
-                    continue;
-                }
+            if (vFound) {
+                // Vertex is already part of this path.
+                if (log.isTraceEnabled())
+                    log.trace("Vertex: " + tVertex
+                            + " - already part of this path.");
+                continue;
+            }
 
-                if (used.contains(tVertex)) {
-                    // Vertex already used to extend this path.
-                    if (log.isTraceEnabled())
-                        log
-                                .trace("Vertex: "
-                                        + tVertex
-                                        + " - already used to extend this path.");
-                    continue;
-                }
+            // FIXME RTO: Replace with StaticAnalysis.
+            if (!PartitionedJoinGroup.canJoinUsingConstraints(//
+                    x.getPredicates(),// path
+                    tVertex.pred,// vertex
+                    C// constraints
+                    )) {
+                /*
+                 * Vertex does not share variables either directly or
+                 * indirectly.
+                 */
+                if (log.isTraceEnabled())
+                    log.trace("Vertex: " + tVertex
+                            + " - unconstrained join for this path.");
+                nothingShared.add(tVertex);
+                continue;
+            }
 
-                // FIXME RTO: Replace with StaticAnalysis.
-                if (!PartitionedJoinGroup.canJoinUsingConstraints(//
-                        x.getPredicates(),// path
-                        tVertex.pred,// vertex
-                        C// constraints
-                        )) {
-                    /*
-                     * Vertex does not share variables either directly
-                     * or indirectly.
-                     */
-                    if (log.isTraceEnabled())
-                        log
-                                .trace("Vertex: "
-                                        + tVertex
-                                        + " - unconstrained join for this path.");
-                    nothingShared.add(tVertex);
-                    continue;
-                }
+            // Extend the path to the new vertex.
+            tasks.add(new ExtendPathTask(queryEngine, x, tVertex, limit,
+                    true/* constrained */));
 
-                // add the new vertex to the set of used vertices.
-                used.add(tVertex);
-
-                // Extend the path to the new vertex.
-                final Path p = x.addEdge(//
-                        queryEngine, //
-                        joinGraph, //
-                        limit,//
-                        tVertex,//
-                        C, //
-                        x.getVertexCount() + 1 == V.length// pathIsComplete
-                        );
+            nconstrained++;
 
-                // Add to the set of paths for this round.
-                tmp.add(p);
+        } // next target vertex.
 
-                // Record the sample for the new path.
-                if (edgeSamples.put(new PathIds(p.getVertexIds()),
-                        p.edgeSample) != null)
-                    throw new AssertionError();
+        if (nconstrained == 0) {
 
-                if (log.isTraceEnabled())
-                    log.trace("Extended path with dynamic edge: vnew="
-                            + tVertex.pred.getId() + ", new path=" + p);
+            /*
+             * No constrained joins were identified as extensions of this join
+             * path, so we must consider edges which represent fully
+             * unconstrained joins.
+             */
 
-            } // next target vertex.
+            assert !nothingShared.isEmpty();
 
-            if (tmp.isEmpty()) {
+            /*
+             * Choose any vertex from the set of those which do not share any
+             * variables with the join path. Since all of these are fully
+             * unconstrained joins we do not want to expand the join path along
+             * multiple edges in this iterator, just along a single
+             * unconstrained edge.
+             */
+            final Vertex tVertex = nothingShared.iterator().next();
 
-                /*
-                 * No constrained joins were identified as extensions of this
-                 * join path, so we must consider edges which represent fully
-                 * unconstrained joins.
-                 */
+            // Extend the path to the new vertex.
+            tasks.add(new ExtendPathTask(queryEngine, x, tVertex, limit,
+                    false/* constrained */));
 
-                assert !nothingShared.isEmpty();
+        }
 
-                /*
-                 * Choose any vertex from the set of those which do
-                 * not share any variables with the join path. Since
-                 * all of these are fully unconstrained joins we do
-                 * not want to expand the join path along multiple
-                 * edges in this iterator, just along a single
-                 * unconstrained edge.
-                 */
-                final Vertex tVertex = nothingShared.iterator().next();
-                
-                // Extend the path to the new vertex.
-                final Path p = x.addEdge(//
-                        queryEngine, //
-                        joinGraph,//
-                        limit, //
-                        tVertex, //
-                        C,//
-                        x.getVertexCount() + 1 == V.length// pathIsComplete
-                        );
+    }
 
-                // Add to the set of paths for this round.
-                tmp.add(p);
+    /**
+     * Task extends a path by one edge, sampling the new edge.
+     * 
+     * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
+     */
+    private class ExtendPathTask implements Callable<Path> {
 
-                if (log.isTraceEnabled())
-                    log.trace("Extended path with dynamic edge: vnew="
-                            + tVertex.pred.getId() + ", new path=" + p);
+        private final QueryEngine queryEngine;
+        private final Path x;
+        private final Vertex tVertex;
+        private final int limit;
+        /**
+         * <code>true</code> iff the new vertex shares variables with the path,
+         * either directly or indirectly via the constraints.
+         */
+        private final boolean constrained;
 
-            } // if(tmp.isEmpty())
+        public ExtendPathTask(final QueryEngine queryEngine, final Path x,
+                final Vertex tVertex, final int limit,
+                final boolean constrained) {
+            this.queryEngine = queryEngine;
+            this.x = x;
+            this.tVertex = tVertex;
+            this.limit = limit;
+            this.constrained = constrained;
+        }
+        
+        @Override
+        public Path call() throws Exception {
 
-            return tmp;
+            // Extend the path to the new vertex.
+            return x.addEdge(//
+                    queryEngine, //
+                    joinGraph, //
+                    limit,//
+                    tVertex,//
+                    C, //
+                    x.getVertexCount() + 1 == V.length// pathIsComplete
+                    );
 
         }
         
@@ -1772,7 +1902,7 @@ public class JGraph {
             final IPredicate<?>[] preds = new IPredicate[] { v.pred, vp.pred };
 
             // cutoff join of the edge (v,vp)
-            final EdgeSample edgeSample = AST2BOpRTO.cutoffJoin(//
+            final EdgeSample edgeSample = Path.cutoffJoin(//
                     queryEngine,// 
                     joinGraph,//
                     limit, // sample limit
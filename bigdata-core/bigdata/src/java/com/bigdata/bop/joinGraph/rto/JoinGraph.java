@@ -159,6 +159,17 @@ public class JoinGraph extends PipelineOp {
         
         String DEFAULT_SAMPLE_TYPE = SampleType.RANDOM.name();
 
+        /**
+         * The maximum time in milliseconds which the RTO may spend exploring
+         * join paths (default {@value #DEFAULT_MAX_TIME}). Once this budget is
+         * exhausted, the RTO stops resampling and completes the join path
+         * having the lowest estimated cost so far by greedy extension. This
+         * must be a positive integer.
+         */
+        String MAX_TIME = JoinGraph.class.getName() + ".maxTime";
+
+        long DEFAULT_MAX_TIME = Long.MAX_VALUE;
+
         /**
          * The set of variables that are known to have already been materialized
          * in the context in which the RTO was invoked.
@@ -261,6 +272,15 @@ public class JoinGraph extends PipelineOp {
 
 	}
 
+	/**
+	 * @see Annotations#MAX_TIME
+	 */
+	public long getMaxTime() {
+
+		return getProperty(Annotations.MAX_TIME, Annotations.DEFAULT_MAX_TIME);
+
+	}
+
 	/**
 	 * @see Annotations#SAMPLE_TYPE
 	 */
@@ -391,6 +411,9 @@ public class JoinGraph extends PipelineOp {
         if (getNEdges() <= 0)
             throw new IllegalArgumentException(Annotations.NEDGES);
 
+        if (getMaxTime() <= 0)
+            throw new IllegalArgumentException(Annotations.MAX_TIME);
+
         /*
          * TODO Check DONE_SET, NT, JOIN_NODES. These annotations are required
          * for the new code path. We should check for their presence. However,
@@ -685,7 +685,7 @@ public class Path {
             
         }
 
-        final EdgeSample edgeSample2 = AST2BOpRTO.cutoffJoin(//
+        final EdgeSample edgeSample2 = cutoffJoin(//
                 queryEngine,//
                 joinGraph,//
                 limit, //
@@ -715,6 +715,9 @@ public class Path {
      * <strong>The caller is responsible for protecting against needless
      * re-sampling.</strong> This includes cases where a sample already exists
      * at the desired sample limit and cases where the sample is already exact.
+     * <p>
+     * When the {@link SampleCache} is enabled, a sample of the same edge taken
+     * by another query against the same commit point is reused.
      * 
      * @param queryEngine
      *            The query engine.
@@ -757,9 +760,31 @@ public class Path {
             final SampleBase sourceSample//
     ) throws Exception {
 
+        final SampleCache cache = queryEngine.getSampleCache();
+
+        final Object key = cache == null ? null : cache.getEdgeKey(
+                queryEngine, limit, path, constraints, pathIsComplete,
+                sourceSample);
+
+        if (key != null) {
+
+            final EdgeSample edgeSample = cache.getEdgeSample(key,
+                    sourceSample);
+
+            if (edgeSample != null)
+                return edgeSample;
+
+        }
+
         // Note: Delegated to the AST/RTO integration class.
-        return AST2BOpRTO.cutoffJoin(queryEngine, joinGraph, limit, path,
-                constraints, pathIsComplete, sourceSample);
+        final EdgeSample edgeSample = AST2BOpRTO.cutoffJoin(queryEngine,
+                joinGraph, limit, path, constraints, pathIsComplete,
+                sourceSample);
+
+        if (key != null)
+            cache.putEdgeSample(key, edgeSample);
+
+        return edgeSample;
 
     }
 
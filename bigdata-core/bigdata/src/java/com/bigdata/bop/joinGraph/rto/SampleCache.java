@@ -0,0 +1,763 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.bop.joinGraph.rto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstraint;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.ap.SampleIndex.SampleType;
+import com.bigdata.bop.engine.QueryEngine;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.journal.Journal;
+import com.bigdata.journal.Tx;
+
+/**
+ * A bounded LRU cache of the {@link VertexSample}s and {@link EdgeSample}s
+ * taken by the runtime query optimizer. When the same join group is optimized
+ * again (for example, when a query is issued repeatedly), the RTO reuses the
+ * samples rather than reading the access paths and running the cutoff joins
+ * again.
+ * <p>
+ * A vertex sample is keyed by the shape of its {@link IPredicate} (the
+ * relation, the variables and constants and the annotations other than the
+ * {@link BOp.Annotations#BOP_ID} and the timestamp) and the kind of sample. An
+ * edge sample is keyed by the shapes of the predicates in the join path, the
+ * constraints, the limit and the source sample. The bop identifiers are not
+ * part of the key since they differ from one query to the next.
+ * <p>
+ * Samples are only reused against a view which reads on the same commit point.
+ * Samples for older commit points are dropped when a sample is taken for a
+ * newer commit point. Only read-only transactions against a {@link Journal}
+ * are cached since the commit point read by other views is not known.
+ * <p>
+ * The cache holds its own copy of each sample so the RTO may release the
+ * samples which it was given without affecting the cache.
+ * 
+ * @see Options#CAPACITY
+ * @see QueryEngine#getSampleCache()
+ */
+public class SampleCache implements ICounterSetAccess {
+
+    /**
+     * Options understood by the {@link SampleCache}. These are specified as
+     * JVM system properties.
+     */
+    public interface Options {
+
+        /**
+         * The maximum #of vertex and edge samples in the cache (default
+         * {@value #DEFAULT_CAPACITY}). The cache is disabled when the capacity
+         * is ZERO (0).
+         */
+        String CAPACITY = SampleCache.class.getName() + ".capacity";
+
+        String DEFAULT_CAPACITY = "0";
+
+    }
+
+    /**
+     * A cached sample. This holds everything required to create a new
+     * {@link VertexSample} or {@link EdgeSample} except the source sample of
+     * the latter.
+     */
+    private static class Entry {
+
+        final long commitTime;
+
+        final long estCard;
+
+        final int limit;
+
+        final EstimateEnum estimateEnum;
+
+        final IBindingSet[] sample;
+
+        /*
+         * Only for an edge sample.
+         */
+        final int inputCount;
+
+        final long tuplesRead;
+
+        final long sumRangeCount;
+
+        final long outputCount;
+
+        final long adjCard;
+
+        final double f;
+
+        final long estRead;
+
+        Entry(final long commitTime, final VertexSample s,
+                final IBindingSet[] sample) {
+
+            this.commitTime = commitTime;
+            this.estCard = s.estCard;
+            this.limit = s.limit;
+            this.estimateEnum = s.estimateEnum;
+            this.sample = sample;
+            this.inputCount = 0;
+            this.tuplesRead = 0L;
+            this.sumRangeCount = 0L;
+            this.outputCount = 0L;
+            this.adjCard = 0L;
+            this.f = 0d;
+            this.estRead = 0L;
+
+        }
+
+        Entry(final long commitTime, final EdgeSample s,
+                final IBindingSet[] sample) {
+
+            this.commitTime = commitTime;
+            this.estCard = s.estCard;
+            this.limit = s.limit;
+            this.estimateEnum = s.estimateEnum;
+            this.sample = sample;
+            this.inputCount = s.inputCount;
+            this.tuplesRead = s.tuplesRead;
+            this.sumRangeCount = s.sumRangeCount;
+            this.outputCount = s.outputCount;
+            this.adjCard = s.adjCard;
+            this.f = s.f;
+            this.estRead = s.estRead;
+
+        }
+
+    }
+
+    /**
+     * The key for a sample.
+     */
+    private static class Key {
+
+        final long commitTime;
+
+        final String shape;
+
+        private final int hash;
+
+        Key(final long commitTime, final String shape) {
+
+            this.commitTime = commitTime;
+            this.shape = shape;
+            this.hash = (int) (commitTime ^ (commitTime >>> 32)) * 31
+                    + shape.hashCode();
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            final Key t = (Key) o;
+
+            return hash == t.hash && commitTime == t.commitTime
+                    && shape.equals(t.shape);
+
+        }
+
+    }
+
+    private final int capacity;
+
+    /**
+     * The samples.
+     * <p>
+     * Note: All access is synchronized on this map.
+     */
+    private final LinkedHashMap<Key, Entry> cache;
+
+    /**
+     * The most recent commit point for which a sample was taken.
+     * <p>
+     * Note: Guarded by {@link #cache}.
+     */
+    private long lastCommitTime = -1L;
+
+    /** #of times a sample was reused. */
+    private final CAT hits = new CAT();
+
+    /** #of times a cacheable sample had to be taken. */
+    private final CAT misses = new CAT();
+
+    /** #of samples dropped because a newer commit point was observed. */
+    private final CAT invalidations = new CAT();
+
+    /** #of samples dropped because the cache was full. */
+    private final CAT evictions = new CAT();
+
+    /**
+     * @param capacity
+     *            The maximum #of samples in the cache.
+     */
+    public SampleCache(final int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+
+        this.capacity = capacity;
+
+        this.cache = new LinkedHashMap<Key, Entry>(16/* initialCapacity */,
+                .75f/* loadFactor */, true/* accessOrder */) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+
+                if (size() > SampleCache.this.capacity) {
+
+                    evictions.increment();
+
+                    return true;
+
+                }
+
+                return false;
+
+            }
+
+        };
+
+    }
+
+    /**
+     * Return a new {@link SampleCache} iff one is enabled by
+     * {@link Options#CAPACITY}.
+     * 
+     * @return The cache -or- <code>null</code> if it is disabled.
+     */
+    public static SampleCache newInstance() {
+
+        final int capacity = Integer.valueOf(System.getProperty(
+                Options.CAPACITY, Options.DEFAULT_CAPACITY));
+
+        if (capacity <= 0)
+            return null;
+
+        return new SampleCache(capacity);
+
+    }
+
+    /**
+     * The maximum #of samples in the cache.
+     */
+    public int getCapacity() {
+
+        return capacity;
+
+    }
+
+    /**
+     * The #of samples in the cache.
+     */
+    public int size() {
+
+        synchronized (cache) {
+
+            return cache.size();
+
+        }
+
+    }
+
+    /**
+     * Discard all samples.
+     */
+    public void clear() {
+
+        synchronized (cache) {
+
+            cache.clear();
+
+            lastCommitTime = -1L;
+
+        }
+
+    }
+
+    /**
+     * Return the commit point read by the view -or- <code>-1L</code> if the
+     * samples taken from that view can not be cached.
+     */
+    static long getCommitTime(final IIndexManager indexManager,
+            final long timestamp) {
+
+        if (!(indexManager instanceof Journal))
+            return -1L;
+
+        final Tx tx = ((Journal) indexManager).getLocalTransactionManager()
+                .getTx(timestamp);
+
+        if (tx == null || !tx.isReadOnly())
+            return -1L;
+
+        return tx.getReadsOnCommitTime();
+
+    }
+
+    /**
+     * Return the key for a vertex sample -or- <code>null</code> if it can not
+     * be cached.
+     * 
+     * @param queryEngine
+     *            The query engine.
+     * @param pred
+     *            The predicate for the vertex.
+     * @param sampleType
+     *            The kind of sample.
+     */
+    Object getVertexKey(final QueryEngine queryEngine,
+            final IPredicate<?> pred, final SampleType sampleType) {
+
+        final long commitTime = getCommitTime(queryEngine.getIndexManager(),
+                pred.getTimestamp());
+
+        if (commitTime == -1L)
+            return null;
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("vertex{sampleType=").append(sampleType);
+
+        sb.append(",pred=");
+
+        shape(sb, pred);
+
+        sb.append("}");
+
+        return new Key(commitTime, sb.toString());
+
+    }
+
+    /**
+     * Return the key for an edge sample -or- <code>null</code> if it can not
+     * be cached.
+     * 
+     * @param queryEngine
+     *            The query engine.
+     * @param limit
+     *            The limit for the cutoff join.
+     * @param path
+     *            The predicates in the join path.
+     * @param constraints
+     *            The constraints on the join graph (optional).
+     * @param pathIsComplete
+     *            <code>true</code> iff all vertices of the join graph are in
+     *            the join path.
+     * @param sourceSample
+     *            The input sample for the cutoff join.
+     */
+    Object getEdgeKey(final QueryEngine queryEngine, final int limit,
+            final IPredicate<?>[] path, final IConstraint[] constraints,
+            final boolean pathIsComplete, final SampleBase sourceSample) {
+
+        final long commitTime = getCommitTime(queryEngine.getIndexManager(),
+                path[path.length - 1].getTimestamp());
+
+        if (commitTime == -1L)
+            return null;
+
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append("edge{limit=").append(limit);
+
+        sb.append(",pathIsComplete=").append(pathIsComplete);
+
+        sb.append(",source={limit=").append(sourceSample.limit);
+
+        sb.append(",estCard=").append(sourceSample.estCard);
+
+        sb.append(",estimateEnum=").append(sourceSample.estimateEnum);
+
+        sb.append("},path=[");
+
+        for (int i = 0; i < path.length; i++) {
+
+            if (i > 0)
+                sb.append(",");
+
+            shape(sb, path[i]);
+
+        }
+
+        sb.append("],constraints=[");
+
+        if (constraints != null) {
+
+            for (int i = 0; i < constraints.length; i++) {
+
+                if (i > 0)
+                    sb.append(",");
+
+                shape(sb, constraints[i]);
+
+            }
+
+        }
+
+        sb.append("]}");
+
+        return new Key(commitTime, sb.toString());
+
+    }
+
+    /**
+     * Append the shape of an operator, which is everything except its
+     * {@link BOp.Annotations#BOP_ID} and its timestamp.
+     */
+    static void shape(final StringBuilder sb, final BOp op) {
+
+        sb.append(op.getClass().getName());
+
+        sb.append("(");
+
+        for (int i = 0; i < op.arity(); i++) {
+
+            if (i > 0)
+                sb.append(",");
+
+            final BOp arg = op.get(i);
+
+            if (arg == null || arg.arity() == 0) {
+
+                // variables, constants, etc.
+                sb.append(arg);
+
+            } else {
+
+                shape(sb, arg);
+
+            }
+
+        }
+
+        sb.append(")");
+
+        // Note: Sorted for a stable key.
+        final TreeMap<String, Object> anns = new TreeMap<String, Object>(
+                op.annotations());
+
+        anns.remove(BOp.Annotations.BOP_ID);
+
+        anns.remove(IPredicate.Annotations.TIMESTAMP);
+
+        if (anns.isEmpty())
+            return;
+
+        sb.append("[");
+
+        boolean first = true;
+
+        for (Map.Entry<String, Object> e : anns.entrySet()) {
+
+            if (!first)
+                sb.append(",");
+
+            first = false;
+
+            sb.append(e.getKey()).append("=");
+
+            final Object val = e.getValue();
+
+            if (val instanceof BOp) {
+
+                shape(sb, (BOp) val);
+
+            } else if (val instanceof Object[]) {
+
+                final Object[] a = (Object[]) val;
+
+                sb.append("[");
+
+                for (int i = 0; i < a.length; i++) {
+
+                    if (i > 0)
+                        sb.append(",");
+
+                    if (a[i] instanceof BOp) {
+
+                        shape(sb, (BOp) a[i]);
+
+                    } else {
+
+                        sb.append(a[i]);
+
+                    }
+
+                }
+
+                sb.append("]");
+
+            } else {
+
+                sb.append(val);
+
+            }
+
+        }
+
+        sb.append("]");
+
+    }
+
+    /**
+     * Return a cached sample of a vertex.
+     * 
+     * @param key
+     *            The key from
+     *            {@link #getVertexKey(QueryEngine, IPredicate, SampleType)}.
+     * @param limit
+     *            The desired sample limit.
+     * 
+     * @return A new {@link VertexSample} -or- <code>null</code> if the cache
+     *         does not have a sample of the vertex with at least that limit.
+     */
+    VertexSample getVertexSample(final Object key, final int limit) {
+
+        final Entry e;
+        synchronized (cache) {
+            e = cache.get(key);
+        }
+
+        if (e == null
+                || (e.limit < limit && e.estimateEnum != EstimateEnum.Exact)) {
+
+            misses.increment();
+
+            return null;
+
+        }
+
+        hits.increment();
+
+        return new VertexSample(e.estCard, e.limit, e.estimateEnum, e.sample);
+
+    }
+
+    /**
+     * Return a cached sample of an edge.
+     * 
+     * @param key
+     *            The key from
+     *            {@link #getEdgeKey(QueryEngine, int, IPredicate[], IConstraint[], boolean, SampleBase)}
+     *            .
+     * @param sourceSample
+     *            The input sample for the cutoff join.
+     * 
+     * @return A new {@link EdgeSample} -or- <code>null</code> if the cache
+     *         does not have a sample of the edge.
+     */
+    EdgeSample getEdgeSample(final Object key, final SampleBase sourceSample) {
+
+        final Entry e;
+        synchronized (cache) {
+            e = cache.get(key);
+        }
+
+        if (e == null) {
+
+            misses.increment();
+
+            return null;
+
+        }
+
+        hits.increment();
+
+        return new EdgeSample(sourceSample, e.inputCount, e.tuplesRead,
+                e.sumRangeCount, e.outputCount, e.adjCard, e.f, e.estCard,
+                e.estRead, e.limit, e.estimateEnum, e.sample);
+
+    }
+
+    /**
+     * Cache a sample of a vertex. The sample replaces any cached sample of the
+     * vertex.
+     * 
+     * @param key
+     *            The key from
+     *            {@link #getVertexKey(QueryEngine, IPredicate, SampleType)}.
+     * @param s
+     *            The sample.
+     */
+    void putVertexSample(final Object key, final VertexSample s) {
+
+        final IBindingSet[] sample = s.getSample();
+
+        if (sample == null)
+            return;
+
+        put((Key) key, new Entry(((Key) key).commitTime, s, sample));
+
+    }
+
+    /**
+     * Cache a sample of an edge.
+     * 
+     * @param key
+     *            The key from
+     *            {@link #getEdgeKey(QueryEngine, int, IPredicate[], IConstraint[], boolean, SampleBase)}
+     *            .
+     * @param s
+     *            The sample.
+     */
+    void putEdgeSample(final Object key, final EdgeSample s) {
+
+        final IBindingSet[] sample = s.getSample();
+
+        if (sample == null)
+            return;
+
+        put((Key) key, new Entry(((Key) key).commitTime, s, sample));
+
+    }
+
+    /**
+     * Cache a sample. Samples for older commit points are discarded.
+     */
+    private void put(final Key k, final Entry e) {
+
+        synchronized (cache) {
+
+            if (k.commitTime < lastCommitTime) {
+
+                // Do not cache samples for an older commit point.
+                return;
+
+            }
+
+            if (lastCommitTime < k.commitTime) {
+
+                if (lastCommitTime != -1L) {
+
+                    // Drop the samples for older commit points.
+                    final Iterator<Entry> itr = cache.values().iterator();
+
+                    while (itr.hasNext()) {
+
+                        if (itr.next().commitTime < k.commitTime) {
+
+                            itr.remove();
+
+                            invalidations.increment();
+
+                        }
+
+                    }
+
+                }
+
+                lastCommitTime = k.commitTime;
+
+            }
+
+            cache.put(k, e);
+
+        }
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("capacity", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(capacity);
+            }
+        });
+
+        root.addCounter("size", new Instrument<Integer>() {
+            @Override
+            public void sample() {
+                setValue(size());
+            }
+        });
+
+        root.addCounter("hits", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        root.addCounter("misses", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        root.addCounter("invalidations", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(invalidations.get());
+            }
+        });
+
+        root.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(evictions.get());
+            }
+        });
+
+        return root;
+
+    }
+
+}
@@ -151,6 +151,33 @@ public class Vertex implements Serializable {
 
         }
 
+        /*
+         * Reuse a sample of the same vertex from another query against the
+         * same commit point (if the cache is enabled).
+         */
+        final SampleCache cache = queryEngine.getSampleCache();
+
+        final Object key = cache == null ? null : cache.getVertexKey(
+                queryEngine, pred, sampleType);
+
+        if (key != null) {
+
+            final VertexSample tmp = cache.getVertexSample(key, limit);
+
+            if (tmp != null) {
+
+                sample = tmp;
+
+                if (log.isTraceEnabled())
+                    log.trace("Cached: id=" + pred.getId() + ", sample="
+                            + sample);
+
+                return;
+
+            }
+
+        }
+
         /*
          * FIXME RTO: AST2BOpJoins is responsible for constructing the
          * appropriate access path. Under some cases it can emit a DataSetJoin
@@ -246,6 +273,9 @@ public class Vertex implements Serializable {
 
         }
 
+        if (key != null)
+            cache.putVertexSample(key, sample);
+
         if (log.isTraceEnabled())
             log.trace("Sampled: id=" + pred.getId() + ", sample=" + sample);
 
@@ -39,6 +39,7 @@ import com.bigdata.bop.HashMapAnnotations;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.solutions.JVMDistinctBindingSetsOp;
 import com.bigdata.rdf.sparql.ast.ArbitraryLengthPathNode.Annotations;
 
@@ -146,6 +147,20 @@ public class ArbitraryLengthPathOp extends PipelineOp {
          */
         String DROP_VARS = Annotations.class.getName() + ".dropVars";
         
+        /**
+         * The predicate for a simple predicate path (optional). When the
+         * {@link #SUBQUERY} is a single access path for a triple pattern with a
+         * constant predicate between the two transitivity variables, such as
+         * <code>?x rdfs:subClassOf* ?y</code>, and the input side of the path
+         * is bound, the closure is computed by reading that access path for
+         * each frontier vertex rather than by re-running the subquery in
+         * rounds. This annotation is ignored when an {@link #EDGE_VAR} is
+         * given.
+         * 
+         * @see PredicatePathClosure
+         */
+        String PREDICATE = Annotations.class.getName() + ".predicate";
+        
     }
 
     /**
@@ -192,6 +207,18 @@ public class ArbitraryLengthPathOp extends PipelineOp {
         
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @return A {@link ArbitraryLengthPathStats}.
+     */
+    @Override
+    public BOpStats newStats() {
+
+        return new ArbitraryLengthPathStats();
+
+    }
+
     @Override
     public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
 
@@ -0,0 +1,101 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.paths;
+
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.counters.CAT;
+
+/**
+ * Extended statistics for the {@link ArbitraryLengthPathOp}. These are only
+ * incremented when the closure is computed by a {@link PredicatePathClosure}.
+ */
+public class ArbitraryLengthPathStats extends BOpStats {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The #of rounds of frontier expansion (summed over all seeds).
+     */
+    public final CAT rounds = new CAT();
+
+    /**
+     * The #of frontier vertices which were expanded (this is the #of access
+     * paths which were read).
+     */
+    public final CAT frontierCount = new CAT();
+
+    /**
+     * The #of edges read from the access paths.
+     */
+    public final CAT edgeCount = new CAT();
+
+    /**
+     * The #of distinct vertices which were visited (summed over all seeds).
+     */
+    public final CAT visitedCount = new CAT();
+
+    /**
+     * The #of reachability tests which were answered by a bidirectional
+     * search because both ends of the path were bound.
+     */
+    public final CAT bidirectionalCount = new CAT();
+
+    @Override
+    public void add(final BOpStats o) {
+
+        super.add(o);
+
+        if (o instanceof ArbitraryLengthPathStats) {
+
+            final ArbitraryLengthPathStats t = (ArbitraryLengthPathStats) o;
+
+            rounds.add(t.rounds.get());
+
+            frontierCount.add(t.frontierCount.get());
+
+            edgeCount.add(t.edgeCount.get());
+
+            visitedCount.add(t.visitedCount.get());
+
+            bidirectionalCount.add(t.bidirectionalCount.get());
+
+        }
+
+    }
+
+    @Override
+    protected void toString(final StringBuilder sb) {
+        sb.append(",rounds=" + rounds.get());
+        sb.append(",frontierCount=" + frontierCount.get());
+        sb.append(",edgeCount=" + edgeCount.get());
+        sb.append(",visitedCount=" + visitedCount.get());
+        sb.append(",bidirectionalCount=" + bidirectionalCount.get());
+    }
+
+}
@@ -29,6 +29,7 @@ package com.bigdata.bop.paths;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -41,8 +42,10 @@ import org.apache.log4j.Logger;
 
 import com.bigdata.bop.BOpContext;
 import com.bigdata.bop.ConcurrentHashMapAnnotations;
+import com.bigdata.bop.Constant;
 import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IPredicate;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.IVariableOrConstant;
 import com.bigdata.bop.PipelineOp;
@@ -92,6 +95,11 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * solutions from the hash index; and (c) hash joining the solutions from the
  * sub-section of the query plan back against the hash index to reunite the
  * solutions from the subquery with those in the parent context.
+ * <p>
+ * When the path is a simple predicate path (see {@link Annotations#PREDICATE})
+ * and the input side of the path is bound, the subquery is not used. Instead,
+ * a {@link PredicatePathClosure} expands the frontier directly against the
+ * access path for that predicate.
  * 
  * @author <a href="mailto:mpersonick@users.sourceforge.net">Mike Personick</a>
  * @author <a href="mailto:ms@metaphacts.com">Michael Schmidt</a>
@@ -126,6 +134,14 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
     private final IVariable<?> edgeVar;
     private final List<IVariable<?>> dropVars;
 
+    /**
+     * The closure for a simple predicate path in forward and reverse gear
+     * (optional).
+     * 
+     * @see Annotations#PREDICATE
+     */
+    private final PredicatePathClosure forwardClosure, reverseClosure;
+
     public ArbitraryLengthPathTask(
             final ArbitraryLengthPathOp controllerOp,
             final BOpContext<IBindingSet> context) {
@@ -242,6 +258,27 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
             log.debug("vars to drop: " + dropVars);
         }
 
+        @SuppressWarnings("rawtypes")
+        final IPredicate pred = (IPredicate) controllerOp
+                .getProperty(Annotations.PREDICATE);
+
+        if (pred != null && edgeVar == null) {
+
+            final ArbitraryLengthPathStats stats = context.getStats() instanceof ArbitraryLengthPathStats ? (ArbitraryLengthPathStats) context
+                    .getStats() : null;
+
+            forwardClosure = new PredicatePathClosure(context, pred,
+                    tVarLeft, tVarRight, lowerBound, upperBound, stats);
+
+            reverseClosure = new PredicatePathClosure(context, pred,
+                    tVarRight, tVarLeft, lowerBound, upperBound, stats);
+
+        } else {
+
+            forwardClosure = reverseClosure = null;
+
+        }
+
     }
   
     @Override
@@ -316,6 +353,18 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
             log.debug("gearing: " + gearing);
         }
 
+        final PredicatePathClosure closure = gearing == forwardGearing ? forwardClosure
+                : reverseClosure;
+
+        if (closure != null && isSeeded(gearing, chunkIn)) {
+
+            // Simple predicate path with a bound input side.
+            processChunk(chunkIn, gearing, closure);
+
+            return;
+
+        }
+
         for (IBindingSet parentSolutionIn : chunkIn) {
 
             if (log.isDebugEnabled())
@@ -388,6 +437,113 @@ public class ArbitraryLengthPathTask implements Callable<Void> {
 
     } // processChunk method
 
+    /**
+     * Return <code>true</code> iff the input side of the path is bound for
+     * each of the solutions.
+     */
+    private boolean isSeeded(final Gearing gearing, final IBindingSet[] chunkIn) {
+
+        if (gearing.inConst != null)
+            return true;
+
+        for (IBindingSet bs : chunkIn) {
+
+            if (!bs.isBound(gearing.inVar))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Compute the solutions for a chunk using the closure of a simple
+     * predicate path. When the output side of the path is also bound, this is
+     * a reachability test. Otherwise one solution is emitted for each vertex
+     * reachable from the seed. The closure is computed once for each distinct
+     * seed in the chunk.
+     * 
+     * @param chunkIn
+     *            The solutions (the input side of the path must be bound).
+     * @param gearing
+     *            The gearing.
+     * @param closure
+     *            The closure for that gearing.
+     */
+    @SuppressWarnings("rawtypes")
+    private void processChunk(final IBindingSet[] chunkIn,
+            final Gearing gearing, final PredicatePathClosure closure)
+            throws InterruptedException {
+
+        final Map<IV, IV[]> closures = new HashMap<IV, IV[]>();
+
+        for (IBindingSet parentSolutionIn : chunkIn) {
+
+            final IV seed = (IV) (gearing.inConst != null ? gearing.inConst
+                    : parentSolutionIn.get(gearing.inVar)).get();
+
+            final IConstant<?> targetConst = gearing.outConst != null ? gearing.outConst
+                    : parentSolutionIn.get(gearing.outVar);
+
+            if (targetConst != null) {
+
+                final IV target = (IV) targetConst.get();
+
+                if (closure.isReachable(seed, target)) {
+
+                    emit(parentSolutionIn, gearing, seed, target);
+
+                }
+
+                continue;
+
+            }
+
+            IV[] a = closures.get(seed);
+
+            if (a == null) {
+
+                a = closure.closure(seed);
+
+                closures.put(seed, a);
+
+            }
+
+            if (lowerBound == 0) {
+
+                // The zero length path from the seed to itself.
+                emit(parentSolutionIn, gearing, seed, seed);
+
+            }
+
+            for (IV v : a) {
+
+                emit(parentSolutionIn, gearing, seed, v);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Emit a solution connecting the seed to a vertex reachable from the seed.
+     */
+    @SuppressWarnings("rawtypes")
+    private void emit(final IBindingSet parentSolutionIn,
+            final Gearing gearing, final IV seed, final IV v) {
+
+        final IBindingSet bs = parentSolutionIn.clone();
+
+        bs.set(gearing.tVarIn, new Constant<IV>(seed));
+
+        bs.set(gearing.tVarOut, new Constant<IV>(v));
+
+        emitSolutions(bs, gearing);
+
+    }
+
 
     /**
      * Performs up to upperBound iterations (or stops if a fixed point has
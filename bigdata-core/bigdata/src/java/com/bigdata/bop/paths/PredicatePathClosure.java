@@ -0,0 +1,460 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.paths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.Constant;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IConstant;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.IVariable;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.relation.IRelation;
+import com.bigdata.relation.accesspath.IAccessPath;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+/**
+ * Computes the closure of a simple predicate path (<code>p+</code>,
+ * <code>p*</code>, <code>p?</code>) directly against the access paths for
+ * that predicate. This is used by the {@link ArbitraryLengthPathTask} instead
+ * of re-running the subquery in rounds when the path is a single triple
+ * pattern with a constant predicate between the two transitivity variables.
+ * <p>
+ * Each round expands the frontier by reading one access path per frontier
+ * vertex. The frontier and the visited set are kept as sorted arrays of
+ * {@link IV}s, so the access paths are read in index order, the new frontier
+ * is computed by a merge against the visited set, and no binding sets are
+ * allocated until the solutions are emitted. When both ends of the path are
+ * bound, {@link #isReachable(IV, IV)} searches from both ends, expanding the
+ * smaller frontier in each round.
+ * <p>
+ * This class is not thread-safe. The {@link ArbitraryLengthPathTask} creates
+ * one instance per task.
+ * 
+ * @see ArbitraryLengthPathOp.Annotations#PREDICATE
+ */
+class PredicatePathClosure {
+
+    private static final Logger log = Logger
+            .getLogger(PredicatePathClosure.class);
+
+    private static final IV[] EMPTY = new IV[0];
+
+    @SuppressWarnings("rawtypes")
+    private final IRelation relation;
+
+    @SuppressWarnings("rawtypes")
+    private final IPredicate pred;
+
+    private final BOpContext<IBindingSet> context;
+
+    /**
+     * The variables of the predicate for the input and output sides of the
+     * path.
+     */
+    private final IVariable<?> inVar, outVar;
+
+    /**
+     * The index of {@link #inVar} and {@link #outVar} in the predicate.
+     */
+    private final int inIndex, outIndex;
+
+    /**
+     * The maximum #of edges in a path.
+     */
+    private final long upperBound;
+
+    /**
+     * When <code>true</code>, a vertex is connected to itself by the zero
+     * length path.
+     */
+    private final boolean zeroLength;
+
+    /**
+     * The statistics (optional).
+     */
+    private final ArbitraryLengthPathStats stats;
+
+    /**
+     * @param context
+     *            The evaluation context.
+     * @param pred
+     *            The predicate for the path.
+     * @param inVar
+     *            The variable in the predicate for the input side of the path.
+     * @param outVar
+     *            The variable in the predicate for the output side of the
+     *            path.
+     * @param lowerBound
+     *            The minimum #of edges in a path (ZERO or ONE).
+     * @param upperBound
+     *            The maximum #of edges in a path.
+     * @param stats
+     *            The statistics (optional).
+     */
+    @SuppressWarnings("rawtypes")
+    PredicatePathClosure(final BOpContext<IBindingSet> context,
+            final IPredicate pred, final IVariable<?> inVar,
+            final IVariable<?> outVar, final long lowerBound,
+            final long upperBound, final ArbitraryLengthPathStats stats) {
+
+        if (context == null || pred == null || inVar == null
+                || outVar == null)
+            throw new IllegalArgumentException();
+
+        if (lowerBound < 0 || lowerBound > 1 || upperBound < lowerBound)
+            throw new IllegalArgumentException();
+
+        this.context = context;
+        this.pred = pred;
+        this.inVar = inVar;
+        this.outVar = outVar;
+        this.inIndex = indexOf(pred, inVar);
+        this.outIndex = indexOf(pred, outVar);
+        this.zeroLength = lowerBound == 0;
+        this.upperBound = upperBound;
+        this.stats = stats;
+
+        @SuppressWarnings("unchecked")
+        final IRelation tmp = context.getRelation(pred);
+
+        this.relation = tmp;
+
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static int indexOf(final IPredicate pred, final IVariable<?> var) {
+
+        for (int i = 0; i < pred.arity(); i++) {
+
+            if (var.equals(pred.get(i)))
+                return i;
+
+        }
+
+        throw new IllegalArgumentException("Not found: var=" + var
+                + ", pred=" + pred);
+
+    }
+
+    /**
+     * Return the vertices reachable from the seed by a path of at least ONE
+     * (1) and at most <i>upperBound</i> edges. The seed itself is reported iff
+     * it lies on a cycle. The zero length path is NOT reported.
+     * 
+     * @param seed
+     *            The input side of the path.
+     * 
+     * @return The reachable vertices in {@link IV} order.
+     */
+    IV[] closure(final IV seed) throws InterruptedException {
+
+        IV[] visited = EMPTY;
+
+        IV[] frontier = new IV[] { seed };
+
+        long round = 0;
+
+        while (round < upperBound && frontier.length > 0) {
+
+            final IV[] fresh = difference(expand(frontier, true/* forward */),
+                    visited);
+
+            visited = union(visited, fresh);
+
+            if (log.isDebugEnabled())
+                log.debug("round=" + round + ", frontier=" + frontier.length
+                        + ", new=" + fresh.length + ", visited="
+                        + visited.length);
+
+            frontier = fresh;
+
+            round++;
+
+        }
+
+        if (stats != null) {
+            stats.rounds.add(round);
+            stats.visitedCount.add(visited.length);
+        }
+
+        return visited;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the target is reachable from the seed by a
+     * path of at least <i>lowerBound</i> and at most <i>upperBound</i> edges.
+     * The search alternates between the two ends of the path, always expanding
+     * the smaller frontier, and stops as soon as the two searches meet.
+     * 
+     * @param seed
+     *            The input side of the path.
+     * @param target
+     *            The output side of the path.
+     */
+    boolean isReachable(final IV seed, final IV target)
+            throws InterruptedException {
+
+        if (stats != null)
+            stats.bidirectionalCount.increment();
+
+        if (zeroLength && seed.equals(target))
+            return true;
+
+        // Reached from the seed by at least one edge.
+        IV[] fvisited = EMPTY, ffrontier = new IV[] { seed };
+
+        // Reach the target by at least one edge.
+        IV[] bvisited = EMPTY, bfrontier = new IV[] { target };
+
+        long round = 0;
+
+        boolean found = false;
+
+        while (!found && round < upperBound && ffrontier.length > 0
+                && bfrontier.length > 0) {
+
+            if (ffrontier.length <= bfrontier.length) {
+
+                final IV[] fresh = difference(expand(ffrontier, true), fvisited);
+
+                found = Arrays.binarySearch(fresh, target) >= 0
+                        || intersects(fresh, bvisited);
+
+                fvisited = union(fvisited, fresh);
+
+                ffrontier = fresh;
+
+            } else {
+
+                final IV[] fresh = difference(expand(bfrontier, false),
+                        bvisited);
+
+                found = Arrays.binarySearch(fresh, seed) >= 0
+                        || intersects(fresh, fvisited);
+
+                bvisited = union(bvisited, fresh);
+
+                bfrontier = fresh;
+
+            }
+
+            round++;
+
+        }
+
+        if (log.isDebugEnabled())
+            log.debug("seed=" + seed + ", target=" + target + ", found="
+                    + found + ", rounds=" + round + ", visited="
+                    + (fvisited.length + bvisited.length));
+
+        if (stats != null) {
+            stats.rounds.add(round);
+            stats.visitedCount.add(fvisited.length + bvisited.length);
+        }
+
+        return found;
+
+    }
+
+    /**
+     * Return the distinct vertices adjacent to the frontier.
+     * 
+     * @param frontier
+     *            The frontier in {@link IV} order.
+     * @param forward
+     *            When <code>true</code> the edges are followed from the input
+     *            side to the output side of the path. Otherwise they are
+     *            followed backwards.
+     * 
+     * @return The adjacent vertices in {@link IV} order.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private IV[] expand(final IV[] frontier, final boolean forward)
+            throws InterruptedException {
+
+        final IVariable<?> boundVar = forward ? inVar : outVar;
+
+        final int index = forward ? outIndex : inIndex;
+
+        final List<IV> reached = new ArrayList<IV>();
+
+        long nedges = 0;
+
+        for (IV v : frontier) {
+
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            final IAccessPath ap = context.getAccessPath(relation,
+                    pred.asBound(boundVar, new Constant<IV>(v)));
+
+            final IChunkedOrderedIterator itr = ap.iterator();
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IConstant<?> c = pred.get(itr.next(), index);
+
+                    reached.add((IV) c.get());
+
+                    nedges++;
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        }
+
+        if (stats != null) {
+            stats.frontierCount.add(frontier.length);
+            stats.edgeCount.add(nedges);
+        }
+
+        final IV[] a = reached.toArray(new IV[reached.size()]);
+
+        Arrays.sort(a);
+
+        // Remove duplicates.
+        int n = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (n == 0 || !a[i].equals(a[n - 1]))
+                a[n++] = a[i];
+        }
+
+        return n == a.length ? a : Arrays.copyOf(a, n);
+
+    }
+
+    /**
+     * Return the elements of <i>a</i> which are not in <i>b</i>. Both arrays
+     * must be ordered and distinct.
+     */
+    @SuppressWarnings("unchecked")
+    static IV[] difference(final IV[] a, final IV[] b) {
+
+        final IV[] c = new IV[a.length];
+
+        int i = 0, j = 0, n = 0;
+
+        while (i < a.length) {
+
+            final int ret = j < b.length ? a[i].compareTo(b[j]) : -1;
+
+            if (ret < 0) {
+                c[n++] = a[i++];
+            } else if (ret > 0) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+
+        }
+
+        return n == c.length ? c : Arrays.copyOf(c, n);
+
+    }
+
+    /**
+     * Return the ordered union of two ordered and distinct arrays.
+     */
+    @SuppressWarnings("unchecked")
+    static IV[] union(final IV[] a, final IV[] b) {
+
+        if (b.length == 0)
+            return a;
+
+        if (a.length == 0)
+            return b;
+
+        final IV[] c = new IV[a.length + b.length];
+
+        int i = 0, j = 0, n = 0;
+
+        while (i < a.length || j < b.length) {
+
+            final int ret = i == a.length ? 1 : j == b.length ? -1 : a[i]
+                    .compareTo(b[j]);
+
+            if (ret < 0) {
+                c[n++] = a[i++];
+            } else if (ret > 0) {
+                c[n++] = b[j++];
+            } else {
+                c[n++] = a[i++];
+                j++;
+            }
+
+        }
+
+        return n == c.length ? c : Arrays.copyOf(c, n);
+
+    }
+
+    /**
+     * Return <code>true</code> iff two ordered arrays have an element in
+     * common.
+     */
+    @SuppressWarnings("unchecked")
+    static boolean intersects(final IV[] a, final IV[] b) {
+
+        int i = 0, j = 0;
+
+        while (i < a.length && j < b.length) {
+
+            final int ret = a[i].compareTo(b[j]);
+
+            if (ret < 0) {
+                i++;
+            } else if (ret > 0) {
+                j++;
+            } else {
+                return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+}
@@ -0,0 +1,749 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.bop.engine.IRunningQuery;
+import com.bigdata.rawstore.IPSOutputStream;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.rdf.internal.encoder.IVSolutionSetEncoder;
+import com.bigdata.rdf.internal.encoder.SolutionSetStreamDecoder;
+import com.bigdata.rdf.internal.encoder.SolutionSetStreamEncoder;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+import com.bigdata.rwstore.sector.IMemoryManager;
+import com.bigdata.rwstore.sector.MemStore;
+import com.bigdata.striterator.Chunkerator;
+
+import cutthecrap.utils.striterators.ArrayIterator;
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * An external memory merge sort for binding sets. Like the
+ * {@link MemorySortOp}, the operator is pipelined and evaluates the value
+ * expressions on which the ordering will be imposed as solutions arrive.
+ * However, rather than buffering all solutions on the JVM heap, the solutions
+ * are buffered in bounded runs of at most {@link Annotations#RUN_CAPACITY}
+ * solutions. Each time a run fills up it is sorted and written onto a
+ * {@link MemStore} allocation context of the query's {@link IMemoryManager}
+ * (i.e., onto the native heap) using the {@link IVSolutionSetEncoder}. When the
+ * last chunk of source solutions has been observed, the spilled runs and the
+ * final (partial) run are combined by a k-way merge and written onto the sink.
+ * <p>
+ * If the solutions never exceed a single run then nothing is spilled and the
+ * operator behaves exactly like the {@link MemorySortOp}. This makes it safe to
+ * plan this operator whenever the result may be large, since a small result
+ * only pays for the (cheap) run buffer.
+ * <p>
+ * The merge is stable: solutions which compare as equal are emitted in the
+ * order in which they were accepted by the operator.
+ * <p>
+ * The same restrictions apply as for the {@link MemorySortOp}. The value
+ * expressions must be variables, constants, or wrapped by an {@link IBind}
+ * onto an anonymous variable, and non-inline IVs must be materialized such
+ * that the value comparator can order them. The cached RDF Values are written
+ * into the runs by the {@link IVSolutionSetEncoder} so the merge sees the same
+ * materialized values as the in-memory sort.
+ *
+ * @see MemorySortOp
+ * @see SolutionSetStreamEncoder
+ */
+public class ExternalSortOp extends SortOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(ExternalSortOp.class);
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends SortOp.Annotations {
+
+        /**
+         * The maximum #of solutions which will be buffered on the JVM heap
+         * before they are sorted and spilled as a run onto the native heap
+         * (default {@value #DEFAULT_RUN_CAPACITY}).
+         */
+        String RUN_CAPACITY = ExternalSortOp.class.getName() + ".runCapacity";
+
+        int DEFAULT_RUN_CAPACITY = 100000;
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public ExternalSortOp(final ExternalSortOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public ExternalSortOp(final BOp[] args,
+            final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // ORDER_BY must preserve order.
+        if (isReorderSolutions())
+            throw new UnsupportedOperationException(
+                    Annotations.REORDER_SOLUTIONS + "=" + isReorderSolutions());
+
+        // The run buffer is not thread-safe.
+        assertMaxParallelOne();
+
+        if (getRunCapacity() <= 0)
+            throw new IllegalArgumentException(Annotations.RUN_CAPACITY + "="
+                    + getRunCapacity());
+
+        // required parameter.
+        getValueComparator();
+
+        // validate required parameter.
+        for (ISortOrder<?> s : getSortOrder()) {
+
+            final IValueExpression<?> expr = s.getExpr();
+
+            if (expr instanceof IVariableOrConstant<?>)
+                continue;
+
+            if (expr instanceof IBind<?>)
+                continue;
+
+            throw new IllegalArgumentException(
+                    "Value expression not wrapped by bind: " + expr);
+
+        }
+
+    }
+
+    public ExternalSortOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#RUN_CAPACITY
+     */
+    public int getRunCapacity() {
+
+        return getProperty(Annotations.RUN_CAPACITY,
+                Annotations.DEFAULT_RUN_CAPACITY);
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new SortTask(this, context));
+
+    }
+
+    /**
+     * The state of the sort across invocations of the operator. A reference to
+     * this object is stored on the {@link IQueryAttributes}.
+     */
+    private static class SortState {
+
+        /**
+         * The store onto which the sorted runs are spilled. This is an
+         * allocation context of the query's {@link IMemoryManager}. It is
+         * allocated lazily when the first run is spilled.
+         */
+        private MemStore store;
+
+        /** The address of each spilled run. */
+        private final List<Long> runAddrs = new ArrayList<Long>();
+
+        /** The #of solutions in each spilled run. */
+        private final List<Long> runSizes = new ArrayList<Long>();
+
+        /** The solutions in the current (unsorted) run. */
+        private final ArrayList<IBindingSet> buffer;
+
+        SortState(final int runCapacity) {
+
+            /*
+             * Note: Do not pre-size a large buffer. The common case is a small
+             * ORDER BY which never fills a single run.
+             */
+            buffer = new ArrayList<IBindingSet>(Math.min(runCapacity, 1000));
+
+        }
+
+        void release() {
+
+            buffer.clear();
+
+            runAddrs.clear();
+
+            runSizes.clear();
+
+            if (store != null) {
+
+                store.destroy();
+
+                store = null;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class SortTask implements Callable<Void> {
+
+        private final ExternalSortOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final ISortOrder<?>[] sortOrder;
+
+        private final Comparator<IBindingSet> comparator;
+
+        private final int runCapacity;
+
+        /**
+         * The {@link IQueryAttributes} for the {@link IRunningQuery} off which
+         * we will hang the sort state.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private transient SortState state;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        SortTask(final ExternalSortOp op, final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.sortOrder = op.getSortOrder();
+
+            this.comparator = new BindingSetComparator(sortOrder,
+                    op.getValueComparator());
+
+            this.runCapacity = op.getRunCapacity();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            SortState state = (SortState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new SortState(runCapacity);
+
+                if (attrs.putIfAbsent(key, state) != null)
+                    throw new AssertionError();
+
+            }
+
+            this.state = state;
+
+        }
+
+        void release() {
+
+            if (log.isInfoEnabled())
+                log.info("Releasing state");
+
+            attrs.remove(key);
+
+            state.release();
+
+            state = null;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    doOrderBy(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    release();
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Evaluate the value expressions for each input solution and buffer the
+         * as-bound solutions, spilling a sorted run each time the buffer is
+         * full.
+         *
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(final ICloseableIterator<IBindingSet[]> itr) {
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        // Note: Necessary scope for type error reporting.
+                        IValueExpression<?> expr = null;
+
+                        try {
+
+                            for (ISortOrder<?> s : sortOrder) {
+
+                                /*
+                                 * Evaluate. A BIND() will have side-effect on
+                                 * [bset].
+                                 */
+                                (expr = s.getExpr()).get(bset);
+
+                            }
+
+                        } catch (SparqlTypeErrorException ex) {
+
+                            // log type error, do not drop solution (see trac 765).
+                            TypeErrorLog.handleTypeError(ex, expr, stats);
+
+                        }
+
+                        state.buffer.add(bset);
+
+                        if (state.buffer.size() >= runCapacity) {
+
+                            spillRun();
+
+                        }
+
+                    } // next source solution
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("Buffered " + state.buffer.size()
+                            + " solutions, spilled " + state.runAddrs.size()
+                            + " runs so far");
+
+            } finally {
+
+                itr.close();
+
+            }
+
+        } // acceptSolutions
+
+        /**
+         * Sort the buffered solutions and return them as an array. The buffer
+         * is cleared as a side-effect.
+         */
+        private IBindingSet[] sortBuffer() {
+
+            final IBindingSet[] a = state.buffer
+                    .toArray(new IBindingSet[state.buffer.size()]);
+
+            state.buffer.clear();
+
+            final long begin = System.currentTimeMillis();
+
+            Arrays.sort(a, comparator);
+
+            final long elapsed = System.currentTimeMillis() - begin;
+
+            if (log.isDebugEnabled())
+                log.debug("Sorted " + a.length + " solutions in " + elapsed
+                        + "ms.");
+
+            return a;
+
+        }
+
+        /**
+         * Sort the buffered solutions and write them onto the backing store as
+         * a new run.
+         */
+        private void spillRun() {
+
+            final IBindingSet[] a = sortBuffer();
+
+            if (state.store == null) {
+
+                state.store = new MemStore(context.getMemoryManager(
+                        null/* queryId */).createAllocationContext());
+
+            }
+
+            final SolutionSetStreamEncoder encoder = new SolutionSetStreamEncoder(
+                    key);
+
+            final IPSOutputStream out = state.store.getOutputStream();
+
+            try {
+
+                final DataOutputStream os = new DataOutputStream(out);
+
+                // Encode the sorted run onto the stream.
+                encoder.encode(os, new Chunkerator<IBindingSet>(
+                        new ArrayIterator<IBindingSet>(a), op
+                                .getChunkCapacity(), IBindingSet.class));
+
+                os.flush();
+
+                out.flush();
+
+                state.runAddrs.add(out.getAddr());
+
+                state.runSizes.add(encoder.getSolutionCount());
+
+            } catch (IOException e) {
+
+                throw new RuntimeException(e);
+
+            } finally {
+
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // Unexpected exception.
+                    log.error(e, e);
+                }
+
+            }
+
+            if (log.isInfoEnabled())
+                log.info("Spilled run#" + (state.runAddrs.size() - 1)
+                        + " with " + a.length + " solutions");
+
+        }
+
+        /**
+         * Merge the sorted runs and write the ordered solutions onto the sink.
+         *
+         * @param sink
+         *            Where to write the results.
+         */
+        private void doOrderBy(final IBlockingBuffer<IBindingSet[]> sink) {
+
+            final UnsyncLocalOutputBuffer<IBindingSet> out = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            if (state.runAddrs.isEmpty()) {
+
+                /*
+                 * Nothing was spilled. Sort on the JVM heap.
+                 */
+
+                for (IBindingSet bset : sortBuffer()) {
+
+                    out.add(dropComputedVars(bset));
+
+                }
+
+            } else {
+
+                mergeRuns(out);
+
+            }
+
+            // write output and flush.
+            out.flush();
+            sink.flush();
+
+        }
+
+        /**
+         * k-way merge of the spilled runs and the final in-memory run.
+         */
+        private void mergeRuns(final UnsyncLocalOutputBuffer<IBindingSet> out) {
+
+            final int nspilled = state.runAddrs.size();
+
+            if (log.isInfoEnabled())
+                log.info("Merging " + nspilled + " spilled runs and "
+                        + state.buffer.size() + " buffered solutions.");
+
+            final long begin = System.currentTimeMillis();
+
+            final PriorityQueue<RunCursor> heap = new PriorityQueue<RunCursor>(
+                    nspilled + 1);
+
+            try {
+
+                // Note: run order is the order in which solutions were accepted.
+                for (int i = 0; i < nspilled; i++) {
+
+                    final DataInputStream in = new DataInputStream(state.store
+                            .getInputStream(state.runAddrs.get(i)));
+
+                    final RunCursor r = new RunCursor(i,
+                            new SolutionSetStreamDecoder(key, in,
+                                    state.runSizes.get(i)), comparator);
+
+                    if (r.advance())
+                        heap.add(r);
+
+                }
+
+                if (!state.buffer.isEmpty()) {
+
+                    final RunCursor r = new RunCursor(nspilled,
+                            new Chunkerator<IBindingSet>(
+                                    new ArrayIterator<IBindingSet>(
+                                            sortBuffer()), op
+                                            .getChunkCapacity(),
+                                    IBindingSet.class), comparator);
+
+                    if (r.advance())
+                        heap.add(r);
+
+                }
+
+                long n = 0;
+
+                RunCursor r;
+
+                while ((r = heap.poll()) != null) {
+
+                    out.add(dropComputedVars(r.current));
+
+                    n++;
+
+                    if (r.advance()) {
+
+                        heap.add(r);
+
+                    }
+
+                }
+
+                if (log.isInfoEnabled())
+                    log.info("Merged " + n + " solutions in "
+                            + (System.currentTimeMillis() - begin) + "ms.");
+
+            } finally {
+
+                for (RunCursor t : heap) {
+
+                    t.close();
+
+                }
+
+            }
+
+        }
+
+        /**
+         * Drop variables for computed value expressions.
+         */
+        private IBindingSet dropComputedVars(final IBindingSet bset) {
+
+            for (ISortOrder<?> s : sortOrder) {
+
+                final IValueExpression<?> expr = s.getExpr();
+
+                if (expr instanceof IBind) {
+
+                    bset.clear(((IBind<?>) expr).getVar());
+
+                }
+
+            }
+
+            return bset;
+
+        }
+
+    } // SortTask
+
+    /**
+     * A cursor over a sorted run. Cursors are ordered by their current solution
+     * and then by the run index, which makes the merge stable.
+     */
+    private static class RunCursor implements Comparable<RunCursor> {
+
+        private final int index;
+
+        private final ICloseableIterator<IBindingSet[]> src;
+
+        private final Comparator<IBindingSet> comparator;
+
+        private Iterator<IBindingSet> chunk = null;
+
+        /** The current solution (valid after {@link #advance()}). */
+        private IBindingSet current = null;
+
+        RunCursor(final int index, final ICloseableIterator<IBindingSet[]> src,
+                final Comparator<IBindingSet> comparator) {
+
+            this.index = index;
+
+            this.src = src;
+
+            this.comparator = comparator;
+
+        }
+
+        /**
+         * Advance to the next solution in the run.
+         *
+         * @return <code>false</code> iff the run is exhausted, in which case
+         *         the cursor has been closed.
+         */
+        boolean advance() {
+
+            while (chunk == null || !chunk.hasNext()) {
+
+                if (!src.hasNext()) {
+
+                    current = null;
+
+                    close();
+
+                    return false;
+
+                }
+
+                chunk = Arrays.asList(src.next()).iterator();
+
+            }
+
+            current = chunk.next();
+
+            return true;
+
+        }
+
+        void close() {
+
+            src.close();
+
+        }
+
+        @Override
+        public int compareTo(final RunCursor o) {
+
+            final int ret = comparator.compare(current, o.current);
+
+            if (ret != 0)
+                return ret;
+
+            return index < o.index ? -1 : index > o.index ? 1 : 0;
+
+        }
+
+    }
+
+} // ExternalSortOp
@@ -61,6 +61,9 @@ import cutthecrap.utils.striterators.ICloseableIterator;
  * solutions would probably be written as serialized binding sets on the memory
  * manager such that each solution has its own int32 address. That address can
  * then be paired with the as-bound key to be sorted on the JVM heap.
+ * <p>
+ * See {@link ExternalSortOp}, which spills sorted runs of serialized solutions
+ * onto the memory manager and then merges those runs.
  * 
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id: DistinctElementFilter.java 3466 2010-08-27 14:28:04Z
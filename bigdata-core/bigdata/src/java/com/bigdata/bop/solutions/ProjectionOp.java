@@ -37,6 +37,7 @@ import com.bigdata.bop.IBindingSet;
 import com.bigdata.bop.IVariable;
 import com.bigdata.bop.NV;
 import com.bigdata.bop.PipelineOp;
+import com.bigdata.bop.bindingSet.ColumnarSolutionChunk;
 import com.bigdata.bop.engine.BOpStats;
 import com.bigdata.bop.join.JoinAnnotations;
 import com.bigdata.relation.accesspath.IBlockingBuffer;
@@ -114,12 +115,20 @@ public class ProjectionOp extends PipelineOp {
          */
         private final IVariable<?>[] vars;
 
+        /**
+         * When <code>true</code> the projected solutions are written as
+         * columnar chunks.
+         */
+        private final boolean columnar;
+
         ChunkTask(final ProjectionOp op, final BOpContext<IBindingSet> context) {
 
             this.context = context;
 
             this.vars = op.getVariables();
 
+            this.columnar = op.isColumnar();
+
             if (vars == null)
                 throw new IllegalArgumentException();
 
@@ -148,6 +157,19 @@ public class ProjectionOp extends PipelineOp {
                     stats.chunksIn.increment();
                     stats.unitsIn.add(a.length);
 
+                    if (columnar || ColumnarSolutionChunk.getChunk(a) != null) {
+
+                        /*
+                         * Vectorized projection. This is a column selection
+                         * when the source is already a columnar chunk.
+                         */
+                        sink.add(ColumnarSolutionChunk.valueOf(a, vars)
+                                .toBindingSets());
+
+                        continue;
+
+                    }
+
                     for (int i = 0; i < a.length; i++) {
 
                         a[i] = a[i].copy(vars);
@@ -0,0 +1,609 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.bop.solutions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.BOpContext;
+import com.bigdata.bop.IBind;
+import com.bigdata.bop.IBindingSet;
+import com.bigdata.bop.IQueryAttributes;
+import com.bigdata.bop.IValueExpression;
+import com.bigdata.bop.IVariableOrConstant;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.engine.BOpStats;
+import com.bigdata.rdf.error.SparqlTypeErrorException;
+import com.bigdata.relation.accesspath.IBlockingBuffer;
+import com.bigdata.relation.accesspath.UnsyncLocalOutputBuffer;
+
+import cutthecrap.utils.striterators.ICloseableIterator;
+
+/**
+ * A pipelined top-K sort for binding sets. This operator is used for
+ * <code>ORDER BY ... LIMIT</code> when <code>OFFSET + LIMIT</code> is small.
+ * Rather than buffering every solution and sorting them all (as the
+ * {@link MemorySortOp} does), it retains only the best {@link Annotations#LIMIT}
+ * solutions seen so far in a bounded priority queue. This is O(n log k) time
+ * and O(k) space rather than O(n log n) time and O(n) space.
+ * <p>
+ * Each evaluation task first selects the best solutions from its own source
+ * chunks into a task local bounded queue, pruning candidates against the worst
+ * solution already retained by the operator. The task local queue is then
+ * merged into the shared queue for the operator. Solutions which are pruned are
+ * dropped immediately, so they are never buffered or materialized downstream.
+ * When the last chunk of source solutions has been observed, the retained
+ * solutions are written onto the sink in sort order.
+ * <p>
+ * Solutions which compare as equal are retained in the order in which they
+ * were accepted, which gives the same result as a {@link MemorySortOp}
+ * followed by a {@link SliceOp}.
+ * <p>
+ * Note: This operator does not impose the OFFSET or the LIMIT itself. The
+ * query plan should still include a {@link SliceOp}, which will skip the OFFSET
+ * and halt the query once the LIMIT is satisfied. The {@link Annotations#LIMIT}
+ * for this operator must be at least <code>OFFSET + LIMIT</code>.
+ * <p>
+ * The same restrictions on the value expressions apply as for the
+ * {@link MemorySortOp}.
+ *
+ * @see MemorySortOp
+ * @see SliceOp
+ */
+public class TopKSortOp extends SortOp {
+
+    private static final transient Logger log = Logger
+            .getLogger(TopKSortOp.class);
+
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    public interface Annotations extends SortOp.Annotations {
+
+        /**
+         * The maximum #of solutions which will be retained and written out by
+         * the operator (required). This must be a positive integer.
+         */
+        String LIMIT = TopKSortOp.class.getName() + ".limit";
+
+    }
+
+    /**
+     * Constructor required for {@link com.bigdata.bop.BOpUtility#deepCopy(FilterNode)}.
+     */
+    public TopKSortOp(final TopKSortOp op) {
+        super(op);
+    }
+
+    /**
+     * Required shallow copy constructor.
+     */
+    public TopKSortOp(final BOp[] args, final Map<String, Object> annotations) {
+
+        super(args, annotations);
+
+        switch (getEvaluationContext()) {
+        case CONTROLLER:
+            break;
+        default:
+            throw new UnsupportedOperationException(
+                    Annotations.EVALUATION_CONTEXT + "="
+                            + getEvaluationContext());
+        }
+
+        if (!isLastPassRequested()) {
+            throw new UnsupportedOperationException(Annotations.LAST_PASS
+                    + "=" + isLastPassRequested());
+        }
+
+        // ORDER_BY must preserve order.
+        if (isReorderSolutions())
+            throw new UnsupportedOperationException(
+                    Annotations.REORDER_SOLUTIONS + "=" + isReorderSolutions());
+
+        /*
+         * Note: The operator MUST be single threaded in order to receive the
+         * isLastInvocation notice.
+         */
+        assertMaxParallelOne();
+
+        if (getLimit() <= 0)
+            throw new IllegalArgumentException(Annotations.LIMIT + "="
+                    + getLimit());
+
+        // required parameter.
+        getValueComparator();
+
+        // validate required parameter.
+        for (ISortOrder<?> s : getSortOrder()) {
+
+            final IValueExpression<?> expr = s.getExpr();
+
+            if (expr instanceof IVariableOrConstant<?>)
+                continue;
+
+            if (expr instanceof IBind<?>)
+                continue;
+
+            throw new IllegalArgumentException(
+                    "Value expression not wrapped by bind: " + expr);
+
+        }
+
+    }
+
+    public TopKSortOp(final BOp[] args, final NV... annotations) {
+
+        this(args, NV.asMap(annotations));
+
+    }
+
+    /**
+     * @see Annotations#LIMIT
+     */
+    public int getLimit() {
+
+        return ((Number) getRequiredProperty(Annotations.LIMIT)).intValue();
+
+    }
+
+    @Override
+    public FutureTask<Void> eval(final BOpContext<IBindingSet> context) {
+
+        return new FutureTask<Void>(new TopKTask(this, context));
+
+    }
+
+    /**
+     * A solution retained by the operator together with the order in which it
+     * was accepted (used to break ties).
+     */
+    private static class Candidate {
+
+        private final long seq;
+
+        private final IBindingSet bset;
+
+        Candidate(final long seq, final IBindingSet bset) {
+
+            this.seq = seq;
+
+            this.bset = bset;
+
+        }
+
+    }
+
+    /**
+     * Orders {@link Candidate}s by the {@link BindingSetComparator} and then by
+     * their sequence number.
+     */
+    private static class CandidateComparator implements Comparator<Candidate> {
+
+        private final Comparator<IBindingSet> delegate;
+
+        CandidateComparator(final Comparator<IBindingSet> delegate) {
+
+            this.delegate = delegate;
+
+        }
+
+        @Override
+        public int compare(final Candidate o1, final Candidate o2) {
+
+            final int ret = delegate.compare(o1.bset, o2.bset);
+
+            if (ret != 0)
+                return ret;
+
+            return o1.seq < o2.seq ? -1 : o1.seq > o2.seq ? 1 : 0;
+
+        }
+
+    }
+
+    /**
+     * A bounded queue which retains the best <i>limit</i> candidates. The head
+     * of the queue is the worst candidate retained so far.
+     */
+    private static class BoundedQueue {
+
+        private final int limit;
+
+        private final Comparator<Candidate> comparator;
+
+        private final PriorityQueue<Candidate> queue;
+
+        BoundedQueue(final int limit, final Comparator<Candidate> comparator) {
+
+            this.limit = limit;
+
+            this.comparator = comparator;
+
+            /*
+             * Note: The queue is ordered in reverse so the head is the worst
+             * candidate. It is not pre-sized since the limit may be larger than
+             * the #of solutions.
+             */
+            this.queue = new PriorityQueue<Candidate>(11,
+                    Collections.reverseOrder(comparator));
+
+        }
+
+        /**
+         * Offer a candidate, evicting the worst retained candidate if the queue
+         * is full and the offered candidate is better.
+         *
+         * @return <code>true</code> iff the candidate was retained.
+         */
+        boolean offer(final Candidate c) {
+
+            if (queue.size() < limit) {
+
+                queue.add(c);
+
+                return true;
+
+            }
+
+            if (comparator.compare(c, queue.peek()) < 0) {
+
+                queue.poll();
+
+                queue.add(c);
+
+                return true;
+
+            }
+
+            return false;
+
+        }
+
+        /**
+         * Return the retained candidates in sort order.
+         */
+        Candidate[] toSortedArray() {
+
+            final Candidate[] a = queue.toArray(new Candidate[queue.size()]);
+
+            Arrays.sort(a, comparator);
+
+            return a;
+
+        }
+
+    }
+
+    /**
+     * The state shared across invocations of the operator. A reference to
+     * this object is stored on the {@link IQueryAttributes}.
+     */
+    private static class SharedState {
+
+        /** The solutions retained so far. */
+        private final BoundedQueue queue;
+
+        /** The sequence number for the next accepted solution. */
+        private long nextSeq = 0L;
+
+        SharedState(final int limit, final Comparator<Candidate> comparator) {
+
+            this.queue = new BoundedQueue(limit, comparator);
+
+        }
+
+        /**
+         * Merge the candidates selected by an evaluation task.
+         */
+        synchronized void merge(final BoundedQueue local) {
+
+            for (Candidate c : local.queue) {
+
+                queue.offer(c);
+
+            }
+
+        }
+
+        /**
+         * Reserve a block of sequence numbers for an evaluation task.
+         */
+        synchronized long reserve(final int n) {
+
+            final long first = nextSeq;
+
+            nextSeq += n;
+
+            return first;
+
+        }
+
+        /**
+         * A snapshot of the worst candidate retained by the operator -or-
+         * <code>null</code> if the queue is not yet full.
+         */
+        synchronized Candidate threshold() {
+
+            return queue.queue.size() < queue.limit ? null : queue.queue
+                    .peek();
+
+        }
+
+    }
+
+    /**
+     * Task executing on the node.
+     */
+    static private class TopKTask implements Callable<Void> {
+
+        private final TopKSortOp op;
+
+        private final BOpContext<IBindingSet> context;
+
+        private final BOpStats stats;
+
+        private final ISortOrder<?>[] sortOrder;
+
+        private final CandidateComparator comparator;
+
+        private final int limit;
+
+        /**
+         * The {@link IQueryAttributes} on which the {@link SharedState} is
+         * stored.
+         */
+        private final IQueryAttributes attrs;
+
+        /**
+         * The name of the key under which the {@link #state} is stored in the
+         * {@link IQueryAttributes}.
+         */
+        private final String key;
+
+        private final SharedState state;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        TopKTask(final TopKSortOp op, final BOpContext<IBindingSet> context) {
+
+            this.op = op;
+
+            this.context = context;
+
+            this.stats = context.getStats();
+
+            this.sortOrder = op.getSortOrder();
+
+            this.comparator = new CandidateComparator(new BindingSetComparator(
+                    sortOrder, op.getValueComparator()));
+
+            this.limit = op.getLimit();
+
+            this.attrs = context.getQueryAttributes();
+
+            this.key = Integer.toString(op.getId());
+
+            SharedState state = (SharedState) attrs.get(key);
+
+            if (state == null) {
+
+                state = new SharedState(limit, comparator);
+
+                final SharedState tmp = (SharedState) attrs.putIfAbsent(key,
+                        state);
+
+                if (tmp != null)
+                    state = tmp;
+
+            }
+
+            this.state = state;
+
+        }
+
+        @Override
+        public Void call() throws Exception {
+
+            final ICloseableIterator<IBindingSet[]> itr = context.getSource();
+
+            final IBlockingBuffer<IBindingSet[]> sink = context.getSink();
+
+            final boolean lastInvocation = context.isLastInvocation();
+
+            try {
+
+                acceptSolutions(itr);
+
+                if (lastInvocation) {
+
+                    writeSolutions(sink);
+
+                }
+
+            } catch (Throwable t) {
+
+                log.error(t, t);
+
+                throw new RuntimeException(t);
+
+            } finally {
+
+                if (lastInvocation) {
+
+                    // Discard the operator's internal state.
+                    attrs.remove(key);
+
+                }
+
+                sink.close();
+
+            }
+
+            // Done.
+            return null;
+
+        }
+
+        /**
+         * Evaluate the value expressions for each input solution and retain
+         * the best solutions in a task local bounded queue, which is then
+         * merged into the shared state.
+         *
+         * @param itr
+         *            The source solutions.
+         */
+        private void acceptSolutions(final ICloseableIterator<IBindingSet[]> itr) {
+
+            final BoundedQueue local = new BoundedQueue(limit, comparator);
+
+            // The worst solution retained by the operator before this task.
+            final Candidate threshold = state.threshold();
+
+            long nretained = 0;
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final IBindingSet[] a = itr.next();
+
+                    stats.chunksIn.increment();
+                    stats.unitsIn.add(a.length);
+
+                    long seq = state.reserve(a.length);
+
+                    for (IBindingSet bset : a) {
+
+                        // Note: Necessary scope for type error reporting.
+                        IValueExpression<?> expr = null;
+
+                        try {
+
+                            for (ISortOrder<?> s : sortOrder) {
+
+                                /*
+                                 * Evaluate. A BIND() will have side-effect on
+                                 * [bset].
+                                 */
+                                (expr = s.getExpr()).get(bset);
+
+                            }
+
+                        } catch (SparqlTypeErrorException ex) {
+
+                            // log type error, do not drop solution (see trac 765).
+                            TypeErrorLog.handleTypeError(ex, expr, stats);
+
+                        }
+
+                        final Candidate c = new Candidate(seq++, bset);
+
+                        if (threshold != null
+                                && comparator.compare(c, threshold) >= 0) {
+
+                            // Can not make it into the shared queue.
+                            continue;
+
+                        }
+
+                        if (local.offer(c))
+                            nretained++;
+
+                    } // next source solution
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            state.merge(local);
+
+            if (log.isDebugEnabled())
+                log.debug("Retained " + nretained + " candidates, "
+                        + local.queue.size() + " merged");
+
+        } // acceptSolutions
+
+        /**
+         * Write the retained solutions onto the sink in sort order.
+         *
+         * @param sink
+         *            Where to write the results.
+         */
+        private void writeSolutions(final IBlockingBuffer<IBindingSet[]> sink) {
+
+            final Candidate[] a;
+            synchronized (state) {
+                a = state.queue.toSortedArray();
+            }
+
+            if (log.isInfoEnabled())
+                log.info("Writing " + a.length + " solutions (limit=" + limit
+                        + ")");
+
+            final UnsyncLocalOutputBuffer<IBindingSet> out = new UnsyncLocalOutputBuffer<IBindingSet>(
+                    op.getChunkCapacity(), sink);
+
+            for (Candidate c : a) {
+
+                final IBindingSet bset = c.bset;
+
+                // Drop variables for computed value expressions.
+                for (ISortOrder<?> s : sortOrder) {
+                    final IValueExpression<?> expr = s.getExpr();
+                    if (expr instanceof IBind) {
+                        bset.clear(((IBind<?>) expr).getVar());
+                    }
+                }
+
+                out.add(bset);
+
+            }
+
+            // write output and flush.
+            out.flush();
+            sink.flush();
+
+        }
+
+    } // TopKTask
+
+} // TopKSortOp
@@ -274,6 +274,15 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
     @Deprecated
     protected final ConcurrentMap<Long, Object> storeCache;
 
+    /**
+     * The JVM wide cache for the coded node and leaf data records -or-
+     * <code>null</code> if the cache is disabled, if the B+Tree is transient,
+     * or if the cache may not be used with the backing store.
+     * 
+     * @see PageCache
+     */
+    protected final PageCache pageCache;
+
     /**
      * Hard reference iff the index is mutable (aka unisolated) allows us to
      * avoid patterns that create short life time versions of the object to
@@ -1051,6 +1060,8 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             this.storeCache = null;
             
+            this.pageCache = null;
+
 //            this.globalLRU = null;
             
 //            this.readRetentionQueue = null;
@@ -1082,6 +1093,8 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 //            this.storeCache = LRUNexus.getCache(store);
             this.storeCache = null;
             
+            this.pageCache = PageCache.getCache(store);
+
 //            this.readRetentionQueue = newReadRetentionQueue();
         
         }
@@ -3947,6 +3960,11 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
             // wrap as ByteBuffer and write on the store.
             addr = store.write(slice.asByteBuffer());
             
+            if (pageCache != null) {
+                // discard any record cached for a recycled address.
+                pageCache.remove(store.getUUID(), addr);
+            }
+
             // now we have a new address, delete previous identity if any
             if (node.isPersistent()) {
             	oldAddr = node.getIdentity();
@@ -4057,8 +4075,22 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
             throw new IllegalArgumentException();
         
         
-        final ByteBuffer tmp;
-        {
+        ByteBuffer tmp = null;
+
+        if (pageCache != null) {
+
+            // test the page cache.
+            final byte[] b = pageCache.get(store.getUUID(), addr);
+
+            if (b != null) {
+
+                tmp = ByteBuffer.wrap(b);
+
+            }
+
+        }
+
+        if (tmp == null) {
 
             final long begin = System.nanoTime();
             
@@ -4077,6 +4109,13 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
 
             btreeCounters.bytesRead.add(bytesRead);
             
+            if (pageCache != null) {
+
+                // copy the record into the page cache.
+                pageCache.put(store.getUUID(), addr, tmp);
+
+            }
+
         }
 // Note: This is not necessary.  The most likely place to be interrupted is in the IO on the raw store.  It is not worth testing for an interrupt here since we are more liklely to notice one in the raw store and this method is low latency except for the potential IO read.
 //        if (Thread.interrupted()) {
@@ -4452,6 +4491,12 @@ abstract public class AbstractBTree implements IIndex, IAutoboxBTree,
         getBtreeCounters().bytesReleased += nbytes;
         
         store.delete(addr);
+
+        if (pageCache != null) {
+
+            pageCache.remove(store.getUUID(), addr);
+
+        }
         
         return nbytes;
 
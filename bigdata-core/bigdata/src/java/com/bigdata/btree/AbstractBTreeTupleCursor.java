@@ -740,14 +740,95 @@ abstract public class AbstractBTreeTupleCursor<I extends AbstractBTree, L extend
 //        // clear references since no longer valid.
 //        nextPosition = priorPosition = null;
 
+        AbstractCursorPosition<L, E> pos = null;
+
+        if (currentPosition != null) {
+
+            if (!rangeCheck(key))
+                throw new KeyOutOfRangeException("key="
+                        + BytesUtil.toString(key) + ", fromKey="
+                        + BytesUtil.toString(fromKey) + ", toKey="
+                        + BytesUtil.toString(toKey));
+
+            // try to position the cursor without descending from the root.
+            pos = localPosition(currentPosition.getLeafCursor(), key);
+
+        }
+
         // new position is that key.
-        currentPosition = newPosition(key);
+        currentPosition = pos != null ? pos : newPosition(key);
 
         // Copy the data into [tuple].
         return currentPosition.get(tuple);
         
     }
 
+    /**
+     * Return a new {@link ICursorPosition} for the <i>key</i> using the leaf
+     * of the current cursor position or the leaf immediately after it. This
+     * makes a sequence of seeks on ascending keys (as issued by a join which
+     * probes the index with sorted keys) cost a search of the current leaf
+     * (plus a sibling step when the key lies in the next leaf) rather than a
+     * descent from the root for each key.
+     * 
+     * @param leafCursor
+     *            The leaf cursor for the current cursor position. It is
+     *            reused by the new position and may be advanced to the next
+     *            leaf as a side-effect.
+     * @param key
+     *            The key (already range checked).
+     * 
+     * @return The new {@link ICursorPosition} -or- <code>null</code> if the
+     *         key is not known to be spanned by either leaf, in which case the
+     *         caller must descend from the root.
+     */
+    private AbstractCursorPosition<L, E> localPosition(
+            final ILeafCursor<L> leafCursor, final byte[] key) {
+
+        L leaf = leafCursor.leaf();
+
+        if (leaf == null || leaf.isDeleted())
+            return null;
+
+        int index = leaf.getKeys().search(key);
+
+        if (index >= 0 || (-index - 1 > 0 && -index - 1 < leaf.getKeyCount())) {
+
+            // Strictly inside of the keys of the current leaf.
+            return newPosition(leafCursor, index, key);
+
+        }
+
+        if (-index - 1 == 0) {
+
+            // Before the first key in the leaf (a backward seek).
+            return null;
+
+        }
+
+        /*
+         * After the last key in the current leaf. Step to the next leaf, which
+         * is where a forward scan would go next.
+         */
+        leaf = leafCursor.next();
+
+        if (leaf == null)
+            return null;
+
+        index = leaf.getKeys().search(key);
+
+        if (index >= 0 || (-index - 1 > 0 && -index - 1 < leaf.getKeyCount())) {
+
+            // Strictly inside of the keys of the next leaf.
+            return newPosition(leafCursor, index, key);
+
+        }
+
+        // In the gap between the leaves or beyond the next leaf.
+        return null;
+
+    }
+
 //    /**
 //     * Scan to the next cursor position having a visitable tuple.
 //     * 
@@ -34,6 +34,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -41,6 +42,10 @@ import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
@@ -72,6 +77,7 @@ import com.bigdata.rawstore.IRawStore;
 import com.bigdata.rawstore.WormAddressManager;
 import com.bigdata.util.Bytes;
 import com.bigdata.util.BytesUtil;
+import com.bigdata.util.DaemonThreadFactory;
 
 /**
  * Builds an {@link IndexSegment} given a source btree and a target branching
@@ -603,6 +609,33 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
      */
     final SimpleLeafData leaf;
 
+    /**
+     * The default #of worker threads used to code the leaves of the generated
+     * index segment. ZERO (0) or ONE (1) codes each leaf in the caller's
+     * thread (this is the historical behavior).
+     * <p>
+     * Right now this can be set from the environment, but this is just for
+     * testing purposes.
+     * 
+     * @see #setBuildThreads(int)
+     */
+    transient static private final int DEFAULT_BUILD_THREADS = Integer
+            .parseInt(System.getProperty(IndexSegmentBuilder.class.getName()
+                    + ".buildThreads", "0"));
+
+    /**
+     * The #of leaves coded by each worker thread in each batch of leaves when
+     * the leaves are coded in parallel.
+     */
+    static private final int LEAVES_PER_THREAD = 16;
+
+    /**
+     * The #of worker threads used to code the leaves.
+     * 
+     * @see #setBuildThreads(int)
+     */
+    private int buildThreads = DEFAULT_BUILD_THREADS;
+
     /**
      * The plan for building the B+-Tree.
      */
@@ -622,6 +655,45 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
         return begin_build;
         
     }
+
+    /**
+     * The #of worker threads used to code the leaves.
+     */
+    public int getBuildThreads() {
+
+        return buildThreads;
+
+    }
+
+    /**
+     * Set the #of worker threads used to code the leaves. When GT ONE (1), the
+     * leaves are populated from the source iterator by the caller's thread,
+     * coded (including the coding of the keys and values by the configured
+     * {@link com.bigdata.btree.raba.codec.IRabaCoder}s) by a pool of worker
+     * threads, and then written onto the output file in key order by the
+     * caller's thread. The generated {@link IndexSegment} is the same
+     * regardless of this setting.
+     * 
+     * @param buildThreads
+     *            The #of worker threads. ZERO (0) or ONE (1) codes each leaf in
+     *            the caller's thread.
+     * 
+     * @throws IllegalArgumentException
+     *             if the argument is negative.
+     * @throws IllegalStateException
+     *             if {@link #call()} has already been invoked.
+     */
+    public void setBuildThreads(final int buildThreads) {
+
+        if (buildThreads < 0)
+            throw new IllegalArgumentException();
+
+        if (begin_build != 0L)
+            throw new IllegalStateException();
+
+        this.buildThreads = buildThreads;
+
+    }
     
     /**
      * The time to setup the index build, including the generation of the index
@@ -1688,29 +1760,7 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
             /*
              * Used to serialize the nodes and leaves for the output tree.
              */
-            nodeSer = new NodeSerializer(//
-                    /*
-                     * Note: it does not seem like there should be any
-                     * interaction between various IAddressSerializer strategies
-                     * and the manner in which we encode the region (BASE, NODE,
-                     * or BLOB) into the offset of addresses for the index
-                     * segment store. The offset is effectively left-shifted by
-                     * two bits to encode the region, there by reducing the
-                     * maximum possible byte offset within any region (including
-                     * BASE). However, that should not pose problems for any
-                     * IAddressSerializer strategy as long as it accepts any
-                     * legal [byteCount] and [offset] - it is just that our
-                     * offsets are essentially 4x larger than they would be
-                     * otherwise.
-                     */
-                    addressManager,//
-                    NOPNodeFactory.INSTANCE,//
-                    plan.m,// the output branching factor.
-                    0, // initialBufferCapacity - will be estimated.
-                    metadata, //
-                    false, // NOT read-only (we are using it for writing).
-                    metadata.getIndexSegmentRecordCompressorFactory()
-                    );
+            nodeSer = newNodeSerializer();
 
         }
     
@@ -1728,6 +1778,38 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
         }
 
     }
+
+    /**
+     * Return a new object used to code the nodes and leaves of the output
+     * tree. The returned object is NOT thread-safe.
+     */
+    private NodeSerializer newNodeSerializer() {
+
+        return new NodeSerializer(//
+                /*
+                 * Note: it does not seem like there should be any
+                 * interaction between various IAddressSerializer strategies
+                 * and the manner in which we encode the region (BASE, NODE,
+                 * or BLOB) into the offset of addresses for the index
+                 * segment store. The offset is effectively left-shifted by
+                 * two bits to encode the region, there by reducing the
+                 * maximum possible byte offset within any region (including
+                 * BASE). However, that should not pose problems for any
+                 * IAddressSerializer strategy as long as it accepts any
+                 * legal [byteCount] and [offset] - it is just that our
+                 * offsets are essentially 4x larger than they would be
+                 * otherwise.
+                 */
+                addressManager,//
+                NOPNodeFactory.INSTANCE,//
+                plan.m,// the output branching factor.
+                0, // initialBufferCapacity - will be estimated.
+                metadata, //
+                false, // NOT read-only (we are using it for writing).
+                metadata.getIndexSegmentRecordCompressorFactory()
+                );
+
+    }
     
     /**
      * Build the {@link IndexSegment} given the parameters specified to the
@@ -1976,6 +2058,18 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
             return;
             
         }
+
+        if (buildThreads > 1 && plan.nleaves > 1) {
+
+            /*
+             * Code the leaves in parallel.
+             */
+
+            buildBTreeParallel();
+
+            return;
+
+        }
         
         // For each leaf in the plan while tuples remain.
         for (int i = 0; i < plan.nleaves && entryIterator.hasNext(); i++) {
@@ -1998,7 +2092,7 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
             for (int j = 0; j < limit && entryIterator.hasNext(); j++) {
 
                 // Copy the tuple into the leaf.
-                copyTuple(j, entryIterator.next());
+                copyTuple(leaf, j, entryIterator.next());
 
 //                needsFlush = true;
                 
@@ -2049,16 +2143,307 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
 //        }
 
     }
+
+    /**
+     * Variant of {@link #buildBTree()} which codes the leaves using
+     * {@link #buildThreads} worker threads.
+     * <p>
+     * The leaves are populated from the source iterator in batches by the
+     * caller's thread. Each batch is coded by the worker threads, each of which
+     * uses its own {@link NodeSerializer}, while the caller's thread populates
+     * the next batch. The coded leaves are then written out in key order by the
+     * caller's thread, which assigns their addresses, links them together
+     * and closes their parents exactly as {@link #buildBTree()} would. Since
+     * the separatorKey for a leaf is not assigned until that leaf is written
+     * out, the nodes are built in the same order as well.
+     */
+    private void buildBTreeParallel() {
+
+        final int nthreads = buildThreads;
+
+        final int capacity = nthreads * LEAVES_PER_THREAD;
+
+        // One batch is populated while the other is being coded.
+        final LeafBatch[] batches = new LeafBatch[] {
+                new LeafBatch(capacity, nthreads),
+                new LeafBatch(capacity, nthreads) };
+
+        final ExecutorService service = Executors.newFixedThreadPool(nthreads,
+                new DaemonThreadFactory(getClass().getName() + ".buildService"));
+
+        try {
+
+            // The index of the next leaf in the plan.
+            int nextLeaf = 0;
+
+            // The batch which is being coded (if any).
+            LeafBatch coding = null;
+
+            for (int b = 0;; b ^= 1) {
+
+                final LeafBatch batch = batches[b];
+
+                nextLeaf = batch.fill(nextLeaf);
+
+                if (coding != null) {
+
+                    // Write out the previous batch.
+                    coding.write();
+
+                }
+
+                if (batch.nleaves == 0) {
+
+                    // Source iterator is exhausted.
+                    break;
+
+                }
+
+                batch.code(service);
+
+                coding = batch;
+
+            }
+
+        } finally {
+
+            service.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * A batch of leaves which are coded in parallel by
+     * {@link IndexSegmentBuilder#buildBTreeParallel()}.
+     */
+    private class LeafBatch {
+
+        /**
+         * The leaves (reused for each batch).
+         */
+        private final SimpleLeafData[] leaves;
+
+        /**
+         * The coded leaves.
+         */
+        private final ILeafData[] coded;
+
+        /**
+         * One (non-thread-safe) coder per worker thread.
+         */
+        private final NodeSerializer[] coders;
+
+        /**
+         * The futures for the tasks coding this batch.
+         */
+        private final List<Future<Void>> futures;
+
+        /**
+         * The index in the plan of the first leaf in the batch.
+         */
+        private int firstLeaf;
+
+        /**
+         * The #of leaves in the batch.
+         */
+        private int nleaves;
+
+        LeafBatch(final int capacity, final int nthreads) {
+
+            leaves = new SimpleLeafData[capacity];
+
+            for (int i = 0; i < capacity; i++) {
+
+                leaves[i] = new SimpleLeafData(plan.height, plan.m, metadata);
+
+            }
+
+            coded = new ILeafData[capacity];
+
+            coders = new NodeSerializer[nthreads];
+
+            for (int i = 0; i < nthreads; i++) {
+
+                coders[i] = newNodeSerializer();
+
+            }
+
+            futures = new ArrayList<Future<Void>>(nthreads);
+
+        }
+
+        /**
+         * Populate the batch from the source iterator.
+         * 
+         * @param firstLeaf
+         *            The index in the plan of the first leaf to populate.
+         * 
+         * @return The index in the plan of the next leaf to populate.
+         */
+        int fill(final int firstLeaf) {
+
+            this.firstLeaf = firstLeaf;
+
+            nleaves = 0;
+
+            int i = firstLeaf;
+
+            // For each leaf in the plan while tuples remain.
+            while (nleaves < leaves.length && i < plan.nleaves
+                    && entryIterator.hasNext()) {
+
+                final SimpleLeafData leaf = leaves[nleaves++];
+
+                leaf.reset(plan.numInNode[leaf.level][i]);
+
+                final int limit = leaf.max; // #of keys to fill in this leaf.
+
+                // For each tuple allowed by the plan into the current leaf.
+                for (int j = 0; j < limit && entryIterator.hasNext(); j++) {
+
+                    copyTuple(leaf, j, entryIterator.next());
+
+                }
+
+                i++;
+
+            }
+
+            return i;
+
+        }
+
+        /**
+         * Submit tasks which code the leaves in the batch. Each task codes a
+         * contiguous slice of the batch using its own coder.
+         */
+        void code(final ExecutorService service) {
+
+            final int nthreads = coders.length;
+
+            final int chunkSize = (nleaves + nthreads - 1) / nthreads;
+
+            for (int t = 0; t < nthreads && t * chunkSize < nleaves; t++) {
+
+                final NodeSerializer coder = coders[t];
+
+                final int fromIndex = t * chunkSize;
+
+                final int toIndex = Math.min(nleaves, fromIndex + chunkSize);
+
+                futures.add(service.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+
+                        for (int i = fromIndex; i < toIndex; i++) {
+
+                            coded[i] = coder.encodeLive(leaves[i]);
+
+                        }
+
+                        return null;
+
+                    }
+
+                }));
+
+            }
+
+        }
+
+        /**
+         * Wait for the leaves to be coded and then write them out in key
+         * order.
+         */
+        void write() {
+
+            try {
+
+                for (Future<Void> f : futures) {
+
+                    f.get();
+
+                }
+
+            } catch (InterruptedException e) {
+
+                throw new RuntimeException(e);
+
+            } catch (ExecutionException e) {
+
+                throw new RuntimeException(e);
+
+            } finally {
+
+                futures.clear();
+
+            }
+
+            for (int i = 0; i < nleaves; i++) {
+
+                final SimpleLeafData leaf = leaves[i];
+
+                if (firstLeaf + i > 0) {
+
+                    // Every leaf (after the first) has a separatorKey.
+                    addSeparatorKey(leaf);
+
+                }
+
+                flushLeaf(leaf, coded[i]);
+
+                coded[i] = null;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Variant of {@link #flushNodeOrLeaf(AbstractSimpleNodeData)} for a leaf
+     * which has already been coded.
+     * 
+     * @param leaf
+     *            The leaf.
+     * @param codedLeaf
+     *            The coded leaf.
+     */
+    private void flushLeaf(final SimpleLeafData leaf, final ILeafData codedLeaf) {
+
+        final int h = leaf.level;
+
+        assert writtenInLevel[h] < plan.numInLevel[h];
+
+        final long addr = writeCodedLeaf(codedLeaf);
+
+        // Lookup the parent of this leaf in the stack.
+        final SimpleNodeData parent = getParent(leaf);
+
+        if (parent != null) {
+
+            addChild(parent, addr, leaf);
+
+        }
+
+        writtenInLevel[h]++;
+
+    }
     
     /**
-     * Copy a tuple into the current leaf at the given index.
+     * Copy a tuple into a leaf at the given index.
      * 
+     * @param leaf
+     *            The leaf.
      * @param j
      *            The index in the leaf to which the tuple will be copied.
      * @param tuple
      *            The tuple.
      */
-    private void copyTuple(final int j, final ITuple<?> tuple) {
+    private void copyTuple(final SimpleLeafData leaf, final int j,
+            final ITuple<?> tuple) {
 
         if (ntuplesWritten == 0) {
 
@@ -2631,6 +3016,26 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
      */
     protected long writeLeaf(final SimpleLeafData leaf) {
 
+        // code the leaf, obtaining a view onto an internal (shared) buffer.
+//        final ByteBuffer buf = nodeSer.encode(leaf).asByteBuffer();
+        // code the leaf.
+        return writeCodedLeaf(nodeSer.encodeLive((ILeafData) leaf));
+
+    }
+
+    /**
+     * Write a coded leaf.
+     * 
+     * @param thisLeafData
+     *            The coded leaf.
+     * 
+     * @return The address that may be used to read the leaf from the file
+     *         backing the {@link IndexSegmentStore}.
+     * 
+     * @see #writeLeaf(SimpleLeafData)
+     */
+    private long writeCodedLeaf(final ILeafData thisLeafData) {
+
         /*
          * The encoded address of the leaf that we allocated here. The encoded
          * address will be relative to the BASE region.
@@ -2638,11 +3043,6 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
         final long addr;
         {
             
-            // code the leaf, obtaining a view onto an internal (shared) buffer.
-//            final ByteBuffer buf = nodeSer.encode(leaf).asByteBuffer();
-            // code the leaf.
-            final ILeafData thisLeafData = nodeSer.encodeLive(leaf);
-
             // Obtain address to be assigned to this leaf.
 //            // Allocate a record for the leaf on the temporary store.
 //            final long addr1 = leafBuffer.allocate(buf.remaining());
@@ -4318,6 +4718,7 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
         System.err.println("       -merge (true|false)\tWhen true, performs a compacting merge (default is merge).");
         System.err.println("       -O outDir\tThe output directory.");
         System.err.println("       -bufferNodes (true|false)\tWhen true, the nodes are fully buffered in memory (default true).");
+        System.err.println("       -buildThreads #\tThe #of threads used to code the leaves.");
 
         System.exit(exitCode);
         
@@ -4349,6 +4750,9 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
      *            current working directory. Each index segment file will be
      *            named based on the name of the source index with the
      *            <code>.seg</code> extension). .</dd>
+     *            <dt>-buildThreads #</dt>
+     *            <dd>The #of worker threads used to code the leaves. See
+     *            {@link #setBuildThreads(int)}.</dd>
      *            </dl>
      *            . If no <i>name</i>s are specified, then an index segment will
      *            be generated for each named B+Tree registered on the source
@@ -4390,6 +4794,9 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
          * than being written onto a temporary file.
          */
         boolean bufferNodes = true;
+
+        // The #of threads used to code the leaves.
+        int buildThreads = DEFAULT_BUILD_THREADS;
         
         // Which build algorithm to use.
         BuildEnum buildEnum = BuildEnum.TwoPass;//FullyBuffered;
@@ -4438,6 +4845,10 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
                     
                     bufferNodes = Boolean.valueOf(args[++i]);
                     
+                } else if (arg.equals("-buildThreads")) {
+
+                    buildThreads = Integer.valueOf(args[++i]);
+
                 } else if (arg.equals("-alg")) {
 
                     buildEnum = BuildEnum.valueOf(args[++i]);
@@ -4602,6 +5013,8 @@ public class IndexSegmentBuilder implements Callable<IndexSegmentCheckpoint> {
                     throw new AssertionError(buildEnum.toString());
                 }
 
+                builder.setBuildThreads(buildThreads);
+
                 // Do the build.
                 final IndexSegmentCheckpoint checkpoint = builder.call();
 
@@ -765,6 +765,12 @@ public class IndexSegmentStore extends AbstractRawStore {
 //                    LRUNexus.INSTANCE.deleteCache(getUUID());
 //
 //                }
+
+                if (PageCache.INSTANCE != null) {
+
+                    PageCache.INSTANCE.deleteCache(getUUID());
+
+                }
                 
             } catch (Throwable t) {
                 
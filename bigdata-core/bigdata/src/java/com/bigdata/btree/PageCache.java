@@ -0,0 +1,878 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.data.IAbstractNodeData;
+import com.bigdata.counters.CAT;
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounterSetAccess;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.io.DirectBufferPool;
+import com.bigdata.journal.AbstractJournal;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rwstore.sector.MemoryManager;
+import com.bigdata.rwstore.sector.MemoryManagerResourceError;
+
+/**
+ * A JVM wide cache for the coded data records of B+Tree nodes and leaves. The
+ * cache is keyed by the {@link UUID} of the backing store and the address of
+ * the record on that store. The records are stored in native memory using a
+ * {@link MemoryManager} backed by the {@link DirectBufferPool}, so the cache
+ * does not add to the heap or to the work of the garbage collector.
+ * <p>
+ * An {@link AbstractBTree} consults the cache before it reads a node or leaf
+ * from the backing store. A hit copies the coded record onto the heap, where
+ * it is wrapped as an {@link IAbstractNodeData} without further IO. This
+ * helps read-only views of an index, which are opened per query and would
+ * otherwise re-read the hot upper nodes of the index from the store.
+ * <p>
+ * The cache uses the 2Q replacement policy, which is scan resistant. A record
+ * enters the cache on a FIFO queue (A1in). If it is evicted from A1in, then
+ * its key is remembered on a ghost queue (A1out). If the record is read again
+ * while its key is on A1out, then it is promoted to an LRU queue (Am). A scan
+ * therefore only flushes A1in and does not disturb the records on Am. The
+ * cache is divided into segments, each with its own lock and its own queues.
+ * <p>
+ * The owning {@link AbstractBTree} removes an address from the cache when a
+ * record is written at that address or when the address is recycled. All
+ * entries for a store are discarded when the store is closed or destroyed
+ * and when a journal aborts. The cache is not used for highly available
+ * journals since the followers receive the leader's writes directly and
+ * could therefore observe a recycled address.
+ * <p>
+ * The cache is disabled by default. It is configured using the
+ * {@link Options}, which are read from the environment (system properties).
+ *
+ * @see <a href="http://jira.blazegraph.com/browse/BLZG-1501"> remove LRUNexus
+ *      </a>
+ */
+public class PageCache implements ICounterSetAccess {
+
+    private static final Logger log = Logger.getLogger(PageCache.class);
+
+    /**
+     * Options for the {@link PageCache}. These are specified as system
+     * properties.
+     */
+    public interface Options {
+
+        /**
+         * When <code>true</code> the {@link PageCache} is enabled.
+         */
+        String ENABLED = PageCache.class.getName() + ".enabled";
+
+        String DEFAULT_ENABLED = "false";
+
+        /**
+         * The maximum #of bytes of coded records which will be retained by the
+         * cache.
+         */
+        String MAX_BYTES = PageCache.class.getName() + ".maxBytes";
+
+        String DEFAULT_MAX_BYTES = "" + (256 * 1024 * 1024);
+
+        /**
+         * Records larger than this many bytes will not be cached.
+         */
+        String MAX_RECORD_SIZE = PageCache.class.getName() + ".maxRecordSize";
+
+        String DEFAULT_MAX_RECORD_SIZE = "" + (64 * 1024);
+
+        /**
+         * The #of independently locked segments.
+         */
+        String SEGMENTS = PageCache.class.getName() + ".segments";
+
+        String DEFAULT_SEGMENTS = "16";
+
+    }
+
+    /**
+     * The global instance -or- <code>null</code> if the cache is disabled.
+     */
+    public static final PageCache INSTANCE;
+
+    static {
+
+        PageCache tmp = null;
+
+        if (Boolean.valueOf(System.getProperty(Options.ENABLED,
+                Options.DEFAULT_ENABLED))) {
+
+            try {
+
+                tmp = new PageCache(DirectBufferPool.INSTANCE, //
+                        Long.valueOf(System.getProperty(Options.MAX_BYTES,
+                                Options.DEFAULT_MAX_BYTES)),//
+                        Integer.valueOf(System.getProperty(
+                                Options.MAX_RECORD_SIZE,
+                                Options.DEFAULT_MAX_RECORD_SIZE)),//
+                        Integer.valueOf(System.getProperty(Options.SEGMENTS,
+                                Options.DEFAULT_SEGMENTS))//
+                );
+
+                if (log.isInfoEnabled())
+                    log.info("Enabled: " + tmp);
+
+            } catch (Throwable t) {
+
+                log.error("Disabled: " + t, t);
+
+                tmp = null;
+
+            }
+
+        }
+
+        INSTANCE = tmp;
+
+    }
+
+    /**
+     * Return the {@link PageCache} to be used for the nodes and leaves of an
+     * index on the given store.
+     *
+     * @param store
+     *            The backing store.
+     *
+     * @return The {@link PageCache} -or- <code>null</code> if the cache is
+     *         disabled or may not be used for that store.
+     */
+    public static PageCache getCache(final IRawStore store) {
+
+        if (INSTANCE == null || store == null)
+            return null;
+
+        if (store instanceof AbstractJournal
+                && ((AbstractJournal) store).getQuorum() != null) {
+
+            // Not safe for HA (followers do not observe recycled addresses).
+            return null;
+
+        }
+
+        return INSTANCE;
+
+    }
+
+    /**
+     * The key for a record.
+     */
+    private static final class PageKey {
+
+        private final UUID storeUUID;
+
+        private final long addr;
+
+        private final int hash;
+
+        PageKey(final UUID storeUUID, final long addr) {
+
+            if (storeUUID == null)
+                throw new IllegalArgumentException();
+
+            this.storeUUID = storeUUID;
+
+            this.addr = addr;
+
+            this.hash = 31 * storeUUID.hashCode()
+                    + (int) (addr ^ (addr >>> 32));
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            return hash;
+
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+
+            if (this == o)
+                return true;
+
+            if (!(o instanceof PageKey))
+                return false;
+
+            final PageKey t = (PageKey) o;
+
+            return addr == t.addr && storeUUID.equals(t.storeUUID);
+
+        }
+
+    }
+
+    /**
+     * A record in the cache.
+     */
+    private static final class Entry {
+
+        /** The address of the record on the {@link MemoryManager}. */
+        private final long maddr;
+
+        /** The #of bytes in the record. */
+        private final int nbytes;
+
+        Entry(final long maddr, final int nbytes) {
+
+            this.maddr = maddr;
+
+            this.nbytes = nbytes;
+
+        }
+
+    }
+
+    /**
+     * One segment of the cache. All methods are <code>synchronized</code>.
+     */
+    private class Segment {
+
+        /**
+         * The maximum #of bytes for the records on this segment.
+         */
+        private final long capacity;
+
+        /**
+         * The target #of bytes for the records on {@link #a1in}.
+         */
+        private final long kin;
+
+        /**
+         * Records which have been read once (FIFO).
+         */
+        private final LinkedHashMap<PageKey, Entry> a1in = new LinkedHashMap<PageKey, Entry>();
+
+        /**
+         * Records which have been read more than once (LRU).
+         */
+        private final LinkedHashMap<PageKey, Entry> am = new LinkedHashMap<PageKey, Entry>(
+                16, .75f, true/* accessOrder */);
+
+        /**
+         * The keys of records recently evicted from {@link #a1in} (FIFO).
+         */
+        private final LinkedHashMap<PageKey, Boolean> a1out = new LinkedHashMap<PageKey, Boolean>();
+
+        private long a1inBytes = 0L;
+
+        private long amBytes = 0L;
+
+        Segment(final long capacity) {
+
+            this.capacity = capacity;
+
+            this.kin = capacity / 4;
+
+        }
+
+        synchronized byte[] get(final PageKey key) {
+
+            Entry e = am.get(key); // touches the entry.
+
+            if (e == null)
+                e = a1in.get(key); // does not change the order.
+
+            if (e == null)
+                return null;
+
+            /*
+             * Note: The record is copied while holding the lock so it can not
+             * be concurrently freed.
+             */
+
+            return mmgr.read(e.maddr);
+
+        }
+
+        synchronized void put(final PageKey key, final ByteBuffer data) {
+
+            if (am.containsKey(key) || a1in.containsKey(key)) {
+
+                // Concurrent read of the same record.
+                return;
+
+            }
+
+            final int nbytes = data.remaining();
+
+            final boolean promote = a1out.remove(key) != null;
+
+            // Make room for the record.
+            while (a1inBytes + amBytes + nbytes > capacity) {
+
+                if (!evict())
+                    break;
+
+            }
+
+            long maddr = 0L;
+
+            for (int i = 0; maddr == 0L; i++) {
+
+                try {
+
+                    maddr = mmgr.allocate(data.slice(), false/* blocks */);
+
+                } catch (MemoryManagerResourceError ex) {
+
+                    /*
+                     * Note: The native memory may be exhausted even though we
+                     * are within our capacity due to fragmentation or the use
+                     * of the memory by the other segments.
+                     */
+
+                    if (i >= 3 || !evict()) {
+
+                        if (log.isDebugEnabled())
+                            log.debug("Not cached: " + ex);
+
+                        return;
+
+                    }
+
+                }
+
+            }
+
+            final Entry e = new Entry(maddr, nbytes);
+
+            if (promote) {
+
+                am.put(key, e);
+
+                amBytes += nbytes;
+
+            } else {
+
+                a1in.put(key, e);
+
+                a1inBytes += nbytes;
+
+            }
+
+            bytes.addAndGet(nbytes);
+
+            entries.increment();
+
+        }
+
+        /**
+         * Evict one record.
+         *
+         * @return <code>false</code> iff the segment is empty.
+         */
+        private boolean evict() {
+
+            final boolean fromA1in = a1inBytes > kin || am.isEmpty();
+
+            final Map<PageKey, Entry> queue = fromA1in ? a1in : am;
+
+            final Iterator<Map.Entry<PageKey, Entry>> itr = queue.entrySet()
+                    .iterator();
+
+            if (!itr.hasNext())
+                return false;
+
+            final Map.Entry<PageKey, Entry> me = itr.next();
+
+            itr.remove();
+
+            release(me.getValue());
+
+            if (fromA1in) {
+
+                a1inBytes -= me.getValue().nbytes;
+
+                // Remember the key.
+                a1out.put(me.getKey(), Boolean.TRUE);
+
+                // Bound the ghost queue.
+                final int maxGhosts = Math.max(64,
+                        2 * (a1in.size() + am.size()));
+
+                final Iterator<PageKey> gitr = a1out.keySet().iterator();
+
+                while (a1out.size() > maxGhosts && gitr.hasNext()) {
+
+                    gitr.next();
+
+                    gitr.remove();
+
+                }
+
+            } else {
+
+                amBytes -= me.getValue().nbytes;
+
+            }
+
+            evictions.increment();
+
+            return true;
+
+        }
+
+        synchronized boolean remove(final PageKey key) {
+
+            a1out.remove(key);
+
+            Entry e = a1in.remove(key);
+
+            if (e != null) {
+
+                a1inBytes -= e.nbytes;
+
+            } else if ((e = am.remove(key)) != null) {
+
+                amBytes -= e.nbytes;
+
+            }
+
+            if (e == null)
+                return false;
+
+            release(e);
+
+            return true;
+
+        }
+
+        /**
+         * Remove all entries for the store -or- all entries if the
+         * <i>storeUUID</i> is <code>null</code>.
+         */
+        synchronized void clear(final UUID storeUUID) {
+
+            a1inBytes -= clear(a1in, storeUUID);
+
+            amBytes -= clear(am, storeUUID);
+
+            final Iterator<PageKey> gitr = a1out.keySet().iterator();
+
+            while (gitr.hasNext()) {
+
+                final PageKey k = gitr.next();
+
+                if (storeUUID == null || storeUUID.equals(k.storeUUID))
+                    gitr.remove();
+
+            }
+
+        }
+
+        private long clear(final Map<PageKey, Entry> queue,
+                final UUID storeUUID) {
+
+            long n = 0L;
+
+            final Iterator<Map.Entry<PageKey, Entry>> itr = queue.entrySet()
+                    .iterator();
+
+            while (itr.hasNext()) {
+
+                final Map.Entry<PageKey, Entry> me = itr.next();
+
+                if (storeUUID != null
+                        && !storeUUID.equals(me.getKey().storeUUID))
+                    continue;
+
+                itr.remove();
+
+                release(me.getValue());
+
+                n += me.getValue().nbytes;
+
+            }
+
+            return n;
+
+        }
+
+        /**
+         * Release the native memory for an entry.
+         */
+        private void release(final Entry e) {
+
+            mmgr.free(e.maddr);
+
+            bytes.addAndGet(-e.nbytes);
+
+            entries.add(-1);
+
+        }
+
+    }
+
+    /**
+     * The native memory for the records.
+     */
+    private final MemoryManager mmgr;
+
+    /**
+     * @see Options#MAX_BYTES
+     */
+    private final long maxBytes;
+
+    /**
+     * @see Options#MAX_RECORD_SIZE
+     */
+    private final int maxRecordSize;
+
+    private final Segment[] segments;
+
+    /*
+     * Counters.
+     */
+    private final CAT hits = new CAT();
+    private final CAT misses = new CAT();
+    private final CAT evictions = new CAT();
+    private final CAT invalidations = new CAT();
+    private final CAT entries = new CAT();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * @param pool
+     *            The pool from which the native memory will be allocated.
+     * @param maxBytes
+     *            The maximum #of bytes of records to retain.
+     * @param maxRecordSize
+     *            Records larger than this will not be cached.
+     * @param nsegments
+     *            The #of independently locked segments.
+     */
+    public PageCache(final DirectBufferPool pool, final long maxBytes,
+            final int maxRecordSize, final int nsegments) {
+
+        if (pool == null)
+            throw new IllegalArgumentException();
+
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException();
+
+        if (maxRecordSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (nsegments <= 0)
+            throw new IllegalArgumentException();
+
+        this.maxBytes = maxBytes;
+
+        this.maxRecordSize = maxRecordSize;
+
+        /*
+         * Note: Allow some slack for the rounding of records onto the
+         * allocation slots.
+         */
+        final long sectors = 1 + (maxBytes + maxBytes / 4)
+                / pool.getBufferCapacity();
+
+        this.mmgr = new MemoryManager(pool, (int) Math.min(Integer.MAX_VALUE,
+                sectors), false/* blocks */, null/* properties */);
+
+        this.segments = new Segment[nsegments];
+
+        for (int i = 0; i < nsegments; i++) {
+
+            segments[i] = new Segment(Math.max(1L, maxBytes / nsegments));
+
+        }
+
+    }
+
+    private Segment segment(final PageKey key) {
+
+        int h = key.hashCode();
+
+        h ^= (h >>> 20) ^ (h >>> 12);
+
+        h ^= (h >>> 7) ^ (h >>> 4);
+
+        return segments[(h & 0x7fffffff) % segments.length];
+
+    }
+
+    /**
+     * Return a copy of the record.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     *
+     * @return A copy of the record -or- <code>null</code> if the record is not
+     *         in the cache.
+     */
+    public byte[] get(final UUID storeUUID, final long addr) {
+
+        final PageKey key = new PageKey(storeUUID, addr);
+
+        final byte[] b = segment(key).get(key);
+
+        if (b == null) {
+
+            misses.increment();
+
+        } else {
+
+            hits.increment();
+
+        }
+
+        return b;
+
+    }
+
+    /**
+     * Add a record to the cache. The position and limit of the caller's buffer
+     * are not changed.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     * @param data
+     *            The record (from the position to the limit).
+     */
+    public void put(final UUID storeUUID, final long addr,
+            final ByteBuffer data) {
+
+        final int nbytes = data.remaining();
+
+        if (nbytes == 0 || nbytes > maxRecordSize)
+            return;
+
+        final PageKey key = new PageKey(storeUUID, addr);
+
+        segment(key).put(key, data);
+
+    }
+
+    /**
+     * Remove the record for an address from the cache. This must be invoked
+     * when the address is recycled or when a new record is written at that
+     * address.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     * @param addr
+     *            The address of the record on that store.
+     */
+    public void remove(final UUID storeUUID, final long addr) {
+
+        final PageKey key = new PageKey(storeUUID, addr);
+
+        if (segment(key).remove(key))
+            invalidations.increment();
+
+    }
+
+    /**
+     * Remove all records for the store from the cache.
+     *
+     * @param storeUUID
+     *            The {@link UUID} of the backing store.
+     */
+    public void deleteCache(final UUID storeUUID) {
+
+        if (storeUUID == null)
+            throw new IllegalArgumentException();
+
+        for (Segment s : segments) {
+
+            s.clear(storeUUID);
+
+        }
+
+    }
+
+    /**
+     * Remove all records from the cache.
+     */
+    public void clear() {
+
+        for (Segment s : segments) {
+
+            s.clear(null/* storeUUID */);
+
+        }
+
+    }
+
+    /**
+     * Remove all records from the cache and release the native memory back to
+     * the pool. The cache must not be in use by other threads. This is used to
+     * discard a cache which is not the {@link #INSTANCE}.
+     */
+    public void close() {
+
+        clear();
+
+        mmgr.clear();
+
+    }
+
+    /**
+     * The #of bytes in the cached records.
+     */
+    public long getBytes() {
+
+        return bytes.get();
+
+    }
+
+    /**
+     * The #of cached records.
+     */
+    public long size() {
+
+        return entries.get();
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{maxBytes=" + maxBytes
+                + ",maxRecordSize=" + maxRecordSize + ",segments="
+                + segments.length + ",size=" + size() + ",bytes=" + getBytes()
+                + ",hits=" + hits + ",misses=" + misses + ",evictions="
+                + evictions + "}";
+
+    }
+
+    /**
+     * Return the performance counters for the cache.
+     * <dl>
+     * <dt>hits</dt>
+     * <dd>The #of reads satisfied by the cache.</dd>
+     * <dt>misses</dt>
+     * <dd>The #of reads not satisfied by the cache.</dd>
+     * <dt>hitRatio</dt>
+     * <dd>The ratio of hits to reads.</dd>
+     * <dt>evictions</dt>
+     * <dd>The #of records evicted to make room for other records.</dd>
+     * <dt>invalidations</dt>
+     * <dd>The #of records removed because their address was recycled or
+     * overwritten.</dd>
+     * <dt>size</dt>
+     * <dd>The #of cached records.</dd>
+     * <dt>bytes</dt>
+     * <dd>The #of bytes in the cached records.</dd>
+     * <dt>nativeBytes</dt>
+     * <dd>The #of bytes of native memory held by the cache.</dd>
+     * </dl>
+     */
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet tmp = new CounterSet();
+
+        tmp.addCounter("maxBytes", new OneShotInstrument<Long>(maxBytes));
+
+        tmp.addCounter("maxRecordSize", new OneShotInstrument<Integer>(
+                maxRecordSize));
+
+        tmp.addCounter("segments", new OneShotInstrument<Integer>(
+                segments.length));
+
+        tmp.addCounter("hits", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(hits.get());
+            }
+        });
+
+        tmp.addCounter("misses", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(misses.get());
+            }
+        });
+
+        tmp.addCounter("hitRatio", new Instrument<Double>() {
+            @Override
+            protected void sample() {
+                final long h = hits.get();
+                final long n = h + misses.get();
+                setValue(n == 0L ? 0d : h / (double) n);
+            }
+        });
+
+        tmp.addCounter("evictions", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(evictions.get());
+            }
+        });
+
+        tmp.addCounter("invalidations", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(invalidations.get());
+            }
+        });
+
+        tmp.addCounter("size", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(size());
+            }
+        });
+
+        tmp.addCounter("bytes", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(getBytes());
+            }
+        });
+
+        tmp.addCounter("nativeBytes", new Instrument<Long>() {
+            @Override
+            protected void sample() {
+                setValue(mmgr.getExtent());
+            }
+        });
+
+        return tmp;
+
+    }
+
+}
@@ -45,7 +45,7 @@ import com.bigdata.util.BytesUtil;
  * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
  * @version $Id$
  */
-abstract public class AbstractRaba implements IRaba {
+abstract public class AbstractRaba implements IRaba, IBatchSearch {
 
     /**
      * The inclusive lower bound of the view.
@@ -391,6 +391,73 @@ abstract public class AbstractRaba implements IRaba {
                 searchKey);
         
     }
+
+    /**
+     * Each probe is searched for in the entries GTE the insertion point of the
+     * previous probe.
+     */
+    @Override
+    public void search(final byte[][] searchKeys, final int fromIndex,
+            final int toIndex, final int[] ret) {
+
+        if (!isKeys()) {
+
+            throw new UnsupportedOperationException();
+            
+        }
+
+        final int size = size();
+        
+        int low = 0;
+
+        for (int i = fromIndex; i < toIndex; i++) {
+
+            final int index = BytesUtil.binarySearch(a, low/* base */, size
+                    - low/* nmem */, searchKeys[i]);
+
+            ret[i] = index;
+
+            low = index >= 0 ? index : -index - 1;
+
+        }
+
+    }
+
+    /**
+     * Search for each of a batch of probe keys using
+     * {@link IBatchSearch#search(byte[][], int, int, int[])} if the
+     * {@link IRaba} implements {@link IBatchSearch} and otherwise
+     * {@link IRaba#search(byte[])} for each probe.
+     * 
+     * @param raba
+     *            An {@link IRaba} storing B+Tree keys.
+     * @param searchKeys
+     *            The probe keys, which MUST be ordered.
+     * @param fromIndex
+     *            The index of the first probe key (inclusive).
+     * @param toIndex
+     *            The index of the last probe key (exclusive).
+     * @param ret
+     *            The results, indexed as for the probe keys.
+     */
+    static public void search(final IRaba raba, final byte[][] searchKeys,
+            final int fromIndex, final int toIndex, final int[] ret) {
+
+        if (raba instanceof IBatchSearch) {
+
+            ((IBatchSearch) raba).search(searchKeys, fromIndex, toIndex, ret);
+
+            return;
+
+        }
+
+        for (int i = fromIndex; i < toIndex; i++) {
+
+            ret[i] = raba.search(searchKeys[i]);
+
+        }
+
+    }
     
     @Override
     public String toString() {
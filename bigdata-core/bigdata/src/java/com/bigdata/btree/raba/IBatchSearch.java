@@ -0,0 +1,72 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree.raba;
+
+import com.bigdata.btree.data.ILeafData;
+
+/**
+ * Optional interface for an {@link IRaba} storing B+Tree keys which can
+ * resolve a batch of ordered probe keys in a single forward pass. Since each
+ * probe is GTE the previous probe, its insertion point is never before the
+ * insertion point of the previous probe and the search for each probe begins
+ * where the search for the previous probe ended. For a coded leaf (see
+ * {@link ILeafData#getKeys()}) this avoids repeating the top levels of a binary
+ * search over the coded keys for each probe and keeps the access pattern
+ * sequential over the record.
+ * <p>
+ * Use {@link AbstractRaba#search(IRaba, byte[][], int, int, int[])} to search
+ * any {@link IRaba}, whether or not it implements this interface.
+ * 
+ * @see IRaba#search(byte[])
+ */
+public interface IBatchSearch {
+
+    /**
+     * Search for each of a batch of probe keys.
+     * 
+     * @param searchKeys
+     *            The probe keys. The probe keys in [fromIndex:toIndex) MUST be
+     *            in ascending <code>unsigned byte[]</code> order. Duplicate
+     *            probe keys are allowed.
+     * @param fromIndex
+     *            The index of the first probe key (inclusive).
+     * @param toIndex
+     *            The index of the last probe key (exclusive).
+     * @param ret
+     *            The results. <code>ret[i]</code> is set to the value which
+     *            {@link IRaba#search(byte[])} would return for
+     *            <code>searchKeys[i]</code> for each <i>i</i> in
+     *            [fromIndex:toIndex). Other elements are not modified.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the {@link IRaba} does not store B+Tree keys.
+     */
+    void search(byte[][] searchKeys, int fromIndex, int toIndex, int[] ret);
+
+}
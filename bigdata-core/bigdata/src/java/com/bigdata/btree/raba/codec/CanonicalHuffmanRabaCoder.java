@@ -51,6 +51,7 @@ import java.util.NoSuchElementException;
 import org.apache.log4j.Logger;
 
 import com.bigdata.btree.keys.KeyBuilder;
+import com.bigdata.btree.raba.IBatchSearch;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.io.AbstractFixedByteArrayBuffer;
 import com.bigdata.io.ByteArrayBuffer;
@@ -1357,7 +1358,8 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
      *         Thompson</a>
      */
     // @todo private
-    public static class CodedRabaImpl extends AbstractCodedRaba {
+    public static class CodedRabaImpl extends AbstractCodedRaba implements
+            IBatchSearch {
 
         /**
          * The <em>byte</em> offset to the packed symbol2byte table relative to
@@ -2331,7 +2333,7 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
 
             try {
 
-                return binarySearch(ibs, probe);
+                return binarySearch(ibs, probe, 0/* low */, size - 1/* high */);
                 
             } catch (IOException ex) {
 
@@ -2350,6 +2352,73 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
 
         }
 
+        /**
+         * Each probe is searched for by galloping forward from the insertion
+         * point of the previous probe, reusing the same bit stream for all
+         * probes.
+         */
+        @Override
+        public void search(final byte[][] searchKeys, final int fromIndex,
+                final int toIndex, final int[] ret) {
+
+            if (!isKeys())
+                throw new UnsupportedOperationException();
+
+            final InputBitStream ibs = data.getInputBitStream();
+
+            // the coded data record.
+            final byte[] array = data.array();
+
+            try {
+
+                int low = 0;
+
+                for (int i = fromIndex; i < toIndex; i++) {
+
+                    final byte[] probe = searchKeys[i];
+
+                    if (probe == null)
+                        throw new IllegalArgumentException();
+
+                    int high = size - 1;
+
+                    // Gallop forward to bound the binary search.
+                    int step = 1;
+
+                    for (int j = low; j <= high; j += step, step <<= 1) {
+
+                        if (compare(ibs, j/* index */, probe, array) > 0) {
+
+                            // Actual LT probe.
+                            low = j + 1;
+
+                        } else {
+
+                            // Actual GTE probe.
+                            high = j;
+
+                            break;
+
+                        }
+
+                    }
+
+                    final int index = binarySearch(ibs, probe, low, high);
+
+                    ret[i] = index;
+
+                    low = index >= 0 ? index : -index - 1;
+
+                }
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+        }
+
         /**
          * Binary search in the coded key space.
          * 
@@ -2357,6 +2426,10 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
          *            The bit stream.
          * @param key
          *            The key for the search.
+         * @param low
+         *            The index of the first coded key to be searched.
+         * @param high
+         *            The index of the last coded key to be searched.
          * 
          * @return index of the search key, if it is contained in <i>keys</i>;
          *         otherwise, <code>(-(insertion point) - 1)</code>. The
@@ -2366,7 +2439,7 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
          *         the key is found.
          */
         final private int binarySearch(final InputBitStream ibs,
-                final byte[] key) throws IOException {
+                final byte[] key, int low, int high) throws IOException {
 
             /*
              * The implementation codes the symbols in the key space one at a
@@ -2378,14 +2451,8 @@ public class CanonicalHuffmanRabaCoder implements IRabaCoder, Externalizable {
             // the coded data record.
             final byte[] array = data.array();
             
-            final int nmem = this.size;
-            
             final int base = 0;
             
-            int low = 0;
-
-            int high = nmem - 1;
-
             while (low <= high) {
 
                 final int mid = (low + high) >> 1;
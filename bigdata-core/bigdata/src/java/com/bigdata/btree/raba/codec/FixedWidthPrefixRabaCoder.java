@@ -0,0 +1,675 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.btree.raba.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+import com.bigdata.btree.raba.IBatchSearch;
+import com.bigdata.btree.raba.IRaba;
+import com.bigdata.io.AbstractFixedByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+import com.bigdata.util.Bytes;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Coder for B+Tree keys which share a fixed width prefix length, such as the
+ * keys of the statement indices, which are formed from a fixed #of
+ * term identifiers. The leading bytes of each key, up to
+ * the greatest multiple of 8 bytes which is not longer than the shortest key in
+ * the record, are stored as 64-bit words in a fixed width column. The remaining
+ * bytes of each key are stored separately together with an offset[], as for the
+ * {@link SimpleRabaCoder}.
+ * <p>
+ * Search compares the probe with the coded keys a word at a time, decoding the
+ * probe into words once per search rather than once per comparison. Since the
+ * words are big-endian, comparing two words as unsigned longs is the same as
+ * comparing their bytes as <code>unsigned byte[]</code>s, so a key is compared
+ * with at most one branch per 8 bytes and without materializing it. No
+ * compression is performed, so the record is about as large as for the
+ * {@link SimpleRabaCoder}.
+ * 
+ * <h2>Binary Format</h2>
+ * 
+ * <pre>
+ * version  : byte
+ * size     : int32
+ * nwords   : int32
+ * words    : size * nwords * int64
+ * offsets  : (size + 1) * int32
+ * suffixes : byte[]
+ * </pre>
+ * 
+ * where
+ * <dl>
+ * <dt>size</dt>
+ * <dd>The #of keys in the {@link IRaba}.</dd>
+ * <dt>nwords</dt>
+ * <dd>The #of 64-bit words in the fixed width prefix of each key.</dd>
+ * <dt>words</dt>
+ * <dd>The fixed width prefix of each key in big-endian order.</dd>
+ * <dt>offsets</dt>
+ * <dd>The byte offset from the start of the record of the remaining bytes of
+ * each key. The last offset is the end of the record.</dd>
+ * <dt>suffixes</dt>
+ * <dd>The remaining bytes of each key.</dd>
+ * </dl>
+ */
+public class FixedWidthPrefixRabaCoder implements IRabaCoder, Externalizable {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -3020719263411896528L;
+
+    /**
+     * The default maximum #of words in the fixed width prefix (32 bytes, which
+     * covers the prefix of a triple or quad of term identifiers).
+     */
+    public static final transient int DEFAULT_MAX_WORDS = 4;
+
+    public static final transient FixedWidthPrefixRabaCoder INSTANCE = new FixedWidthPrefixRabaCoder(
+            DEFAULT_MAX_WORDS);
+
+    private int maxWords;
+
+    @Override
+    public String toString() {
+
+        return super.toString() + "{maxWords=" + maxWords + "}";
+
+    }
+
+    /**
+     * De-serialization ctor. Use {@link #INSTANCE} otherwise.
+     */
+    public FixedWidthPrefixRabaCoder() {
+
+    }
+
+    /**
+     * @param maxWords
+     *            The maximum #of 64-bit words in the fixed width prefix. The
+     *            #of words actually used for a given record is also limited
+     *            by the length of the shortest key in that record.
+     */
+    public FixedWidthPrefixRabaCoder(final int maxWords) {
+
+        if (maxWords < 0)
+            throw new IllegalArgumentException();
+
+        this.maxWords = maxWords;
+
+    }
+
+    /**
+     * Yes.
+     */
+    @Override
+    final public boolean isKeyCoder() {
+
+        return true;
+
+    }
+
+    /**
+     * No.
+     */
+    @Override
+    final public boolean isValueCoder() {
+
+        return false;
+
+    }
+
+    @Override
+    public boolean isDuplicateKeys() {
+
+        return false;
+
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException,
+            ClassNotFoundException {
+
+        maxWords = in.readInt();
+
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+
+        out.writeInt(maxWords);
+
+    }
+
+    private static final byte VERSION0 = 0x00;
+
+    /** The size of the version field. */
+    static private final int SIZEOF_VERSION = Bytes.SIZEOF_BYTE;
+    /** The size of the size field. */
+    static private final int SIZEOF_SIZE = Bytes.SIZEOF_INT;
+    /** The size of the field coding the #of words in the prefix. */
+    static private final int SIZEOF_NWORDS = Bytes.SIZEOF_INT;
+    /** The size of a word in the prefix. */
+    static private final int SIZEOF_WORD = Bytes.SIZEOF_LONG;
+    /** The size of an element of the offset[]. */
+    static private final int SIZEOF_OFFSET = Bytes.SIZEOF_INT;
+
+    /** The byte offset to the version identifier. */
+    static private final int O_VERSION = 0;
+    /** The byte offset of the field coding the #of keys. */
+    static private final int O_SIZE = O_VERSION + SIZEOF_VERSION;
+    /** The byte offset of the field coding the #of words in the prefix. */
+    static private final int O_NWORDS = O_SIZE + SIZEOF_SIZE;
+    /** The byte offset of the prefix words. */
+    static private final int O_WORDS = O_NWORDS + SIZEOF_NWORDS;
+
+    @Override
+    public ICodedRaba encodeLive(final IRaba raba, final DataOutputBuffer buf) {
+
+        if (raba == null)
+            throw new IllegalArgumentException();
+
+        if (!raba.isKeys())
+            throw new UnsupportedOperationException("Must be keys.");
+
+        if (buf == null)
+            throw new IllegalArgumentException();
+
+        // The #of keys.
+        final int size = raba.size();
+
+        // The #of words in the prefix is limited by the shortest key.
+        int nwords = maxWords;
+        for (int i = 0; i < size && nwords > 0; i++) {
+
+            nwords = Math.min(nwords, raba.length(i) / SIZEOF_WORD);
+
+        }
+
+        // The #of bytes in the prefix.
+        final int width = nwords * SIZEOF_WORD;
+
+        // The byte offset of the origin of the coded data in the buffer.
+        final int O_origin = buf.pos();
+
+        // version
+        assert buf.pos() == O_VERSION + O_origin;
+        buf.putByte(VERSION0);
+
+        // #of keys.
+        assert buf.pos() == O_SIZE + O_origin;
+        buf.putInt(size);
+
+        // #of words in the prefix.
+        assert buf.pos() == O_NWORDS + O_origin;
+        buf.putInt(nwords);
+
+        // prefix words (big-endian, so just the leading bytes of each key).
+        assert buf.pos() == O_WORDS + O_origin;
+        for (int i = 0; i < size; i++) {
+
+            buf.put(raba.get(i), 0/* off */, width);
+
+        }
+
+        // offset[]
+        int lastOffset = O_WORDS + size * width + (size + 1) * SIZEOF_OFFSET;
+        for (int i = 0; i < size; i++) {
+
+            buf.putInt(lastOffset);
+
+            lastOffset += raba.length(i) - width;
+
+        }
+
+        buf.putInt(lastOffset);
+
+        // suffixes
+        for (int i = 0; i < size; i++) {
+
+            final byte[] a = raba.get(i);
+
+            buf.put(a, width/* off */, a.length - width);
+
+        }
+
+        assert buf.pos() == lastOffset + O_origin;
+
+        final AbstractFixedByteArrayBuffer slice = buf.slice(//
+                O_origin, buf.pos() - O_origin);
+
+        return new CodedRabaImpl(slice, size, nwords);
+
+    }
+
+    @Override
+    public AbstractFixedByteArrayBuffer encode(final IRaba raba,
+            final DataOutputBuffer buf) {
+
+        return encodeLive(raba, buf).data();
+
+    }
+
+    @Override
+    public ICodedRaba decode(final AbstractFixedByteArrayBuffer data) {
+
+        return new CodedRabaImpl(data);
+
+    }
+
+    /**
+     * Class provides in place access to the coded keys.
+     */
+    private static class CodedRabaImpl extends AbstractCodedRaba implements
+            IBatchSearch {
+
+        private final AbstractFixedByteArrayBuffer data;
+
+        /**
+         * The #of keys (cached).
+         */
+        private final int size;
+
+        /**
+         * The #of words in the prefix (cached).
+         */
+        private final int nwords;
+
+        /**
+         * The #of bytes in the prefix.
+         */
+        private final int width;
+
+        /**
+         * The byte offset of the offset[].
+         */
+        private final int O_offsets;
+
+        public CodedRabaImpl(final AbstractFixedByteArrayBuffer data) {
+
+            this(data, data.getInt(O_SIZE), data.getInt(O_NWORDS));
+
+            final byte version = data.getByte(O_VERSION);
+
+            if (version != VERSION0) {
+
+                throw new RuntimeException("Unknown version: " + version);
+
+            }
+
+        }
+
+        public CodedRabaImpl(final AbstractFixedByteArrayBuffer data,
+                final int size, final int nwords) {
+
+            if (data == null)
+                throw new IllegalArgumentException();
+
+            if (size < 0)
+                throw new IllegalArgumentException();
+
+            if (nwords < 0)
+                throw new IllegalArgumentException();
+
+            this.data = data;
+
+            this.size = size;
+
+            this.nwords = nwords;
+
+            this.width = nwords * SIZEOF_WORD;
+
+            this.O_offsets = O_WORDS + size * width;
+
+        }
+
+        @Override
+        final public AbstractFixedByteArrayBuffer data() {
+
+            return data;
+
+        }
+
+        /**
+         * Represents B+Tree keys.
+         */
+        @Override
+        final public boolean isKeys() {
+
+            return true;
+
+        }
+
+        @Override
+        final public int capacity() {
+
+            return size;
+
+        }
+
+        @Override
+        final public int size() {
+
+            return size;
+
+        }
+
+        @Override
+        final public boolean isEmpty() {
+
+            return size == 0;
+
+        }
+
+        @Override
+        final public boolean isFull() {
+
+            return true;
+
+        }
+
+        protected void rangeCheck(final int index) {
+
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException();
+
+        }
+
+        /**
+         * Always returns <code>false</code> (<code>null</code>s are not
+         * allowed).
+         */
+        @Override
+        final public boolean isNull(final int index) {
+
+            rangeCheck(index);
+
+            return false;
+
+        }
+
+        @Override
+        public int length(final int index) {
+
+            rangeCheck(index);
+
+            return width + suffixLength(index);
+
+        }
+
+        /**
+         * The #of bytes in the key after the fixed width prefix.
+         */
+        private int suffixLength(final int index) {
+
+            return data.getInt(O_offsets + (index + 1) * SIZEOF_OFFSET)
+                    - data.getInt(O_offsets + index * SIZEOF_OFFSET);
+
+        }
+
+        @Override
+        public byte[] get(final int index) {
+
+            rangeCheck(index);
+
+            final int slen = suffixLength(index);
+
+            final byte[] a = new byte[width + slen];
+
+            data.get(O_WORDS + index * width, a, 0/* dstoff */, width);
+
+            data.get(data.getInt(O_offsets + index * SIZEOF_OFFSET), a,
+                    width/* dstoff */, slen);
+
+            return a;
+
+        }
+
+        @Override
+        public int copy(final int index, final OutputStream os) {
+
+            rangeCheck(index);
+
+            final int slen = suffixLength(index);
+
+            try {
+
+                data.writeOn(os, O_WORDS + index * width, width);
+
+                data.writeOn(os, data.getInt(O_offsets + index
+                        * SIZEOF_OFFSET), slen);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return width + slen;
+
+        }
+
+        /*
+         * Search
+         */
+
+        @Override
+        public int search(final byte[] searchKey) {
+
+            if (searchKey == null)
+                throw new IllegalArgumentException();
+
+            final long[] words = new long[nwords];
+
+            toWords(searchKey, words);
+
+            return binarySearch(searchKey, words, 0/* low */, size - 1/* high */);
+
+        }
+
+        /**
+         * The probe words are decoded into a single array which is reused for
+         * each probe, and each probe is searched for by galloping forward from
+         * the insertion point of the previous probe.
+         */
+        @Override
+        public void search(final byte[][] searchKeys, final int fromIndex,
+                final int toIndex, final int[] ret) {
+
+            final long[] words = new long[nwords];
+
+            int low = 0;
+
+            for (int i = fromIndex; i < toIndex; i++) {
+
+                final byte[] searchKey = searchKeys[i];
+
+                if (searchKey == null)
+                    throw new IllegalArgumentException();
+
+                toWords(searchKey, words);
+
+                int high = size - 1;
+
+                // Gallop forward to bound the binary search.
+                int step = 1;
+
+                for (int j = low; j <= high; j += step, step <<= 1) {
+
+                    if (compare(j, searchKey, words) < 0) {
+
+                        // Actual LT probe.
+                        low = j + 1;
+
+                    } else {
+
+                        // Actual GTE probe.
+                        high = j;
+
+                        break;
+
+                    }
+
+                }
+
+                final int index = binarySearch(searchKey, words, low, high);
+
+                ret[i] = index;
+
+                low = index >= 0 ? index : -index - 1;
+
+            }
+
+        }
+
+        /**
+         * Decode the leading bytes of the probe into big-endian words. If the
+         * probe is shorter than the prefix then it is padded with zeros.
+         */
+        private void toWords(final byte[] key, final long[] words) {
+
+            for (int j = 0, k = 0; j < nwords; j++) {
+
+                long w = 0L;
+
+                for (int b = 0; b < SIZEOF_WORD; b++, k++) {
+
+                    w = (w << 8) | (k < key.length ? (0xffL & key[k]) : 0L);
+
+                }
+
+                words[j] = w;
+
+            }
+
+        }
+
+        /**
+         * Binary search of the keys in [low:high].
+         * 
+         * @return index of the search key, if it is found; otherwise,
+         *         <code>(-(insertion point) - 1)</code>.
+         */
+        private int binarySearch(final byte[] key, final long[] words,
+                int low, int high) {
+
+            while (low <= high) {
+
+                final int mid = (low + high) >>> 1;
+
+                final int tmp = compare(mid, key, words);
+
+                if (tmp < 0) {
+
+                    // Actual LT probe, restrict lower bound and try again.
+                    low = mid + 1;
+
+                } else if (tmp > 0) {
+
+                    // Actual GT probe, restrict upper bound and try again.
+                    high = mid - 1;
+
+                } else {
+
+                    // Actual EQ probe. Found : return offset.
+                    return mid;
+
+                }
+
+            }
+
+            // Not found: return insertion point.
+            return -(low + 1);
+
+        }
+
+        /**
+         * Compare the coded key at the index with the probe.
+         * 
+         * @param index
+         *            The index of the coded key.
+         * @param key
+         *            The probe.
+         * @param words
+         *            The leading bytes of the probe as decoded by
+         *            {@link #toWords(byte[], long[])}.
+         * 
+         * @return a negative integer, zero, or a positive integer as the coded
+         *         key is LT, EQ or GT the probe.
+         */
+        private int compare(final int index, final byte[] key,
+                final long[] words) {
+
+            int pos = O_WORDS + index * width;
+
+            for (int j = 0; j < nwords; j++, pos += SIZEOF_WORD) {
+
+                final long w = data.getLong(pos);
+
+                if (w != words[j]) {
+
+                    // unsigned comparison.
+                    return (w + Long.MIN_VALUE) < (words[j] + Long.MIN_VALUE) ? -1
+                            : 1;
+
+                }
+
+            }
+
+            if (key.length < width) {
+
+                /*
+                 * The probe is a proper prefix of the coded key (it was padded
+                 * with zeros, which can not be GT the bytes of the key).
+                 */
+                return 1;
+
+            }
+
+            final int aoff = data.getInt(O_offsets + index * SIZEOF_OFFSET);
+
+            final int alen = data.getInt(O_offsets + (index + 1)
+                    * SIZEOF_OFFSET)
+                    - aoff;
+
+            return BytesUtil.compareBytesWithLenAndOffset(//
+                    data.off() + aoff, alen, data.array(), //
+                    width, key.length - width, key);
+
+        }
+
+    }
+
+}
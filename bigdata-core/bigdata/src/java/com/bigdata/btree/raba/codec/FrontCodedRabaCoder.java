@@ -35,6 +35,7 @@ import java.util.Iterator;
 
 import org.apache.log4j.Logger;
 
+import com.bigdata.btree.raba.IBatchSearch;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.io.AbstractFixedByteArrayBuffer;
 import com.bigdata.io.DataOutputBuffer;
@@ -283,7 +284,8 @@ public class FrontCodedRabaCoder implements IRabaCoder, Externalizable {
      *         Thompson</a>
      * @version $Id$
      */
-    private static class CodedRabaImpl extends AbstractCodedRaba {
+    private static class CodedRabaImpl extends AbstractCodedRaba implements
+            IBatchSearch {
 
         private final AbstractFixedByteArrayBuffer data;
 
@@ -450,6 +452,17 @@ public class FrontCodedRabaCoder implements IRabaCoder, Externalizable {
 
         }
 
+        /**
+         * Resolves the probes in one forward pass over the coded record.
+         */
+        @Override
+        public void search(final byte[][] searchKeys, final int fromIndex,
+                final int toIndex, final int[] ret) {
+
+            decoder.search(searchKeys, fromIndex, toIndex, ret);
+
+        }
+
     }
 
 }
@@ -34,6 +34,7 @@ import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
+import com.bigdata.btree.raba.IBatchSearch;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.io.AbstractFixedByteArrayBuffer;
 import com.bigdata.io.DataOutputBuffer;
@@ -281,7 +282,8 @@ public class SimpleRabaCoder implements IRabaCoder, Externalizable {
      * @author <a href="mailto:thompsonbry@users.sourceforge.net">Bryan Thompson</a>
      * @version $Id$
      */
-    private static class CodedRabaImpl extends AbstractCodedRaba {
+    private static class CodedRabaImpl extends AbstractCodedRaba implements
+            IBatchSearch {
 
         /**
          * The #of entries (cached).
@@ -537,7 +539,86 @@ public class SimpleRabaCoder implements IRabaCoder, Externalizable {
 
             if (!isKeys())
                 throw new UnsupportedOperationException();
-            
+
+            return search(key, 0/* low */, size - 1/* high */);
+
+        }
+
+        /**
+         * Each probe is searched for by galloping forward from the insertion
+         * point of the previous probe.
+         */
+        @Override
+        public void search(final byte[][] searchKeys, final int fromIndex,
+                final int toIndex, final int[] ret) {
+
+            if (!isKeys())
+                throw new UnsupportedOperationException();
+
+            int low = 0;
+
+            for (int i = fromIndex; i < toIndex; i++) {
+
+                final byte[] key = searchKeys[i];
+
+                int high = size - 1;
+
+                // Gallop forward to bound the binary search.
+                int step = 1;
+
+                for (int j = low; j <= high; j += step, step <<= 1) {
+
+                    if (compare(j, key) < 0) {
+
+                        // Actual LT probe.
+                        low = j + 1;
+
+                    } else {
+
+                        // Actual GTE probe.
+                        high = j;
+
+                        break;
+
+                    }
+
+                }
+
+                final int index = search(key, low, high);
+
+                ret[i] = index;
+
+                low = index >= 0 ? index : -index - 1;
+
+            }
+
+        }
+
+        /**
+         * Compare the byte[] at the index with the probe.
+         */
+        private int compare(final int index, final byte[] key) {
+
+            // offset into the buffer of the start of that byte[].
+            final int aoff = data.getInt(O_offsets + index * SIZEOF_OFFSET);
+
+            // length of that byte[].
+            final int alen = data.getInt(O_offsets + (index + 1)
+                    * SIZEOF_OFFSET)
+                    - aoff;
+
+            // compare actual data vs probe key.
+            return BytesUtil.compareBytesWithLenAndOffset(//
+                    data.off() + aoff, alen, data.array(), //
+                    0, key.length, key);
+
+        }
+
+        /**
+         * Binary search of the entries in [low:high].
+         */
+        private int search(final byte[] key, int low, int high) {
+
             /*
              * Note: base, mid, low, and high are offsets into the offset[]. The
              * offset[] has size+1 entries, but only the first size entries
@@ -547,31 +628,15 @@ public class SimpleRabaCoder implements IRabaCoder, Externalizable {
              */
             
             final int base = 0;
-            final int nmem = size;
     
-            int low = 0;
-
-            int high = nmem - 1;
-
             while (low <= high) {
 
                 final int mid = (low + high) >> 1;
 
                 final int offset = base + mid;
 
-                // offset into the buffer of the start of that byte[].
-                final int aoff = data
-                        .getInt(O_offsets + offset * SIZEOF_OFFSET);
-
-                // length of that byte[].
-                final int alen = data.getInt(O_offsets + (offset + 1)
-                        * SIZEOF_OFFSET)
-                        - aoff;
-
                 // compare actual data vs probe key.
-                final int tmp = BytesUtil.compareBytesWithLenAndOffset(//
-                        data.off() + aoff, alen, data.array(), //
-                        0, key.length, key);
+                final int tmp = compare(offset, key);
 
                 if (tmp < 0) {
 
@@ -45,6 +45,7 @@ import org.apache.system.SystemUtil;
 
 import com.bigdata.Banner;
 import com.bigdata.BigdataStatics;
+import com.bigdata.btree.PageCache;
 import com.bigdata.counters.httpd.CounterSetHTTPD;
 import com.bigdata.counters.linux.StatisticsCollectorForLinux;
 import com.bigdata.counters.osx.StatisticsCollectorForOSX;
@@ -344,6 +345,19 @@ abstract public class AbstractStatisticsCollector implements IStatisticsCollecto
 //                        LRUNexus.INSTANCE.getCounterSet());
 //
 //            }
+
+            if (PageCache.INSTANCE != null) {
+
+                /*
+                 * Add counters reporting on the JVM wide B+Tree page cache.
+                 */
+
+                serviceRoot.makePath(
+                        IProcessCounters.Memory + ICounterSet.pathSeparator
+                                + "PageCache").attach(
+                        PageCache.INSTANCE.getCounters());
+
+            }
             
         }
         
@@ -0,0 +1,238 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link OutputStream} which compresses fixed size chunks of the data in
+ * parallel. Each chunk is written as a separate GZIP member, so the output is
+ * a valid GZIP file which may be read using a {@link GZIPInputStream} or
+ * <code>gunzip</code>. The chunks are written in order.
+ * <p>
+ * This class is NOT thread-safe.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    private final ExecutorService executor;
+
+    private final int chunkSize;
+
+    /**
+     * The maximum #of chunks which may be compressed concurrently before the
+     * writer blocks.
+     */
+    private final int maxPending;
+
+    private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+    private byte[] buf;
+
+    private int n = 0;
+
+    private boolean open = true;
+
+    /**
+     * @param out
+     *            The compressed data are written onto this stream.
+     * @param executor
+     *            The chunks are compressed by tasks submitted to this service.
+     * @param chunkSize
+     *            The #of bytes in each chunk (except the last).
+     */
+    public ParallelGZIPOutputStream(final OutputStream out,
+            final ExecutorService executor, final int chunkSize) {
+
+        if (out == null)
+            throw new IllegalArgumentException();
+
+        if (executor == null)
+            throw new IllegalArgumentException();
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        this.out = out;
+
+        this.executor = executor;
+
+        this.chunkSize = chunkSize;
+
+        this.maxPending = 2 * Runtime.getRuntime().availableProcessors();
+
+        this.buf = new byte[chunkSize];
+
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+
+        if (n == chunkSize)
+            submit();
+
+        buf[n++] = (byte) b;
+
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+
+        while (len > 0) {
+
+            if (n == chunkSize)
+                submit();
+
+            final int m = Math.min(len, chunkSize - n);
+
+            System.arraycopy(b, off, buf, n, m);
+
+            n += m;
+
+            off += m;
+
+            len -= m;
+
+        }
+
+    }
+
+    /**
+     * Submit the buffered data for compression.
+     */
+    private void submit() throws IOException {
+
+        if (!open)
+            throw new IOException("Closed");
+
+        if (n == 0)
+            return;
+
+        final byte[] a = buf;
+
+        final int len = n;
+
+        pending.add(executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                        len / 2);
+                final GZIPOutputStream gz = new GZIPOutputStream(baos);
+                gz.write(a, 0, len);
+                gz.close();
+                return baos.toByteArray();
+            }
+        }));
+
+        buf = new byte[chunkSize];
+
+        n = 0;
+
+        while (pending.size() > maxPending)
+            writeNext();
+
+    }
+
+    /**
+     * Write the next compressed chunk.
+     */
+    private void writeNext() throws IOException {
+
+        final Future<byte[]> f = pending.removeFirst();
+
+        try {
+
+            out.write(f.get());
+
+        } catch (InterruptedException ex) {
+
+            throw new IOException(ex);
+
+        } catch (ExecutionException ex) {
+
+            throw new IOException(ex);
+
+        }
+
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: Any buffered data are compressed as a (short) chunk.
+     */
+    @Override
+    public void flush() throws IOException {
+
+        submit();
+
+        while (!pending.isEmpty())
+            writeNext();
+
+        out.flush();
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (!open)
+            return;
+
+        try {
+
+            flush();
+
+        } finally {
+
+            open = false;
+
+            for (Future<byte[]> f : pending)
+                f.cancel(true/* mayInterruptIfRunning */);
+
+            pending.clear();
+
+            out.close();
+
+        }
+
+    }
+
+}
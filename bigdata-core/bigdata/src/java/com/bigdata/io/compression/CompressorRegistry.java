@@ -54,6 +54,13 @@ public class CompressorRegistry {
      * @see GZipCompressor
      */
     final public static String GZIP = "GZIP";
+
+    /**
+     * Key for LZ4 block compression (fast, with a lower compression ratio).
+     * 
+     * @see LZ4Compressor
+     */
+    final public static String LZ4 = "LZ4";
     
     /**
      * Key for no compression.
@@ -80,6 +87,7 @@ public class CompressorRegistry {
 		add(DEFLATE_BEST_SPEED, new RecordCompressor(Deflater.BEST_SPEED));
 		add(DEFLATE_BEST_COMPRESSION, new RecordCompressor(Deflater.BEST_COMPRESSION));
 		add(GZIP, new GZipCompressor());
+		add(LZ4, new LZ4Compressor());
 		add(NOP, new NOPRecordCompressor());
 	}
 	
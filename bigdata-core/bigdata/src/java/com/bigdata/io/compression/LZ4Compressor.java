@@ -0,0 +1,454 @@
+/**
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.io.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 compressor using the LZ4 block format. This trades compression
+ * ratio for speed and is intended for payloads such as the write cache
+ * buffers replicated along the HA write pipeline, where {@link RecordCompressor}
+ * would be CPU bound before the network is saturated.
+ * <p>
+ * The compressed record is the #of uncompressed bytes (a 4 byte int) followed
+ * by a single LZ4 block. The record is decompressed into a new buffer.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @see CompressorRegistry#LZ4
+ * 
+ * @see <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">
+ *      LZ4 Block Format </a>
+ */
+public class LZ4Compressor implements IRecordCompressor, Serializable {
+
+    private static final long serialVersionUID = 4136781295436541932L;
+
+    /**
+     * The minimum match length.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The last bytes of a block are always literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * A match may not start within this many bytes of the end of a block.
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * The maximum distance back to the start of a match.
+     */
+    private static final int MAX_DISTANCE = 0xFFFF;
+
+    /**
+     * The #of bits in the hash of a 4 byte sequence.
+     */
+    private static final int HASH_LOG = 12;
+
+    /**
+     * The match search skips ahead faster in data which does not compress.
+     */
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * The worst case size of the compressed record for <i>len</i> bytes.
+     */
+    static int maxCompressedLength(final int len) {
+
+        return 4 + len + len / 255 + 16;
+
+    }
+
+    @Override
+    public void compress(final ByteBuffer bin, final ByteBuffer out) {
+
+        out.put(compress(bin));
+
+    }
+
+    @Override
+    public ByteBuffer compress(final ByteBuffer bin) {
+
+        final byte[] a;
+        final int off;
+        final int len = bin.remaining();
+
+        if (bin.hasArray()) {
+
+            a = bin.array();
+
+            off = bin.arrayOffset() + bin.position();
+
+            bin.position(bin.limit());
+
+        } else {
+
+            a = new byte[len];
+
+            off = 0;
+
+            bin.get(a);
+
+        }
+
+        final byte[] dst = new byte[maxCompressedLength(len)];
+
+        final int n = compress(a, off, len, dst);
+
+        return ByteBuffer.wrap(dst, 0, n);
+
+    }
+
+    @Override
+    public void compress(final ByteBuffer bin, final OutputStream os) {
+
+        final ByteBuffer b = compress(bin);
+
+        write(b.array(), b.limit(), os);
+
+    }
+
+    @Override
+    public void compress(final byte[] bytes, final OutputStream os) {
+
+        compress(bytes, 0, bytes.length, os);
+
+    }
+
+    @Override
+    public void compress(final byte[] bytes, final int off, final int len,
+            final OutputStream os) {
+
+        final byte[] dst = new byte[maxCompressedLength(len)];
+
+        write(dst, compress(bytes, off, len, dst), os);
+
+    }
+
+    private static void write(final byte[] a, final int len,
+            final OutputStream os) {
+
+        try {
+
+            os.write(a, 0, len);
+
+        } catch (IOException e) {
+
+            throw new RuntimeException(e);
+
+        }
+
+    }
+
+    @Override
+    public ByteBuffer decompress(final ByteBuffer bin) {
+
+        if (bin.hasArray()) {
+
+            return decompress(bin.array(), bin.arrayOffset() + bin.position(),
+                    bin.remaining());
+
+        }
+
+        final byte[] a = new byte[bin.remaining()];
+
+        bin.duplicate().get(a);
+
+        return decompress(a, 0, a.length);
+
+    }
+
+    @Override
+    public ByteBuffer decompress(final byte[] bin) {
+
+        return decompress(bin, 0, bin.length);
+
+    }
+
+    private static int hash(final int i) {
+
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+
+    }
+
+    private static int readInt(final byte[] a, final int i) {
+
+        return (a[i] & 0xFF) | ((a[i + 1] & 0xFF) << 8)
+                | ((a[i + 2] & 0xFF) << 16) | ((a[i + 3] & 0xFF) << 24);
+
+    }
+
+    /**
+     * Compress <i>len</i> bytes from <i>src</i> onto <i>dst</i>.
+     * 
+     * @return The #of bytes written on <i>dst</i>.
+     */
+    static int compress(final byte[] src, final int off, final int len,
+            final byte[] dst) {
+
+        // the uncompressed length.
+        dst[0] = (byte) (len >>> 24);
+        dst[1] = (byte) (len >>> 16);
+        dst[2] = (byte) (len >>> 8);
+        dst[3] = (byte) len;
+
+        int dp = 4;
+
+        final int end = off + len;
+
+        int anchor = off;
+
+        if (len > MF_LIMIT) {
+
+            final int[] table = new int[1 << HASH_LOG];
+
+            Arrays.fill(table, -1);
+
+            final int matchLimit = end - MF_LIMIT;
+
+            int sp = off;
+
+            while (sp < matchLimit) {
+
+                final int h = hash(readInt(src, sp));
+
+                final int ref = table[h];
+
+                table[h] = sp;
+
+                if (ref < 0 || sp - ref > MAX_DISTANCE
+                        || readInt(src, ref) != readInt(src, sp)) {
+
+                    sp += 1 + ((sp - anchor) >>> SKIP_STRENGTH);
+
+                    continue;
+
+                }
+
+                // extend the match backwards over the pending literals.
+                int s = sp, r = ref;
+
+                while (s > anchor && r > off && src[s - 1] == src[r - 1]) {
+                    s--;
+                    r--;
+                }
+
+                // extend the match forwards.
+                int ml = MIN_MATCH + (sp - s);
+
+                while (s + ml < end - LAST_LITERALS
+                        && src[s + ml] == src[r + ml]) {
+                    ml++;
+                }
+
+                dp = writeSequence(src, anchor, s - anchor, s - r, ml, dst, dp);
+
+                sp = anchor = s + ml;
+
+                if (sp - 2 < matchLimit)
+                    table[hash(readInt(src, sp - 2))] = sp - 2;
+
+            }
+
+        }
+
+        // the last literals.
+        return writeSequence(src, anchor, end - anchor, 0/* offset */,
+                0/* matchLen */, dst, dp);
+
+    }
+
+    /**
+     * Write a sequence. A sequence without a match ends the block.
+     */
+    private static int writeSequence(final byte[] src, final int litOff,
+            final int litLen, final int offset, final int matchLen,
+            final byte[] dst, int dp) {
+
+        final int tokenPos = dp++;
+
+        int token = (litLen >= 15 ? 15 : litLen) << 4;
+
+        if (litLen >= 15)
+            dp = writeLength(litLen - 15, dst, dp);
+
+        System.arraycopy(src, litOff, dst, dp, litLen);
+
+        dp += litLen;
+
+        if (matchLen > 0) {
+
+            dst[dp++] = (byte) offset;
+            dst[dp++] = (byte) (offset >>> 8);
+
+            final int m = matchLen - MIN_MATCH;
+
+            token |= m >= 15 ? 15 : m;
+
+            if (m >= 15)
+                dp = writeLength(m - 15, dst, dp);
+
+        }
+
+        dst[tokenPos] = (byte) token;
+
+        return dp;
+
+    }
+
+    private static int writeLength(int n, final byte[] dst, int dp) {
+
+        while (n >= 255) {
+            dst[dp++] = (byte) 0xFF;
+            n -= 255;
+        }
+
+        dst[dp++] = (byte) n;
+
+        return dp;
+
+    }
+
+    /**
+     * Decompress a record.
+     * 
+     * @throws IllegalArgumentException
+     *             if the record is malformed.
+     */
+    static ByteBuffer decompress(final byte[] src, final int off, final int len) {
+
+        if (len < 5)
+            throw new IllegalArgumentException();
+
+        final int n = ((src[off] & 0xFF) << 24) | ((src[off + 1] & 0xFF) << 16)
+                | ((src[off + 2] & 0xFF) << 8) | (src[off + 3] & 0xFF);
+
+        if (n < 0)
+            throw new IllegalArgumentException();
+
+        final byte[] dst = new byte[n];
+
+        final int end = off + len;
+
+        int sp = off + 4, dp = 0;
+
+        try {
+
+            while (true) {
+
+                final int token = src[sp++] & 0xFF;
+
+                int litLen = token >>> 4;
+
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        litLen += b;
+                    } while (b == 255);
+                }
+
+                if (sp + litLen > end || dp + litLen > n)
+                    throw new IllegalArgumentException();
+
+                System.arraycopy(src, sp, dst, dp, litLen);
+
+                sp += litLen;
+
+                dp += litLen;
+
+                if (sp == end) {
+                    // the last sequence has no match.
+                    break;
+                }
+
+                final int offset = (src[sp++] & 0xFF)
+                        | ((src[sp++] & 0xFF) << 8);
+
+                int matchLen = token & 0x0F;
+
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+
+                matchLen += MIN_MATCH;
+
+                int ref = dp - offset;
+
+                if (offset == 0 || ref < 0 || dp + matchLen > n)
+                    throw new IllegalArgumentException();
+
+                if (offset >= matchLen) {
+
+                    System.arraycopy(dst, ref, dst, dp, matchLen);
+
+                    dp += matchLen;
+
+                } else {
+
+                    // overlapping copy.
+                    for (int i = 0; i < matchLen; i++)
+                        dst[dp++] = dst[ref++];
+
+                }
+
+            }
+
+        } catch (ArrayIndexOutOfBoundsException ex) {
+
+            throw new IllegalArgumentException(ex);
+
+        }
+
+        if (dp != n)
+            throw new IllegalArgumentException();
+
+        return ByteBuffer.wrap(dst);
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getName();
+
+    }
+
+}
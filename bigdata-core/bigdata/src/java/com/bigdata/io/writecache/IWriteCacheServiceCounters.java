@@ -87,6 +87,26 @@ public interface IWriteCacheServiceCounters {
      */
     String NSEND = "nsend";
 
+    /**
+     * The #of bytes in the {@link WriteCache} blocks sent by the leader to the
+     * first downstream follower before compression.
+     */
+    String NSEND_BYTES = "nsendBytes";
+
+    /**
+     * The #of bytes actually sent by the leader to the first downstream
+     * follower for those {@link WriteCache} blocks (after compression).
+     * 
+     * @see com.bigdata.journal.Options#HALOG_COMPRESSOR
+     */
+    String NSEND_WIRE_BYTES = "nsendWireBytes";
+
+    /**
+     * The #of bytes which compression saved on the write pipeline (the
+     * difference between {@link #NSEND_BYTES} and {@link #NSEND_WIRE_BYTES}).
+     */
+    String NSEND_BYTES_SAVED = "nsendBytesSaved";
+
     /**
      * The #of {@link WriteCache} buffers evicted to the backing channel.
      * <p>
@@ -1589,6 +1589,10 @@ abstract public class WriteCache implements IWriteCache {
          * compression will be used.
          */
         private final ByteBuffer m_data;
+        /**
+         * The #of bytes in the write cache buffer before compression.
+         */
+        private final int m_size;
 
         /**
          * 
@@ -1597,10 +1601,15 @@ abstract public class WriteCache implements IWriteCache {
          * @param data
          *            The data as it will be sent, with compression already
          *            applied if compression will be used.
+         * @param size
+         *            The #of bytes in the write cache buffer before
+         *            compression.
          */
-        HAPackage(final IHAWriteMessage msg, final ByteBuffer data) {
+        HAPackage(final IHAWriteMessage msg, final ByteBuffer data,
+                final int size) {
             m_msg = msg;
             m_data = data;
+            m_size = size;
         }
 
         public IHAWriteMessage getMessage() {
@@ -1610,6 +1619,15 @@ abstract public class WriteCache implements IWriteCache {
         public ByteBuffer getData() {
             return m_data;
         }
+
+        /**
+         * The #of bytes in the write cache buffer before compression. This is
+         * the same as the #of bytes in {@link #getData()} unless the buffer
+         * was compressed.
+         */
+        public int getSize() {
+            return m_size;
+        }
     }
     
     /**
@@ -1626,6 +1644,12 @@ abstract public class WriteCache implements IWriteCache {
     /**
      * Return the RMI message object plus the payload (the payload has been
      * optionally compressed, depending on the configuration).
+     * <p>
+     * Note: The decision to compress is made for each buffer. A buffer which
+     * does not become smaller when compressed is sent as is and its message
+     * does not specify a compressor key. The receiver (and the HALog, which
+     * stores the payload as it was sent) always expands the payload using the
+     * key on the message.
      */
     final HAPackage newHAPackage(//
             final UUID storeUUID,//
@@ -1642,7 +1666,7 @@ abstract public class WriteCache implements IWriteCache {
 
         final ByteBuffer send;
 
-        final String compressorKey  = getCompressorKey();
+        String compressorKey  = getCompressorKey();
         
         final IRecordCompressor compressor = CompressorRegistry.getInstance()
                 .get(compressorKey);
@@ -1650,7 +1674,20 @@ abstract public class WriteCache implements IWriteCache {
         if (compressor != null) {
         
             // Compress current buffer
-            send = compressor.compress(b);
+            final ByteBuffer tmp = compressor.compress(b.duplicate());
+
+            if (tmp.limit() < b.limit()) {
+
+                send = tmp;
+
+            } else {
+
+                // Not worth it: send the buffer as is.
+                send = b;
+
+                compressorKey = null;
+
+            }
 
         } else {
             
@@ -1674,7 +1711,7 @@ abstract public class WriteCache implements IWriteCache {
             log.trace("Original buffer: " + b.limit() + ", final buffer: " + send.limit() + ", compressorKey: " + compressorKey + ", checksum: " + chksum);
         }
         
-        return new HAPackage(msg, send);
+        return new HAPackage(msg, send, b.limit());
     	
     }
 
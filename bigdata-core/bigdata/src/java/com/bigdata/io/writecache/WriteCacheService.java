@@ -1467,7 +1467,13 @@ the clear/dirty list threshold)
                     remoteWriteFuture = quorumMember.replicate(null/* req */,
                             pkg.getMessage(), pkg.getData().duplicate());
 
-                    counters.get().nsend++;
+                    final WriteCacheServiceCounters c = counters.get();
+
+                    c.nsend++;
+
+                    c.nsendBytes += pkg.getSize();
+
+                    c.nsendWireBytes += pkg.getData().limit();
 
                 }
 
@@ -99,6 +99,18 @@ public class WriteCacheServiceCounters extends WriteCacheCounters implements
      */
     public volatile long nsend;
 
+    /**
+     * The #of bytes in the {@link WriteCache} blocks sent by the leader to the
+     * first downstream follower (before compression).
+     */
+    public volatile long nsendBytes;
+
+    /**
+     * The #of bytes sent by the leader to the first downstream follower for
+     * those {@link WriteCache} blocks (after compression).
+     */
+    public volatile long nsendWireBytes;
+
     /**
      * The #of {@link WriteCache} buffers written to the disk.
      */
@@ -227,6 +239,27 @@ public class WriteCacheServiceCounters extends WriteCacheCounters implements
             }
         });
 
+        root.addCounter(NSEND_BYTES, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nsendBytes);
+            }
+        });
+
+        root.addCounter(NSEND_WIRE_BYTES, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nsendWireBytes);
+            }
+        });
+
+        root.addCounter(NSEND_BYTES_SAVED, new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(nsendBytes - nsendWireBytes);
+            }
+        });
+
         root.addCounter(NBUFFER_EVICTED_TO_CHANNEL, new Instrument<Long>() {
             @Override
             public void sample() {
@@ -79,6 +79,7 @@ import com.bigdata.btree.IRangeQuery;
 import com.bigdata.btree.ITuple;
 import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
+import com.bigdata.btree.PageCache;
 import com.bigdata.btree.keys.ICUVersionRecord;
 import com.bigdata.btree.view.FusedView;
 import com.bigdata.cache.ConcurrentWeakValueCache;
@@ -1949,6 +1950,20 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 //
 //		}
 
+		if (PageCache.INSTANCE != null) {
+
+			try {
+
+				PageCache.INSTANCE.deleteCache(getUUID());
+
+			} catch (Throwable t) {
+
+				log.error(t, t);
+
+			}
+
+		}
+
 		if (deleteOnClose) {
 
 			/*
@@ -2002,6 +2017,20 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 //
 //			}
 
+			if (PageCache.INSTANCE != null) {
+
+				try {
+
+					PageCache.INSTANCE.deleteCache(getUUID());
+
+				} catch (Throwable t) {
+
+					log.error(t, t);
+
+				}
+
+			}
+
 		}
 
 		ResourceManager.deleteJournal(getFile() == null ? null : getFile().toString());
@@ -2843,6 +2872,18 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 //
 //			}
 
+			if (PageCache.INSTANCE != null) {
+
+				/*
+				 * Discard the cached records for this store. The addresses
+				 * written since the last commit may be reissued after the
+				 * abort.
+				 */
+
+				PageCache.INSTANCE.deleteCache(getUUID());
+
+			}
+
 			/*
 			 * The buffer strategy has a hook which is used to discard buffered
 			 * writes. This is both an optimization (it ensures that those
@@ -6937,6 +6978,27 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
      * @throws IOException 
      */
 	public ISnapshotData snapshotAllocationData(final AtomicReference<IRootBlockView> rbv) throws IOException {
+		return snapshotAllocationData(rbv, null/* writes */);
+	}
+
+    /**
+     * Variant which also captures the writes since the last snapshot for an
+     * {@link RWStore} (atomically with the allocation data).
+     * 
+     * @param rbv
+     *            The current root block is set on this reference.
+     * @param writes
+     *            When non-<code>null</code>, the extents of the allocation
+     *            slots committed since the last snapshot are added to this
+     *            object and the writes are then tracked for the next snapshot
+     *            (this is ignored unless the backing store is an
+     *            {@link RWStore}).
+     * 
+     * @see RWStore#snapshotWrites(IncrementalSnapshot, long)
+     */
+	public ISnapshotData snapshotAllocationData(
+			final AtomicReference<IRootBlockView> rbv,
+			final IncrementalSnapshot writes) throws IOException {
 		final Lock lock = _fieldReadWriteLock.readLock();
 
 		lock.lock();
@@ -6966,6 +7028,13 @@ public abstract class AbstractJournal implements IJournal/* , ITimestampService
 				
 				// get committed allocations
 				rws.snapshotAllocators(tm);
+
+				if (writes != null) {
+					// get the writes since the last snapshot.
+					writes.setParentCommitCounter(rws.snapshotWrites(
+							writes.isCollecting() ? writes : null, rbv.get()
+									.getCommitCounter()));
+				}
 			}
 			
 			
@@ -50,5 +50,11 @@ public interface ISnapshotResult {
     * <code>true</code> iff the snapshot was compressed.
     */
    boolean getCompressed();
+
+   /**
+    * <code>true</code> iff the snapshot is an {@link IncrementalSnapshot}
+    * which must be applied to the journal restored from the previous snapshot.
+    */
+   boolean isIncremental();
    
 }
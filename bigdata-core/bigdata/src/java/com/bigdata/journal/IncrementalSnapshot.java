@@ -0,0 +1,696 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.journal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.io.FileChannelUtility;
+import com.bigdata.io.NOPReopener;
+import com.bigdata.io.compression.CompressorRegistry;
+import com.bigdata.io.compression.IRecordCompressor;
+import com.bigdata.journal.AbstractJournal.ISnapshotData;
+import com.bigdata.journal.AbstractJournal.ISnapshotEntry;
+import com.bigdata.rwstore.RWStore;
+import com.bigdata.util.Bytes;
+
+/**
+ * An incremental snapshot of an {@link RWStore} journal. The snapshot records
+ * the allocation slots which were committed since the previous snapshot
+ * together with the root blocks, metabits and allocators as of the commit
+ * point of the snapshot. Applying the incremental snapshots in order to a
+ * journal restored from a full snapshot reproduces the journal as of the last
+ * incremental snapshot.
+ * <p>
+ * The file format is:
+ * 
+ * <pre>
+ * magic:int, version:int, parentCommitCounter:long, commitCounter:long,
+ * fileExtent:long, compressorKey:UTF, chunk*, 0:int
+ * </pre>
+ * 
+ * where each chunk is
+ * 
+ * <pre>
+ * nextents:int, (offset:long, length:int)[nextents], nbytes:int, byte[nbytes]
+ * </pre>
+ * 
+ * The data for the extents of a chunk are concatenated and compressed as a
+ * single record using the {@link IRecordCompressor} identified by the
+ * <code>compressorKey</code> (if any). The chunks are compressed in parallel.
+ * 
+ * @see SnapshotTask
+ * @see RWStore#snapshotWrites(IncrementalSnapshot, long)
+ */
+public class IncrementalSnapshot {
+
+    private static final Logger log = Logger
+            .getLogger(IncrementalSnapshot.class);
+
+    static final int MAGIC = 0x49534e50;
+
+    static final int VERSION0 = 0;
+
+    /**
+     * The maximum #of bytes of data in a chunk.
+     */
+    static final int CHUNK_SIZE = Bytes.megabyte32;
+
+    /**
+     * The compressor used for the chunks of a compressed incremental snapshot.
+     * This must be thread-safe since the chunks are compressed in parallel.
+     */
+    static final String COMPRESSOR_KEY = CompressorRegistry.LZ4;
+
+    /**
+     * When <code>false</code> the extents are not collected and this object
+     * only serves to begin tracking the writes for the next snapshot.
+     */
+    private final boolean collect;
+
+    /**
+     * The extents of the committed allocation slots written since the parent
+     * snapshot, keyed by their offset. Adjacent extents are coalesced.
+     */
+    private final TreeMap<Long, Integer> extents = new TreeMap<Long, Integer>();
+
+    private long nbytes = 0L;
+
+    private long parentCommitCounter = -1L;
+
+    /**
+     * @param collect
+     *            When <code>false</code> the extents are not collected (used
+     *            for a full snapshot, after which the next snapshot may be
+     *            incremental).
+     */
+    public IncrementalSnapshot(final boolean collect) {
+
+        this.collect = collect;
+
+    }
+
+    /**
+     * <code>true</code> iff the extents are being collected.
+     */
+    public boolean isCollecting() {
+
+        return collect;
+
+    }
+
+    /**
+     * <code>true</code> iff this is a valid delta against its parent
+     * snapshot.
+     */
+    public boolean isIncremental() {
+
+        return collect && parentCommitCounter != -1L;
+
+    }
+
+    /**
+     * The commit counter of the snapshot to which this snapshot is a delta
+     * -or- -1L if there is no such snapshot.
+     */
+    public long getParentCommitCounter() {
+
+        return parentCommitCounter;
+
+    }
+
+    void setParentCommitCounter(final long parentCommitCounter) {
+
+        this.parentCommitCounter = parentCommitCounter;
+
+    }
+
+    /**
+     * The #of (coalesced) extents.
+     */
+    public int getExtentCount() {
+
+        return extents.size();
+
+    }
+
+    /**
+     * The #of bytes in the extents.
+     */
+    public long getByteCount() {
+
+        return nbytes;
+
+    }
+
+    /**
+     * Add an extent which was written since the parent snapshot.
+     * 
+     * @param offset
+     *            The offset in the backing file.
+     * @param length
+     *            The #of bytes.
+     */
+    public void addExtent(final long offset, final int length) {
+
+        if (offset < 0L || length <= 0)
+            throw new IllegalArgumentException();
+
+        if (!collect)
+            return;
+
+        long start = offset;
+        long end = offset + length;
+
+        final Map.Entry<Long, Integer> prior = extents.floorEntry(offset);
+
+        if (prior != null && prior.getKey() + prior.getValue() >= offset) {
+
+            // merge with the prior extent.
+            start = prior.getKey();
+            end = Math.max(end, start + prior.getValue());
+            extents.remove(start);
+            nbytes -= prior.getValue();
+
+        }
+
+        Map.Entry<Long, Integer> next;
+        while ((next = extents.ceilingEntry(start)) != null
+                && next.getKey() <= end) {
+
+            // merge with the next extent.
+            end = Math.max(end, next.getKey() + next.getValue());
+            extents.remove(next.getKey());
+            nbytes -= next.getValue();
+
+        }
+
+        // Note: large extents are split so the length fits in an int.
+        while (end - start > Integer.MAX_VALUE) {
+            extents.put(start, Integer.MAX_VALUE);
+            nbytes += Integer.MAX_VALUE;
+            start += Integer.MAX_VALUE;
+        }
+
+        extents.put(start, (int) (end - start));
+
+        nbytes += end - start;
+
+    }
+
+    /**
+     * A chunk of extents and their data.
+     */
+    private static class Chunk {
+
+        private final long[] offsets;
+        private final int[] lengths;
+        private int n = 0;
+        private final byte[] data;
+        private int size = 0;
+        private ByteBuffer stored;
+
+        Chunk(final int capacity) {
+            data = new byte[capacity];
+            offsets = new long[capacity / 64 + 16];
+            lengths = new int[offsets.length];
+        }
+
+        boolean isFull() {
+            return size == data.length || n == offsets.length;
+        }
+
+        boolean isEmpty() {
+            return n == 0;
+        }
+
+    }
+
+    /**
+     * Write the incremental snapshot.
+     * 
+     * @param bs
+     *            The backing store from which the data are read.
+     * @param overlays
+     *            The root blocks, metabits and allocators as of the commit
+     *            point of the snapshot. These are written after the data.
+     * @param commitCounter
+     *            The commit counter of the snapshot.
+     * @param fileExtent
+     *            The extent of the backing file.
+     * @param compress
+     *            When <code>true</code> the chunks are compressed.
+     * @param executor
+     *            Used to compress the chunks in parallel.
+     * @param os
+     *            The snapshot is written onto this stream.
+     */
+    void write(final IHABufferStrategy bs, final ISnapshotData overlays,
+            final long commitCounter, final long fileExtent,
+            final boolean compress, final ExecutorService executor,
+            final DataOutputStream os) throws IOException,
+            InterruptedException {
+
+        if (!isIncremental())
+            throw new IllegalStateException();
+
+        final IRecordCompressor compressor = compress ? CompressorRegistry
+                .getInstance().get(COMPRESSOR_KEY) : null;
+
+        os.writeInt(MAGIC);
+        os.writeInt(VERSION0);
+        os.writeLong(parentCommitCounter);
+        os.writeLong(commitCounter);
+        os.writeLong(fileExtent);
+        os.writeUTF(compress ? COMPRESSOR_KEY : "");
+
+        final int maxPending = 2 * Runtime.getRuntime().availableProcessors();
+
+        final LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+
+        try {
+
+            Chunk chunk = new Chunk(CHUNK_SIZE);
+
+            // The data written since the parent snapshot.
+            for (Map.Entry<Long, Integer> e : extents.entrySet()) {
+
+                long offset = e.getKey();
+
+                int remaining = e.getValue();
+
+                while (remaining > 0) {
+
+                    final int n = Math.min(remaining, chunk.data.length
+                            - chunk.size);
+
+                    bs.readRaw(offset, ByteBuffer.wrap(chunk.data, chunk.size,
+                            n));
+
+                    chunk = add(chunk, offset, n, compressor, executor,
+                            pending, maxPending, os);
+
+                    offset += n;
+
+                    remaining -= n;
+
+                }
+
+            }
+
+            // The root blocks, metabits and allocators.
+            final Iterator<ISnapshotEntry> itr = overlays.entries();
+
+            while (itr.hasNext()) {
+
+                final ISnapshotEntry e = itr.next();
+
+                final byte[] a = e.getData();
+
+                long offset = e.getAddress();
+
+                int off = 0;
+
+                while (off < a.length) {
+
+                    final int n = Math.min(a.length - off, chunk.data.length
+                            - chunk.size);
+
+                    System.arraycopy(a, off, chunk.data, chunk.size, n);
+
+                    chunk = add(chunk, offset, n, compressor, executor,
+                            pending, maxPending, os);
+
+                    offset += n;
+
+                    off += n;
+
+                }
+
+            }
+
+            if (!chunk.isEmpty())
+                pending.add(submit(chunk, compressor, executor));
+
+            while (!pending.isEmpty())
+                writeChunk(pending.removeFirst(), os);
+
+            // end of chunks.
+            os.writeInt(0);
+
+        } finally {
+
+            for (Future<Chunk> f : pending)
+                f.cancel(true/* mayInterruptIfRunning */);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("parentCommitCounter=" + parentCommitCounter
+                    + ", commitCounter=" + commitCounter + ", nextents="
+                    + extents.size() + ", nbytes=" + nbytes);
+
+    }
+
+    /**
+     * Add an extent whose data was just copied into the chunk, returning the
+     * chunk into which the next extent should be copied.
+     */
+    private static Chunk add(final Chunk chunk, final long offset,
+            final int n, final IRecordCompressor compressor,
+            final ExecutorService executor,
+            final LinkedList<Future<Chunk>> pending, final int maxPending,
+            final DataOutputStream os) throws IOException,
+            InterruptedException {
+
+        chunk.offsets[chunk.n] = offset;
+        chunk.lengths[chunk.n] = n;
+        chunk.n++;
+        chunk.size += n;
+
+        if (!chunk.isFull())
+            return chunk;
+
+        pending.add(submit(chunk, compressor, executor));
+
+        while (pending.size() > maxPending)
+            writeChunk(pending.removeFirst(), os);
+
+        return new Chunk(CHUNK_SIZE);
+
+    }
+
+    private static Future<Chunk> submit(final Chunk chunk,
+            final IRecordCompressor compressor, final ExecutorService executor) {
+
+        return executor.submit(new Callable<Chunk>() {
+            @Override
+            public Chunk call() throws Exception {
+                final ByteBuffer b = ByteBuffer.wrap(chunk.data, 0, chunk.size);
+                chunk.stored = compressor == null ? b : compressor.compress(b);
+                return chunk;
+            }
+        });
+
+    }
+
+    private static void writeChunk(final Future<Chunk> f,
+            final DataOutputStream os) throws IOException,
+            InterruptedException {
+
+        final Chunk chunk;
+        try {
+            chunk = f.get();
+        } catch (ExecutionException ex) {
+            throw new IOException(ex);
+        }
+
+        os.writeInt(chunk.n);
+
+        for (int i = 0; i < chunk.n; i++) {
+            os.writeLong(chunk.offsets[i]);
+            os.writeInt(chunk.lengths[i]);
+        }
+
+        final ByteBuffer b = chunk.stored;
+
+        os.writeInt(b.remaining());
+
+        os.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+
+    }
+
+    /**
+     * Apply an incremental snapshot to a journal file. The current commit
+     * point of the journal must be the parent of the incremental snapshot.
+     * 
+     * @param delta
+     *            The incremental snapshot.
+     * @param file
+     *            The journal file (not open).
+     * 
+     * @return The current root block of the journal after the snapshot was
+     *         applied.
+     * 
+     * @throws IOException
+     *             if the incremental snapshot does not follow the current
+     *             commit point of the journal.
+     */
+    public static IRootBlockView apply(final File delta, final File file)
+            throws IOException {
+
+        if (!delta.exists())
+            throw new FileNotFoundException(delta.getAbsolutePath());
+
+        if (!file.exists())
+            throw new FileNotFoundException(file.getAbsolutePath());
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+
+            final IRootBlockView current = readRootBlock(raf, file);
+
+            final DataInputStream is = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(delta)));
+
+            try {
+
+                if (is.readInt() != MAGIC)
+                    throw new IOException("Not an incremental snapshot: "
+                            + delta);
+
+                final int version = is.readInt();
+
+                if (version != VERSION0)
+                    throw new IOException("Unknown version: " + version);
+
+                final long parentCommitCounter = is.readLong();
+
+                final long commitCounter = is.readLong();
+
+                final long fileExtent = is.readLong();
+
+                final String compressorKey = is.readUTF();
+
+                if (parentCommitCounter != current.getCommitCounter())
+                    throw new IOException("Snapshot " + delta
+                            + " follows commitCounter=" + parentCommitCounter
+                            + ", but journal is at commitCounter="
+                            + current.getCommitCounter());
+
+                final IRecordCompressor compressor;
+                if (compressorKey.length() == 0) {
+                    compressor = null;
+                } else {
+                    compressor = CompressorRegistry.getInstance().get(
+                            compressorKey);
+                    if (compressor == null)
+                        throw new IOException("Unknown compressor: "
+                                + compressorKey);
+                }
+
+                if (raf.length() < fileExtent)
+                    raf.setLength(fileExtent);
+
+                final NOPReopener opener = new NOPReopener(raf);
+
+                int nextents;
+                while ((nextents = is.readInt()) != 0) {
+
+                    final long[] offsets = new long[nextents];
+                    final int[] lengths = new int[nextents];
+
+                    for (int i = 0; i < nextents; i++) {
+                        offsets[i] = is.readLong();
+                        lengths[i] = is.readInt();
+                    }
+
+                    final byte[] stored = new byte[is.readInt()];
+
+                    is.readFully(stored);
+
+                    final ByteBuffer data = compressor == null ? ByteBuffer
+                            .wrap(stored) : compressor.decompress(stored);
+
+                    int off = data.position();
+
+                    for (int i = 0; i < nextents; i++) {
+
+                        FileChannelUtility.writeAll(opener,
+                                ByteBuffer.wrap(data.array(), off, lengths[i]),
+                                offsets[i]);
+
+                        off += lengths[i];
+
+                    }
+
+                }
+
+                raf.setLength(fileExtent);
+
+                raf.getChannel().force(true/* metaData */);
+
+                final IRootBlockView rbv = readRootBlock(raf, file);
+
+                if (rbv.getCommitCounter() != commitCounter)
+                    throw new IOException("Expected commitCounter="
+                            + commitCounter + ", but journal is at "
+                            + rbv.getCommitCounter());
+
+                return rbv;
+
+            } catch (EOFException ex) {
+
+                throw new IOException("Truncated snapshot: " + delta, ex);
+
+            } finally {
+
+                is.close();
+
+            }
+
+        } finally {
+
+            raf.close();
+
+        }
+
+    }
+
+    private static IRootBlockView readRootBlock(final RandomAccessFile raf,
+            final File file) throws IOException {
+
+        return new RootBlockUtility(new NOPReopener(raf), file,
+                true/* validateChecksum */, false/* alternateRootBlock */,
+                false/* ignoreBadRootBlock */).rootBlock;
+
+    }
+
+    /**
+     * Restore a journal from a full snapshot and a chain of incremental
+     * snapshots.
+     * 
+     * @param snapshot
+     *            The full snapshot (compressed or not).
+     * @param deltas
+     *            The incremental snapshots taken since that snapshot, in the
+     *            order in which they were taken.
+     * @param dst
+     *            The journal file to be written. If the file exists, it must
+     *            be empty.
+     * 
+     * @return The current root block of the restored journal.
+     */
+    public static IRootBlockView restore(final File snapshot,
+            final List<File> deltas, final File dst) throws IOException {
+
+        if (isGZip(snapshot)) {
+
+            SnapshotTask.decompress(snapshot, dst);
+
+        } else {
+
+            if (dst.exists() && dst.length() != 0)
+                throw new IOException("Output file exists and is not empty: "
+                        + dst.getAbsolutePath());
+
+            final RandomAccessFile in = new RandomAccessFile(snapshot, "r");
+            try {
+                final RandomAccessFile out = new RandomAccessFile(dst, "rw");
+                try {
+                    FileChannelUtility.transferAll(in.getChannel(), 0L,
+                            in.length(), out, 0L);
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+
+        }
+
+        IRootBlockView rbv = null;
+
+        for (File delta : deltas) {
+
+            rbv = apply(delta, dst);
+
+        }
+
+        if (rbv == null) {
+
+            final RandomAccessFile raf = new RandomAccessFile(dst, "r");
+            try {
+                rbv = readRootBlock(raf, dst);
+            } finally {
+                raf.close();
+            }
+
+        }
+
+        return rbv;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the file begins with the GZIP magic.
+     */
+    private static boolean isGZip(final File file) throws IOException {
+
+        final InputStream is = new FileInputStream(file);
+        try {
+            return is.read() == 0x1f && is.read() == 0x8b;
+        } finally {
+            is.close();
+        }
+
+    }
+
+}
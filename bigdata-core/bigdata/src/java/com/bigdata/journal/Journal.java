@@ -2881,6 +2881,40 @@ public class Journal extends AbstractJournal implements IConcurrencyManager,
 
    }
 
+   /**
+    * Submit a task that will take a snapshot of the journal. When
+    * <i>incremental</i> is <code>true</code>, the snapshot records only the
+    * allocation slots committed since the last snapshot taken by this journal
+    * if possible (see {@link IncrementalSnapshot}).
+    * 
+    * @param snapshotFactory
+    *           The factory that will provide the name of the file on which the
+    *           snapshot will be written.
+    * @param incremental
+    *           When <code>true</code>, an incremental snapshot is requested.
+    *           A full snapshot is taken if there is no previous snapshot since
+    *           the journal was opened or if the backing store is not an
+    *           {@link RWStore}.
+    * 
+    * @return The {@link Future} for the snapshot.
+    * 
+    * @see #snapshot(ISnapshotFactory)
+    * @see ISnapshotResult#isIncremental()
+    */
+   public Future<ISnapshotResult> snapshot(
+         final ISnapshotFactory snapshotFactory, final boolean incremental) {
+
+      if (!(getBufferStrategy() instanceof IHABufferStrategy)) {
+      
+         throw new UnsupportedOperationException();
+         
+      }
+
+      return executorService.submit(new SnapshotTask(this, snapshotFactory,
+            incremental));
+
+   }
+
    @Override
 	public void dropIndex(final String name) {
 
@@ -341,6 +341,11 @@ public interface Options {
      * replicated messages and compressed HALogs (default
      * {@value #DEFAULT_HALOG_COMPRESSOR}). The value is a <code>key</code>
      * declared to the {@link CompressorRegistry}.
+     * <p>
+     * Each buffer is compressed separately and is replicated (and logged) as is
+     * if compression would not make it smaller. Use
+     * {@link CompressorRegistry#LZ4} when the compression on the leader should
+     * not limit the throughput of the write pipeline.
      * 
      * @see CompressorRegistry
      * 
@@ -38,11 +38,18 @@ class SnapshotResult implements ISnapshotResult {
    private final File file;
    private final boolean compressed;
    private final IRootBlockView rootBlock;
+   private final boolean incremental;
 
    public SnapshotResult(final File file, final boolean compressed, final IRootBlockView rootBlock) {
+      this(file, compressed, rootBlock, false/* incremental */);
+   }
+
+   public SnapshotResult(final File file, final boolean compressed,
+         final IRootBlockView rootBlock, final boolean incremental) {
       this.file = file;
       this.compressed = compressed;
       this.rootBlock = rootBlock;
+      this.incremental = incremental;
    }
 
    @Override
@@ -60,4 +67,9 @@ class SnapshotResult implements ISnapshotResult {
       return compressed;
    }
 
+   @Override
+   public boolean isIncremental() {
+      return incremental;
+   }
+
 }
@@ -35,15 +35,28 @@ import java.io.OutputStream;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
 
+import com.bigdata.io.ParallelGZIPOutputStream;
 import com.bigdata.journal.AbstractJournal.ISnapshotData;
 import com.bigdata.quorum.Quorum;
+import com.bigdata.rwstore.RWStore;
+import com.bigdata.util.Bytes;
 
 /**
  * Take a snapshot of the journal.
+ * <p>
+ * An incremental snapshot records only the allocation slots of an
+ * {@link RWStore} journal which were committed since the previous snapshot
+ * taken by this journal (see {@link IncrementalSnapshot}). An incremental
+ * snapshot is only possible if a (full or incremental) snapshot was
+ * successfully taken since the journal was opened. Otherwise a full snapshot
+ * is taken, which is reported by {@link ISnapshotResult#isIncremental()}.
+ * <p>
+ * The compression of a snapshot is performed in parallel on chunks of the
+ * data. A compressed full snapshot is a sequence of GZIP members and remains
+ * a valid GZIP file.
  * 
  * @author bryan
  * 
@@ -56,6 +69,7 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
 
    private final Journal journal;
    private final ISnapshotFactory snapshotFactory;
+   private final boolean incremental;
    
    protected static final Logger log = Logger.getLogger(SnapshotTask.class);
    
@@ -107,14 +121,35 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
     */
    public final static String SNAPSHOT_TMP_SUFFIX = ".tmp";
 
+   /**
+    * The #of bytes in each chunk of a compressed full snapshot.
+    */
+   private static final int CHUNK_SIZE = 4 * Bytes.megabyte32;
+
    public SnapshotTask(final Journal journal,
          final ISnapshotFactory snapshotFactory) {
+      this(journal, snapshotFactory, false/* incremental */);
+   }
+
+   /**
+    * @param journal
+    *           The journal.
+    * @param snapshotFactory
+    *           The factory that will provide the name of the file on which the
+    *           snapshot will be written.
+    * @param incremental
+    *           When <code>true</code> an incremental snapshot is taken if
+    *           possible.
+    */
+   public SnapshotTask(final Journal journal,
+         final ISnapshotFactory snapshotFactory, final boolean incremental) {
       if (journal == null)
          throw new IllegalArgumentException();
       if (snapshotFactory == null)
          throw new IllegalArgumentException();
       this.journal = journal;
       this.snapshotFactory = snapshotFactory;
+      this.incremental = incremental;
    }
 
    @Override
@@ -129,51 +164,44 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
           * data, setting the current committed rootblock view.
           */
          final AtomicReference<IRootBlockView> rbv = new AtomicReference<IRootBlockView>();
-         final ISnapshotData coreData = journal.snapshotAllocationData(rbv);
+         final IncrementalSnapshot writes = new IncrementalSnapshot(incremental);
+         final ISnapshotData coreData = journal.snapshotAllocationData(rbv,
+               writes);
+         final boolean isDelta = writes.isIncremental();
 
-         if (rbv.get().getCommitCounter() == 0L) {
-
-            throw new IllegalStateException("Journal is empty");
-
-         }
-
-         final File file = snapshotFactory.getSnapshotFile(rbv.get());
+         /*
+          * Note: The writes since the last snapshot were captured above, so
+          * they must be reset if we fail before the snapshot is written.
+          * Otherwise the next incremental snapshot would name a parent which
+          * was never written.
+          */
+         final File file;
+         final File tmp;
+         boolean prepared = false;
+         try {
 
-         if (file.exists() && file.length() != 0L) {
+            file = getSnapshotFile(rbv.get());
 
             /*
-             * Snapshot exists and is not (logically) empty.
-             * 
-             * Note: The SnapshotManager will not recommend taking a snapshot if
-             * a snapshot already exists for the current commit point since
-             * there is no committed delta that can be captured by the snapshot.
-             * 
-             * This code makes sure that we do not attempt to overwrite a
-             * snapshot if we already have one for the same commit point. If you
-             * want to re-generate a snapshot for the same commit point (e.g.,
-             * because the existing one is corrupt) then you MUST remove the
-             * pre-existing snapshot first.
+             * Create a temporary file. We will write the snapshot here. The
+             * file will be renamed onto the target file name iff the snapshot
+             * is successfully written.
              */
+            tmp = File.createTempFile(SNAPSHOT_TMP_PREFIX, SNAPSHOT_TMP_SUFFIX,
+                  file.getParentFile());
 
-            throw new IOException("File exists: " + file);
+            prepared = true;
 
-         }
+         } finally {
 
-         final File parentDir = file.getParentFile();
+            if (!prepared) {
 
-         // Make sure the parent directory(ies) exist.
-         if (!parentDir.exists())
-            if (!parentDir.mkdirs())
-               throw new IOException("Could not create directory: " + parentDir);
+               // The next snapshot must be a full snapshot.
+               resetSnapshotWrites();
 
-         /*
-          * Create a temporary file. We will write the snapshot here. The file
-          * will be renamed onto the target file name iff the snapshot is
-          * successfully written.
-          */
-         final File tmp = File.createTempFile(
-               SNAPSHOT_TMP_PREFIX,
-               SNAPSHOT_TMP_SUFFIX, parentDir);
+            }
+
+         }
 
          OutputStream osx = null;
          DataOutputStream os = null;
@@ -182,14 +210,33 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
 
             osx = new FileOutputStream(tmp);
 
-            if (snapshotFactory.getCompress())
-               osx = new GZIPOutputStream(osx, GZIP_BUFFER);
+            final IHABufferStrategy bs = (IHABufferStrategy) journal
+                  .getBufferStrategy();
+
+            if (isDelta) {
+
+               os = new DataOutputStream(new BufferedOutputStream(osx,
+                     GZIP_BUFFER));
 
-            os = new DataOutputStream(osx);
+               // write out the allocation slots written since the parent.
+               writes.write(bs, coreData, rbv.get().getCommitCounter(),
+                     ((RWStrategy) bs).getStore().getStoreFile().length(),
+                     snapshotFactory.getCompress(),
+                     journal.getExecutorService(), os);
 
-            // write out the file data.
-            ((IHABufferStrategy) journal.getBufferStrategy()).writeOnStream(os,
-                  coreData, null/* quorum */, Quorum.NO_QUORUM);
+            } else {
+
+               if (snapshotFactory.getCompress())
+                  osx = new ParallelGZIPOutputStream(osx,
+                        journal.getExecutorService(), CHUNK_SIZE);
+
+               os = new DataOutputStream(osx);
+
+               // write out the file data.
+               bs.writeOnStream(os, coreData, null/* quorum */,
+                     Quorum.NO_QUORUM);
+
+            }
 
             // flush the output stream.
             os.flush();
@@ -228,6 +275,13 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
              * delete the tempoary file. The snapshot is not considered to be
              * valid until it is found under the appropriate name.
              */
+            if (!success) {
+
+               // The next snapshot must be a full snapshot.
+               resetSnapshotWrites();
+
+            }
+
             if (success) {
 
                // if (!journal.getQuorum().getClient().isJoinedMember(token)) {
@@ -240,11 +294,14 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
 
                   Journal.log.error("Could not rename " + tmp + " as " + file);
 
+                  resetSnapshotWrites();
+
                } else {
 
                   if (Journal.log.isInfoEnabled())
                      Journal.log.info("Captured snapshot: " + file
                            + ", commitCounter=" + rbv.get().getCommitCounter()
+                           + ", incremental=" + isDelta
                            + ", length=" + file.length());
 
                }
@@ -263,13 +320,73 @@ public class SnapshotTask implements Callable<ISnapshotResult> {
 
          // Done.
          return new SnapshotResult(file, snapshotFactory.getCompress(),
-               rbv.get());
+               rbv.get(), isDelta);
    
       } finally {
          // Release the read lock.
          journal.abort(txId);
       }
    }
+
+   /**
+    * Return the file on which the snapshot will be written, creating its
+    * parent directory(ies) if necessary.
+    * 
+    * @param rbv
+    *           The root block of the commit point for the snapshot.
+    */
+   private File getSnapshotFile(final IRootBlockView rbv) throws IOException {
+
+      if (rbv.getCommitCounter() == 0L) {
+
+         throw new IllegalStateException("Journal is empty");
+
+      }
+
+      final File file = snapshotFactory.getSnapshotFile(rbv);
+
+      if (file.exists() && file.length() != 0L) {
+
+         /*
+          * Snapshot exists and is not (logically) empty.
+          * 
+          * Note: The SnapshotManager will not recommend taking a snapshot if
+          * a snapshot already exists for the current commit point since
+          * there is no committed delta that can be captured by the snapshot.
+          * 
+          * This code makes sure that we do not attempt to overwrite a
+          * snapshot if we already have one for the same commit point. If you
+          * want to re-generate a snapshot for the same commit point (e.g.,
+          * because the existing one is corrupt) then you MUST remove the
+          * pre-existing snapshot first.
+          */
+
+         throw new IOException("File exists: " + file);
+
+      }
+
+      final File parentDir = file.getParentFile();
+
+      // Make sure the parent directory(ies) exist.
+      if (!parentDir.exists())
+         if (!parentDir.mkdirs())
+            throw new IOException("Could not create directory: " + parentDir);
+
+      return file;
+
+   }
+
+   /**
+    * Forget the writes since the last snapshot when a snapshot was not taken.
+    */
+   private void resetSnapshotWrites() {
+
+      final IBufferStrategy bs = journal.getBufferStrategy();
+
+      if (bs instanceof RWStrategy)
+         ((RWStrategy) bs).getStore().resetSnapshotWrites();
+
+   }
    
    /**
     * Copy the input stream to the output stream.
@@ -36,6 +36,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
+import com.bigdata.btree.PageCache;
 import com.bigdata.counters.CounterSet;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.mdi.AbstractResourceMetadata;
@@ -406,6 +407,20 @@ public class TemporaryRawStore extends AbstractRawWormStore implements IMRMW {
 //
 //                }
 
+                if (PageCache.INSTANCE != null) {
+
+                    try {
+
+                        PageCache.INSTANCE.deleteCache(getUUID());
+
+                    } catch (Throwable t) {
+
+                        log.error(t, t);
+
+                    }
+
+                }
+
             }
 
         }
@@ -29,6 +29,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package com.bigdata.relation.accesspath;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.FutureTask;
@@ -53,7 +54,10 @@ import com.bigdata.btree.IBloomFilter;
 import com.bigdata.btree.IIndex;
 import com.bigdata.btree.ILocalBTreeView;
 import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleCursor;
 import com.bigdata.btree.ITupleIterator;
+import com.bigdata.btree.ReadCommittedView;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.Tuple;
 import com.bigdata.btree.UnisolatedReadWriteIndex;
@@ -61,6 +65,7 @@ import com.bigdata.btree.isolation.IsolatedFusedView;
 import com.bigdata.btree.keys.IKeyBuilder;
 import com.bigdata.btree.proc.ISimpleIndexProcedure;
 import com.bigdata.btree.view.FusedView;
+import com.bigdata.io.ByteArrayBuffer;
 import com.bigdata.io.DirectBufferPool;
 import com.bigdata.journal.IIndexManager;
 import com.bigdata.journal.ITx;
@@ -784,6 +789,218 @@ public class AccessPath<R> implements IAccessPath<R>, IBindingSetAccessPath<R> {
                 stats);
 
     }
+
+    /**
+     * Return a new {@link ITupleCursor} for the backing index which may be
+     * shared by the access paths for a chunk of solutions using
+     * {@link #solutions(BOpContext, ITupleCursor, BaseJoinStats)}. The cursor
+     * is not constrained to the key-range of this access path.
+     * <p>
+     * Note: {@link ITupleCursor#getIndex()} reports the index actually read by
+     * the cursor. That is the same for two access paths which read on the
+     * same index even when they are using different view objects (such as a
+     * {@link ReadCommittedView}) and is therefore the index by which a cursor
+     * may be shared.
+     * 
+     * @return The cursor -or- <code>null</code> if the backing index does not
+     *         expose a local {@link ITupleCursor} (e.g., a scale-out or a
+     *         thread-safe wrapper view) or if the access path is configured
+     *         for a reverse scan or removal.
+     */
+    @SuppressWarnings("unchecked")
+    public ITupleCursor<R> newCursor() {
+
+        assertInitialized();
+
+        if ((flags & (IRangeQuery.REVERSE | IRangeQuery.REMOVEALL)) != 0)
+            return null;
+
+        final ITupleIterator<R> itr = ndx.rangeIterator(null/* fromKey */,
+                null/* toKey */, 0/* capacity */, flags | IRangeQuery.CURSOR,
+                null/* filter */);
+
+        if (itr instanceof ITupleCursor)
+            return (ITupleCursor<R>) itr;
+
+        return null;
+
+    }
+
+    /**
+     * Visit the solutions for this access path by seeking the caller's
+     * {@link ITupleCursor} to the <i>fromKey</i> and scanning forward to the
+     * <i>toKey</i>. When the access paths for a chunk of solutions are
+     * evaluated in key order using the same cursor, each seek is typically
+     * satisfied from the leaf on which the previous scan ended rather than by
+     * descending from the root of the index.
+     * <p>
+     * Note: The returned iterator reads synchronously from the cursor. It must
+     * be consumed (or closed) before the cursor is used for another access
+     * path.
+     * 
+     * @param context
+     *            The evaluation context.
+     * @param cursor
+     *            A cursor obtained from {@link #newCursor()} on an access path
+     *            for the same index.
+     * @param stats
+     *            The statistics for the join.
+     * 
+     * @see #newCursor()
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public ICloseableIterator<IBindingSet[]> solutions(
+            final BOpContext context, final ITupleCursor<R> cursor,
+            final BaseJoinStats stats) {
+
+        if (cursor == null)
+            throw new IllegalArgumentException();
+
+        if (historicalRead && rangeCount == 0L) {
+
+            // The access path has already been proven to be empty.
+            return context.solutions(new EmptyChunkedIterator<R>(keyOrder),
+                    predicate, stats);
+
+        }
+
+        if (isFullyBoundForKey && ndx instanceof ILocalBTreeView) {
+
+            final IBloomFilter filter = ((ILocalBTreeView) ndx)
+                    .getBloomFilter();
+
+            if (filter != null && !filter.contains(fromKey)) {
+
+                // proven to not exist.
+                return context.solutions(
+                        new EmptyChunkedIterator<R>(keyOrder), predicate,
+                        stats);
+
+            }
+
+        }
+
+        Iterator<?> tupleItr = new CursorRangeIterator<R>(cursor, fromKey,
+                toKey);
+
+        if (indexLocalFilter != null) {
+
+            tupleItr = indexLocalFilter.filter(tupleItr, null/* context */);
+
+        }
+
+        // Resolve the elements from the visited tuples.
+        final Iterator<R> src = new Striterator(tupleItr)
+                .addFilter(new TupleObjectResolver());
+
+        if (accessPathFilter != null) {
+            /*
+             * Chain in the optional access path filter stack.
+             */
+            ((Striterator) src).addFilter(accessPathFilter);
+        }
+
+        return context.solutions(new ChunkedWrappedIterator<R>(src,
+                chunkCapacity, keyOrder, null/* filter */), predicate, stats);
+
+    }
+
+    /**
+     * Visits the tuples in a half-open key-range using an {@link ITupleCursor}
+     * which is positioned by a seek on the first call to {@link #hasNext()}.
+     */
+    private static class CursorRangeIterator<R> implements ITupleIterator<R> {
+
+        private final ITupleCursor<R> cursor;
+
+        private final byte[] fromKey;
+
+        private final byte[] toKey;
+
+        private boolean positioned = false;
+
+        private boolean exhausted = false;
+
+        private ITuple<R> nextTuple = null;
+
+        CursorRangeIterator(final ITupleCursor<R> cursor, final byte[] fromKey,
+                final byte[] toKey) {
+
+            this.cursor = cursor;
+
+            this.fromKey = fromKey == null ? BytesUtil.EMPTY : fromKey;
+
+            this.toKey = toKey;
+
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (nextTuple != null)
+                return true;
+
+            if (exhausted)
+                return false;
+
+            ITuple<R> t = null;
+
+            if (!positioned) {
+
+                positioned = true;
+
+                t = cursor.seek(fromKey);
+
+            }
+
+            if (t == null && cursor.hasNext())
+                t = cursor.next();
+
+            if (t == null || (toKey != null && compare(t, toKey) >= 0)) {
+
+                exhausted = true;
+
+                return false;
+
+            }
+
+            nextTuple = t;
+
+            return true;
+
+        }
+
+        @Override
+        public ITuple<R> next() {
+
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final ITuple<R> t = nextTuple;
+
+            nextTuple = null;
+
+            return t;
+
+        }
+
+        @Override
+        public void remove() {
+
+            throw new UnsupportedOperationException();
+
+        }
+
+        private static int compare(final ITuple<?> t, final byte[] key) {
+
+            final ByteArrayBuffer kbuf = t.getKeyBuffer();
+
+            return BytesUtil.compareBytesWithLenAndOffset(0/* aoff */,
+                    kbuf.limit(), kbuf.array(), 0/* boff */, key.length, key);
+
+        }
+
+    }
     
     @Override
     final public IChunkedOrderedIterator<R> iterator() {
@@ -66,6 +66,7 @@ import com.bigdata.btree.ITupleIterator;
 import com.bigdata.btree.IndexMetadata;
 import com.bigdata.btree.IndexSegment;
 import com.bigdata.btree.IndexSegmentStore;
+import com.bigdata.btree.PageCache;
 import com.bigdata.cache.ConcurrentWeakValueCacheWithTimeout;
 import com.bigdata.cache.HardReferenceQueue;
 import com.bigdata.concurrent.NamedLock;
@@ -4208,6 +4209,15 @@ abstract public class StoreManager extends ResourceEvents implements
 //            LRUNexus.INSTANCE.deleteCache(uuid);
 //            
 //        }
+
+        /*
+         * Clear the records for that store from the PageCache.
+         */
+        if (PageCache.INSTANCE != null) {
+
+            PageCache.INSTANCE.deleteCache(uuid);
+
+        }
         
         /*
          * delete the backing file.
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import org.apache.log4j.Logger;
 
 import com.bigdata.io.writecache.WriteCacheService;
+import com.bigdata.journal.IncrementalSnapshot;
 import com.bigdata.rwstore.RWStore.AllocationStats;
 
 /**
@@ -96,6 +97,13 @@ public class AllocBlock {
 	 * transaction plus any newly allocated bits.
 	 */
 	int m_transients[];
+	/**
+	 * The bits allocated since the last snapshot which have not yet been
+	 * captured by a snapshot. This is not persistent.
+	 * 
+	 * @see RWStore#snapshotWrites(IncrementalSnapshot, long)
+	 */
+	final int m_written[];
 //	/**
 //	 * Used to clear an address on the {@link WriteCacheService} if it has been
 //	 * freed.
@@ -109,6 +117,7 @@ public class AllocBlock {
 		m_commit = new int[bitSize];
 		m_live = new int[bitSize];
 		m_transients = new int[bitSize];
+		m_written = new int[bitSize];
 	}
 	
 	/**
@@ -230,6 +239,7 @@ public class AllocBlock {
 		if (bit != -1) {
 			RWStore.setBit(m_live, bit);
 			RWStore.setBit(m_transients, bit);
+			RWStore.setBit(m_written, bit);
 
 			return bit;
 		} else {
@@ -245,6 +255,40 @@ public class AllocBlock {
 	void setBitExternal(final int bit) {
 		RWStore.setBit(m_live, bit);
 		RWStore.setBit(m_transients, bit);
+		RWStore.setBit(m_written, bit);
+	}
+
+	/**
+	 * Add the extents of the committed slots which were allocated since the
+	 * last snapshot to the snapshot (if it is collecting extents) and clear
+	 * their {@link #m_written} bits. The bits of slots which are not yet
+	 * committed are retained for the next snapshot.
+	 * 
+	 * @param snapshot
+	 *            The snapshot (optional).
+	 */
+	void snapshotWrites(final IncrementalSnapshot snapshot) {
+		if (m_addr == 0)
+			return;
+		final int size = m_allocator.m_size;
+		final long base = RWStore.convertAddr(m_addr);
+		final int total = m_ints * 32;
+		int start = -1;
+		for (int bit = 0; bit <= total; bit++) {
+			final boolean include = bit < total
+					&& RWStore.tstBit(m_written, bit)
+					&& RWStore.tstBit(m_commit, bit);
+			if (include) {
+				RWStore.clrBit(m_written, bit);
+				if (start == -1)
+					start = bit;
+			} else if (start != -1) {
+				if (snapshot != null)
+					snapshot.addExtent(base + ((long) size * start), size
+							* (bit - start));
+				start = -1;
+			}
+		}
 	}
 
 	public boolean hasFree() {
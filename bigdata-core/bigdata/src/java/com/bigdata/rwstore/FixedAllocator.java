@@ -41,6 +41,7 @@ import com.bigdata.cache.ConcurrentWeakValueCache;
 import com.bigdata.io.ChecksumUtility;
 import com.bigdata.journal.AbstractJournal.ISnapshotData;
 import com.bigdata.journal.ICommitter;
+import com.bigdata.journal.IncrementalSnapshot;
 import com.bigdata.rawstore.IAllocationContext;
 import com.bigdata.rwstore.RWStore.AllocationStats;
 import com.bigdata.rwstore.StorageStats.Bucket;
@@ -1061,6 +1062,7 @@ public class FixedAllocator implements Allocator {
 		final int abit = (abblock*32) + bit;
 		RWStore.setBit(ab.m_live, abit);
 		RWStore.setBit(ab.m_transients, abit);
+		RWStore.setBit(ab.m_written, abit);
 		
 		// Note +3 for address teak for special low order bits
 		final int addr = -((m_index << RWStore.OFFSET_BITS) + (m_allocIndex*32) + (bit + 3));
@@ -1597,6 +1599,18 @@ public class FixedAllocator implements Allocator {
 		if (m_diskAddr > 0)
 			tm.put(m_store.metaBit2Addr(m_diskAddr), commitData());
 	}
+
+	/**
+	 * Add the extents of the committed slots allocated since the last snapshot
+	 * to an incremental snapshot.
+	 * 
+	 * @see AllocBlock#snapshotWrites(IncrementalSnapshot)
+	 */
+	void snapshotWrites(final IncrementalSnapshot snapshot) {
+		for (AllocBlock block : m_allocBlocks) {
+			block.snapshotWrites(snapshot);
+		}
+	}
 	
 	/**
 	 * Returns the 1K committed allocation data by writing the commit data for each allocation block.
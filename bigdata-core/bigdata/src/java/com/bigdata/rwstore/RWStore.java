@@ -97,6 +97,7 @@ import com.bigdata.io.writecache.WriteCacheService;
 import com.bigdata.journal.AbstractBufferStrategy;
 import com.bigdata.journal.AbstractJournal;
 import com.bigdata.journal.AbstractJournal.ISnapshotData;
+import com.bigdata.journal.IncrementalSnapshot;
 import com.bigdata.journal.CommitRecordIndex;
 import com.bigdata.journal.CommitRecordSerializer;
 import com.bigdata.journal.FileMetadata;
@@ -7954,6 +7955,67 @@ public class RWStore implements IStore, IBufferedWriter, IBackingReader {
 			alloc.snapshot(tm);
 		}
 	}
+
+	/**
+	 * The commit counter of the last snapshot for which the writes were
+	 * captured by {@link #snapshotWrites(IncrementalSnapshot, long)} -or- -1L
+	 * if the writes since the last snapshot are not known (no snapshot was
+	 * taken since the store was opened or a snapshot failed).
+	 */
+	private long m_snapshotCommitCounter = -1L;
+
+	/**
+	 * Capture the extents of the committed allocation slots which were written
+	 * since the last snapshot and begin tracking the writes for the next
+	 * snapshot. The allocation slots of the RWStore are not overwritten while
+	 * they are committed, so the snapshot from which the last snapshot was
+	 * restored together with these extents (and the root blocks, metabits and
+	 * allocators) is a full image of the store as of the new snapshot.
+	 * <p>
+	 * Note: This must be invoked atomically with
+	 * {@link #snapshotAllocators(ISnapshotData)}.
+	 * 
+	 * @param snapshot
+	 *            The extents are added to this snapshot (optional). When
+	 *            <code>null</code>, the writes since the last snapshot are
+	 *            discarded (e.g., for a full snapshot).
+	 * @param commitCounter
+	 *            The commit counter of the snapshot.
+	 * 
+	 * @return The commit counter of the previous snapshot -or- -1L if the
+	 *         writes since the previous snapshot are not known, in which case
+	 *         the extents are not a valid delta.
+	 * 
+	 * @see #resetSnapshotWrites()
+	 */
+	public long snapshotWrites(final IncrementalSnapshot snapshot,
+			final long commitCounter) {
+		m_allocationWriteLock.lock();
+		try {
+			final long parent = m_snapshotCommitCounter;
+			final IncrementalSnapshot tmp = parent == -1L ? null : snapshot;
+			for (FixedAllocator alloc : m_allocs) {
+				alloc.snapshotWrites(tmp);
+			}
+			m_snapshotCommitCounter = commitCounter;
+			return parent;
+		} finally {
+			m_allocationWriteLock.unlock();
+		}
+	}
+
+	/**
+	 * Forget the last snapshot so the next snapshot must be a full snapshot.
+	 * This is used when a snapshot could not be written.
+	 */
+	public void resetSnapshotWrites() {
+		m_allocationWriteLock.lock();
+		try {
+			m_snapshotCommitCounter = -1L;
+		} finally {
+			m_allocationWriteLock.unlock();
+		}
+	}
 	
 	class AllocationContext implements IAllocationContext {
 		
@@ -0,0 +1,617 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rwstore.sector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.Instrument;
+import com.bigdata.counters.OneShotInstrument;
+import com.bigdata.io.FileChannelUtility;
+import com.bigdata.journal.AbstractBufferStrategy;
+import com.bigdata.journal.TemporaryRawStore;
+import com.bigdata.mdi.IResourceMetadata;
+import com.bigdata.rawstore.AbstractRawStore;
+import com.bigdata.rawstore.IAddressManager;
+import com.bigdata.rawstore.IRawStore;
+import com.bigdata.rawstore.TransientResourceMetadata;
+
+/**
+ * An {@link IRawStore} backed by an {@link IMemoryManager} allocation context
+ * which spills to a temporary file rather than failing when the native memory
+ * for the store is exhausted. This is used by the operators which buffer their
+ * data on an {@link com.bigdata.htree.HTree} so they can continue when the
+ * native memory budget for the query or the operator is reached.
+ * <p>
+ * Records are written onto the native memory until either the
+ * {@link #getMaxBytes() budget} of the store would be exceeded or the
+ * {@link IMemoryManager} reports a {@link MemoryManagerOutOfMemory} (which is
+ * how the per-query budget is enforced). Thereafter, records are appended to a
+ * temporary file which is deleted when the store is closed. The records which
+ * were already written remain in native memory. Since the index pages are
+ * copy-on-write, pages which are modified after the spill migrate to the
+ * temporary file and their native memory is released.
+ * <p>
+ * The records on the temporary file are marked by {@link #SPILL_FLAG} in the
+ * byte count field of their addresses (the native memory addresses never have
+ * that bit set). The temporary file is append only: deleted records are not
+ * recycled.
+ */
+public class SpillableMemStore extends AbstractRawStore {
+
+    private static final transient Logger log = Logger
+            .getLogger(SpillableMemStore.class);
+
+    /**
+     * The bit in the address which marks a record on the temporary file.
+     */
+    static final long SPILL_FLAG = 1L << 31;
+
+    /**
+     * The records on the temporary file are aligned on this many bytes, which
+     * allows offsets of up to 32GB in the address.
+     */
+    private static final int ALIGN_BITS = 3;
+
+    /** The native memory. */
+    private final MemStore mem;
+
+    /**
+     * The maximum #of bytes of native memory for the store and ZERO (0L) if
+     * the store is only bounded by its {@link IMemoryManager}.
+     */
+    private final long maxBytes;
+
+    /** The directory for the temporary file (optional). */
+    private final File tmpDir;
+
+    private final UUID uuid = UUID.randomUUID();
+
+    /** The temporary file (lazily created, guarded by <code>this</code>). */
+    private volatile SpillFile spill;
+
+    private volatile boolean open = true;
+
+    /**
+     * @param mmgr
+     *            The {@link IMemoryManager} allocation context which will back
+     *            the store.
+     * @param maxBytes
+     *            The maximum #of bytes of native memory for the store and ZERO
+     *            (0L) if the store is only bounded by the
+     *            {@link IMemoryManager}.
+     * @param tmpDir
+     *            The directory for the temporary file and <code>null</code>
+     *            for the default temporary directory.
+     */
+    public SpillableMemStore(final IMemoryManager mmgr, final long maxBytes,
+            final File tmpDir) {
+
+        if (mmgr == null)
+            throw new IllegalArgumentException();
+
+        if (maxBytes < 0L)
+            throw new IllegalArgumentException();
+
+        this.mem = new MemStore(mmgr);
+
+        this.maxBytes = maxBytes;
+
+        this.tmpDir = tmpDir;
+
+    }
+
+    /**
+     * The maximum #of bytes of native memory for the store and ZERO (0L) if
+     * the store is only bounded by its {@link IMemoryManager}.
+     */
+    public long getMaxBytes() {
+
+        return maxBytes;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the store has spilled onto a temporary
+     * file.
+     */
+    public boolean isSpilled() {
+
+        return spill != null;
+
+    }
+
+    /**
+     * The #of bytes written onto the temporary file.
+     */
+    public long getSpilledBytes() {
+
+        final SpillFile tmp = spill;
+
+        return tmp == null ? 0L : tmp.extent;
+
+    }
+
+    /**
+     * The temporary file and <code>null</code> if the store has not spilled.
+     */
+    File getSpillFile() {
+
+        final SpillFile tmp = spill;
+
+        return tmp == null ? null : tmp.file;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the address is for a record on the
+     * temporary file.
+     */
+    static boolean isSpilled(final long addr) {
+
+        return (addr & SPILL_FLAG) != 0L;
+
+    }
+
+    @Override
+    public long write(final ByteBuffer data) {
+
+        assertOpen();
+
+        if (spill == null) {
+
+            final int nbytes = data.remaining();
+
+            if (maxBytes == 0L || mem.size() + nbytes <= maxBytes) {
+
+                final int pos = data.position();
+
+                try {
+
+                    return mem.write(data);
+
+                } catch (MemoryManagerOutOfMemory ex) {
+
+                    // Restore the buffer and spill.
+                    data.position(pos);
+
+                    spill(ex);
+
+                }
+
+            } else {
+
+                spill(null/* cause */);
+
+            }
+
+        }
+
+        return spill.write(data);
+
+    }
+
+    @Override
+    public ByteBuffer read(final long addr) {
+
+        assertOpen();
+
+        if (isSpilled(addr))
+            return spill.read(addr);
+
+        return mem.read(addr);
+
+    }
+
+    @Override
+    public void delete(final long addr) {
+
+        assertOpen();
+
+        if (isSpilled(addr)) {
+
+            // Note: The temporary file is append only.
+            return;
+
+        }
+
+        mem.delete(addr);
+
+    }
+
+    /**
+     * Create the temporary file onto which new records will be written.
+     */
+    private synchronized void spill(final MemoryManagerOutOfMemory cause) {
+
+        if (spill != null)
+            return;
+
+        try {
+
+            final File file = TemporaryRawStore
+                    .getTempFile(tmpDir != null ? tmpDir : new File(System
+                            .getProperty("java.io.tmpdir")));
+
+            spill = new SpillFile(file);
+
+        } catch (IOException ex) {
+
+            if (cause != null) {
+                // Report the original problem.
+                throw cause;
+            }
+
+            throw new RuntimeException(ex);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("Spilling to disk: file=" + spill.file + ", nativeBytes="
+                    + mem.size() + ", maxBytes=" + maxBytes + ", cause="
+                    + cause);
+
+    }
+
+    /**
+     * An append only temporary file.
+     */
+    private static class SpillFile {
+
+        final File file;
+
+        final RandomAccessFile raf;
+
+        final FileChannel channel;
+
+        /** The offset at which the next record will be written. */
+        volatile long extent;
+
+        SpillFile(final File file) throws IOException {
+
+            this.file = file;
+
+            this.raf = new RandomAccessFile(file, "rw");
+
+            this.channel = raf.getChannel();
+
+        }
+
+        long write(final ByteBuffer data) {
+
+            final int nbytes = data.remaining();
+
+            if (nbytes == 0)
+                throw new IllegalArgumentException();
+
+            final long offset;
+
+            synchronized (this) {
+
+                offset = extent;
+
+                final long next = offset + nbytes
+                        + ((1 << ALIGN_BITS) - 1) & ~((1L << ALIGN_BITS) - 1);
+
+                if ((next >>> ALIGN_BITS) > 0xFFFFFFFFL)
+                    throw new RuntimeException("Spill file is full: " + file);
+
+                extent = next;
+
+            }
+
+            try {
+
+                FileChannelUtility.writeAll(channel, data, offset);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            return ((offset >>> ALIGN_BITS) << 32) | SPILL_FLAG | nbytes;
+
+        }
+
+        ByteBuffer read(final long addr) {
+
+            final long offset = (addr >>> 32) << ALIGN_BITS;
+
+            final int nbytes = (int) (addr & ~SPILL_FLAG & 0xFFFFFFFFL);
+
+            final ByteBuffer buf = ByteBuffer.allocate(nbytes);
+
+            try {
+
+                FileChannelUtility.readAll(channel, buf, offset);
+
+            } catch (IOException ex) {
+
+                throw new RuntimeException(ex);
+
+            }
+
+            buf.flip();
+
+            return buf;
+
+        }
+
+        void close() {
+
+            try {
+
+                raf.close();
+
+            } catch (IOException ex) {
+
+                log.warn(ex, ex);
+
+            }
+
+            if (!file.delete())
+                log.warn("Could not delete: " + file);
+
+        }
+
+    }
+
+    private void assertOpen() {
+
+        if (!open)
+            throw new IllegalStateException(AbstractBufferStrategy.ERR_NOT_OPEN);
+
+    }
+
+    @Override
+    public boolean isOpen() {
+
+        return open;
+
+    }
+
+    @Override
+    public synchronized void close() {
+
+        assertOpen();
+
+        open = false;
+
+        try {
+
+            mem.close();
+
+        } finally {
+
+            if (spill != null)
+                spill.close();
+
+        }
+
+    }
+
+    @Override
+    public void deleteResources() {
+
+        if (open)
+            throw new IllegalStateException(AbstractBufferStrategy.ERR_OPEN);
+
+        mem.deleteResources();
+
+    }
+
+    @Override
+    public synchronized void destroy() {
+
+        if (open)
+            close();
+
+        deleteResources();
+
+    }
+
+    @Override
+    public void force(final boolean metadata) {
+
+        // NOP
+
+    }
+
+    /**
+     * This method always returns <code>null</code> since the temporary file
+     * (if any) is an implementation detail.
+     */
+    @Override
+    public File getFile() {
+
+        return null;
+
+    }
+
+    @Override
+    public IResourceMetadata getResourceMetadata() {
+
+        return new TransientResourceMetadata(uuid);
+
+    }
+
+    @Override
+    public UUID getUUID() {
+
+        return uuid;
+
+    }
+
+    @Override
+    public boolean isFullyBuffered() {
+
+        return spill == null;
+
+    }
+
+    @Override
+    public boolean isReadOnly() {
+
+        return false;
+
+    }
+
+    @Override
+    public boolean isStable() {
+
+        return false;
+
+    }
+
+    /**
+     * The #of bytes in the native memory allocation slots plus the #of bytes
+     * on the temporary file.
+     */
+    @Override
+    public long size() {
+
+        return mem.size() + getSpilledBytes();
+
+    }
+
+    @Override
+    public CounterSet getCounters() {
+
+        final CounterSet root = new CounterSet();
+
+        root.addCounter("UUID", new OneShotInstrument<String>(uuid.toString()));
+
+        root.addCounter("maxBytes", new OneShotInstrument<Long>(maxBytes));
+
+        root.addCounter("spilledBytes", new Instrument<Long>() {
+            @Override
+            public void sample() {
+                setValue(getSpilledBytes());
+            }
+        });
+
+        root.makePath("memory").attach(mem.getCounters());
+
+        return root;
+
+    }
+
+    /*
+     * IAddressManager
+     */
+
+    private final IAddressManager am = new IAddressManager() {
+
+        @Override
+        public int getByteCount(final long addr) {
+            if (isSpilled(addr))
+                return (int) (addr & ~SPILL_FLAG & 0xFFFFFFFFL);
+            return mem.getByteCount(addr);
+        }
+
+        @Override
+        public long getOffset(final long addr) {
+            if (isSpilled(addr))
+                return (addr >>> 32) << ALIGN_BITS;
+            return mem.getOffset(addr);
+        }
+
+        @Override
+        public long getPhysicalAddress(final long addr) {
+            if (isSpilled(addr))
+                return getOffset(addr);
+            return mem.getPhysicalAddress(addr);
+        }
+
+        @Override
+        public long toAddr(final int nbytes, final long offset) {
+            return mem.toAddr(nbytes, offset);
+        }
+
+        @Override
+        public String toString(final long addr) {
+            if (isSpilled(addr))
+                return "SpilledAddress: offset=" + getOffset(addr)
+                        + ", length: " + getByteCount(addr);
+            return mem.toString(addr);
+        }
+
+    };
+
+    @Override
+    public IAddressManager getAddressManager() {
+
+        return am;
+
+    }
+
+    @Override
+    public int getByteCount(final long addr) {
+
+        return am.getByteCount(addr);
+
+    }
+
+    @Override
+    public long getOffset(final long addr) {
+
+        return am.getOffset(addr);
+
+    }
+
+    @Override
+    public long getPhysicalAddress(final long addr) {
+
+        return am.getPhysicalAddress(addr);
+
+    }
+
+    @Override
+    public long toAddr(final int nbytes, final long offset) {
+
+        return am.toAddr(nbytes, offset);
+
+    }
+
+    @Override
+    public String toString(final long addr) {
+
+        return am.toString(addr);
+
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import java.util.Map;
+
+/**
+ * The Okapi BM25 relevance model. The contribution of a query term
+ * <code>t</code> to the score of a document <code>d</code> is
+ *
+ * <pre>
+ * qtf * idf(t) * tf * (k1 + 1) / (tf + k1 * (1 - b + b * dl / avgdl))
+ * 
+ * idf(t) = ln(1 + (N - df + .5) / (df + .5))
+ * </pre>
+ *
+ * where <code>qtf</code> is the frequency of the term in the query,
+ * <code>tf</code> is its frequency in the document, <code>dl</code> is the
+ * length of the document, <code>df</code> is the #of documents containing the
+ * term, and <code>N</code> and <code>avgdl</code> are the #of documents and
+ * their average length. Since each term contributes less than
+ * <code>qtf * idf(t) * (k1 + 1)</code>, the score is divided by the sum of
+ * that bound over the query terms so it is reported in <code>[0:1)</code>.
+ * This does not change the rank order of the hits.
+ * <p>
+ * Note: This requires {@link FullTextIndex.Options#STATISTICS_ENABLED}.
+ */
+public class BM25Scorer implements IScorer {
+
+    /**
+     * The name used to select this scorer.
+     *
+     * @see FullTextIndex.Options#SCORER
+     */
+    public static final String NAME = "bm25";
+
+    private final double k1;
+
+    private final double b;
+
+    /**
+     * Scorer using the default parameters.
+     *
+     * @see FullTextIndex.Options#DEFAULT_BM25_K1
+     * @see FullTextIndex.Options#DEFAULT_BM25_B
+     */
+    public BM25Scorer() {
+
+        this(Double.parseDouble(FullTextIndex.Options.DEFAULT_BM25_K1), Double
+                .parseDouble(FullTextIndex.Options.DEFAULT_BM25_B));
+
+    }
+
+    /**
+     * @param k1
+     *            The term frequency saturation parameter (non-negative).
+     * @param b
+     *            The document length normalization parameter (in [0:1]).
+     */
+    public BM25Scorer(final double k1, final double b) {
+
+        if (k1 < 0d)
+            throw new IllegalArgumentException();
+
+        if (b < 0d || b > 1d)
+            throw new IllegalArgumentException();
+
+        this.k1 = k1;
+
+        this.b = b;
+
+    }
+
+    public double getK1() {
+
+        return k1;
+
+    }
+
+    public double getB() {
+
+        return b;
+
+    }
+
+    @Override
+    public boolean isStatisticsRequired() {
+
+        return true;
+
+    }
+
+    @Override
+    public ITermScorer[] newTermScorers(final TermFrequencyData<?> qdata,
+            final long[] docFreq, final TextIndexStatistics stats) {
+
+        final int n = qdata.distinctTermCount();
+
+        final long ndocs = stats.getDocCount();
+
+        final double avgdl = stats.getAverageDocLength();
+
+        // The weight of each query term.
+        final double[] w = new double[n];
+
+        // The sum of the upper bounds for the query terms.
+        double norm = 0d;
+
+        int i = 0;
+        for (Map.Entry<String, ITermMetadata> e : qdata.terms.entrySet()) {
+
+            // Note: range counts are approximate, so df is bounded by N.
+            final long df = Math.min(docFreq[i], ndocs);
+
+            final double idf = Math.log(1d + (ndocs - df + .5d) / (df + .5d));
+
+            w[i] = e.getValue().termFreq() * idf;
+
+            norm += w[i] * (k1 + 1d);
+
+            i++;
+
+        }
+
+        final ITermScorer[] a = new ITermScorer[n];
+
+        for (i = 0; i < n; i++) {
+
+            final double weight = norm == 0d ? 0d : w[i] / norm;
+
+            a[i] = new ITermScorer() {
+
+                @Override
+                public double score(final ITermDocRecord<?> rec) {
+
+                    final int tf = rec.termFreq();
+
+                    return weight * tf * (k1 + 1d)
+                            / (tf + k1 * (1d - b + b * rec.docLength() / avgdl));
+
+                }
+
+            };
+
+        }
+
+        return a;
+
+    }
+
+    public String toString() {
+
+        return NAME + "{k1=" + k1 + ",b=" + b + "}";
+
+    }
+
+}
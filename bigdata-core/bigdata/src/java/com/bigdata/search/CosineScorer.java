@@ -0,0 +1,88 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import java.util.Map;
+
+/**
+ * The default relevance model. The score of a hit is the cosine between the
+ * normalized term frequency vectors of the query and the document, using the
+ * local term weight which is stored in the key of each posting.
+ */
+public class CosineScorer implements IScorer {
+
+    /**
+     * The name used to select this scorer.
+     *
+     * @see FullTextIndex.Options#SCORER
+     */
+    public static final String NAME = "cosine";
+
+    @Override
+    public boolean isStatisticsRequired() {
+
+        return false;
+
+    }
+
+    @Override
+    public ITermScorer[] newTermScorers(final TermFrequencyData<?> qdata,
+            final long[] docFreq, final TextIndexStatistics stats) {
+
+        final ITermScorer[] a = new ITermScorer[qdata.distinctTermCount()];
+
+        int i = 0;
+        for (Map.Entry<String, ITermMetadata> e : qdata.terms.entrySet()) {
+
+            final double queryTermWeight = e.getValue().getLocalTermWeight();
+
+            a[i++] = new ITermScorer() {
+
+                @Override
+                public double score(final ITermDocRecord<?> rec) {
+
+                    return queryTermWeight * rec.getLocalTermWeight();
+
+                }
+
+            };
+
+        }
+
+        return a;
+
+    }
+
+    public String toString() {
+
+        return NAME;
+
+    }
+
+}
@@ -72,6 +72,7 @@ import com.bigdata.journal.TimestampUtility;
 import com.bigdata.rdf.lexicon.ITextIndexer.FullTextQuery;
 import com.bigdata.relation.AbstractRelation;
 import com.bigdata.relation.locator.DefaultResourceLocator;
+import com.bigdata.service.IBigdataFederation;
 import com.bigdata.striterator.IChunkedOrderedIterator;
 import com.bigdata.striterator.IKeyOrder;
 import com.bigdata.util.concurrent.ExecutionHelper;
@@ -381,6 +382,68 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         String DEFAULT_HIT_CACHE_TIMEOUT_MILLIS =
                String.valueOf(TimeUnit.MINUTES.toMillis(1));
         
+        /**
+         * When the maximum rank of a query is positive and not greater than
+         * this value, the query is evaluated for just the top ranked hits
+         * using a {@link TopKSearchTask} (default
+         * {@value #DEFAULT_TOP_K_MAX_RANK}). The index is then read in
+         * decreasing term weight order and the scan stops once no further
+         * document could rank high enough, rather than materializing and
+         * sorting a hit for every document in which a query term appears. A
+         * value of ZERO (0) disables this optimization.
+         * <p>
+         * Note: This is only used when the query does not use prefix match,
+         * match all terms, match exact, a regex, or a maximum relevance. The
+         * top-K hits are not entered into the hit cache.
+         */
+        String TOP_K_MAX_RANK = FullTextIndex.class.getName()
+                + ".topKMaxRank";
+
+        String DEFAULT_TOP_K_MAX_RANK = "10000";
+
+        /**
+         * When <code>true</code>, the term frequency and the length of the
+         * document are stored with each posting and the #of documents and the
+         * sum of their lengths are maintained as the index is written (default
+         * {@value #DEFAULT_STATISTICS_ENABLED}). These statistics are required
+         * by the {@link BM25Scorer}. This option must be specified when the
+         * index is created and is not supported for scale-out.
+         * 
+         * @see TextIndexStatistics
+         */
+        String STATISTICS_ENABLED = FullTextIndex.class.getName()
+                + ".statisticsEnabled";
+
+        String DEFAULT_STATISTICS_ENABLED = "false";
+
+        /**
+         * The {@link IScorer} used to compute the relevance of the hits
+         * unless a query specifies another scorer (default
+         * {@value #DEFAULT_SCORER}). The value is either
+         * {@value CosineScorer#NAME}, {@value BM25Scorer#NAME} or the name of
+         * a class implementing {@link IScorer} which has a public zero
+         * argument constructor.
+         */
+        String SCORER = FullTextIndex.class.getName() + ".scorer";
+
+        String DEFAULT_SCORER = CosineScorer.NAME;
+
+        /**
+         * The term frequency saturation parameter for the {@link BM25Scorer}
+         * (default {@value #DEFAULT_BM25_K1}).
+         */
+        String BM25_K1 = FullTextIndex.class.getName() + ".bm25.k1";
+
+        String DEFAULT_BM25_K1 = "1.2";
+
+        /**
+         * The document length normalization parameter for the
+         * {@link BM25Scorer} (default {@value #DEFAULT_BM25_B}).
+         */
+        String BM25_B = FullTextIndex.class.getName() + ".bm25.b";
+
+        String DEFAULT_BM25_B = "0.75";
+
     }
     
     /**
@@ -437,6 +500,41 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
      */
     private final long hitCacheTimeoutMillis;
 
+    /**
+     * See {@link Options#TOP_K_MAX_RANK}.
+     */
+    private final int topKMaxRank;
+
+    /**
+     * See {@link Options#STATISTICS_ENABLED}.
+     */
+    private final boolean statisticsEnabled;
+
+    /**
+     * See {@link Options#BM25_K1}.
+     */
+    private final double bm25K1;
+
+    /**
+     * See {@link Options#BM25_B}.
+     */
+    private final double bm25B;
+
+    /**
+     * See {@link Options#SCORER}.
+     */
+    private final IScorer scorer;
+
+    /**
+     * Return the value configured by the {@link Options#STATISTICS_ENABLED}
+     * property.
+     */
+    public boolean isStatisticsEnabled() {
+
+        return statisticsEnabled;
+
+    }
+
     /**
      * See {@link Options#HIT_CACHE_SIZE}.
      */
@@ -564,6 +662,55 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
         }
 
+        {
+
+            topKMaxRank = Integer.parseInt(properties.getProperty(
+                    Options.TOP_K_MAX_RANK, Options.DEFAULT_TOP_K_MAX_RANK));
+
+            if (topKMaxRank < 0)
+                throw new IllegalArgumentException(Options.TOP_K_MAX_RANK
+                        + "=" + topKMaxRank);
+
+            if (log.isInfoEnabled())
+                log.info(Options.TOP_K_MAX_RANK + "=" + topKMaxRank);
+
+        }
+
+        {
+
+            statisticsEnabled = Boolean.parseBoolean(properties.getProperty(
+                    Options.STATISTICS_ENABLED,
+                    Options.DEFAULT_STATISTICS_ENABLED));
+
+            if (statisticsEnabled
+                    && indexManager instanceof IBigdataFederation) {
+                // The collection statistics would span index partitions.
+                throw new UnsupportedOperationException(
+                        Options.STATISTICS_ENABLED
+                                + " : not supported for scale-out");
+            }
+
+            if (log.isInfoEnabled())
+                log.info(Options.STATISTICS_ENABLED + "=" + statisticsEnabled);
+
+        }
+
+        {
+
+            bm25K1 = Double.parseDouble(properties.getProperty(
+                    Options.BM25_K1, Options.DEFAULT_BM25_K1));
+
+            bm25B = Double.parseDouble(properties.getProperty(
+                    Options.BM25_B, Options.DEFAULT_BM25_B));
+
+            scorer = newScorer(properties.getProperty(Options.SCORER,
+                    Options.DEFAULT_SCORER));
+
+            if (log.isInfoEnabled())
+                log.info(Options.SCORER + "=" + scorer);
+
+        }
+
         this.cache =
                new ConcurrentWeakValueCacheWithTimeout<FullTextQuery, Hit<V>[]>(
                                hitCacheSize, hitCacheTimeoutMillis);
@@ -694,8 +841,11 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
             indexMetadata.setTupleSerializer(new FullTextIndexTupleSerializer<V>(
                     keyBuilderFactory,//
                     DefaultTupleSerializer.getDefaultLeafKeysCoder(),//
-                    EmptyRabaValueCoder.INSTANCE,//
-                    fieldsEnabled//
+                    statisticsEnabled //
+                        ? DefaultTupleSerializer.getDefaultValuesCoder()//
+                        : EmptyRabaValueCoder.INSTANCE,//
+                    fieldsEnabled,//
+                    statisticsEnabled//
             ));
             
             indexManager.registerIndex(indexMetadata);
@@ -1086,6 +1236,7 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         final String regex = query.getMatchRegex();
         long timeout = query.getTimeout();
         final TimeUnit unit = query.getTimeUnit(); 
+        final IScorer scorer = getScorer(query);
 
         final long begin = System.currentTimeMillis();
         
@@ -1118,6 +1269,7 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
                     + ", maxRank=" + maxRank
                     + ", matchAllTerms=" + matchAllTerms
                     + ", prefixMatch=" + prefixMatch
+                    + ", scorer=" + scorer
                     + ", timeout=" + timeout + ", unit=" + unit);
 
         if (timeout == 0L) {
@@ -1155,7 +1307,25 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
             			
             }
             
-            a = executeQuery(qdata, prefixMatch, timeout, unit);
+            if (isTopKQuery(query, qdata)) {
+
+                /*
+                 * Only the top ranked hits are computed. They are not cached
+                 * since the cache key does not include the maximum rank.
+                 */
+
+                a = slice(query, executeTopKQuery(qdata, maxRank, timeout,
+                        unit));
+
+                if (log.isInfoEnabled())
+                    log.info("Done: " + a.length + " hits in "
+                            + (System.currentTimeMillis() - begin) + "ms");
+
+                return a;
+
+            }
+
+            a = executeQuery(qdata, prefixMatch, scorer, timeout, unit);
             
 	        if (a.length == 0) {
 	        	
@@ -1435,10 +1605,157 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
         
     }
     
+    /**
+     * Return <code>true</code> if the query may be evaluated for just the
+     * top ranked hits.
+     * 
+     * @see Options#TOP_K_MAX_RANK
+     */
+    protected boolean isTopKQuery(final FullTextQuery query,
+            final TermFrequencyData<V> qdata) {
+
+        if (topKMaxRank == 0 || query.getMaxRank() > topKMaxRank)
+            return false;
+
+        if (getIndexManager() instanceof IBigdataFederation) {
+            /*
+             * The reverse key range scans do not visit the tuples of the full
+             * text index through the scale-out client index views.
+             */
+            return false;
+        }
+
+        if (!(getScorer(query) instanceof CosineScorer)) {
+            /*
+             * The bounds are computed from the weights in the keys, which only
+             * determine the score for the cosine.
+             */
+            return false;
+        }
+
+        if (query.isPrefixMatch()) {
+            // The tuples for a prefix are not in weight order.
+            return false;
+        }
+
+        if (query.isMatchExact() || query.getMatchRegex() != null) {
+            // Hits are filtered after they are ranked.
+            return false;
+        }
+
+        if (query.isMatchAllTerms() && qdata.distinctTermCount() > 1) {
+            // Hits are filtered after they are ranked.
+            return false;
+        }
+
+        if (query.getMaxCosine() < 1.0d) {
+            // The highest ranked hits are discarded.
+            return false;
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Return the top ranked hits for the query.
+     * 
+     * @param qdata
+     *            The normalized query.
+     * @param maxRank
+     *            The #of hits to report.
+     * 
+     * @see TopKSearchTask
+     */
+    protected Hit<V>[] executeTopKQuery(final TermFrequencyData<V> qdata,
+            final int maxRank, final long timeout, final TimeUnit unit) {
+
+        return new TopKSearchTask<V>(qdata, maxRank, this, timeout, unit)
+                .call();
+
+    }
+
+    /**
+     * Return the {@link IScorer} for the query.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the scorer requires the term statistics but they are not
+     *             stored in this index.
+     * 
+     * @see Options#SCORER
+     */
+    protected IScorer getScorer(final FullTextQuery query) {
+
+        final IScorer scorer = query.getScorer() == null ? this.scorer
+                : newScorer(query.getScorer());
+
+        if (scorer.isStatisticsRequired() && !statisticsEnabled) {
+
+            throw new UnsupportedOperationException("Scorer " + scorer
+                    + " requires " + Options.STATISTICS_ENABLED);
+
+        }
+
+        return scorer;
+
+    }
+
+    /**
+     * Return the {@link IScorer} having the given name.
+     * 
+     * @param name
+     *            Either {@link CosineScorer#NAME}, {@link BM25Scorer#NAME}
+     *            (case insensitive) or the name of a class implementing
+     *            {@link IScorer}.
+     * 
+     * @see Options#SCORER
+     */
+    protected IScorer newScorer(final String name) {
+
+        if (CosineScorer.NAME.equalsIgnoreCase(name)) {
+
+            return new CosineScorer();
+
+        }
+
+        if (BM25Scorer.NAME.equalsIgnoreCase(name)) {
+
+            return new BM25Scorer(bm25K1, bm25B);
+
+        }
+
+        final Class<?> cls;
+        try {
+            cls = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown scorer: " + name, e);
+        }
+
+        if (!IScorer.class.isAssignableFrom(cls)) {
+            throw new IllegalArgumentException("Scorer must implement "
+                    + IScorer.class.getName() + " : " + name);
+        }
+
+        try {
+
+            return (IScorer) cls.newInstance();
+
+        } catch (Exception ex) {
+
+            throw new RuntimeException(ex);
+
+        }
+
+    }
+
     protected Hit<V>[] executeQuery(final TermFrequencyData<V> qdata,
-    		final boolean prefixMatch, final long timeout, final TimeUnit unit) {
+            final boolean prefixMatch, final IScorer scorer,
+            final long timeout, final TimeUnit unit) {
     	
         final IHitCollector<V> hits;
+
+        // The #of postings for each query term.
+        final long[] docFreq = new long[qdata.distinctTermCount()];
         
         if (qdata.distinctTermCount() == 1) {
         	
@@ -1450,6 +1767,8 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
             final CountIndexTask<V> task1 = new CountIndexTask<V>(termText, 0, 1,
             		prefixMatch, md.getLocalTermWeight(), this);
+
+            docFreq[0] = task1.getRangeCount();
             
             hits = new SingleTokenHitCollector<V>(task1);
         	
@@ -1465,14 +1784,27 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
                 final ITermMetadata md = e.getValue();
 
-                tasks.add(new CountIndexTask<V>(termText, i++, qdata.terms.size(), 
-                		prefixMatch, md.getLocalTermWeight(), this));
+                final CountIndexTask<V> task = new CountIndexTask<V>(termText,
+                        i, qdata.terms.size(), prefixMatch,
+                        md.getLocalTermWeight(), this);
+
+                docFreq[i++] = task.getRangeCount();
+
+                tasks.add(task);
 
             }
             
             hits = new MultiTokenHitCollector<V>(tasks);
         	
         }
+
+        /*
+         * Note: The collection statistics are read once per query so the hits
+         * are scored in a single pass over the postings.
+         */
+        final IScorer.ITermScorer[] termScorers = scorer.newTermScorers(qdata,
+                docFreq, scorer.isStatisticsRequired() ? TextIndexStatistics
+                        .read(getIndex()) : null);
         
         // run the queries.
         {
@@ -1487,8 +1819,11 @@ public class FullTextIndex<V extends Comparable<V>> extends AbstractRelation {
 
                 final ITermMetadata md = e.getValue();
 
-                tasks.add(new ReadIndexTask<V>(termText, i++, qdata.terms.size(),
-                		prefixMatch, md.getLocalTermWeight(), this, hits));
+                tasks.add(new ReadIndexTask<V>(termText, i, qdata.terms.size(),
+                        prefixMatch, md.getLocalTermWeight(), termScorers[i],
+                        this, hits));
+
+                i++;
 
             }
 
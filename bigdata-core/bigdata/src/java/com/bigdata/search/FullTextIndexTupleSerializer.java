@@ -42,6 +42,7 @@ import com.bigdata.btree.keys.IKeyBuilderFactory;
 import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.btree.raba.codec.IRabaCoder;
 import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
 import com.bigdata.util.Bytes;
 import com.bigdata.util.BytesUtil;
 
@@ -62,23 +63,35 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
             .getLogger(FullTextIndexTupleSerializer.class);
 
     private boolean fieldsEnabled;
+    private boolean statisticsEnabled;
 //    private boolean doublePrecision;
     
     public boolean isFieldsEnabled() {
         return fieldsEnabled;
     }
 
+    /**
+     * When <code>true</code> the value of each tuple records the term
+     * frequency and the document length.
+     * 
+     * @see FullTextIndex.Options#STATISTICS_ENABLED
+     */
+    public boolean isStatisticsEnabled() {
+        return statisticsEnabled;
+    }
+
 //    public boolean isDoublePrecision() {
 //        return doublePrecision;
 //    }
     
-//    /**
-//     * Used to serialize the values for the tuples in the index.
-//     * <p>
-//     * Note: While this object is not thread-safe, the mutable B+Tree is
-//     * restricted to a single writer so it does not have to be thread-safe.
-//     */
-//    final transient private DataOutputBuffer buf = new DataOutputBuffer(24);
+    /**
+     * Used to serialize the values for the tuples in the index.
+     * <p>
+     * Note: While this object is not thread-safe, the mutable B+Tree is
+     * restricted to a single writer so it does not have to be thread-safe.
+     */
+    final transient private DataOutputBuffer buf = new DataOutputBuffer(
+            TextIndexStatistics.POSTING_SIZE);
 
     /**
      * De-serialization constructor.
@@ -110,9 +123,30 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
 //            final boolean doublePrecision//
             ) {
    
+        this(keyBuilderFactory, leafKeysCoder, leafValsCoder, fieldsEnabled,
+                false/* statisticsEnabled */);
+
+    }
+
+    /**
+     * @param statisticsEnabled
+     *            When <code>true</code> the term frequency and the document
+     *            length are stored in the value of each tuple.
+     * 
+     * @see FullTextIndex.Options#STATISTICS_ENABLED
+     */
+    public FullTextIndexTupleSerializer(//
+            final IKeyBuilderFactory keyBuilderFactory,//
+            final IRabaCoder leafKeysCoder, //
+            final IRabaCoder leafValsCoder,//
+            final boolean fieldsEnabled,//
+            final boolean statisticsEnabled//
+            ) {
+   
         super(keyBuilderFactory, leafKeysCoder, leafValsCoder);
 
         this.fieldsEnabled = fieldsEnabled;
+        this.statisticsEnabled = statisticsEnabled;
 //        this.doublePrecision = doublePrecision;
         
     }
@@ -171,6 +205,17 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
     @Override
     public byte[] serializeVal(final ITermDocVal obj) {
 
+        if (statisticsEnabled) {
+
+            buf.reset();
+
+            TextIndexStatistics.appendPosting(buf, obj.termFreq(),
+                    obj.docLength());
+
+            return buf.toByteArray();
+
+        }
+
     	return null;
     	
 //        final ITermDocVal val = (ITermDocVal) obj;
@@ -285,6 +330,16 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
 //
 //        }
 //
+        if (statisticsEnabled) {
+
+            final ByteArrayBuffer vbuf = tuple.getValueBuffer();
+
+            return new ReadOnlyTermDocRecord<V>(null/* token */, docId,
+                    fieldId, TextIndexStatistics.getTermFreq(vbuf),
+                    TextIndexStatistics.getDocLength(vbuf), termWeight);
+
+        }
+
         return new ReadOnlyTermDocRecord<V>(null/* token */, docId, fieldId,
                 /* termFreq, */ termWeight);
 
@@ -295,7 +350,12 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
      */
     private static final transient byte VERSION0 = 0;
 
-    private static final transient byte VERSION = VERSION0;
+    /**
+     * Adds {@link #statisticsEnabled}.
+     */
+    private static final transient byte VERSION1 = 1;
+
+    private static final transient byte VERSION = VERSION1;
 
     public void readExternal(final ObjectInput in) throws IOException,
             ClassNotFoundException {
@@ -303,11 +363,13 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
         final byte version = in.readByte();
         switch (version) {
         case VERSION0:
+        case VERSION1:
             break;
         default:
             throw new IOException("unknown version=" + version);
         }
         this.fieldsEnabled = in.readBoolean();
+        this.statisticsEnabled = version >= VERSION1 ? in.readBoolean() : false;
 //        this.doublePrecision = in.readBoolean();
 
     }
@@ -316,6 +378,7 @@ public class FullTextIndexTupleSerializer<V extends Comparable<V>> extends
         super.writeExternal(out);
         out.writeByte(VERSION);
         out.writeBoolean(fieldsEnabled);
+        out.writeBoolean(statisticsEnabled);
 //        out.writeBoolean(doublePrecision);
     }
 
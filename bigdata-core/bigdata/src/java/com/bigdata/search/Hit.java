@@ -85,6 +85,18 @@ public class Hit<V extends Comparable<V>> implements IHit<V>,
         
     }
     
+    /**
+     * Return <code>true</code> iff a hit was reported for the search term.
+     * 
+     * @param termNdx
+     *            The index of the search term.
+     */
+    synchronized boolean hasTerm(final int termNdx) {
+
+        return searchTerms[termNdx];
+
+    }
+
     synchronized public double getCosine() {
         
         return cosine;
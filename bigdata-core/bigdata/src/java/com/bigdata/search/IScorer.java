@@ -0,0 +1,86 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+/**
+ * Interface for the relevance model used to score the hits for a full text
+ * query. The score of a hit is the sum over the query terms of the score
+ * reported by the {@link ITermScorer} for that query term for the posting of
+ * the document, so the hits are scored in a single pass over the postings.
+ * The score is reported as the {@link IHit#getCosine() relevance} of the hit
+ * and MUST lie in <code>[0:1]</code>.
+ *
+ * @see FullTextIndex.Options#SCORER
+ * @see CosineScorer
+ * @see BM25Scorer
+ */
+public interface IScorer {
+
+    /**
+     * Return <code>true</code> iff the scorer uses the term frequency and the
+     * document length of the postings and the collection statistics. Such
+     * scorers may only be used when
+     * {@link FullTextIndex.Options#STATISTICS_ENABLED} was specified when the
+     * index was created.
+     */
+    boolean isStatisticsRequired();
+
+    /**
+     * Return the scorer for each query term.
+     *
+     * @param qdata
+     *            The normalized query.
+     * @param docFreq
+     *            The #of postings for each query term, in the order of the
+     *            {@link TermFrequencyData#terms} (only available when
+     *            {@link #isStatisticsRequired()}).
+     * @param stats
+     *            The collection statistics (only available when
+     *            {@link #isStatisticsRequired()}).
+     *
+     * @return The scorer for each query term, in the order of the
+     *         {@link TermFrequencyData#terms}.
+     */
+    ITermScorer[] newTermScorers(TermFrequencyData<?> qdata, long[] docFreq,
+            TextIndexStatistics stats);
+
+    /**
+     * Scores the postings for one query term.
+     */
+    interface ITermScorer {
+
+        /**
+         * Return the contribution of the query term to the score of the
+         * document for the posting.
+         */
+        double score(ITermDocRecord<?> rec);
+
+    }
+
+}
@@ -36,11 +36,19 @@ package com.bigdata.search;
  */
 public interface ITermDocVal {
 
-//    /**
-//     * The term-frequency count for the token and document in the associated
-//     * entry of the full text search index.
-//     */
-//    int termFreq();
+    /**
+     * The term-frequency count for the token and document in the associated
+     * entry of the full text search index and ZERO (0) unless
+     * {@link FullTextIndex.Options#STATISTICS_ENABLED} was specified.
+     */
+    int termFreq();
+
+    /**
+     * The length (#of tokens) of the document (or field) in the associated
+     * entry of the full text search index and ZERO (0) unless
+     * {@link FullTextIndex.Options#STATISTICS_ENABLED} was specified.
+     */
+    int docLength();
 
 //    /**
 //     * The normalized local term weight for the token and document in the
@@ -38,6 +38,7 @@ public class ReadIndexTask<V extends Comparable<V>> extends AbstractIndexTask<V>
 
     private final IHitCollector<V> hits;
     private final ITupleIterator<?> itr;
+    private final IScorer.ITermScorer scorer;
 
     /**
      * This instance is reused until it is consumed by a successful insertion
@@ -74,12 +75,33 @@ public class ReadIndexTask<V extends Comparable<V>> extends AbstractIndexTask<V>
     		final boolean prefixMatch, final double queryTermWeight, 
     		final FullTextIndex<V> searchEngine, final IHitCollector<V> hits) {
 
+        this(termText, termNdx, numTerms, prefixMatch, queryTermWeight,
+                null/* scorer */, searchEngine, hits);
+
+    }
+
+    /**
+     * Variant which scores each posting using an {@link IScorer}.
+     * 
+     * @param scorer
+     *            The scorer for the search term -or- <code>null</code> to
+     *            score by the product of the query term weight and the local
+     *            term weight (the cosine).
+     */
+    public ReadIndexTask(final String termText, 
+            final int termNdx, final int numTerms,
+            final boolean prefixMatch, final double queryTermWeight, 
+            final IScorer.ITermScorer scorer,
+            final FullTextIndex<V> searchEngine, final IHitCollector<V> hits) {
+
     	super(termText, termNdx, numTerms, prefixMatch, queryTermWeight, searchEngine);
     	
         if (hits == null)
             throw new IllegalArgumentException();
         
         this.hits = hits;
+
+        this.scorer = scorer;
      
         if (log.isDebugEnabled())
             log.debug("termText=[" + termText + "], prefixMatch=" + prefixMatch
@@ -186,7 +208,8 @@ public class ReadIndexTask<V extends Comparable<V>> extends AbstractIndexTask<V>
                 }
             }
             
-            hit.add( queryTermNdx, queryTermWeight * termWeight );
+            hit.add(queryTermNdx, scorer == null ? queryTermWeight * termWeight
+                    : scorer.score(rec));
             
             nhits++;
             
@@ -14,7 +14,9 @@ public class ReadOnlyTermDocRecord<V extends Comparable<V>>
 
     private final Integer fieldId;
 
-//    private final int termFreq;
+    private final int termFreq;
+
+    private final int docLength;
 
     private final double termWeight;
 
@@ -23,13 +25,28 @@ public class ReadOnlyTermDocRecord<V extends Comparable<V>>
 //            final int termFreq, 
             final double termWeight) {
 
+        this(text, docId, fieldId, 0/* termFreq */, 0/* docLength */,
+                termWeight);
+
+    }
+
+    /**
+     * Variant used when the term statistics are stored in the index.
+     * 
+     * @see FullTextIndex.Options#STATISTICS_ENABLED
+     */
+    public ReadOnlyTermDocRecord(final String text, final V docId,
+            final int fieldId, final int termFreq, final int docLength,
+            final double termWeight) {
+
         if (docId == null)
             throw new IllegalArgumentException();
 
         this.text = text; // MAY be null.
         this.docId = docId;
         this.fieldId = fieldId;
-//        this.termFreq = termFreq;
+        this.termFreq = termFreq;
+        this.docLength = docLength;
         this.termWeight = termWeight;
 
     }
@@ -37,7 +54,8 @@ public class ReadOnlyTermDocRecord<V extends Comparable<V>>
     public String toString(){
 
         return getClass().getName() + "{text=" + text + ", docId=" + docId
-                + ", fieldId=" + fieldId /* + ", termFreq=" + termFreq */
+                + ", fieldId=" + fieldId + ", termFreq=" + termFreq
+                + ", docLength=" + docLength
                 + ", termWeight=" + termWeight + "}";
         
     }
@@ -68,8 +86,12 @@ public class ReadOnlyTermDocRecord<V extends Comparable<V>>
         return termWeight;
     }
 
-//    public int termFreq() {
-//        return termFreq;
-//    }
+    public int termFreq() {
+        return termFreq;
+    }
+
+    public int docLength() {
+        return docLength;
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import com.bigdata.btree.IIndex;
+import com.bigdata.io.ByteArrayBuffer;
+import com.bigdata.io.DataOutputBuffer;
+
+/**
+ * The collection statistics for a full text index (the #of documents and the
+ * sum of their lengths) together with the encoding of the per-posting term
+ * statistics (the term frequency and the document length).
+ * <p>
+ * When {@link FullTextIndex.Options#STATISTICS_ENABLED} is specified, the value
+ * of each posting ends with {@link #POSTING_SIZE} bytes:
+ *
+ * <pre>
+ * termFreq:int, docLength:int, flags:byte
+ * </pre>
+ *
+ * The {@link #FIRST} flag is set on exactly one of the postings written for
+ * each document. The collection statistics are stored in the same index under
+ * {@link #KEY}, which sorts before the key of any posting, and are maintained
+ * by the {@link TextIndexWriteProc} for the postings which it actually inserts,
+ * so a document which is indexed more than once is only counted once.
+ * <p>
+ * Note: The collection statistics are not maintained for scale-out since
+ * {@link #KEY} would only be found on the first index partition.
+ *
+ * @see IScorer#isStatisticsRequired()
+ */
+public class TextIndexStatistics {
+
+    /**
+     * The key under which the collection statistics are stored. Since the key
+     * of a posting always has a token, a weight and a document identifier, no
+     * posting can have this key and this key orders before all postings.
+     */
+    static final byte[] KEY = new byte[] { 0 };
+
+    /**
+     * The #of bytes in the per-posting statistics.
+     */
+    static final int POSTING_SIZE = 9;
+
+    /**
+     * The flag marking the posting which counts its document in the collection
+     * statistics.
+     */
+    static final byte FIRST = 1;
+
+    private final long docCount;
+
+    private final long totalLength;
+
+    /**
+     * @param docCount
+     *            The #of documents in the index.
+     * @param totalLength
+     *            The sum of the lengths (#of tokens) of those documents.
+     */
+    public TextIndexStatistics(final long docCount, final long totalLength) {
+
+        if (docCount < 0L || totalLength < 0L)
+            throw new IllegalArgumentException();
+
+        this.docCount = docCount;
+
+        this.totalLength = totalLength;
+
+    }
+
+    /**
+     * The #of documents in the index.
+     */
+    public long getDocCount() {
+
+        return docCount;
+
+    }
+
+    /**
+     * The sum of the lengths of the documents in the index.
+     */
+    public long getTotalLength() {
+
+        return totalLength;
+
+    }
+
+    /**
+     * The average length of a document and ONE (1) if the index is empty.
+     */
+    public double getAverageDocLength() {
+
+        if (docCount == 0L || totalLength == 0L)
+            return 1d;
+
+        return totalLength / (double) docCount;
+
+    }
+
+    public String toString() {
+
+        return getClass().getName() + "{docCount=" + docCount
+                + ", totalLength=" + totalLength + "}";
+
+    }
+
+    /**
+     * Read the collection statistics from the index. An index on which nothing
+     * has been written reports zero documents.
+     */
+    public static TextIndexStatistics read(final IIndex ndx) {
+
+        return decode(ndx.lookup(KEY));
+
+    }
+
+    /**
+     * Decode the value stored under {@link #KEY} (may be <code>null</code>).
+     */
+    static TextIndexStatistics decode(final byte[] val) {
+
+        if (val == null || val.length == 0)
+            return new TextIndexStatistics(0L, 0L);
+
+        final ByteArrayBuffer b = new ByteArrayBuffer(0, val.length, val);
+
+        return new TextIndexStatistics(b.getLong(0), b.getLong(8));
+
+    }
+
+    /**
+     * Encode the collection statistics as the value stored under
+     * {@link #KEY}.
+     */
+    byte[] encode() {
+
+        final DataOutputBuffer buf = new DataOutputBuffer(16);
+
+        buf.putLong(docCount);
+
+        buf.putLong(totalLength);
+
+        return buf.toByteArray();
+
+    }
+
+    /**
+     * Append the per-posting statistics to a value.
+     */
+    public static void appendPosting(final DataOutputBuffer buf,
+            final int termFreq, final int docLength) {
+
+        buf.putInt(termFreq);
+
+        buf.putInt(docLength);
+
+        buf.putByte((byte) 0/* flags */);
+
+    }
+
+    /**
+     * Set the {@link #FIRST} flag on an encoded value.
+     */
+    static void setFirst(final byte[] val) {
+
+        val[val.length - 1] |= FIRST;
+
+    }
+
+    /**
+     * Return <code>true</code> iff the {@link #FIRST} flag is set on an encoded
+     * value.
+     */
+    static boolean isFirst(final byte[] val) {
+
+        return (val[val.length - 1] & FIRST) != 0;
+
+    }
+
+    /**
+     * The document length from an encoded value.
+     */
+    static int getDocLength(final byte[] val) {
+
+        return new ByteArrayBuffer(0, val.length, val).getInt(val.length
+                - POSTING_SIZE + 4);
+
+    }
+
+    /**
+     * The term frequency from the value of a tuple.
+     */
+    public static int getTermFreq(final ByteArrayBuffer vbuf) {
+
+        return vbuf.getInt(vbuf.limit() - POSTING_SIZE);
+
+    }
+
+    /**
+     * The document length from the value of a tuple.
+     */
+    public static int getDocLength(final ByteArrayBuffer vbuf) {
+
+        return vbuf.getInt(vbuf.limit() - POSTING_SIZE + 4);
+
+    }
+
+}
@@ -39,6 +39,7 @@ import com.bigdata.btree.proc.LongAggregator;
 import com.bigdata.btree.raba.IRaba;
 import com.bigdata.btree.raba.codec.IRabaCoder;
 import com.bigdata.relation.IMutableRelationIndexWriteProcedure;
+import com.bigdata.util.BytesUtil;
 
 /**
  * Writes on the text index.
@@ -137,6 +138,14 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
     }
     
     /**
+     * {@inheritDoc}
+     * <p>
+     * When the first key is {@link TextIndexStatistics#KEY}, the collection
+     * statistics are updated for the documents whose postings are inserted by
+     * this procedure. A document is counted when the posting which is flagged
+     * as {@link TextIndexStatistics#FIRST} for that document was not already
+     * present in the index.
+     * 
      * @return The #of pre-existing tuples that were updated as an
      *         {@link Integer}.
      */
@@ -147,7 +156,13 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
 
         final int n = keys.size();
 
-        for (int i = 0; i < n; i++) {
+        final boolean statistics = n > 0
+                && BytesUtil.bytesEqual(TextIndexStatistics.KEY, keys.get(0));
+
+        // #of documents and sum of their lengths which were inserted.
+        long docCount = 0, totalLength = 0;
+
+        for (int i = statistics ? 1 : 0; i < n; i++) {
 
             final byte[] key = keys.get(i);
             assert key != null;
@@ -170,10 +185,11 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
              * Note: This is an optimization which avoids mutation of the btree
              * when there would be no change in the data.
              */
+            final byte[] oldval;
             if(overwrite) {
 
             	// overwrite.
-            	if (ndx.insert(key, val) != null) {
+            	if ((oldval = ndx.insert(key, val)) != null) {
 
 					updateCount++;
 
@@ -182,7 +198,7 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
             } else {
             	
             	// conditional mutation.
-				if (ndx.putIfAbsent(key, val) != null) {
+				if ((oldval = ndx.putIfAbsent(key, val)) != null) {
 
                     updateCount++;
 
@@ -190,6 +206,15 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
             	
             }
 
+            if (statistics && oldval == null
+                    && TextIndexStatistics.isFirst(val)) {
+
+                docCount++;
+
+                totalLength += TextIndexStatistics.getDocLength(val);
+
+            }
+
 //            final boolean write = overwrite || !ndx.contains(key);
 //            
 //            if (write && ndx.insert(key, val) != null) {
@@ -200,9 +225,20 @@ public class TextIndexWriteProc extends AbstractKeyArrayIndexProcedure<Long>
 
         }
 
+        if (docCount > 0) {
+
+            final TextIndexStatistics stats = TextIndexStatistics.read(ndx);
+
+            ndx.insert(TextIndexStatistics.KEY, new TextIndexStatistics(
+                    stats.getDocCount() + docCount, stats.getTotalLength()
+                            + totalLength).encode());
+
+        }
+
         if (log.isInfoEnabled())
             log.info("wrote " + n + " tuples of which " + updateCount
-                    + " were updated rows");
+                    + " were updated rows" + (statistics ? ", added "
+                    + docCount + " documents" : ""));
         
         return updateCount;
         
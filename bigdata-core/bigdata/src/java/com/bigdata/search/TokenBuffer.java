@@ -285,6 +285,12 @@ public class TokenBuffer<V extends Comparable<V>> {
         final ITupleSerializer<ITermDocKey<V>, ITermDocVal> tupleSer = textIndexer
                 .getIndex().getIndexMetadata().getTupleSerializer();
 
+        /*
+         * When the term statistics are stored, the collection statistics are
+         * maintained by the write procedure.
+         */
+        final boolean statistics = textIndexer.isStatisticsEnabled();
+
         // #of {token,docId,fieldId} tuples generated
         int n = 0;
 
@@ -296,6 +302,10 @@ public class TokenBuffer<V extends Comparable<V>> {
             final V docId = termFreq.docId;
 
             final int fieldId = termFreq.fieldId;
+
+            final int docLength = termFreq.totalTermCount();
+
+            boolean first = true;
             
             // emit {token,docId,fieldId} tuples.
             for(Map.Entry<String, ITermMetadata> e : termFreq.terms.entrySet()) {
@@ -314,8 +324,8 @@ public class TokenBuffer<V extends Comparable<V>> {
                  * into the key/val of the index.
                  */
                 final ITermDocRecord<V> rec = new ReadOnlyTermDocRecord<V>(
-                        termText, docId, fieldId, /* termMetadata.termFreq(), */
-                        termMetadata.getLocalTermWeight());
+                        termText, docId, fieldId, termMetadata.termFreq(),
+                        docLength, termMetadata.getLocalTermWeight());
 
                 final byte[] key = tupleSer.serializeKey(rec);
 
@@ -323,6 +333,15 @@ public class TokenBuffer<V extends Comparable<V>> {
 
                 final byte[] val = tupleSer.serializeVal(rec);
 
+                if (statistics && first) {
+
+                    // This posting counts the document.
+                    TextIndexStatistics.setFirst(val);
+
+                    first = false;
+
+                }
+
                 if (log.isDebugEnabled()) {
                     log.debug("{" + termText + "," + docId + "," + fieldId
                             + "}: #occurences=" + termMetadata.termFreq()
@@ -344,22 +363,34 @@ public class TokenBuffer<V extends Comparable<V>> {
 
         /*
          * Copy the correlated key:val data into keys[] and vals[] arrays.
+         * 
+         * Note: When the term statistics are stored, the key for the
+         * collection statistics is written first. It orders before all
+         * postings.
          */
 
-        final byte[][] keys = new byte[nterms][];
+        final int off = statistics ? 1 : 0;
+
+        final byte[][] keys = new byte[nterms + off][];
         
-        final byte[][] vals = new byte[nterms][];
+        final byte[][] vals = new byte[nterms + off][];
+
+        if (statistics) {
+
+            keys[0] = TextIndexStatistics.KEY;
+
+        }
         
         for (int i = 0; i < nterms; i++) {
             
-            keys[i] = a[i].key;
+            keys[i + off] = a[i].key;
 
-            vals[i] = a[i].val;
+            vals[i + off] = a[i].val;
             
         }
 
         // Batch write on the index.
-        writeOnIndex(n, keys, vals);
+        writeOnIndex(n + off, keys, vals);
 
         // Clear the buffer.
         reset();
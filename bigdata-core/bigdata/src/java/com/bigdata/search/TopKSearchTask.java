@@ -0,0 +1,497 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.btree.IRangeQuery;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+
+/**
+ * Evaluates a full text query for the top-K hits without materializing a
+ * {@link Hit} for every document in which a query term appears.
+ * <p>
+ * The key for the full text index is <code>{token, weight, docId}</code>, so
+ * the tuples for a given token are ordered by the local term weight. A reverse
+ * range scan therefore visits the documents for a token in decreasing weight
+ * order (an impact ordered posting list). The first tuple visited gives the
+ * maximum contribution of that token to any cosine and each subsequent tuple
+ * tightens that bound.
+ * <p>
+ * Since the posting lists are not in document order, WAND style pivoting is
+ * not possible. Instead, the query terms are read round-robin, one block of
+ * tuples at a time, using the "no random access" threshold algorithm:
+ * <ul>
+ * <li>The partial cosine of a candidate is a lower bound on its cosine.</li>
+ * <li>Adding the current bound of each term on which the candidate has not
+ * been seen gives an upper bound on its cosine.</li>
+ * <li>The sum of the current bounds over all terms is an upper bound on the
+ * cosine of any document which has not been seen at all.</li>
+ * </ul>
+ * Once the K<sup>th</sup> best lower bound exceeds that threshold, no new
+ * candidates are admitted and the candidates whose upper bound falls below the
+ * K<sup>th</sup> best lower bound are discarded. Reading continues only for
+ * the terms on which some surviving candidate has not yet been seen, until
+ * every surviving candidate has an exact cosine. The result is the same as
+ * rank ordering all hits and taking the first K, including the tie break on
+ * the <code>docId</code>.
+ * <p>
+ * Note: This must not be used with prefix match since the tuples for a prefix
+ * span many tokens and are therefore not ordered by weight.
+ *
+ * @param <V>
+ *            The generic type of the document identifier.
+ *
+ * @see FullTextIndex.Options#TOP_K_MAX_RANK
+ */
+public class TopKSearchTask<V extends Comparable<V>> implements
+        Callable<Hit<V>[]> {
+
+    final private static Logger log = Logger.getLogger(TopKSearchTask.class);
+
+    /**
+     * The #of tuples read from one term before moving on to the next term.
+     */
+    static final int BLOCK_SIZE = 1000;
+
+    /**
+     * A reverse range scan over the tuples for one query term.
+     */
+    private static class TermCursor<V extends Comparable<V>> extends
+            AbstractIndexTask<V> {
+
+        private final ITupleIterator<?> itr;
+
+        /**
+         * The upper bound on the contribution of this term for any document
+         * not yet visited by this cursor.
+         */
+        private double bound = Double.POSITIVE_INFINITY;
+
+        private boolean exhausted = false;
+
+        TermCursor(final String termText, final int termNdx,
+                final int numTerms, final double queryTermWeight,
+                final FullTextIndex<V> searchEngine) {
+
+            super(termText, termNdx, numTerms, false/* prefixMatch */,
+                    queryTermWeight, searchEngine);
+
+            itr = searchEngine.getIndex().rangeIterator(
+                    fromKey,
+                    toKey,
+                    0/* capacity */,
+                    IRangeQuery.KEYS | IRangeQuery.VALS | IRangeQuery.REVERSE,
+                    null/* filter */);
+
+        }
+
+    }
+
+    private final int k;
+
+    private final TermCursor<V>[] cursors;
+
+    private final long timeoutNanos;
+
+    /**
+     * The candidates.
+     */
+    private final Map<V, Hit<V>> candidates = new HashMap<V, Hit<V>>();
+
+    /**
+     * When <code>false</code>, documents which have not been seen are no
+     * longer admitted as candidates.
+     */
+    private boolean admit = true;
+
+    /**
+     * The #of tuples read from the index.
+     */
+    private long ntuples = 0L;
+
+    /**
+     * @param qdata
+     *            The normalized query.
+     * @param k
+     *            The #of hits to report.
+     * @param searchEngine
+     *            The search engine.
+     * @param timeout
+     *            The timeout (use {@link Long#MAX_VALUE} for no timeout).
+     * @param unit
+     *            The unit in which the timeout is expressed.
+     */
+    @SuppressWarnings("unchecked")
+    public TopKSearchTask(final TermFrequencyData<V> qdata, final int k,
+            final FullTextIndex<V> searchEngine, final long timeout,
+            final TimeUnit unit) {
+
+        if (qdata == null)
+            throw new IllegalArgumentException();
+
+        if (k <= 0)
+            throw new IllegalArgumentException();
+
+        if (searchEngine == null)
+            throw new IllegalArgumentException();
+
+        this.k = k;
+
+        final int n = qdata.distinctTermCount();
+
+        this.cursors = new TermCursor[n];
+
+        int i = 0;
+        for (Map.Entry<String, ITermMetadata> e : qdata.terms.entrySet()) {
+
+            cursors[i] = new TermCursor<V>(e.getKey(), i, n, e.getValue()
+                    .getLocalTermWeight(), searchEngine);
+
+            i++;
+
+        }
+
+        this.timeoutNanos = unit.toNanos(timeout);
+
+    }
+
+    /**
+     * Return the top-K hits in rank order. The rank is set on each hit. If the
+     * timeout expires or the thread is interrupted then the best hits found so
+     * far are reported.
+     */
+    @Override
+    public Hit<V>[] call() {
+
+        final long begin = System.currentTimeMillis();
+
+        final long beginNanos = System.nanoTime();
+
+        while (true) {
+
+            boolean more = false;
+
+            for (TermCursor<V> c : cursors) {
+
+                if (c.exhausted)
+                    continue;
+
+                if (!admit && !isNeeded(c))
+                    continue;
+
+                read(c);
+
+                more = true;
+
+            }
+
+            if (!more)
+                break;
+
+            if (System.nanoTime() - beginNanos >= timeoutNanos
+                    || Thread.interrupted()) {
+
+                log.warn("Timeout or interrupt: only partial results will be returned: ntuples="
+                        + ntuples);
+
+                break;
+
+            }
+
+            prune();
+
+        }
+
+        @SuppressWarnings("unchecked")
+        final Hit<V>[] a = candidates.values().toArray(
+                new Hit[candidates.size()]);
+
+        Arrays.sort(a);
+
+        final Hit<V>[] b = a.length > k ? Arrays.copyOf(a, k) : a;
+
+        for (int i = 0; i < b.length; i++) {
+
+            b[i].setRank(i + 1);
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("k=" + k + ", nterms=" + cursors.length + ", ntuples="
+                    + ntuples + ", ncandidates=" + candidates.size()
+                    + ", elapsed=" + (System.currentTimeMillis() - begin)
+                    + "ms");
+
+        return b;
+
+    }
+
+    /**
+     * Read up to {@link #BLOCK_SIZE} tuples from the cursor.
+     */
+    private void read(final TermCursor<V> c) {
+
+        final ITupleIterator<?> itr = c.itr;
+
+        final int termNdx = c.queryTermNdx;
+
+        final int numTerms = c.numQueryTerms;
+
+        int n = 0;
+
+        while (n < BLOCK_SIZE && itr.hasNext()) {
+
+            final ITuple<?> tuple = itr.next();
+
+            @SuppressWarnings("unchecked")
+            final ITermDocRecord<V> rec = (ITermDocRecord<V>) tuple.getObject();
+
+            final double weight = c.queryTermWeight * rec.getLocalTermWeight();
+
+            // Note: The weights are visited in decreasing order.
+            c.bound = weight;
+
+            final V docId = rec.getDocId();
+
+            Hit<V> hit = candidates.get(docId);
+
+            if (hit == null) {
+
+                if (admit) {
+
+                    hit = new Hit<V>(numTerms);
+
+                    hit.setDocId(docId);
+
+                    candidates.put(docId, hit);
+
+                }
+
+            }
+
+            if (hit != null) {
+
+                hit.add(termNdx, weight);
+
+            }
+
+            n++;
+
+        }
+
+        ntuples += n;
+
+        if (!itr.hasNext()) {
+
+            c.exhausted = true;
+
+            c.bound = 0d;
+
+        }
+
+    }
+
+    /**
+     * Return <code>true</code> if some candidate has not been seen on the
+     * term.
+     */
+    private boolean isNeeded(final TermCursor<V> c) {
+
+        for (Hit<V> hit : candidates.values()) {
+
+            if (!hit.hasTerm(c.queryTermNdx))
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * The upper bound on the cosine for a candidate.
+     */
+    private double upperBound(final Hit<V> hit) {
+
+        double ub = hit.getCosine();
+
+        for (TermCursor<V> c : cursors) {
+
+            if (!hit.hasTerm(c.queryTermNdx))
+                ub += c.bound;
+
+        }
+
+        return ub;
+
+    }
+
+    /**
+     * Return <code>true</code> if the cosine of the candidate is exact (it has
+     * been seen on every term which is not exhausted).
+     */
+    private boolean isComplete(final Hit<V> hit) {
+
+        for (TermCursor<V> c : cursors) {
+
+            if (!c.exhausted && !hit.hasTerm(c.queryTermNdx))
+                return false;
+
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Stop admitting new candidates once no document which has not been seen
+     * could be in the top-K and discard the candidates which can not be in the
+     * top-K.
+     * <p>
+     * Note: It is safe to discard a candidate whose upper bound is less than
+     * the K<sup>th</sup> best lower bound even while candidates are still
+     * being admitted. If that document is seen again then it is re-admitted
+     * with a partial cosine, but its cosine is already known to be too small
+     * for the top-K so it will be discarded again.
+     */
+    private void prune() {
+
+        if (candidates.size() < k)
+            return;
+
+        /*
+         * The K-th best candidate by its lower bound, using the same order as
+         * the rank order of the hits (the worst is at the head of the heap).
+         */
+        final Hit<V> kthHit;
+        {
+
+            final PriorityQueue<Hit<V>> heap = new PriorityQueue<Hit<V>>(k,
+                    Collections.reverseOrder());
+
+            for (Hit<V> hit : candidates.values()) {
+
+                if (heap.size() < k) {
+
+                    heap.add(hit);
+
+                } else if (hit.compareTo(heap.peek()) < 0) {
+
+                    heap.poll();
+
+                    heap.add(hit);
+
+                }
+
+            }
+
+            kthHit = heap.peek();
+
+        }
+
+        // The K-th best lower bound.
+        final double kth = kthHit.getCosine();
+
+        if (admit) {
+
+            double threshold = 0d;
+
+            for (TermCursor<V> c : cursors) {
+
+                threshold += c.bound;
+
+            }
+
+            /*
+             * Note: A document which has not been seen could tie the K-th
+             * candidate and win the tie on its docId, so the threshold must be
+             * strictly less.
+             */
+
+            if (threshold < kth) {
+
+                admit = false;
+
+                if (log.isDebugEnabled())
+                    log.debug("No longer admitting candidates: threshold="
+                            + threshold + ", kth=" + kth + ", ntuples="
+                            + ntuples);
+
+            }
+
+        }
+
+        final Iterator<Hit<V>> itr = candidates.values().iterator();
+
+        while (itr.hasNext()) {
+
+            final Hit<V> hit = itr.next();
+
+            if (upperBound(hit) < kth) {
+
+                itr.remove();
+
+            } else if (hit != kthHit && hit.compareTo(kthHit) > 0
+                    && isComplete(hit)) {
+
+                /*
+                 * The cosine is exact and K candidates rank ahead of this one.
+                 * This bounds the #of candidates when there is a long run of
+                 * tuples having the same weight.
+                 */
+
+                itr.remove();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * The #of tuples read from the index.
+     */
+    long getTupleCount() {
+
+        return ntuples;
+
+    }
+
+}
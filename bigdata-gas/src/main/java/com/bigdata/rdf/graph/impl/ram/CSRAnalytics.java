@@ -0,0 +1,498 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.ram;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.analytics.CC;
+import com.bigdata.rdf.graph.analytics.PR;
+import com.bigdata.rdf.graph.analytics.SSSP;
+
+/**
+ * The {@link BFS}, {@link SSSP}, {@link CC} and {@link PR} programs evaluated
+ * against a {@link CSRGraph}. These follow the same frontier based
+ * GATHER/APPLY/SCATTER rounds as the corresponding {@link BFS}, {@link SSSP},
+ * {@link CC} and {@link PR} programs, but the vertex state is held in
+ * primitive arrays indexed by the dense vertex identifier and the frontier is
+ * an <code>int[]</code>, so nothing is allocated per vertex or per edge once
+ * the arrays for the result have been allocated.
+ * <p>
+ * Note: These programs are single threaded and each program runs to
+ * completion (or to its iteration limit) before returning.
+ */
+public class CSRAnalytics {
+
+    private static final Logger log = Logger.getLogger(CSRAnalytics.class);
+
+    /**
+     * The reset probability for {@link #pageRank(CSRGraph)} (the same default
+     * as {@link PR}).
+     */
+    public static final double DEFAULT_RESET_PROB = 0.15d;
+
+    /**
+     * The convergence threshold for {@link #pageRank(CSRGraph)} (the same
+     * default as {@link PR}).
+     */
+    public static final double DEFAULT_EPSILON = 0.01d;
+
+    /**
+     * The maximum #of rounds for {@link #pageRank(CSRGraph)} (the same default
+     * as {@link PR}).
+     */
+    public static final int DEFAULT_LIMIT = 100;
+
+    private CSRAnalytics() {
+        // static methods only.
+    }
+
+    /**
+     * The frontier for the current round and the frontier being scheduled for
+     * the next round. A vertex is scheduled at most once per round.
+     */
+    private static final class Frontier {
+
+        private int[] cur;
+
+        private int[] next;
+
+        private int ncur = 0;
+
+        private int nnext = 0;
+
+        /**
+         * The round in which each vertex was last scheduled.
+         */
+        private final int[] scheduled;
+
+        private int round = 0;
+
+        Frontier(final int nvertices) {
+
+            cur = new int[nvertices];
+
+            next = new int[nvertices];
+
+            scheduled = new int[nvertices];
+
+            Arrays.fill(scheduled, -1);
+
+        }
+
+        void schedule(final int v) {
+
+            if (scheduled[v] != round) {
+
+                scheduled[v] = round;
+
+                next[nnext++] = v;
+
+            }
+
+        }
+
+        /**
+         * Make the scheduled vertices the current frontier.
+         * 
+         * @return <code>true</code> iff the new frontier is not empty.
+         */
+        boolean nextRound() {
+
+            final int[] t = cur;
+
+            cur = next;
+
+            next = t;
+
+            ncur = nnext;
+
+            nnext = 0;
+
+            round++;
+
+            return ncur > 0;
+
+        }
+
+    }
+
+    /**
+     * Breadth first search over the out-edges.
+     * 
+     * @param g
+     *            The graph.
+     * @param predecessor
+     *            When non-<code>null</code>, this array is set to the vertex
+     *            which first discovered each vertex and <code>-1</code> for
+     *            the sources and the vertices which were not visited.
+     * @param sources
+     *            The vertex identifiers of the initial frontier.
+     * 
+     * @return The depth of each vertex (origin ZERO) and <code>-1</code> for
+     *         the vertices which were not visited.
+     * 
+     * @see BFS
+     */
+    public static int[] bfs(final CSRGraph g, final int[] predecessor,
+            final int... sources) {
+
+        final int n = g.getVertexCount();
+
+        if (predecessor != null && predecessor.length != n)
+            throw new IllegalArgumentException();
+
+        final int[] off = g.getOutOffsets();
+
+        final int[] adj = g.getOutTargets();
+
+        final int[] depth = new int[n];
+
+        Arrays.fill(depth, -1);
+
+        if (predecessor != null)
+            Arrays.fill(predecessor, -1);
+
+        final Frontier f = new Frontier(n);
+
+        for (int s : sources) {
+
+            depth[s] = 0;
+
+            f.schedule(s);
+
+        }
+
+        int d = 0;
+
+        while (f.nextRound()) {
+
+            d++;
+
+            for (int i = 0; i < f.ncur; i++) {
+
+                final int u = f.cur[i];
+
+                for (int j = off[u], end = off[u + 1]; j < end; j++) {
+
+                    final int v = adj[j];
+
+                    if (depth[v] == -1) {
+
+                        depth[v] = d;
+
+                        if (predecessor != null)
+                            predecessor[v] = u;
+
+                        f.schedule(v);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("BFS: " + g + ", rounds=" + f.round);
+
+        return depth;
+
+    }
+
+    /**
+     * Single source shortest paths over the out-edges. Since the graph does
+     * not have link weights, each edge has a weight of ONE (1).
+     * 
+     * @param g
+     *            The graph.
+     * @param source
+     *            The vertex identifier of the source.
+     * 
+     * @return The distance of each vertex from the source and
+     *         {@link Double#MAX_VALUE} for the vertices which are not
+     *         reachable.
+     * 
+     * @see SSSP
+     */
+    public static double[] sssp(final CSRGraph g, final int source) {
+
+        final int n = g.getVertexCount();
+
+        final int[] off = g.getOutOffsets();
+
+        final int[] adj = g.getOutTargets();
+
+        final double[] dist = new double[n];
+
+        Arrays.fill(dist, Double.MAX_VALUE);
+
+        dist[source] = 0d;
+
+        final Frontier f = new Frontier(n);
+
+        f.schedule(source);
+
+        while (f.nextRound()) {
+
+            for (int i = 0; i < f.ncur; i++) {
+
+                final int u = f.cur[i];
+
+                final double d = dist[u] + 1d/* weight */;
+
+                for (int j = off[u], end = off[u + 1]; j < end; j++) {
+
+                    final int v = adj[j];
+
+                    if (d < dist[v]) {
+
+                        dist[v] = d;
+
+                        f.schedule(v);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("SSSP: " + g + ", rounds=" + f.round);
+
+        return dist;
+
+    }
+
+    /**
+     * Connected components, ignoring the direction of the edges. Each vertex
+     * is labeled by the smallest vertex identifier in its connected component.
+     * 
+     * @param g
+     *            The graph.
+     * 
+     * @return The label of each vertex.
+     * 
+     * @see CC
+     */
+    public static int[] connectedComponents(final CSRGraph g) {
+
+        final int n = g.getVertexCount();
+
+        final int[] outOff = g.getOutOffsets();
+
+        final int[] outAdj = g.getOutTargets();
+
+        final int[] inOff = g.getInOffsets();
+
+        final int[] inAdj = g.getInSources();
+
+        final int[] label = new int[n];
+
+        final Frontier f = new Frontier(n);
+
+        for (int u = 0; u < n; u++) {
+
+            label[u] = u;
+
+            f.schedule(u);
+
+        }
+
+        while (f.nextRound()) {
+
+            for (int i = 0; i < f.ncur; i++) {
+
+                final int u = f.cur[i];
+
+                final int lu = label[u];
+
+                // Note: The labels only decrease, so it is safe to update them
+                // in place.
+                for (int j = outOff[u], end = outOff[u + 1]; j < end; j++) {
+
+                    final int v = outAdj[j];
+
+                    if (lu < label[v]) {
+
+                        label[v] = lu;
+
+                        f.schedule(v);
+
+                    }
+
+                }
+
+                for (int j = inOff[u], end = inOff[u + 1]; j < end; j++) {
+
+                    final int v = inAdj[j];
+
+                    if (lu < label[v]) {
+
+                        label[v] = lu;
+
+                        f.schedule(v);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("CC: " + g + ", rounds=" + f.round);
+
+        return label;
+
+    }
+
+    /**
+     * Page rank using the same defaults as {@link PR}.
+     * 
+     * @see #pageRank(CSRGraph, double, double, int)
+     */
+    public static double[] pageRank(final CSRGraph g) {
+
+        return pageRank(g, DEFAULT_RESET_PROB, DEFAULT_EPSILON, DEFAULT_LIMIT);
+
+    }
+
+    /**
+     * Page rank. Each vertex starts at the reset probability. In each round,
+     * the vertices in the frontier GATHER
+     * <code>value(v) / outDegree(v)</code> over their in-edges and APPLY
+     * <code>resetProb + (1 - resetProb) * sum</code>. The out-neighbors of a
+     * vertex whose value increased by more than <i>epsilon</i> are scheduled
+     * for the next round. Unlike {@link PR}, the new values of a round are
+     * only visible in the next round, so the result does not depend on the
+     * order in which the vertices are visited.
+     * 
+     * @param g
+     *            The graph.
+     * @param resetProb
+     *            The random reset probability.
+     * @param epsilon
+     *            The change below which a vertex is considered converged.
+     * @param limit
+     *            The maximum #of rounds.
+     * 
+     * @return The page rank of each vertex.
+     * 
+     * @see PR
+     */
+    public static double[] pageRank(final CSRGraph g, final double resetProb,
+            final double epsilon, final int limit) {
+
+        final int n = g.getVertexCount();
+
+        final int[] outOff = g.getOutOffsets();
+
+        final int[] outAdj = g.getOutTargets();
+
+        final int[] inOff = g.getInOffsets();
+
+        final int[] inAdj = g.getInSources();
+
+        final double[] value = new double[n];
+
+        // The new value for each vertex in the current frontier.
+        final double[] newval = new double[n];
+
+        Arrays.fill(value, resetProb);
+
+        final Frontier f = new Frontier(n);
+
+        for (int u = 0; u < n; u++) {
+
+            f.schedule(u);
+
+        }
+
+        int rounds = 0;
+
+        while (rounds < limit && f.nextRound()) {
+
+            rounds++;
+
+            // GATHER and APPLY.
+            for (int i = 0; i < f.ncur; i++) {
+
+                final int u = f.cur[i];
+
+                final int begin = inOff[u], end = inOff[u + 1];
+
+                if (begin == end) {
+
+                    // No in-edges. No change.
+                    newval[i] = value[u];
+
+                    continue;
+
+                }
+
+                double sum = 0d;
+
+                for (int j = begin; j < end; j++) {
+
+                    final int v = inAdj[j];
+
+                    // Note: [v] has at least one out-edge (to [u]).
+                    sum += value[v] / (outOff[v + 1] - outOff[v]);
+
+                }
+
+                newval[i] = resetProb + (1d - resetProb) * sum;
+
+            }
+
+            // Make the new values visible and SCATTER.
+            for (int i = 0; i < f.ncur; i++) {
+
+                final int u = f.cur[i];
+
+                final double change = newval[i] - value[u];
+
+                value[u] = newval[i];
+
+                if (change > epsilon) {
+
+                    for (int j = outOff[u], end = outOff[u + 1]; j < end; j++) {
+
+                        f.schedule(outAdj[j]);
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (log.isInfoEnabled())
+            log.info("PR: " + g + ", rounds=" + rounds);
+
+        return value;
+
+    }
+
+}
@@ -0,0 +1,297 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.ram;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+
+import com.bigdata.rdf.graph.impl.ram.RAMGASEngine.RAMGraph;
+import com.bigdata.rdf.graph.impl.util.ManagedIntArray;
+
+/**
+ * A compiled, read-only view of a {@link RAMGraph}. Each vertex is assigned a
+ * dense <code>int</code> identifier in <code>[0:n)</code> and the edges are
+ * stored in compressed sparse row (CSR) form, once for the out-edges and once
+ * for the in-edges. The neighbors of vertex <code>u</code> are the entries of
+ * the adjacency array from <code>offsets[u]</code> (inclusive) to
+ * <code>offsets[u+1]</code> (exclusive). Graph algorithms over this form can
+ * keep their vertex state in primitive arrays indexed by the vertex identifier
+ * and visit the edges without allocating any objects.
+ * <p>
+ * The {@link Value}s are only used to translate vertices into and out of the
+ * dense identifiers. The graph is not updated if the {@link RAMGraph} is
+ * modified after it was compiled.
+ * <p>
+ * Note: Parallel edges (distinct statements with the same subject and object,
+ * e.g., for different link types) are retained, as they are by the
+ * {@link RAMGraph}.
+ * 
+ * @see CSRAnalytics
+ */
+public class CSRGraph {
+
+    /**
+     * The {@link Value} for each vertex identifier.
+     */
+    private final Value[] values;
+
+    /**
+     * The vertex identifier for each {@link Value}.
+     */
+    private final Map<Value, Integer> ids;
+
+    /**
+     * The offsets into {@link #outAdj} (one more than the #of vertices).
+     */
+    private final int[] outOff;
+
+    /**
+     * The target vertex for each out-edge, grouped by the source vertex.
+     */
+    private final ManagedIntArray outAdj;
+
+    /**
+     * The offsets into {@link #inAdj} (one more than the #of vertices).
+     */
+    private final int[] inOff;
+
+    /**
+     * The source vertex for each in-edge, grouped by the target vertex.
+     */
+    private final ManagedIntArray inAdj;
+
+    /**
+     * Compile a {@link RAMGraph}.
+     * 
+     * @param g
+     *            The graph.
+     * @param linkType
+     *            When non-<code>null</code>, only the edges having this
+     *            predicate are retained. All vertices are retained regardless.
+     * 
+     * @return The compiled graph.
+     */
+    public static CSRGraph compile(final RAMGraph g, final URI linkType) {
+
+        if (g == null)
+            throw new IllegalArgumentException();
+
+        return new CSRGraph(g, linkType);
+
+    }
+
+    private CSRGraph(final RAMGraph g, final URI linkType) {
+
+        // Assign the vertex identifiers.
+        {
+            final int n = g.getVertexCount();
+
+            values = new Value[n];
+
+            ids = new HashMap<Value, Integer>(n + n / 3 + 1);
+
+            int id = 0;
+
+            final Iterator<Value> itr = g.vertices();
+
+            while (itr.hasNext() && id < n) {
+
+                final Value v = itr.next();
+
+                values[id] = v;
+
+                ids.put(v, Integer.valueOf(id));
+
+                id++;
+
+            }
+
+            if (id != n || itr.hasNext())
+                throw new IllegalStateException(
+                        "Graph modified during compile");
+
+        }
+
+        outOff = new int[values.length + 1];
+
+        outAdj = new ManagedIntArray();
+
+        inOff = new int[values.length + 1];
+
+        inAdj = new ManagedIntArray();
+
+        int nout = 0, nin = 0;
+
+        for (int u = 0; u < values.length; u++) {
+
+            final Value v = values[u];
+
+            nout = addEdges(g.outEdges(v), false/* inEdges */, linkType,
+                    outAdj, nout);
+
+            outOff[u + 1] = nout;
+
+            nin = addEdges(g.inEdges(v), true/* inEdges */, linkType, inAdj,
+                    nin);
+
+            inOff[u + 1] = nin;
+
+        }
+
+    }
+
+    /**
+     * Append the other vertex of each edge to the adjacency array.
+     * 
+     * @return The new #of entries in the adjacency array.
+     */
+    private int addEdges(final Iterator<Statement> itr, final boolean inEdges,
+            final URI linkType, final ManagedIntArray adj, int pos) {
+
+        while (itr.hasNext()) {
+
+            final Statement e = itr.next();
+
+            if (linkType != null && !linkType.equals(e.getPredicate()))
+                continue;
+
+            final Value other = inEdges ? e.getSubject() : e.getObject();
+
+            final Integer id = ids.get(other);
+
+            if (id == null)
+                throw new IllegalStateException(
+                        "Graph modified during compile");
+
+            adj.putInt(pos++, id.intValue());
+
+        }
+
+        return pos;
+
+    }
+
+    /**
+     * The #of vertices.
+     */
+    public int getVertexCount() {
+
+        return values.length;
+
+    }
+
+    /**
+     * The #of edges.
+     */
+    public int getEdgeCount() {
+
+        return outOff[values.length];
+
+    }
+
+    /**
+     * Return the identifier of the vertex for the {@link Value} and
+     * <code>-1</code> if the {@link Value} is not a vertex.
+     */
+    public int getId(final Value v) {
+
+        final Integer id = ids.get(v);
+
+        return id == null ? -1 : id.intValue();
+
+    }
+
+    /**
+     * Return the {@link Value} for a vertex identifier.
+     */
+    public Value getValue(final int id) {
+
+        return values[id];
+
+    }
+
+    /**
+     * The #of out-edges of a vertex.
+     */
+    public int getOutDegree(final int u) {
+
+        return outOff[u + 1] - outOff[u];
+
+    }
+
+    /**
+     * The #of in-edges of a vertex.
+     */
+    public int getInDegree(final int u) {
+
+        return inOff[u + 1] - inOff[u];
+
+    }
+
+    /**
+     * The offsets of the out-edges of each vertex into
+     * {@link #getOutTargets()}. The caller MUST NOT modify the array.
+     */
+    public int[] getOutOffsets() {
+
+        return outOff;
+
+    }
+
+    /**
+     * The target of each out-edge, grouped by the source vertex. The caller
+     * MUST NOT modify the array. The array may be longer than the #of edges.
+     */
+    public int[] getOutTargets() {
+
+        return outAdj.array();
+
+    }
+
+    /**
+     * The offsets of the in-edges of each vertex into {@link #getInSources()}.
+     * The caller MUST NOT modify the array.
+     */
+    public int[] getInOffsets() {
+
+        return inOff;
+
+    }
+
+    /**
+     * The source of each in-edge, grouped by the target vertex. The caller
+     * MUST NOT modify the array. The array may be longer than the #of edges.
+     */
+    public int[] getInSources() {
+
+        return inAdj.array();
+
+    }
+
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName() + "{vertices=" + getVertexCount()
+                + ",edges=" + getEdgeCount() + "}";
+
+    }
+
+}
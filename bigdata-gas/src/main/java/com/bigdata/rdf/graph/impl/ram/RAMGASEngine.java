@@ -240,6 +240,29 @@ public class RAMGASEngine extends GASEngine {
 
         }
 
+        /**
+         * The #of vertices.
+         */
+        public int getVertexCount() {
+            return vertices.size();
+        }
+
+        /**
+         * Visit the vertices.
+         */
+        public Iterator<Value> vertices() {
+            return vertices.keySet().iterator();
+        }
+
+        /**
+         * Compile the graph into a dense integer form.
+         * 
+         * @see CSRGraph#compile(RAMGraph, URI)
+         */
+        public CSRGraph compile() {
+            return CSRGraph.compile(this, null/* linkType */);
+        }
+
         public Iterator<Statement> inEdges(final Value v) {
             final Vertex x = get(v, false/* create */);
             if (x == null)
@@ -56,6 +56,8 @@ public class TestAll extends TestCase {
          */
 
         suite.addTestSuite(TestGather.class);
+
+        suite.addTestSuite(TestCSRGraph.class);
         
         return suite;
         
@@ -0,0 +1,342 @@
+/**
+   Copyright (C) SYSTAP, LLC 2006-2012.  All rights reserved.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.bigdata.rdf.graph.impl.ram;
+
+import java.util.Random;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+
+import com.bigdata.rdf.graph.IGASContext;
+import com.bigdata.rdf.graph.IGASEngine;
+import com.bigdata.rdf.graph.IGASState;
+import com.bigdata.rdf.graph.IGraphAccessor;
+import com.bigdata.rdf.graph.analytics.BFS;
+import com.bigdata.rdf.graph.analytics.CC;
+import com.bigdata.rdf.graph.impl.ram.RAMGASEngine.RAMGraph;
+
+/**
+ * Test suite for the {@link CSRGraph} and the {@link CSRAnalytics}.
+ */
+public class TestCSRGraph extends AbstractRAMGraphTestCase {
+
+    public TestCSRGraph() {
+        
+    }
+    
+    public TestCSRGraph(String name) {
+        super(name);
+    }
+
+    public void test_compile() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = getGraphFixture().getGraph().compile();
+
+        // Mike, Bryan, Martyn, DC and foaf:Person. The literals are not
+        // vertices.
+        assertEquals(5, g.getVertexCount());
+
+        // 3 x rdf:type and 4 x foaf:knows.
+        assertEquals(7, g.getEdgeCount());
+
+        for (int u = 0; u < g.getVertexCount(); u++) {
+
+            assertEquals(u, g.getId(g.getValue(u)));
+
+        }
+
+        final int bryan = g.getId(p.getBryan());
+
+        assertEquals(3, g.getOutDegree(bryan));
+
+        assertEquals(2, g.getInDegree(bryan));
+
+        assertEquals(0, g.getOutDegree(g.getId(p.getFoafPerson())));
+
+        assertEquals(3, g.getInDegree(g.getId(p.getFoafPerson())));
+
+        assertEquals(-1, g.getId(getGraphFixture().getGraph().getValueFactory()
+                .createURI("http://www.bigdata.com/NotAVertex")));
+
+        // Only the foaf:knows edges.
+        final CSRGraph g2 = CSRGraph.compile(getGraphFixture().getGraph(),
+                p.getFoafKnows());
+
+        assertEquals(5, g2.getVertexCount());
+
+        assertEquals(4, g2.getEdgeCount());
+
+        assertEquals(0, g2.getInDegree(g2.getId(p.getFoafPerson())));
+
+    }
+
+    public void test_bfs() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = getGraphFixture().getGraph().compile();
+
+        final int mike = g.getId(p.getMike());
+
+        final int[] pred = new int[g.getVertexCount()];
+
+        final int[] depth = CSRAnalytics.bfs(g, pred, mike);
+
+        assertEquals(0, depth[mike]);
+        assertEquals(-1, pred[mike]);
+
+        assertEquals(1, depth[g.getId(p.getFoafPerson())]);
+        assertEquals(mike, pred[g.getId(p.getFoafPerson())]);
+
+        assertEquals(1, depth[g.getId(p.getBryan())]);
+        assertEquals(mike, pred[g.getId(p.getBryan())]);
+
+        assertEquals(2, depth[g.getId(p.getMartyn())]);
+        assertEquals(g.getId(p.getBryan()), pred[g.getId(p.getMartyn())]);
+
+        // foaf:Person has no out-edges.
+        final int[] depth2 = CSRAnalytics.bfs(g, null/* predecessor */,
+                g.getId(p.getFoafPerson()));
+
+        for (int u = 0; u < g.getVertexCount(); u++) {
+
+            assertEquals(g.getValue(u).equals(p.getFoafPerson()) ? 0 : -1,
+                    depth2[u]);
+
+        }
+
+    }
+
+    public void test_sssp() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = getGraphFixture().getGraph().compile();
+
+        final double[] dist = CSRAnalytics.sssp(g, g.getId(p.getMike()));
+
+        assertEquals(0d, dist[g.getId(p.getMike())]);
+        assertEquals(1d, dist[g.getId(p.getBryan())]);
+        assertEquals(1d, dist[g.getId(p.getFoafPerson())]);
+        assertEquals(2d, dist[g.getId(p.getMartyn())]);
+
+        // DC is not reachable.
+        int n = 0;
+        for (double d : dist)
+            if (d == Double.MAX_VALUE)
+                n++;
+        assertEquals(1, n);
+
+    }
+
+    public void test_connectedComponents() throws Exception {
+
+        final SmallGraphProblem p = setupSmallGraphProblem();
+
+        final CSRGraph g = getGraphFixture().getGraph().compile();
+
+        final int[] label = CSRAnalytics.connectedComponents(g);
+
+        final int l = label[g.getId(p.getMike())];
+
+        assertEquals(l, label[g.getId(p.getBryan())]);
+        assertEquals(l, label[g.getId(p.getMartyn())]);
+        assertEquals(l, label[g.getId(p.getFoafPerson())]);
+
+        // DC is in its own connected component.
+        for (int u = 0; u < g.getVertexCount(); u++) {
+
+            if (label[u] != l) {
+
+                assertEquals("http://www.bigdata.com/DC", g.getValue(u)
+                        .stringValue());
+
+                assertEquals(u, label[u]);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Page rank run to convergence satisfies the page rank equation.
+     */
+    public void test_pageRank() throws Exception {
+
+        final RAMGraph ram = newRandomGraph(200/* nvertices */, 1000/* nedges */);
+
+        final CSRGraph g = ram.compile();
+
+        final double resetProb = CSRAnalytics.DEFAULT_RESET_PROB;
+
+        final double[] pr = CSRAnalytics.pageRank(g, resetProb,
+                1e-12/* epsilon */, 10000/* limit */);
+
+        final int[] inOff = g.getInOffsets();
+
+        final int[] inAdj = g.getInSources();
+
+        for (int u = 0; u < g.getVertexCount(); u++) {
+
+            if (g.getInDegree(u) == 0) {
+
+                assertEquals(resetProb, pr[u], 1e-9);
+
+                continue;
+
+            }
+
+            double sum = 0d;
+
+            for (int j = inOff[u]; j < inOff[u + 1]; j++) {
+
+                final int v = inAdj[j];
+
+                sum += pr[v] / g.getOutDegree(v);
+
+            }
+
+            assertEquals(resetProb + (1d - resetProb) * sum, pr[u], 1e-6);
+
+        }
+
+        // The default configuration stops within the iteration limit.
+        assertEquals(g.getVertexCount(), CSRAnalytics.pageRank(g).length);
+
+    }
+
+    /**
+     * The {@link CSRAnalytics} agree with the {@link BFS} and {@link CC}
+     * programs run by the {@link RAMGASEngine}.
+     */
+    public void test_sameAsGASEngine() throws Exception {
+
+        final RAMGraph ram = newRandomGraph(500/* nvertices */, 1200/* nedges */);
+
+        final CSRGraph g = ram.compile();
+
+        final Value src = g.getValue(0);
+
+        final IGASEngine gasEngine = getGraphFixture().newGASEngine(2/* nthreads */);
+
+        try {
+
+            final IGraphAccessor graphAccessor = new RAMGASEngine.RAMGraphAccessor(
+                    ram);
+
+            {
+
+                final IGASContext<BFS.VS, BFS.ES, Void> gasContext = gasEngine
+                        .newGASContext(graphAccessor, new BFS());
+
+                final IGASState<BFS.VS, BFS.ES, Void> gasState = gasContext
+                        .getGASState();
+
+                gasState.setFrontier(gasContext, src);
+
+                gasContext.call();
+
+                final int[] depth = CSRAnalytics.bfs(g, null/* predecessor */,
+                        0);
+
+                for (int u = 0; u < g.getVertexCount(); u++) {
+
+                    assertEquals(g.getValue(u).toString(), gasState
+                            .getState(g.getValue(u)).depth(), depth[u]);
+
+                }
+
+            }
+
+            {
+
+                final CC gasProgram = new CC();
+
+                final IGASContext<CC.VS, CC.ES, Value> gasContext = gasEngine
+                        .newGASContext(graphAccessor, gasProgram);
+
+                final IGASState<CC.VS, CC.ES, Value> gasState = gasContext
+                        .getGASState();
+
+                gasContext.call();
+
+                final int[] label = CSRAnalytics.connectedComponents(g);
+
+                // Same partition of the vertices.
+                for (int u = 0; u < g.getVertexCount(); u++) {
+
+                    for (int v = u + 1; v < g.getVertexCount(); v++) {
+
+                        final boolean same1 = label[u] == label[v];
+
+                        final boolean same2 = gasState.getState(g.getValue(u))
+                                .getLabel()
+                                .equals(gasState.getState(g.getValue(v))
+                                        .getLabel());
+
+                        assertEquals(same1, same2);
+
+                    }
+
+                }
+
+            }
+
+        } finally {
+
+            gasEngine.shutdownNow();
+
+        }
+
+    }
+
+    /**
+     * Populate the graph of the fixture with random edges.
+     */
+    private RAMGraph newRandomGraph(final int nvertices, final int nedges) {
+
+        final RAMGraph g = getGraphFixture().getGraph();
+
+        final ValueFactory vf = g.getValueFactory();
+
+        final Random r = new Random(17L);
+
+        final URI p = vf.createURI("http://www.bigdata.com/p");
+
+        final URI[] v = new URI[nvertices];
+
+        for (int i = 0; i < nvertices; i++) {
+
+            v[i] = vf.createURI("http://www.bigdata.com/v" + i);
+
+        }
+
+        for (int i = 0; i < nedges; i++) {
+
+            g.add(vf.createStatement(v[r.nextInt(nvertices)], p,
+                    v[r.nextInt(nvertices)]));
+
+        }
+
+        return g;
+
+    }
+
+}
@@ -34,6 +34,8 @@ import java.util.List;
 import org.openrdf.model.URI;
 import org.openrdf.model.impl.URIImpl;
 
+import com.bigdata.btree.keys.IKeyBuilder;
+import com.bigdata.btree.keys.KeyBuilder;
 import com.bigdata.rdf.internal.impl.extensions.GeoSpatialLiteralExtension;
 import com.bigdata.rdf.internal.impl.extensions.InvalidGeoSpatialDatatypeConfigurationError;
 import com.bigdata.rdf.internal.impl.extensions.InvalidGeoSpatialLiteralError;
@@ -49,6 +51,8 @@ import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration;
 import com.bigdata.service.geospatial.GeoSpatialDefaultLiteralSerializer;
 import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ServiceMapping;
 import com.bigdata.service.geospatial.GeoSpatialDatatypeFieldConfiguration.ValueType;
+import com.bigdata.service.geospatial.ZOrderKeyDecoder;
+import com.bigdata.util.BytesUtil;
 
 /**
  * Unit tests for {@link GeoSpatialLiteralExtension}.
@@ -115,6 +119,61 @@ public class TestEncodeDecodeGeoSpatialLiteralIVs extends
          vf, getDummyGeospatialLiteralsLatLon(vf, URI_DATATYPE_LAT_LON_DOUBLE), ext);
    }
    
+   /**
+    * Unit test for the extraction of the z-order value from the raw bytes of
+    * a statement key by the {@link ZOrderKeyDecoder}, including the seek key
+    * built from a z-order value.
+    */
+   public void test_zOrderKeyDecoder() throws Exception {
+
+      final BigdataValueFactory vf = BigdataValueFactoryImpl.getInstance("test");
+      
+      final GeoSpatialLiteralExtension<BigdataValue> ext = 
+         getLatLonTimeGSLiteralExtension(vf);
+      
+      final BigdataLiteral[] dt = 
+         getDummyGeospatialLiteralsLatLonTime(vf, URI_DATATYPE_LAT_LON_TIME);
+      
+      // the literal is in the object position of a POS key
+      final IV<?, ?> p = newTermId(VTE.URI);
+      
+      final ZOrderKeyDecoder decoder = 
+         new ZOrderKeyDecoder(1 /* objectPos */, ext.getNumDimensions());
+      
+      final byte[] zOrder = new byte[ext.getNumDimensions() * 8];
+      
+      final IKeyBuilder keyBuilder = KeyBuilder.newInstance();
+      
+      for (int i = 0; i < dt.length; i++) {
+         
+         final LiteralExtensionIV<?> o = ext.createIV(dt[i]);
+         
+         final IV<?, ?> s = newTermId(VTE.URI);
+
+         keyBuilder.reset();
+         IVUtility.encode(keyBuilder, p);
+         IVUtility.encode(keyBuilder, o);
+         IVUtility.encode(keyBuilder, s);
+         final byte[] key = keyBuilder.getKey();
+
+         final byte[] expected = ext.toZOrderByteArray(o.getDelegate());
+         
+         assertEquals(expected, decoder.getZOrder(key, zOrder));
+         
+         // the seek key for the z-order value of the literal is a prefix of the key
+         keyBuilder.reset();
+         decoder.appendPrefix(keyBuilder, key, expected);
+         final byte[] prefix = keyBuilder.getKey();
+         
+         assertTrue(BytesUtil.compareBytesWithLenAndOffset(
+            0, prefix.length, prefix, 0, prefix.length, key) == 0);
+         
+         assertEquals(key.length - s.byteLength(), prefix.length);
+         
+      }
+      
+   }
+   
    /**
     * Unit test asserting correct rejectance (error message) when passing
     * in literals that are incompatible with the datatype.
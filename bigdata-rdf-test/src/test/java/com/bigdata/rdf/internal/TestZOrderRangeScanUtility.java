@@ -26,9 +26,13 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
  */
 package com.bigdata.rdf.internal;
 
+import java.util.List;
+
 import junit.framework.TestCase2;
 
 import com.bigdata.service.geospatial.ZOrderRangeScanUtil;
+import com.bigdata.service.geospatial.ZOrderRangeScanUtil.ZOrderRange;
+import com.bigdata.util.BytesUtil;
 
 /**
  * Test for utility functionalities required for zOrder index construction,
@@ -177,5 +181,132 @@ public class TestZOrderRangeScanUtility extends TestCase2 {
          { Byte.valueOf("00000100",2), Byte.valueOf("01101101",2), Byte.valueOf("00110110",2) };
       assertEquals(testByteArray3, exp3);
    }
+   
+   /**
+    * Tests the decomposition of a search range into z-order subranges, using
+    * the two-dimensional setting from Wikipedia (see
+    * {@link #testBigMinCalculation2Dim()}).
+    */
+   public void testDecompose2Dim() {
+
+      final byte[] searchMinZOrder = { Byte.valueOf("00001100",2) /* 12 */ };
+      final byte[] searchMaxZOrder = { Byte.valueOf("00101101",2) /* 45 */ };
+
+      // a single range is the range itself
+      final List<ZOrderRange> single = 
+         ZOrderRangeScanUtil.decompose(searchMinZOrder, searchMaxZOrder, 2, 1);
+      assertEquals(1, single.size());
+      assertEquals(searchMinZOrder, single.get(0).getMin());
+      assertEquals(searchMaxZOrder, single.get(0).getMax());
+      
+      for (int maxRanges = 1; maxRanges <= 20; maxRanges++) {
+         
+         final List<ZOrderRange> ranges = 
+            ZOrderRangeScanUtil.decompose(searchMinZOrder, searchMaxZOrder, 2, maxRanges);
+         
+         assertTrue(ranges.size() <= maxRanges);
+         
+         assertDecomposition(searchMinZOrder, searchMaxZOrder, 2, ranges);
+
+      }
+      
+      // with a large enough budget, the ranges contain only points in the box
+      final List<ZOrderRange> ranges = 
+         ZOrderRangeScanUtil.decompose(searchMinZOrder, searchMaxZOrder, 2, 100);
+      
+      long span = 0;
+      for (ZOrderRange range : ranges) {
+         span += range.getSpan().longValue();
+      }
+      
+      // x in [2,3], y in [2,6]
+      assertEquals(10, span);
+   }
+
+   /**
+    * Tests the decomposition of a search range into z-order subranges in a
+    * three-dimensional setting.
+    */
+   public void testDecompose3Dim() {
+
+      final byte[] searchMinZOrder = interleave(new int[] { 1, 3, 2 }, 2);
+      final byte[] searchMaxZOrder = interleave(new int[] { 37, 20, 29 }, 2);
+
+      for (int maxRanges = 1; maxRanges <= 32; maxRanges *= 2) {
+         
+         final List<ZOrderRange> ranges = 
+            ZOrderRangeScanUtil.decompose(searchMinZOrder, searchMaxZOrder, 3, maxRanges);
+         
+         assertTrue(ranges.size() <= maxRanges);
+         
+         assertDecomposition(searchMinZOrder, searchMaxZOrder, 3, ranges);
+
+      }
+   }
+   
+   /**
+    * Interleaves the bits of the given coordinates into a z-order value of the
+    * given #of bytes, where bit i of the z-order value (counting from the most
+    * significant bit) belongs to dimension i%numDimensions.
+    */
+   private static byte[] interleave(final int[] coords, final int nbytes) {
+      
+      final int nbits = nbytes * Byte.SIZE;
+      
+      final byte[] z = new byte[nbytes];
+      
+      for (int i = 0; i < nbits; i++) {
+         
+         final int dim = i % coords.length;
+         
+         // #of bits of that dimension after bit i
+         final int shift = (nbits - 1 - i) / coords.length;
+         
+         if (((coords[dim] >>> shift) & 1) != 0) {
+            BytesUtil.setBit(z, i, true);
+         }
+         
+      }
+      
+      return z;
+   }
+   
+   /**
+    * Asserts that the ranges are ordered and disjoint, and that they cover 
+    * exactly the points of the search range.
+    */
+   private void assertDecomposition(
+      final byte[] searchMinZOrder, final byte[] searchMaxZOrder, 
+      final int numDimensions, final List<ZOrderRange> ranges) {
+      
+      for (int i = 1; i < ranges.size(); i++) {
+         assertTrue(BytesUtil.compareBytes(
+            ranges.get(i - 1).getMax(), ranges.get(i).getMin()) < 0);
+      }
+      
+      final ZOrderRangeScanUtil searchRange = 
+         new ZOrderRangeScanUtil(searchMinZOrder, searchMaxZOrder, numDimensions);
+
+      final int nbytes = searchMinZOrder.length;
+      
+      for (int v = 0; v < 1 << (nbytes * Byte.SIZE); v++) {
+
+         final byte[] z = new byte[nbytes];
+         for (int i = 0; i < nbytes; i++) {
+            z[i] = (byte) (v >>> ((nbytes - i - 1) * Byte.SIZE));
+         }
+
+         int nfound = 0;
+         for (ZOrderRange range : ranges) {
+            if (new ZOrderRangeScanUtil(range.getMin(), range.getMax(), 
+                  numDimensions).isInSearchRange(z)) {
+               nfound++;
+            }
+         }
+         
+         assertEquals("z=" + v, searchRange.isInSearchRange(z) ? 1 : 0, nfound);
+         
+      }
+   }
 
 }
@@ -0,0 +1,280 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.lexicon;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.counters.CounterSet;
+import com.bigdata.counters.ICounter;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.internal.VTE;
+import com.bigdata.rdf.internal.impl.TermId;
+import com.bigdata.rdf.internal.impl.uri.VocabURIByteIV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValue;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.BigdataValueFactoryImpl;
+
+/**
+ * Test suite for {@link BoundedTermCache}.
+ */
+public class TestBoundedTermCache extends TestCase2 {
+
+    public TestBoundedTermCache() {
+    }
+
+    public TestBoundedTermCache(String name) {
+        super(name);
+    }
+
+    private BigdataValueFactory f;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        f = BigdataValueFactoryImpl.getInstance(getName()/* namespace */);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (f != null) {
+            f.remove();
+            f = null;
+        }
+        super.tearDown();
+    }
+
+    private IV<?, ?> iv(final long id) {
+
+        return new TermId<BigdataLiteral>(VTE.LITERAL, id);
+
+    }
+
+    private BigdataValue value(final IV<?, ?> iv) {
+
+        final BigdataValue v = f.createLiteral("literal#" + iv);
+
+        v.setIV(iv);
+
+        return v;
+
+    }
+
+    /**
+     * Resolve an {@link IV} against the cache the same way as the
+     * {@link LexiconRelation}: test the cache and insert the value on a miss.
+     */
+    private BigdataValue resolve(final BoundedTermCache<IV<?, ?>, BigdataValue> cache,
+            final IV<?, ?> iv) {
+
+        final BigdataValue v = cache.get(iv);
+
+        if (v != null)
+            return v;
+
+        final BigdataValue tmp = value(iv);
+
+        final BigdataValue old = cache.putIfAbsent(iv, tmp);
+
+        return old == null ? tmp : old;
+
+    }
+
+    public void test_ctor_correctRejection() {
+
+        try {
+            new BoundedTermCache<IV<?, ?>, BigdataValue>(0L, .2d);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+        try {
+            new BoundedTermCache<IV<?, ?>, BigdataValue>(1024L, 1d);
+            fail("Expecting: " + IllegalArgumentException.class);
+        } catch (IllegalArgumentException ex) {
+            if (log.isInfoEnabled())
+                log.info("Ignoring expected exception: " + ex);
+        }
+
+    }
+
+    public void test_getPutIfAbsent() {
+
+        final BoundedTermCache<IV<?, ?>, BigdataValue> cache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                Long.MAX_VALUE, .2d);
+
+        final IV<?, ?> iv = iv(12L);
+
+        assertNull(cache.get(iv));
+
+        final BigdataValue v = value(iv);
+
+        assertNull(cache.putIfAbsent(iv, v));
+
+        assertSame(v, cache.get(iv(12L)));
+
+        // The entry is not replaced.
+        assertSame(v, cache.putIfAbsent(iv(12L), value(iv(12L))));
+
+        assertEquals(1, cache.size());
+
+        assertEquals(BoundedTermCache.sizeOf(v), cache.getBytes());
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+
+        assertEquals(0L, cache.getBytes());
+
+        assertNull(cache.get(iv));
+
+    }
+
+    /**
+     * The estimated #of bytes never exceeds the maximum.
+     */
+    public void test_byteBound() {
+
+        final long maxBytes = 16 * 1024;
+
+        final BoundedTermCache<IV<?, ?>, BigdataValue> cache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                maxBytes, .2d);
+
+        for (long i = 1; i <= 2000; i++) {
+
+            resolve(cache, iv(i));
+
+            assertTrue(cache.getBytes() <= maxBytes);
+
+            assertTrue(cache.getHotBytes() <= cache.getBytes());
+
+        }
+
+        assertTrue(cache.size() > 0);
+
+        assertTrue(cache.size() < 2000);
+
+    }
+
+    /**
+     * A scan over {@link IV}s which are resolved only once does not flush the
+     * frequently used entries from the cache.
+     */
+    public void test_scanResistance() {
+
+        final BoundedTermCache<IV<?, ?>, BigdataValue> cache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                64 * 1024, .2d);
+
+        final int nhot = 50;
+
+        for (int pass = 0; pass < 10; pass++) {
+
+            for (long i = 1; i <= nhot; i++) {
+
+                resolve(cache, iv(i));
+
+            }
+
+        }
+
+        // Some of the frequently used entries were promoted.
+        assertTrue(cache.getHotBytes() > 0L);
+
+        // A scan over many distinct IVs.
+        for (long i = 1000; i < 3000; i++) {
+
+            resolve(cache, iv(i));
+
+        }
+
+        for (long i = 1; i <= nhot; i++) {
+
+            assertNotNull("iv=" + i, cache.get(iv(i)));
+
+        }
+
+    }
+
+    /**
+     * The vocabulary {@link IV}s are pinned and do not count against the
+     * budget.
+     */
+    public void test_pinnedVocabulary() {
+
+        final BoundedTermCache<IV<?, ?>, BigdataValue> cache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                4 * 1024, .2d);
+
+        final IV<?, ?> vocab = new VocabURIByteIV<BigdataURI>((byte) 3);
+
+        final BigdataValue v = f.createURI("http://www.bigdata.com/pinned");
+
+        v.setIV(vocab);
+
+        assertNull(cache.putIfAbsent(vocab, v));
+
+        assertEquals(1, cache.getPinnedCount());
+
+        assertEquals(0L, cache.getBytes());
+
+        for (long i = 1; i <= 1000; i++) {
+
+            resolve(cache, iv(i));
+
+        }
+
+        assertSame(v, cache.get(new VocabURIByteIV<BigdataURI>((byte) 3)));
+
+    }
+
+    public void test_counters() {
+
+        final BoundedTermCache<IV<?, ?>, BigdataValue> cache = new BoundedTermCache<IV<?, ?>, BigdataValue>(
+                1024 * 1024, .2d);
+
+        resolve(cache, iv(1L));
+
+        resolve(cache, iv(1L));
+
+        final CounterSet counters = cache.getCounters();
+
+        assertEquals(Long.valueOf(1L), ((ICounter<?>) counters.getChild("hits"))
+                .getValue());
+
+        assertEquals(Long.valueOf(1L), ((ICounter<?>) counters.getChild("misses"))
+                .getValue());
+
+        assertEquals(Long.valueOf(1L), ((ICounter<?>) counters.getChild("admissions"))
+                .getValue());
+
+    }
+
+}
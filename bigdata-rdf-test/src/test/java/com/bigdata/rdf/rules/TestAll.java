@@ -211,6 +211,11 @@ public class TestAll extends TestCase {
         
         // test suite for basic TM mechanism encapsulated by this class.
         suite.addTestSuite(TestTruthMaintenance.class);
+
+        suite.addTestSuite(TestSemiNaiveClosure.class);
+
+        // test suite for delete and rederive truth maintenance.
+        suite.addTestSuite(TestDeleteAndRederive.class);
         
         return suite;
         
@@ -0,0 +1,428 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.rules;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFFormat;
+
+import com.bigdata.rdf.inf.TruthMaintenance;
+import com.bigdata.rdf.model.BigdataStatement;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.model.StatementEnum;
+import com.bigdata.rdf.rio.StatementBuffer;
+import com.bigdata.rdf.spo.ExplicitSPOFilter;
+import com.bigdata.rdf.spo.ISPO;
+import com.bigdata.rdf.spo.SPOKeyOrder;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.BigdataStatementIterator;
+import com.bigdata.rdf.store.DataLoader;
+import com.bigdata.rdf.store.DataLoader.ClosureEnum;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.rdf.store.TripleStoreUtility;
+import com.bigdata.striterator.ChunkedArrayIterator;
+import com.bigdata.striterator.IChunkedOrderedIterator;
+
+/**
+ * Test suite for truth maintenance using delete and rederive, which is used to
+ * retract statements when the database does not store justifications. The
+ * closure after a retraction is compared against the closure of the remaining
+ * explicit statements computed in a new store.
+ * 
+ * @see TruthMaintenance
+ */
+public class TestDeleteAndRederive extends AbstractInferenceEngineTestCase {
+
+    public TestDeleteAndRederive() {
+        super();
+    }
+
+    public TestDeleteAndRederive(String name) {
+        super(name);
+    }
+
+    private AbstractTripleStore newStore(final Class<? extends BaseClosure> cls) {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(AbstractTripleStore.Options.CLOSURE_CLASS,
+                cls.getName());
+
+        properties.setProperty(AbstractTripleStore.Options.JUSTIFY, "false");
+
+        return getStore(properties);
+
+    }
+
+    private static BigdataURI cls(final BigdataValueFactory f, final int i) {
+
+        return f.createURI("http://www.bigdata.com/C" + i);
+
+    }
+
+    /**
+     * An explicit statement which is also entailed by the other statements is
+     * downgraded to an inference when it is retracted.
+     */
+    public void test_downgradeExplicitToInference() {
+
+        final AbstractTripleStore store = newStore(FastClosure.class);
+
+        try {
+
+            assertFalse(store.isJustify());
+
+            final TruthMaintenance tm = new TruthMaintenance(
+                    store.getInferenceEngine());
+
+            final BigdataValueFactory f = store.getValueFactory();
+
+            final BigdataURI A = cls(f, 0), B = cls(f, 1), C = cls(f, 2);
+
+            final BigdataURI subClassOf = f.asValue(RDFS.SUBCLASSOF);
+
+            {
+
+                final StatementBuffer<?> buf = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 10/* capacity */, 10/* queueCapacity */);
+
+                buf.add(A, subClassOf, B);
+                buf.add(B, subClassOf, C);
+                buf.add(A, subClassOf, C);
+
+                buf.flush();
+
+                tm.assertAll((TempTripleStore) buf.getStatementStore());
+
+            }
+
+            assertEquals(StatementEnum.Explicit, store.getStatement(A,
+                    subClassOf, C).getStatementType());
+
+            {
+
+                final StatementBuffer<?> buf = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 10/* capacity */, 10/* queueCapacity */);
+
+                buf.add(A, subClassOf, C);
+
+                buf.flush();
+
+                tm.retractAll((TempTripleStore) buf.getStatementStore());
+
+            }
+
+            assertEquals(StatementEnum.Inferred, store.getStatement(A,
+                    subClassOf, C).getStatementType());
+
+            {
+
+                final StatementBuffer<?> buf = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 10/* capacity */, 10/* queueCapacity */);
+
+                buf.add(B, subClassOf, C);
+
+                buf.flush();
+
+                tm.retractAll((TempTripleStore) buf.getStatementStore());
+
+            }
+
+            assertFalse(store.hasStatement(A, subClassOf, C));
+
+            assertFalse(store.hasStatement(B, subClassOf, C));
+
+            assertTrue(store.hasStatement(A, subClassOf, B));
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Breaking a class hierarchy in the middle retracts the entailments which
+     * depended on the broken link and only those entailments.
+     */
+    public void test_retractChain_fastClosure() throws Exception {
+
+        doRetractChainTest(FastClosure.class);
+
+    }
+
+    public void test_retractChain_fullClosure() throws Exception {
+
+        doRetractChainTest(FullClosure.class);
+
+    }
+
+    private void doRetractChainTest(final Class<? extends BaseClosure> cls)
+            throws Exception {
+
+        final int N = 10;
+
+        final AbstractTripleStore store = newStore(cls);
+
+        try {
+
+            final TruthMaintenance tm = new TruthMaintenance(
+                    store.getInferenceEngine());
+
+            final BigdataValueFactory f = store.getValueFactory();
+
+            final BigdataURI subClassOf = f.asValue(RDFS.SUBCLASSOF);
+
+            {
+
+                final StatementBuffer<?> buf = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                for (int i = 0; i < N; i++) {
+
+                    buf.add(cls(f, i), subClassOf, cls(f, i + 1));
+
+                    buf.add(f.createURI("http://www.bigdata.com/x" + i), f
+                            .asValue(RDF.TYPE), cls(f, i));
+
+                }
+
+                // a 2nd path from the bottom to the top of the chain.
+                buf.add(cls(f, 0), subClassOf, cls(f, N - 1));
+
+                buf.flush();
+
+                tm.assertAll((TempTripleStore) buf.getStatementStore());
+
+            }
+
+            assertTrue(store.hasStatement(cls(f, 1), subClassOf, cls(f, N)));
+
+            {
+
+                final StatementBuffer<?> buf = new StatementBuffer(
+                        tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+                buf.add(cls(f, N / 2), subClassOf, cls(f, N / 2 + 1));
+
+                buf.flush();
+
+                tm.retractAll((TempTripleStore) buf.getStatementStore());
+
+            }
+
+            // no longer entailed.
+            assertFalse(store.hasStatement(cls(f, 1), subClassOf, cls(f, N)));
+
+            assertFalse(store.hasStatement(f
+                    .createURI("http://www.bigdata.com/x1"), f
+                    .asValue(RDF.TYPE), cls(f, N)));
+
+            // rederived using the 2nd path.
+            assertTrue(store.hasStatement(cls(f, 0), subClassOf, cls(f, N)));
+
+            assertTrue(store.hasStatement(f
+                    .createURI("http://www.bigdata.com/x0"), f
+                    .asValue(RDF.TYPE), cls(f, N)));
+
+            assertSameClosureAsControlStore(store);
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Retract statements chosen at random from some RDF/XML documents.
+     */
+    public void test_retractRandom_fastClosure() throws Exception {
+
+        doRetractRandomTest(FastClosure.class);
+
+    }
+
+    public void test_retractRandom_fullClosure() throws Exception {
+
+        doRetractRandomTest(FullClosure.class);
+
+    }
+
+    private void doRetractRandomTest(final Class<? extends BaseClosure> cls)
+            throws Exception {
+
+        final String[] resources = new String[] {
+                "com/bigdata/rdf/rules/small.rdf",
+                "com/bigdata/rdf/rules/sample data.rdf" };
+
+        final AbstractTripleStore store = newStore(cls);
+
+        try {
+
+            {
+
+                final Properties properties = new Properties(store
+                        .getProperties());
+
+                properties.setProperty(DataLoader.Options.CLOSURE,
+                        ClosureEnum.Incremental.toString());
+
+                final DataLoader dataLoader = new DataLoader(properties, store);
+
+                for (String resource : resources) {
+
+                    dataLoader.loadData(resource, ""/* baseURL */,
+                            RDFFormat.RDFXML);
+
+                }
+
+            }
+
+            final TruthMaintenance tm = new TruthMaintenance(
+                    store.getInferenceEngine());
+
+            final Random r = new Random(13L);
+
+            for (int pass = 0; pass < 3; pass++) {
+
+                // choose ~10% of the explicit statements.
+                final List<ISPO> stmts = new LinkedList<ISPO>();
+                {
+
+                    final IChunkedOrderedIterator<ISPO> itr = store
+                            .getAccessPath(SPOKeyOrder.SPO,
+                                    ExplicitSPOFilter.INSTANCE).iterator();
+
+                    try {
+
+                        while (itr.hasNext()) {
+
+                            final ISPO spo = itr.next();
+
+                            if (r.nextInt(10) == 0)
+                                stmts.add(spo);
+
+                        }
+
+                    } finally {
+
+                        itr.close();
+
+                    }
+
+                }
+
+                final TempTripleStore tempStore = tm.newTempTripleStore();
+
+                final ISPO[] a = stmts.toArray(new ISPO[stmts.size()]);
+
+                store.addStatements(tempStore, true/* copyOnly */,
+                        new ChunkedArrayIterator<ISPO>(a.length, a, null/* keyOrder */),
+                        null/* filter */);
+
+                tm.retractAll(tempStore);
+
+                assertSameClosureAsControlStore(store);
+
+            }
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Assert the explicit statements in the <i>actual</i> store on a control
+     * store and verify that the closure is the same.
+     */
+    private void assertSameClosureAsControlStore(
+            final AbstractTripleStore actual) throws Exception {
+
+        final TempTripleStore expected = new TempTripleStore(actual
+                .getProperties());
+
+        try {
+
+            final TruthMaintenance tm = new TruthMaintenance(
+                    expected.getInferenceEngine());
+
+            final BigdataValueFactory f = expected.getValueFactory();
+
+            final StatementBuffer<?> buf = new StatementBuffer(
+                    tm.newTempTripleStore(), expected, 100/* capacity */, 10/* queueCapacity */);
+
+            final BigdataStatementIterator itr = actual.getStatements(null,
+                    null, null);
+
+            try {
+
+                while (itr.hasNext()) {
+
+                    final BigdataStatement stmt = itr.next();
+
+                    // Note: the values are resolved against [expected].
+                    if (stmt.isExplicit())
+                        buf.add(f.asValue(stmt.getSubject()), f.asValue(stmt
+                                .getPredicate()), f.asValue(stmt.getObject()));
+
+                }
+
+            } finally {
+
+                itr.close();
+
+            }
+
+            buf.flush();
+
+            tm.assertAll((TempTripleStore) buf.getStatementStore());
+
+            assertTrue(TripleStoreUtility.modelsEqual(expected, actual));
+
+        } finally {
+
+            expected.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,418 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.rules;
+
+import java.util.Iterator;
+import java.util.Properties;
+
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFFormat;
+
+import com.bigdata.bop.joinGraph.fast.DefaultEvaluationPlanFactory2;
+import com.bigdata.rdf.inf.ClosureStats;
+import com.bigdata.rdf.inf.TruthMaintenance;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.rio.StatementBuffer;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.DataLoader;
+import com.bigdata.rdf.store.DataLoader.ClosureEnum;
+import com.bigdata.rdf.store.TempTripleStore;
+import com.bigdata.rdf.store.TripleStoreUtility;
+import com.bigdata.relation.rule.IStep;
+import com.bigdata.relation.rule.eval.ActionEnum;
+import com.bigdata.relation.rule.eval.IJoinNexus;
+
+/**
+ * Test suite for {@link SemiNaiveClosure}. The closure maintained by
+ * incremental truth maintenance is compared against the closure maintained by
+ * the fix point of the {@link MappedProgram}.
+ */
+public class TestSemiNaiveClosure extends AbstractInferenceEngineTestCase {
+
+    public TestSemiNaiveClosure() {
+        super();
+    }
+
+    public TestSemiNaiveClosure(String name) {
+        super(name);
+    }
+
+    /**
+     * The length of the <code>rdfs:subClassOf</code> chain. Each link in the
+     * chain requires another round.
+     */
+    private static final int N = 12;
+
+    private AbstractTripleStore newStore(final Class<? extends BaseClosure> cls,
+            final boolean semiNaive) {
+
+        final Properties properties = new Properties(getProperties());
+
+        properties.setProperty(AbstractTripleStore.Options.CLOSURE_CLASS,
+                cls.getName());
+
+        properties.setProperty(InferenceEngine.Options.SEMI_NAIVE_CLOSURE,
+                Boolean.toString(semiNaive));
+
+        return getStore(properties);
+
+    }
+
+    /**
+     * Assert a slice of a class hierarchy and some instances of its classes
+     * using truth maintenance.
+     */
+    private void assertChain(final AbstractTripleStore store, final int from,
+            final int to) {
+
+        final TruthMaintenance tm = new TruthMaintenance(
+                store.getInferenceEngine());
+
+        final BigdataValueFactory f = store.getValueFactory();
+
+        final StatementBuffer<?> buf = new StatementBuffer(
+                tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+        for (int i = from; i < to; i++) {
+
+            buf.add(cls(f, i), f.asValue(RDFS.SUBCLASSOF), cls(f, i + 1));
+
+            buf.add(f.createURI("http://www.bigdata.com/x" + i),
+                    f.asValue(RDF.TYPE), cls(f, i));
+
+        }
+
+        buf.flush();
+
+        tm.assertAll((TempTripleStore) buf.getStatementStore());
+
+    }
+
+    private void retract(final AbstractTripleStore store, final int i) {
+
+        final TruthMaintenance tm = new TruthMaintenance(
+                store.getInferenceEngine());
+
+        final BigdataValueFactory f = store.getValueFactory();
+
+        final StatementBuffer<?> buf = new StatementBuffer(
+                tm.newTempTripleStore(), store, 100/* capacity */, 10/* queueCapacity */);
+
+        buf.add(cls(f, i), f.asValue(RDFS.SUBCLASSOF), cls(f, i + 1));
+
+        buf.flush();
+
+        tm.retractAll((TempTripleStore) buf.getStatementStore());
+
+    }
+
+    private static BigdataURI cls(final BigdataValueFactory f, final int i) {
+
+        return f.createURI("http://www.bigdata.com/C" + i);
+
+    }
+
+    /**
+     * Incremental assertion and retraction produce the same statements and
+     * justifications for the semi-naive and the naive evaluation.
+     */
+    private void doCompareTest(final Class<? extends BaseClosure> cls)
+            throws Exception {
+
+        final AbstractTripleStore store1 = newStore(cls, true/* semiNaive */);
+
+        try {
+
+            final AbstractTripleStore store2 = newStore(cls, false/* semiNaive */);
+
+            try {
+
+                for (AbstractTripleStore store : new AbstractTripleStore[] {
+                        store1, store2 }) {
+
+                    // two updates, the 2nd extends the closure of the first.
+                    assertChain(store, 0, N / 2);
+
+                    assertChain(store, N / 2, N);
+
+                }
+
+                final BigdataValueFactory f = store1.getValueFactory();
+
+                // The closure of the chain.
+                for (int i = 0; i < N; i++) {
+
+                    assertTrue(store1.hasStatement(
+                            f.createURI("http://www.bigdata.com/x" + i),
+                            f.asValue(RDF.TYPE), cls(f, N)));
+
+                    assertTrue(store1.hasStatement(cls(f, i),
+                            f.asValue(RDFS.SUBCLASSOF), cls(f, N)));
+
+                }
+
+                assertSameClosure(store2, store1);
+
+                // Break the chain in the middle.
+                retract(store1, N / 2);
+
+                retract(store2, N / 2);
+
+                assertFalse(store1.hasStatement(cls(f, 0),
+                        f.asValue(RDFS.SUBCLASSOF), cls(f, N)));
+
+                assertTrue(store1.hasStatement(cls(f, 0),
+                        f.asValue(RDFS.SUBCLASSOF), cls(f, N / 2)));
+
+                assertSameClosure(store2, store1);
+
+            } finally {
+
+                store2.__tearDownUnitTest();
+
+            }
+
+        } finally {
+
+            store1.__tearDownUnitTest();
+
+        }
+
+    }
+
+    private void assertSameClosure(final AbstractTripleStore expected,
+            final AbstractTripleStore actual) throws Exception {
+
+        assertTrue(TripleStoreUtility.modelsEqual(expected, actual));
+
+        if (expected.isJustify()) {
+
+            assertEquals(expected.getSPORelation().getJustificationIndex()
+                    .rangeCount(), actual.getSPORelation()
+                    .getJustificationIndex().rangeCount());
+
+        }
+
+    }
+
+    public void test_semiNaive_fullClosure() throws Exception {
+
+        doCompareTest(FullClosure.class);
+
+    }
+
+    public void test_semiNaive_fastClosure() throws Exception {
+
+        doCompareTest(FastClosure.class);
+
+    }
+
+    /**
+     * Incremental loads of RDF/XML documents produce the same closure for the
+     * semi-naive and the naive evaluation.
+     */
+    public void test_semiNaive_incrementalLoad() throws Exception {
+
+        doIncrementalLoadTest(FullClosure.class);
+
+    }
+
+    public void test_semiNaive_incrementalLoad_fastClosure() throws Exception {
+
+        doIncrementalLoadTest(FastClosure.class);
+
+    }
+
+    private void doIncrementalLoadTest(final Class<? extends BaseClosure> cls)
+            throws Exception {
+
+        final String[] resources = new String[] {
+                "com/bigdata/rdf/rules/small.rdf",
+                "com/bigdata/rdf/rules/sample data.rdf",
+                "com/bigdata/rdf/rules/testOwlSameAs.rdf" };
+
+        final AbstractTripleStore store1 = newStore(cls, true/* semiNaive */);
+
+        try {
+
+            final AbstractTripleStore store2 = newStore(cls, false/* semiNaive */);
+
+            try {
+
+                for (AbstractTripleStore store : new AbstractTripleStore[] {
+                        store1, store2 }) {
+
+                    final DataLoader dataLoader = new DataLoader(
+                            getIncrementalLoadProperties(store), store);
+
+                    for (String resource : resources) {
+
+                        dataLoader.loadData(resource, ""/* baseURL */,
+                                RDFFormat.RDFXML);
+
+                    }
+
+                }
+
+                assertSameClosure(store2, store1);
+
+            } finally {
+
+                store2.__tearDownUnitTest();
+
+            }
+
+        } finally {
+
+            store1.__tearDownUnitTest();
+
+        }
+
+    }
+
+    private static Properties getIncrementalLoadProperties(
+            final AbstractTripleStore store) {
+
+        final Properties properties = new Properties(store.getProperties());
+
+        properties.setProperty(DataLoader.Options.CLOSURE,
+                ClosureEnum.Incremental.toString());
+
+        return properties;
+
+    }
+
+    /**
+     * The rules are only extracted from programs which are a fix point of a
+     * set of rules.
+     */
+    public void test_getRules() {
+
+        final AbstractTripleStore store = getStore();
+
+        try {
+
+            final String ns = store.getSPORelation().getNamespace();
+
+            assertNotNull(SemiNaiveClosure.getRules(new FullClosure(store), ns));
+
+            // The fast closure is a sequence of steps.
+            assertNull(SemiNaiveClosure.getRules(new FastClosure(store), ns));
+
+            /*
+             * Some of those steps are fix points, including the closure of
+             * rdfs:subPropertyOf and of rdfs:subClassOf.
+             */
+            final MappedProgram program = new FastClosure(store).getProgram(
+                    ns, null/* focusStore */);
+
+            int nfixPoints = 0;
+
+            final Iterator<? extends IStep> itr = program.steps();
+
+            while (itr.hasNext()) {
+
+                if (SemiNaiveClosure.getRules(itr.next()) != null)
+                    nfixPoints++;
+
+            }
+
+            assertTrue(nfixPoints >= 2);
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * The fix points within the {@link FastClosure} program are evaluated by
+     * the {@link SemiNaiveClosure}.
+     */
+    public void test_compute_fastClosure() throws Exception {
+
+        final AbstractTripleStore store = newStore(FastClosure.class, true/* semiNaive */);
+
+        try {
+
+            final TruthMaintenance tm = new TruthMaintenance(
+                    store.getInferenceEngine());
+
+            final BigdataValueFactory f = store.getValueFactory();
+
+            final TempTripleStore focusStore = tm.newTempTripleStore();
+
+            final StatementBuffer<?> buf = new StatementBuffer(focusStore,
+                    store, 100/* capacity */, 10/* queueCapacity */);
+
+            for (int i = 0; i < N; i++) {
+
+                buf.add(cls(f, i), f.asValue(RDFS.SUBCLASSOF), cls(f, i + 1));
+
+            }
+
+            buf.flush();
+
+            final BaseClosure closure = store.getClosureInstance();
+
+            final MappedProgram program = closure.getProgram(store
+                    .getSPORelation().getNamespace(), focusStore
+                    .getSPORelation().getNamespace());
+
+            final ClosureStats stats = SemiNaiveClosure.compute(store,
+                    focusStore, closure, program, store.newJoinNexusFactory(
+                            RuleContextEnum.TruthMaintenance,
+                            ActionEnum.Insert, IJoinNexus.ELEMENT,
+                            null/* filter */, false/* justify */,
+                            false/* backchain */,
+                            DefaultEvaluationPlanFactory2.INSTANCE), false/* justify */);
+
+            assertNotNull(stats);
+
+            // The closure of the chain was written onto the focusStore.
+            for (int i = 0; i < N; i++) {
+
+                assertTrue(focusStore.hasStatement(store.getIV(cls(f, i)),
+                        store.getIV(RDFS.SUBCLASSOF), store.getIV(cls(f, N))));
+
+            }
+
+        } finally {
+
+            store.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
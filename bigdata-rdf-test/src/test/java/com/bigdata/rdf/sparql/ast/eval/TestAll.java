@@ -173,6 +173,9 @@ public class TestAll extends TestCase {
         // Test suite for embedded bigdata query hints.
         suite.addTestSuite(TestQueryHints.class);
 
+        // Test suite for rebinding plans reused by the QueryPlanCache.
+        suite.addTestSuite(TestQueryPlanCacheRebind.class);
+
         // Test suite with explicitly enabled hash joins.
         suite.addTestSuite(TestHashJoin.class);
 
@@ -37,10 +37,14 @@ import com.bigdata.bop.IPredicate;
 import com.bigdata.bop.PipelineOp;
 import com.bigdata.bop.ap.Predicate;
 import com.bigdata.bop.join.HTreeHashJoinOp;
+import com.bigdata.bop.join.HashIndexOp;
 import com.bigdata.bop.join.JVMHashJoinOp;
+import com.bigdata.bop.join.JVMHashJoinUtility;
+import com.bigdata.bop.join.JVMPartitionedHashJoinUtility;
 import com.bigdata.htree.HTree;
 import com.bigdata.rdf.internal.IV;
 import com.bigdata.rdf.sparql.ast.ASTContainer;
+import com.bigdata.rdf.sparql.ast.QueryHints;
 import com.bigdata.rdf.spo.SPOKeyOrder;
 
 /**
@@ -193,4 +197,80 @@ public class TestHashJoin extends AbstractDataDrivenSPARQLTestCase {
         
     }
 
+    /**
+     * <pre>
+     * SELECT ?x ?o
+     * WHERE {
+     * 
+     *   # Force the use of the JVM hash joins.
+     *   hint:Query hint:nativeHashJoins "false" .
+     * 
+     *   # Request partitioned JVM hash indices.
+     *   hint:Query hint:hashJoinPartitions "4" .
+     * 
+     *   ?x rdf:type foaf:Person .
+     * 
+     *   # The sub-select is joined using a hash index.
+     *   {
+     *     SELECT ?x ?o WHERE { ?x rdfs:label ?o }
+     *   }
+     * 
+     * }
+     * </pre>
+     * 
+     * The {@link QueryHints#HASH_JOIN_PARTITIONS} query hint causes the hash
+     * index for the sub-select to be built by the
+     * {@link JVMPartitionedHashJoinUtility}.
+     */
+    public void test_hash_join_partitions() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "hash-join-partitions",// testURI
+                "hash-join-partitions.rq",// queryURI
+                "hash-join-1.trig",// dataURI
+                "hash-join-partitions.srx"// resultURI
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        final Iterator<HashIndexOp> itr = BOpUtility.visitAll(queryPlan,
+                HashIndexOp.class);
+
+        if (!itr.hasNext()) {
+
+            fail("Expecting a hash index in the query plan: "
+                    + astContainer.toString());
+
+        }
+
+        final HashIndexOp op = itr.next();
+
+        assertTrue(JVMPartitionedHashJoinUtility.factory == op
+                .getProperty(HashIndexOp.Annotations.HASH_JOIN_UTILITY_FACTORY));
+
+    }
+
+    /**
+     * Without the {@link QueryHints#HASH_JOIN_PARTITIONS} query hint the hash
+     * index for the sub-select is built by the {@link JVMHashJoinUtility}.
+     */
+    public void test_hash_join_no_partitions() throws Exception {
+
+        final ASTContainer astContainer = new TestHelper(
+                "hash-join-no-partitions",// testURI
+                "hash-join-no-partitions.rq",// queryURI
+                "hash-join-1.trig",// dataURI
+                "hash-join-partitions.srx"// resultURI
+                ).runTest();
+
+        final PipelineOp queryPlan = astContainer.getQueryPlan();
+
+        final HashIndexOp op = BOpUtility.visitAll(queryPlan,
+                HashIndexOp.class).next();
+
+        assertTrue(JVMHashJoinUtility.factory == op
+                .getProperty(HashIndexOp.Annotations.HASH_JOIN_UTILITY_FACTORY));
+
+    }
+
 }
@@ -24,7 +24,9 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package com.bigdata.rdf.sparql.ast.eval;
 
-
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.paths.ArbitraryLengthPathOp;
+import com.bigdata.rdf.sparql.ast.ASTContainer;
 
 public class TestPropertyPaths extends AbstractDataDrivenSPARQLTestCase {
 
@@ -170,6 +172,82 @@ public class TestPropertyPaths extends AbstractDataDrivenSPARQLTestCase {
              ).runTest();
 
     }
+
+    /**
+     * Verify that the closure of a simple predicate path is computed directly
+     * against the access path for that predicate.
+     */
+    private void assertPredicatePath(final ASTContainer astContainer) {
+
+        final ArbitraryLengthPathOp op = BOpUtility.getOnly(
+                astContainer.getQueryPlan(), ArbitraryLengthPathOp.class);
+
+        assertNotNull(op);
+
+        assertNotNull(op.getProperty(ArbitraryLengthPathOp.Annotations.PREDICATE));
+
+    }
+
+    /**
+     * A simple predicate path with a constant on the input side and a cycle
+     * which does not include the seed.
+     */
+    public void test_predicatePath_forward() throws Exception {
+
+        assertPredicatePath(new TestHelper(
+                "property-paths10a",          // testURI,
+                "property-paths-10a.rq",      // queryFileURL
+                "property-paths-10.ttl",      // dataFileURL
+                "property-paths-10a.srx"      // resultFileURL,
+                ).runTest());
+
+    }
+
+    /**
+     * A simple predicate path with a constant on the output side (reverse
+     * gear) and the zero length path.
+     */
+    public void test_predicatePath_reverse() throws Exception {
+
+        assertPredicatePath(new TestHelper(
+                "property-paths10b",          // testURI,
+                "property-paths-10b.rq",      // queryFileURL
+                "property-paths-10.ttl",      // dataFileURL
+                "property-paths-10b.srx"      // resultFileURL,
+                ).runTest());
+
+    }
+
+    /**
+     * A simple predicate path with both ends bound by the incoming solutions
+     * (bidirectional search). A vertex is only connected to itself by
+     * <code>p+</code> if it lies on a cycle.
+     */
+    public void test_predicatePath_bothBound() throws Exception {
+
+        assertPredicatePath(new TestHelper(
+                "property-paths10c",          // testURI,
+                "property-paths-10c.rq",      // queryFileURL
+                "property-paths-10.ttl",      // dataFileURL
+                "property-paths-10c.srx"      // resultFileURL,
+                ).runTest());
+
+    }
+
+    /**
+     * A simple predicate path with constants on both sides (bidirectional
+     * search).
+     */
+    public void test_predicatePath_bothConstants() throws Exception {
+
+        assertPredicatePath(new TestHelper(
+                "property-paths10d",          // testURI,
+                "property-paths-10d.rq",      // queryFileURL
+                "property-paths-10.ttl",      // dataFileURL
+                "ask.srx"                     // resultFileURL,
+                ).runTest());
+
+    }
     
     
 }
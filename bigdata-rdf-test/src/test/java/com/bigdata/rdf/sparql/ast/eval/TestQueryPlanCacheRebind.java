@@ -0,0 +1,107 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sparql.ast.eval;
+
+import java.util.UUID;
+
+import junit.framework.TestCase2;
+
+import com.bigdata.bop.BOp;
+import com.bigdata.bop.IPredicate;
+import com.bigdata.bop.NV;
+import com.bigdata.bop.Var;
+import com.bigdata.bop.ap.Predicate;
+
+/**
+ * Test suite for rebinding a query plan reused by the {@link QueryPlanCache}
+ * to the query and the view which reuse it.
+ */
+public class TestQueryPlanCacheRebind extends TestCase2 {
+
+    public TestQueryPlanCacheRebind() {
+    }
+
+    public TestQueryPlanCacheRebind(String name) {
+        super(name);
+    }
+
+    private static final String OTHER = "com.bigdata.test.timestamp";
+
+    /**
+     * Only the annotations which are known to carry the timestamp of the view
+     * are rebound, not every annotation whose name ends with
+     * <code>.timestamp</code>.
+     */
+    public void test_rebindTimestamp() {
+
+        final UUID fromId = UUID.randomUUID();
+
+        final UUID toId = UUID.randomUUID();
+
+        final long fromTimestamp = 12L;
+
+        final long toTimestamp = 15L;
+
+        final Predicate<?> pred = new Predicate<Object>(
+                new BOp[] { Var.var("x"), Var.var("y") },
+                new NV(IPredicate.Annotations.TIMESTAMP, fromTimestamp),
+                new NV(OTHER, fromTimestamp));
+
+        final BOp actual = QueryPlanCache.rebind(pred, fromId, toId,
+                fromTimestamp, toTimestamp);
+
+        assertNotSame(pred, actual);
+
+        assertEquals(Long.valueOf(toTimestamp),
+                actual.getProperty(IPredicate.Annotations.TIMESTAMP));
+
+        assertEquals(Long.valueOf(fromTimestamp), actual.getProperty(OTHER));
+
+        // The operator is not modified.
+        assertEquals(Long.valueOf(fromTimestamp),
+                pred.getProperty(IPredicate.Annotations.TIMESTAMP));
+
+    }
+
+    /**
+     * An operator without a reference to the query or the view is not copied.
+     */
+    public void test_rebindNoChange() {
+
+        final Predicate<?> pred = new Predicate<Object>(
+                new BOp[] { Var.var("x"), Var.var("y") },
+                new NV(IPredicate.Annotations.TIMESTAMP, 12L),
+                new NV(OTHER, 15L));
+
+        assertSame(pred, QueryPlanCache.rebind(pred, UUID.randomUUID(),
+                UUID.randomUUID(), 15L/* fromTimestamp */, 18L/* toTimestamp */));
+
+    }
+
+}
@@ -196,6 +196,24 @@ public class AbstractRTOTestCase extends AbstractDataDrivenSPARQLTestCase {
      */
     protected void assertSameJoinOrder(final int[] expected,
         final TestHelper helper) throws Exception {
+
+        final Path path = runTestAndGetPath(helper);
+
+        if (!Arrays.equals(expected, path.getVertexIds()))
+            fail("RTO JOIN ORDER" //
+                    + ": expected=" + Arrays.toString(expected)//
+                    + ", actual=" + Arrays.toString(path.getVertexIds()));
+
+    }
+
+    /**
+     * Helper to run the test and return the RTO determined solution.
+     * 
+     * @param helper
+     * 
+     * @return The join path selected by the RTO.
+     */
+    protected Path runTestAndGetPath(final TestHelper helper) throws Exception {
         
         /*
          * Assign a UUID to this query so we can get at its outcome.
@@ -264,13 +282,10 @@ public class AbstractRTOTestCase extends AbstractDataDrivenSPARQLTestCase {
         if (log.isInfoEnabled())
             log.info("path=" + path);
 
-        if (!Arrays.equals(expected, path.getVertexIds()))
-            fail("RTO JOIN ORDER" //
-                    + ": expected=" + Arrays.toString(expected)//
-                    + ", actual=" + Arrays.toString(path.getVertexIds()));
-
         // joinGraph.getQueryPlan(q)
 
+        return path;
+
     }
 
 }
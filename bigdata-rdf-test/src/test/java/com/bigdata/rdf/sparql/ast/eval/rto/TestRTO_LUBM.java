@@ -29,6 +29,9 @@ package com.bigdata.rdf.sparql.ast.eval.rto;
 
 import java.util.Properties;
 
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.bop.joinGraph.rto.JoinGraph;
+import com.bigdata.bop.joinGraph.rto.Path;
 import com.bigdata.rdf.axioms.NoAxioms;
 import com.bigdata.rdf.sail.BigdataSail;
 
@@ -160,4 +163,30 @@ public class TestRTO_LUBM extends AbstractRTOTestCase {
         
     }
 
+    /**
+     * LUBM Q9 on the U1 data set with a time budget for the RTO which is
+     * exhausted before the exploration of the join paths is done. The RTO must
+     * still produce a complete join path and the query must produce the
+     * correct solutions.
+     */
+    public void test_LUBM_Q9_maxTime() throws Exception {
+        
+        final TestHelper helper = new TestHelper(//
+                "rto/LUBM-Q9-maxTime", // testURI,
+                "rto/LUBM-Q9-maxTime.rq",// queryFileURL
+                "src/test/resources/data/lehigh/LUBM-U1.rdf.gz",// dataFileURL
+                "rto/LUBM-Q9.srx"// resultFileURL
+        );
+
+        final Path path = runTestAndGetPath(helper);
+
+        assertEquals(6, path.getVertexCount());
+
+        final JoinGraph joinGraph = BOpUtility.getOnly(helper
+                .getASTContainer().getQueryPlan(), JoinGraph.class);
+
+        assertEquals(1L, joinGraph.getMaxTime());
+
+    }
+
 }
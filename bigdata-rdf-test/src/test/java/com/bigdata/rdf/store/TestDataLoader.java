@@ -359,6 +359,117 @@ public class TestDataLoader extends AbstractTripleStoreTestCase {
 
 	}
 	
+	/**
+	 * Test durable queues using {@link CommitEnum#Batch},
+	 * {@link ClosureEnum#None} and parallel parsers.
+	 */
+	public void test_durableQueues02_batchCommit_noClosure_parserThreads() throws IOException {
+
+		final AbstractTripleStore store = getStore();
+
+		try {
+
+			final Properties properties = new Properties(store.getProperties());
+
+			// enable durable queues.
+			properties.setProperty(DataLoader.Options.DURABLE_QUEUES, "true");
+
+			// Batch commit.
+			properties.setProperty(DataLoader.Options.COMMIT, CommitEnum.Batch.name());
+
+			properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+
+			properties.setProperty(DataLoader.Options.PARSER_THREADS, "2");
+
+			final DataLoader dataLoader = new DataLoader(properties, store);
+
+			doDurableQueueTest(dataLoader);
+			
+		} finally {
+
+			store.__tearDownUnitTest();
+		}
+
+	}
+
+	/**
+	 * Load a directory of files using parallel parsers and verify that the
+	 * same statements and values are present as for a sequential load of the
+	 * same files. The files share most of their values, so the parsers race
+	 * to add the same values to the lexicon.
+	 * 
+	 * @see DataLoader.Options#PARSER_THREADS
+	 */
+	public void test_parserThreads() throws IOException {
+
+		final File tmpDir = File.createTempFile(getClass().getName(), ".tmp");
+		
+		try {
+
+			tmpDir.delete(); // delete random file name.
+			tmpDir.mkdir(); // recreate it as a directory.
+
+			final File subDir = new File(tmpDir, "sub");
+			subDir.mkdir();
+
+			final int nfiles = 12;
+			for (int i = 0; i < nfiles; i++) {
+				final StringBuilder sb = new StringBuilder();
+				sb.append("@prefix bd: <http://www.bigdata.com/> .\n");
+				for (int j = 0; j < 200; j++) {
+					sb.append("bd:s" + j + " bd:p" + (j % 7) + " bd:o" + ((i + j) % 50) + " .\n");
+					sb.append("bd:s" + j + " bd:label \"file" + i + "\" .\n");
+				}
+				writeOnFile(new File(i % 3 == 0 ? subDir : tmpDir, "data" + i + ".ttl"), sb.toString());
+			}
+
+			final long nstmts1, nterms1;
+			{
+				final AbstractTripleStore store = getStore();
+				try {
+					final Properties properties = new Properties(store.getProperties());
+					properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+					final DataLoader dataLoader = new DataLoader(properties, store);
+					dataLoader.loadFiles(tmpDir, null/* baseURI */, RDFFormat.TURTLE, null/* defaultGraph */,
+							null/* filter */);
+					nstmts1 = store.getStatementCount(true/* exact */);
+					nterms1 = store.getTermCount();
+				} finally {
+					store.__tearDownUnitTest();
+				}
+			}
+
+			{
+				final AbstractTripleStore store = getStore();
+				try {
+					final Properties properties = new Properties(store.getProperties());
+					properties.setProperty(DataLoader.Options.CLOSURE, ClosureEnum.None.name());
+					properties.setProperty(DataLoader.Options.PARSER_THREADS, "4");
+					// small buffers so each source is written in several batches.
+					properties.setProperty(DataLoader.Options.BUFFER_CAPACITY, "100");
+					final DataLoader dataLoader = new DataLoader(properties, store);
+					final DataLoader.MyLoadStats stats = (DataLoader.MyLoadStats) dataLoader.loadFiles(tmpDir,
+							null/* baseURI */, RDFFormat.TURTLE, null/* defaultGraph */, null/* filter */);
+					if (log.isInfoEnabled())
+						log.info(stats);
+					assertEquals(nfiles * 400L, stats.toldTriples.get());
+					assertEquals(nfiles * 400L, stats.stmtsCount.get());
+					assertTrue(stats.termsCount.get() > 0);
+					assertEquals(nstmts1, store.getStatementCount(true/* exact */));
+					assertEquals(nterms1, store.getTermCount());
+				} finally {
+					store.__tearDownUnitTest();
+				}
+			}
+
+		} finally {
+
+			recursiveDelete(tmpDir);
+
+		}
+
+	}
+
 	private void doDurableQueueTest(final DataLoader dataLoader) throws IOException {
 		
 		// temporary directory where we setup the test.
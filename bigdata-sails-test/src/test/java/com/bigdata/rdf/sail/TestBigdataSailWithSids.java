@@ -96,6 +96,7 @@ public class TestBigdataSailWithSids extends AbstractBigdataSailTestCase {
 
         // test suite for the history index.
         suite.addTestSuite(TestHistoryIndex.class);
+        suite.addTestSuite(TestStatisticsIndex.class);
         
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacks.class);
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacksTx.class);
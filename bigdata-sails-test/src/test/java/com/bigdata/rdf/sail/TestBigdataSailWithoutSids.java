@@ -86,10 +86,13 @@ public class TestBigdataSailWithoutSids extends AbstractBigdataSailTestCase {
 
         suite.addTestSuite(TestTxCreate.class);
 
+        suite.addTestSuite(TestQueryPlanCache.class);
+
         suite.addTestSuite(TestChangeSets.class);
 
         // test suite for the history index.
         suite.addTestSuite(TestHistoryIndex.class);
+        suite.addTestSuite(TestStatisticsIndex.class);
 
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacks.class);
 		suite.addTestSuite(com.bigdata.rdf.sail.TestRollbacksTx.class);
@@ -0,0 +1,424 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+
+import com.bigdata.counters.ICounter;
+import com.bigdata.rdf.sparql.ast.QueryRoot;
+import com.bigdata.rdf.sparql.ast.eval.QueryPlanCache;
+
+/**
+ * Test suite for the reuse of compiled queries by the {@link QueryPlanCache}.
+ */
+public class TestQueryPlanCache extends ProxyBigdataSailTestCase {
+
+    public TestQueryPlanCache() {
+    }
+
+    public TestQueryPlanCache(String name) {
+        super(name);
+    }
+
+    private static final String baseURI = "http://www.bigdata.com/";
+
+    private static final URI s = new URIImpl("http://www.bigdata.com/s");
+
+    private static final URI p = new URIImpl("http://www.bigdata.com/p");
+
+    /**
+     * The sub-select is evaluated using a hash index which is named by the
+     * query, so the plan is only correct if it is rebound to the query which
+     * reuses it.
+     */
+    private static final String select = "SELECT ?o WHERE { <" + s + "> <"
+            + p + "> ?o . { SELECT ?o WHERE { ?x <" + p + "> ?o } } }";
+
+    private static final String ask = "ASK { <" + s + "> <" + p
+            + "> <http://www.bigdata.com/o2> }";
+
+    private void add(final BigdataSailRepository repo, final String o)
+            throws Exception {
+
+        final BigdataSailRepositoryConnection cxn = repo.getConnection();
+
+        try {
+
+            cxn.setAutoCommit(false);
+
+            cxn.add(s, p, new URIImpl(o));
+
+            cxn.commit();
+
+        } finally {
+
+            cxn.close();
+
+        }
+
+    }
+
+    private Set<String> select(final BigdataSailRepository repo,
+            final QueryPlanCache cache) throws Exception {
+
+        return select(repo, cache, select);
+
+    }
+
+    private Set<String> select(final BigdataSailRepository repo,
+            final QueryPlanCache cache, final String queryStr) throws Exception {
+
+        final BigdataSailRepositoryConnection cxn = repo
+                .getReadOnlyConnection();
+
+        try {
+
+            final BigdataSailTupleQuery query = (BigdataSailTupleQuery) cxn
+                    .prepareTupleQuery(QueryLanguage.SPARQL, queryStr, baseURI);
+
+            query.setQueryPlanCache(cache, baseURI);
+
+            final Set<String> actual = new TreeSet<String>();
+
+            final TupleQueryResult result = query.evaluate();
+
+            try {
+
+                while (result.hasNext()) {
+
+                    final BindingSet bs = result.next();
+
+                    actual.add(bs.getValue("o").stringValue());
+
+                }
+
+            } finally {
+
+                result.close();
+
+            }
+
+            return actual;
+
+        } finally {
+
+            cxn.close();
+
+        }
+
+    }
+
+    /**
+     * Run the ASK query and return the optimized AST on which it was run.
+     */
+    private QueryRoot optimizedAST(final BigdataSailRepository repo,
+            final QueryPlanCache cache) throws Exception {
+
+        final BigdataSailRepositoryConnection cxn = repo
+                .getReadOnlyConnection();
+
+        try {
+
+            final BigdataSailBooleanQuery query = (BigdataSailBooleanQuery) cxn
+                    .prepareBooleanQuery(QueryLanguage.SPARQL, ask, baseURI);
+
+            query.setQueryPlanCache(cache, baseURI);
+
+            query.evaluate();
+
+            return query.getASTContainer().getOptimizedAST();
+
+        } finally {
+
+            cxn.close();
+
+        }
+
+    }
+
+    private boolean ask(final BigdataSailRepository repo,
+            final QueryPlanCache cache) throws Exception {
+
+        final BigdataSailRepositoryConnection cxn = repo
+                .getReadOnlyConnection();
+
+        try {
+
+            final BigdataSailBooleanQuery query = (BigdataSailBooleanQuery) cxn
+                    .prepareBooleanQuery(QueryLanguage.SPARQL, ask, baseURI);
+
+            query.setQueryPlanCache(cache, baseURI);
+
+            return query.evaluate();
+
+        } finally {
+
+            cxn.close();
+
+        }
+
+    }
+
+    private static long getCounter(final QueryPlanCache cache,
+            final String name) {
+
+        return ((Long) ((ICounter<?>) cache.getCounters().getChild(name))
+                .getValue()).longValue();
+
+    }
+
+    private static Set<String> asSet(final String... a) {
+
+        final Set<String> set = new TreeSet<String>();
+
+        for (String t : a)
+            set.add(t);
+
+        return set;
+
+    }
+
+    /**
+     * A compiled query is reused against the same commit point and compiled
+     * again once there is a new commit point.
+     */
+    public void test_reuse() throws Exception {
+
+        final BigdataSail sail = getSail();
+
+        try {
+
+            final BigdataSailRepository repo = new BigdataSailRepository(sail);
+
+            repo.initialize();
+
+            add(repo, "http://www.bigdata.com/o1");
+
+            final QueryPlanCache cache = new QueryPlanCache(10/* capacity */);
+
+            final Set<String> expected = asSet("http://www.bigdata.com/o1");
+
+            assertEquals(expected, select(repo, cache));
+
+            assertEquals(0L, getCounter(cache, "hits"));
+            assertEquals(1L, getCounter(cache, "misses"));
+            assertEquals(1, cache.size());
+
+            assertEquals(expected, select(repo, cache));
+
+            assertEquals(expected, select(repo, cache));
+
+            assertEquals(2L, getCounter(cache, "hits"));
+            assertEquals(1L, getCounter(cache, "misses"));
+
+            // The constant in the ASK query is not yet known.
+            assertFalse(ask(repo, cache));
+            assertFalse(ask(repo, cache));
+
+            assertEquals(3L, getCounter(cache, "hits"));
+            assertEquals(2, cache.size());
+
+            add(repo, "http://www.bigdata.com/o2");
+
+            // Compiled again against the new commit point.
+            assertEquals(asSet("http://www.bigdata.com/o1",
+                    "http://www.bigdata.com/o2"), select(repo, cache));
+
+            assertTrue(ask(repo, cache));
+
+            assertEquals(3L, getCounter(cache, "hits"));
+            assertEquals(4L, getCounter(cache, "misses"));
+
+            // The plans for the old commit point were dropped.
+            assertEquals(2L, getCounter(cache, "invalidations"));
+            assertEquals(2, cache.size());
+
+            assertTrue(ask(repo, cache));
+
+            assertEquals(4L, getCounter(cache, "hits"));
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Each query which reuses a compiled query is given its own copy of the
+     * optimized AST.
+     */
+    public void test_reuseCopiesOptimizedAST() throws Exception {
+
+        final BigdataSail sail = getSail();
+
+        try {
+
+            final BigdataSailRepository repo = new BigdataSailRepository(sail);
+
+            repo.initialize();
+
+            add(repo, "http://www.bigdata.com/o1");
+
+            final QueryPlanCache cache = new QueryPlanCache(10/* capacity */);
+
+            final QueryRoot ast0 = optimizedAST(repo, cache);
+
+            final QueryRoot ast1 = optimizedAST(repo, cache);
+
+            final QueryRoot ast2 = optimizedAST(repo, cache);
+
+            assertEquals(2L, getCounter(cache, "hits"));
+
+            assertNotSame(ast0, ast1);
+            assertNotSame(ast0, ast2);
+            assertNotSame(ast1, ast2);
+
+            assertEquals(ast0, ast1);
+            assertEquals(ast1, ast2);
+
+            // Changes to one copy are not visible to the next query.
+            ast1.setProperty("foo", "bar");
+
+            assertNull(optimizedAST(repo, cache).getProperty("foo"));
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Queries which differ only in whitespace and comments share a compiled
+     * query. Whitespace and <code>#</code> inside of literals and IRIs are
+     * significant.
+     */
+    public void test_normalizedQueryString() throws Exception {
+
+        final BigdataSail sail = getSail();
+
+        try {
+
+            final BigdataSailRepository repo = new BigdataSailRepository(sail);
+
+            repo.initialize();
+
+            add(repo, "http://www.bigdata.com/o1");
+
+            final QueryPlanCache cache = new QueryPlanCache(10/* capacity */);
+
+            final Set<String> expected = asSet("http://www.bigdata.com/o1");
+
+            assertEquals(expected, select(repo, cache));
+
+            assertEquals(expected, select(repo, cache, "# the same query\n"
+                    + select.replace(" ", "  \n\t").replace("{",
+                            "{ # a comment\n")));
+
+            assertEquals(1L, getCounter(cache, "hits"));
+            assertEquals(1, cache.size());
+
+            final String filter = "SELECT ?o WHERE { <" + s + "> <" + p
+                    + "> ?o FILTER (?o != <http://www.bigdata.com/o#%s>) }";
+
+            final String literal = "SELECT ?o WHERE { <" + s + "> <" + p
+                    + "> ?o FILTER (str(?o) != \"%s\") }";
+
+            select(repo, cache, String.format(filter, "1"));
+            select(repo, cache, String.format(filter, "2"));
+            select(repo, cache, String.format(literal, "a b"));
+            select(repo, cache, String.format(literal, "a  b"));
+            select(repo, cache, String.format(literal, "a # b"));
+
+            assertEquals(1L, getCounter(cache, "hits"));
+            assertEquals(6, cache.size());
+
+            select(repo, cache, String.format(literal, "a  b").replace(" ?o",
+                    "\n?o"));
+
+            assertEquals(2L, getCounter(cache, "hits"));
+            assertEquals(6, cache.size());
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * The cache is bounded.
+     */
+    public void test_capacity() throws Exception {
+
+        final BigdataSail sail = getSail();
+
+        try {
+
+            final BigdataSailRepository repo = new BigdataSailRepository(sail);
+
+            repo.initialize();
+
+            add(repo, "http://www.bigdata.com/o1");
+
+            final QueryPlanCache cache = new QueryPlanCache(1/* capacity */);
+
+            select(repo, cache);
+
+            ask(repo, cache);
+
+            assertEquals(1, cache.size());
+
+            assertEquals(1L, getCounter(cache, "evictions"));
+
+            select(repo, cache);
+
+            assertEquals(0L, getCounter(cache, "hits"));
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+}
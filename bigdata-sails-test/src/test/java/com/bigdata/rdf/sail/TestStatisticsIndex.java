@@ -0,0 +1,408 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+package com.bigdata.rdf.sail;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.sail.SailException;
+
+import com.bigdata.bop.BOpUtility;
+import com.bigdata.btree.IIndex;
+import com.bigdata.btree.ITuple;
+import com.bigdata.btree.ITupleIterator;
+import com.bigdata.rdf.axioms.NoAxioms;
+import com.bigdata.rdf.internal.IV;
+import com.bigdata.rdf.model.BigdataLiteral;
+import com.bigdata.rdf.model.BigdataURI;
+import com.bigdata.rdf.model.BigdataValueFactory;
+import com.bigdata.rdf.sail.BigdataSail.BigdataSailConnection;
+import com.bigdata.rdf.sparql.ast.StatementPatternNode;
+import com.bigdata.rdf.sparql.ast.optimizers.ASTRangeCountOptimizer;
+import com.bigdata.rdf.sparql.ast.optimizers.ASTStaticJoinOptimizer.Annotations;
+import com.bigdata.rdf.sparql.ast.service.statistics.PredicateStatistics;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsIndex;
+import com.bigdata.rdf.sparql.ast.service.statistics.StatisticsServiceFactory;
+import com.bigdata.rdf.store.AbstractTripleStore;
+import com.bigdata.rdf.store.DataLoader;
+import com.bigdata.util.BytesUtil;
+
+/**
+ * Test the index maintained by the {@link StatisticsServiceFactory}.
+ */
+public class TestStatisticsIndex extends ProxyBigdataSailTestCase {
+
+    public TestStatisticsIndex() {
+    }
+
+    public TestStatisticsIndex(String name) {
+        super(name);
+    }
+
+    /**
+     * Unit test verifies that the statistics index is not created if the
+     * option is not enabled.
+     */
+    public void test_statisticsIndexDisabled() throws SailException {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.STATISTICS, "false");
+
+        final BigdataSail sail = getSail(properties);
+
+        try {
+
+            sail.initialize();
+
+            final BigdataSailConnection conn = sail.getConnection();
+
+            try {
+
+                assertNull(conn.getTripleStore().getSPORelation()
+                        .getStatisticsIndex());
+
+                assertNull(StatisticsIndex.getInstance(conn.getTripleStore()));
+
+                conn.rollback();
+
+            } finally {
+
+                conn.close();
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Unit test works its way through two commit points, verifying the
+     * statistics after each and verifying that they agree with the statistics
+     * computed from scratch.
+     */
+    @SuppressWarnings("rawtypes")
+    public void test_statisticsIndex01() throws SailException {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.STATISTICS, "true");
+
+        // disable inference.
+        properties.setProperty(AbstractTripleStore.Options.AXIOMS_CLASS,
+                NoAxioms.class.getName());
+
+        final BigdataSail sail = getSail(properties);
+
+        try {
+
+            sail.initialize();
+
+            final BigdataValueFactory f = (BigdataValueFactory) sail
+                    .getValueFactory();
+
+            final BigdataURI A = f.createURI("http://www.bigdata.com/A");
+            final BigdataURI B = f.createURI("http://www.bigdata.com/B");
+            final BigdataURI C = f.createURI("http://www.bigdata.com/C");
+            final BigdataURI D = f.createURI("http://www.bigdata.com/D");
+            final BigdataURI name = f.createURI("http://www.bigdata.com/name");
+            final BigdataURI knows = f
+                    .createURI("http://www.bigdata.com/knows");
+            final BigdataLiteral a = f.createLiteral("a");
+            final BigdataURI rdfType = f.asValue(RDF.TYPE);
+
+            {
+
+                final BigdataSailConnection conn = sail.getConnection();
+
+                try {
+
+                    final StatisticsIndex stats = StatisticsIndex
+                            .getInstance(conn.getTripleStore());
+
+                    assertNotNull(stats);
+
+                    // The index should be empty.
+                    assertEquals(0L, stats.getIndex().rangeCount());
+
+                    conn.addStatement(A, rdfType, B);
+                    conn.addStatement(A, rdfType, C);
+                    conn.addStatement(A, name, a);
+                    conn.addStatement(D, rdfType, B);
+                    conn.addStatement(D, knows, A);
+
+                    // Added and removed in the same commit.
+                    conn.addStatement(D, name, a);
+                    conn.flush();
+                    conn.removeStatements(D, name, a);
+
+                    conn.commit();
+
+                    assertStatistics(3, 2, 2, stats.get(rdfType.getIV()));
+                    assertStatistics(1, 1, 1, stats.get(name.getIV()));
+                    assertStatistics(1, 1, 1, stats.get(knows.getIV()));
+
+                    // {type,name} and {type,knows}.
+                    assertEquals(2L, stats.getCharacteristicSetCount());
+
+                    assertEquals(3L, stats.estimateStarCardinality(new IV[] {
+                            rdfType.getIV() }));
+
+                    assertEquals(2L, stats.estimateStarCardinality(new IV[] {
+                            rdfType.getIV(), name.getIV() }));
+
+                    assertEquals(0L, stats.estimateStarCardinality(new IV[] {
+                            name.getIV(), knows.getIV() }));
+
+                    assertSameAsRebuild(conn.getTripleStore(), stats);
+
+                } finally {
+
+                    conn.close();
+
+                }
+
+            }
+
+            {
+
+                final BigdataSailConnection conn = sail.getConnection();
+
+                try {
+
+                    final StatisticsIndex stats = StatisticsIndex
+                            .getInstance(conn.getTripleStore());
+
+                    conn.removeStatements(A, rdfType, C);
+                    conn.removeStatements(D, knows, A);
+
+                    conn.commit();
+
+                    assertStatistics(2, 2, 1, stats.get(rdfType.getIV()));
+                    assertStatistics(1, 1, 1, stats.get(name.getIV()));
+                    assertStatistics(0, 0, 0, stats.get(knows.getIV()));
+
+                    // {type,name} and {type}.
+                    assertEquals(2L, stats.getCharacteristicSetCount());
+
+                    assertEquals(2L, stats.estimateStarCardinality(new IV[] {
+                            rdfType.getIV() }));
+
+                    assertSameAsRebuild(conn.getTripleStore(), stats);
+
+                } finally {
+
+                    conn.close();
+
+                }
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    /**
+     * Statements loaded by the {@link DataLoader} bypass the change log, so
+     * they are not in the statistics index. The {@link ASTRangeCountOptimizer}
+     * must not use the ZERO (0) count from the statistics in place of the
+     * range count.
+     */
+    public void test_rangeCountAfterDataLoader() throws Exception {
+
+        final Properties properties = getProperties();
+
+        properties.setProperty(AbstractTripleStore.Options.STATISTICS, "true");
+
+        // disable inference.
+        properties.setProperty(AbstractTripleStore.Options.AXIOMS_CLASS,
+                NoAxioms.class.getName());
+
+        final BigdataSail sail = getSail(properties);
+
+        try {
+
+            sail.initialize();
+
+            final BigdataSailRepository repo = new BigdataSailRepository(sail);
+
+            {
+
+                final BigdataSailConnection conn = sail
+                        .getUnisolatedConnection();
+
+                try {
+
+                    final AbstractTripleStore db = conn.getTripleStore();
+
+                    final String g = db.isQuads() ? " <http://www.bigdata.com/G>"
+                            : "";
+
+                    final StringBuilder sb = new StringBuilder();
+
+                    for (String s : new String[] { "A", "B", "C" }) {
+
+                        sb.append("<http://www.bigdata.com/" + s
+                                + "> <http://www.bigdata.com/knows>"
+                                + " <http://www.bigdata.com/D>" + g + " .\n");
+
+                    }
+
+                    new DataLoader(db).loadData(
+                            new StringReader(sb.toString()),
+                            "http://www.bigdata.com/",
+                            db.isQuads() ? RDFFormat.NQUADS
+                                    : RDFFormat.NTRIPLES);
+
+                    // The statistics were not updated by the load.
+                    assertEquals(0L, StatisticsIndex.getInstance(db)
+                            .getIndex().rangeCount());
+
+                } finally {
+
+                    conn.close();
+
+                }
+
+            }
+
+            final BigdataSailRepositoryConnection cxn = repo
+                    .getReadOnlyConnection();
+
+            try {
+
+                final BigdataSailTupleQuery query = (BigdataSailTupleQuery) cxn
+                        .prepareTupleQuery(QueryLanguage.SPARQL,
+                                "SELECT ?s ?o WHERE { ?s <http://www.bigdata.com/knows> ?o }");
+
+                final TupleQueryResult result = query.evaluate();
+
+                try {
+
+                    int n = 0;
+
+                    while (result.hasNext()) {
+                        result.next();
+                        n++;
+                    }
+
+                    assertEquals(3, n);
+
+                } finally {
+
+                    result.close();
+
+                }
+
+                final Iterator<StatementPatternNode> itr = BOpUtility
+                        .visitAll(query.getASTContainer().getOptimizedAST(),
+                                StatementPatternNode.class);
+
+                final StatementPatternNode sp = itr.next();
+
+                assertEquals(Long.valueOf(3L), sp
+                        .getProperty(Annotations.ESTIMATED_CARDINALITY));
+
+            } finally {
+
+                cxn.close();
+
+            }
+
+        } finally {
+
+            sail.__tearDownUnitTest();
+
+        }
+
+    }
+
+    private static void assertStatistics(final long statementCount,
+            final long subjectCount, final long objectCount,
+            final PredicateStatistics actual) {
+
+        assertEquals("statementCount", statementCount,
+                actual.getStatementCount());
+
+        assertEquals("subjectCount", subjectCount, actual.getSubjectCount());
+
+        assertEquals("objectCount", objectCount, actual.getObjectCount());
+
+    }
+
+    /**
+     * Verify that the incrementally maintained index has the same tuples as
+     * the index computed from scratch.
+     */
+    private static void assertSameAsRebuild(final AbstractTripleStore db,
+            final StatisticsIndex stats) {
+
+        final List<String> expected = tuples(stats.getIndex());
+
+        final StatisticsIndex rebuilt = StatisticsIndex.rebuild(db);
+
+        assertEquals(expected, tuples(rebuilt.getIndex()));
+
+    }
+
+    private static List<String> tuples(final IIndex ndx) {
+
+        final List<String> a = new LinkedList<String>();
+
+        final ITupleIterator<?> itr = ndx.rangeIterator();
+
+        while (itr.hasNext()) {
+
+            final ITuple<?> tuple = itr.next();
+
+            a.add(BytesUtil.toString(tuple.getKey()) + "="
+                    + BytesUtil.toString(tuple.getValue()));
+
+        }
+
+        return a;
+
+    }
+
+}
@@ -34,6 +34,7 @@ import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.rio.RDFFormat;
 
 import com.bigdata.counters.format.CounterSetFormat;
+import com.bigdata.rdf.ServiceProviderHook;
 
 /**
  * Test suite for content negotiation helper class.
@@ -206,6 +207,26 @@ public class TestConneg extends TestCase2 {
 
     }
 
+    /**
+     * The {@link ServiceProviderHook#BINARY_RESULTS} format is negotiated when
+     * it is preferred.
+     */
+    public void test_conneg_sparql_result_set_binaryResults() {
+
+        // Note: The format is registered by the hook.
+        ServiceProviderHook.forceLoad();
+
+        final String acceptStr = "application/x-blazegraph-binary-results,application/x-binary-rdf-results-table;q=.8";
+
+        final ConnegUtil util = new ConnegUtil(acceptStr);
+
+        assertNull(util.getRDFFormat());
+
+        assertEquals(ServiceProviderHook.BINARY_RESULTS,
+                util.getTupleQueryResultFormat());
+
+    }
+
     /** Test the default mime type for each {@link BooleanQueryResultFormat}. */
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public void test_conneg_sparql_boolean_result_set_01() {
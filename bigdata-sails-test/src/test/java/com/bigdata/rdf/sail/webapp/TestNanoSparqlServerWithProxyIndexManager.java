@@ -281,6 +281,7 @@ public class TestNanoSparqlServerWithProxyIndexManager<S extends IIndexManager>
          suite.addTestSuite(Test_REST_ServiceDescription.class);
          suite.addTestSuite(Test_REST_DELETE_BY_ACCESS_PATH.class);
          suite.addTestSuite(Test_REST_DELETE_WITH_BODY.class);
+         suite.addTestSuite(Test_REST_BinaryResults.class);
          suite.addTestSuite(TestNanoSparqlClient.class);
          suite.addTestSuite(TestMultiTenancyAPI.class); // Multi-tenancy API.
          suite.addTestSuite(TestDataLoaderServlet.class); // Data Loader Servlet
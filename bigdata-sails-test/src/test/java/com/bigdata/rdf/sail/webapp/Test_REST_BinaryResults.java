@@ -0,0 +1,159 @@
+/*
+
+Copyright (C) SYSTAP, LLC DBA Blazegraph 2006-2016.  All rights reserved.
+
+Contact:
+     SYSTAP, LLC DBA Blazegraph
+     2501 Calvert ST NW #106
+     Washington, DC 20008
+     licenses@blazegraph.com
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; version 2 of the License.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+*/
+/*
+ * Created on Oct 15, 2016
+ */
+
+
+package com.bigdata.rdf.sail.webapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+
+import com.bigdata.journal.IIndexManager;
+import com.bigdata.rdf.ServiceProviderHook;
+import com.bigdata.rdf.sail.webapp.client.IPreparedTupleQuery;
+
+/**
+ * Proxied test suite for the {@link ServiceProviderHook#BINARY_RESULTS} format.
+ * 
+ * @param <S>
+ */
+public class Test_REST_BinaryResults<S extends IIndexManager> extends
+        AbstractTestNanoSparqlClient<S> {
+
+    public Test_REST_BinaryResults() {
+
+    }
+
+    public Test_REST_BinaryResults(final String name) {
+
+        super(name);
+
+    }
+
+    public static Test suite() {
+
+        return ProxySuiteHelper.suiteWhenStandalone(
+                Test_REST_BinaryResults.class, "test.*", TestMode.quads
+//                , TestMode.sids
+//                , TestMode.triples
+                );
+
+    }
+
+    private List<BindingSet> select(final String queryStr,
+            final String mimeType) throws Exception {
+
+        final IPreparedTupleQuery query = m_repo.prepareTupleQuery(queryStr);
+
+        query.setHeader("Accept", mimeType);
+
+        final List<BindingSet> list = new ArrayList<BindingSet>();
+
+        final TupleQueryResult result = query.evaluate();
+
+        try {
+
+            assertEquals(mimeType, "[s, o, x]", result.getBindingNames()
+                    .toString());
+
+            while (result.hasNext())
+                list.add(result.next());
+
+        } finally {
+
+            result.close();
+
+        }
+
+        return list;
+
+    }
+
+    /**
+     * The solutions are the same as those reported using SPARQL/XML, both for
+     * inline values and for values which must be materialized.
+     */
+    public void test_SELECT_binaryResults() throws Exception {
+
+        m_repo.prepareUpdate(
+                "PREFIX xsd: <http://www.w3.org/2001/XMLSchema#>\n"
+                        + "INSERT DATA {\n"
+                        + " <http://s1> <http://p> \"abc\" , \"chat\"@fr , <http://o1> , _:b1 .\n"
+                        + " <http://s1> <http://p> \"12\"^^xsd:int , \"-3\"^^xsd:long , \"1.5\"^^xsd:double .\n"
+                        + " <http://s2> <http://p> \"true\"^^xsd:boolean , \"42\"^^xsd:integer .\n"
+                        + " <http://s2> <http://p> \"123456789012345678901234567890\"^^xsd:integer .\n"
+                        + " <http://s2> <http://p> \"2016-10-15T12:00:00Z\"^^xsd:dateTime .\n"
+                        + " <http://s2> <http://p> \"abc\"^^xsd:string .\n"
+                        + " <http://s1> <http://q> \"x\" .\n"
+                        + "}").evaluate();
+
+        final String queryStr = "SELECT ?s ?o ?x { ?s <http://p> ?o OPTIONAL { ?s <http://q> ?x } }";
+
+        final List<BindingSet> expected = select(queryStr,
+                TupleQueryResultFormat.SPARQL.getDefaultMIMEType());
+
+        final List<BindingSet> actual = select(queryStr,
+                ServiceProviderHook.BINARY_RESULTS.getDefaultMIMEType());
+
+        assertEquals(12, expected.size());
+
+        assertSameSolutionsAnyOrder(expected, actual);
+
+        // LIMIT + ORDER BY.
+        final String queryStr2 = "SELECT ?s ?o ?x { ?s <http://p> ?o OPTIONAL { ?s <http://q> ?x } } ORDER BY ?o LIMIT 5";
+
+        assertEquals(
+                select(queryStr2,
+                        TupleQueryResultFormat.SPARQL.getDefaultMIMEType()),
+                select(queryStr2,
+                        ServiceProviderHook.BINARY_RESULTS.getDefaultMIMEType()));
+
+    }
+
+    private void assertSameSolutionsAnyOrder(final List<BindingSet> expected,
+            final List<BindingSet> actual) {
+
+        assertEquals(expected.size(), actual.size());
+
+        final List<BindingSet> remaining = new ArrayList<BindingSet>(actual);
+
+        for (BindingSet bs : expected) {
+
+            assertTrue("Not found: " + bs + ", actual=" + actual,
+                    remaining.remove(bs));
+
+        }
+
+    }
+
+}
@@ -1227,7 +1227,74 @@ public class CustomByteArrayFrontCodedList extends AbstractObjectList<byte[]>
          * and locate the greatest index that is a multiple of the ratio whose
          * value is LTE to the probe key.
          */
-        final int pret = binarySearch(a);
+        final int pret = binarySearch(a, 0/* low */, p.length - 1/* high */);
+
+        return search(a, pret);
+
+    }
+
+    /**
+     * Search for a batch of probe keys in a single forward pass over the coded
+     * data. The probe keys MUST be in ascending unsigned byte[] order
+     * (duplicate probes are allowed). Since the insertion point of a probe is
+     * never before the insertion point of the previous probe, the search for
+     * the full length entry of each probe begins at the full length entry
+     * located for the previous probe and gallops forward from there rather
+     * than performing a binary search over all full length entries. When the
+     * probes are dense with respect to the coded keys, each full length entry
+     * is compared a small constant number of times for the entire batch.
+     * 
+     * @param keys
+     *            The probe keys.
+     * @param fromIndex
+     *            The index of the first probe key (inclusive).
+     * @param toIndex
+     *            The index of the last probe key (exclusive).
+     * @param ret
+     *            The results. <code>ret[i]</code> is set to the value which
+     *            {@link #search(byte[])} would return for <code>keys[i]</code>
+     *            for each <i>i</i> in [fromIndex:toIndex).
+     */
+    public void search(final byte[][] keys, final int fromIndex,
+            final int toIndex, final int[] ret) {
+
+        // The lower bound for the full length entry of the next probe.
+        int low = 0;
+
+        for (int i = fromIndex; i < toIndex; i++) {
+
+            final byte[] a = keys[i];
+
+            final int pret = gallopSearch(a, low);
+
+            ret[i] = search(a, pret);
+
+            /*
+             * Either an exact match on the full length entry or the insertion
+             * point before which all full length entries are LT this probe and
+             * hence LT any subsequent probe.
+             */
+            low = pret >= 0 ? pret : -pret - 1;
+
+        }
+
+    }
+
+    /**
+     * Scan the encoding run identified by the search of the full length
+     * entries.
+     * 
+     * @param a
+     *            The search probe.
+     * @param pret
+     *            The result of the search of the full length entries for that
+     *            probe.
+     * 
+     * @return The result of the search.
+     * 
+     * @see #search(byte[])
+     */
+    private int search(final byte[] a, final int pret) {
 
         if (pret == 0 || (pret > 0 && !hasDups)) { 			
             /*
@@ -1458,6 +1525,12 @@ public class CustomByteArrayFrontCodedList extends AbstractObjectList<byte[]>
      * 
      * @param key
      *            The key for the search.
+     * @param low
+     *            The index into the pointer array of the first full length
+     *            entry to be searched.
+     * @param high
+     *            The index into the pointer array of the last full length
+     *            entry to be searched.
      * 
      * @return index of the search key into the pointer array, if it is an exact
      *         match with any of the full length values whose offsets are stored
@@ -1468,7 +1541,7 @@ public class CustomByteArrayFrontCodedList extends AbstractObjectList<byte[]>
      *         0 if and only if the key is matched by any of the full length
      *         coded entries.
      */
-    private int binarySearch(final byte[] key) {
+    private int binarySearch(final byte[] key, int low, int high) {
 
 //        final int base = 0;
         
@@ -1482,10 +1555,6 @@ public class CustomByteArrayFrontCodedList extends AbstractObjectList<byte[]>
          */
 //        final int nmem = p.length;
         
-        int low = 0;
-
-        int high = p.length/*nmem*/ - 1;
-
         while (low <= high) {
 
             final int mid = (low + high) >> 1;
@@ -1533,6 +1602,58 @@ public class CustomByteArrayFrontCodedList extends AbstractObjectList<byte[]>
         return -(offset + 1);
 
     }
+
+    /**
+     * Exponential (galloping) search against the entries in the backing buffer
+     * that are coded as their full length values, starting from a lower bound.
+     * The entries at <code>low, low+1, low+3, low+7, ...</code> are compared
+     * with the probe until one is found which is GTE the probe and a binary
+     * search is then performed within the last interval. The cost is
+     * logarithmic in the distance from the lower bound rather than in the #of
+     * full length entries.
+     * 
+     * @param key
+     *            The key for the search.
+     * @param low
+     *            The index into the pointer array of the first full length
+     *            entry which could be GTE the probe. All full length entries
+     *            before that index MUST be LT the probe.
+     * 
+     * @return As for {@link #binarySearch(byte[], int, int)}.
+     */
+    private int gallopSearch(final byte[] key, int low) {
+
+        int high = p.length - 1;
+
+        int i = low;
+
+        int step = 1;
+
+        while (i <= high) {
+
+            if (comparePos(i, key) > 0) {
+
+                // Actual LT probe, advance the lower bound and gallop.
+                low = i + 1;
+
+                i += step;
+
+                step <<= 1;
+
+            } else {
+
+                // Actual GTE probe, bound the binary search.
+                high = i;
+
+                break;
+
+            }
+
+        }
+
+        return binarySearch(key, low, high);
+
+    }
     
     /**
      * Compares the caller's key to a full length key at a specific offset
@@ -37,6 +37,7 @@ import java.util.ServiceLoader;
 
 import org.apache.log4j.Logger;
 import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.query.resultio.TupleQueryResultParserFactory;
 import org.openrdf.query.resultio.TupleQueryResultParserRegistry;
 import org.openrdf.query.resultio.TupleQueryResultWriterFactory;
@@ -97,6 +98,10 @@ public class ServiceProviderHook {
 	
 	public static final String JSON_RESULT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserFactory"; 
 	public static final String JSON_CONSTRUCT_PARSER_FACTORY = "com.bigdata.rdf.rio.json.BigdataSPARQLResultsJSONParserForConstructFactory";
+
+	public static final String BINARY_RESULTS_WRITER_FACTORY = "com.bigdata.rdf.sail.webapp.client.BinaryResultsWriterFactory";
+
+	public static final String BINARY_RESULTS_PARSER_FACTORY = "com.bigdata.rdf.sail.webapp.client.BinaryResultsParserFactory";
 	
 	
 	
@@ -120,6 +125,10 @@ public class ServiceProviderHook {
 				"application/sparql-results+json", "application/json"),
 				Charset.forName("UTF-8"), Arrays.asList("srj", "json"),
 				RDFFormat.NO_NAMESPACES, RDFFormat.SUPPORTS_CONTEXTS);        
+
+		BINARY_RESULTS = new TupleQueryResultFormat("Blazegraph/Binary",
+				"application/x-blazegraph-binary-results", null/* charset */,
+				"bgr");
 		
         forceLoad();
 
@@ -150,6 +159,16 @@ public class ServiceProviderHook {
      * result stes using JSON.
      */
     public static final RDFFormat JSON_RDR;
+
+    /**
+     * The extension MIME type for the compact binary interchange of SPARQL
+     * result sets. Each distinct RDF Value is sent once in a dictionary and
+     * the solutions are sent as fixed width rows of dictionary references and
+     * inline numeric values.
+     * 
+     * @see com.bigdata.rdf.sail.webapp.client.BinaryResults
+     */
+    public static final TupleQueryResultFormat BINARY_RESULTS;
     
     /**
 	 * This hook may be used to force the load of this class so it can ensure
@@ -211,6 +230,7 @@ public class ServiceProviderHook {
 		RDFFormat.register(TURTLE_RDR);
 		RDFFormat.register(NTRIPLES_RDR);
 		RDFFormat.register(JSON_RDR);
+		TupleQueryResultFormat.register(BINARY_RESULTS);
 		
 		/*
          * Force the class loader to resolve the register, which will cause it
@@ -246,6 +266,9 @@ public class ServiceProviderHook {
 
         	// add our custom RDR-enabled JSON writer for SPARQL result sets.
         	r.add((TupleQueryResultWriterFactory) getInstanceForClass(JSON_WRITER_FACTORY));
+
+        	// the compact binary format for SPARQL result sets.
+        	r.add((TupleQueryResultWriterFactory) getInstanceForClass(BINARY_RESULTS_WRITER_FACTORY));
         	
         }
 
@@ -256,6 +279,9 @@ public class ServiceProviderHook {
             // add our custom RDR-enabled JSON parser for SPARQL result sets.
            
             r.add((TupleQueryResultParserFactory) getInstanceForClass(JSON_RESULT_PARSER_FACTORY));
+
+            // the compact binary format for SPARQL result sets.
+            r.add((TupleQueryResultParserFactory) getInstanceForClass(BINARY_RESULTS_PARSER_FACTORY));
             
         }
 